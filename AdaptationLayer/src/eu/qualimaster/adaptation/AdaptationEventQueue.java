@@ -5,8 +5,6 @@ import java.io.IOException;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.BlockingDeque;
-import java.util.concurrent.LinkedBlockingDeque;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.log4j.LogManager;
@@ -38,9 +36,15 @@ import eu.qualimaster.events.EventManager;
 import eu.qualimaster.monitoring.MonitoringManager;
 import eu.qualimaster.monitoring.events.ConstraintViolationAdaptationEvent;
 import eu.qualimaster.monitoring.events.FrozenSystemState;
+import eu.qualimaster.monitoring.systemState.PlatformSystemPart;
+import eu.qualimaster.observables.ResourceUsage;
+import eu.qualimaster.observables.TimeBehavior;
 
 /**
- * Implements the adaptation event queue and the main event consumer.
+ * Implements the adaptation event queue and the main event consumer. The consumer blocks on a 
+ * {@link CoalescingEventQueue}, i.e., control events bypass monitoring-triggered ones and superseded 
+ * constraint violations are coalesced. Queue depth, coalescing ratio and adaptation latency are reported as
+ * platform observables.
  * 
  * @author Holger Eichelberger
  */
@@ -50,7 +54,7 @@ public class AdaptationEventQueue {
         = Boolean.valueOf(System.getProperty("qm.adaptation.reasoning", "true"));
     private static final boolean WITH_DEBUG = Boolean.valueOf(System.getProperty("qm.adaptation.debug", "false"));
     private static final Logger LOGGER = LogManager.getLogger(AdaptationEventQueue.class);
-    private static BlockingDeque<AdaptationEvent> adaptationEventQueue = new LinkedBlockingDeque<>();
+    private static CoalescingEventQueue adaptationEventQueue = new CoalescingEventQueue();
     private static Map<String, Class<? extends AdaptationEvent>> adaptationFilters 
         = Collections.synchronizedMap(new HashMap<String, Class<? extends AdaptationEvent>>());
 
@@ -62,6 +66,7 @@ public class AdaptationEventQueue {
     private static int debugFileCount = 0;
     private static InformationMessageVisitor cmdVisitor = new InformationMessageVisitor(null);
     private static RtVilValueMapping rtVilMapping = new RtVilValueMapping();
+    private static FrozenSystemState lastState;
 
     static {
         VariableValueMapping.setInstance(rtVilMapping);
@@ -114,7 +119,11 @@ public class AdaptationEventQueue {
             }
         }
         if (add) {
-            adaptationEventQueue.addLast(event);
+            FrozenSystemState state = null;
+            if (event instanceof ConstraintViolationAdaptationEvent) { // resolve delta chain before coalescing
+                state = resolveState((ConstraintViolationAdaptationEvent) event);
+            }
+            adaptationEventQueue.put(event, state);
         }
     }
     
@@ -124,6 +133,7 @@ public class AdaptationEventQueue {
     public static void start() {
         consumer = new EventConsumer();
         Thread t = new Thread(consumer);
+        consumer.thread = t;
         t.start();
     }
     
@@ -144,6 +154,20 @@ public class AdaptationEventQueue {
             consumer.stop();
         }
     }
+
+    /**
+     * Updates the adaptation queue observables of the platform. Called by the consumer thread only, i.e., not for
+     * each event added by the producers.
+     * 
+     * @param entry the entry just processed
+     */
+    private static void updateObservables(CoalescingEventQueue.Entry entry) {
+        PlatformSystemPart platform = MonitoringManager.getSystemState().getPlatform();
+        platform.setValue(ResourceUsage.ADAPTATION_QUEUE_DEPTH, adaptationEventQueue.size(), null);
+        platform.setValue(ResourceUsage.ADAPTATION_COALESCING_RATIO, adaptationEventQueue.getCoalescingRatio(), 
+            null);
+        platform.setValue(TimeBehavior.ADAPTATION_LATENCY, System.currentTimeMillis() - entry.getEnqueued(), null);
+    }
     
     /**
      * Performs the event queue handling, i.e., removing events from the queue
@@ -153,8 +177,9 @@ public class AdaptationEventQueue {
      */
     private static class EventConsumer implements Runnable {
 
-        private boolean isRunning = true;
+        private volatile boolean isRunning = true;
         private boolean errorMessageDone = false;
+        private Thread thread;
         private File tmp;
         
         /**
@@ -168,9 +193,10 @@ public class AdaptationEventQueue {
         public void run() {
             while (isRunning) {
                 try {
-                    if (!adaptationEventQueue.isEmpty()) {
+                    CoalescingEventQueue.Entry entry = adaptationEventQueue.take();
+                    if (null != entry) {
                         boolean adapt = true;
-                        AdaptationEvent event = adaptationEventQueue.removeFirst();
+                        AdaptationEvent event = entry.getEvent();
                         if (event instanceof WrappingRequestMessageAdaptationEvent) {
                             WrappingRequestMessageAdaptationEvent wrapper 
                                 = (WrappingRequestMessageAdaptationEvent) event;
@@ -196,7 +222,8 @@ public class AdaptationEventQueue {
                             Configuration config = models.getConfiguration();
                             Script rtVilModel = models.getAdaptationScript();
                             if (AdaptationFiltering.isEnabled(config, event)) {
-                                adapt(event, config, rtVilModel, tmp);
+                                logHandling(event);
+                                adaptImpl(event, entry.getState(), config, rtVilModel, tmp);
                                 messageStore.setCurrentRequest(null);
                                 eventStore.setCurrentRequest(null);
                                 messageStore.clear();
@@ -205,9 +232,10 @@ public class AdaptationEventQueue {
                             }
                             models.endUsing();
                         }
+                        updateObservables(entry);
                     }
-                    Thread.sleep(20); // TODO possibly adjust sleep to adaptation frequency?
                 } catch (InterruptedException e) {
+                    // stopped, see isRunning
                 }
             }
         }
@@ -217,6 +245,9 @@ public class AdaptationEventQueue {
          */
         private void stop() {
             isRunning = false;
+            if (null != thread) {
+                thread.interrupt();
+            }
         }
         
     }
@@ -232,28 +263,63 @@ public class AdaptationEventQueue {
      * @param tmp the temporary folder for file-based instantiation
      */
     public static void adapt(AdaptationEvent event, Configuration config, Script rtVilModel, File tmp) {
+        logHandling(event);
+        FrozenSystemState state = null;
+        if (event instanceof ConstraintViolationAdaptationEvent) {
+            state = resolveState((ConstraintViolationAdaptationEvent) event);
+        }
+        adaptImpl(event, state, config, rtVilModel, tmp);
+    }
+
+    /**
+     * Logs the handling of <code>event</code> if enabled.
+     * 
+     * @param event the event
+     */
+    private static void logHandling(AdaptationEvent event) {
         if (EventManager.shallBeLogged(event)) {
             LOGGER.info("handling " + event.getClass().getName());
         }
-        adaptImpl(event, config, rtVilModel, tmp);
     }
     
     
+    /**
+     * Resolves the system state of <code>event</code>, i.e., applies the delta to the state of the previous event if 
+     * the full state was not transferred. Called in the order the events are received, as superseded events may 
+     * not be processed at all.
+     * 
+     * @param event the event
+     * @return the system state, <b>null</b> if the state cannot be resolved
+     */
+    private static synchronized FrozenSystemState resolveState(ConstraintViolationAdaptationEvent event) {
+        FrozenSystemState result = event.getState();
+        FrozenSystemState delta = event.getDelta();
+        if (null == result && null != delta) {
+            if (null != lastState && lastState.isBaseOf(delta)) {
+                result = lastState.applyDelta(delta);
+            } else {
+                LOGGER.warn("Cannot apply system state delta " + delta.getBaseEpoch() + "/" + delta.getBaseVersion() 
+                    + "->" + delta.getEpoch() + "/" + delta.getVersion() + ", freezing local state instead");
+            }
+        }
+        if (null != result) {
+            lastState = result;
+        }
+        return result;
+    }
+
     /**
      * Performs the adaptation.
      * 
      * @param event the causing adaptation event
+     * @param state the resolved system state of <code>event</code>, <b>null</b> for freezing the actual state
      * @param config the runtime configuration
      * @param rtVilModel the adaptation model
      * @param tmp the temporary folder for file-based instantiation
      */
-    private static void adaptImpl(AdaptationEvent event, Configuration config, Script rtVilModel, File tmp) {
+    private static void adaptImpl(AdaptationEvent event, FrozenSystemState state, Configuration config, 
+        Script rtVilModel, File tmp) {
         if (null != config && null != rtVilModel) {
-            FrozenSystemState state = null;
-            if (event instanceof ConstraintViolationAdaptationEvent) {
-                ConstraintViolationAdaptationEvent evt = (ConstraintViolationAdaptationEvent) event;
-                state = evt.getState();
-            }
             if (null == state) {
                 state = MonitoringManager.getSystemState().freeze();
             }
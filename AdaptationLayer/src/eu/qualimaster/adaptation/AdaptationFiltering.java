@@ -20,6 +20,8 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 import eu.qualimaster.adaptation.events.AdaptationEvent;
 import eu.qualimaster.coordination.EnactmentCommandCollector;
@@ -349,6 +351,31 @@ class AdaptationFiltering {
         }
     }
 
+    /**
+     * Returns the key for coalescing <code>event</code> with superseded events in the adaptation event queue. Two
+     * constraint violation events supersede each other if they are caused by the same pipeline, pipeline element
+     * (variable) and observable, i.e., if {@link ConstraintViolationAdaptationEventFilter} would treat their clauses
+     * alike.
+     * 
+     * @param event the event
+     * @return the coalescing key, <b>null</b> if <code>event</code> shall not be coalesced
+     */
+    static String getCoalescingKey(AdaptationEvent event) {
+        String result = null;
+        if (event instanceof ConstraintViolationAdaptationEvent) {
+            ConstraintViolationAdaptationEvent evt = (ConstraintViolationAdaptationEvent) event;
+            Set<String> clauses = new TreeSet<String>();
+            for (int c = 0; c < evt.getViolatingClauseCount(); c++) {
+                ViolatingClause clause = evt.getViolatingClause(c);
+                clauses.add(clause.getPipeline() + ":" + clause.getVariable() + ":" + clause.getObservable());
+            }
+            if (!clauses.isEmpty()) {
+                result = clauses.toString();
+            }
+        }
+        return result;
+    }
+
     /**
      * Adds a filter.
      * 
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.adaptation;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+import eu.qualimaster.adaptation.events.AdaptationEvent;
+import eu.qualimaster.adaptation.events.RegularAdaptationEvent;
+import eu.qualimaster.adaptation.events.ResourceChangeAdaptationEvent;
+import eu.qualimaster.adaptation.events.SourceVolumeAdaptationEvent;
+import eu.qualimaster.monitoring.events.ConstraintViolationAdaptationEvent;
+import eu.qualimaster.monitoring.events.FrozenSystemState;
+import eu.qualimaster.monitoring.events.ResourceChangedAdaptationEvent;
+
+/**
+ * A blocking, priority-ordered adaptation event queue. Control events (startup, shutdown, user requests, handlers)
+ * are taken before monitoring-triggered events, both in FIFO order. A monitoring-triggered event that is not taken
+ * yet is superseded by a later event with the same {@link AdaptationFiltering#getCoalescingKey(AdaptationEvent)
+ * coalescing key}, i.e., the later event replaces the earlier one in place. (public for testing)
+ *
+ * @author Holger Eichelberger
+ */
+public class CoalescingEventQueue {
+
+    private Deque<Entry> control = new ArrayDeque<Entry>();
+    private Deque<Entry> monitoring = new ArrayDeque<Entry>();
+    private Map<String, Entry> pending = new HashMap<String, Entry>();
+    private long offered;
+    private long coalesced;
+
+    /**
+     * An entry in the queue.
+     *
+     * @author Holger Eichelberger
+     */
+    public static class Entry {
+
+        private AdaptationEvent event;
+        private FrozenSystemState state;
+        private String key;
+        private long enqueued;
+
+        /**
+         * Creates an entry.
+         *
+         * @param event the event
+         * @param state the system state resolved for <code>event</code> (may be <b>null</b>)
+         * @param key the coalescing key (may be <b>null</b>)
+         */
+        private Entry(AdaptationEvent event, FrozenSystemState state, String key) {
+            this.event = event;
+            this.state = state;
+            this.key = key;
+            this.enqueued = System.currentTimeMillis();
+        }
+
+        /**
+         * Returns the event.
+         *
+         * @return the event
+         */
+        public AdaptationEvent getEvent() {
+            return event;
+        }
+
+        /**
+         * Returns the system state resolved for the event.
+         *
+         * @return the system state, may be <b>null</b>
+         */
+        public FrozenSystemState getState() {
+            return state;
+        }
+
+        /**
+         * Returns the time the actual event of this entry was enqueued. Superseding an event resets this time, while
+         * the entry keeps its position in the queue.
+         *
+         * @return the time in ms since 1970
+         */
+        public long getEnqueued() {
+            return enqueued;
+        }
+
+    }
+
+    /**
+     * Returns whether <code>event</code> is triggered by monitoring rather than controlling the infrastructure.
+     *
+     * @param event the event (may be <b>null</b>)
+     * @return <code>true</code> for monitoring-triggered events, <code>false</code> else
+     */
+    public static boolean isMonitoringEvent(AdaptationEvent event) {
+        return event instanceof ConstraintViolationAdaptationEvent || event instanceof RegularAdaptationEvent
+            || event instanceof ResourceChangedAdaptationEvent || event instanceof ResourceChangeAdaptationEvent
+            || event instanceof SourceVolumeAdaptationEvent;
+    }
+
+    /**
+     * Adds an event. Supersedes a pending event with the same coalescing key.
+     *
+     * @param event the event to add
+     * @param state the system state resolved for <code>event</code> (may be <b>null</b>)
+     */
+    public synchronized void put(AdaptationEvent event, FrozenSystemState state) {
+        offered++;
+        if (isMonitoringEvent(event)) {
+            String key = AdaptationFiltering.getCoalescingKey(event);
+            Entry entry = null == key ? null : pending.get(key);
+            if (null != entry) {
+                entry.event = event;
+                entry.state = state;
+                entry.enqueued = System.currentTimeMillis();
+                coalesced++;
+            } else {
+                entry = new Entry(event, state, key);
+                if (null != key) {
+                    pending.put(key, entry);
+                }
+                monitoring.addLast(entry);
+            }
+        } else {
+            control.addLast(new Entry(event, state, null));
+        }
+        notifyAll();
+    }
+
+    /**
+     * Takes the next event, waiting if necessary until an event becomes available.
+     *
+     * @return the entry of the next event
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized Entry take() throws InterruptedException {
+        while (control.isEmpty() && monitoring.isEmpty()) {
+            wait();
+        }
+        Entry result = control.pollFirst();
+        if (null == result) {
+            result = monitoring.pollFirst();
+            if (null != result.key) {
+                pending.remove(result.key);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of queued events.
+     *
+     * @return the number of queued events
+     */
+    public synchronized int size() {
+        return control.size() + monitoring.size();
+    }
+
+    /**
+     * Returns the ratio of superseded events among all offered events.
+     *
+     * @return the coalescing ratio in [0;1]
+     */
+    public synchronized double getCoalescingRatio() {
+        return 0 == offered ? 0 : ((double) coalesced) / offered;
+    }
+
+    /**
+     * Clears the queue and its statistics.
+     */
+    public synchronized void clear() {
+        control.clear();
+        monitoring.clear();
+        pending.clear();
+        offered = 0;
+        coalesced = 0;
+    }
+
+}
@@ -10,7 +10,7 @@ import org.junit.runners.Suite;
  */
 @RunWith(Suite.class)
 @Suite.SuiteClasses({ManagerTests.class, ExternalTests.class, TopLevelStormTest.class, EventTests.class, 
-    TestAuthenticationSupport.class,
+    TestAuthenticationSupport.class, EventQueueTests.class,
     // must be last
     AdaptationConfigurationTests.class})
 public class AllTests {
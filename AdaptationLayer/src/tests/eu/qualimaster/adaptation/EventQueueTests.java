@@ -0,0 +1,138 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tests.eu.qualimaster.adaptation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import eu.qualimaster.adaptation.CoalescingEventQueue;
+import eu.qualimaster.adaptation.events.AdaptationEvent;
+import eu.qualimaster.adaptation.events.RegularAdaptationEvent;
+import eu.qualimaster.adaptation.events.StartupAdaptationEvent;
+import eu.qualimaster.monitoring.events.ConstraintViolationAdaptationEvent;
+import eu.qualimaster.monitoring.events.FrozenSystemState;
+import eu.qualimaster.monitoring.events.ViolatingClause;
+import eu.qualimaster.observables.IObservable;
+import eu.qualimaster.observables.TimeBehavior;
+
+/**
+ * Tests the coalescing adaptation event queue.
+ *
+ * @author Holger Eichelberger
+ */
+public class EventQueueTests {
+
+    /**
+     * Creates a constraint violation event with a single clause.
+     *
+     * @param pipeline the pipeline name
+     * @param variable the violating variable
+     * @param observable the violating observable
+     * @return the event
+     */
+    private static ConstraintViolationAdaptationEvent createViolation(String pipeline, String variable,
+        IObservable observable) {
+        List<ViolatingClause> clauses = new ArrayList<ViolatingClause>();
+        ViolatingClause clause = new ViolatingClause(observable, variable, "<", 1.0, 0.1);
+        clause.setPipeline(pipeline);
+        clauses.add(clause);
+        return new ConstraintViolationAdaptationEvent(clauses, new FrozenSystemState());
+    }
+
+    /**
+     * Tests priorities and coalescing.
+     *
+     * @throws InterruptedException shall not occur
+     */
+    @Test
+    public void testPriorityAndCoalescing() throws InterruptedException {
+        CoalescingEventQueue queue = new CoalescingEventQueue();
+        ConstraintViolationAdaptationEvent v1 = createViolation("pip", "src", TimeBehavior.LATENCY);
+        ConstraintViolationAdaptationEvent v2 = createViolation("pip", "snk", TimeBehavior.LATENCY);
+        ConstraintViolationAdaptationEvent v3 = createViolation("pip", "src", TimeBehavior.LATENCY);
+        RegularAdaptationEvent regular = new RegularAdaptationEvent();
+        StartupAdaptationEvent startup = new StartupAdaptationEvent("pip");
+        FrozenSystemState s3 = new FrozenSystemState();
+
+        Assert.assertTrue(CoalescingEventQueue.isMonitoringEvent(v1));
+        Assert.assertTrue(CoalescingEventQueue.isMonitoringEvent(regular));
+        Assert.assertFalse(CoalescingEventQueue.isMonitoringEvent(startup));
+        Assert.assertEquals(0, queue.getCoalescingRatio(), 0.001);
+        queue.put(v1, null);
+        queue.put(v2, null);
+        queue.put(regular, null);
+        Thread.sleep(10);
+        long beforeV3 = System.currentTimeMillis();
+        queue.put(v3, s3); // supersedes v1
+        queue.put(startup, null);
+        Assert.assertEquals(4, queue.size());
+        Assert.assertEquals(0.2, queue.getCoalescingRatio(), 0.001);
+
+        Assert.assertSame(startup, queue.take().getEvent()); // control first
+        CoalescingEventQueue.Entry entry = queue.take();
+        Assert.assertSame(v3, entry.getEvent()); // in place of v1
+        Assert.assertSame(s3, entry.getState());
+        Assert.assertTrue(entry.getEnqueued() >= beforeV3); // reset by v3
+        Assert.assertTrue(entry.getEnqueued() <= System.currentTimeMillis());
+        Assert.assertSame(v2, queue.take().getEvent());
+        Assert.assertSame(regular, queue.take().getEvent());
+        Assert.assertEquals(0, queue.size());
+
+        queue.put(v1, null); // taken, thus not coalesced anymore
+        Assert.assertEquals(1, queue.size());
+        queue.clear();
+        Assert.assertEquals(0, queue.size());
+        Assert.assertEquals(0, queue.getCoalescingRatio(), 0.001);
+    }
+
+    /**
+     * Tests that taking blocks until an event is available.
+     *
+     * @throws InterruptedException shall not occur
+     */
+    @Test(timeout = 10000)
+    public void testBlockingTake() throws InterruptedException {
+        final CoalescingEventQueue queue = new CoalescingEventQueue();
+        final List<AdaptationEvent> taken = new ArrayList<AdaptationEvent>();
+        Thread consumer = new Thread() {
+
+            @Override
+            public void run() {
+                try {
+                    AdaptationEvent event = queue.take().getEvent();
+                    synchronized (taken) {
+                        taken.add(event);
+                    }
+                } catch (InterruptedException e) {
+                }
+            }
+        };
+        consumer.start();
+        Thread.sleep(200);
+        synchronized (taken) {
+            Assert.assertTrue(taken.isEmpty());
+        }
+        StartupAdaptationEvent startup = new StartupAdaptationEvent("pip");
+        queue.put(startup, null);
+        consumer.join();
+        Assert.assertEquals(1, taken.size());
+        Assert.assertSame(startup, taken.get(0));
+    }
+
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.coordination;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import eu.qualimaster.common.signal.SignalMechanism;
+import eu.qualimaster.coordination.commands.AbstractPipelineCommand;
+import eu.qualimaster.coordination.commands.AbstractPipelineElementCommand;
+import eu.qualimaster.coordination.commands.AlgorithmChangeCommand;
+import eu.qualimaster.coordination.commands.CommandSet;
+import eu.qualimaster.coordination.commands.CoordinationCommand;
+import eu.qualimaster.coordination.commands.CoordinationExecutionResult;
+import eu.qualimaster.events.EventManager;
+import eu.qualimaster.monitoring.events.PipelineElementObservationMonitoringEvent;
+import eu.qualimaster.monitoring.events.PipelineObservationMonitoringEvent;
+import eu.qualimaster.observables.TimeBehavior;
+
+/**
+ * Executes the commands of a {@link CommandSet}. The commands are partitioned by the pipeline element they affect.
+ * The partitions are executed concurrently on a bounded pool, the commands of a partition in sequence, i.e., commands
+ * on the same pipeline element never run concurrently. Commands affecting a pipeline as a whole, the element commands
+ * of such a pipeline and commands without a pipeline are executed afterwards on the calling thread. The enactment
+ * times are emitted as {@link TimeBehavior#ENACTMENT_COORDINATION_TIME} per pipeline element and
+ * {@link TimeBehavior#ENACTMENT_COORDINATION_TOTAL_TIME} per affected pipeline.
+ *
+ * @author Holger Eichelberger
+ */
+class CommandSetExecutor {
+
+    private static ExecutorService pool;
+
+    private CoordinationCommandExecutionVisitor executor;
+    private CommandSet set;
+    private Map<String, Partition> partitions = new LinkedHashMap<String, Partition>();
+    private Partition local = new Partition(null, null);
+
+    /**
+     * The commands of a command set affecting the same pipeline element.
+     *
+     * @author Holger Eichelberger
+     */
+    private class Partition implements Callable<CoordinationExecutionResult> {
+
+        private String pipeline;
+        private String element;
+        private List<CoordinationCommand> commands = new ArrayList<CoordinationCommand>();
+        private CoordinationCommandExecutionVisitor executor;
+        private volatile long time;
+        private volatile boolean executed;
+
+        /**
+         * Creates a partition.
+         *
+         * @param pipeline the pipeline (may be <b>null</b> for the partition of the calling thread)
+         * @param element the pipeline element (may be <b>null</b> for the partition of the calling thread)
+         */
+        private Partition(String pipeline, String element) {
+            this.pipeline = pipeline;
+            this.element = element;
+        }
+
+        @Override
+        public CoordinationExecutionResult call() {
+            CoordinationExecutionResult failed = null;
+            long start = System.currentTimeMillis();
+            CommandSetGroupingVisitor gVisitor = new CommandSetGroupingVisitor();
+            for (int c = 0; c < commands.size(); c++) {
+                commands.get(c).accept(gVisitor);
+            }
+            gVisitor.setExecutor(executor);
+            SignalMechanism.startBatch();
+            try {
+                for (int c = 0; null == failed && c < commands.size(); c++) {
+                    failed = commands.get(c).accept(gVisitor);
+                }
+            } finally {
+                failed = CoordinationCommandExecutionVisitor.endSignalBatch(set, failed);
+            }
+            time = System.currentTimeMillis() - start;
+            executed = true;
+            return failed;
+        }
+
+    }
+
+    /**
+     * Creates an executor for a command set.
+     *
+     * @param executor the executing visitor (must have <code>set</code> on its command stack)
+     * @param set the command set to execute
+     */
+    CommandSetExecutor(CoordinationCommandExecutionVisitor executor, CommandSet set) {
+        this.executor = executor;
+        this.set = set;
+        partition();
+    }
+
+    /**
+     * Partitions the commands of {@link #set}.
+     */
+    private void partition() {
+        Set<String> pipelineWide = new HashSet<String>();
+        for (int c = 0; c < set.getCommandCount(); c++) {
+            CoordinationCommand cmd = set.getCommand(c);
+            if (isPipelineWide(cmd)) {
+                pipelineWide.add(((AbstractPipelineCommand) cmd).getPipeline());
+            }
+        }
+        for (int c = 0; c < set.getCommandCount(); c++) {
+            CoordinationCommand cmd = set.getCommand(c);
+            Partition partition = local;
+            if (cmd instanceof AbstractPipelineElementCommand) {
+                AbstractPipelineElementCommand eCmd = (AbstractPipelineElementCommand) cmd;
+                String pipeline = eCmd.getPipeline();
+                if (null != pipeline && null != eCmd.getPipelineElement() && !pipelineWide.contains(pipeline)) {
+                    String key = CommandSetGroupingVisitor.getKey(eCmd);
+                    partition = partitions.get(key);
+                    if (null == partition) {
+                        partition = new Partition(pipeline, eCmd.getPipelineElement());
+                        partitions.put(key, partition);
+                    }
+                }
+            }
+            partition.commands.add(cmd);
+        }
+    }
+
+    /**
+     * Returns whether <code>cmd</code> affects its pipeline as a whole and, thus, must not run concurrently
+     * with other commands on that pipeline.
+     *
+     * @param cmd the command
+     * @return <code>true</code> if pipeline-wide, <code>false</code> else
+     */
+    private static boolean isPipelineWide(CoordinationCommand cmd) {
+        boolean result = false;
+        if (cmd instanceof AbstractPipelineCommand && null != ((AbstractPipelineCommand) cmd).getPipeline()) {
+            if (cmd instanceof AlgorithmChangeCommand) { // may start a sub-pipeline
+                AlgorithmChangeCommand aCmd = (AlgorithmChangeCommand) cmd;
+                INameMapping mapping = CoordinationManager.getNameMapping(aCmd.getPipeline());
+                result = null != mapping && null != mapping.getSubPipelineByAlgorithmName(aCmd.getAlgorithm());
+            } else {
+                result = !(cmd instanceof AbstractPipelineElementCommand);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Executes the command set.
+     *
+     * @return the aggregated execution result, <b>null</b> if successful
+     */
+    CoordinationExecutionResult execute() {
+        long start = System.currentTimeMillis();
+        List<CoordinationExecutionResult> failed = new ArrayList<CoordinationExecutionResult>();
+        int parallelism = CoordinationConfiguration.getCommandSetParallelism();
+        if (parallelism > 1 && partitions.size() > 1) {
+            ExecutorService service = getPool(parallelism);
+            List<Future<CoordinationExecutionResult>> futures = new ArrayList<Future<CoordinationExecutionResult>>();
+            for (Partition partition : partitions.values()) {
+                partition.executor = executor.createWorker(set);
+                futures.add(service.submit(partition));
+            }
+            for (int f = 0; f < futures.size(); f++) {
+                try {
+                    addFailed(failed, futures.get(f).get());
+                } catch (ExecutionException e) {
+                    failed.add(new CoordinationExecutionResult(set, e.getMessage(),
+                        CoordinationExecutionCode.EXECUTING_COMMAND_SET));
+                } catch (InterruptedException e) {
+                    for (int r = f; r < futures.size(); r++) {
+                        futures.get(r).cancel(false); // do not start, but let running partitions complete
+                    }
+                    Thread.currentThread().interrupt();
+                    failed.add(new CoordinationExecutionResult(set, "Interrupted while executing the command set",
+                        CoordinationExecutionCode.EXECUTING_COMMAND_SET));
+                    break;
+                }
+            }
+        } else {
+            for (Partition partition : partitions.values()) {
+                if (failed.isEmpty()) { // sequential, stop at first failure
+                    partition.executor = executor;
+                    addFailed(failed, partition.call());
+                }
+            }
+        }
+        if (failed.isEmpty() && !local.commands.isEmpty()) {
+            local.executor = executor;
+            addFailed(failed, local.call());
+        }
+        emitTimes(System.currentTimeMillis() - start);
+        return aggregate(failed);
+    }
+
+    /**
+     * Adds <code>result</code> to <code>failed</code> if not <b>null</b>.
+     *
+     * @param failed the failed results so far (modified as a side effect)
+     * @param result the result to add (may be <b>null</b>)
+     */
+    private static void addFailed(List<CoordinationExecutionResult> failed, CoordinationExecutionResult result) {
+        if (null != result) {
+            failed.add(result);
+        }
+    }
+
+    /**
+     * Aggregates the failed results into a single one. The first failure determines the command and the code,
+     * the message combines all failure messages.
+     *
+     * @param failed the failed results
+     * @return the aggregated result, <b>null</b> if <code>failed</code> is empty
+     */
+    private static CoordinationExecutionResult aggregate(List<CoordinationExecutionResult> failed) {
+        CoordinationExecutionResult result;
+        if (failed.isEmpty()) {
+            result = null;
+        } else if (1 == failed.size()) {
+            result = failed.get(0);
+        } else {
+            StringBuilder message = new StringBuilder();
+            for (CoordinationExecutionResult f : failed) {
+                if (message.length() > 0) {
+                    message.append("; ");
+                }
+                message.append(f.getMessage());
+            }
+            CoordinationExecutionResult first = failed.get(0);
+            result = new CoordinationExecutionResult(first.getCommand(), message.toString(), first.getCode());
+        }
+        return result;
+    }
+
+    /**
+     * Emits the enactment times of the executed partitions as monitoring events. Partitions which did not run,
+     * e.g., due to a failure of a previous partition or an interrupt, are not considered.
+     *
+     * @param total the total enactment time of {@link #set}
+     */
+    private void emitTimes(long total) {
+        Set<String> pipelines = new HashSet<String>();
+        for (Partition partition : partitions.values()) {
+            if (partition.executed) {
+                EventManager.handle(new PipelineElementObservationMonitoringEvent(partition.pipeline,
+                    partition.element, null, TimeBehavior.ENACTMENT_COORDINATION_TIME, Double.valueOf(partition.time)));
+                pipelines.add(partition.pipeline);
+            }
+        }
+        if (local.executed) {
+            for (CoordinationCommand cmd : local.commands) {
+                if (cmd instanceof AbstractPipelineCommand && null != ((AbstractPipelineCommand) cmd).getPipeline()) {
+                    pipelines.add(((AbstractPipelineCommand) cmd).getPipeline());
+                }
+            }
+        }
+        for (String pipeline : pipelines) {
+            EventManager.handle(new PipelineObservationMonitoringEvent(pipeline, null,
+                TimeBehavior.ENACTMENT_COORDINATION_TOTAL_TIME, Double.valueOf(total)));
+        }
+    }
+
+    /**
+     * Returns the pool for executing partitions concurrently. The pool is created upon first use.
+     *
+     * @param parallelism the maximum number of concurrent partitions
+     * @return the pool
+     */
+    private static synchronized ExecutorService getPool(int parallelism) {
+        if (null == pool) {
+            pool = Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+
+                private AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread result = new Thread(runnable, "CommandSetExecutor-" + count.incrementAndGet());
+                    result.setDaemon(true);
+                    return result;
+                }
+
+            });
+        }
+        return pool;
+    }
+
+    /**
+     * Shuts down the pool (if created).
+     */
+    static synchronized void shutdown() {
+        if (null != pool) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+}
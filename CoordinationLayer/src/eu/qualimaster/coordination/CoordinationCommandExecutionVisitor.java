@@ -94,6 +94,32 @@ class CoordinationCommandExecutionVisitor implements ICoordinationCommandVisitor
     CoordinationCommandExecutionVisitor(IExecutionTracer tracer) {
         this.tracer = tracer;
     }
+
+    /**
+     * Creates a command execution visitor for executing parts of <code>container</code> in parallel to 
+     * <code>parent</code>. As <code>container</code> stays on the command stack, the worker never writes the 
+     * top-level coordination log.
+     * 
+     * @param parent the parent visitor
+     * @param container the container command being executed by <code>parent</code>
+     */
+    private CoordinationCommandExecutionVisitor(CoordinationCommandExecutionVisitor parent, 
+        CoordinationCommand container) {
+        this.tracer = parent.tracer;
+        this.timestamp = parent.timestamp;
+        this.activeCommands = parent.activeCommands;
+        commandStack.push(container);
+    }
+
+    /**
+     * Creates a worker visitor for executing parts of <code>container</code> on a different thread.
+     * 
+     * @param container the container command being executed by this visitor
+     * @return the worker visitor
+     */
+    CoordinationCommandExecutionVisitor createWorker(CoordinationCommand container) {
+        return new CoordinationCommandExecutionVisitor(this, container);
+    }
     
     /**
      * Sets the top-level command of this execution.
@@ -137,6 +163,27 @@ class CoordinationCommandExecutionVisitor implements ICoordinationCommandVisitor
         return failing;
     }
 
+    /**
+     * Ends a signal batch and sends the collected signals (only for pipelines using the queued signal channel).
+     * 
+     * @param command the command causing the signals
+     * @param failed the execution result so far (may be <b>null</b>)
+     * @return <code>failed</code> or, if <b>null</b> and sending the signals fails, the failed result
+     * @see SignalMechanism#startBatch()
+     */
+    static CoordinationExecutionResult endSignalBatch(CoordinationCommand command, 
+        CoordinationExecutionResult failed) {
+        try {
+            SignalMechanism.endBatch();
+        } catch (SignalException e) {
+            if (null == failed) {
+                failed = new CoordinationExecutionResult(command, e.getMessage(), 
+                    CoordinationExecutionCode.NO_SIGNAL_SENDING_ERROR);
+            }
+        }
+        return failed;
+    }
+
     @Override
     public CoordinationExecutionResult visitAlgorithmChangeCommand(AlgorithmChangeCommand command) {
         return handleAlgorithmChange(command, null);
@@ -259,11 +306,16 @@ class CoordinationCommandExecutionVisitor implements ICoordinationCommandVisitor
         commandStack.push(command);
         CommandSequenceGroupingVisitor gVisitor = new CommandSequenceGroupingVisitor();
         gVisitor.setExecutor(this);
-        for (int c = 0; null == failed && c < command.getCommandCount(); c++) {
-            failed = command.getCommand(c).accept(gVisitor);
-        }
-        if (null == failed) {
-            failed = gVisitor.flush();
+        SignalMechanism.startBatch();
+        try {
+            for (int c = 0; null == failed && c < command.getCommandCount(); c++) {
+                failed = command.getCommand(c).accept(gVisitor);
+            }
+            if (null == failed) {
+                failed = gVisitor.flush();
+            }
+        } finally {
+            failed = endSignalBatch(command, failed);
         }
         if (null != tracer) {
             tracer.executedCommandSequence(command, failed);
@@ -273,16 +325,8 @@ class CoordinationCommandExecutionVisitor implements ICoordinationCommandVisitor
     
     @Override
     public CoordinationExecutionResult visitCommandSet(CommandSet command) {
-        CoordinationExecutionResult failed = null;
         commandStack.push(command);
-        CommandSetGroupingVisitor gVisitor = new CommandSetGroupingVisitor();
-        for (int c = 0; c < command.getCommandCount(); c++) {
-            command.getCommand(c).accept(gVisitor);
-        }
-        gVisitor.setExecutor(this);
-        for (int c = 0; null == failed && c < command.getCommandCount(); c++) {
-            failed = command.getCommand(c).accept(gVisitor);
-        }
+        CoordinationExecutionResult failed = new CommandSetExecutor(this, command).execute();
         if (null != tracer) {
             tracer.executedCommandSet(command, failed);
         }
@@ -388,6 +432,7 @@ class CoordinationCommandExecutionVisitor implements ICoordinationCommandVisitor
             getLogger().error(e.getMessage());
         }
         PipelineCache.getCache(pipelineName); // prepare the cache
+        SignalMechanism.setSignalQueue(getNamespace(mapping), options.useSignalQueue());
         if (!CoordinationManager.isTestingMode()) {
             StormUtils.submitTopology(CoordinationConfiguration.getNimbus(), mapping, jarPath, 
                 options);
@@ -448,6 +493,11 @@ class CoordinationCommandExecutionVisitor implements ICoordinationCommandVisitor
             ShutdownSignal signal = new ShutdownSignal(getNamespace(mapping), c.getName());
             send(command, signal); // ignore failing
         }
+        try {
+            SignalMechanism.flushBatch(); // deliver shutdown signals before waiting, even within a batch
+        } catch (SignalException e) {
+            getLogger().error(e.getMessage()); // ignore failing
+        }
         Utils.sleep(CoordinationConfiguration.getShutdownSignalWaitTime());
         SignalMechanism.releaseMechanism(getNamespace(mapping));
         if (!CoordinationManager.isTestingMode()) {
@@ -485,7 +535,8 @@ class CoordinationCommandExecutionVisitor implements ICoordinationCommandVisitor
                 mapping.getPipelineNodeComponent(command.getPipelineElement()));
             if (null != receiver) {
                 MonitoringChangeSignal signal = new MonitoringChangeSignal(getNamespace(mapping), receiver.getName(), 
-                    command.getFrequencies(), command.getObservables(), getCauseMessageId());
+                    command.getFrequencies(), command.getObservables(), command.getKeyCapacity(), 
+                    getCauseMessageId());
                 send(command, signal);
             }
         }
@@ -177,6 +177,29 @@ public class CoordinationConfiguration extends DataManagementConfiguration {
      * The default value for {@link #PROFILE_LOCATION} (temp).
      */
     public static final String DEFAULT_PROFILE_LOCATION = FileUtils.getTempDirectoryPath();
+
+    /**
+     * Denotes the maximum number of pipeline elements enacted concurrently for a command set (Integer, values 
+     * less than 2 disable concurrent enactment).
+     */
+    public static final String COMMAND_SET_PARALLELISM = "coordination.commandSet.parallelism";
+
+    /**
+     * The default value for {@link #COMMAND_SET_PARALLELISM} (Value {@value}).
+     */
+    public static final int DEFAULT_COMMAND_SET_PARALLELISM = 4;
+
+    /**
+     * Denotes the maximum number of executors the {@link QmScheduler} places on a single host (Integer, values less
+     * than 1 derive the capacity from the number of executors and hosts). Also taken from the Storm configuration
+     * of Nimbus.
+     */
+    public static final String SCHEDULER_HOST_CAPACITY = "coordination.scheduler.hostCapacity";
+
+    /**
+     * The default value for {@link #SCHEDULER_HOST_CAPACITY} (Value {@value}).
+     */
+    public static final int DEFAULT_SCHEDULER_HOST_CAPACITY = 0;
     
     static final PropertyReader<DetailMode> DETAIL_MODE_READER = new PropertyReader<DetailMode>() {
 
@@ -223,6 +246,10 @@ public class CoordinationConfiguration extends DataManagementConfiguration {
         = new ConfigurationOption<DetailMode>(DETAILED_PROFILING, DEFAULT_DETAILED_PROFILING, DETAIL_MODE_READER);
     private static ConfigurationOption<String> profileLocation 
         = createStringOption(PROFILE_LOCATION, DEFAULT_PROFILE_LOCATION);
+    private static ConfigurationOption<Integer> commandSetParallelism 
+        = createIntegerOption(COMMAND_SET_PARALLELISM, DEFAULT_COMMAND_SET_PARALLELISM);
+    private static ConfigurationOption<Integer> schedulerHostCapacity 
+        = createIntegerOption(SCHEDULER_HOST_CAPACITY, DEFAULT_SCHEDULER_HOST_CAPACITY);
 
     /**
      * Reads the configuration settings from the file.
@@ -299,6 +326,11 @@ public class CoordinationConfiguration extends DataManagementConfiguration {
     @SuppressWarnings("rawtypes")
     public static void transferConfigurationFrom(Map conf) {
         DataManagementConfiguration.transferConfigurationFrom(conf);
+        if (null != conf.get(SCHEDULER_HOST_CAPACITY)) {
+            Properties prop = new Properties();
+            prop.put(SCHEDULER_HOST_CAPACITY, conf.get(SCHEDULER_HOST_CAPACITY));
+            configure(prop, false);
+        }
     }
     
     /**
@@ -437,5 +469,23 @@ public class CoordinationConfiguration extends DataManagementConfiguration {
     public static String getProfileLocation() {
         return profileLocation.getValue();
     }
+
+    /**
+     * Returns the maximum number of pipeline elements enacted concurrently for a command set.
+     * 
+     * @return the maximum number, values less than 2 disable concurrent enactment
+     */
+    public static int getCommandSetParallelism() {
+        return commandSetParallelism.getValue();
+    }
+
+    /**
+     * Returns the maximum number of executors the {@link QmScheduler} places on a single host.
+     * 
+     * @return the maximum number, values less than 1 derive the capacity from the number of executors and hosts
+     */
+    public static int getSchedulerHostCapacity() {
+        return schedulerHostCapacity.getValue();
+    }
     
 }
@@ -15,6 +15,7 @@ public class CoordinationExecutionCode {
     public static final int STOPPING_PIPELINE = 4;
     public static final int CHANGING_PARALLELISM = 5;
     public static final int PROFILING = 6;
+    public static final int EXECUTING_COMMAND_SET = 7;
     
     public static final int UNKNOWN_COMMAND = -1;
     public static final int NOT_IMPLEMENTED = -2;
@@ -357,6 +357,7 @@ public class CoordinationManager {
      */
     public static void stop() {
         NAME_MAPPING.clear();
+        CommandSetExecutor.shutdown();
         SignalMechanism.clear();
     }
     
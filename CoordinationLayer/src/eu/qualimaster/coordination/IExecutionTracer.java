@@ -13,7 +13,8 @@ import eu.qualimaster.coordination.commands.ReplayCommand;
 import eu.qualimaster.coordination.commands.ScheduleWavefrontAdaptationCommand;
 
 /**
- * Allows to trace the execution.
+ * Allows to trace the execution. Please note that the commands of a {@link CommandSet} may be executed 
+ * concurrently, i.e., implementations must be thread-safe.
  * 
  * @author Holger Eichelberger
  */
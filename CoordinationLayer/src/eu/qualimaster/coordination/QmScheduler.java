@@ -4,7 +4,7 @@
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
  * You may obtain a copy of the License at
- * 
+ *
  *   http://www.apache.org/licenses/LICENSE-2.0
  *
  * Unless required by applicable law or agreed to in writing, software
@@ -16,66 +16,231 @@
 package eu.qualimaster.coordination;
 
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.apache.storm.curator.framework.CuratorFramework;
+
+import backtype.storm.generated.Bolt;
+import backtype.storm.generated.GlobalStreamId;
+import backtype.storm.generated.StormTopology;
 import backtype.storm.scheduler.Cluster;
 import backtype.storm.scheduler.EvenScheduler;
+import backtype.storm.scheduler.ExecutorDetails;
 import backtype.storm.scheduler.SchedulerAssignment;
+import backtype.storm.scheduler.SupervisorDetails;
 import backtype.storm.scheduler.Topologies;
 import backtype.storm.scheduler.TopologyDetails;
+import backtype.storm.scheduler.WorkerSlot;
+import eu.qualimaster.common.signal.SignalMechanism;
+import eu.qualimaster.common.signal.StormSignalConnection;
+import eu.qualimaster.coordination.scheduling.PlacementPlanner;
+import eu.qualimaster.coordination.scheduling.SchedulingHost;
+import eu.qualimaster.coordination.scheduling.SchedulingInformation;
 
 /**
- * A test scheduler.
- * 
+ * A load- and locality-aware scheduler. Newly submitted topologies are placed incrementally by the
+ * {@link PlacementPlanner}, i.e., heavily communicating executors are packed into the same worker while respecting
+ * the {@link CoordinationConfiguration#getSchedulerHostCapacity() host capacity} and preferring less loaded hosts.
+ * Traffic and load are taken from {@link SchedulingInformation} if available (retrieved from the Zookeeper of the
+ * Storm configuration, where the monitoring layer publishes it), else the topology structure is used.
+ * The {@link TopologyDetails#getNumWorkers() number of workers} of a topology is an upper bound: as all executors of
+ * a topology on a host share one worker, fewer workers are used if the executors fit onto fewer hosts. Topologies
+ * which are partially assigned, e.g., after a worker failure, keep their assigned executors and only the unassigned
+ * executors are placed, preferring the hosts of their communication partners. As the slots of assigned workers
+ * cannot be extended, at least one further worker is used then even if this exceeds the number of workers.
+ * Topologies which cannot be placed are left to the even scheduler.
+ *
  * @author Holger Eichelberger
  */
 public class QmScheduler extends EvenScheduler {
-    
-    // yaml: nimbus.scheduler: "com.mycompany.SchedulerA"
-    
-    /**
-     * Creates the scheduler.
-     */
-    public QmScheduler() {
-        System.out.println("QMSCHEDULER CREATED");
-    }
-    
+
+    // yaml: storm.scheduler: "eu.qualimaster.coordination.QmScheduler"
+
+    private static final Logger LOGGER = LogManager.getLogger(QmScheduler.class);
+    private CuratorFramework framework;
+
     @Override
     @SuppressWarnings("rawtypes")
     public void prepare(Map conf) {
-        System.out.println("QMSCHEDULER " + conf);
+        CoordinationConfiguration.transferConfigurationFrom(conf);
         super.prepare(conf);
+        if (null != conf.get("storm.zookeeper.servers")) {
+            framework = ZkUtils.obtainCuratorFramework(StormSignalConnection.zkHosts(conf),
+                SignalMechanism.GLOBAL_NAMESPACE);
+        }
     }
-    
+
     @Override
     public void schedule(Topologies topologies, Cluster cluster) {
-        System.out.println("QMSCHEDULER schedule");
-        Map<String, TopologyDetails> needScheduling = new HashMap<String, TopologyDetails>();
+        Map<String, TopologyDetails> fallback = new HashMap<String, TopologyDetails>();
+        boolean retrieved = false;
         for (TopologyDetails topo : topologies.getTopologies()) {
-            System.out.println(topo.getId() + " " + topo.getName());
-            SchedulerAssignment assignment = cluster.getAssignmentById(topo.getId());
             if (cluster.needsScheduling(topo)) {
-                if (null == assignment) { // just do the initial assignment
-                    needScheduling.put(topo.getId(), topo);
-                    System.out.println("NO ASSIGNMENT");
-                    //System.out.println("Scheduling " + topo.getId() + " " + topo.getName());
-                } else {
-                    System.out.println("ASSNG " + assignment.getExecutorToSlot());
-                    System.out.println("ASSNG " + assignment.getExecutors());
-                    System.out.println("ASSNG " + assignment.getSlots());
+                if (!retrieved) {
+                    retrieveInformation();
+                    retrieved = true;
+                }
+                if (!schedule(topo, cluster)) {
+                    fallback.put(topo.getId(), topo);
+                }
+            }
+        }
+        if (!fallback.isEmpty()) {
+            super.schedule(new Topologies(fallback), cluster);
+        }
+    }
+
+    /**
+     * Retrieves the scheduling information published by the monitoring layer if the Zookeeper is connected.
+     * Keeps the actual information if retrieving fails.
+     */
+    private void retrieveInformation() {
+        if (null != framework && framework.getZookeeperClient().isConnected()) {
+            try {
+                SchedulingInformation.retrieve(framework);
+            } catch (IOException e) {
+                LOGGER.warn("Cannot retrieve scheduling information: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Places the unassigned executors of a topology.
+     *
+     * @param topo the topology
+     * @param cluster the cluster
+     * @return <code>true</code> if all executors were placed, <code>false</code> if the topology shall be left to
+     *   the even scheduler
+     */
+    private boolean schedule(TopologyDetails topo, Cluster cluster) {
+        boolean done = false;
+        Map<String, List<ExecutorDetails>> components = cluster.getNeedsSchedulingComponentToExecutors(topo);
+        int executors = 0;
+        for (List<ExecutorDetails> execs : components.values()) {
+            executors += execs.size();
+        }
+        Map<String, Map<String, Double>> traffic = SchedulingInformation.getTraffic(topo.getName());
+        if (traffic.isEmpty()) {
+            traffic = getStructuralTraffic(topo.getTopology());
+        }
+        List<SchedulingHost> hosts = getHosts(cluster, executors);
+        SchedulerAssignment assignment = cluster.getAssignmentById(topo.getId());
+        int assignedWorkers = 0;
+        if (null != assignment) {
+            assignedWorkers = new HashSet<WorkerSlot>(assignment.getExecutorToSlot().values()).size();
+        }
+        Map<ExecutorDetails, HostPort> placement = PlacementPlanner.plan(components, getAssigned(topo, assignment),
+            traffic, hosts, Math.max(1, topo.getNumWorkers() - assignedWorkers));
+        if (placement.size() == executors && executors > 0) {
+            Map<String, List<ExecutorDetails>> slots = new HashMap<String, List<ExecutorDetails>>();
+            Map<String, WorkerSlot> workers = new HashMap<String, WorkerSlot>();
+            for (Map.Entry<ExecutorDetails, HostPort> entry : placement.entrySet()) {
+                HostPort hostPort = entry.getValue();
+                String endpoint = hostPort.getEndpointId();
+                List<ExecutorDetails> execs = slots.get(endpoint);
+                if (null == execs) {
+                    execs = new ArrayList<ExecutorDetails>();
+                    slots.put(endpoint, execs);
+                    workers.put(endpoint, new WorkerSlot(hostPort.getHostId(), hostPort.getPort()));
                 }
-            } else {
-                System.out.println("ASSNG " + assignment.getExecutorToSlot());
-                System.out.println("ASSNG " + assignment.getExecutors());
-                System.out.println("ASSNG " + assignment.getSlots());
+                execs.add(entry.getKey());
+            }
+            for (Map.Entry<String, List<ExecutorDetails>> entry : slots.entrySet()) {
+                cluster.assign(workers.get(entry.getKey()), topo.getId(), entry.getValue());
+            }
+            LOGGER.info("Placed " + executors + " executors of " + topo.getName() + " on " + slots.keySet());
+            done = true;
+        } else if (executors > 0) {
+            LOGGER.info("Cannot place " + topo.getName() + ", leaving it to the even scheduler");
+        }
+        return done;
+    }
+
+    /**
+     * Returns the executors of a topology which are already assigned.
+     *
+     * @param topo the topology
+     * @param assignment the assignment of <code>topo</code> (may be <b>null</b>)
+     * @return the number of assigned executors per component, per host id
+     */
+    private static Map<String, Map<String, Integer>> getAssigned(TopologyDetails topo,
+        SchedulerAssignment assignment) {
+        Map<String, Map<String, Integer>> result = new HashMap<String, Map<String, Integer>>();
+        if (null != assignment) {
+            Map<ExecutorDetails, String> executorToComponent = topo.getExecutorToComponent();
+            for (Map.Entry<ExecutorDetails, WorkerSlot> entry : assignment.getExecutorToSlot().entrySet()) {
+                String component = executorToComponent.get(entry.getKey());
+                if (null != component) {
+                    String host = entry.getValue().getNodeId();
+                    Map<String, Integer> hostAssigned = result.get(host);
+                    if (null == hostAssigned) {
+                        hostAssigned = new HashMap<String, Integer>();
+                        result.put(host, hostAssigned);
+                    }
+                    Integer old = hostAssigned.get(component);
+                    hostAssigned.put(component, null == old ? 1 : old + 1);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the hosts executors can be placed on.
+     *
+     * @param cluster the cluster
+     * @param executors the number of executors to place
+     * @return the hosts
+     */
+    private static List<SchedulingHost> getHosts(Cluster cluster, int executors) {
+        Map<String, Integer> used = new HashMap<String, Integer>();
+        for (SchedulerAssignment assignment : cluster.getAssignments().values()) {
+            for (WorkerSlot slot : assignment.getExecutorToSlot().values()) {
+                Integer count = used.get(slot.getNodeId());
+                used.put(slot.getNodeId(), null == count ? 1 : count + 1);
             }
         }
-        if (!needScheduling.isEmpty()) {
-            Topologies topo = new Topologies(needScheduling);
-            super.schedule(topo, cluster);
+        int capacity = CoordinationConfiguration.getSchedulerHostCapacity();
+        if (capacity <= 0) {
+            int total = executors;
+            for (Integer count : used.values()) {
+                total += count;
+            }
+            capacity = PlacementPlanner.deriveCapacity(total, cluster.getSupervisors().size());
+        }
+        List<SchedulingHost> result = new ArrayList<SchedulingHost>();
+        for (SupervisorDetails supervisor : cluster.getSupervisors().values()) {
+            Integer count = used.get(supervisor.getId());
+            result.add(new SchedulingHost(supervisor.getId(),
+                new ArrayList<Integer>(cluster.getAvailablePorts(supervisor)), capacity,
+                null == count ? 0 : count, SchedulingInformation.getHostLoad(supervisor.getHost(), 0)));
+        }
+        return result;
+    }
+
+    /**
+     * Derives the traffic from the topology structure, i.e., each subscription counts as unit traffic.
+     *
+     * @param topology the topology
+     * @return the traffic volume per origin and target component
+     */
+    private static Map<String, Map<String, Double>> getStructuralTraffic(StormTopology topology) {
+        Map<String, Map<String, Double>> result = new HashMap<String, Map<String, Double>>();
+        if (null != topology && null != topology.get_bolts()) {
+            for (Map.Entry<String, Bolt> entry : topology.get_bolts().entrySet()) {
+                for (GlobalStreamId id : entry.getValue().get_common().get_inputs().keySet()) {
+                    SchedulingInformation.addTraffic(result, id.get_componentId(), entry.getKey(), 1);
+                }
+            }
         }
-        //super.schedule(topologies, cluster);
+        return result;
     }
 
 }
@@ -205,7 +205,7 @@ public class RepositoryHelper {
             exec.addCustomArgument(rtVilModel.getParameter(3).getName(), event);
         }
         if (rtVilModel.getParameterCount() > 4) {
-            exec.addCustomArgument(rtVilModel.getParameter(4).getName(), state.getMapping());
+            exec.addCustomArgument(rtVilModel.getParameter(4).getName(), state.getMappingView());
         }
         return exec;
     }
@@ -72,9 +72,19 @@ public class ZkUtils {
      * @return the framework instance
      */
     public static CuratorFramework obtainCuratorFramework() {
-        String connectString = CoordinationConfiguration.getZookeeperConnectString();
+        return obtainCuratorFramework(CoordinationConfiguration.getZookeeperConnectString(), STORM_NS);
+    }
+
+    /**
+     * Obtains a Curator framework instance for the given Zookeeper and namespace and tries to start it.
+     * 
+     * @param connectString the Zookeeper connect string
+     * @param namespace the namespace
+     * @return the framework instance
+     */
+    public static CuratorFramework obtainCuratorFramework(String connectString, String namespace) {
         CuratorFramework framework = CuratorFrameworkFactory.builder().connectString(connectString)
-            .namespace(STORM_NS).retryPolicy(new RetryOneTime(500)).build();
+            .namespace(namespace).retryPolicy(new RetryOneTime(500)).build();
         framework.start();
         return framework;
     }
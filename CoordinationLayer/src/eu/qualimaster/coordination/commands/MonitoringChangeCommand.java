@@ -16,6 +16,7 @@ public class MonitoringChangeCommand extends AbstractPipelineElementCommand {
     private static final long serialVersionUID = 7305954829313124837L;
     private Map<MonitoringFrequency, Integer> frequencies;
     private Map<IObservable, Boolean> observables;
+    private Integer keyCapacity;
     
     /**
      * Changes the monitoring for the entire infrastructure.
@@ -87,9 +88,26 @@ public class MonitoringChangeCommand extends AbstractPipelineElementCommand {
      */
     public MonitoringChangeCommand(String pipeline, String pipelineElement, 
         Map<MonitoringFrequency, Integer> frequencies, Map<IObservable, Boolean> observables) {
+        this(pipeline, pipelineElement, frequencies, observables, null);
+    }
+
+    /**
+     * Changes the monitoring for a <code>pipelineElement</code>.
+     * 
+     * @param pipeline the name of the pipeline (may be <b>null</b> for all)
+     * @param pipelineElement the pipeline element as class name (may be <b>null</b> for all)
+     * @param frequencies the desired monitoring frequencies, <b>null</b> for unspecified, 0 or negative for 
+     *     completely disabled
+     * @param observables the enabled/disabled observables, <b>null</b> for unspecified
+     * @param keyCapacity the number of most frequent keys a source shall aggregate approximately for volume 
+     *     prediction, <b>null</b> for unspecified, 0 or negative for exact aggregation of all keys
+     */
+    public MonitoringChangeCommand(String pipeline, String pipelineElement, 
+        Map<MonitoringFrequency, Integer> frequencies, Map<IObservable, Boolean> observables, Integer keyCapacity) {
         super(pipeline, pipelineElement);
         this.frequencies = frequencies;
         this.observables = observables;
+        this.keyCapacity = keyCapacity;
     }
 
     @QMInternal
@@ -116,4 +134,13 @@ public class MonitoringChangeCommand extends AbstractPipelineElementCommand {
         return observables;
     }
 
+    /**
+     * Returns the number of most frequent keys a source shall aggregate approximately for volume prediction.
+     * 
+     * @return the number of keys, <b>null</b> for unspecified, 0 or negative for exact aggregation of all keys
+     */
+    public Integer getKeyCapacity() {
+        return keyCapacity;
+    }
+
 }
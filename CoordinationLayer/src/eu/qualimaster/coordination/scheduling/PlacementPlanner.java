@@ -0,0 +1,416 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.coordination.scheduling;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import eu.qualimaster.coordination.HostPort;
+
+/**
+ * Places the executors of a topology onto hosts. Components are grouped along their heaviest traffic edges as long
+ * as a group fits onto a host. Groups are placed (largest first) onto the host with the highest traffic affinity to
+ * the already placed components, preferring less loaded hosts, and split across hosts only if no host can take
+ * them as a whole. All executors of a topology on a host share one worker, i.e., communication within a group
+ * does not cross worker boundaries. The host capacity is respected as long as the hosts can take all executors.
+ * The number of workers, i.e., hosts, used for a topology can be limited. Executors of the topology which are
+ * already assigned (e.g., in case of a partial re-assignment after a worker failure) attract the executors to
+ * place according to their traffic, but cannot be moved.
+ *
+ * @author Holger Eichelberger
+ */
+public class PlacementPlanner {
+
+    /**
+     * The factor of spare capacity when deriving the host capacity.
+     */
+    public static final double CAPACITY_SLACK = 1.5;
+
+    /**
+     * Represents an undirected traffic edge among two components.
+     *
+     * @author Holger Eichelberger
+     */
+    private static class Edge {
+
+        private String first;
+        private String second;
+        private double weight;
+
+        /**
+         * Creates an edge.
+         *
+         * @param first the first component
+         * @param second the second component
+         * @param weight the traffic volume in both directions
+         */
+        private Edge(String first, String second, double weight) {
+            this.first = first;
+            this.second = second;
+            this.weight = weight;
+        }
+
+    }
+
+    /**
+     * Orders edges by descending weight and, for determinism, by names.
+     */
+    private static final Comparator<Edge> EDGE_COMPARATOR = new Comparator<Edge>() {
+
+        @Override
+        public int compare(Edge o1, Edge o2) {
+            int result = Double.compare(o2.weight, o1.weight);
+            if (0 == result) {
+                result = o1.first.compareTo(o2.first);
+            }
+            if (0 == result) {
+                result = o1.second.compareTo(o2.second);
+            }
+            return result;
+        }
+
+    };
+
+    /**
+     * Prevents external creation.
+     */
+    private PlacementPlanner() {
+    }
+
+    /**
+     * Derives the capacity of a host if not configured.
+     *
+     * @param executors the number of executors to be placed in total
+     * @param hosts the number of hosts
+     * @return the capacity
+     */
+    public static int deriveCapacity(int executors, int hosts) {
+        return hosts <= 0 ? executors : Math.max(1, (int) Math.ceil(CAPACITY_SLACK * executors / hosts));
+    }
+
+    /**
+     * Plans the placement of the executors of a topology.
+     *
+     * @param <E> the executor type
+     * @param components the executors per component
+     * @param traffic the traffic volume per origin and target component (may be incomplete or empty)
+     * @param hosts the hosts, only hosts with free ports are considered
+     * @return the placement of the executors, empty if there is no host with a free port
+     */
+    public static <E> Map<E, HostPort> plan(Map<String, List<E>> components, Map<String, Map<String, Double>> traffic,
+        List<SchedulingHost> hosts) {
+        return plan(components, new HashMap<String, Map<String, Integer>>(), traffic, hosts, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Plans the placement of the (remaining) executors of a topology.
+     *
+     * @param <E> the executor type
+     * @param components the executors to place per component
+     * @param assigned the number of executors per component of the topology which are already assigned, per host id
+     *   (may be empty)
+     * @param traffic the traffic volume per origin and target component (may be incomplete or empty)
+     * @param hosts the hosts, only hosts with free ports are considered
+     * @param maxWorkers the maximum number of workers (hosts) to place <code>components</code> on, at least 1
+     * @return the placement of the executors, empty if there is no host with a free port
+     */
+    public static <E> Map<E, HostPort> plan(Map<String, List<E>> components,
+        Map<String, Map<String, Integer>> assigned, Map<String, Map<String, Double>> traffic,
+        List<SchedulingHost> hosts, int maxWorkers) {
+        Map<E, HostPort> result = new HashMap<E, HostPort>();
+        List<SchedulingHost> candidates = new ArrayList<SchedulingHost>();
+        for (SchedulingHost host : hosts) {
+            if (host.hasFreePort()) {
+                candidates.add(host);
+            }
+        }
+        if (!candidates.isEmpty()) {
+            int[] remaining = new int[candidates.size()];
+            int[] placed = new int[candidates.size()];
+            int maxRemaining = 0;
+            for (int h = 0; h < remaining.length; h++) {
+                remaining[h] = candidates.get(h).getRemaining();
+                maxRemaining = Math.max(maxRemaining, remaining[h]);
+            }
+            Map<String, Integer> sizes = new HashMap<String, Integer>();
+            for (Map.Entry<String, List<E>> entry : components.entrySet()) {
+                sizes.put(entry.getKey(), entry.getValue().size());
+            }
+            for (Map<String, Integer> hostAssigned : assigned.values()) {
+                for (Map.Entry<String, Integer> entry : hostAssigned.entrySet()) {
+                    Integer old = sizes.get(entry.getKey());
+                    sizes.put(entry.getKey(), null == old ? entry.getValue() : old + entry.getValue());
+                }
+            }
+            Map<String, Map<String, Double>> weights = toUndirected(sizes, traffic);
+            List<Map<String, Integer>> placedComponents = new ArrayList<Map<String, Integer>>();
+            for (int h = 0; h < remaining.length; h++) {
+                Map<String, Integer> hostAssigned = assigned.get(candidates.get(h).getId());
+                placedComponents.add(null == hostAssigned ? new HashMap<String, Integer>()
+                    : new HashMap<String, Integer>(hostAssigned));
+            }
+            for (List<String> group : group(components, weights, maxRemaining)) {
+                List<E> executors = new ArrayList<E>();
+                List<String> executorComponents = new ArrayList<String>();
+                for (String component : group) {
+                    for (E executor : components.get(component)) {
+                        executors.add(executor);
+                        executorComponents.add(component);
+                    }
+                }
+                int pos = 0;
+                while (pos < executors.size()) {
+                    int left = executors.size() - pos;
+                    int h = selectHost(candidates, remaining, placed, placedComponents, group, sizes, weights,
+                        left, Math.max(1, maxWorkers));
+                    int count = remaining[h] > 0 ? Math.min(remaining[h], left) : left;
+                    SchedulingHost host = candidates.get(h);
+                    HostPort slot = new HostPort(host.getId(), host.getFreePort());
+                    for (int e = pos; e < pos + count; e++) {
+                        result.put(executors.get(e), slot);
+                        String component = executorComponents.get(e);
+                        Integer old = placedComponents.get(h).get(component);
+                        placedComponents.get(h).put(component, null == old ? 1 : old + 1);
+                    }
+                    remaining[h] = Math.max(0, remaining[h] - count);
+                    placed[h] += count;
+                    pos += count;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Turns the directed traffic among the given components into undirected weights.
+     *
+     * @param sizes the number of executors per component (to place or already assigned)
+     * @param traffic the traffic volume per origin and target component
+     * @return the undirected weights (symmetric)
+     */
+    private static Map<String, Map<String, Double>> toUndirected(Map<String, Integer> sizes,
+        Map<String, Map<String, Double>> traffic) {
+        Map<String, Map<String, Double>> result = new HashMap<String, Map<String, Double>>();
+        for (Map.Entry<String, Map<String, Double>> entry : traffic.entrySet()) {
+            String origin = entry.getKey();
+            if (sizes.containsKey(origin)) {
+                for (Map.Entry<String, Double> tEntry : entry.getValue().entrySet()) {
+                    String target = tEntry.getKey();
+                    double volume = null == tEntry.getValue() ? 0 : tEntry.getValue();
+                    if (sizes.containsKey(target) && !origin.equals(target) && volume > 0) {
+                        SchedulingInformation.addTraffic(result, origin, target, volume);
+                        SchedulingInformation.addTraffic(result, target, origin, volume);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Groups the components along their heaviest edges as long as a group does not exceed <code>maxSize</code>
+     * executors. Edges to components which are not in <code>components</code> are ignored.
+     *
+     * @param <E> the executor type
+     * @param components the executors per component
+     * @param weights the undirected traffic weights
+     * @param maxSize the maximum number of executors in a group
+     * @return the groups, largest first
+     */
+    private static <E> List<List<String>> group(Map<String, List<E>> components,
+        Map<String, Map<String, Double>> weights, int maxSize) {
+        Map<String, List<String>> groups = new TreeMap<String, List<String>>(); // sorted for determinism
+        for (String component : components.keySet()) {
+            List<String> group = new ArrayList<String>();
+            group.add(component);
+            groups.put(component, group);
+        }
+        List<Edge> edges = new ArrayList<Edge>();
+        for (Map.Entry<String, Map<String, Double>> entry : weights.entrySet()) {
+            for (Map.Entry<String, Double> wEntry : entry.getValue().entrySet()) {
+                if (entry.getKey().compareTo(wEntry.getKey()) < 0) {
+                    edges.add(new Edge(entry.getKey(), wEntry.getKey(), wEntry.getValue()));
+                }
+            }
+        }
+        Collections.sort(edges, EDGE_COMPARATOR);
+        for (Edge edge : edges) {
+            List<String> first = groups.get(edge.first);
+            List<String> second = groups.get(edge.second);
+            if (null != first && null != second && first != second
+                && size(first, components) + size(second, components) <= maxSize) {
+                first.addAll(second);
+                for (String component : second) {
+                    groups.put(component, first);
+                }
+            }
+        }
+        List<List<String>> result = new ArrayList<List<String>>();
+        for (List<String> group : groups.values()) {
+            if (!result.contains(group)) {
+                result.add(group);
+            }
+        }
+        final Map<String, List<E>> comps = components;
+        Collections.sort(result, new Comparator<List<String>>() {
+
+            @Override
+            public int compare(List<String> o1, List<String> o2) {
+                return Integer.compare(size(o2, comps), size(o1, comps));
+            }
+
+        });
+        return result;
+    }
+
+    /**
+     * Returns the number of executors in a group.
+     *
+     * @param <E> the executor type
+     * @param group the group
+     * @param components the executors per component
+     * @return the number of executors
+     */
+    private static <E> int size(List<String> group, Map<String, List<E>> components) {
+        int result = 0;
+        for (String component : group) {
+            result += components.get(component).size();
+        }
+        return result;
+    }
+
+    /**
+     * Selects the host for (the remainder of) a group. Prefers hosts taking the remainder as a whole, then hosts
+     * with the most remaining capacity, finally (all hosts exhausted) the least used host. Among these, the host
+     * with the highest traffic affinity wins, then the less loaded one. If <code>maxWorkers</code> hosts are already
+     * used, only these hosts are considered.
+     *
+     * @param hosts the candidate hosts
+     * @param remaining the remaining capacity per host
+     * @param placed the number of executors of the topology placed per host
+     * @param placedComponents the number of executors per component placed per host
+     * @param group the group to place
+     * @param sizes the number of executors per component
+     * @param weights the undirected traffic weights
+     * @param left the number of executors of the group left for placement
+     * @param maxWorkers the maximum number of hosts to use
+     * @return the index of the selected host
+     */
+    private static int selectHost(List<SchedulingHost> hosts, int[] remaining, int[] placed,
+        List<Map<String, Integer>> placedComponents, List<String> group, Map<String, Integer> sizes,
+        Map<String, Map<String, Double>> weights, int left, int maxWorkers) {
+        int workers = 0;
+        for (int h = 0; h < placed.length; h++) {
+            if (placed[h] > 0) {
+                workers++;
+            }
+        }
+        boolean[] allowed = new boolean[placed.length];
+        int maxRemaining = 0;
+        for (int h = 0; h < remaining.length; h++) {
+            allowed[h] = placed[h] > 0 || workers < maxWorkers;
+            if (allowed[h]) {
+                maxRemaining = Math.max(maxRemaining, remaining[h]);
+            }
+        }
+        int best = -1;
+        double bestAffinity = 0;
+        for (int h = 0; h < remaining.length; h++) {
+            boolean eligible;
+            if (!allowed[h]) {
+                eligible = false;
+            } else if (maxRemaining >= left) {
+                eligible = remaining[h] >= left;
+            } else if (maxRemaining > 0) {
+                eligible = remaining[h] == maxRemaining;
+            } else {
+                eligible = true; // overflow, all exhausted
+            }
+            if (eligible) {
+                double affinity = getAffinity(placedComponents.get(h), group, sizes, weights);
+                if (best < 0 || affinity > bestAffinity
+                    || (affinity == bestAffinity && isLessLoaded(hosts, placed, h, best))) {
+                    best = h;
+                    bestAffinity = affinity;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns whether host <code>h1</code> is less loaded than host <code>h2</code>.
+     *
+     * @param hosts the hosts
+     * @param placed the number of executors of the topology placed per host
+     * @param h1 the index of the first host
+     * @param h2 the index of the second host
+     * @return <code>true</code> if <code>h1</code> is less loaded, <code>false</code> else
+     */
+    private static boolean isLessLoaded(List<SchedulingHost> hosts, int[] placed, int h1, int h2) {
+        SchedulingHost host1 = hosts.get(h1);
+        SchedulingHost host2 = hosts.get(h2);
+        int result = Double.compare(host1.getLoad(), host2.getLoad());
+        if (0 == result) {
+            result = Double.compare(getUtilization(host1, placed[h1]), getUtilization(host2, placed[h2]));
+        }
+        return result < 0;
+    }
+
+    /**
+     * Returns the utilization of a host.
+     *
+     * @param host the host
+     * @param placed the number of executors of the topology placed on <code>host</code>
+     * @return the utilization
+     */
+    private static double getUtilization(SchedulingHost host, int placed) {
+        int used = host.getUsed() + placed;
+        return host.getCapacity() > 0 ? ((double) used) / host.getCapacity() : used;
+    }
+
+    /**
+     * Returns the traffic affinity of a group to the components already placed on a host.
+     *
+     * @param placedComponents the number of executors per component placed on the host
+     * @param group the group
+     * @param sizes the number of executors per component
+     * @param weights the undirected traffic weights
+     * @return the affinity
+     */
+    private static double getAffinity(Map<String, Integer> placedComponents, List<String> group,
+        Map<String, Integer> sizes, Map<String, Map<String, Double>> weights) {
+        double result = 0;
+        for (String component : group) {
+            Map<String, Double> cWeights = weights.get(component);
+            if (null != cWeights) {
+                for (Map.Entry<String, Integer> entry : placedComponents.entrySet()) {
+                    Double weight = cWeights.get(entry.getKey());
+                    if (null != weight) {
+                        result += weight * entry.getValue() / sizes.get(entry.getKey());
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.coordination.scheduling;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import eu.qualimaster.coordination.HostPort;
+
+/**
+ * Scores a placement against the traffic among the components of a topology. The traffic of a component edge is
+ * assumed to be spread evenly over all pairs of executors of the origin and the target component.
+ *
+ * @author Holger Eichelberger
+ */
+public class PlacementScore {
+
+    private double total;
+    private double local;
+    private double interWorker;
+    private double remote;
+    private int overload;
+
+    /**
+     * Prevents external creation.
+     */
+    private PlacementScore() {
+    }
+
+    /**
+     * Scores a placement.
+     *
+     * @param <E> the executor type
+     * @param components the executors per component
+     * @param traffic the traffic volume per origin and target component
+     * @param placement the placement of the executors, unplaced executors are ignored
+     * @param hosts the hosts (for determining overload)
+     * @return the score
+     */
+    public static <E> PlacementScore score(Map<String, List<E>> components, Map<String, Map<String, Double>> traffic,
+        Map<E, HostPort> placement, List<SchedulingHost> hosts) {
+        PlacementScore result = new PlacementScore();
+        for (Map.Entry<String, Map<String, Double>> entry : traffic.entrySet()) {
+            List<E> origins = components.get(entry.getKey());
+            for (Map.Entry<String, Double> tEntry : entry.getValue().entrySet()) {
+                List<E> targets = components.get(tEntry.getKey());
+                if (null != origins && null != targets && !origins.isEmpty() && !targets.isEmpty()
+                    && null != tEntry.getValue()) {
+                    double volume = tEntry.getValue() / (origins.size() * targets.size());
+                    for (E origin : origins) {
+                        for (E target : targets) {
+                            result.add(placement.get(origin), placement.get(target), volume);
+                        }
+                    }
+                }
+            }
+        }
+        Map<String, Integer> placed = new HashMap<String, Integer>();
+        for (HostPort slot : placement.values()) {
+            Integer old = placed.get(slot.getHostId());
+            placed.put(slot.getHostId(), null == old ? 1 : old + 1);
+        }
+        for (SchedulingHost host : hosts) {
+            Integer count = placed.get(host.getId());
+            if (null != count) {
+                result.overload += Math.max(0, host.getUsed() + count - host.getCapacity());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds the traffic among two executors.
+     *
+     * @param origin the slot of the origin executor (may be <b>null</b> if not placed)
+     * @param target the slot of the target executor (may be <b>null</b> if not placed)
+     * @param volume the volume
+     */
+    private void add(HostPort origin, HostPort target, double volume) {
+        if (null != origin && null != target) {
+            total += volume;
+            if (origin.getHostId().equals(target.getHostId())) {
+                if (origin.getPort() == target.getPort()) {
+                    local += volume;
+                } else {
+                    interWorker += volume;
+                }
+            } else {
+                remote += volume;
+            }
+        }
+    }
+
+    /**
+     * Returns the total traffic volume among placed executors.
+     *
+     * @return the total volume
+     */
+    public double getTotalVolume() {
+        return total;
+    }
+
+    /**
+     * Returns the traffic volume within workers.
+     *
+     * @return the local volume
+     */
+    public double getLocalVolume() {
+        return local;
+    }
+
+    /**
+     * Returns the traffic volume among workers on the same host.
+     *
+     * @return the inter-worker volume
+     */
+    public double getInterWorkerVolume() {
+        return interWorker;
+    }
+
+    /**
+     * Returns the traffic volume among hosts.
+     *
+     * @return the remote volume
+     */
+    public double getRemoteVolume() {
+        return remote;
+    }
+
+    /**
+     * Returns the fraction of the traffic volume among hosts.
+     *
+     * @return the remote fraction in [0;1]
+     */
+    public double getRemoteFraction() {
+        return total > 0 ? remote / total : 0;
+    }
+
+    /**
+     * Returns the number of executors exceeding the capacity of their hosts.
+     *
+     * @return the overload
+     */
+    public int getOverload() {
+        return overload;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("total %.2f local %.2f inter-worker %.2f remote %.2f (%.1f%%) overload %d", total, local,
+            interWorker, remote, 100 * getRemoteFraction(), overload);
+    }
+
+}
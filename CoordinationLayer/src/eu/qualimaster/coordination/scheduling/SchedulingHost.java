@@ -0,0 +1,121 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.coordination.scheduling;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Describes a host executors can be placed on.
+ *
+ * @author Holger Eichelberger
+ */
+public class SchedulingHost {
+
+    private String id;
+    private List<Integer> freePorts;
+    private int capacity;
+    private int used;
+    private double load;
+
+    /**
+     * Creates a host.
+     *
+     * @param id the host id (e.g., the Storm supervisor id)
+     * @param freePorts the free worker ports (copied and sorted)
+     * @param capacity the maximum number of executors
+     * @param used the number of executors already placed on this host
+     * @param load the load of the host (relative among the hosts, e.g., in [0;1])
+     */
+    public SchedulingHost(String id, List<Integer> freePorts, int capacity, int used, double load) {
+        this.id = id;
+        this.freePorts = new ArrayList<Integer>(freePorts);
+        Collections.sort(this.freePorts);
+        this.capacity = capacity;
+        this.used = used;
+        this.load = load;
+    }
+
+    /**
+     * Returns the host id.
+     *
+     * @return the id
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Returns whether the host has a free worker port.
+     *
+     * @return <code>true</code> if there is a free port, <code>false</code> else
+     */
+    public boolean hasFreePort() {
+        return !freePorts.isEmpty();
+    }
+
+    /**
+     * Returns the first free worker port.
+     *
+     * @return the port, <code>-1</code> if there is none
+     */
+    public int getFreePort() {
+        return freePorts.isEmpty() ? -1 : freePorts.get(0);
+    }
+
+    /**
+     * Returns the maximum number of executors.
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of executors already placed on this host.
+     *
+     * @return the number of executors
+     */
+    public int getUsed() {
+        return used;
+    }
+
+    /**
+     * Returns the number of executors that can still be placed on this host.
+     *
+     * @return the remaining capacity
+     */
+    public int getRemaining() {
+        return Math.max(0, capacity - used);
+    }
+
+    /**
+     * Returns the load of this host.
+     *
+     * @return the load
+     */
+    public double getLoad() {
+        return load;
+    }
+
+    @Override
+    public String toString() {
+        return id + " ports " + freePorts + " used " + used + "/" + capacity + " load " + load;
+    }
+
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.coordination.scheduling;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.storm.curator.framework.CuratorFramework;
+import org.apache.storm.zookeeper.KeeperException;
+
+import eu.qualimaster.common.signal.SignalMechanism;
+
+/**
+ * Collects the runtime information used for placing executors, i.e., the load of the hosts and the traffic between
+ * the (Storm) components of a topology. The information is provided by the monitoring layer and is directly
+ * available to a scheduler running in the same JVM, e.g., in a local cluster. For a scheduler running in Nimbus,
+ * the monitoring layer {@link #publish(CuratorFramework) publishes} the information to {@link #PATH} in the
+ * {@link SignalMechanism#GLOBAL_NAMESPACE global namespace} of the Zookeeper and the scheduler
+ * {@link #retrieve(CuratorFramework) retrieves} it from there. Without information, the scheduler falls back to
+ * the topology structure.
+ *
+ * @author Holger Eichelberger
+ */
+public class SchedulingInformation {
+
+    /**
+     * The Zookeeper path the information is published to (relative to the global namespace).
+     */
+    public static final String PATH = "scheduling";
+
+    private static final Map<String, Double> HOST_LOAD = new HashMap<String, Double>();
+    private static final Map<String, Map<String, Map<String, Double>>> TRAFFIC
+        = new HashMap<String, Map<String, Map<String, Double>>>();
+
+    /**
+     * Prevents external creation.
+     */
+    private SchedulingInformation() {
+    }
+
+    /**
+     * Defines the load of a host.
+     *
+     * @param host the host name
+     * @param load the load (relative among the hosts, e.g., in [0;1])
+     */
+    public static void setHostLoad(String host, double load) {
+        synchronized (HOST_LOAD) {
+            HOST_LOAD.put(host, load);
+        }
+    }
+
+    /**
+     * Returns the load of a host.
+     *
+     * @param host the host name
+     * @param dflt the default value if no load is known
+     * @return the load or <code>dflt</code>
+     */
+    public static double getHostLoad(String host, double dflt) {
+        Double result;
+        synchronized (HOST_LOAD) {
+            result = HOST_LOAD.get(host);
+        }
+        return null == result ? dflt : result;
+    }
+
+    /**
+     * Defines the traffic among the components of a topology.
+     *
+     * @param topology the topology name
+     * @param traffic the traffic volume per origin and target component (copied)
+     */
+    public static void setTraffic(String topology, Map<String, Map<String, Double>> traffic) {
+        synchronized (TRAFFIC) {
+            TRAFFIC.put(topology, copy(traffic));
+        }
+    }
+
+    /**
+     * Returns the traffic among the components of a topology.
+     *
+     * @param topology the topology name
+     * @return the traffic volume per origin and target component, empty if unknown
+     */
+    public static Map<String, Map<String, Double>> getTraffic(String topology) {
+        Map<String, Map<String, Double>> result;
+        synchronized (TRAFFIC) {
+            result = TRAFFIC.get(topology);
+        }
+        return null == result ? new HashMap<String, Map<String, Double>>() : copy(result);
+    }
+
+    /**
+     * Removes the traffic information of a topology.
+     *
+     * @param topology the topology name
+     */
+    public static void removeTraffic(String topology) {
+        synchronized (TRAFFIC) {
+            TRAFFIC.remove(topology);
+        }
+    }
+
+    /**
+     * Adds traffic among two components.
+     *
+     * @param traffic the traffic volume per origin and target component (modified as a side effect)
+     * @param origin the origin component
+     * @param target the target component
+     * @param volume the volume to add
+     */
+    public static void addTraffic(Map<String, Map<String, Double>> traffic, String origin, String target,
+        double volume) {
+        Map<String, Double> targets = traffic.get(origin);
+        if (null == targets) {
+            targets = new HashMap<String, Double>();
+            traffic.put(origin, targets);
+        }
+        Double old = targets.get(target);
+        targets.put(target, null == old ? volume : old + volume);
+    }
+
+    /**
+     * Copies a traffic mapping.
+     *
+     * @param traffic the mapping to copy
+     * @return the copy
+     */
+    private static Map<String, Map<String, Double>> copy(Map<String, Map<String, Double>> traffic) {
+        Map<String, Map<String, Double>> result = new HashMap<String, Map<String, Double>>();
+        for (Map.Entry<String, Map<String, Double>> entry : traffic.entrySet()) {
+            result.put(entry.getKey(), new HashMap<String, Double>(entry.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * Serializes all information [public for testing].
+     * 
+     * @return the serialized information
+     * @throws IOException in case of serialization problems
+     */
+    public static byte[] serialize() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        synchronized (HOST_LOAD) {
+            out.writeInt(HOST_LOAD.size());
+            for (Map.Entry<String, Double> entry : HOST_LOAD.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeDouble(entry.getValue());
+            }
+        }
+        synchronized (TRAFFIC) {
+            out.writeInt(TRAFFIC.size());
+            for (Map.Entry<String, Map<String, Map<String, Double>>> entry : TRAFFIC.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue().size());
+                for (Map.Entry<String, Map<String, Double>> oEntry : entry.getValue().entrySet()) {
+                    out.writeUTF(oEntry.getKey());
+                    out.writeInt(oEntry.getValue().size());
+                    for (Map.Entry<String, Double> tEntry : oEntry.getValue().entrySet()) {
+                        out.writeUTF(tEntry.getKey());
+                        out.writeDouble(tEntry.getValue());
+                    }
+                }
+            }
+        }
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Replaces all information by serialized information [public for testing].
+     * 
+     * @param data the serialized information
+     * @throws IOException in case of deserialization problems, the information is not changed then
+     * @see #serialize()
+     */
+    public static void deserialize(byte[] data) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        Map<String, Double> load = new HashMap<String, Double>();
+        int hosts = in.readInt();
+        for (int h = 0; h < hosts; h++) {
+            String host = in.readUTF();
+            load.put(host, in.readDouble());
+        }
+        Map<String, Map<String, Map<String, Double>>> traffic
+            = new HashMap<String, Map<String, Map<String, Double>>>();
+        int topologies = in.readInt();
+        for (int t = 0; t < topologies; t++) {
+            String topology = in.readUTF();
+            Map<String, Map<String, Double>> topologyTraffic = new HashMap<String, Map<String, Double>>();
+            int origins = in.readInt();
+            for (int o = 0; o < origins; o++) {
+                String origin = in.readUTF();
+                int targets = in.readInt();
+                for (int g = 0; g < targets; g++) {
+                    String target = in.readUTF();
+                    addTraffic(topologyTraffic, origin, target, in.readDouble());
+                }
+            }
+            traffic.put(topology, topologyTraffic);
+        }
+        synchronized (HOST_LOAD) {
+            HOST_LOAD.clear();
+            HOST_LOAD.putAll(load);
+        }
+        synchronized (TRAFFIC) {
+            TRAFFIC.clear();
+            TRAFFIC.putAll(traffic);
+        }
+    }
+
+    // checkstyle: stop exception type check
+
+    /**
+     * Publishes all information to the Zookeeper.
+     * 
+     * @param framework the Curator framework (in the {@link SignalMechanism#GLOBAL_NAMESPACE global namespace})
+     * @throws IOException in case that publishing fails
+     * @see #retrieve(CuratorFramework)
+     */
+    public static void publish(CuratorFramework framework) throws IOException {
+        byte[] data = serialize();
+        try {
+            if (null == framework.checkExists().forPath(PATH)) {
+                try {
+                    framework.create().creatingParentsIfNeeded().forPath(PATH, data);
+                    data = null;
+                } catch (KeeperException.NodeExistsException e) {
+                    // created concurrently, set data below
+                }
+            }
+            if (null != data) {
+                framework.setData().forPath(PATH, data);
+            }
+        } catch (Exception e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Retrieves the information published to the Zookeeper and replaces the information held by this class.
+     * 
+     * @param framework the Curator framework (in the {@link SignalMechanism#GLOBAL_NAMESPACE global namespace})
+     * @return <code>true</code> if information was retrieved, <code>false</code> if nothing was published so far
+     *   (the information held by this class is not changed then)
+     * @throws IOException in case that retrieving fails
+     * @see #publish(CuratorFramework)
+     */
+    public static boolean retrieve(CuratorFramework framework) throws IOException {
+        byte[] data;
+        try {
+            data = framework.getData().forPath(PATH);
+        } catch (KeeperException.NoNodeException e) {
+            data = null;
+        } catch (Exception e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        if (null != data) {
+            deserialize(data);
+        }
+        return null != data;
+    }
+
+    // checkstyle: resume exception type check
+
+    /**
+     * Clears all information. Intended for testing.
+     */
+    public static void clear() {
+        synchronized (HOST_LOAD) {
+            HOST_LOAD.clear();
+        }
+        synchronized (TRAFFIC) {
+            TRAFFIC.clear();
+        }
+    }
+
+}
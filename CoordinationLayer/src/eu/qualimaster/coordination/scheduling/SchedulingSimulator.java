@@ -0,0 +1,248 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.coordination.scheduling;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import eu.qualimaster.coordination.HostPort;
+
+/**
+ * Scores the placements of the {@link PlacementPlanner} against a round-robin placement (as done by the Storm even
+ * scheduler) on recorded topology and traffic data. The data is given as properties file:
+ * <ul>
+ *   <li><code>hosts</code>: comma-separated host names</li>
+ *   <li><code>host.&lt;host&gt;.ports</code>: comma-separated free worker ports (default 6700)</li>
+ *   <li><code>host.&lt;host&gt;.load</code>: the host load (default 0)</li>
+ *   <li><code>host.&lt;host&gt;.used</code>: the number of executors already running on the host (default 0)</li>
+ *   <li><code>capacity</code>: the executor capacity of a host (default derived)</li>
+ *   <li><code>components</code>: comma-separated component names</li>
+ *   <li><code>component.&lt;component&gt;.executors</code>: the number of executors (default 1)</li>
+ *   <li><code>traffic.&lt;origin&gt;.&lt;target&gt;</code>: the traffic volume from origin to target</li>
+ * </ul>
+ *
+ * @author Holger Eichelberger
+ */
+public class SchedulingSimulator {
+
+    private List<SchedulingHost> hosts = new ArrayList<SchedulingHost>();
+    private Map<String, List<String>> components = new TreeMap<String, List<String>>();
+    private Map<String, Map<String, Double>> traffic = new HashMap<String, Map<String, Double>>();
+    private PlacementScore planned;
+    private PlacementScore baseline;
+
+    /**
+     * Creates a simulator from recorded data.
+     *
+     * @param data the data
+     * @throws IllegalArgumentException in case of illegal data
+     */
+    public SchedulingSimulator(Properties data) {
+        int executors = 0;
+        for (String component : split(data.getProperty("components", ""))) {
+            int count = getInt(data, "component." + component + ".executors", 1);
+            List<String> execs = new ArrayList<String>();
+            for (int e = 0; e < count; e++) {
+                execs.add(component + "#" + e);
+            }
+            components.put(component, execs);
+            executors += count;
+        }
+        String trafficPrefix = "traffic.";
+        for (String key : data.stringPropertyNames()) {
+            if (key.startsWith(trafficPrefix)) {
+                String edge = key.substring(trafficPrefix.length());
+                int pos = edge.indexOf('.');
+                if (pos <= 0 || pos == edge.length() - 1) {
+                    throw new IllegalArgumentException("illegal traffic edge " + key);
+                }
+                SchedulingInformation.addTraffic(traffic, edge.substring(0, pos), edge.substring(pos + 1),
+                    getDouble(data, key, 0));
+            }
+        }
+        List<String> hostNames = split(data.getProperty("hosts", ""));
+        int capacity = getInt(data, "capacity", PlacementPlanner.deriveCapacity(executors, hostNames.size()));
+        for (String host : hostNames) {
+            List<Integer> ports = new ArrayList<Integer>();
+            for (String port : split(data.getProperty("host." + host + ".ports", "6700"))) {
+                ports.add(toInt(port));
+            }
+            hosts.add(new SchedulingHost(host, ports, capacity, getInt(data, "host." + host + ".used", 0),
+                getDouble(data, "host." + host + ".load", 0)));
+        }
+    }
+
+    /**
+     * Runs the simulation, i.e., scores the planned and the baseline placement.
+     */
+    public void run() {
+        planned = PlacementScore.score(components, traffic, PlacementPlanner.plan(components, traffic, hosts), hosts);
+        baseline = PlacementScore.score(components, traffic, planRoundRobin(), hosts);
+    }
+
+    /**
+     * Places the executors round-robin on the hosts with free ports.
+     *
+     * @return the placement
+     */
+    private Map<String, HostPort> planRoundRobin() {
+        Map<String, HostPort> result = new HashMap<String, HostPort>();
+        List<HostPort> slots = new ArrayList<HostPort>();
+        for (SchedulingHost host : hosts) {
+            if (host.hasFreePort()) {
+                slots.add(new HostPort(host.getId(), host.getFreePort()));
+            }
+        }
+        if (!slots.isEmpty()) {
+            int pos = 0;
+            for (List<String> executors : components.values()) {
+                for (String executor : executors) {
+                    result.put(executor, slots.get(pos++ % slots.size()));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the score of the planned placement.
+     *
+     * @return the score, <b>null</b> if not {@link #run()}
+     */
+    public PlacementScore getPlannedScore() {
+        return planned;
+    }
+
+    /**
+     * Returns the score of the round-robin placement.
+     *
+     * @return the score, <b>null</b> if not {@link #run()}
+     */
+    public PlacementScore getBaselineScore() {
+        return baseline;
+    }
+
+    /**
+     * Splits a comma-separated list.
+     *
+     * @param text the text to split
+     * @return the trimmed non-empty elements
+     */
+    private static List<String> split(String text) {
+        List<String> result = new ArrayList<String>();
+        for (String s : text.split(",")) {
+            s = s.trim();
+            if (s.length() > 0) {
+                result.add(s);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns an int property.
+     *
+     * @param data the data
+     * @param key the key
+     * @param dflt the default value
+     * @return the value
+     * @throws IllegalArgumentException in case of an illegal value
+     */
+    private static int getInt(Properties data, String key, int dflt) {
+        String value = data.getProperty(key);
+        return null == value ? dflt : toInt(value);
+    }
+
+    /**
+     * Turns a text into an int.
+     *
+     * @param text the text
+     * @return the value
+     * @throws IllegalArgumentException in case of an illegal value
+     */
+    private static int toInt(String text) {
+        try {
+            return Integer.parseInt(text.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+    }
+
+    /**
+     * Returns a double property.
+     *
+     * @param data the data
+     * @param key the key
+     * @param dflt the default value
+     * @return the value
+     * @throws IllegalArgumentException in case of an illegal value
+     */
+    private static double getDouble(Properties data, String key, double dflt) {
+        String value = data.getProperty(key);
+        try {
+            return null == value ? dflt : Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+    }
+
+    /**
+     * Loads recorded data and runs the simulation.
+     *
+     * @param file the data file
+     * @return the simulator after running
+     * @throws IOException in case that loading the data fails
+     * @throws IllegalArgumentException in case of illegal data
+     */
+    public static SchedulingSimulator simulate(File file) throws IOException {
+        Properties data = new Properties();
+        try (FileInputStream in = new FileInputStream(file)) {
+            data.load(in);
+        }
+        SchedulingSimulator result = new SchedulingSimulator(data);
+        result.run();
+        return result;
+    }
+
+    /**
+     * Executes the simulation on the given data files.
+     *
+     * @param args the data files
+     */
+    public static void main(String[] args) {
+        if (0 == args.length) {
+            System.out.println("usage: SchedulingSimulator <data.properties>+");
+        }
+        for (String arg : args) {
+            try {
+                SchedulingSimulator sim = simulate(new File(arg));
+                System.out.println(arg);
+                System.out.println(" planned:  " + sim.getPlannedScore());
+                System.out.println(" baseline: " + sim.getBaselineScore());
+            } catch (IOException | IllegalArgumentException e) {
+                System.out.println(arg + ": " + e.getMessage());
+            }
+        }
+    }
+
+}
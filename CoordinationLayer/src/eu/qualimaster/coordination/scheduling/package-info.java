@@ -0,0 +1,4 @@
+/**
+ * Load- and locality-aware placement of pipeline executors.
+ */
+package eu.qualimaster.coordination.scheduling;
\ No newline at end of file
@@ -3,6 +3,7 @@ package tests.eu.qualimaster.coordination;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -237,9 +238,11 @@ public class AbstractCoordinationTests {
      */
     protected class TestTracer implements IExecutionTracer {
 
-        private List<CoordinationCommand> commands = new ArrayList<CoordinationCommand>();
-        private List<CoordinationExecutionResult> results = new ArrayList<CoordinationExecutionResult>();
-        private int logEntryCount;
+        private List<CoordinationCommand> commands 
+            = Collections.synchronizedList(new ArrayList<CoordinationCommand>());
+        private List<CoordinationExecutionResult> results 
+            = Collections.synchronizedList(new ArrayList<CoordinationExecutionResult>());
+        private volatile int logEntryCount;
 
         
         /**
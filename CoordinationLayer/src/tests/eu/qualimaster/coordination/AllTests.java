@@ -12,6 +12,7 @@ import org.junit.runners.Suite;
 @RunWith(Suite.class)
 @Suite.SuiteClasses({ManagerTests.class, NameMappingTest.class, 
     TaskAssignmentTest.class, StormUtilsTests.class, StormTests.class, ProfileControlTests.class,
+    SchedulingTests.class,
     // always at the end
     CoordinationConfigurationTests.class })
 public class AllTests {
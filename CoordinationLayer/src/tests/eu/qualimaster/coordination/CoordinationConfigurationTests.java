@@ -44,6 +44,10 @@ public class CoordinationConfigurationTests extends DataManagementConfigurationT
              CoordinationConfiguration.getProfilingMode());
         Assert.assertEquals(CoordinationConfiguration.DEFAULT_PROFILE_LOCATION, 
              CoordinationConfiguration.getProfileLocation());
+        Assert.assertEquals(CoordinationConfiguration.DEFAULT_COMMAND_SET_PARALLELISM, 
+             CoordinationConfiguration.getCommandSetParallelism());
+        Assert.assertEquals(CoordinationConfiguration.DEFAULT_SCHEDULER_HOST_CAPACITY, 
+             CoordinationConfiguration.getSchedulerHostCapacity());
     }
 
     @Override
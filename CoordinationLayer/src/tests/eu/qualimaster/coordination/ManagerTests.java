@@ -206,6 +206,15 @@ public class ManagerTests extends AbstractCoordinationTests {
         Assert.assertEquals(1, getTracer().getLogEntryCount());
         assertCoordinationResponse(0, 1);
         clear();
+
+        cmd = new MonitoringChangeCommand(Naming.PIPELINE_NAME, Naming.NODE_PROCESS, null, null, 100);
+        Assert.assertEquals(Integer.valueOf(100), cmd.getKeyCapacity());
+        EventManager.handle(cmd); // no coordinationCommandNotification!
+        waitForExecution(1, 0);
+        Assert.assertTrue(getTracer().contains(cmd));
+        Assert.assertEquals(1, getTracer().getLogEntryCount());
+        assertCoordinationResponse(0, 1);
+        clear();
     }
 
     /**
@@ -581,6 +590,33 @@ public class ManagerTests extends AbstractCoordinationTests {
         clear();
     }
 
+    /**
+     * Tests a command set with commands on different pipeline elements, i.e., commands being executed concurrently.
+     */
+    @Test
+    public void testConcurrentCommandSet() {
+        clear();
+
+        ReplayCommand cmd1 = new ReplayCommand(Naming.PIPELINE_NAME, Naming.NODE_SINK, false, 1); 
+        ReplayCommand cmd2 = new ReplayCommand(Naming.PIPELINE_NAME, Naming.NODE_SOURCE, false, 1); 
+        LoadSheddingCommand cmd3 
+            = new LoadSheddingCommand(Naming.PIPELINE_NAME, Naming.NODE_SINK, DefaultLoadShedders.NTH_ITEM); 
+        CommandSet cmd = new CommandSet(cmd1, cmd2, cmd3);
+        Assert.assertTrue(CoordinationConfiguration.getCommandSetParallelism() > 1);
+        EventManager.handle(cmd);
+        waitForExecution(4, 0);
+        Assert.assertTrue(getTracer().contains(cmd));
+        Assert.assertTrue(getTracer().contains(cmd1));
+        Assert.assertTrue(getTracer().contains(cmd2));
+        Assert.assertTrue(getTracer().contains(cmd3));
+        Assert.assertTrue(getTracer().before(cmd1, cmd)); // set completes after its parts
+        Assert.assertTrue(getTracer().before(cmd2, cmd));
+        Assert.assertEquals(1, getTracer().getLogEntryCount());
+        Assert.assertEquals(0, getFailedHandler().getFailedCount());
+        Assert.assertEquals(1, getFailedHandler().getSuccessfulCount());
+        clear();
+    }
+
     /**
      * Manual test for unpacking and copying the pipeline settings. Loading the model may fail if QM.Extensions is not
      * available, but this is not relevant for this test.
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tests.eu.qualimaster.coordination;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import eu.qualimaster.coordination.HostPort;
+import eu.qualimaster.coordination.scheduling.PlacementPlanner;
+import eu.qualimaster.coordination.scheduling.PlacementScore;
+import eu.qualimaster.coordination.scheduling.SchedulingHost;
+import eu.qualimaster.coordination.scheduling.SchedulingInformation;
+import eu.qualimaster.coordination.scheduling.SchedulingSimulator;
+
+/**
+ * Tests the placement of executors for the scheduler.
+ *
+ * @author Holger Eichelberger
+ */
+public class SchedulingTests {
+
+    /**
+     * Creates components with their executors.
+     *
+     * @param spec pairs of component name and number of executors
+     * @return the executors per component
+     */
+    private static Map<String, List<String>> createComponents(Object... spec) {
+        Map<String, List<String>> result = new TreeMap<String, List<String>>();
+        for (int s = 0; s + 1 < spec.length; s += 2) {
+            List<String> executors = new ArrayList<String>();
+            for (int e = 0; e < (Integer) spec[s + 1]; e++) {
+                executors.add(spec[s] + "#" + e);
+            }
+            result.put((String) spec[s], executors);
+        }
+        return result;
+    }
+
+    /**
+     * Creates a host.
+     *
+     * @param id the host id
+     * @param capacity the capacity
+     * @param used the number of executors already placed
+     * @param load the load
+     * @return the host
+     */
+    private static SchedulingHost createHost(String id, int capacity, int used, double load) {
+        return new SchedulingHost(id, Arrays.asList(6701, 6700), capacity, used, load);
+    }
+
+    /**
+     * Asserts that all executors are placed and that the capacities are respected.
+     *
+     * @param components the executors per component
+     * @param placement the placement
+     * @param hosts the hosts
+     */
+    private static void assertPlacement(Map<String, List<String>> components, Map<String, HostPort> placement,
+        List<SchedulingHost> hosts) {
+        for (List<String> executors : components.values()) {
+            for (String executor : executors) {
+                HostPort slot = placement.get(executor);
+                Assert.assertNotNull(executor + " not placed", slot);
+                Assert.assertEquals(6700, slot.getPort());
+            }
+        }
+        Assert.assertEquals(0, PlacementScore.score(components, new HashMap<String, Map<String, Double>>(),
+            placement, hosts).getOverload());
+    }
+
+    /**
+     * Tests that heavily communicating components are placed together.
+     */
+    @Test
+    public void testLocality() {
+        Map<String, List<String>> components = createComponents("a", 2, "b", 2, "c", 2, "d", 2);
+        Map<String, Map<String, Double>> traffic = new HashMap<String, Map<String, Double>>();
+        SchedulingInformation.addTraffic(traffic, "a", "b", 100);
+        SchedulingInformation.addTraffic(traffic, "b", "c", 1);
+        SchedulingInformation.addTraffic(traffic, "c", "d", 100);
+        List<SchedulingHost> hosts = new ArrayList<SchedulingHost>();
+        hosts.add(createHost("h1", 4, 0, 0.5));
+        hosts.add(createHost("h2", 4, 0, 0.1));
+        Map<String, HostPort> placement = PlacementPlanner.plan(components, traffic, hosts);
+        assertPlacement(components, placement, hosts);
+        Assert.assertEquals(placement.get("a#0").getHostId(), placement.get("b#1").getHostId());
+        Assert.assertEquals(placement.get("c#0").getHostId(), placement.get("d#1").getHostId());
+        Assert.assertNotEquals(placement.get("a#0").getHostId(), placement.get("c#0").getHostId());
+        PlacementScore score = PlacementScore.score(components, traffic, placement, hosts);
+        Assert.assertEquals(201, score.getTotalVolume(), 0.001);
+        Assert.assertEquals(1, score.getRemoteVolume(), 0.001);
+        Assert.assertEquals(200, score.getLocalVolume(), 0.001);
+    }
+
+    /**
+     * Tests that groups are split if no host can take them and that the less loaded host is preferred.
+     */
+    @Test
+    public void testCapacity() {
+        Map<String, List<String>> components = createComponents("a", 3, "b", 3);
+        Map<String, Map<String, Double>> traffic = new HashMap<String, Map<String, Double>>();
+        SchedulingInformation.addTraffic(traffic, "a", "b", 10);
+        List<SchedulingHost> hosts = new ArrayList<SchedulingHost>();
+        hosts.add(createHost("h1", 4, 0, 0.9));
+        hosts.add(createHost("h2", 4, 0, 0.1));
+        hosts.add(new SchedulingHost("h3", new ArrayList<Integer>(), 10, 0, 0)); // no free port
+        Map<String, HostPort> placement = PlacementPlanner.plan(components, traffic, hosts);
+        assertPlacement(components, placement, hosts);
+        Assert.assertEquals("h2", placement.get("a#0").getHostId());
+        for (HostPort slot : placement.values()) {
+            Assert.assertNotEquals("h3", slot.getHostId());
+        }
+    }
+
+    /**
+     * Tests placing a further topology onto partially used hosts.
+     */
+    @Test
+    public void testIncremental() {
+        Map<String, List<String>> components = createComponents("a", 2, "b", 1);
+        Map<String, Map<String, Double>> traffic = new HashMap<String, Map<String, Double>>(); // structure unknown
+        List<SchedulingHost> hosts = new ArrayList<SchedulingHost>();
+        hosts.add(createHost("h1", 4, 4, 0));
+        hosts.add(createHost("h2", 4, 1, 0));
+        Map<String, HostPort> placement = PlacementPlanner.plan(components, traffic, hosts);
+        assertPlacement(components, placement, hosts);
+        for (HostPort slot : placement.values()) {
+            Assert.assertEquals("h2", slot.getHostId());
+        }
+
+        // exhausted capacity, place anyway
+        hosts.clear();
+        hosts.add(createHost("h1", 1, 1, 0));
+        placement = PlacementPlanner.plan(components, traffic, hosts);
+        Assert.assertEquals(3, placement.size());
+        Assert.assertEquals(3, PlacementScore.score(components, traffic, placement, hosts).getOverload());
+
+        hosts.clear();
+        Assert.assertTrue(PlacementPlanner.plan(components, traffic, hosts).isEmpty());
+        Assert.assertEquals(3, PlacementPlanner.deriveCapacity(4, 2));
+    }
+
+    /**
+     * Tests limiting the number of workers.
+     */
+    @Test
+    public void testWorkers() {
+        Map<String, List<String>> components = createComponents("a", 2, "b", 2);
+        Map<String, Map<String, Double>> traffic = new HashMap<String, Map<String, Double>>();
+        List<SchedulingHost> hosts = new ArrayList<SchedulingHost>();
+        hosts.add(createHost("h1", 2, 0, 0));
+        hosts.add(createHost("h2", 2, 0, 0));
+        Map<String, Map<String, Integer>> assigned = new HashMap<String, Map<String, Integer>>();
+        Map<String, HostPort> placement = PlacementPlanner.plan(components, assigned, traffic, hosts, 2);
+        Assert.assertNotEquals(placement.get("a#0").getHostId(), placement.get("b#0").getHostId());
+
+        placement = PlacementPlanner.plan(components, assigned, traffic, hosts, 1);
+        Assert.assertEquals(4, placement.size());
+        String host = placement.get("a#0").getHostId();
+        for (HostPort slot : placement.values()) {
+            Assert.assertEquals(host, slot.getHostId());
+        }
+        Assert.assertEquals(2, PlacementScore.score(components, traffic, placement, hosts).getOverload());
+    }
+
+    /**
+     * Tests placing the remaining executors of a partially assigned topology.
+     */
+    @Test
+    public void testPartial() {
+        Map<String, List<String>> components = createComponents("b", 1);
+        Map<String, Map<String, Double>> traffic = new HashMap<String, Map<String, Double>>();
+        SchedulingInformation.addTraffic(traffic, "a", "b", 100);
+        SchedulingInformation.addTraffic(traffic, "c", "d", 10);
+        List<SchedulingHost> hosts = new ArrayList<SchedulingHost>();
+        hosts.add(createHost("h1", 4, 1, 0));
+        hosts.add(createHost("h2", 4, 1, 0.5));
+        Map<String, Map<String, Integer>> assigned = new HashMap<String, Map<String, Integer>>();
+        Map<String, Integer> h1 = new HashMap<String, Integer>();
+        h1.put("c", 1);
+        assigned.put("h1", h1);
+        Map<String, Integer> h2 = new HashMap<String, Integer>();
+        h2.put("a", 1);
+        assigned.put("h2", h2);
+        Map<String, HostPort> placement = PlacementPlanner.plan(components, assigned, traffic, hosts, 1);
+        Assert.assertEquals(1, placement.size());
+        Assert.assertEquals("h2", placement.get("b#0").getHostId()); // near a despite load
+    }
+
+    /**
+     * Tests serializing the scheduling information as published via the Zookeeper.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testSerialization() throws IOException {
+        SchedulingInformation.clear();
+        SchedulingInformation.setHostLoad("h1", 0.5);
+        Map<String, Map<String, Double>> traffic = new HashMap<String, Map<String, Double>>();
+        SchedulingInformation.addTraffic(traffic, "a", "b", 100);
+        SchedulingInformation.addTraffic(traffic, "a", "c", 10);
+        SchedulingInformation.setTraffic("topo", traffic);
+        byte[] data = SchedulingInformation.serialize();
+        SchedulingInformation.clear();
+        Assert.assertEquals(-1, SchedulingInformation.getHostLoad("h1", -1), 0.001);
+        Assert.assertTrue(SchedulingInformation.getTraffic("topo").isEmpty());
+
+        SchedulingInformation.deserialize(data);
+        Assert.assertEquals(0.5, SchedulingInformation.getHostLoad("h1", -1), 0.001);
+        Assert.assertEquals(traffic, SchedulingInformation.getTraffic("topo"));
+        try {
+            SchedulingInformation.deserialize(Arrays.copyOf(data, data.length - 4));
+            Assert.fail("no exception");
+        } catch (IOException e) {
+            // expected
+        }
+        Assert.assertEquals(traffic, SchedulingInformation.getTraffic("topo")); // unchanged
+        SchedulingInformation.clear();
+    }
+
+    /**
+     * Tests the simulation against recorded data.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testSimulation() throws IOException {
+        SchedulingSimulator sim = SchedulingSimulator.simulate(new File(Utils.getTestdataDir(),
+            "scheduling.properties"));
+        PlacementScore planned = sim.getPlannedScore();
+        PlacementScore baseline = sim.getBaselineScore();
+        Assert.assertEquals(baseline.getTotalVolume(), planned.getTotalVolume(), 0.001);
+        Assert.assertTrue(planned.getRemoteVolume() < baseline.getRemoteVolume());
+        Assert.assertEquals(0, planned.getOverload());
+    }
+
+}
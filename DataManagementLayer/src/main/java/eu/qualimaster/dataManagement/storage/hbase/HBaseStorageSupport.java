@@ -5,6 +5,7 @@ import java.io.InterruptedIOException;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 
 import org.apache.hadoop.conf.Configuration;
@@ -16,9 +17,9 @@ import org.apache.hadoop.hbase.client.*;
 import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
 import org.apache.hadoop.hbase.util.Bytes;
 
-import eu.qualimaster.dataManagement.storage.support.IStorageSupport;
+import eu.qualimaster.dataManagement.storage.support.IBatchStorageSupport;
 
-public class HBaseStorageSupport extends HBaseStorageTable implements IStorageSupport {
+public class HBaseStorageSupport extends HBaseStorageTable implements IBatchStorageSupport {
 
 	HTable table;
 	Configuration config;
@@ -126,6 +127,43 @@ public class HBaseStorageSupport extends HBaseStorageTable implements IStorageSu
 		// }
 	}
 
+	/**
+	 * Writes the given key-value pairs in a single round trip. Failures are propagated so that the caller
+	 * can retry the batch, e.g., on a fresh connection.
+	 * 
+	 * @param batch the key-value pairs to be written
+	 * @throws IllegalStateException in case that the batch cannot be serialized or written
+	 */
+	@Override
+	public void write(Map<?, ?> batch) {
+		if (!tableIsInit) {
+			initGenericTable();
+		}
+		List<Put> puts = new ArrayList<Put>(batch.size());
+		for (Map.Entry<?, ?> entry : batch.entrySet()) {
+			Put put = new Put(Bytes.toBytes(entry.getKey().toString()));
+			try {
+				put.add(Bytes.toBytes("GenericObject"), Bytes.toBytes("ObjectContent"), 
+					serialize((Serializable) entry.getValue()));
+				puts.add(put);
+			} catch (IOException e) {
+				throw new IllegalStateException("Cannot serialize value of " + entry.getKey() + ": " 
+					+ e.getMessage(), e);
+			}
+		}
+		if (null == table) {
+			throw new IllegalStateException("Table " + getTableName() + " is not connected");
+		}
+		try {
+			table.put(puts); // single round trip for the whole batch
+		} catch (RetriesExhaustedWithDetailsException e) {
+			throw new IllegalStateException("Writing to " + getTableName() + " failed: " + e.getMessage(), e);
+		} catch (InterruptedIOException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Writing to " + getTableName() + " interrupted: " + e.getMessage(), e);
+		}
+	}
+
 	@Override
 	public Object get(Object key) {
 
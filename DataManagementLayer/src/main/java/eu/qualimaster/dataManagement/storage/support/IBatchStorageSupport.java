@@ -0,0 +1,21 @@
+package eu.qualimaster.dataManagement.storage.support;
+
+import java.util.Map;
+
+/**
+ * Storage support that is able to write multiple key-value pairs at once, e.g., to avoid a round trip to the 
+ * underlying storage per object.
+ * 
+ * @author Holger Eichelberger
+ */
+public interface IBatchStorageSupport extends IStorageSupport {
+
+    /**
+     * Writes the given key-value pairs to the storage. Keys are written in iteration order of <code>batch</code>.
+     * 
+     * @param batch the key-value pairs to be written
+     * @throws RuntimeException in case that writing the batch failed, i.e., the batch may not be written completely
+     */
+    public void write(Map<?, ?> batch);
+
+}
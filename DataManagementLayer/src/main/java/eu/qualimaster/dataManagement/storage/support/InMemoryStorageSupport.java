@@ -0,0 +1,66 @@
+package eu.qualimaster.dataManagement.storage.support;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import eu.qualimaster.dataManagement.storage.IStorageKeyProvider;
+
+/**
+ * A storage support keeping the written objects in memory. Intended as a local stand-in for a real storage, e.g., 
+ * for testing. Thread-safe.
+ * 
+ * @author Holger Eichelberger
+ */
+public class InMemoryStorageSupport implements IBatchStorageSupport {
+
+    private Map<Object, Object> data = new LinkedHashMap<Object, Object>();
+    private int writeCount;
+
+    @Override
+    public synchronized void write(Object object) {
+        Object key = null;
+        if (object instanceof IStorageKeyProvider) {
+            key = ((IStorageKeyProvider) object).getStorageKey();
+        }
+        if (null == key) {
+            key = String.valueOf(System.nanoTime());
+        }
+        data.put(key, object);
+        writeCount++;
+    }
+
+    @Override
+    public synchronized void write(Map<?, ?> batch) {
+        data.putAll(batch);
+        writeCount++;
+    }
+
+    /**
+     * Returns the object stored for <code>key</code>.
+     * 
+     * @param key the key
+     * @return the object or <b>null</b> if there is none
+     */
+    public synchronized Object get(Object key) {
+        return data.get(key);
+    }
+
+    /**
+     * Returns the number of stored objects.
+     * 
+     * @return the number of stored objects
+     */
+    public synchronized int size() {
+        return data.size();
+    }
+
+    /**
+     * Returns the number of write operations (a batch counts as one operation).
+     * 
+     * @return the number of write operations
+     */
+    public synchronized int getWriteCount() {
+        return writeCount;
+    }
+
+}
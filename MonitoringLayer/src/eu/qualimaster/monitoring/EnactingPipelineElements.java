@@ -4,6 +4,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import eu.qualimaster.coordination.EnactmentCommandCollector;
 import eu.qualimaster.coordination.commands.AbstractCoordinationCommandVisitor;
@@ -53,6 +54,7 @@ class EnactingPipelineElements {
     public static final EnactingPipelineElements INSTANCE = new EnactingPipelineElements();
     private Map<String, Long> enacting = Collections.synchronizedMap(new HashMap<String, Long>());
     private Map<String, Integer> enactingPipelines = Collections.synchronizedMap(new HashMap<String, Integer>());
+    private AtomicLong modificationCount = new AtomicLong();
 
     /**
      * Prevents external instantiation.
@@ -72,6 +74,7 @@ class EnactingPipelineElements {
         if (!path.isEmpty()) {
             String fPath = PipelineUtils.toFrozenStatePath(path);
             long enactmentDelay = -1;
+            modificationCount.incrementAndGet();
             if (mark) {
                 enacting.put(fPath, System.currentTimeMillis());
                 Integer count = enactingPipelines.get(pipelineElement);
@@ -119,6 +122,16 @@ class EnactingPipelineElements {
     boolean isEnacting(String fPath) {
         return enacting.containsKey(fPath);
     }
+
+    /**
+     * Returns the number of marking / unmarking operations so far, i.e., a changed count indicates that pipeline 
+     * elements may have entered or left enactment.
+     * 
+     * @return the modification count
+     */
+    long getModificationCount() {
+        return modificationCount.get();
+    }
     
     /**
      * Handles a coordination command.
@@ -16,6 +16,7 @@
 package eu.qualimaster.monitoring;
 
 import java.io.File;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
@@ -139,6 +140,101 @@ public class MonitoringConfiguration extends CoordinationConfiguration {
      */
     public static final boolean DEFAULT_THRIFT_MONITORING_DEBUG = false;
 
+    /**
+     * Denotes the number of Thrift connections used to fetch topology information concurrently during 
+     * pipeline monitoring (Integer, 1 for sequential fetching on the monitoring connection).
+     */
+    public static final String THRIFT_MONITORING_CONNECTIONS = "thrift.monitoring.connections";
+
+    /**
+     * The default value for {@link #THRIFT_MONITORING_CONNECTIONS} (Value {@value}).
+     */
+    public static final int DEFAULT_THRIFT_MONITORING_CONNECTIONS = 4;
+
+    /**
+     * Denotes the format of monitoring/profiling traces (String, {@link #TRACE_FORMAT_TEXT} or 
+     * {@link #TRACE_FORMAT_BINARY}).
+     */
+    public static final String MONITORING_TRACE_FORMAT = "monitoring.trace.format";
+
+    /**
+     * Tab-separated text traces.
+     */
+    public static final String TRACE_FORMAT_TEXT = "text";
+
+    /**
+     * Asynchronously written binary traces.
+     */
+    public static final String TRACE_FORMAT_BINARY = "binary";
+
+    /**
+     * The default value for {@link #MONITORING_TRACE_FORMAT} (Value {@value}).
+     */
+    public static final String DEFAULT_MONITORING_TRACE_FORMAT = TRACE_FORMAT_TEXT;
+
+    /**
+     * Whether binary traces shall be compressed (Boolean).
+     */
+    public static final String MONITORING_TRACE_COMPRESS = "monitoring.trace.compress";
+
+    /**
+     * The default value for {@link #MONITORING_TRACE_COMPRESS} (Value {@value}).
+     */
+    public static final boolean DEFAULT_MONITORING_TRACE_COMPRESS = true;
+
+    /**
+     * The file size after which binary traces are rotated (Integer in MB, 0 for no size-based rotation).
+     */
+    public static final String MONITORING_TRACE_ROTATION_SIZE = "monitoring.trace.rotation.size";
+
+    /**
+     * The default value for {@link #MONITORING_TRACE_ROTATION_SIZE} (Value {@value}).
+     */
+    public static final int DEFAULT_MONITORING_TRACE_ROTATION_SIZE = 0;
+
+    /**
+     * The file age after which binary traces are rotated (Integer in minutes, 0 for no time-based rotation).
+     */
+    public static final String MONITORING_TRACE_ROTATION_TIME = "monitoring.trace.rotation.time";
+
+    /**
+     * The default value for {@link #MONITORING_TRACE_ROTATION_TIME} (Value {@value}).
+     */
+    public static final int DEFAULT_MONITORING_TRACE_ROTATION_TIME = 0;
+
+    /**
+     * Enables the in-memory time-series history of the monitored observables (Boolean). The history takes about 
+     * 24 KByte per recorded observable and system part, i.e., enable it only if there is a consumer.
+     */
+    public static final String MONITORING_HISTORY_ENABLED = "monitoring.history.enabled";
+
+    /**
+     * The default value for {@link #MONITORING_HISTORY_ENABLED} (Value {@value}).
+     */
+    public static final boolean DEFAULT_MONITORING_HISTORY_ENABLED = false;
+
+    /**
+     * Denotes the file the monitoring history is spilled to when the Monitoring Layer stops and restored from
+     * when it starts (String, empty for no spill).
+     */
+    public static final String MONITORING_HISTORY_LOCATION = "monitoring.history.location";
+
+    /**
+     * The default value for {@link #MONITORING_HISTORY_LOCATION} (Value {@value}).
+     */
+    public static final String DEFAULT_MONITORING_HISTORY_LOCATION = "";
+
+    /**
+     * The interval in which modified algorithm profiles are written to their profile store (Integer in ms, not 
+     * positive for writing only when pipelines are released).
+     */
+    public static final String PROFILE_CHECKPOINT_INTERVAL = "profiling.data.checkpoint";
+
+    /**
+     * The default value for {@link #PROFILE_CHECKPOINT_INTERVAL} (Value {@value}).
+     */
+    public static final int DEFAULT_PROFILE_CHECKPOINT_INTERVAL = 60000;
+
     /**
      * Denotes the folder where profiling data for prediction is stored.
      */
@@ -149,6 +245,61 @@ public class MonitoringConfiguration extends CoordinationConfiguration {
      */
     public static final String DEFAULT_VOLUME_MODEL_LOCATION = FileUtils.getTempDirectoryPath();
 
+    /**
+     * The maximum number of threads used for training the volume prediction models (Integer, not positive for the 
+     * number of available processors).
+     */
+    public static final String VOLUME_MODEL_TRAINING_PARALLELISM = "volumePrediction.training.parallelism";
+
+    /**
+     * The default value for {@link #VOLUME_MODEL_TRAINING_PARALLELISM} (Value {@value}).
+     */
+    public static final int DEFAULT_VOLUME_MODEL_TRAINING_PARALLELISM = 0;
+
+    /**
+     * The number of buffered volume observations causing a write to the volume history (Integer).
+     */
+    public static final String VOLUME_HISTORY_BATCH_SIZE = "volumePrediction.history.batchSize";
+
+    /**
+     * The default value for {@link #VOLUME_HISTORY_BATCH_SIZE} (Value {@value}).
+     */
+    public static final int DEFAULT_VOLUME_HISTORY_BATCH_SIZE = 100;
+
+    /**
+     * The maximum time between two writes of buffered volume observations to the volume history (Integer in ms).
+     */
+    public static final String VOLUME_HISTORY_FLUSH_INTERVAL = "volumePrediction.history.flushInterval";
+
+    /**
+     * The default value for {@link #VOLUME_HISTORY_FLUSH_INTERVAL} (Value {@value}).
+     */
+    public static final int DEFAULT_VOLUME_HISTORY_FLUSH_INTERVAL = 10000;
+
+    /**
+     * The relative tolerances of observations below which a change does not cause reasoning (String). Multiple 
+     * entries of the form <code>OBSERVABLE=tolerance</code> can be given separated by commas, <code>*</code> 
+     * denotes the default tolerance.
+     */
+    public static final String MONITORING_REASONING_TOLERANCE = "monitoring.reasoning.tolerance";
+
+    /**
+     * The default value for {@link #MONITORING_REASONING_TOLERANCE}, {@link #EMPTY_VALUE}, i.e., any change
+     * causes reasoning.
+     */
+    public static final String DEFAULT_MONITORING_REASONING_TOLERANCE = EMPTY_VALUE;
+
+    /**
+     * The maximum number of subsequent reasoning runs skipped as the system state did not change (Integer). Not 
+     * positive disables skipping.
+     */
+    public static final String MONITORING_REASONING_MAX_SKIPS = "monitoring.reasoning.maxSkips";
+
+    /**
+     * The default value for {@link #MONITORING_REASONING_MAX_SKIPS} (Value {@value}).
+     */
+    public static final int DEFAULT_MONITORING_REASONING_MAX_SKIPS = 10;
+
     private static ConfigurationOption<String> monitoringAnalysisDisabled
         = createStringOption(MONITORING_ANALYSIS_DISABLED, DEFAULT_MONITORING_ANALYSIS_DISABLED);
     private static ConfigurationOption<String> monitoringHardwareFilter 
@@ -169,8 +320,34 @@ public class MonitoringConfiguration extends CoordinationConfiguration {
         = createIntegerOption(TIME_STORM_EXECUTOR_STARTUP, DEFAULT_TIME_STORM_EXECUTOR_STARTUP);
     private static ConfigurationOption<Boolean> debugThriftMonitoring
         = createBooleanOption(THRIFT_MONITORING_DEBUG, DEFAULT_THRIFT_MONITORING_DEBUG);
+    private static ConfigurationOption<Integer> thriftMonitoringConnections
+        = createIntegerOption(THRIFT_MONITORING_CONNECTIONS, DEFAULT_THRIFT_MONITORING_CONNECTIONS);
+    private static ConfigurationOption<String> monitoringTraceFormat
+        = createStringOption(MONITORING_TRACE_FORMAT, DEFAULT_MONITORING_TRACE_FORMAT);
+    private static ConfigurationOption<Boolean> monitoringTraceCompress
+        = createBooleanOption(MONITORING_TRACE_COMPRESS, DEFAULT_MONITORING_TRACE_COMPRESS);
+    private static ConfigurationOption<Integer> monitoringTraceRotationSize
+        = createIntegerOption(MONITORING_TRACE_ROTATION_SIZE, DEFAULT_MONITORING_TRACE_ROTATION_SIZE);
+    private static ConfigurationOption<Integer> monitoringTraceRotationTime
+        = createIntegerOption(MONITORING_TRACE_ROTATION_TIME, DEFAULT_MONITORING_TRACE_ROTATION_TIME);
+    private static ConfigurationOption<Boolean> monitoringHistoryEnabled
+        = createBooleanOption(MONITORING_HISTORY_ENABLED, DEFAULT_MONITORING_HISTORY_ENABLED);
+    private static ConfigurationOption<String> monitoringHistoryLocation
+        = createStringOption(MONITORING_HISTORY_LOCATION, DEFAULT_MONITORING_HISTORY_LOCATION);
+    private static ConfigurationOption<Integer> profileCheckpointInterval
+        = createIntegerOption(PROFILE_CHECKPOINT_INTERVAL, DEFAULT_PROFILE_CHECKPOINT_INTERVAL);
     private static ConfigurationOption<String> volumeModelLocation 
         = createStringOption(VOLUME_MODEL_LOCATION, DEFAULT_VOLUME_MODEL_LOCATION);
+    private static ConfigurationOption<Integer> volumeModelTrainingParallelism
+        = createIntegerOption(VOLUME_MODEL_TRAINING_PARALLELISM, DEFAULT_VOLUME_MODEL_TRAINING_PARALLELISM);
+    private static ConfigurationOption<Integer> volumeHistoryBatchSize
+        = createIntegerOption(VOLUME_HISTORY_BATCH_SIZE, DEFAULT_VOLUME_HISTORY_BATCH_SIZE);
+    private static ConfigurationOption<Integer> volumeHistoryFlushInterval
+        = createIntegerOption(VOLUME_HISTORY_FLUSH_INTERVAL, DEFAULT_VOLUME_HISTORY_FLUSH_INTERVAL);
+    private static ConfigurationOption<String> monitoringReasoningTolerance
+        = createStringOption(MONITORING_REASONING_TOLERANCE, DEFAULT_MONITORING_REASONING_TOLERANCE);
+    private static ConfigurationOption<Integer> monitoringReasoningMaxSkips
+        = createIntegerOption(MONITORING_REASONING_MAX_SKIPS, DEFAULT_MONITORING_REASONING_MAX_SKIPS);
     
     /**
      * Reads the configuration settings from the file.
@@ -368,6 +545,78 @@ public class MonitoringConfiguration extends CoordinationConfiguration {
         return debugThriftMonitoring.getValue();
     }
 
+    /**
+     * Returns the number of Thrift connections used to fetch topology information concurrently.
+     * 
+     * @return the number of connections (at minimum 1)
+     */
+    public static int getThriftMonitoringConnections() {
+        return Math.max(1, thriftMonitoringConnections.getValue());
+    }
+
+    /**
+     * Returns whether traces shall be written in binary format.
+     * 
+     * @return <code>true</code> for binary traces, <code>false</code> for text traces
+     */
+    public static boolean isBinaryTraceFormat() {
+        return TRACE_FORMAT_BINARY.equals(monitoringTraceFormat.getValue());
+    }
+
+    /**
+     * Returns whether binary traces shall be compressed.
+     * 
+     * @return <code>true</code> for compression, <code>false</code> else
+     */
+    public static boolean compressTraces() {
+        return monitoringTraceCompress.getValue();
+    }
+
+    /**
+     * Returns the file size after which binary traces are rotated.
+     * 
+     * @return the size in bytes, not positive for no size-based rotation
+     */
+    public static long getTraceRotationSize() {
+        return monitoringTraceRotationSize.getValue() * 1024L * 1024L;
+    }
+
+    /**
+     * Returns the file age after which binary traces are rotated.
+     * 
+     * @return the age in ms, not positive for no time-based rotation
+     */
+    public static long getTraceRotationTime() {
+        return monitoringTraceRotationTime.getValue() * 60L * 1000L;
+    }
+
+    /**
+     * Returns whether the in-memory time-series history of the monitored observables is enabled.
+     * 
+     * @return <code>true</code> for enabled, <code>false</code> else
+     */
+    public static boolean isMonitoringHistoryEnabled() {
+        return monitoringHistoryEnabled.getValue();
+    }
+
+    /**
+     * Returns the file the monitoring history is spilled to / restored from.
+     * 
+     * @return the file, empty or <b>null</b> for no spill
+     */
+    public static String getMonitoringHistoryLocation() {
+        return monitoringHistoryLocation.getValue();
+    }
+
+    /**
+     * Returns the interval in which modified algorithm profiles are written to their profile store.
+     * 
+     * @return the interval in ms, not positive for writing only when pipelines are released
+     */
+    public static int getProfileCheckpointInterval() {
+        return profileCheckpointInterval.getValue();
+    }
+
     /**
      * The location where the volume prediction model is located.
      * 
@@ -377,4 +626,61 @@ public class MonitoringConfiguration extends CoordinationConfiguration {
         return volumeModelLocation.getValue();
     }
 
+    /**
+     * Returns the maximum number of threads used for training the volume prediction models.
+     * 
+     * @return the number of threads, not positive for the number of available processors
+     */
+    public static int getVolumeModelTrainingParallelism() {
+        return volumeModelTrainingParallelism.getValue();
+    }
+
+    /**
+     * Returns the number of buffered volume observations causing a write to the volume history.
+     * 
+     * @return the number of observations
+     */
+    public static int getVolumeHistoryBatchSize() {
+        return volumeHistoryBatchSize.getValue();
+    }
+
+    /**
+     * Returns the maximum time between two writes of buffered volume observations to the volume history.
+     * 
+     * @return the time in ms
+     */
+    public static int getVolumeHistoryFlushInterval() {
+        return volumeHistoryFlushInterval.getValue();
+    }
+
+    /**
+     * Returns the relative tolerances of observations below which a change does not cause reasoning. Entries
+     * with invalid tolerances are ignored.
+     * 
+     * @return the tolerances per observable name, <code>*</code> for the default tolerance, may be empty
+     */
+    public static Map<String, Double> getReasoningTolerances() {
+        Map<String, Double> result = new HashMap<String, Double>();
+        for (String entry : toSet(monitoringReasoningTolerance.getValue())) {
+            int pos = entry.indexOf('=');
+            if (pos > 0) {
+                try {
+                    result.put(entry.substring(0, pos).trim(), Double.valueOf(entry.substring(pos + 1).trim()));
+                } catch (NumberFormatException e) {
+                    // ignore entry
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the maximum number of subsequent reasoning runs skipped as the system state did not change.
+     * 
+     * @return the number of runs, not positive if skipping is disabled
+     */
+    public static int getReasoningMaxSkips() {
+        return monitoringReasoningMaxSkips.getValue();
+    }
+
 }
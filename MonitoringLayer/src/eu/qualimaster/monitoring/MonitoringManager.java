@@ -29,6 +29,7 @@ import eu.qualimaster.coordination.RepositoryConnector.Phase;
 import eu.qualimaster.coordination.commands.CoordinationCommand;
 import eu.qualimaster.coordination.events.AlgorithmProfilingEvent;
 import eu.qualimaster.coordination.events.CoordinationCommandExecutionEvent;
+import eu.qualimaster.coordination.scheduling.SchedulingInformation;
 import eu.qualimaster.dataManagement.events.ShutdownEvent;
 import eu.qualimaster.easy.extension.QmConstants;
 import eu.qualimaster.easy.extension.internal.VariableHelper;
@@ -51,6 +52,7 @@ import eu.qualimaster.monitoring.handlers.PlatformMonitoringEventHandler;
 import eu.qualimaster.monitoring.handlers.PlatformMultiMonitoringHostEventHandler;
 import eu.qualimaster.monitoring.handlers.SourceVolumeMonitoringEventHandler;
 import eu.qualimaster.monitoring.handlers.SubTopologyMonitoringEventHandler;
+import eu.qualimaster.monitoring.history.MonitoringHistory;
 import eu.qualimaster.monitoring.profiling.AlgorithmProfilePredictionManager;
 import eu.qualimaster.monitoring.storm.StormMonitoringPlugin;
 import eu.qualimaster.monitoring.systemState.PipelineSystemPart;
@@ -81,10 +83,12 @@ public class MonitoringManager {
     
     public static final int MINIMUM_MONITORING_FREQUENCY = 200; // ms
     public static final int REASONING_FREQUENCY = 1000; // ms
+    public static final int SCHEDULING_INFORMATION_FREQUENCY = 5000; // ms
     private static final String CLUSTER_TASK_NAME = "";
 
     private static final Logger LOGGER = LogManager.getLogger(MonitoringManager.class);
     private static Timer timer;
+    private static SchedulingInformationTask schedulingInformationTask;
     private static List<IMonitoringPlugin> plugins = new ArrayList<IMonitoringPlugin>();
     private static Map<IMonitoringPlugin, Map<String, AbstractMonitoringTask>> tasks = 
         Collections.synchronizedMap(new HashMap<IMonitoringPlugin, Map<String, AbstractMonitoringTask>>());
@@ -592,7 +596,10 @@ public class MonitoringManager {
             registerDefaultPlugins();
         }
         loadMonitoringPlugins();
+        loadHistory();
         timer = new Timer();
+        schedulingInformationTask = new SchedulingInformationTask(state);
+        timer.schedule(schedulingInformationTask, 0, SCHEDULING_INFORMATION_FREQUENCY);
         for (IMonitoringPlugin plugin : plugins) {
             startPlugin(plugin);
         }
@@ -600,6 +607,49 @@ public class MonitoringManager {
         VolumePredictionManager.start(scheduler);
     }
     
+    /**
+     * Returns the file to spill the monitoring history to.
+     * 
+     * @return the file, <b>null</b> if spilling is disabled
+     * @see MonitoringConfiguration#getMonitoringHistoryLocation()
+     */
+    private static File getHistoryFile() {
+        File result = null;
+        String location = MonitoringConfiguration.getMonitoringHistoryLocation();
+        if (MonitoringConfiguration.isMonitoringHistoryEnabled() && null != location && location.length() > 0) {
+            result = new File(location);
+        }
+        return result;
+    }
+
+    /**
+     * Restores the spilled monitoring history if configured.
+     */
+    private static void loadHistory() {
+        File file = getHistoryFile();
+        if (null != file) {
+            try {
+                MonitoringHistory.load(file);
+            } catch (IOException e) {
+                LOGGER.error("While loading the monitoring history: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Spills the monitoring history if configured.
+     */
+    private static void saveHistory() {
+        File file = getHistoryFile();
+        if (null != file) {
+            try {
+                MonitoringHistory.save(file);
+            } catch (IOException e) {
+                LOGGER.error("While saving the monitoring history: " + e.getMessage());
+            }
+        }
+    }
+
     /**
      * Loads configured monitoring plugins.
      */
@@ -767,11 +817,17 @@ public class MonitoringManager {
         for (int p = plugins.size() - 1; p >= 0; p--) {
             stopPlugin(plugins.get(p));
         }
+        if (null != schedulingInformationTask) {
+            schedulingInformationTask.cancel();
+            schedulingInformationTask = null;
+        }
         if (null != timer)  {
             timer.cancel();
             timer = null;
         }
+        SchedulingInformation.clear();
         Tracing.close();
+        saveHistory();
         state.clear();
         state.closePlatformTrace();
         for (URLClassLoader loader : loaders) {
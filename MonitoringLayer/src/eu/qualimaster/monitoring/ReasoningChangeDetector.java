@@ -0,0 +1,242 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.monitoring;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import eu.qualimaster.infrastructure.PipelineLifecycleEvent;
+import eu.qualimaster.monitoring.events.FrozenSystemState;
+import eu.qualimaster.observables.AnalysisObservables;
+
+/**
+ * Decides whether the system state changed materially since the last reasoning, i.e., whether reasoning is needed
+ * at all. A change is material if an observation of a relevant observable deviates from the last reasoned value by
+ * more than the relative tolerance of its observable, if an observation appeared or disappeared, if the pipeline
+ * status changed or if pipeline elements entered or left enactment. Observables not referenced by the runtime
+ * variables of the configuration are irrelevant. Reasoning is enforced after a configured number of subsequent
+ * skips. Reasoning is either skipped or performed on the whole configuration, as the reasoner frontend does not
+ * support re-evaluating individual constraints. (public for testing)
+ *
+ * @author Holger Eichelberger
+ */
+public class ReasoningChangeDetector {
+
+    /**
+     * The key for the default tolerance in the tolerance mapping.
+     */
+    public static final String DEFAULT_TOLERANCE = "*";
+
+    private Map<String, Double> tolerances;
+    private double defaultTolerance;
+    private int maxSkips;
+    private Set<String> relevant;
+    private FrozenSystemState reference;
+    private FrozenSystemState candidate;
+    private Map<String, PipelineLifecycleEvent.Status> referenceStatus;
+    private long referenceEnactments;
+    private int subsequentSkips;
+    private long skipped;
+    private long reasoned;
+
+    /**
+     * Creates a change detector.
+     *
+     * @param tolerances the relative tolerances per observable name, {@link #DEFAULT_TOLERANCE} for the default
+     *   (0 if not given)
+     * @param maxSkips the maximum number of subsequent skips, not positive disables skipping
+     */
+    public ReasoningChangeDetector(Map<String, Double> tolerances, int maxSkips) {
+        this.tolerances = new HashMap<String, Double>(tolerances);
+        Double dflt = this.tolerances.get(DEFAULT_TOLERANCE);
+        this.defaultTolerance = null == dflt ? 0 : dflt;
+        this.maxSkips = maxSkips;
+    }
+
+    /**
+     * Defines the relevant observables, e.g., upon a model (re)load. {@link AnalysisObservables} are always relevant.
+     * Requires reasoning in the next run.
+     *
+     * @param observables the names of the relevant observables, <b>null</b> or empty for all
+     */
+    public void setRelevantObservables(Set<String> observables) {
+        if (null == observables || observables.isEmpty()) {
+            relevant = null;
+        } else {
+            relevant = new HashSet<String>(observables);
+            for (AnalysisObservables obs : AnalysisObservables.values()) {
+                relevant.add(obs.name());
+            }
+        }
+        reset();
+    }
+
+    /**
+     * Resets the last reasoned state, i.e., requires reasoning in the next run.
+     */
+    public void reset() {
+        reference = null;
+        candidate = null;
+        referenceStatus = null;
+        subsequentSkips = 0;
+    }
+
+    /**
+     * Returns whether reasoning is needed and updates the statistics. If reasoning is needed, a snapshot of 
+     * <code>state</code> is taken before reasoning modifies it, e.g., by recording deviations, so that the values 
+     * set by reasoning do not count as changes in the next run.
+     *
+     * @param state the actual system state
+     * @param pipStatus the actual pipeline status
+     * @param enactments the actual {@link EnactingPipelineElements#getModificationCount() enactment modifications}
+     * @return <code>true</code> if reasoning is needed, <code>false</code> if it can be skipped
+     */
+    public boolean isReasoningNeeded(FrozenSystemState state, Map<String, PipelineLifecycleEvent.Status> pipStatus,
+        long enactments) {
+        boolean needed = maxSkips <= 0 || subsequentSkips >= maxSkips || null == reference
+            || enactments != referenceEnactments || !pipStatus.equals(referenceStatus)
+            || isChanged(reference.getMappingView(), state.getMappingView());
+        if (needed) {
+            subsequentSkips = 0;
+            reasoned++;
+            candidate = state.snapshot();
+        } else {
+            subsequentSkips++;
+            skipped++;
+        }
+        return needed;
+    }
+
+    /**
+     * Records the state passed to the last {@link #isReasoningNeeded(FrozenSystemState, Map, long) successful 
+     * check} (as it was before reasoning) as reference for the next runs.
+     *
+     * @param pipStatus the pipeline status reasoning was performed on
+     * @param enactments the {@link EnactingPipelineElements#getModificationCount() enactment modifications}
+     *   reasoning was performed on
+     */
+    public void reasoned(Map<String, PipelineLifecycleEvent.Status> pipStatus, long enactments) {
+        reference = candidate;
+        candidate = null;
+        referenceStatus = pipStatus;
+        referenceEnactments = enactments;
+    }
+
+    /**
+     * Returns whether the relevant observations in <code>actual</code> changed materially against
+     * <code>last</code>.
+     *
+     * @param last the last reasoned observations
+     * @param actual the actual observations
+     * @return <code>true</code> for a material change, <code>false</code> else
+     */
+    private boolean isChanged(Map<String, Double> last, Map<String, Double> actual) {
+        boolean changed = false;
+        for (Map.Entry<String, Double> entry : actual.entrySet()) {
+            String key = entry.getKey();
+            String observable = getObservable(key);
+            if (isRelevant(observable)) {
+                Double lastValue = last.get(key);
+                changed = (null == lastValue && !last.containsKey(key))
+                    || isMaterialChange(lastValue, entry.getValue(), getTolerance(observable));
+                if (changed) {
+                    break;
+                }
+            }
+        }
+        if (!changed) { // disappeared observations
+            for (String key : last.keySet()) {
+                if (!actual.containsKey(key) && isRelevant(getObservable(key))) {
+                    changed = true;
+                    break;
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Returns the observable name of a frozen state key.
+     *
+     * @param key the key
+     * @return the observable name
+     */
+    private static String getObservable(String key) {
+        return key.substring(key.lastIndexOf(FrozenSystemState.SEPARATOR) + 1);
+    }
+
+    /**
+     * Returns whether the given observable is relevant for reasoning.
+     *
+     * @param observable the observable name
+     * @return <code>true</code> if relevant, <code>false</code> else
+     */
+    private boolean isRelevant(String observable) {
+        return null == relevant || relevant.contains(observable);
+    }
+
+    /**
+     * Returns the relative tolerance for the given observable.
+     *
+     * @param observable the observable name
+     * @return the tolerance
+     */
+    private double getTolerance(String observable) {
+        Double result = tolerances.get(observable);
+        return null == result ? defaultTolerance : result;
+    }
+
+    /**
+     * Returns whether <code>value</code> deviates materially from <code>last</code>.
+     *
+     * @param last the last value (may be <b>null</b>)
+     * @param value the actual value (may be <b>null</b>)
+     * @param tolerance the relative tolerance, not positive for any change
+     * @return <code>true</code> for a material change, <code>false</code> else
+     */
+    static boolean isMaterialChange(Double last, Double value, double tolerance) {
+        boolean result;
+        if (null == last || null == value) {
+            result = last != value;
+        } else if (tolerance <= 0 || last.isNaN() || value.isNaN()) {
+            result = 0 != Double.compare(last, value);
+        } else {
+            result = Math.abs(value - last) > tolerance * Math.abs(last);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of skipped reasoning runs.
+     *
+     * @return the number of skipped runs
+     */
+    public long getSkippedCount() {
+        return skipped;
+    }
+
+    /**
+     * Returns the number of performed, i.e., not skipped, reasoning runs.
+     *
+     * @return the number of performed runs
+     */
+    public long getReasonedCount() {
+        return reasoned;
+    }
+
+}
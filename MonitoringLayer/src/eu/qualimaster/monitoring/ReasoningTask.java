@@ -46,6 +46,7 @@ import eu.qualimaster.infrastructure.PipelineLifecycleEvent;
 import eu.qualimaster.monitoring.events.ConstraintViolationAdaptationEvent;
 import eu.qualimaster.monitoring.events.FrozenSystemState;
 import eu.qualimaster.monitoring.events.ViolatingClause;
+import eu.qualimaster.monitoring.systemState.PlatformSystemPart;
 import eu.qualimaster.monitoring.systemState.SystemPart;
 import eu.qualimaster.monitoring.systemState.SystemState;
 import eu.qualimaster.monitoring.systemState.TypeMapper;
@@ -53,6 +54,7 @@ import eu.qualimaster.monitoring.systemState.TypeMapper.TypeCharacterizer;
 import eu.qualimaster.observables.AnalysisObservables;
 import eu.qualimaster.observables.IObservable;
 import eu.qualimaster.observables.Observables;
+import eu.qualimaster.observables.ResourceUsage;
 import net.ssehub.easy.basics.progress.ProgressObserver;
 import net.ssehub.easy.reasoning.core.frontend.ReasonerFrontend;
 import net.ssehub.easy.reasoning.core.reasoner.ReasonerConfiguration;
@@ -97,8 +99,11 @@ public class ReasoningTask extends TimerTask {
     private RuntimeVariableMapping variableMapping;
     private Map<String, Deviation> activeDeviations = new HashMap<String, Deviation>();
     private transient Set<String> currentDeviations = new HashSet<String>();
+    private FrozenSystemState lastSentState;
     private IReasoningListener listener;
     private IReasoningModelProvider provider;
+    private ReasoningChangeDetector changeDetector = new ReasoningChangeDetector(
+        MonitoringConfiguration.getReasoningTolerances(), MonitoringConfiguration.getReasoningMaxSkips());
     
     private IDatatype typePipeline;
     private IDatatype typePipelineElement;
@@ -426,9 +431,70 @@ public class ReasoningTask extends TimerTask {
             typeMachine = findDatatype(prj, QmConstants.TYPE_MACHINE);
             typeHwNode = findDatatype(prj, QmConstants.TYPE_HWNODE);
             typeAlgorithm = findDatatype(prj, QmConstants.TYPE_ALGORITHM);            
+            changeDetector.setRelevantObservables(collectRelevantObservables(cfg));
         }
         provider.endUsing();
     }
+
+    /**
+     * Collects the names of the observables referenced by runtime variables of <code>cfg</code>. Determined once
+     * per model (re)load for the {@link ReasoningChangeDetector change detection}.
+     * 
+     * @param cfg the configuration (may be <b>null</b>)
+     * @return the names of the observables, empty if none were found
+     */
+    private static Set<String> collectRelevantObservables(Configuration cfg) {
+        Set<String> result = new HashSet<String>();
+        if (null != cfg) {
+            Iterator<IDecisionVariable> iter = cfg.iterator();
+            while (iter.hasNext()) {
+                collectRelevantObservables(iter.next(), result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Collects the names of the observables referenced by <code>var</code> or its nested runtime variables.
+     * 
+     * @param var the variable
+     * @param result the names of the observables (modified as a side effect)
+     */
+    private static void collectRelevantObservables(IDecisionVariable var, Set<String> result) {
+        if (isRuntimeVariable(var)) {
+            IObservable obs = NAME_OBSERVABLE_MAPPING.get(var.getDeclaration().getName());
+            if (null != obs) {
+                result.add(obs.name());
+            }
+        }
+        for (int n = 0; n < var.getNestedElementsCount(); n++) {
+            collectRelevantObservables(var.getNestedElement(n), result);
+        }
+    }
+
+    /**
+     * Returns whether <code>var</code> is bound at runtime.
+     * 
+     * @param var the variable (may be <b>null</b>)
+     * @return <code>true</code> for a runtime variable, <code>false</code> else
+     */
+    private static boolean isRuntimeVariable(IDecisionVariable var) {
+        boolean found = false;
+        if (null != var) {
+            for (int a = 0; !found && a < var.getAttributesCount(); a++) {
+                IDecisionVariable attribute = var.getAttribute(a);
+                AbstractVariable decl = attribute.getDeclaration();
+                if (QmConstants.ANNOTATION_BINDING_TIME.equals(decl.getName())) {
+                    Value val = attribute.getValue();
+                    if (val instanceof EnumValue) {
+                        EnumValue eVal = (EnumValue) val;
+                        found = (eVal.getValue().getName().startsWith("runtime"));
+                    }
+                }
+            }
+        }
+        return found;
+    }
         
     /**
      * Finds the given IVML type.
@@ -457,6 +523,15 @@ public class ReasoningTask extends TimerTask {
         this.listener = listener;
     }
 
+    /**
+     * Returns the change detector deciding whether reasoning can be skipped. [public for testing]
+     * 
+     * @return the change detector
+     */
+    public ReasoningChangeDetector getChangeDetector() {
+        return changeDetector;
+    }
+
     /**
      * Registers all observables according to the variable name convention, i.e., 
      * turns observable names in Java-like variable names. "Cpus" becomes "CPUs" and
@@ -504,7 +579,8 @@ public class ReasoningTask extends TimerTask {
     }
 
     /**
-     * Performs reasoning and returns the violating clauses. [public for testing]
+     * Performs reasoning and returns the violating clauses. Reasoning is skipped if the system state did not change 
+     * materially since the last reasoning. [public for testing]
      * 
      * @param send if <code>true</code> send events, if <code>false</code> be quiet and do not send events
      * @return the adaptation event or <b>null</b> if no violating clauses were detected
@@ -517,7 +593,31 @@ public class ReasoningTask extends TimerTask {
         PipelineAnalysis.analyze(config, sysState); // TODO use frozen state?
         Map<String, PipelineLifecycleEvent.Status> pipStatus = sysState.getPipelinesStatus();
         FrozenSystemState state = sysState.freeze();
+        long enactments = EnactingPipelineElements.INSTANCE.getModificationCount();
+        if (changeDetector.isReasoningNeeded(state, pipStatus, enactments)) {
+            resultEvent = reason(sysState, state, pipStatus, send);
+            changeDetector.reasoned(pipStatus, enactments);
+        }
+        PlatformSystemPart platform = sysState.getPlatform();
+        platform.setValue(ResourceUsage.REASONING_SKIPPED, changeDetector.getSkippedCount(), null);
+        platform.setValue(ResourceUsage.REASONING_PERFORMED, changeDetector.getReasonedCount(), null);
+        MonitoringPluginRegistry.analyze(state);
+        provider.endUsing();
+        return resultEvent;
+    }
 
+    /**
+     * Performs reasoning on a given state and returns the violating clauses.
+     * 
+     * @param sysState the system state
+     * @param state the frozen system state to reason on (modified by reasoning as a side effect)
+     * @param pipStatus a pipeline - pipeline status mapping
+     * @param send if <code>true</code> send events, if <code>false</code> be quiet and do not send events
+     * @return the adaptation event or <b>null</b> if no violating clauses were detected
+     */
+    private AdaptationEvent reason(SystemState sysState, FrozenSystemState state, 
+        Map<String, PipelineLifecycleEvent.Status> pipStatus, boolean send) {
+        AdaptationEvent resultEvent = null;
         if (WITH_DEBUG) {
             String logLocation = MonitoringConfiguration.getMonitoringLogInfraLocation();
             if (!MonitoringConfiguration.isEmpty(logLocation)) { // TODO remove
@@ -565,15 +665,19 @@ public class ReasoningTask extends TimerTask {
                 }
             }
             if (!violating.isEmpty()) {
-                resultEvent = new ConstraintViolationAdaptationEvent(violating, state);
+                FrozenSystemState sent = state.snapshot(); // isolate from modifications by plugins
+                FrozenSystemState delta = null;
+                if (null != lastSentState) {
+                    delta = sent.createDelta(lastSentState, sysState.getChangedKeys(lastSentState));
+                }
+                resultEvent = new ConstraintViolationAdaptationEvent(violating, sent, delta);
                 if (send) {
                     EventManager.handle(resultEvent);
+                    lastSentState = sent;
                 }
             }
         }
         analyzerVisitor.clearState();
-        MonitoringPluginRegistry.analyze(state);
-        provider.endUsing();
         return resultEvent;
     }
 
@@ -788,22 +892,7 @@ public class ReasoningTask extends TimerTask {
 
         @Override
         protected boolean isRelevantVariable(IDecisionVariable var) {
-            boolean found = false;
-            if (null != var) {
-                for (int a = 0; !found && a < var.getAttributesCount(); a++) {
-                    IDecisionVariable attribute = var.getAttribute(a);
-                    AbstractVariable decl = attribute.getDeclaration();
-                    if (QmConstants.ANNOTATION_BINDING_TIME.equals(decl.getName())) {
-                        Value val = attribute.getValue();
-                        if (val instanceof EnumValue) {
-                            EnumValue eVal = (EnumValue) val;
-                            found = (eVal.getValue().getName().startsWith("runtime"));
-                        }
-                    }
-                }
-                found = found && isActive(var, state, pipStatus);
-            }
-            return found;
+            return isRuntimeVariable(var) && isActive(var, state, pipStatus);
         }
         
     }
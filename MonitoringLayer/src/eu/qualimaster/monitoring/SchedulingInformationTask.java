@@ -0,0 +1,166 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.monitoring;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimerTask;
+
+import org.apache.log4j.LogManager;
+import org.apache.storm.curator.framework.CuratorFramework;
+
+import eu.qualimaster.Configuration;
+import eu.qualimaster.common.signal.SignalMechanism;
+import eu.qualimaster.coordination.INameMapping;
+import eu.qualimaster.coordination.INameMapping.Component;
+import eu.qualimaster.coordination.ZkUtils;
+import eu.qualimaster.coordination.scheduling.SchedulingInformation;
+import eu.qualimaster.monitoring.systemState.MachineSystemPart;
+import eu.qualimaster.monitoring.systemState.PipelineNodeSystemPart;
+import eu.qualimaster.monitoring.systemState.PipelineSystemPart;
+import eu.qualimaster.monitoring.systemState.SystemState;
+import eu.qualimaster.monitoring.topology.PipelineTopology;
+import eu.qualimaster.monitoring.topology.PipelineTopology.Processor;
+import eu.qualimaster.monitoring.topology.PipelineTopology.Stream;
+import eu.qualimaster.observables.ResourceUsage;
+import eu.qualimaster.observables.TimeBehavior;
+
+/**
+ * Periodically provides the machine load and the traffic among the Storm components of the pipelines to the
+ * {@link SchedulingInformation} of the scheduler. The traffic of a stream is estimated by the item throughput of its
+ * origin divided by the number of outputs of the origin. If signals are sent via the Zookeeper, the information is
+ * also {@link SchedulingInformation#publish(CuratorFramework) published} there for the scheduler running in Nimbus.
+ * Publishing is skipped while the Zookeeper is not connected in order not to block the timer.
+ *
+ * @author Holger Eichelberger
+ */
+class SchedulingInformationTask extends TimerTask {
+
+    private SystemState state;
+    private CuratorFramework framework;
+
+    /**
+     * Creates the task.
+     *
+     * @param state the system state to take the information from
+     */
+    SchedulingInformationTask(SystemState state) {
+        this.state = state;
+    }
+
+    @Override
+    public void run() {
+        for (MachineSystemPart machine : state.getPlatform().machines()) {
+            if (machine.hasValue(ResourceUsage.LOAD)) {
+                SchedulingInformation.setHostLoad(machine.getName(), machine.getObservedValue(ResourceUsage.LOAD));
+            }
+        }
+        for (PipelineSystemPart pipeline : state.getPipelines()) {
+            PipelineTopology topology = pipeline.getTopology();
+            if (null != topology) {
+                SchedulingInformation.setTraffic(pipeline.getName(), getTraffic(pipeline, topology));
+            }
+        }
+        publish();
+    }
+
+    /**
+     * Publishes the scheduling information to the Zookeeper if enabled and connected.
+     */
+    private synchronized void publish() {
+        if (null == framework && Configuration.getPipelineSignalsCurator()) {
+            framework = ZkUtils.obtainCuratorFramework(Configuration.getZookeeperConnectString(),
+                SignalMechanism.GLOBAL_NAMESPACE);
+        }
+        if (null != framework && framework.getZookeeperClient().isConnected()) {
+            try {
+                SchedulingInformation.publish(framework);
+            } catch (IOException e) {
+                LogManager.getLogger(SchedulingInformationTask.class).warn(
+                    "Cannot publish scheduling information: " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public synchronized boolean cancel() {
+        boolean result = super.cancel();
+        if (null != framework) {
+            framework.close();
+            framework = null;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the traffic among the Storm components of a pipeline.
+     *
+     * @param pipeline the pipeline
+     * @param topology the topology of <code>pipeline</code>
+     * @return the traffic volume per origin and target component
+     */
+    static Map<String, Map<String, Double>> getTraffic(PipelineSystemPart pipeline, PipelineTopology topology) {
+        Map<String, Map<String, Double>> result = new HashMap<String, Map<String, Double>>();
+        INameMapping mapping = pipeline.getNameMapping();
+        LinkedList<Processor> queue = new LinkedList<Processor>();
+        Set<Processor> done = new HashSet<Processor>();
+        for (int s = 0; s < topology.getSourceCount(); s++) {
+            queue.add(topology.getSource(s));
+        }
+        while (!queue.isEmpty()) {
+            Processor proc = queue.removeFirst();
+            if (done.add(proc)) {
+                int outputs = proc.getOutputCount();
+                PipelineNodeSystemPart node = pipeline.getPipelineNode(proc.getName());
+                double throughput = null != node && node.hasValue(TimeBehavior.THROUGHPUT_ITEMS)
+                    ? node.getObservedValue(TimeBehavior.THROUGHPUT_ITEMS) : 0;
+                for (int o = 0; o < outputs; o++) {
+                    Stream stream = proc.getOutput(o);
+                    Processor target = stream.getTarget();
+                    if (throughput > 0) {
+                        SchedulingInformation.addTraffic(result, getComponentName(mapping, proc),
+                            getComponentName(mapping, target), throughput / outputs);
+                    }
+                    queue.add(target);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the Storm component name of a processor.
+     *
+     * @param mapping the name mapping (may be <b>null</b>)
+     * @param proc the processor
+     * @return the component name, the processor name if there is no mapping
+     */
+    private static String getComponentName(INameMapping mapping, Processor proc) {
+        String result = proc.getName();
+        if (null != mapping) {
+            Component component = mapping.getPipelineNodeComponent(result);
+            if (null != component) {
+                result = component.getName();
+            }
+        }
+        return result;
+    }
+
+}
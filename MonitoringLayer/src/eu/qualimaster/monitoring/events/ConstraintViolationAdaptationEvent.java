@@ -1,5 +1,8 @@
 package eu.qualimaster.monitoring.events;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
@@ -10,7 +13,9 @@ import eu.qualimaster.common.QMGenerics;
 import eu.qualimaster.common.QMInternal;
 
 /**
- * Informs the adaptation layer about violated constraints. 
+ * Informs the adaptation layer about violated constraints. If a delta state is given, only the delta is serialized 
+ * and the receiver has to {@link FrozenSystemState#applyDelta(FrozenSystemState) apply} it to the state of the 
+ * previous event.
  *  
  * @author Holger Eichelberger
  */
@@ -18,7 +23,8 @@ public class ConstraintViolationAdaptationEvent extends AdaptationEvent {
 
     private static final long serialVersionUID = 8296772128610605669L;
     private List<ViolatingClause> violating;
-    private FrozenSystemState state;
+    private transient FrozenSystemState state;
+    private FrozenSystemState delta;
     
     /**
      * Creates a regular adaptation event.
@@ -28,9 +34,24 @@ public class ConstraintViolationAdaptationEvent extends AdaptationEvent {
      */
     @QMInternal
     public ConstraintViolationAdaptationEvent(Collection<ViolatingClause> violating, FrozenSystemState state) {
+        this(violating, state, null);
+    }
+
+    /**
+     * Creates a regular adaptation event.
+     * 
+     * @param violating the violating clauses
+     * @param state the system state to perform adaptation on
+     * @param delta the delta of <code>state</code> to the state of the previous event, to be serialized instead of 
+     *     <code>state</code> (may be <b>null</b> for none)
+     */
+    @QMInternal
+    public ConstraintViolationAdaptationEvent(Collection<ViolatingClause> violating, FrozenSystemState state, 
+        FrozenSystemState delta) {
         this.violating = new ArrayList<ViolatingClause>();
         this.violating.addAll(violating);
         this.state = state;
+        this.delta = delta;
     }
     
     /**
@@ -73,5 +94,38 @@ public class ConstraintViolationAdaptationEvent extends AdaptationEvent {
     public FrozenSystemState getState() {
         return state;
     }
+
+    /**
+     * Returns the delta of the system state to the state of the previous event.
+     * 
+     * @return the delta state, <b>null</b> if there is none
+     */
+    @QMInternal
+    public FrozenSystemState getDelta() {
+        return delta;
+    }
+
+    /**
+     * Writes this event, the system state only if there is no delta.
+     * 
+     * @param out the output stream
+     * @throws IOException in case of I/O problems
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeObject(null == delta ? state : null);
+    }
+
+    /**
+     * Reads this event.
+     * 
+     * @param in the input stream
+     * @throws IOException in case of I/O problems
+     * @throws ClassNotFoundException in case that classes cannot be found
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        state = (FrozenSystemState) in.readObject();
+    }
     
 }
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2009-2015 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.monitoring.history;
+
+/**
+ * Aggregates the recorded values of an observable over a time range, e.g., a single slot of a {@link TimeSeries} or
+ * a query range.
+ *
+ * @author Holger Eichelberger
+ */
+public class HistoryAggregate {
+
+    private long start = -1;
+    private long end = -1;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+    private double sum;
+    private int count;
+    private double last = Double.NaN;
+
+    /**
+     * Creates an empty aggregate.
+     */
+    HistoryAggregate() {
+    }
+
+    /**
+     * Adds the values of a slot. Slots must be added in ascending time order.
+     *
+     * @param slotStart the start timestamp of the slot
+     * @param slotEnd the (exclusive) end timestamp of the slot
+     * @param slotMin the minimum value in the slot
+     * @param slotMax the maximum value in the slot
+     * @param slotSum the sum of the values in the slot
+     * @param slotCount the number of values in the slot
+     * @param slotLast the last value in the slot
+     */
+    void add(long slotStart, long slotEnd, double slotMin, double slotMax, double slotSum, int slotCount,
+        double slotLast) {
+        if (count == 0) {
+            start = slotStart;
+            min = slotMin;
+            max = slotMax;
+        } else {
+            min = Math.min(min, slotMin);
+            max = Math.max(max, slotMax);
+        }
+        end = slotEnd;
+        sum += slotSum;
+        count += slotCount;
+        last = slotLast;
+    }
+
+    /**
+     * Returns the start timestamp of the first contributing slot.
+     *
+     * @return the start timestamp, negative if empty
+     */
+    public long getStart() {
+        return start;
+    }
+
+    /**
+     * Returns the (exclusive) end timestamp of the last contributing slot.
+     *
+     * @return the end timestamp, negative if empty
+     */
+    public long getEnd() {
+        return end;
+    }
+
+    /**
+     * Returns the minimum value.
+     *
+     * @return the minimum value, <code>NaN</code> if empty
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * Returns the maximum value.
+     *
+     * @return the maximum value, <code>NaN</code> if empty
+     */
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * Returns the average value.
+     *
+     * @return the average value, <code>NaN</code> if empty
+     */
+    public double getAverage() {
+        return count == 0 ? Double.NaN : sum / count;
+    }
+
+    /**
+     * Returns the sum of the values.
+     *
+     * @return the sum
+     */
+    public double getSum() {
+        return sum;
+    }
+
+    /**
+     * Returns the number of recorded values.
+     *
+     * @return the number of values
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the last (most recent) value.
+     *
+     * @return the last value, <code>NaN</code> if empty
+     */
+    public double getLast() {
+        return last;
+    }
+
+    /**
+     * Returns whether this aggregate is empty.
+     *
+     * @return <code>true</code> if empty, <code>false</code> else
+     */
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + start + "-" + end + " min " + min + " max " + max + " avg " + getAverage() + " cnt " + count
+            + " last " + last + "]";
+    }
+
+}
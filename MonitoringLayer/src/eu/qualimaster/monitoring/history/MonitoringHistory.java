@@ -0,0 +1,262 @@
+/*
+ * Copyright 2009-2015 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.monitoring.history;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.log4j.LogManager;
+
+import eu.qualimaster.monitoring.events.FrozenSystemState;
+
+/**
+ * Registry of the histories of the system parts. Histories are registered under the key of their system part in
+ * the frozen system state, i.e., <code>prefix:name</code> (see {@link #getPartKey(String, String)}). The registered
+ * histories can be spilled into a memory-mapped file and restored from there, e.g., to survive a restart of the
+ * Monitoring Layer. Restored histories are merged into the histories of the system parts upon registration.
+ *
+ * @author Holger Eichelberger
+ */
+public class MonitoringHistory {
+
+    private static final int MAGIC = 0x514D4849; // QMHI
+    private static final int VERSION = 1;
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+    private static final ConcurrentMap<String, ObservationHistory> HISTORIES
+        = new ConcurrentHashMap<String, ObservationHistory>();
+    private static final ConcurrentMap<String, Map<String, TimeSeries>> RESTORED
+        = new ConcurrentHashMap<String, Map<String, TimeSeries>>();
+
+    /**
+     * Prevents external creation.
+     */
+    private MonitoringHistory() {
+    }
+
+    /**
+     * Returns the key of a system part.
+     *
+     * @param prefix the prefix of the part in the frozen system state, e.g., {@link FrozenSystemState#PIPELINE}
+     * @param name the name of the part in the frozen system state
+     * @return the key
+     */
+    public static String getPartKey(String prefix, String name) {
+        return prefix + FrozenSystemState.SEPARATOR + name;
+    }
+
+    /**
+     * Registers the history of a system part. Restored values for <code>key</code> are merged into
+     * <code>history</code>.
+     *
+     * @param key the part key (see {@link #getPartKey(String, String)})
+     * @param history the history
+     */
+    public static void register(String key, ObservationHistory history) {
+        if (null != key && null != history) {
+            HISTORIES.put(key, history);
+            Map<String, TimeSeries> restored = RESTORED.remove(key);
+            if (null != restored) {
+                history.merge(restored);
+            }
+        }
+    }
+
+    /**
+     * Unregisters the history of a system part.
+     *
+     * @param key the part key (see {@link #getPartKey(String, String)})
+     * @param history the history to unregister, ignored if another history is registered for <code>key</code>
+     */
+    public static void unregister(String key, ObservationHistory history) {
+        if (null != key && null != history) {
+            HISTORIES.remove(key, history);
+        }
+    }
+
+    /**
+     * Returns the history of a system part.
+     *
+     * @param key the part key (see {@link #getPartKey(String, String)})
+     * @return the history, <b>null</b> if none is registered
+     */
+    public static ObservationHistory getHistory(String key) {
+        return null == key ? null : HISTORIES.get(key);
+    }
+
+    /**
+     * Returns the keys of the registered histories.
+     *
+     * @return the keys
+     */
+    public static Set<String> getKeys() {
+        return Collections.unmodifiableSet(HISTORIES.keySet());
+    }
+
+    /**
+     * Clears all registered and restored histories (for testing).
+     */
+    public static void clear() {
+        HISTORIES.clear();
+        RESTORED.clear();
+    }
+
+    /**
+     * Spills the registered histories into the given file using a memory-mapped buffer.
+     *
+     * @param file the file to write to
+     * @throws IOException in case of I/O problems
+     */
+    public static void save(File file) throws IOException {
+        List<String> keys = new ArrayList<String>();
+        List<Map<String, TimeSeries>> series = new ArrayList<Map<String, TimeSeries>>();
+        long size = 4 + 4 + 4;
+        for (Map.Entry<String, ObservationHistory> entry : HISTORIES.entrySet()) {
+            Map<String, TimeSeries> s = entry.getValue().getSeries();
+            if (!s.isEmpty()) {
+                keys.add(entry.getKey());
+                series.add(s);
+                size += getByteSize(entry.getKey()) + 4;
+                for (Map.Entry<String, TimeSeries> sEntry : s.entrySet()) {
+                    size += getByteSize(sEntry.getKey()) + sEntry.getValue().getByteSize();
+                }
+            }
+        }
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.setLength(size);
+            MappedByteBuffer buffer = out.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putInt(keys.size());
+            for (int k = 0; k < keys.size(); k++) {
+                putString(buffer, keys.get(k));
+                Map<String, TimeSeries> s = series.get(k);
+                buffer.putInt(s.size());
+                for (Map.Entry<String, TimeSeries> sEntry : s.entrySet()) {
+                    putString(buffer, sEntry.getKey());
+                    sEntry.getValue().write(buffer);
+                }
+            }
+            buffer.force();
+        }
+    }
+
+    /**
+     * Restores spilled histories from the given file using a memory-mapped buffer. Histories are merged into
+     * already registered histories or kept until the respective history is {@link #register(String,
+     * ObservationHistory) registered}. Unknown or corrupted files are ignored.
+     *
+     * @param file the file to read from
+     * @throws IOException in case of I/O problems
+     */
+    public static void load(File file) throws IOException {
+        if (file.exists()) {
+            try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+                MappedByteBuffer buffer = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, in.length());
+                if (buffer.remaining() >= 8 && MAGIC == buffer.getInt() && VERSION == buffer.getInt()) {
+                    int count = getCount(buffer);
+                    for (int k = 0; k < count; k++) {
+                        String key = getString(buffer);
+                        int sCount = getCount(buffer);
+                        Map<String, TimeSeries> s = new HashMap<String, TimeSeries>();
+                        for (int i = 0; i < sCount; i++) {
+                            String observable = getString(buffer);
+                            s.put(observable, TimeSeries.read(buffer));
+                        }
+                        ObservationHistory history = HISTORIES.get(key);
+                        if (null != history) {
+                            history.merge(s);
+                        } else {
+                            RESTORED.put(key, s);
+                        }
+                    }
+                } else {
+                    LogManager.getLogger(MonitoringHistory.class).warn("Ignoring unknown history file " + file);
+                }
+            } catch (RuntimeException e) { // BufferUnderflowException, IllegalArgumentException
+                LogManager.getLogger(MonitoringHistory.class).warn("Ignoring corrupted history file " + file
+                    + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns the number of bytes required to write <code>string</code>.
+     *
+     * @param string the string
+     * @return the number of bytes
+     */
+    private static int getByteSize(String string) {
+        return 4 + string.getBytes(CHARSET).length;
+    }
+
+    /**
+     * Writes a string.
+     *
+     * @param buffer the buffer to write to
+     * @param string the string to write
+     */
+    private static void putString(ByteBuffer buffer, String string) {
+        byte[] bytes = string.getBytes(CHARSET);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * Reads a string.
+     *
+     * @param buffer the buffer to read from
+     * @return the string
+     * @throws IllegalArgumentException if the length of the string is not valid or exceeds <code>buffer</code>
+     */
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("invalid string length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, CHARSET);
+    }
+
+    /**
+     * Reads a number of entries, each requiring at least 4 bytes.
+     *
+     * @param buffer the buffer to read from
+     * @return the number of entries
+     * @throws IllegalArgumentException if the number is not valid or exceeds <code>buffer</code>
+     */
+    private static int getCount(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining() / 4) {
+            throw new IllegalArgumentException("invalid number of entries: " + count);
+        }
+        return count;
+    }
+
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2009-2015 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.monitoring.history;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import eu.qualimaster.monitoring.observations.IObservation;
+import eu.qualimaster.observables.IObservable;
+
+/**
+ * The time-series history of the observables of a system part. Series are allocated on the first recorded value
+ * of an observable. Updates of the system part are sampled at most every {@link #SAMPLE_INTERVAL} ms per
+ * observable so that frequent updates do not cause frequent (potentially aggregating) value calculations.
+ *
+ * @author Holger Eichelberger
+ */
+public class ObservationHistory {
+
+    /**
+     * The minimum distance between two samples of the same observable taken from updates in ms.
+     */
+    public static final long SAMPLE_INTERVAL = 250;
+
+    private final IObservable[] observables;
+    private final Map<IObservable, Integer> index;
+    private final AtomicReferenceArray<TimeSeries> series;
+    private final AtomicLongArray nextSample;
+
+    /**
+     * Creates a history for the given observables.
+     *
+     * @param observables the observables
+     */
+    public ObservationHistory(Collection<IObservable> observables) {
+        this.observables = observables.toArray(new IObservable[observables.size()]);
+        Map<IObservable, Integer> tmp = new HashMap<IObservable, Integer>();
+        for (int o = 0; o < this.observables.length; o++) {
+            tmp.put(this.observables[o], o);
+        }
+        index = Collections.unmodifiableMap(tmp);
+        series = new AtomicReferenceArray<TimeSeries>(this.observables.length);
+        nextSample = new AtomicLongArray(this.observables.length);
+    }
+
+    /**
+     * Returns the index of the given observable.
+     *
+     * @param observable the observable
+     * @return the index, negative if not known
+     */
+    private int indexOf(IObservable observable) {
+        Integer result = null == observable ? null : index.get(observable);
+        return null == result ? -1 : result;
+    }
+
+    /**
+     * Returns the series for the given index, creates it if required.
+     *
+     * @param idx the index
+     * @return the series
+     */
+    private TimeSeries obtainSeries(int idx) {
+        TimeSeries result = series.get(idx);
+        if (null == result) {
+            series.compareAndSet(idx, null, new TimeSeries());
+            result = series.get(idx);
+        }
+        return result;
+    }
+
+    /**
+     * Samples the value of an observation after an update if the last sample of <code>observable</code> is at
+     * least {@link #SAMPLE_INTERVAL} ms ago.
+     *
+     * @param observable the observable
+     * @param observation the observation holding the value
+     * @param now the current timestamp
+     */
+    public void update(IObservable observable, IObservation observation, long now) {
+        int idx = indexOf(observable);
+        if (idx >= 0) {
+            long next = nextSample.get(idx);
+            if (now >= next && nextSample.compareAndSet(idx, next, now + SAMPLE_INTERVAL)
+                && observation.isValueSet()) {
+                obtainSeries(idx).record(now, observation.getValue());
+            }
+        }
+    }
+
+    /**
+     * Records a value.
+     *
+     * @param observable the observable
+     * @param time the timestamp of the value
+     * @param value the value
+     */
+    public void record(IObservable observable, long time, double value) {
+        int idx = indexOf(observable);
+        if (idx >= 0) {
+            obtainSeries(idx).record(time, value);
+        }
+    }
+
+    /**
+     * Returns the observables with recorded values.
+     *
+     * @return the observables
+     */
+    public List<IObservable> getRecordedObservables() {
+        List<IObservable> result = new ArrayList<IObservable>();
+        for (int o = 0; o < observables.length; o++) {
+            if (null != series.get(o)) {
+                result.add(observables[o]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the series of the given observable.
+     *
+     * @param observable the observable
+     * @return the series, <b>null</b> if no value was recorded so far
+     */
+    public TimeSeries getSeries(IObservable observable) {
+        int idx = indexOf(observable);
+        return idx >= 0 ? series.get(idx) : null;
+    }
+
+    /**
+     * Aggregates the values of <code>observable</code> in the given time range.
+     *
+     * @param observable the observable
+     * @param from the start of the range (inclusive)
+     * @param to the end of the range (inclusive)
+     * @return the aggregate (may be {@link HistoryAggregate#isEmpty() empty})
+     * @see TimeSeries#aggregate(long, long)
+     */
+    public HistoryAggregate aggregate(IObservable observable, long from, long to) {
+        TimeSeries ts = getSeries(observable);
+        return null == ts ? new HistoryAggregate() : ts.aggregate(from, to);
+    }
+
+    /**
+     * Returns the slots of <code>observable</code> in the given time range.
+     *
+     * @param observable the observable
+     * @param from the start of the range (inclusive)
+     * @param to the end of the range (inclusive)
+     * @return one aggregate per slot
+     * @see TimeSeries#range(long, long)
+     */
+    public List<HistoryAggregate> range(IObservable observable, long from, long to) {
+        TimeSeries ts = getSeries(observable);
+        return null == ts ? new ArrayList<HistoryAggregate>() : ts.range(from, to);
+    }
+
+    /**
+     * Returns the rate of change per second of <code>observable</code> in the given time range.
+     *
+     * @param observable the observable
+     * @param from the start of the range (inclusive)
+     * @param to the end of the range (inclusive)
+     * @return the rate, <code>NaN</code> if not enough values are recorded
+     * @see TimeSeries#rate(long, long)
+     */
+    public double rate(IObservable observable, long from, long to) {
+        TimeSeries ts = getSeries(observable);
+        return null == ts ? Double.NaN : ts.rate(from, to);
+    }
+
+    /**
+     * Returns the recorded series by observable name.
+     *
+     * @return the series
+     */
+    Map<String, TimeSeries> getSeries() {
+        Map<String, TimeSeries> result = new HashMap<String, TimeSeries>();
+        for (int o = 0; o < observables.length; o++) {
+            TimeSeries ts = series.get(o);
+            if (null != ts) {
+                result.put(observables[o].name(), ts);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Merges restored series into this history.
+     *
+     * @param restored the restored series by observable name
+     */
+    void merge(Map<String, TimeSeries> restored) {
+        for (int o = 0; o < observables.length; o++) {
+            TimeSeries ts = restored.get(observables[o].name());
+            if (null != ts) {
+                obtainSeries(o).merge(ts);
+            }
+        }
+    }
+
+}
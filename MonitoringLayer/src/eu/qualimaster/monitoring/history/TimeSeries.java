@@ -0,0 +1,453 @@
+/*
+ * Copyright 2009-2015 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.monitoring.history;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A fixed-memory time series of the values of a single observable. Values are downsampled into multiple tiers of
+ * increasing resolution, each a ring buffer of primitive slots (start, min, max, sum, count, last) indexed by time,
+ * i.e., recording a value is constant time and old slots are overwritten implicitly. Queries are answered from the
+ * finest tier still covering the requested range.
+ *
+ * @author Holger Eichelberger
+ */
+public class TimeSeries {
+
+    /**
+     * The default tier resolutions in ms (1 s, 10 s, 1 min).
+     */
+    public static final long[] DEFAULT_RESOLUTIONS = {1000, 10 * 1000, 60 * 1000};
+
+    /**
+     * The default tier capacities in slots (2 min, 30 min, 4 h).
+     */
+    public static final int[] DEFAULT_CAPACITIES = {120, 180, 240};
+
+    private static final int SLOT_BYTES = 8 + 8 + 8 + 8 + 4 + 8;
+    private static final int TIER_HEADER_BYTES = 8 + 4;
+
+    private Tier[] tiers;
+    private long lastTime = -1;
+
+    /**
+     * Implements a tier, i.e., a time-indexed ring buffer of slots with a fixed resolution.
+     *
+     * @author Holger Eichelberger
+     */
+    private static class Tier {
+
+        private long resolution;
+        private int capacity;
+        private long[] start;
+        private double[] min;
+        private double[] max;
+        private double[] sum;
+        private int[] count;
+        private double[] last;
+
+        /**
+         * Creates a tier.
+         *
+         * @param resolution the resolution of a slot in ms
+         * @param capacity the number of slots
+         */
+        private Tier(long resolution, int capacity) {
+            this.resolution = resolution;
+            this.capacity = capacity;
+            start = new long[capacity];
+            Arrays.fill(start, -1);
+            min = new double[capacity];
+            max = new double[capacity];
+            sum = new double[capacity];
+            count = new int[capacity];
+            last = new double[capacity];
+        }
+
+        /**
+         * Returns the slot start for the given timestamp.
+         *
+         * @param time the timestamp
+         * @return the slot start
+         */
+        private long slotStart(long time) {
+            return time - (time % resolution);
+        }
+
+        /**
+         * Returns the slot index for the given slot start.
+         *
+         * @param slotStart the slot start
+         * @return the slot index
+         */
+        private int index(long slotStart) {
+            return (int) ((slotStart / resolution) % capacity);
+        }
+
+        /**
+         * Records a value.
+         *
+         * @param time the timestamp of the value
+         * @param value the value
+         */
+        private void record(long time, double value) {
+            long slotStart = slotStart(time);
+            int idx = index(slotStart);
+            if (start[idx] == slotStart) {
+                min[idx] = Math.min(min[idx], value);
+                max[idx] = Math.max(max[idx], value);
+                sum[idx] += value;
+                count[idx]++;
+                last[idx] = value;
+            } else if (start[idx] < slotStart) { // outdated slot, older values are dropped
+                start[idx] = slotStart;
+                min[idx] = value;
+                max[idx] = value;
+                sum[idx] = value;
+                count[idx] = 1;
+                last[idx] = value;
+            }
+        }
+
+        /**
+         * Merges the slots of <code>other</code> into this tier. Slots of this tier take precedence as they are
+         * considered to be more recent.
+         *
+         * @param other the tier to merge (same resolution and capacity)
+         */
+        private void merge(Tier other) {
+            for (int i = 0; i < capacity; i++) {
+                long otherStart = other.start[i];
+                if (otherStart >= 0) {
+                    if (start[i] < otherStart) {
+                        start[i] = otherStart;
+                        min[i] = other.min[i];
+                        max[i] = other.max[i];
+                        sum[i] = other.sum[i];
+                        count[i] = other.count[i];
+                        last[i] = other.last[i];
+                    } else if (start[i] == otherStart) {
+                        min[i] = Math.min(min[i], other.min[i]);
+                        max[i] = Math.max(max[i], other.max[i]);
+                        sum[i] += other.sum[i];
+                        count[i] += other.count[i];
+                    }
+                }
+            }
+        }
+
+        /**
+         * Returns whether this tier still covers <code>from</code> given the most recent recording time.
+         *
+         * @param from the start of the range
+         * @param lastTime the most recent recording time
+         * @return <code>true</code> if covered, <code>false</code> else
+         */
+        private boolean covers(long from, long lastTime) {
+            return from >= slotStart(lastTime) - (capacity - 1) * resolution;
+        }
+
+        /**
+         * Visits the slots overlapping the given time range in ascending time order.
+         *
+         * @param from the start of the range (inclusive)
+         * @param to the end of the range (inclusive)
+         * @param lastTime the most recent recording time
+         * @param aggregate the aggregate to add all slots to (may be <b>null</b>)
+         * @param slots the list to add one aggregate per slot to (may be <b>null</b>)
+         */
+        private void visit(long from, long to, long lastTime, HistoryAggregate aggregate,
+            List<HistoryAggregate> slots) {
+            long first = Math.max(slotStart(from), slotStart(lastTime) - (capacity - 1) * resolution);
+            long end = Math.min(slotStart(to), slotStart(lastTime));
+            for (long s = first; s <= end; s += resolution) {
+                int idx = index(s);
+                if (start[idx] == s) {
+                    if (null != aggregate) {
+                        aggregate.add(s, s + resolution, min[idx], max[idx], sum[idx], count[idx], last[idx]);
+                    }
+                    if (null != slots) {
+                        HistoryAggregate slot = new HistoryAggregate();
+                        slot.add(s, s + resolution, min[idx], max[idx], sum[idx], count[idx], last[idx]);
+                        slots.add(slot);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Returns the number of bytes required to {@link #write(ByteBuffer) write} this tier.
+         *
+         * @return the number of bytes
+         */
+        private int getByteSize() {
+            return TIER_HEADER_BYTES + capacity * SLOT_BYTES;
+        }
+
+        /**
+         * Writes this tier.
+         *
+         * @param buffer the buffer to write to
+         */
+        private void write(ByteBuffer buffer) {
+            buffer.putLong(resolution);
+            buffer.putInt(capacity);
+            for (int i = 0; i < capacity; i++) {
+                buffer.putLong(start[i]);
+                buffer.putDouble(min[i]);
+                buffer.putDouble(max[i]);
+                buffer.putDouble(sum[i]);
+                buffer.putInt(count[i]);
+                buffer.putDouble(last[i]);
+            }
+        }
+
+        /**
+         * Reads a tier.
+         *
+         * @param buffer the buffer to read from
+         * @return the tier
+         * @throws IllegalArgumentException if the tier specification is not valid or exceeds <code>buffer</code>
+         */
+        private static Tier read(ByteBuffer buffer) {
+            long resolution = buffer.getLong();
+            int capacity = buffer.getInt();
+            if (resolution <= 0 || capacity <= 0 || capacity > buffer.remaining() / SLOT_BYTES) {
+                throw new IllegalArgumentException("invalid tier: resolution " + resolution + " capacity " 
+                    + capacity);
+            }
+            Tier result = new Tier(resolution, capacity);
+            for (int i = 0; i < result.capacity; i++) {
+                result.start[i] = buffer.getLong();
+                result.min[i] = buffer.getDouble();
+                result.max[i] = buffer.getDouble();
+                result.sum[i] = buffer.getDouble();
+                result.count[i] = buffer.getInt();
+                result.last[i] = buffer.getDouble();
+            }
+            return result;
+        }
+
+    }
+
+    /**
+     * Creates a time series with the default tiers.
+     *
+     * @see #DEFAULT_RESOLUTIONS
+     * @see #DEFAULT_CAPACITIES
+     */
+    public TimeSeries() {
+        this(DEFAULT_RESOLUTIONS, DEFAULT_CAPACITIES);
+    }
+
+    /**
+     * Creates a time series with the given tiers.
+     *
+     * @param resolutions the resolutions of the tiers in ms, ascending
+     * @param capacities the capacities of the tiers in slots, same length as <code>resolutions</code>
+     * @throws IllegalArgumentException if the tier specification is not valid
+     */
+    public TimeSeries(long[] resolutions, int[] capacities) {
+        if (resolutions.length == 0 || resolutions.length != capacities.length) {
+            throw new IllegalArgumentException("invalid tiers");
+        }
+        tiers = new Tier[resolutions.length];
+        for (int t = 0; t < tiers.length; t++) {
+            if (resolutions[t] <= 0 || capacities[t] <= 0 || (t > 0 && resolutions[t] < resolutions[t - 1])) {
+                throw new IllegalArgumentException("invalid tier " + t);
+            }
+            tiers[t] = new Tier(resolutions[t], capacities[t]);
+        }
+    }
+
+    /**
+     * Creates a time series from the given tiers.
+     *
+     * @param tiers the tiers
+     */
+    private TimeSeries(Tier[] tiers) {
+        this.tiers = tiers;
+    }
+
+    /**
+     * Records a value.
+     *
+     * @param time the timestamp of the value
+     * @param value the value
+     */
+    public synchronized void record(long time, double value) {
+        for (int t = 0; t < tiers.length; t++) {
+            tiers[t].record(time, value);
+        }
+        lastTime = Math.max(lastTime, time);
+    }
+
+    /**
+     * Returns the most recent recording time.
+     *
+     * @return the most recent recording time, negative if nothing was recorded so far
+     */
+    public synchronized long getLastTime() {
+        return lastTime;
+    }
+
+    /**
+     * Returns the tier used for answering a query starting at <code>from</code>.
+     *
+     * @param from the start of the range
+     * @return the tier, the coarsest one if no tier covers <code>from</code> completely
+     */
+    private Tier selectTier(long from) {
+        Tier result = tiers[tiers.length - 1];
+        for (int t = 0; t < tiers.length - 1; t++) {
+            if (tiers[t].covers(from, lastTime)) {
+                result = tiers[t];
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Aggregates the values in the given time range.
+     *
+     * @param from the start of the range (inclusive)
+     * @param to the end of the range (inclusive)
+     * @return the aggregate (may be {@link HistoryAggregate#isEmpty() empty})
+     */
+    public synchronized HistoryAggregate aggregate(long from, long to) {
+        HistoryAggregate result = new HistoryAggregate();
+        if (lastTime >= 0) {
+            selectTier(from).visit(from, to, lastTime, result, null);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the slots in the given time range in ascending time order at the finest resolution available for
+     * <code>from</code>.
+     *
+     * @param from the start of the range (inclusive)
+     * @param to the end of the range (inclusive)
+     * @return one aggregate per slot
+     */
+    public synchronized List<HistoryAggregate> range(long from, long to) {
+        List<HistoryAggregate> result = new ArrayList<HistoryAggregate>();
+        if (lastTime >= 0) {
+            selectTier(from).visit(from, to, lastTime, null, result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the rate of change per second in the given time range, i.e., the difference of the last values of the
+     * first and the last slot divided by their distance. This is intended for cumulative observables such as
+     * item counts.
+     *
+     * @param from the start of the range (inclusive)
+     * @param to the end of the range (inclusive)
+     * @return the rate, <code>NaN</code> if less than two slots are in the range
+     */
+    public double rate(long from, long to) {
+        double result = Double.NaN;
+        List<HistoryAggregate> slots = range(from, to);
+        if (slots.size() > 1) {
+            HistoryAggregate first = slots.get(0);
+            HistoryAggregate last = slots.get(slots.size() - 1);
+            result = (last.getLast() - first.getLast()) * 1000.0 / (last.getStart() - first.getStart());
+        }
+        return result;
+    }
+
+    /**
+     * Merges the values of <code>other</code> into this time series. Tiers of <code>other</code> without a
+     * corresponding tier (same resolution and capacity) in this series are ignored. Values of this series take
+     * precedence.
+     *
+     * @param other the series to merge
+     */
+    public void merge(TimeSeries other) {
+        Tier[] otherTiers;
+        long otherLastTime;
+        synchronized (other) {
+            otherTiers = other.tiers;
+            otherLastTime = other.lastTime;
+        }
+        synchronized (this) {
+            for (int t = 0; t < tiers.length; t++) {
+                for (int o = 0; o < otherTiers.length; o++) {
+                    if (tiers[t].resolution == otherTiers[o].resolution
+                        && tiers[t].capacity == otherTiers[o].capacity) {
+                        tiers[t].merge(otherTiers[o]);
+                    }
+                }
+            }
+            lastTime = Math.max(lastTime, otherLastTime);
+        }
+    }
+
+    /**
+     * Returns the number of bytes required to {@link #write(ByteBuffer) write} this series.
+     *
+     * @return the number of bytes
+     */
+    synchronized int getByteSize() {
+        int result = TIER_HEADER_BYTES;
+        for (int t = 0; t < tiers.length; t++) {
+            result += tiers[t].getByteSize();
+        }
+        return result;
+    }
+
+    /**
+     * Writes this series.
+     *
+     * @param buffer the buffer to write to
+     */
+    synchronized void write(ByteBuffer buffer) {
+        buffer.putLong(lastTime);
+        buffer.putInt(tiers.length);
+        for (int t = 0; t < tiers.length; t++) {
+            tiers[t].write(buffer);
+        }
+    }
+
+    /**
+     * Reads a series.
+     *
+     * @param buffer the buffer to read from
+     * @return the series
+     * @throws IllegalArgumentException if the number of tiers is not valid or exceeds <code>buffer</code>
+     */
+    static TimeSeries read(ByteBuffer buffer) {
+        long lastTime = buffer.getLong();
+        int count = buffer.getInt();
+        if (count <= 0 || count > buffer.remaining() / (TIER_HEADER_BYTES + SLOT_BYTES)) {
+            throw new IllegalArgumentException("invalid number of tiers: " + count);
+        }
+        Tier[] tiers = new Tier[count];
+        for (int t = 0; t < tiers.length; t++) {
+            tiers[t] = Tier.read(buffer);
+        }
+        TimeSeries result = new TimeSeries(tiers);
+        result.lastTime = lastTime;
+        return result;
+    }
+
+}
@@ -0,0 +1,6 @@
+/**
+ * In-memory time-series history of the monitored observables.
+ * 
+ * @author Holger Eichelberger
+ */
+package eu.qualimaster.monitoring.history;
@@ -3,20 +3,22 @@ package eu.qualimaster.monitoring.observations;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicLong;
 
 import eu.qualimaster.monitoring.events.IRemovalSelector;
 
 /**
  * Implements a compound observation, mapping all null keys to a single value. This class reacts on 
- * {@link IRemovalSelector} on the keys.
+ * {@link IRemovalSelector} on the keys. Values may be changed and read concurrently without locking, links
+ * are replaced as a whole (copy-on-write) when linking or unlinking.
  * 
  * @author Holger Eichelberger
  */
@@ -30,8 +32,8 @@ public abstract class AbstractCompoundObservation implements IObservation {
     private static final long serialVersionUID = -5216597956347539458L;
     private AtomicLong lastUpdate = new AtomicLong(-1);
 
-    private Map<Object, AtomicDouble> components = Collections.synchronizedMap(new HashMap<Object, AtomicDouble>());
-    private List<IObservation> links;
+    private ConcurrentMap<Object, AtomicDouble> components = new ConcurrentHashMap<Object, AtomicDouble>();
+    private volatile List<IObservation> links;
     
     /**
      * Creates an abstract compound observation.
@@ -57,9 +59,9 @@ public abstract class AbstractCompoundObservation implements IObservation {
             }
         }
         this.lastUpdate.set(source.lastUpdate.get());
-        if (null != source.links) {
-            this.links = new ArrayList<IObservation>(source.links.size());
-            this.links.addAll(source.links);
+        List<IObservation> sourceLinks = source.links;
+        if (null != sourceLinks) {
+            this.links = new ArrayList<IObservation>(sourceLinks);
         }
     }
     
@@ -89,6 +91,7 @@ public abstract class AbstractCompoundObservation implements IObservation {
      */
     private void changeValueImpl(double value, Object key, boolean inc) {
         boolean done = false;
+        List<IObservation> links = this.links;
         if (null != links) {
             for (int l = 0; l < links.size(); l++) {
                 IObservation obs = links.get(l);
@@ -106,9 +109,9 @@ public abstract class AbstractCompoundObservation implements IObservation {
             key = checkKey(key);
             AtomicDouble val = components.get(key);
             if (null == val) {
-                val = new AtomicDouble(value);
-                put(key, val);
-            } else {
+                val = put(key, new AtomicDouble(value));
+            }
+            if (null != val) {
                 if (inc) {
                     val.addAndGet(value);
                 } else {
@@ -120,12 +123,14 @@ public abstract class AbstractCompoundObservation implements IObservation {
     }
 
     /**
-     * Updates the actual value.
+     * Updates the actual value if there is none so far.
      * 
      * @param key the compound key
      * @param value the new value
+     * @return the existing value if another thread put a value for <code>key</code> before, <b>null</b> if 
+     *     <code>value</code> was put
      */
-    private void put(Object key, AtomicDouble value) {
+    private AtomicDouble put(Object key, AtomicDouble value) {
         if (key instanceof IRemovalSelector && components.containsKey(key)) {
             Iterator<Object> iter = components.keySet().iterator();
             while (iter.hasNext()) {
@@ -135,7 +140,7 @@ public abstract class AbstractCompoundObservation implements IObservation {
                 }
             }
         }
-        components.put(key, value);
+        return components.putIfAbsent(key, value);
     }
     
     /**
@@ -164,6 +169,7 @@ public abstract class AbstractCompoundObservation implements IObservation {
     @Override
     public boolean isValueSet() {
         boolean def = !components.isEmpty();
+        List<IObservation> links = this.links;
         if (!def && null != links) {
             for (int l = 0; !def && l < links.size(); l++) {
                 def = links.get(l).isValueSet();
@@ -179,6 +185,7 @@ public abstract class AbstractCompoundObservation implements IObservation {
      */
     protected Iterable<? extends AtomicDouble> values() {
         Iterable<? extends AtomicDouble> result;
+        List<IObservation> links = this.links;
         if (null == links) {
             result = components.values();
         } else {
@@ -203,6 +210,7 @@ public abstract class AbstractCompoundObservation implements IObservation {
         String result = "{";
         Iterator<Map.Entry<Object, AtomicDouble>> iter = components.entrySet().iterator(); 
         Set<Object> done = new HashSet<Object>();
+        List<IObservation> links = this.links;
         while (iter.hasNext()) {
             Map.Entry<Object, AtomicDouble> ent = iter.next();
             Object key = ent.getKey();
@@ -264,6 +272,7 @@ public abstract class AbstractCompoundObservation implements IObservation {
     @Override
     public AtomicDouble getValue(Object key) {
         AtomicDouble result = components.get(checkKey(key));
+        List<IObservation> links = this.links;
         if (null == result && null != links) {
             for (int l = 0; null == result && l < links.size(); l++) {
                 result = links.get(l).getValue(key);
@@ -280,6 +289,7 @@ public abstract class AbstractCompoundObservation implements IObservation {
     @Override
     public int getComponentCount() {
         int result = components.size();
+        List<IObservation> links = this.links;
         if (null != links) {
             for (int l = 0; l < links.size(); l++) {
                 result = links.get(l).getComponentCount();
@@ -294,6 +304,7 @@ public abstract class AbstractCompoundObservation implements IObservation {
             for (Object key : keys) {
                 components.remove(key);
             }
+            List<IObservation> links = this.links;
             if (null != links) {
                 for (int l = 0; l < links.size(); l++) {
                     links.get(l).clearComponents(keys);
@@ -305,6 +316,7 @@ public abstract class AbstractCompoundObservation implements IObservation {
     @Override
     public Set<Object> getComponentKeys() {
         Set<Object> result;
+        List<IObservation> links = this.links;
         if (null == links) {
             result = components.keySet();
         } else {
@@ -318,24 +330,23 @@ public abstract class AbstractCompoundObservation implements IObservation {
     }
 
     @Override
-    public void link(IObservation observation) {
+    public synchronized void link(IObservation observation) {
         if (null != observation && this != observation) {
-            if (null == links) {
-                links = new ArrayList<IObservation>();
-            }
-            if (!links.contains(observation)) {
-                links.add(observation);
+            if (null == links || !links.contains(observation)) {
+                List<IObservation> tmp = null == links 
+                    ? new ArrayList<IObservation>() : new ArrayList<IObservation>(links);
+                tmp.add(observation);
+                links = tmp;
             }
         }
     }
 
     @Override
-    public void unlink(IObservation observation) {
-        if (null != links && this != observation) { 
-            links.remove(observation);
-            if (links.isEmpty()) {
-                links = null;
-            }
+    public synchronized void unlink(IObservation observation) {
+        if (null != links && this != observation && links.contains(observation)) { 
+            List<IObservation> tmp = new ArrayList<IObservation>(links);
+            tmp.remove(observation);
+            links = tmp.isEmpty() ? null : tmp;
         }
     }
 
@@ -76,8 +76,14 @@ public class DelegatingStatisticsObservation extends AbstractDelegatingObservati
         double value = getDelegate().getValue(); 
         sum.addAndGet(value);
         count.incrementAndGet();
-        min.set(Math.min(min.get(), value));
-        max.set(Math.max(max.get(), value));
+        double cur = min.get();
+        while (value < cur && !min.compareAndSet(cur, value)) {
+            cur = min.get();
+        }
+        cur = max.get();
+        while (value > cur && !max.compareAndSet(cur, value)) {
+            cur = max.get();
+        }
     }
 
     @Override
@@ -26,7 +26,7 @@ public class DelegatingTimeFramedObservation extends AbstractDelegatingObservati
     private static final long serialVersionUID = 5671311309699530270L;
     
     private double lastValue = 0;
-    private double result = 0;
+    private volatile double result = 0;
     private long timeFrame;
     private long firstUpdate = -1;
 
@@ -55,7 +55,7 @@ public class DelegatingTimeFramedObservation extends AbstractDelegatingObservati
     }
 
     @Override
-    public void clear() {
+    public synchronized void clear() {
         lastValue = 0; 
         result = 0;
         super.clear();
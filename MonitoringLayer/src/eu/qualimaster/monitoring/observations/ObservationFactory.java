@@ -124,6 +124,18 @@ public class ObservationFactory {
         }
     };
 
+    /**
+     * Creates a maximizing compound observation, e.g., for percentiles of parallel tasks where the maximum is an
+     * upper bound for the percentile of the whole.
+     */
+    public static final IObservationCreator CREATOR_MAX_COMPOUND = new IObservationCreator() {
+        
+        @Override
+        public IObservation create(IObservable observable, IPartType type, IObservationProvider observationProvider) {
+            return new AggregatingCompoundObservation(IAggregationFunction.MAX);
+        }
+    };
+
     /**
      * Creates a compound observation with aggregation for the given observable via 
      * {@link ObservationAggregatorFactory}.
@@ -400,9 +412,24 @@ public class ObservationFactory {
      */
     static { // observation types are just for now
         registerCreator(TimeBehavior.ENACTMENT_DELAY, null, CREATOR_SINGLE_STATISTICS);
+        registerCreator(TimeBehavior.ENACTMENT_COORDINATION_TIME, null, CREATOR_SINGLE_STATISTICS);
+        registerCreator(TimeBehavior.ENACTMENT_COORDINATION_TOTAL_TIME, null, CREATOR_SINGLE_STATISTICS);
+        registerCreator(TimeBehavior.ADAPTATION_LATENCY, null, CREATOR_SINGLE_STATISTICS);
         registerCreator(TimeBehavior.THROUGHPUT_ITEMS, null, CREATOR_COMPOUND_TOPOLOGY_SINK_SUM);
         registerCreator(TimeBehavior.THROUGHPUT_VOLUME, null, CREATOR_COMPOUND_TOPOLOGY_SINK_SUM);
         registerCreator(TimeBehavior.LATENCY, null, CREATOR_TOPOLOGY_COMPOUND);
+        registerCreator(TimeBehavior.LATENCY_P50, null, CREATOR_MAX_COMPOUND);
+        registerCreator(TimeBehavior.LATENCY_P95, null, CREATOR_MAX_COMPOUND);
+        registerCreator(TimeBehavior.LATENCY_P99, null, CREATOR_MAX_COMPOUND);
+        registerCreator(TimeBehavior.LATENCY_MAX, null, CREATOR_MAX_COMPOUND);
+        registerCreator(TimeBehavior.SIGNAL_LATENCY_P50, null, CREATOR_MAX_COMPOUND);
+        registerCreator(TimeBehavior.SIGNAL_LATENCY_P95, null, CREATOR_MAX_COMPOUND);
+        registerCreator(TimeBehavior.SIGNAL_LATENCY_P99, null, CREATOR_MAX_COMPOUND);
+        registerCreator(TimeBehavior.SIGNAL_LATENCY_MAX, null, CREATOR_MAX_COMPOUND);
+        registerCreator(TimeBehavior.MONITORING_FETCH_TIME, null, CREATOR_MAX_COMPOUND);
+        registerCreator(TimeBehavior.MONITORING_AGGREGATION_TIME, null, CREATOR_MAX_COMPOUND);
+        registerCreator(TimeBehavior.MONITORING_POLL_TIME, null, CREATOR_MAX_COMPOUND);
+        registerCreator(TimeBehavior.VOLUME_HISTORY_FLUSH_TIME, null, CREATOR_SINGLE_STATISTICS);
 
         registerCreator(FunctionalSuitability.ACCURACY_CONFIDENCE, null, CREATOR_SINGLE);
         registerCreator(FunctionalSuitability.ACCURACY_ERROR_RATE, null, CREATOR_SINGLE);
@@ -427,6 +454,12 @@ public class ObservationFactory {
         registerCreator(ResourceUsage.TASKS, null, CREATOR_SUM_COMPOUND);
         registerCreator(ResourceUsage.AVAILABLE, null, CREATOR_SINGLE);
         registerCreator(ResourceUsage.HOSTS, null, HostsObservation.CREATOR);
+        registerCreator(ResourceUsage.ADAPTATION_QUEUE_DEPTH, null, CREATOR_SINGLE);
+        registerCreator(ResourceUsage.ADAPTATION_COALESCING_RATIO, null, CREATOR_SINGLE);
+        registerCreator(ResourceUsage.REASONING_SKIPPED, null, CREATOR_SINGLE);
+        registerCreator(ResourceUsage.REASONING_PERFORMED, null, CREATOR_SINGLE);
+        registerCreator(ResourceUsage.VOLUME_HISTORY_QUEUE_DEPTH, null, CREATOR_SINGLE);
+        registerCreator(ResourceUsage.VOLUME_HISTORY_DROPPED, null, CREATOR_SINGLE);
         
         registerCreator(Scalability.VARIETY, null, CREATOR_COMPOUND_STATISTICS_1S_ABS);
         registerCreator(Scalability.VELOCITY, null, CREATOR_COMPOUND_STATISTICS_1S_ABS);
@@ -450,10 +483,14 @@ public class ObservationFactory {
             FunctionalSuitability.ACCURACY_CONFIDENCE, FunctionalSuitability.ACCURACY_ERROR_RATE, 
             ResourceUsage.CAPACITY, ResourceUsage.EXECUTORS, ResourceUsage.TASKS, ResourceUsage.HOSTS,
             Scalability.VOLUME, Scalability.VELOCITY, Scalability.VOLATILITY, Scalability.VARIETY, Scalability.ITEMS,
-            AnalysisObservables.IS_VALID, AnalysisObservables.IS_ENACTING);
+            AnalysisObservables.IS_VALID, AnalysisObservables.IS_ENACTING, 
+            TimeBehavior.ENACTMENT_COORDINATION_TOTAL_TIME);
         registerPart(PartType.PIPELINE_NODE, 
-            TimeBehavior.LATENCY, TimeBehavior.ENACTMENT_DELAY, TimeBehavior.THROUGHPUT_ITEMS, 
-                TimeBehavior.THROUGHPUT_VOLUME, 
+            TimeBehavior.LATENCY, TimeBehavior.ENACTMENT_DELAY, TimeBehavior.ENACTMENT_COORDINATION_TIME, 
+                TimeBehavior.THROUGHPUT_ITEMS, TimeBehavior.THROUGHPUT_VOLUME, TimeBehavior.LATENCY_P50, 
+                TimeBehavior.LATENCY_P95, TimeBehavior.LATENCY_P99, TimeBehavior.LATENCY_MAX,
+                TimeBehavior.SIGNAL_LATENCY_P50, TimeBehavior.SIGNAL_LATENCY_P95, TimeBehavior.SIGNAL_LATENCY_P99,
+                TimeBehavior.SIGNAL_LATENCY_MAX,
             ResourceUsage.MEMORY_USE, ResourceUsage.CAPACITY, ResourceUsage.EXECUTORS, ResourceUsage.TASKS, 
                 ResourceUsage.HOSTS,
             FunctionalSuitability.ACCURACY_CONFIDENCE, FunctionalSuitability.COMPLETENESS,
@@ -462,7 +499,9 @@ public class ObservationFactory {
             AnalysisObservables.IS_VALID, AnalysisObservables.IS_ENACTING);
         registerPart(PartType.ALGORITHM, 
             TimeBehavior.LATENCY, TimeBehavior.THROUGHPUT_ITEMS, 
-                TimeBehavior.THROUGHPUT_VOLUME, 
+                TimeBehavior.THROUGHPUT_VOLUME, TimeBehavior.LATENCY_P50, TimeBehavior.LATENCY_P95, 
+                TimeBehavior.LATENCY_P99, TimeBehavior.LATENCY_MAX, TimeBehavior.SIGNAL_LATENCY_P50, 
+                TimeBehavior.SIGNAL_LATENCY_P95, TimeBehavior.SIGNAL_LATENCY_P99, TimeBehavior.SIGNAL_LATENCY_MAX,
             ResourceUsage.MEMORY_USE,
             FunctionalSuitability.ACCURACY_ERROR_RATE, FunctionalSuitability.ACCURACY_CONFIDENCE, 
                 FunctionalSuitability.COMPLETENESS, FunctionalSuitability.BELIEVABILITY, 
@@ -479,7 +518,13 @@ public class ObservationFactory {
             AnalysisObservables.IS_VALID, AnalysisObservables.IS_ENACTING);
         registerPart(PartType.PLATFORM, 
             ResourceUsage.AVAILABLE_MACHINES, ResourceUsage.AVAILABLE_DFES, 
-                ResourceUsage.USED_MACHINES, ResourceUsage.USED_DFES, ResourceUsage.BANDWIDTH);
+                ResourceUsage.USED_MACHINES, ResourceUsage.USED_DFES, ResourceUsage.BANDWIDTH,
+                ResourceUsage.ADAPTATION_QUEUE_DEPTH, ResourceUsage.ADAPTATION_COALESCING_RATIO,
+                ResourceUsage.REASONING_SKIPPED, ResourceUsage.REASONING_PERFORMED, 
+                ResourceUsage.VOLUME_HISTORY_QUEUE_DEPTH, ResourceUsage.VOLUME_HISTORY_DROPPED,
+            TimeBehavior.MONITORING_FETCH_TIME, TimeBehavior.MONITORING_AGGREGATION_TIME, 
+                TimeBehavior.MONITORING_POLL_TIME, TimeBehavior.ADAPTATION_LATENCY, 
+                TimeBehavior.VOLUME_HISTORY_FLUSH_TIME);
         registerPart(PartType.MACHINE, 
             ResourceUsage.BANDWIDTH, ResourceUsage.AVAILABLE, ResourceUsage.AVAILABLE_CPUS, ResourceUsage.LOAD, 
                 ResourceUsage.AVAILABLE_FREQUENCY, ResourceUsage.AVAILABLE_MEMORY, ResourceUsage.MEMORY_USE);
@@ -262,6 +262,7 @@ public class AlgorithmProfilePredictionManager {
     */
     public static void stop() {
         Pipelines.releaseAllPipelines();
+        ProfileStore.closeAll();
     }
 
     /**
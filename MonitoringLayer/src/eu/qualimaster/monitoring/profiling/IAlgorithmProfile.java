@@ -59,11 +59,19 @@ public interface IAlgorithmProfile {
     double predict(IObservable observable);
 
     /**
-     * Returns the folder where to store the profile of <code>observable</code>.
+     * Returns the profile store file where the predictors of this profile are stored.
+     * 
+     * @return the profile store file considering the base path of the pipeline element
+     * @see ProfileStore
+     */
+    public File getStoreFile();
+
+    /**
+     * Returns the identifier of the predictor for <code>observable</code> within the profile store.
      * 
      * @param observable the observable 
-     * @return the complete folder considering the base path of the {@link #element}
+     * @return the identifier
      */
-    public File getFolder(IObservable observable);
+    public String getIdentifier(IObservable observable);
 
 }
@@ -19,7 +19,7 @@ import java.io.Serializable;
 import java.util.Map;
 
 import eu.qualimaster.monitoring.profiling.predictors.IAlgorithmProfilePredictor;
-import eu.qualimaster.monitoring.profiling.predictors.Kalman;
+import eu.qualimaster.monitoring.profiling.predictors.FastKalman;
 
 /**
  * Creates profiles and related predictors for the actual Kalman-based approach.
@@ -30,7 +30,7 @@ public class KalmanProfileCreator implements IAlgorithmProfileCreator {
 
     @Override
     public IAlgorithmProfilePredictor createPredictor() {
-        return new Kalman();
+        return new FastKalman();
     }
 
     @Override
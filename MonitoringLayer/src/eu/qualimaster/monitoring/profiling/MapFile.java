@@ -23,7 +23,9 @@ import java.util.Properties;
 import java.util.Set;
 
 /**
- * Represents the map file for a certain parameter point.
+ * Represents the map file for a certain parameter point. This is the legacy storage layout (one folder per profile 
+ * key, one file per predictor), which is superseded by {@link ProfileStore} and just read for migration
+ * ({@link ProfileStoreMigration}).
  * 
  * @author Holger Eichelberger
  */
@@ -0,0 +1,610 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.monitoring.profiling;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import eu.qualimaster.monitoring.MonitoringConfiguration;
+import eu.qualimaster.monitoring.profiling.predictors.IAlgorithmProfilePredictor;
+
+/**
+ * Stores the predictors of all algorithm profiles of a profile path in a single append-only file. The file consists
+ * of a header and a sequence of records (key, predictor data). Storing a predictor appends a new record, the most
+ * recent record of a key is valid. On opening, the records are scanned into an in-memory hash index (keys only),
+ * predictors are read lazily from the memory-mapped file when they are requested. Records appended after mapping
+ * are read through the file channel, the file is mapped again only if it doubled since the last mapping. Modified
+ * predictors are written in the background every {@link MonitoringConfiguration#getProfileCheckpointInterval()} ms.
+ * If outdated records dominate the file, the file is compacted during a checkpoint. Store files are limited to
+ * {@link #MAX_SIZE 2 GB} due to memory mapping, i.e., storing fails if the file cannot take a record even after
+ * compaction.
+ *
+ * @author Holger Eichelberger
+ */
+public class ProfileStore {
+
+    /**
+     * The suffix of profile store files.
+     */
+    public static final String FILE_SUFFIX = ".qmps";
+
+    /**
+     * The maximum size of a store file in bytes.
+     */
+    public static final long MAX_SIZE = Integer.MAX_VALUE;
+
+    private static final Logger LOGGER = LogManager.getLogger(ProfileStore.class);
+    private static final int MAGIC = 0x514D5053; // QMPS
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+    private static final long COMPACTION_MIN_GARBAGE = 1024 * 1024;
+    private static final Map<File, ProfileStore> STORES = new HashMap<File, ProfileStore>();
+    private static Timer timer;
+
+    private File file;
+    private Map<String, Entry> index = new HashMap<String, Entry>();
+    private Map<String, IAlgorithmProfilePredictor> modified = new LinkedHashMap<>();
+    private RandomAccessFile raf;
+    private FileChannel channel;
+    private MappedByteBuffer mapped;
+    private long size;
+    private long garbage;
+
+    /**
+     * Locates a predictor record in the store file.
+     *
+     * @author Holger Eichelberger
+     */
+    private static class Entry {
+
+        private long recordPos;
+        private int recordSize;
+        private long dataPos;
+        private int dataSize;
+
+        /**
+         * Creates an entry.
+         *
+         * @param recordPos the position of the record
+         * @param recordSize the size of the record
+         * @param dataSize the size of the predictor data at the end of the record
+         */
+        private Entry(long recordPos, int recordSize, int dataSize) {
+            this.recordPos = recordPos;
+            this.recordSize = recordSize;
+            this.dataSize = dataSize;
+            this.dataPos = recordPos + recordSize - dataSize;
+        }
+
+    }
+
+    /**
+     * Creates a profile store and opens its file.
+     *
+     * @param file the file
+     * @throws IOException in case that the file cannot be opened or is not a profile store
+     */
+    private ProfileStore(File file) throws IOException {
+        this.file = file;
+        open();
+    }
+
+    /**
+     * Returns the profile store file for a profile path and a profile creator.
+     *
+     * @param path the profile path
+     * @param creator the profile creator
+     * @return the file
+     */
+    public static File getFile(String path, IAlgorithmProfileCreator creator) {
+        return new File(path, creator.getStorageSubFolder() + FILE_SUFFIX);
+    }
+
+    /**
+     * Obtains the profile store for <code>file</code>, i.e., opens the store if it is not already open. Starts the
+     * background checkpointing if required.
+     *
+     * @param file the store file
+     * @return the store
+     * @throws IOException in case that the file cannot be opened or is not a profile store
+     */
+    public static ProfileStore obtain(File file) throws IOException {
+        File key = file.getAbsoluteFile();
+        ProfileStore result;
+        synchronized (STORES) {
+            result = STORES.get(key);
+            if (null == result) {
+                result = new ProfileStore(key);
+                STORES.put(key, result);
+            }
+            int interval = MonitoringConfiguration.getProfileCheckpointInterval();
+            if (null == timer && interval > 0) {
+                timer = new Timer("Profile checkpointing", true);
+                timer.schedule(new TimerTask() {
+
+                    @Override
+                    public void run() {
+                        checkpointAll();
+                    }
+
+                }, interval, interval);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Writes the modified predictors of all open stores.
+     */
+    public static void checkpointAll() {
+        for (ProfileStore store : getStores()) {
+            try {
+                store.checkpoint();
+            } catch (IOException e) {
+                LOGGER.error("While checkpointing profiles in " + store.file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Writes the modified predictors of all open stores, closes them and stops the background checkpointing.
+     */
+    public static void closeAll() {
+        synchronized (STORES) {
+            if (null != timer) {
+                timer.cancel();
+                timer = null;
+            }
+        }
+        for (ProfileStore store : getStores()) {
+            store.close();
+        }
+    }
+
+    /**
+     * Returns a copy of the open stores.
+     *
+     * @return the open stores
+     */
+    private static List<ProfileStore> getStores() {
+        synchronized (STORES) {
+            return new ArrayList<ProfileStore>(STORES.values());
+        }
+    }
+
+    /**
+     * Opens the store file and builds the index.
+     *
+     * @throws IOException in case that the file cannot be opened or is not a profile store
+     */
+    private void open() throws IOException {
+        File parent = file.getParentFile();
+        if (null != parent && !parent.exists()) {
+            parent.mkdirs();
+        }
+        raf = new RandomAccessFile(file, "rw");
+        channel = raf.getChannel();
+        size = channel.size();
+        try {
+            if (0 == size) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC);
+                header.putInt(VERSION);
+                header.flip();
+                write(header, 0);
+                size = HEADER_SIZE;
+            } else {
+                readIndex();
+            }
+        } catch (IOException e) {
+            closeFile();
+            throw e;
+        }
+    }
+
+    /**
+     * Scans the records of the store file into {@link #index}. Cuts off an incomplete last record, e.g., if the
+     * infrastructure stopped while writing.
+     *
+     * @throws IOException in case that the file cannot be read or is not a profile store
+     */
+    private void readIndex() throws IOException {
+        if (size > MAX_SIZE) {
+            throw new IOException(file + " exceeds the maximum profile store size");
+        }
+        ByteBuffer buf = map();
+        if (size < HEADER_SIZE || buf.getInt() != MAGIC) {
+            throw new IOException(file + " is not a profile store");
+        }
+        int version = buf.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported profile store version " + version + " in " + file);
+        }
+        boolean valid = true;
+        while (valid && buf.remaining() > 0) {
+            int pos = buf.position();
+            valid = buf.remaining() >= 4;
+            int keySize = valid ? buf.getInt() : -1;
+            valid = keySize >= 0 && buf.remaining() >= keySize + 4L;
+            if (valid) {
+                byte[] key = new byte[keySize];
+                buf.get(key);
+                int dataSize = buf.getInt();
+                valid = dataSize >= 0 && buf.remaining() >= dataSize;
+                if (valid) {
+                    buf.position(buf.position() + dataSize);
+                    putIndex(new String(key, CHARSET), new Entry(pos, buf.position() - pos, dataSize));
+                }
+            }
+            if (!valid) {
+                LOGGER.warn("Cutting off incomplete profile record in " + file + " at " + pos);
+                mapped = null;
+                channel.truncate(pos);
+                size = pos;
+            }
+        }
+    }
+
+    /**
+     * Updates the index and accounts for outdated records.
+     *
+     * @param key the key
+     * @param entry the new entry
+     */
+    private void putIndex(String key, Entry entry) {
+        Entry old = index.put(key, entry);
+        if (null != old) {
+            garbage += old.recordSize;
+        }
+    }
+
+    /**
+     * Maps the complete store file into memory.
+     *
+     * @return the mapped file (positioned at the beginning)
+     * @throws IOException in case that mapping fails
+     */
+    private ByteBuffer map() throws IOException {
+        mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        return mapped.duplicate();
+    }
+
+    /**
+     * Reads the predictor data of an entry. Reads from the mapped file if it covers the entry, else from the file
+     * channel. Maps the file again if there is no mapping or the file doubled since the last mapping.
+     *
+     * @param entry the entry
+     * @return the predictor data
+     * @throws IOException in case that reading fails
+     */
+    private byte[] read(Entry entry) throws IOException {
+        byte[] result = new byte[entry.dataSize];
+        long end = entry.dataPos + entry.dataSize;
+        if (null == mapped || (end > mapped.capacity() && size > 2L * mapped.capacity())) {
+            map();
+        }
+        if (end <= mapped.capacity()) {
+            ByteBuffer buf = mapped.duplicate();
+            buf.position((int) entry.dataPos);
+            buf.get(result);
+        } else {
+            ByteBuffer buf = ByteBuffer.wrap(result);
+            long pos = entry.dataPos;
+            while (buf.hasRemaining()) {
+                int count = channel.read(buf, pos);
+                if (count < 0) {
+                    throw new IOException("Unexpected end of profile store " + file);
+                }
+                pos += count;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Writes the complete buffer to the store file.
+     *
+     * @param buf the buffer
+     * @param pos the file position
+     * @throws IOException in case that writing fails
+     */
+    private void write(ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining()) {
+            pos += channel.write(buf, pos);
+        }
+    }
+
+    /**
+     * Returns the store file.
+     *
+     * @return the file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns whether this store contains a predictor for <code>key</code>.
+     *
+     * @param key the profile key
+     * @return <code>true</code> if there is a predictor, <code>false</code> else
+     */
+    public synchronized boolean contains(String key) {
+        return index.containsKey(key) || modified.containsKey(key);
+    }
+
+    /**
+     * Returns the keys of all predictors in this store.
+     *
+     * @return the keys
+     */
+    public synchronized Set<String> keys() {
+        Set<String> result = new HashSet<String>(index.keySet());
+        result.addAll(modified.keySet());
+        return result;
+    }
+
+    /**
+     * Loads a predictor.
+     *
+     * @param key the profile key
+     * @param predictor the predictor to load into
+     * @return <code>true</code> if the predictor was loaded, <code>false</code> if this store does not contain a
+     *     predictor for <code>key</code>
+     * @throws IOException in case that reading the predictor fails
+     */
+    public boolean load(String key, IAlgorithmProfilePredictor predictor) throws IOException {
+        byte[] data = getData(key);
+        if (null != data) {
+            predictor.load(new ByteArrayInputStream(data), key);
+        }
+        return null != data;
+    }
+
+    /**
+     * Returns the persisted data of a predictor.
+     *
+     * @param key the profile key
+     * @return the data, <b>null</b> if there is no predictor for <code>key</code>
+     * @throws IOException in case that reading the data fails
+     */
+    private synchronized byte[] getData(String key) throws IOException {
+        byte[] result;
+        IAlgorithmProfilePredictor predictor = modified.get(key);
+        if (null != predictor) {
+            result = toData(key, predictor);
+        } else {
+            Entry entry = index.get(key);
+            if (null != entry) {
+                result = read(entry);
+            } else {
+                result = null;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Turns a predictor into data to be stored.
+     *
+     * @param key the profile key
+     * @param predictor the predictor
+     * @return the data
+     * @throws IOException in case that the predictor cannot be written
+     */
+    private static byte[] toData(String key, IAlgorithmProfilePredictor predictor) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        synchronized (predictor) {
+            predictor.store(out, key);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Marks a predictor as modified so that it is written with the next checkpoint.
+     *
+     * @param key the profile key
+     * @param predictor the predictor
+     */
+    public synchronized void modified(String key, IAlgorithmProfilePredictor predictor) {
+        modified.put(key, predictor);
+    }
+
+    /**
+     * Writes a predictor immediately.
+     *
+     * @param key the profile key
+     * @param predictor the predictor
+     * @throws IOException in case that writing fails
+     */
+    public void store(String key, IAlgorithmProfilePredictor predictor) throws IOException {
+        store(key, toData(key, predictor));
+    }
+
+    /**
+     * Writes the persisted data of a predictor immediately.
+     *
+     * @param key the profile key
+     * @param data the data as written by {@link IAlgorithmProfilePredictor#store(java.io.OutputStream, String)}
+     * @throws IOException in case that writing fails
+     */
+    public synchronized void store(String key, byte[] data) throws IOException {
+        if (null == channel) {
+            throw new IOException("Profile store " + file + " is closed");
+        }
+        byte[] keyData = key.getBytes(CHARSET);
+        int recordSize = 4 + keyData.length + 4 + data.length;
+        if (size + recordSize > MAX_SIZE && garbage > 0) {
+            compact();
+        }
+        if (size + recordSize > MAX_SIZE) {
+            throw new IOException("Cannot store " + key + " as profile store " + file
+                + " would exceed its maximum size");
+        }
+        ByteBuffer buf = ByteBuffer.allocate(recordSize);
+        buf.putInt(keyData.length);
+        buf.put(keyData);
+        buf.putInt(data.length);
+        buf.put(data);
+        buf.flip();
+        write(buf, size);
+        putIndex(key, new Entry(size, buf.limit(), data.length));
+        size += buf.limit();
+        modified.remove(key);
+    }
+
+    /**
+     * Writes all modified predictors, forces them to disk and compacts the store file if outdated records
+     * dominate.
+     *
+     * @throws IOException in case that writing fails
+     */
+    public synchronized void checkpoint() throws IOException {
+        if (null != channel) {
+            List<Map.Entry<String, IAlgorithmProfilePredictor>> tmp
+                = new ArrayList<Map.Entry<String, IAlgorithmProfilePredictor>>(modified.entrySet());
+            for (Map.Entry<String, IAlgorithmProfilePredictor> ent : tmp) {
+                store(ent.getKey(), ent.getValue());
+            }
+            channel.force(false);
+            if (garbage >= COMPACTION_MIN_GARBAGE && garbage > size / 2) {
+                compact();
+            }
+        }
+    }
+
+    /**
+     * Rewrites the store file so that it contains only the most recent record per key. If replacing the store
+     * file fails, the store file is opened again, i.e., the store remains usable if the original file is intact.
+     *
+     * @throws IOException in case that writing fails
+     */
+    public synchronized void compact() throws IOException {
+        if (null != channel) {
+            File tmpFile = new File(file.getParentFile(), file.getName() + ".tmp");
+            try (RandomAccessFile tmp = new RandomAccessFile(tmpFile, "rw")) {
+                FileChannel tmpChannel = tmp.getChannel();
+                tmpChannel.truncate(0);
+                transfer(0, HEADER_SIZE, tmpChannel);
+                for (Entry entry : index.values()) {
+                    transfer(entry.recordPos, entry.recordSize, tmpChannel);
+                }
+                tmpChannel.force(false);
+            } catch (IOException e) {
+                tmpFile.delete();
+                throw e;
+            }
+            closeFile();
+            index.clear();
+            garbage = 0;
+            boolean opened = false;
+            try {
+                Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                open(); // rebuilds the index
+                opened = true;
+            } finally {
+                if (!opened) {
+                    tmpFile.delete();
+                    index.clear();
+                    garbage = 0;
+                    try {
+                        open();
+                    } catch (IOException e) {
+                        LOGGER.error("While reopening profile store " + file + " after failed compaction: "
+                            + e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Transfers a region of the store file to the end of <code>target</code>.
+     *
+     * @param pos the start position in the store file
+     * @param count the number of bytes to transfer
+     * @param target the target channel
+     * @throws IOException in case that transferring fails
+     */
+    private void transfer(long pos, long count, FileChannel target) throws IOException {
+        long done = 0;
+        while (done < count) {
+            long transferred = channel.transferTo(pos + done, count - done, target);
+            if (transferred <= 0) {
+                throw new IOException("Unexpected end of profile store " + file);
+            }
+            done += transferred;
+        }
+    }
+
+    /**
+     * Writes the modified predictors and closes this store. Further uses require {@link #obtain(File)}.
+     */
+    public void close() {
+        synchronized (STORES) {
+            STORES.remove(file);
+        }
+        synchronized (this) {
+            try {
+                checkpoint();
+            } catch (IOException e) {
+                LOGGER.error("While closing profile store " + file + ": " + e.getMessage());
+            }
+            closeFile();
+            index.clear();
+            modified.clear();
+        }
+    }
+
+    /**
+     * Closes the store file.
+     */
+    private void closeFile() {
+        mapped = null;
+        channel = null;
+        if (null != raf) {
+            try {
+                raf.close();
+            } catch (IOException e) {
+                LOGGER.error("While closing profile store " + file + ": " + e.getMessage());
+            }
+            raf = null;
+        }
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.monitoring.profiling;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+
+/**
+ * Migrates algorithm profiles from the legacy layout (a folder per profile key with a {@link MapFile} and a file per
+ * predictor) into a {@link ProfileStore}. The legacy files are not modified.
+ *
+ * @author Holger Eichelberger
+ */
+public class ProfileStoreMigration {
+
+    /**
+     * Prevents external creation.
+     */
+    private ProfileStoreMigration() {
+    }
+
+    /**
+     * Migrates all legacy profiles within a profile path for the given profile creator into the profile store of
+     * that path (see {@link ProfileStore#getFile(String, IAlgorithmProfileCreator)}).
+     *
+     * @param path the profile path
+     * @param creator the profile creator determining the storage sub-folders to migrate
+     * @return the number of migrated predictors
+     * @throws IOException in case that reading the legacy profiles or writing the store fails
+     */
+    public static int migrate(String path, IAlgorithmProfileCreator creator) throws IOException {
+        ProfileStore store = ProfileStore.obtain(ProfileStore.getFile(path, creator));
+        int count;
+        try {
+            count = migrate(new File(path), creator.getStorageSubFolder(), store);
+        } finally {
+            store.close();
+        }
+        return count;
+    }
+
+    /**
+     * Migrates the legacy profiles in <code>folder</code> and its sub-folders.
+     *
+     * @param folder the folder to migrate
+     * @param subFolder the storage sub-folder of the profile creator
+     * @param store the target store
+     * @return the number of migrated predictors
+     * @throws IOException in case that reading the legacy profiles or writing the store fails
+     */
+    private static int migrate(File folder, String subFolder, ProfileStore store) throws IOException {
+        int count = 0;
+        File[] files = folder.listFiles();
+        if (null != files) {
+            for (File f : files) {
+                if (f.isDirectory()) {
+                    if (f.getName().equals(subFolder)) {
+                        count += migrateMapFile(f, store);
+                    }
+                    count += migrate(f, subFolder, store);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Migrates the predictors registered in the map file of <code>folder</code>.
+     *
+     * @param folder the folder containing the map file
+     * @param store the target store
+     * @return the number of migrated predictors
+     * @throws IOException in case that reading the legacy profiles or writing the store fails
+     */
+    private static int migrateMapFile(File folder, ProfileStore store) throws IOException {
+        int count = 0;
+        MapFile mapFile = new MapFile(folder);
+        mapFile.load();
+        for (String key : mapFile.keys()) {
+            File file = mapFile.getFile(key);
+            if (null != file && file.exists()) {
+                Properties data = new Properties();
+                Utils.load(file, data);
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                data.store(out, null);
+                store.store(key, out.toByteArray());
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Migrates legacy profiles from the command line.
+     *
+     * @param args the profile path to migrate (Kalman profiles)
+     * @throws IOException in case that reading the legacy profiles or writing the store fails
+     */
+    public static void main(String[] args) throws IOException {
+        if (0 == args.length) {
+            System.out.println("Usage: ProfileStoreMigration <profile path>");
+        } else {
+            IAlgorithmProfileCreator creator = new KalmanProfileCreator();
+            int count = migrate(args[0], creator);
+            System.out.println("Migrated " + count + " predictors into "
+                + ProfileStore.getFile(args[0], creator));
+        }
+    }
+
+}
@@ -39,6 +39,7 @@ class SeparateObservableAlgorithmProfile implements IAlgorithmProfile {
 
     private static final Logger LOGGER = LogManager.getLogger(AlgorithmProfilePredictionManager.class);
     private Map<IObservable, IAlgorithmProfilePredictor> predictors = new HashMap<>();
+    private Map<IObservable, String> identifiers = new HashMap<>();
     
     private PipelineElement element;
     private Map<Object, Serializable> key;
@@ -95,92 +96,51 @@ class SeparateObservableAlgorithmProfile implements IAlgorithmProfile {
         return null == tmp ? "" : tmp.toString();
     }
     
-    @Override
-    public void store() {
-        for (Map.Entry<IObservable, IAlgorithmProfilePredictor> ent : predictors.entrySet()) {
-            try {
-                // this is not really efficient
-                store(ent.getValue(), element.getPath(), generateKey(ent.getKey()));
-            } catch (IOException e) {
-                LOGGER.error("While writing profile: " + e.getMessage());
-            }
-        }
-    }
-    
-    @Override
-    public File getFolder(IObservable observable) {
-        return getFolder(element.getPath(), generateKey(observable));
-    }
-    
     /**
-     * Returns the folder for a predictor.
+     * Returns the identifier of the predictor for <code>observable</code>.
      * 
-     * @param path the base path
-     * @param identifier the profile identifier
-     * @return the folder
+     * @param observable the observable to be predicted
+     * @return the identifier
      */
-    private File getFolder(String path, String identifier) {
-        File folder = new File(path);
-        // Get subfolder from nesting information 
-        String[] nesting = identifier.split(";")[0].split(":");
-        for (String string : nesting) {
-            folder = new File(folder, string);
+    private String getKey(IObservable observable) {
+        String result = identifiers.get(observable);
+        if (null == result) {
+            result = generateKey(observable);
+            identifiers.put(observable, result);
         }
-        // set kind of the predictor as subfolder
-        String subfolder = element.getProfileCreator().getStorageSubFolder();
-        return new File(folder, subfolder);
+        return result;
     }
-    
+
     /**
-     * Stores a given predictor.
+     * Returns the profile store responsible for this profile.
      * 
-     * @param predictor the predictor
-     * @param path the target path for persisting the predictor instances
-     * @param identifier the predictor identifier
-     * @throws IOException if saving the predictor fails
+     * @return the profile store
+     * @throws IOException in case that the profile store cannot be opened
      */
-    void store(IAlgorithmProfilePredictor predictor, String path, String identifier) throws IOException {
-        File folder = getFolder(path, identifier);
-        
-        // Create folders, if needed
-        if (!folder.exists()) {
-            folder.mkdirs();
-        }
-        // load map-file
-        MapFile mapFile = new MapFile(folder);
-        mapFile.load();
-        
-        boolean newEntry = false;
-        int id = mapFile.get(identifier);
-        if (id < 0) {
-            id = mapFile.size() + 1;
-            newEntry = true;
+    private ProfileStore getStore() throws IOException {
+        return ProfileStore.obtain(getStoreFile());
+    }
+
+    @Override
+    public void store() {
+        try {
+            ProfileStore store = getStore();
+            for (Map.Entry<IObservable, IAlgorithmProfilePredictor> ent : predictors.entrySet()) {
+                store.store(getKey(ent.getKey()), ent.getValue());
+            }
+        } catch (IOException e) {
+            LOGGER.error("While writing profile: " + e.getMessage());
         }
+    }
 
-        File instanceFile = MapFile.getFile(folder, id);
-        predictor.store(instanceFile, identifier);
-        
-        // update map-file, if needed
-        if (newEntry) {
-            mapFile.put(identifier, id);
-            mapFile.store();
-        } 
+    @Override
+    public File getStoreFile() {
+        return ProfileStore.getFile(element.getPath(), element.getProfileCreator());
     }
-    
-    /**
-     * Loads a predictor back if possible.
-     * 
-     * @param predictor the predictor to load into
-     * @param path the target path for persisting the predictor instances
-     * @param identifier the predictor identifier
-     * @throws IOException if saving the predictor fails
-     */
-    void load(IAlgorithmProfilePredictor predictor, String path, String identifier) throws IOException {
-        File folder = getFolder(path, identifier);
-        MapFile mapFile = new MapFile(folder);
-        mapFile.load();
-        File instanceFile = mapFile.getFile(identifier);
-        predictor.load(instanceFile, identifier);
+
+    @Override
+    public String getIdentifier(IObservable observable) {
+        return getKey(observable);
     }
 
     /**
@@ -194,7 +154,7 @@ class SeparateObservableAlgorithmProfile implements IAlgorithmProfile {
         if (null == predictor && null != QuantizerRegistry.getQuantizer(observable)) {
             predictor = element.getProfileCreator().createPredictor();
             try {
-                load(predictor, element.getPath(), generateKey(observable));
+                getStore().load(getKey(observable), predictor);
             } catch (IOException e) {
                 LOGGER.error("While reading predictor: " + e.getMessage());
             }
@@ -213,7 +173,9 @@ class SeparateObservableAlgorithmProfile implements IAlgorithmProfile {
         double result;
         IAlgorithmProfilePredictor predictor = obtainPredictor(observable);
         if (null != predictor) {
-            result = predictor.predict(steps);
+            synchronized (predictor) {
+                result = predictor.predict(steps);
+            }
         } else {
             result = Constants.NO_PREDICTION;
         }
@@ -222,11 +184,23 @@ class SeparateObservableAlgorithmProfile implements IAlgorithmProfile {
 
     @Override
     public void update(PipelineNodeSystemPart family) {
+        ProfileStore store;
+        try {
+            store = getStore();
+        } catch (IOException e) {
+            LOGGER.error("While updating profile: " + e.getMessage());
+            store = null;
+        }
         for (IObservable obs : family.getObservables()) {
             if (family.hasValue(obs)) {
                 IAlgorithmProfilePredictor predictor = obtainPredictor(obs);
                 if (null != predictor) {
-                    predictor.update(family.getLastUpdate(obs) / 1000, family.getObservedValue(obs));
+                    synchronized (predictor) { // background checkpointing
+                        predictor.update(family.getLastUpdate(obs) / 1000, family.getObservedValue(obs));
+                    }
+                    if (null != store) {
+                        store.modified(getKey(obs), predictor);
+                    }
                 }
             }
         }
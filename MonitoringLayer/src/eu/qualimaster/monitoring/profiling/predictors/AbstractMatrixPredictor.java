@@ -17,6 +17,8 @@ package eu.qualimaster.monitoring.profiling.predictors;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Properties;
 
 import eu.qualimaster.monitoring.profiling.Utils;
@@ -54,5 +56,17 @@ public abstract class AbstractMatrixPredictor implements IAlgorithmProfilePredic
         Utils.load(file, prop);
         setProperties(prop);
     }
+
+    @Override
+    public void store(OutputStream out, String identifier) throws IOException {
+        toProperties().store(out, null);
+    }
+
+    @Override
+    public void load(InputStream in, String identifier) throws IOException {
+        Properties prop = new Properties();
+        prop.load(in);
+        setProperties(prop);
+    }
     
 }
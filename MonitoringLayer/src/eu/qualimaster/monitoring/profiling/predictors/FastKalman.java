@@ -0,0 +1,562 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.monitoring.profiling.predictors;
+
+import java.util.Arrays;
+import java.util.Properties;
+
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.apache.commons.math3.linear.RealVector;
+import org.apache.log4j.LogManager;
+
+import eu.qualimaster.monitoring.profiling.Utils;
+
+/**
+ * A Kalman predictor specialized to the constant 4x4 model of {@link Kalman}. The matrices are kept as primitive
+ * row-major arrays and all intermediate results are stored in pre-allocated arrays, i.e., {@link #update(long,
+ * double)} and {@link #predict(int)} do not allocate. The computation follows the sequence of operations of the
+ * Apache-math <code>KalmanFilter</code> (including the Cholesky-based gain calculation) and the predictor is
+ * persisted in the same format as {@link Kalman}, i.e., both can load the profiles of each other.
+ *
+ * @author Holger Eichelberger
+ */
+public class FastKalman extends AbstractMatrixPredictor {
+
+    private static final int N = 4;
+    private static final int NN = N * N;
+    private static final double SYMMETRY_THRESHOLD = 1.0e-15; // as Apache-math CholeskyDecomposition
+    private static final double POSITIVITY_THRESHOLD = 1.0e-10; // as Apache-math CholeskyDecomposition
+    private static final String KEY_MEASUREMENT_NOISE = "measurementNoise";
+    private static final String KEY_MATRIX_A = "A";
+    private static final String KEY_MATRIX_B = "B";
+    private static final String KEY_MATRIX_H = "H";
+    private static final String KEY_MATRIX_Q = "Q";
+    private static final String KEY_MATRIX_P = "P";
+    private static final String KEY_MATRIX_R = "R";
+    private static final String KEY_VECTOR_X = "x";
+    private static final String KEY_VECTOR_CONTROL = "controlVector";
+    private static final String KEY_LAST_UPDATED = "lastUpdated";
+    private static final String KEY_LAST_UPDATE = "lastUpdate";
+    private static final String KEY_ALLOWED_GAP = "allowedGap";
+    private static final String KEY_DEFAULT_MEASUREMENT = "defaultMeasurement";
+
+    private double measurementNoise = 0.0001d;
+    private final double dt = 1d;
+    private final double var = measurementNoise * measurementNoise;
+
+    // model, see Kalman
+    private final double[] mA = {
+        1, dt, 0,  0,
+        0,  1, 0,  0,
+        0,  0, 1, dt,
+        0,  0, 0,  1};
+    private final double[] mB = {
+        0, 0, 0, 0,
+        0, 0, 0, 0,
+        0, 0, 1, 0,
+        0, 0, 0, 1};
+    private final double[] mH = {
+        1, 0, 0, 0,
+        0, 0, 0, 0,
+        0, 0, 1, 0,
+        0, 0, 0, 0};
+    private final double[] mQ = new double[NN];
+    private final double[] mR = {
+        var,    0,   0,    0,
+        0,   1e-3,   0,    0,
+        0,      0, var,    0,
+        0,      0,   0, 1e-3};
+    private final double[] mP = {
+        var,    0,   0,    0,
+        0,   1e-3,   0,    0,
+        0,      0, var,    0,
+        0,      0,   0, 1e-3};
+    private final double[] xVector = {0, 1, 0, 0};
+    private final double[] controlVector = {0, 0, 0, 0};
+
+    // filter state
+    private final double[] state = new double[N];
+    private final double[] errorCovariance = new double[NN];
+
+    // temporary results
+    private final double[] tmpM1 = new double[NN];
+    private final double[] tmpM2 = new double[NN];
+    private final double[] tmpS = new double[NN];
+    private final double[] tmpV1 = new double[N];
+    private final double[] tmpV2 = new double[N];
+
+    private long lastUpdated = Long.MIN_VALUE;
+    private double lastUpdate = Double.MIN_VALUE;
+    private int allowedGap = 500;
+    private double defaultMeasurement = 0;
+    private boolean predictedSinceUpdate = false;
+
+    /**
+     * Default constructor used for a new timeline.
+     */
+    public FastKalman() {
+        reinitialize();
+    }
+
+    /**
+     * Resets the filter state to the initial state and error covariance.
+     */
+    private void reinitialize() {
+        System.arraycopy(xVector, 0, state, 0, N);
+        System.arraycopy(mP, 0, errorCovariance, 0, NN);
+    }
+
+    @Override
+    public boolean update(double measured) {
+        return update(System.currentTimeMillis() / 1000, measured);
+    }
+
+    @Override
+    public boolean update(long xMeasured, double yMeasured) {
+        // Call predict(0), if no prediction was made since the last update
+        // Reason: The Kalman-Filter needs a predict-update(correct)-cycle.
+        if (!predictedSinceUpdate && lastUpdate != Double.MIN_VALUE) {
+            predict(0);
+        }
+        boolean success = correct(xMeasured, yMeasured);
+        if (success) {
+            // When an older value is updated/corrected the attributes 'lastUpdated' and 'lastUpdate' do not change.
+            if (lastUpdated < xMeasured) {
+                lastUpdated = xMeasured;
+                lastUpdate = yMeasured;
+            }
+            predictedSinceUpdate = false;
+        }
+        return success;
+    }
+
+    @Override
+    public double predict(int steps) {
+        double prediction = Double.MIN_VALUE;
+        if (lastUpdated != Long.MIN_VALUE) {
+            if (steps > 0) {
+                // Gap-Handling as in Kalman: simulate updates while the last update is too old
+                long oldLastUpdated = lastUpdated;
+                double oldLastUpdate = lastUpdate;
+                boolean gap = false;
+                while (((System.currentTimeMillis() + (steps - 1) * 1000) - (lastUpdated * 1000)) > allowedGap) {
+                    update(lastUpdated + 1 , prediction == Double.MIN_VALUE ? lastUpdate : defaultMeasurement);
+                    prediction = predict(0);
+                    gap = true;
+                }
+                // Reset values overwritten by gap handling to make predict-updates non-persistent.
+                if (gap) {
+                    lastUpdated = oldLastUpdated;
+                    lastUpdate = oldLastUpdate;
+                }
+            }
+            predictState();
+            prediction = state[2];
+            predictedSinceUpdate = true;
+        } else {
+            LogManager.getLogger(FastKalman.class).warn("Prediction should only be called after at least one update "
+                + "call!");
+        }
+        return prediction;
+    }
+
+    @Override
+    public double predict() {
+        return predict(1);
+    }
+
+    /**
+     * Extrapolates the current state estimate for <code>result.length</code> steps without modifying this
+     * predictor, i.e., without gap handling and without updating the error covariance. Does not allocate memory.
+     *
+     * @param result the predictions for 1..<code>result.length</code> steps ahead of the current state
+     *     (modified as a side effect), all {@link Double#MIN_VALUE} if no update happened so far
+     * @return <code>result</code>
+     */
+    public double[] extrapolate(double[] result) {
+        if (lastUpdated == Long.MIN_VALUE) {
+            Arrays.fill(result, Double.MIN_VALUE);
+        } else {
+            System.arraycopy(state, 0, tmpV2, 0, N);
+            for (int s = 0; s < result.length; s++) {
+                transition(tmpV2);
+                result[s] = tmpV2[2];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Predicts <code>steps</code> ahead for multiple predictors, e.g., for multiple profile keys.
+     *
+     * @param predictors the predictors
+     * @param steps the number of steps to predict ahead (see {@link IAlgorithmProfilePredictor#predict(int)})
+     * @param result the predictions per predictor (modified as a side effect, at least as long as
+     *     <code>predictors</code>), {@link Double#MIN_VALUE} for <b>null</b> predictors
+     * @return <code>result</code>
+     */
+    public static double[] predict(IAlgorithmProfilePredictor[] predictors, int steps, double[] result) {
+        for (int p = 0; p < predictors.length; p++) {
+            IAlgorithmProfilePredictor predictor = predictors[p];
+            result[p] = null == predictor ? Double.MIN_VALUE : predictor.predict(steps);
+        }
+        return result;
+    }
+
+    /**
+     * Applies the state transition to <code>vector</code>, i.e., <code>vector = A * vector + B * u</code>.
+     *
+     * @param vector the state vector (modified as a side effect)
+     */
+    private void transition(double[] vector) {
+        operate(mA, vector, tmpV1);
+        operate(mB, controlVector, vector);
+        for (int i = 0; i < N; i++) {
+            vector[i] = tmpV1[i] + vector[i];
+        }
+    }
+
+    /**
+     * Performs the prediction step, i.e., <code>x = A * x + B * u</code> and <code>P = A * P * A' + Q</code>.
+     */
+    private void predictState() {
+        transition(state);
+        multiply(mA, errorCovariance, tmpM1);
+        multiplyTransposed(tmpM1, mA, tmpM2);
+        for (int i = 0; i < NN; i++) {
+            errorCovariance[i] = tmpM2[i] + mQ[i];
+        }
+    }
+
+    /**
+     * Performs the correction step for the measurement <code>z = (xMeasured, 0, yMeasured, 0)</code>.
+     *
+     * @param xMeasured the measured time step
+     * @param yMeasured the measured value
+     * @return <code>true</code> if successful, <code>false</code> if the innovation covariance is not symmetric
+     *     positive definite
+     */
+    private boolean correct(double xMeasured, double yMeasured) {
+        // S = H * P * H' + R
+        multiply(mH, errorCovariance, tmpM1);
+        multiplyTransposed(tmpM1, mH, tmpS);
+        for (int i = 0; i < NN; i++) {
+            tmpS[i] += mR[i];
+        }
+        boolean success = choleskyDecompose(tmpS);
+        if (success) {
+            // innovation = z - H * x
+            operate(mH, state, tmpV1);
+            tmpV1[0] = xMeasured - tmpV1[0];
+            tmpV1[1] = 0 - tmpV1[1];
+            tmpV1[2] = yMeasured - tmpV1[2];
+            tmpV1[3] = 0 - tmpV1[3];
+            // S' * K' = H * P' -> tmpM2 = K'
+            multiplyTransposed(mH, errorCovariance, tmpM2);
+            choleskySolve(tmpS, tmpM2);
+            // x = x + K * innovation
+            for (int i = 0; i < N; i++) {
+                double sum = 0;
+                for (int k = 0; k < N; k++) {
+                    sum += tmpM2[k * N + i] * tmpV1[k];
+                }
+                tmpV2[i] = sum;
+            }
+            for (int i = 0; i < N; i++) {
+                state[i] = state[i] + tmpV2[i];
+            }
+            // P = (I - K * H) * P
+            for (int i = 0; i < N; i++) {
+                for (int j = 0; j < N; j++) {
+                    double sum = 0;
+                    for (int k = 0; k < N; k++) {
+                        sum += tmpM2[k * N + i] * mH[k * N + j];
+                    }
+                    tmpM1[i * N + j] = (i == j ? 1 : 0) - sum;
+                }
+            }
+            multiply(tmpM1, errorCovariance, tmpM2);
+            System.arraycopy(tmpM2, 0, errorCovariance, 0, NN);
+        } else {
+            LogManager.getLogger(FastKalman.class).error("Innovation covariance is not symmetric positive definite");
+        }
+        return success;
+    }
+
+    /**
+     * Computes <code>result = m * v</code>.
+     *
+     * @param m the matrix
+     * @param v the vector
+     * @param result the result vector
+     */
+    private static void operate(double[] m, double[] v, double[] result) {
+        for (int i = 0; i < N; i++) {
+            double sum = 0;
+            for (int k = 0; k < N; k++) {
+                sum += m[i * N + k] * v[k];
+            }
+            result[i] = sum;
+        }
+    }
+
+    /**
+     * Computes <code>result = m1 * m2</code>.
+     *
+     * @param m1 the first matrix
+     * @param m2 the second matrix
+     * @param result the result matrix (must be different from the operands)
+     */
+    private static void multiply(double[] m1, double[] m2, double[] result) {
+        for (int i = 0; i < N; i++) {
+            for (int j = 0; j < N; j++) {
+                double sum = 0;
+                for (int k = 0; k < N; k++) {
+                    sum += m1[i * N + k] * m2[k * N + j];
+                }
+                result[i * N + j] = sum;
+            }
+        }
+    }
+
+    /**
+     * Computes <code>result = m1 * m2'</code>.
+     *
+     * @param m1 the first matrix
+     * @param m2 the second matrix (to be transposed)
+     * @param result the result matrix (must be different from the operands)
+     */
+    private static void multiplyTransposed(double[] m1, double[] m2, double[] result) {
+        for (int i = 0; i < N; i++) {
+            for (int j = 0; j < N; j++) {
+                double sum = 0;
+                for (int k = 0; k < N; k++) {
+                    sum += m1[i * N + k] * m2[j * N + k];
+                }
+                result[i * N + j] = sum;
+            }
+        }
+    }
+
+    /**
+     * Performs an in-place Cholesky decomposition of <code>m</code> as done by Apache-math, i.e., <code>m</code>
+     * contains the upper triangular matrix L' afterwards.
+     *
+     * @param m the matrix to decompose (modified as a side effect)
+     * @return <code>true</code> if successful, <code>false</code> if <code>m</code> is not symmetric positive
+     *     definite
+     */
+    private static boolean choleskyDecompose(double[] m) {
+        boolean success = true;
+        for (int i = 0; success && i < N; i++) {
+            for (int j = i + 1; j < N; j++) {
+                double lIJ = m[i * N + j];
+                double lJI = m[j * N + i];
+                double maxDelta = SYMMETRY_THRESHOLD * Math.max(Math.abs(lIJ), Math.abs(lJI));
+                if (Math.abs(lIJ - lJI) > maxDelta) {
+                    success = false;
+                }
+                m[j * N + i] = 0;
+            }
+        }
+        for (int i = 0; success && i < N; i++) {
+            int row = i * N;
+            if (m[row + i] <= POSITIVITY_THRESHOLD) {
+                success = false;
+            } else {
+                m[row + i] = Math.sqrt(m[row + i]);
+                double inverse = 1.0 / m[row + i];
+                for (int q = N - 1; q > i; --q) {
+                    m[row + q] *= inverse;
+                    for (int p = q; p < N; ++p) {
+                        m[q * N + p] -= m[row + q] * m[row + p];
+                    }
+                }
+            }
+        }
+        return success;
+    }
+
+    /**
+     * Solves <code>L * L' * X = B</code> in place as done by Apache-math.
+     *
+     * @param lT the upper triangular matrix L' (see {@link #choleskyDecompose(double[])})
+     * @param b the right hand side, contains X afterwards
+     */
+    private static void choleskySolve(double[] lT, double[] b) {
+        // Solve LY = b
+        for (int j = 0; j < N; j++) {
+            double lJJ = lT[j * N + j];
+            for (int k = 0; k < N; k++) {
+                b[j * N + k] /= lJJ;
+            }
+            for (int i = j + 1; i < N; i++) {
+                double lJI = lT[j * N + i];
+                for (int k = 0; k < N; k++) {
+                    b[i * N + k] -= b[j * N + k] * lJI;
+                }
+            }
+        }
+        // Solve LTX = Y
+        for (int j = N - 1; j >= 0; j--) {
+            double lJJ = lT[j * N + j];
+            for (int k = 0; k < N; k++) {
+                b[j * N + k] /= lJJ;
+            }
+            for (int i = 0; i < j; i++) {
+                double lIJ = lT[i * N + j];
+                for (int k = 0; k < N; k++) {
+                    b[i * N + k] -= b[j * N + k] * lIJ;
+                }
+            }
+        }
+    }
+
+    /**
+     * Turns a row-major matrix into its persistent format.
+     *
+     * @param matrix the matrix
+     * @return the persistent format
+     */
+    private static String toString(double[] matrix) {
+        double[][] tmp = new double[N][N];
+        for (int i = 0; i < N; i++) {
+            System.arraycopy(matrix, i * N, tmp[i], 0, N);
+        }
+        return MatrixUtils.createRealMatrix(tmp).toString();
+    }
+
+    @Override
+    protected Properties toProperties() {
+        Properties result = new Properties();
+        result.put(KEY_MEASUREMENT_NOISE, String.valueOf(measurementNoise));
+        result.put(KEY_MATRIX_A, toString(mA));
+        result.put(KEY_MATRIX_B, toString(mB));
+        result.put(KEY_MATRIX_H, toString(mH));
+        result.put(KEY_MATRIX_Q, toString(mQ));
+        result.put(KEY_MATRIX_R, toString(mR));
+        result.put(KEY_MATRIX_P, toString(mP));
+        result.put(KEY_VECTOR_X, MatrixUtils.createRealVector(xVector).toString());
+        result.put(KEY_VECTOR_CONTROL, MatrixUtils.createRealVector(controlVector).toString());
+        result.put(KEY_LAST_UPDATED, String.valueOf(lastUpdated));
+        result.put(KEY_LAST_UPDATE, String.valueOf(lastUpdate));
+        result.put(KEY_ALLOWED_GAP, String.valueOf(allowedGap));
+        result.put(KEY_DEFAULT_MEASUREMENT, String.valueOf(defaultMeasurement));
+        return result;
+    }
+
+    /**
+     * Reads a 4x4 matrix from a properties file.
+     *
+     * @param prop the properties file
+     * @param key the key
+     * @param target the target matrix, unchanged if there is no (valid) matrix for <code>key</code>
+     */
+    private static void getMatrix(Properties prop, String key, double[] target) {
+        String tmp = prop.getProperty(key);
+        if (null != tmp) {
+            RealMatrix matrix = Kalman.stringTo2DMatrix(tmp);
+            if (null != matrix && matrix.getRowDimension() == N && matrix.getColumnDimension() == N) {
+                for (int i = 0; i < N; i++) {
+                    for (int j = 0; j < N; j++) {
+                        target[i * N + j] = matrix.getEntry(i, j);
+                    }
+                }
+            } else if (null != matrix) {
+                LogManager.getLogger(FastKalman.class).error("Ignoring matrix " + key + ": not 4x4");
+            }
+        }
+    }
+
+    /**
+     * Reads a 4-dimensional vector from a properties file.
+     *
+     * @param prop the properties file
+     * @param key the key
+     * @param target the target vector, unchanged if there is no (valid) vector for <code>key</code>
+     */
+    private static void getVector(Properties prop, String key, double[] target) {
+        String tmp = prop.getProperty(key);
+        if (null != tmp) {
+            RealVector vector = Kalman.stringTo2DVector(tmp);
+            if (null != vector && vector.getDimension() == N) {
+                for (int i = 0; i < N; i++) {
+                    target[i] = vector.getEntry(i);
+                }
+            } else if (null != vector) {
+                LogManager.getLogger(FastKalman.class).error("Ignoring vector " + key + ": not 4-dimensional");
+            }
+        }
+    }
+
+    @Override
+    protected void setProperties(Properties data) {
+        measurementNoise = Utils.getDouble(data, KEY_MEASUREMENT_NOISE, measurementNoise);
+        getMatrix(data, KEY_MATRIX_A, mA);
+        getMatrix(data, KEY_MATRIX_B, mB);
+        getMatrix(data, KEY_MATRIX_H, mH);
+        getMatrix(data, KEY_MATRIX_Q, mQ);
+        getMatrix(data, KEY_MATRIX_P, mP);
+        getMatrix(data, KEY_MATRIX_R, mR);
+        getVector(data, KEY_VECTOR_X, xVector);
+        getVector(data, KEY_VECTOR_CONTROL, controlVector);
+        lastUpdated = Utils.getLong(data, KEY_LAST_UPDATED, lastUpdated);
+        lastUpdate = Utils.getDouble(data, KEY_LAST_UPDATE, lastUpdate);
+        allowedGap = Utils.getInt(data, KEY_ALLOWED_GAP, allowedGap);
+        defaultMeasurement = Utils.getDouble(data, KEY_DEFAULT_MEASUREMENT, defaultMeasurement);
+        reinitialize();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        // as Kalman, focus only on the values that are actually stored
+        boolean result = false;
+        if (obj instanceof FastKalman) {
+            FastKalman k = (FastKalman) obj;
+            result = Double.doubleToLongBits(measurementNoise) == Double.doubleToLongBits(k.measurementNoise);
+            result &= Arrays.equals(mA, k.mA);
+            result &= Arrays.equals(mB, k.mB);
+            result &= Arrays.equals(mH, k.mH);
+            result &= Arrays.equals(mQ, k.mQ);
+            result &= Arrays.equals(mP, k.mP);
+            result &= Arrays.equals(mR, k.mR);
+            result &= Arrays.equals(xVector, k.xVector);
+            result &= Arrays.equals(controlVector, k.controlVector);
+            result &= lastUpdated == k.lastUpdated;
+            result &= Double.doubleToLongBits(lastUpdate) == Double.doubleToLongBits(k.lastUpdate);
+            result &= allowedGap == k.allowedGap;
+            result &= Double.doubleToLongBits(defaultMeasurement) == Double.doubleToLongBits(k.defaultMeasurement);
+        }
+        return result;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Arrays.hashCode(mA);
+        result ^= Arrays.hashCode(mB);
+        result ^= Arrays.hashCode(mH);
+        result ^= Arrays.hashCode(mQ);
+        result ^= Arrays.hashCode(mP);
+        result ^= Arrays.hashCode(mR);
+        result ^= Arrays.hashCode(xVector);
+        result ^= Arrays.hashCode(controlVector);
+        result ^= (int) (lastUpdated ^ (lastUpdated >>> 32));
+        result ^= allowedGap;
+        return result;
+    }
+
+}
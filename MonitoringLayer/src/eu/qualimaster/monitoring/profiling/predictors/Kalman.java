@@ -314,7 +314,7 @@ public class Kalman extends AbstractMatrixPredictor {
      * @param string The needed form is '{double;double;...}'.
      * @return A {@link RealVector} if the conversion was successful, else <null>.
      */
-    private static RealVector stringTo2DVector(String string) {
+    static RealVector stringTo2DVector(String string) {
         RealVector result = null;
         
         try {
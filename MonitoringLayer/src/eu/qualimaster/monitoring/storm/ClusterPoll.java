@@ -0,0 +1,199 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.monitoring.storm;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.apache.thrift7.TException;
+
+import backtype.storm.generated.ClusterSummary;
+import backtype.storm.generated.NotAliveException;
+import backtype.storm.generated.TopologyInfo;
+import backtype.storm.generated.TopologySummary;
+
+/**
+ * Polls the Storm cluster once for all pipeline monitoring tasks of a plugin. The first task of a monitoring round
+ * fetches the cluster summary and the topology information of the topologies of all pipelines being monitored
+ * (concurrently if a connection pool is given), further tasks of the same round reuse this snapshot. Topologies
+ * which were not requested for some rounds are not fetched anymore.
+ *
+ * @author Holger Eichelberger
+ */
+class ClusterPoll {
+
+    private static final int UNREQUESTED_ROUNDS = 4;
+
+    private StormConnection connection;
+    private ThriftConnectionPool pool;
+    private long maxAge;
+    private Map<String, Long> requests = new HashMap<String, Long>();
+    private Snapshot snapshot;
+
+    /**
+     * A snapshot of the cluster taken in one monitoring round.
+     *
+     * @author Holger Eichelberger
+     */
+    static class Snapshot {
+
+        private long timestamp;
+        private List<TopologyInfo> topologies;
+        private Set<String> names;
+
+        /**
+         * Creates a snapshot.
+         *
+         * @param timestamp the time the snapshot was taken
+         * @param names the topology names the snapshot was taken for
+         * @param topologies the topology information
+         */
+        private Snapshot(long timestamp, Set<String> names, List<TopologyInfo> topologies) {
+            this.timestamp = timestamp;
+            this.names = names;
+            this.topologies = topologies;
+        }
+
+        /**
+         * Returns the topology information of the given topologies.
+         *
+         * @param topologyNames the names of the topologies
+         * @return the topology information, topologies that are not alive are left out
+         */
+        List<TopologyInfo> getTopologies(Set<String> topologyNames) {
+            List<TopologyInfo> result = new ArrayList<TopologyInfo>();
+            for (int t = 0; t < topologies.size(); t++) {
+                TopologyInfo info = topologies.get(t);
+                if (topologyNames.contains(info.get_name())) {
+                    result.add(info);
+                }
+            }
+            return result;
+        }
+
+    }
+
+    /**
+     * Creates a cluster poll.
+     *
+     * @param connection the Storm connection
+     * @param pool the connection pool for fetching topology information concurrently, may be <b>null</b> for
+     *   fetching sequentially via <code>connection</code>
+     * @param maxAge the maximum age of a snapshot in ms to be reused within a monitoring round
+     */
+    ClusterPoll(StormConnection connection, ThriftConnectionPool pool, long maxAge) {
+        this.connection = connection;
+        this.pool = pool;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Returns a snapshot covering the given topologies, reuses the snapshot of the actual monitoring round if
+     * possible.
+     *
+     * @param topologyNames the names of the topologies to be covered
+     * @return the snapshot
+     * @throws TException in case of problems accessing the remote cluster information
+     */
+    synchronized Snapshot getSnapshot(Set<String> topologyNames) throws TException {
+        long now = System.currentTimeMillis();
+        for (String name : topologyNames) {
+            requests.put(name, now);
+        }
+        if (null == snapshot || now - snapshot.timestamp > maxAge || !snapshot.names.containsAll(topologyNames)) {
+            Iterator<Long> iter = requests.values().iterator();
+            while (iter.hasNext()) {
+                if (now - iter.next() > UNREQUESTED_ROUNDS * 2 * maxAge) {
+                    iter.remove();
+                }
+            }
+            snapshot = null; // do not reuse in case of failures
+            Set<String> names = new HashSet<String>(requests.keySet());
+            snapshot = new Snapshot(now, names, fetchTopologies(connection.getClusterSummary(), names));
+        }
+        return snapshot;
+    }
+
+    /**
+     * Fetches the topology information for the requested topologies, concurrently if a connection pool is
+     * available and there is more than one topology to fetch.
+     *
+     * @param summary the cluster summary
+     * @param names the names of the requested topologies
+     * @return the topology information, topologies that are not alive anymore are left out
+     * @throws TException in case of problems accessing the remote topology info
+     */
+    private List<TopologyInfo> fetchTopologies(ClusterSummary summary, Set<String> names) throws TException {
+        List<TopologySummary> topologies = summary.get_topologies();
+        List<String> ids = new ArrayList<String>();
+        for (int t = 0; t < topologies.size(); t++) {
+            TopologySummary topologySummary = topologies.get(t);
+            if (names.contains(topologySummary.get_name())) {
+                ids.add(topologySummary.get_id());
+            }
+        }
+        List<TopologyInfo> result = new ArrayList<TopologyInfo>(ids.size());
+        if (null == pool || ids.size() < 2) {
+            for (int i = 0; i < ids.size(); i++) {
+                try {
+                    result.add(connection.getTopologyInfo(ids.get(i)));
+                } catch (NotAliveException e) {
+                }
+            }
+        } else {
+            List<Future<TopologyInfo>> futures = new ArrayList<Future<TopologyInfo>>(ids.size());
+            for (int i = 0; i < ids.size(); i++) {
+                futures.add(pool.getTopologyInfo(ids.get(i)));
+            }
+            for (int f = 0; f < futures.size(); f++) {
+                try {
+                    result.add(futures.get(f).get());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof TException && !(cause instanceof NotAliveException)) {
+                        cancel(futures, f + 1);
+                        throw (TException) cause;
+                    }
+                } catch (InterruptedException e) {
+                    cancel(futures, f + 1);
+                    Thread.currentThread().interrupt();
+                    throw new TException("Interrupted while fetching topology information", e);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Cancels the remaining futures.
+     *
+     * @param futures the futures
+     * @param start the index of the first future to cancel
+     */
+    private static void cancel(List<Future<TopologyInfo>> futures, int start) {
+        for (int f = start; f < futures.size(); f++) {
+            futures.get(f).cancel(false);
+        }
+    }
+
+}
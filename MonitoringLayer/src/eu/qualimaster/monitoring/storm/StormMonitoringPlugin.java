@@ -4,6 +4,7 @@ import eu.qualimaster.adaptation.events.AdaptationEvent;
 import eu.qualimaster.monitoring.AbstractClusterMonitoringTask;
 import eu.qualimaster.monitoring.AbstractContainerMonitoringTask;
 import eu.qualimaster.monitoring.IMonitoringPlugin;
+import eu.qualimaster.monitoring.MonitoringConfiguration;
 import eu.qualimaster.monitoring.hardware.HardwareConfigurationAccess;
 import eu.qualimaster.monitoring.hardware.HardwareConfigurationAccess.HardwareMonitoringInfo;
 import eu.qualimaster.monitoring.hardware.MaxelerDfeMonitor;
@@ -17,22 +18,34 @@ import eu.qualimaster.monitoring.systemState.SystemState;
 public class StormMonitoringPlugin implements IMonitoringPlugin {
 
     private StormConnection connection;
+    private ThriftConnectionPool pool;
+    private ClusterPoll poll;
     
     @Override
     public void start() {
         connection = new StormConnection();
         connection.open(); // just try, no problem if this fails
+        int connections = MonitoringConfiguration.getThriftMonitoringConnections();
+        if (connections > 1) {
+            pool = new ThriftConnectionPool(connections);
+        }
+        poll = new ClusterPoll(connection, pool, MonitoringConfiguration.getPipelineMonitoringFrequency() / 2);
     }
 
     @Override
     public void stop() {
         connection.close();
+        if (null != pool) {
+            pool.close();
+            pool = null;
+        }
+        poll = null;
     }
 
     @Override
     public AbstractContainerMonitoringTask createPipelineTask(String pipeline, SystemState state, 
         Class<? extends AdaptationEvent> adaptationFilter) {
-        return new ThriftMonitoringTask(pipeline, connection, state, adaptationFilter);
+        return new ThriftMonitoringTask(pipeline, connection, poll, state, adaptationFilter);
     }
     
     @Override
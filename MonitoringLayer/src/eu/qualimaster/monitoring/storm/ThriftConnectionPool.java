@@ -0,0 +1,112 @@
+/*
+ * Copyright 2009-2015 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.monitoring.storm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.thrift7.TException;
+import org.apache.thrift7.transport.TTransportException;
+
+import eu.qualimaster.common.signal.ThriftConnection;
+import backtype.storm.generated.TopologyInfo;
+
+/**
+ * A small pool of Thrift connections fetching topology information concurrently. As Thrift clients are not 
+ * thread-safe, each connection is used by one fetching thread at a time. Connections are opened on demand and 
+ * closed on transport failures so that they reconnect when used next.
+ * 
+ * @author Holger Eichelberger
+ */
+class ThriftConnectionPool {
+
+    private BlockingQueue<ThriftConnection> idle;
+    private List<ThriftConnection> connections;
+    private ExecutorService executor;
+
+    /**
+     * Creates a connection pool.
+     * 
+     * @param size the number of connections and fetching threads (at least 1)
+     */
+    ThriftConnectionPool(int size) {
+        size = Math.max(1, size);
+        idle = new ArrayBlockingQueue<ThriftConnection>(size);
+        connections = new ArrayList<ThriftConnection>(size);
+        for (int c = 0; c < size; c++) {
+            ThriftConnection connection = new ThriftConnection();
+            connections.add(connection);
+            idle.add(connection);
+        }
+        final AtomicInteger count = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(size, new ThreadFactory() {
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread result = new Thread(runnable, "Thrift monitoring " + count.incrementAndGet());
+                result.setDaemon(true);
+                return result;
+            }
+        });
+    }
+
+    /**
+     * Fetches the topology information for <code>id</code> asynchronously.
+     * 
+     * @param id the topology identification
+     * @return the future topology information, may fail with a {@link TException}
+     */
+    Future<TopologyInfo> getTopologyInfo(final String id) {
+        return executor.submit(new Callable<TopologyInfo>() {
+
+            @Override
+            public TopologyInfo call() throws TException, InterruptedException {
+                ThriftConnection connection = idle.take();
+                try {
+                    if (!connection.open()) {
+                        throw new TException("Cannot open Thrift connection");
+                    }
+                    return connection.getTopologyInfo(id);
+                } catch (TTransportException e) {
+                    connection.close(); // reconnect when used next
+                    throw e;
+                } finally {
+                    idle.add(connection);
+                }
+            }
+
+        });
+    }
+
+    /**
+     * Stops the fetching threads and closes all connections.
+     */
+    void close() {
+        executor.shutdownNow();
+        for (int c = 0; c < connections.size(); c++) {
+            connections.get(c).close();
+        }
+    }
+
+}
@@ -3,6 +3,8 @@ package eu.qualimaster.monitoring.storm;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -29,6 +31,7 @@ import eu.qualimaster.monitoring.events.ComponentKey;
 import eu.qualimaster.monitoring.observations.ObservedValue;
 import eu.qualimaster.monitoring.systemState.PipelineNodeSystemPart;
 import eu.qualimaster.monitoring.systemState.PipelineSystemPart;
+import eu.qualimaster.monitoring.systemState.PlatformSystemPart;
 import eu.qualimaster.monitoring.systemState.StateUtils;
 import eu.qualimaster.monitoring.systemState.SystemPart;
 import eu.qualimaster.monitoring.systemState.SystemState;
@@ -38,17 +41,18 @@ import eu.qualimaster.observables.ResourceUsage;
 import eu.qualimaster.observables.TimeBehavior;
 import backtype.storm.event.EventManager;
 import backtype.storm.generated.BoltStats;
-import backtype.storm.generated.ClusterSummary;
 import backtype.storm.generated.ExecutorInfo;
 import backtype.storm.generated.ExecutorSpecificStats;
 import backtype.storm.generated.ExecutorStats;
 import backtype.storm.generated.ExecutorSummary;
 import backtype.storm.generated.NotAliveException;
 import backtype.storm.generated.TopologyInfo;
-import backtype.storm.generated.TopologySummary;
 
 /**
- * A thrift-based monitoring task for Storm Pipelines.
+ * A thrift-based monitoring task for Storm Pipelines. The cluster summary and the topology information are fetched
+ * once per monitoring round for all pipelines via a shared {@link ClusterPoll}. Executors are only aggregated if 
+ * their statistics changed since the last poll. The timing of the poll is recorded per pipeline as infrastructure 
+ * observation.
  * 
  * @author Holger Eichelberger
  */
@@ -64,21 +68,25 @@ public class ThriftMonitoringTask extends AbstractContainerMonitoringTask {
     private String pipeline;
     private Set<String> topologyNames = new HashSet<String>();
     private StormConnection connection;
+    private ClusterPoll poll;
     private Class<? extends AdaptationEvent> adaptationFilter;
+    private Map<String, ExecutorStats> lastStats = new HashMap<String, ExecutorStats>();
 
     /**
      * Creates the monitoring task.
      * 
      * @param pipeline the pipeline name
      * @param connection the Storm connection
+     * @param poll the cluster poll shared among the pipeline tasks of a plugin
      * @param state the system state to be modified due to monitoring
      * @param adaptationFilter the adaptation filter, may be <b>null</b> if there is none
      */
-    ThriftMonitoringTask(String pipeline, StormConnection connection, SystemState state, 
+    ThriftMonitoringTask(String pipeline, StormConnection connection, ClusterPoll poll, SystemState state, 
         Class<? extends AdaptationEvent> adaptationFilter) {
         super(state);
         this.pipeline = pipeline;
         this.connection = connection;
+        this.poll = poll;
         this.adaptationFilter = adaptationFilter;
         INameMapping mapping = MonitoringManager.getNameMapping(pipeline);
         if (null != mapping) {
@@ -92,29 +100,29 @@ public class ThriftMonitoringTask extends AbstractContainerMonitoringTask {
     public void monitor() {
         if (connection.open()) {
             try {
-                ClusterSummary summary = connection.getClusterSummary();
+                long start = System.currentTimeMillis();
+                List<TopologyInfo> topologies = poll.getSnapshot(topologyNames).getTopologies(topologyNames);
+                long fetched = System.currentTimeMillis();
 
-                List<TopologySummary> topologies = summary.get_topologies();
                 Set<PipelineSystemPart> modified = new HashSet<PipelineSystemPart>(); 
+                Map<String, ExecutorStats> polledStats = new HashMap<String, ExecutorStats>();
                 for (int t = 0; t < topologies.size(); t++) {
-                    TopologySummary topologySummary = topologies.get(t);
-                    if (topologyNames.contains(topologySummary.get_name())) {
-                        try {
-                            PipelineSystemPart part = aggregateTopology(
-                                connection.getTopologyInfo(topologySummary.get_id()));
-                            if (null != part) {
-                                modified.add(part);
-                            }
-                        } catch (NotAliveException e) {
+                    try {
+                        PipelineSystemPart part = aggregateTopology(topologies.get(t), polledStats);
+                        if (null != part) {
+                            modified.add(part);
                         }
+                    } catch (NotAliveException e) {
                     }
                 }
+                lastStats = polledStats;
                 Collection<PipelineSystemPart> pipelines = getState().getPipelines();
                 for (PipelineSystemPart pipeline : pipelines) {
                     if (!modified.contains(pipeline) && pipeline.getStatus().wasStarted()) {
                         pipeline.changeStatus(PipelineLifecycleEvent.Status.DISAPPEARED, true, adaptationFilter);
                     }
                 }
+                recordTiming(fetched - start, System.currentTimeMillis() - fetched);
             } catch (TException e) {
                 LOGGER.error("Cannot obtain thrift data " + e.getMessage(), e);
             }  catch (IllegalStateException e) {
@@ -123,6 +131,19 @@ public class ThriftMonitoringTask extends AbstractContainerMonitoringTask {
         }
     }
     
+    /**
+     * Records the timing of a poll as infrastructure observations.
+     * 
+     * @param fetchTime the time needed for fetching the data from Storm
+     * @param aggregationTime the time needed for aggregating the data
+     */
+    private void recordTiming(long fetchTime, long aggregationTime) {
+        PlatformSystemPart platform = getState().getPlatform();
+        platform.setValue(TimeBehavior.MONITORING_FETCH_TIME, fetchTime, pipeline);
+        platform.setValue(TimeBehavior.MONITORING_AGGREGATION_TIME, aggregationTime, pipeline);
+        platform.setValue(TimeBehavior.MONITORING_POLL_TIME, fetchTime + aggregationTime, pipeline);
+    }
+
     /**
      * Testing.
      * 
@@ -193,12 +214,14 @@ public class ThriftMonitoringTask extends AbstractContainerMonitoringTask {
      * Aggregates the values for the topology.
      * 
      * @param topology the topology information to be aggregated
+     * @param polledStats the executor statistics of this poll (modified as a side effect)
      * @return the affected / modified pipeline system part, may be <b>null</b> if the pipeline / topology yet does 
      *     not exist 
      * @throws NotAliveException in case that the requested topology is not alive
      * @throws TException in case of problems accessing the remote topology info
      */
-    private PipelineSystemPart aggregateTopology(TopologyInfo topology) throws TException, NotAliveException {
+    private PipelineSystemPart aggregateTopology(TopologyInfo topology, Map<String, ExecutorStats> polledStats) 
+        throws TException, NotAliveException {
         PipelineSystemPart part = null;
         INameMapping mapping = MonitoringManager.getNameMapping(pipeline);
         if (null != mapping) {
@@ -210,6 +233,7 @@ public class ThriftMonitoringTask extends AbstractContainerMonitoringTask {
             int executorRunningCount = 0; // first heuristics... uptime of executors - does not work in every case
             int nonInternalCount = 0; // second heuristics... non-legacy pipelines sending proper events
             int nonInternalRunningCount = 0;
+            Map<PipelineNodeSystemPart, Set<Object>> nodeKeys = new HashMap<PipelineNodeSystemPart, Set<Object>>();
             for (int e = 0; e < executors.size(); e++) {
                 ExecutorSummary executor = executors.get(e);
                 String nodeName = executor.get_component_id();
@@ -232,7 +256,18 @@ public class ThriftMonitoringTask extends AbstractContainerMonitoringTask {
                         nodeName = "_SYSTEM_"; // TODO check whether a special node is better
                     }
                     if (doThrift(executor, nodePart, isInternal)) { // non-thrift happens along the events
-                        aggregateExecutor(executor, nodePart, isInternal);
+                        List<ComponentKey> keys = toKeys(executor);
+                        Set<Object> currentKeys = nodeKeys.get(nodePart);
+                        if (null == currentKeys) {
+                            currentKeys = new HashSet<Object>();
+                            nodeKeys.put(nodePart, currentKeys);
+                        }
+                        currentKeys.addAll(keys);
+                        String executorKey = getExecutorKey(topology, executor);
+                        polledStats.put(executorKey, stats);
+                        if (!stats.equals(lastStats.get(executorKey))) { // unchanged keeps the aggregated values
+                            aggregateExecutor(executor, nodePart, isInternal, keys);
+                        }
                     }
                     if (!isInternal) {
                         sendSummaryEvent(nodePart, part.getName(), MonitoringManager.DEMO_MSG_PROCESSING_ELEMENT);
@@ -240,6 +275,7 @@ public class ThriftMonitoringTask extends AbstractContainerMonitoringTask {
                     pStat.collect(nodePart);
                 } // no stats... in particular if
             }
+            clearComponents(nodeKeys);
             debugExecutors(executors, mapping, part);
             
             boolean allInitialized = pStat.commit();
@@ -287,26 +323,27 @@ public class ThriftMonitoringTask extends AbstractContainerMonitoringTask {
     }
     
     /**
-     * Returns the number of tasks handled by an executor.
+     * Returns the key identifying an executor across polls.
      * 
+     * @param topology the topology
      * @param executor the executor (summary)
-     * @return the number of tasks
+     * @return the executor key
      */
-    private static int getTaskCount(ExecutorSummary executor) {
-        ExecutorInfo info = executor.get_executor_info();
-        return info.get_task_end() - info.get_task_start() + 1;
+    private static String getExecutorKey(TopologyInfo topology, ExecutorSummary executor) {
+        return topology.get_id() + ":" + executor.get_host() + ":" + executor.get_port() + ":" 
+            + executor.get_executor_info().get_task_start();
     }
-    
+
     /**
      * Aggregates an executor.
      * 
      * @param executor the excutor
      * @param nodePart the target node part
      * @param isInternal whether it is considered as an internal Storm node
+     * @param keys the component keys of the tasks of <code>executor</code>
      */
     private void aggregateExecutor(ExecutorSummary executor, PipelineNodeSystemPart nodePart, 
-        boolean isInternal) {
-        List<ComponentKey> keys = toKeys(executor);
+        boolean isInternal, List<ComponentKey> keys) {
         ExecutorStats stats = executor.get_stats();
         int tasks = keys.size();
         for (int k = 0; k < tasks; k++) {
@@ -319,8 +356,8 @@ public class ThriftMonitoringTask extends AbstractContainerMonitoringTask {
                 aggregateOther(executor, nodePart, isInternal, key, tasks);
             }
         }
-        setValueToKeysAndClear(nodePart, keys, ResourceUsage.EXECUTORS, 1);
-        setValueToKeysAndClear(nodePart, keys, ResourceUsage.TASKS, getTaskCount(executor));
+        setValue(nodePart, ResourceUsage.EXECUTORS, 1, keys);
+        setValue(nodePart, ResourceUsage.TASKS, 1, keys);
     }
     
     /**
@@ -443,21 +480,33 @@ public class ThriftMonitoringTask extends AbstractContainerMonitoringTask {
     }
     
     /**
-     * Sets the given <code>value</code> to all components in the observation of <code>observable</code> in 
-     * <code>part</code> and clears unnamed components.
+     * Clears the components of the executor and task observations that do not belong to the actual executors of
+     * the respective node part anymore.
+     * 
+     * @param nodeKeys the component keys of the actual executors per node part
+     */
+    private void clearComponents(Map<PipelineNodeSystemPart, Set<Object>> nodeKeys) {
+        for (Map.Entry<PipelineNodeSystemPart, Set<Object>> entry : nodeKeys.entrySet()) {
+            clearComponents(entry.getKey(), ResourceUsage.EXECUTORS, entry.getValue());
+            clearComponents(entry.getKey(), ResourceUsage.TASKS, entry.getValue());
+        }
+    }
+
+    /**
+     * Clears the components in the observation of <code>observable</code> in <code>part</code> that are not 
+     * in <code>keys</code>.
      * 
      * @param part the system part
-     * @param keys the keys to set the value for (and to clear the remaining ones)
      * @param observable the observable to operate on
-     * @param value the value to set
+     * @param keys the keys to keep
      */
-    private void setValueToKeysAndClear(PipelineNodeSystemPart part, List<ComponentKey> keys, IObservable observable, 
-        double value) {
-        Set<Object> executorKeys = new HashSet<Object>(); 
-        executorKeys.addAll(part.getComponentKeys(observable));
-        setValue(part, observable, 1, keys);
-        executorKeys.remove(keys);
-        part.clearComponents(observable, executorKeys);
+    private void clearComponents(PipelineNodeSystemPart part, IObservable observable, Set<Object> keys) {
+        Set<Object> outdated = new HashSet<Object>(); 
+        outdated.addAll(part.getComponentKeys(observable));
+        outdated.removeAll(keys);
+        if (!outdated.isEmpty()) {
+            part.clearComponents(observable, outdated);
+        }
     }
 
     /**
@@ -573,6 +622,11 @@ public class ThriftMonitoringTask extends AbstractContainerMonitoringTask {
 
     @Override
     public boolean cancel() {
+        PlatformSystemPart platform = getState().getPlatform();
+        Collection<Object> keys = Collections.<Object>singleton(pipeline);
+        platform.clearComponents(TimeBehavior.MONITORING_FETCH_TIME, keys);
+        platform.clearComponents(TimeBehavior.MONITORING_AGGREGATION_TIME, keys);
+        platform.clearComponents(TimeBehavior.MONITORING_POLL_TIME, keys);
         return super.cancel();
     }
 
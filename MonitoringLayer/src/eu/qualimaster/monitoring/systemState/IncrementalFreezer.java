@@ -0,0 +1,254 @@
+/*
+ * Copyright 2009-2015 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.monitoring.systemState;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import eu.qualimaster.monitoring.events.FrozenSystemState;
+
+/**
+ * Incrementally freezes a system state. The values collected during a freeze are compared to the values of the 
+ * previous freeze, so that only changed values cause work beyond the collection. A new version and a new 
+ * {@link FrozenSystemState#createSnapshot(Map, long, long) snapshot} are only created if values changed, otherwise 
+ * the previous snapshot is shared. Snapshots are {@link PersistentMap persistent maps}, i.e., a new snapshot is 
+ * derived by applying only the changed keys and shares all unchanged structure with its predecessor. The changed 
+ * keys of the last {@link #HISTORY} versions are kept for delta calculation. As versions start with each freezer 
+ * instance, each instance has a random epoch identifying it. Not thread-safe, to be used under the monitor of the 
+ * {@link SystemState}.
+ * 
+ * @author Holger Eichelberger
+ */
+class IncrementalFreezer {
+
+    static final int HISTORY = 32;
+    private static final Random EPOCHS = new Random();
+
+    private final long epoch = EPOCHS.nextLong();
+    private Map<String, Entry> entries = new HashMap<String, Entry>();
+    private PersistentMap<String, Double> values = PersistentMap.empty();
+    private Map<String, Double> changes;
+    private LinkedList<Change> history = new LinkedList<Change>();
+    private Collector collector = new Collector();
+    private long version;
+    private long pass;
+    private int seen;
+    private int work;
+
+    /**
+     * A collected value.
+     * 
+     * @author Holger Eichelberger
+     */
+    private static class Entry {
+
+        private Double value;
+        private long pass;
+
+        /**
+         * Creates an entry.
+         * 
+         * @param value the value
+         * @param pass the freeze pass
+         */
+        private Entry(Double value, long pass) {
+            this.value = value;
+            this.pass = pass;
+        }
+
+    }
+
+    /**
+     * The keys changed by a version.
+     * 
+     * @author Holger Eichelberger
+     */
+    private static class Change {
+
+        private long version;
+        private Set<String> keys;
+
+        /**
+         * Creates a change.
+         * 
+         * @param version the version
+         * @param keys the changed keys
+         */
+        private Change(long version, Set<String> keys) {
+            this.version = version;
+            this.keys = keys;
+        }
+
+    }
+
+    /**
+     * A frozen system state collecting the values to be compared instead of storing them.
+     * 
+     * @author Holger Eichelberger
+     */
+    private class Collector extends FrozenSystemState {
+
+        private static final long serialVersionUID = -4126498418546296547L;
+
+        @Override
+        public void setObservation(String key, Double value) {
+            collect(key, value);
+        }
+
+    }
+
+    /**
+     * Starts a freeze.
+     * 
+     * @return the state to be filled by the system parts
+     */
+    FrozenSystemState begin() {
+        pass++;
+        seen = 0;
+        work = 0;
+        changes = null;
+        return collector;
+    }
+
+    /**
+     * Collects a value.
+     * 
+     * @param key the key
+     * @param value the value
+     */
+    private void collect(String key, Double value) {
+        Entry entry = entries.get(key);
+        if (null == entry) {
+            entries.put(key, new Entry(value, pass));
+            seen++;
+            change(key, value);
+        } else {
+            if (entry.pass != pass) {
+                entry.pass = pass;
+                seen++;
+            }
+            if (null == value ? null != entry.value : !value.equals(entry.value)) {
+                entry.value = value;
+                change(key, value);
+            }
+        }
+    }
+
+    /**
+     * Records a changed value.
+     * 
+     * @param key the key
+     * @param value the new value, <b>null</b> for removed
+     */
+    private void change(String key, Double value) {
+        if (null == changes) {
+            changes = new HashMap<String, Double>();
+        }
+        changes.put(key, value);
+    }
+
+    /**
+     * Ends a freeze.
+     * 
+     * @return the frozen state
+     */
+    FrozenSystemState end() {
+        if (seen < entries.size()) {
+            Iterator<Map.Entry<String, Entry>> iter = entries.entrySet().iterator();
+            while (iter.hasNext()) {
+                Map.Entry<String, Entry> ent = iter.next();
+                if (ent.getValue().pass != pass) {
+                    iter.remove();
+                    change(ent.getKey(), null);
+                }
+            }
+        }
+        if (null != changes) {
+            version++;
+            PersistentMap.Editor<String, Double> editor = values.edit();
+            for (Map.Entry<String, Double> ent : changes.entrySet()) {
+                if (null == ent.getValue()) {
+                    editor.remove(ent.getKey());
+                } else {
+                    editor.put(ent.getKey(), ent.getValue());
+                }
+            }
+            values = editor.build();
+            work = editor.getCopiedNodes();
+            history.addLast(new Change(version, new HashSet<String>(changes.keySet())));
+            if (history.size() > HISTORY) {
+                history.removeFirst();
+            }
+            changes = null;
+        }
+        return FrozenSystemState.createSnapshot(values, epoch, version);
+    }
+
+    /**
+     * Returns the structural work spent for the snapshot of the last freeze.
+     * 
+     * @return the number of snapshot nodes created, <code>0</code> if the previous snapshot was shared
+     */
+    int getWork() {
+        return work;
+    }
+
+    /**
+     * Returns the epoch of this freezer.
+     * 
+     * @return the epoch
+     */
+    long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Returns the current version.
+     * 
+     * @return the version, <code>0</code> if nothing was frozen so far
+     */
+    long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the keys changed after <code>since</code> up to the current version.
+     * 
+     * @param since the version to return the changes since
+     * @return the changed keys, <b>null</b> if <code>since</code> is not covered by the history
+     */
+    Collection<String> getChangedKeys(long since) {
+        Set<String> result = null;
+        if (since == version) {
+            result = new HashSet<String>();
+        } else if (since < version && (history.isEmpty() || since >= history.getFirst().version - 1)) {
+            result = new HashSet<String>();
+            for (Change change : history) {
+                if (change.version > since) {
+                    result.addAll(change.keys);
+                }
+            }
+        }
+        return result;
+    }
+
+}
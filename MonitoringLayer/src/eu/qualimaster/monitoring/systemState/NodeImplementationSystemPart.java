@@ -45,6 +45,7 @@ public class NodeImplementationSystemPart extends SystemPart implements ITopolog
     private transient ITrace trace;
     private PipelineSystemPart pipeline;
     private Map<String, PipelineNodeSystemPart> elements = new HashMap<String, PipelineNodeSystemPart>();
+    private transient volatile ProjectionCache projection;
 
     /**
      * Creates an implementation system part.
@@ -217,7 +218,15 @@ public class NodeImplementationSystemPart extends SystemPart implements ITopolog
 
     @Override
     public ITopologyProjection getTopologyProjection() {
-        return new TopologyProjection(projectTopologyNodes(true), projectTopologyNodes(false), null);
+        PipelineTopology topology = getTopology();
+        int nodeCount = getNodeCount();
+        ProjectionCache cache = projection;
+        if (!ProjectionCache.isValid(cache, topology, this, nodeCount)) {
+            cache = new ProjectionCache(topology, this, nodeCount, 
+                new TopologyProjection(projectTopologyNodes(true), projectTopologyNodes(false), null));
+            projection = cache;
+        }
+        return cache.getProjection();
     }
 
     /**
@@ -15,21 +15,20 @@
  */
 package eu.qualimaster.monitoring.systemState;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import eu.qualimaster.observables.IObservable;
 
 /**
- * Implements a path observation aggregator.
+ * Implements a path observation aggregator. The path is kept as a stack of primitive prefix aggregates, i.e., 
+ * completing a path does not require iterating over the path elements.
  * 
  * @author Holger Eichelberger
  */
 public class ObservationAggregator {
     
     private double value;
-    private transient List<Double> path = new ArrayList<Double>(10);
-    //private transient double pathValue;
+    private transient double[] pathValues = new double[10];
+    private transient boolean[] pathUndefined = new boolean[10];
+    private transient int pathLength;
     private IObservable observable;
     private IAggregationFunction elementAggregator;
     private boolean pathAverage;
@@ -96,7 +95,7 @@ public class ObservationAggregator {
      */
     public void clear() {
         value = topologyAggregator.getInitialValue();
-        path.clear();
+        pathLength = 0;
         wasCompleted = false;
     }
 
@@ -108,40 +107,57 @@ public class ObservationAggregator {
      * @param localValue the local value or the aggregated value
      */
     void push(PipelineNodeSystemPart part, boolean localValue) {
-        Double value;
-        if (part.hasValue(observable)) {
-            value = part.getObservedValue(observable, localValue);
+        if (pathLength == pathValues.length) {
+            double[] tmpValues = new double[pathLength * 2];
+            System.arraycopy(pathValues, 0, tmpValues, 0, pathLength);
+            pathValues = tmpValues;
+            boolean[] tmpUndefined = new boolean[pathLength * 2];
+            System.arraycopy(pathUndefined, 0, tmpUndefined, 0, pathLength);
+            pathUndefined = tmpUndefined;
+        }
+        double prefix;
+        boolean undefined;
+        if (0 == pathLength) {
+            prefix = elementAggregator.getInitialValue();
+            undefined = false;
         } else {
-            value = null;
+            prefix = pathValues[pathLength - 1];
+            undefined = pathUndefined[pathLength - 1];
         }
-        path.add(value);
+        if (!undefined) {
+            if (part.hasValue(observable)) {
+                prefix = elementAggregator.calculate(prefix, part.getObservedValue(observable, localValue));
+            } else {
+                undefined = true;
+            }
+        }
+        pathValues[pathLength] = prefix;
+        pathUndefined[pathLength] = undefined;
+        pathLength++;
     }
     
     /**
-     * Removes the last value added by {@link #push(PipelineNodeSystemPart)}.
+     * Removes the last value added by {@link #push(PipelineNodeSystemPart, boolean)}. The first value is kept.
      */
     void pop() {
-        int pos = path.size() - 1;
-        if (pos > 0) {
-            path.remove(pos);
+        if (pathLength > 1) {
+            pathLength--;
         }
     }
     
     /**
-     * Notifies that a path was completed and updates {@link #value} based on {@link #pathValue} 
-     * and {@link #aggregator}.
+     * Notifies that a path was completed and updates {@link #value} based on the aggregated value of the 
+     * current path and {@link #topologyAggregator}.
      */
     void pathCompleted() {
-        boolean undefined = false;
-        double tmp = elementAggregator.getInitialValue();
-        int pathLength = path.size();
-        for (int e = 0; !undefined && e < pathLength; e++) {
-            Double value = path.get(e);
-            if (null == value) {
-                undefined = true;
-            } else {
-                tmp = elementAggregator.calculate(tmp, value);
-            }
+        boolean undefined;
+        double tmp;
+        if (0 == pathLength) {
+            undefined = false;
+            tmp = elementAggregator.getInitialValue();
+        } else {
+            undefined = pathUndefined[pathLength - 1];
+            tmp = pathValues[pathLength - 1];
         }
         if (!undefined) {
             if (pathAverage && pathLength > 0) {
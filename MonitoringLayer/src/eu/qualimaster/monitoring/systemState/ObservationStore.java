@@ -0,0 +1,262 @@
+/*
+ * Copyright 2009-2015 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.monitoring.systemState;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import eu.qualimaster.monitoring.observations.IObservation;
+import eu.qualimaster.monitoring.observations.IObservationProvider;
+import eu.qualimaster.monitoring.observations.ObservationFactory;
+import eu.qualimaster.monitoring.parts.IPartType;
+import eu.qualimaster.observables.IObservable;
+
+/**
+ * Stores the observations of a system part. The observables and their observations are determined once at 
+ * construction and kept in arrays indexed by an immutable map, i.e., looking up an observation does not require
+ * locking and updates are performed lock-free by the (atomic) observations. Writers announce their updates via
+ * {@link #beginUpdate()} and {@link #endUpdate()} so that {@link #snapshot(double[], boolean[])} can read the
+ * values of all observations optimistically and retry if an update happened in the meantime.
+ * 
+ * @author Holger Eichelberger
+ */
+class ObservationStore implements Serializable {
+
+    private static final long serialVersionUID = -2238706931958165893L;
+    private static final int SNAPSHOT_ATTEMPTS = 10;
+    private final IObservable[] observables;
+    private final IObservation[] observations;
+    private final Map<IObservable, Integer> index;
+    private final Collection<IObservable> observableList;
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong finished = new AtomicLong();
+
+    /**
+     * Creates an observation store for the observables of the given part type, i.e., the observables registered 
+     * with {@link ObservationFactory} and the additional ones of the {@link SystemState#getConfigurer() configurer}.
+     * 
+     * @param type the part type
+     * @param provider the observation provider owning this store and to be passed to the observations
+     */
+    ObservationStore(IPartType type, IObservationProvider provider) {
+        Set<IObservable> tmp = new LinkedHashSet<IObservable>();
+        addAll(tmp, ObservationFactory.getObservations(type));
+        if (null != SystemState.getConfigurer()) {
+            addAll(tmp, SystemState.getConfigurer().additionalObservables(type));
+        }
+        observables = tmp.toArray(new IObservable[tmp.size()]);
+        observations = new IObservation[observables.length];
+        for (int o = 0; o < observables.length; o++) {
+            observations[o] = ObservationFactory.createObservation(observables[o], type, provider);
+        }
+        index = createIndex(observables);
+        observableList = Collections.unmodifiableList(Arrays.asList(observables));
+    }
+
+    /**
+     * Creates a copy of an observation store. The observables are shared, the observations are copied.
+     * 
+     * @param source the source store
+     * @param provider the observation provider owning this store and to be passed to the copied observations
+     */
+    ObservationStore(ObservationStore source, IObservationProvider provider) {
+        observables = source.observables;
+        index = source.index;
+        observableList = source.observableList;
+        observations = new IObservation[observables.length];
+        for (int o = 0; o < observables.length; o++) {
+            IObservation observation = source.observations[o];
+            if (null != observation) {
+                observations[o] = observation.copy(provider);
+            }
+        }
+    }
+
+    /**
+     * Adds all elements from <code>data</code> to <code>set</code>.
+     * 
+     * @param <T> the data type
+     * @param set the set to be modified as a side effect
+     * @param data the data to be added to <code>set</code> (may be <b>null</b>)
+     */
+    static <T> void addAll(Set<T> set, List<T> data) {
+        if (null != data) {
+            for (int d = 0; d < data.size(); d++) {
+                set.add(data.get(d));
+            }
+        }
+    }
+
+    /**
+     * Creates the (unmodifiable) index of the given observables.
+     * 
+     * @param observables the observables
+     * @return the index
+     */
+    private static Map<IObservable, Integer> createIndex(IObservable[] observables) {
+        Map<IObservable, Integer> result = new HashMap<IObservable, Integer>();
+        for (int o = 0; o < observables.length; o++) {
+            result.put(observables[o], o);
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Returns the observation for the given observable.
+     * 
+     * @param observable the observable
+     * @return the observation or <b>null</b> if <code>observable</code> is not supported
+     */
+    IObservation get(IObservable observable) {
+        Integer pos = null == observable ? null : index.get(observable);
+        return null == pos ? null : observations[pos];
+    }
+
+    /**
+     * Returns the number of observables in this store.
+     * 
+     * @return the number of observables
+     */
+    int size() {
+        return observables.length;
+    }
+
+    /**
+     * Returns the specified observable.
+     * 
+     * @param index the 0-based index
+     * @return the observable
+     * @throws IndexOutOfBoundsException if <code>index &lt; 0 || index &gt;={@link #size()}</code>
+     */
+    IObservable getObservable(int index) {
+        return observables[index];
+    }
+
+    /**
+     * Returns the specified observation.
+     * 
+     * @param index the 0-based index
+     * @return the observation (may be <b>null</b> if no observation can be created for the observable)
+     * @throws IndexOutOfBoundsException if <code>index &lt; 0 || index &gt;={@link #size()}</code>
+     */
+    IObservation getObservation(int index) {
+        return observations[index];
+    }
+
+    /**
+     * Returns the observables in this store.
+     * 
+     * @return the observables (unmodifiable)
+     */
+    Collection<IObservable> observables() {
+        return observableList;
+    }
+
+    /**
+     * Announces that an update of the observations starts. Must be followed by {@link #endUpdate()}.
+     */
+    void beginUpdate() {
+        started.incrementAndGet();
+    }
+
+    /**
+     * Announces that an update of the observations ended.
+     */
+    void endUpdate() {
+        finished.incrementAndGet();
+    }
+
+    /**
+     * Takes a snapshot of the values of all observations. Retries reading if updates were performed concurrently
+     * and, if no consistent snapshot can be obtained after a few attempts, returns the last values read.
+     * 
+     * @param values the values of the observations in the sequence of {@link #getObservable(int)} (at least 
+     *     {@link #size()} entries, modified as a side effect, unspecified if the value is not set)
+     * @param set whether the respective value is set (at least {@link #size()} entries, modified as a side effect)
+     * @return <code>true</code> if the snapshot is consistent, <code>false</code> if concurrent updates happened
+     */
+    boolean snapshot(double[] values, boolean[] set) {
+        boolean consistent = false;
+        for (int a = 0; !consistent && a < SNAPSHOT_ATTEMPTS; a++) {
+            long stamp = finished.get();
+            if (started.get() == stamp) {
+                read(values, set);
+                consistent = started.get() == stamp;
+            } else {
+                Thread.yield();
+            }
+        }
+        if (!consistent) {
+            read(values, set);
+        }
+        return consistent;
+    }
+
+    /**
+     * Reads the values of all observations.
+     * 
+     * @param values the values (modified as a side effect)
+     * @param set whether the respective value is set (modified as a side effect)
+     */
+    private void read(double[] values, boolean[] set) {
+        for (int o = 0; o < observations.length; o++) {
+            IObservation observation = observations[o];
+            boolean isSet = null != observation && observation.isValueSet();
+            set[o] = isSet;
+            values[o] = isSet ? observation.getValue() : 0;
+        }
+    }
+
+    /**
+     * Clears all observations.
+     */
+    void clear() {
+        beginUpdate();
+        try {
+            for (int o = 0; o < observations.length; o++) {
+                if (null != observations[o]) {
+                    observations[o].clear();
+                }
+            }
+        } finally {
+            endUpdate();
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder("{");
+        for (int o = 0; o < observables.length; o++) {
+            if (o > 0) {
+                result.append(", ");
+            }
+            result.append(observables[o]);
+            result.append("=");
+            result.append(observations[o]);
+        }
+        result.append("}");
+        return result.toString();
+    }
+
+}
@@ -0,0 +1,694 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.monitoring.systemState;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable map sharing its structure with the map it was {@link #edit() derived} from (hash array mapped trie).
+ * Changing a few entries copies only the trie nodes on the paths to these entries, i.e., the work is proportional
+ * to the number of changes rather than to the size of the map. Neither keys nor values may be <b>null</b>.
+ * Serialized as {@link HashMap}.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ * @author Holger Eichelberger
+ */
+class PersistentMap<K, V> extends AbstractMap<K, V> implements Serializable {
+
+    private static final long serialVersionUID = 5381650617385904120L;
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final int MAX_DEPTH = 10; // 32 / BITS bitmap levels plus collision level
+    @SuppressWarnings("rawtypes")
+    private static final PersistentMap EMPTY = new PersistentMap(null, 0);
+
+    private final transient Node root;
+    private final transient int size;
+
+    /**
+     * Creates a map.
+     *
+     * @param root the root node, <b>null</b> if empty
+     * @param size the number of entries
+     */
+    private PersistentMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Returns the empty map.
+     *
+     * @param <K> the key type
+     * @param <V> the value type
+     * @return the empty map
+     */
+    @SuppressWarnings("unchecked")
+    static <K, V> PersistentMap<K, V> empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Returns the spread hash code of a key.
+     *
+     * @param key the key
+     * @return the hash code
+     */
+    private static int hash(Object key) {
+        int hash = key.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Returns the bit denoting the slot of a hash code on the level given by <code>shift</code>.
+     *
+     * @param hash the hash code
+     * @param shift the shift of the level
+     * @return the bit
+     */
+    private static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    /**
+     * Returns a copy of an array of key-value pairs with the pair at <code>index</code> removed.
+     *
+     * @param array the array
+     * @param index the pair index
+     * @return the copy
+     */
+    private static Object[] removePair(Object[] array, int index) {
+        Object[] result = new Object[array.length - 2];
+        System.arraycopy(array, 0, result, 0, 2 * index);
+        System.arraycopy(array, 2 * index + 2, result, 2 * index, result.length - 2 * index);
+        return result;
+    }
+
+    /**
+     * Returns a copy of an array of key-value pairs with a pair inserted at <code>index</code>.
+     *
+     * @param array the array
+     * @param index the pair index
+     * @param key the key, <b>null</b> if <code>value</code> is a node
+     * @param value the value
+     * @return the copy
+     */
+    private static Object[] insertPair(Object[] array, int index, Object key, Object value) {
+        Object[] result = new Object[array.length + 2];
+        System.arraycopy(array, 0, result, 0, 2 * index);
+        result[2 * index] = key;
+        result[2 * index + 1] = value;
+        System.arraycopy(array, 2 * index, result, 2 * index + 2, array.length - 2 * index);
+        return result;
+    }
+
+    /**
+     * A trie node storing key-value pairs in an array. A <b>null</b> key denotes that the value is a child node.
+     * Nodes are immutable unless they are owned by the editor modifying them.
+     *
+     * @author Holger Eichelberger
+     */
+    private abstract static class Node {
+
+        private Object owner;
+        private Object[] array;
+
+        /**
+         * Creates a node.
+         *
+         * @param owner the owning editor, <b>null</b> for none
+         * @param array the key-value pairs
+         */
+        private Node(Object owner, Object[] array) {
+            this.owner = owner;
+            this.array = array;
+        }
+
+        /**
+         * Returns the value of a key.
+         *
+         * @param shift the shift of the level of this node
+         * @param hash the hash code of <code>key</code>
+         * @param key the key
+         * @return the value, <b>null</b> if not found
+         */
+        abstract Object find(int shift, int hash, Object key);
+
+        /**
+         * Puts a key-value pair.
+         *
+         * @param editor the editor
+         * @param shift the shift of the level of this node
+         * @param hash the hash code of <code>key</code>
+         * @param key the key
+         * @param value the value
+         * @return the node replacing this node, this node if unchanged or modified in place
+         */
+        abstract Node put(Editor<?, ?> editor, int shift, int hash, Object key, Object value);
+
+        /**
+         * Removes a key.
+         *
+         * @param editor the editor
+         * @param shift the shift of the level of this node
+         * @param hash the hash code of <code>key</code>
+         * @param key the key
+         * @return the node replacing this node, this node if unchanged or modified in place, <b>null</b> if empty
+         */
+        abstract Node remove(Editor<?, ?> editor, int shift, int hash, Object key);
+
+        /**
+         * Returns a node with the given pairs which may be modified by <code>editor</code>, i.e., this node if
+         * owned by <code>editor</code> or a copy else.
+         *
+         * @param editor the editor
+         * @param array the pairs of the result
+         * @return the node
+         */
+        abstract Node edit(Editor<?, ?> editor, Object[] array);
+
+        /**
+         * Returns a node with the pairs of this node which may be modified by <code>editor</code>.
+         *
+         * @param editor the editor
+         * @return the node
+         * @see #edit(Editor, Object[])
+         */
+        Node edit(Editor<?, ?> editor) {
+            return editor.owner == owner ? this : edit(editor, array.clone());
+        }
+
+        /**
+         * Returns whether this node is owned by <code>editor</code>.
+         *
+         * @param editor the editor
+         * @return <code>true</code> if owned, <code>false</code> else
+         */
+        boolean isOwnedBy(Editor<?, ?> editor) {
+            return editor.owner == owner;
+        }
+
+    }
+
+    /**
+     * A node distinguishing up to 32 slots by a part of the hash code.
+     *
+     * @author Holger Eichelberger
+     */
+    private static class BitmapNode extends Node {
+
+        private int bitmap;
+
+        /**
+         * Creates a node.
+         *
+         * @param owner the owning editor, <b>null</b> for none
+         * @param bitmap the used slots
+         * @param array the key-value pairs of the used slots
+         */
+        private BitmapNode(Object owner, int bitmap, Object[] array) {
+            super(owner, array);
+            this.bitmap = bitmap;
+        }
+
+        /**
+         * Returns the pair index of a slot.
+         *
+         * @param bit the bit of the slot
+         * @return the pair index
+         */
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        Object find(int shift, int hash, Object key) {
+            Object result = null;
+            int bit = bit(hash, shift);
+            if (0 != (bitmap & bit)) {
+                int idx = index(bit);
+                Object k = super.array[2 * idx];
+                Object v = super.array[2 * idx + 1];
+                if (null == k) {
+                    result = ((Node) v).find(shift + BITS, hash, key);
+                } else if (key.equals(k)) {
+                    result = v;
+                }
+            }
+            return result;
+        }
+
+        @Override
+        Node put(Editor<?, ?> editor, int shift, int hash, Object key, Object value) {
+            Node result = this;
+            int bit = bit(hash, shift);
+            int idx = index(bit);
+            if (0 == (bitmap & bit)) {
+                editor.added = true;
+                result = edit(editor, insertPair(super.array, idx, key, value));
+                ((BitmapNode) result).bitmap = bitmap | bit;
+            } else {
+                Object k = super.array[2 * idx];
+                Object v = super.array[2 * idx + 1];
+                if (null == k) {
+                    Node child = ((Node) v).put(editor, shift + BITS, hash, key, value);
+                    if (child != v) {
+                        result = edit(editor);
+                        result.array[2 * idx + 1] = child;
+                    }
+                } else if (key.equals(k)) {
+                    if (!value.equals(v)) {
+                        result = edit(editor);
+                        result.array[2 * idx + 1] = value;
+                    }
+                } else {
+                    editor.added = true;
+                    Node child = createNode(editor, shift + BITS, k, v, hash, key, value);
+                    result = edit(editor);
+                    result.array[2 * idx] = null;
+                    result.array[2 * idx + 1] = child;
+                }
+            }
+            return result;
+        }
+
+        @Override
+        Node remove(Editor<?, ?> editor, int shift, int hash, Object key) {
+            Node result = this;
+            int bit = bit(hash, shift);
+            if (0 != (bitmap & bit)) {
+                int idx = index(bit);
+                Object k = super.array[2 * idx];
+                Object v = super.array[2 * idx + 1];
+                if (null == k) {
+                    Node child = ((Node) v).remove(editor, shift + BITS, hash, key);
+                    if (null == child) {
+                        result = removeSlot(editor, bit, idx);
+                    } else if (child != v) {
+                        result = edit(editor);
+                        result.array[2 * idx + 1] = child;
+                    }
+                } else if (key.equals(k)) {
+                    editor.removed = true;
+                    result = removeSlot(editor, bit, idx);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Removes a slot.
+         *
+         * @param editor the editor
+         * @param bit the bit of the slot
+         * @param idx the pair index of the slot
+         * @return the node replacing this node, <b>null</b> if empty
+         */
+        private Node removeSlot(Editor<?, ?> editor, int bit, int idx) {
+            Node result = null;
+            if (bitmap != bit) {
+                result = edit(editor, removePair(super.array, idx));
+                ((BitmapNode) result).bitmap = bitmap & ~bit;
+            }
+            return result;
+        }
+
+        @Override
+        Node edit(Editor<?, ?> editor, Object[] array) {
+            Node result;
+            if (isOwnedBy(editor)) {
+                super.array = array;
+                result = this;
+            } else {
+                editor.copied++;
+                result = new BitmapNode(editor.owner, bitmap, array);
+            }
+            return result;
+        }
+
+    }
+
+    /**
+     * A node holding keys with the same hash code.
+     *
+     * @author Holger Eichelberger
+     */
+    private static class CollisionNode extends Node {
+
+        private int hash;
+
+        /**
+         * Creates a node.
+         *
+         * @param owner the owning editor, <b>null</b> for none
+         * @param hash the common hash code
+         * @param array the key-value pairs
+         */
+        private CollisionNode(Object owner, int hash, Object[] array) {
+            super(owner, array);
+            this.hash = hash;
+        }
+
+        /**
+         * Returns the pair index of a key.
+         *
+         * @param key the key
+         * @return the pair index, <code>-1</code> if not found
+         */
+        private int index(Object key) {
+            int result = -1;
+            for (int i = 0; result < 0 && i < super.array.length; i += 2) {
+                if (key.equals(super.array[i])) {
+                    result = i / 2;
+                }
+            }
+            return result;
+        }
+
+        @Override
+        Object find(int shift, int hash, Object key) {
+            Object result = null;
+            if (this.hash == hash) {
+                int idx = index(key);
+                if (idx >= 0) {
+                    result = super.array[2 * idx + 1];
+                }
+            }
+            return result;
+        }
+
+        @Override
+        Node put(Editor<?, ?> editor, int shift, int hash, Object key, Object value) {
+            Node result = this;
+            if (this.hash == hash) {
+                int idx = index(key);
+                if (idx < 0) {
+                    editor.added = true;
+                    result = edit(editor, insertPair(super.array, super.array.length / 2, key, value));
+                } else if (!value.equals(super.array[2 * idx + 1])) {
+                    result = edit(editor);
+                    result.array[2 * idx + 1] = value;
+                }
+            } else { // nest this node into a bitmap node distinguishing the hash codes
+                editor.copied++;
+                result = new BitmapNode(editor.owner, bit(this.hash, shift), new Object[] {null, this})
+                    .put(editor, shift, hash, key, value);
+            }
+            return result;
+        }
+
+        @Override
+        Node remove(Editor<?, ?> editor, int shift, int hash, Object key) {
+            Node result = this;
+            int idx = this.hash == hash ? index(key) : -1;
+            if (idx >= 0) {
+                editor.removed = true;
+                result = 2 == super.array.length ? null : edit(editor, removePair(super.array, idx));
+            }
+            return result;
+        }
+
+        @Override
+        Node edit(Editor<?, ?> editor, Object[] array) {
+            Node result;
+            if (isOwnedBy(editor)) {
+                super.array = array;
+                result = this;
+            } else {
+                editor.copied++;
+                result = new CollisionNode(editor.owner, hash, array);
+            }
+            return result;
+        }
+
+    }
+
+    /**
+     * Creates a node for two pairs with different keys.
+     *
+     * @param editor the editor
+     * @param shift the shift of the level of the node
+     * @param key1 the first key
+     * @param value1 the first value
+     * @param hash2 the hash code of the second key
+     * @param key2 the second key
+     * @param value2 the second value
+     * @return the node
+     */
+    private static Node createNode(Editor<?, ?> editor, int shift, Object key1, Object value1, int hash2,
+        Object key2, Object value2) {
+        Node result;
+        int hash1 = hash(key1);
+        editor.copied++;
+        if (hash1 == hash2) {
+            result = new CollisionNode(editor.owner, hash1, new Object[] {key1, value1, key2, value2});
+        } else {
+            result = new BitmapNode(editor.owner, 0, new Object[0])
+                .put(editor, shift, hash1, key1, value1)
+                .put(editor, shift, hash2, key2, value2);
+        }
+        return result;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return null != get(key);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V get(Object key) {
+        return null == root || null == key ? null : (V) root.find(0, hash(key), key);
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return new EntryIterator<K, V>(root);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+        };
+    }
+
+    /**
+     * Iterates depth-first over the entries of a trie.
+     *
+     * @param <K> the key type
+     * @param <V> the value type
+     * @author Holger Eichelberger
+     */
+    private static class EntryIterator<K, V> implements Iterator<Map.Entry<K, V>> {
+
+        private Object[][] arrays = new Object[MAX_DEPTH][];
+        private int[] positions = new int[MAX_DEPTH];
+        private int depth = -1;
+        private Map.Entry<K, V> next;
+
+        /**
+         * Creates an iterator.
+         *
+         * @param root the root node, <b>null</b> if empty
+         */
+        private EntryIterator(Node root) {
+            if (null != root) {
+                push(root);
+                advance();
+            }
+        }
+
+        /**
+         * Descends into a node.
+         *
+         * @param node the node
+         */
+        private void push(Node node) {
+            depth++;
+            arrays[depth] = node.array;
+            positions[depth] = 0;
+        }
+
+        /**
+         * Determines the next entry.
+         */
+        @SuppressWarnings("unchecked")
+        private void advance() {
+            next = null;
+            while (null == next && depth >= 0) {
+                Object[] array = arrays[depth];
+                int pos = positions[depth];
+                if (pos >= array.length) {
+                    arrays[depth] = null;
+                    depth--;
+                } else {
+                    positions[depth] = pos + 2;
+                    if (null == array[pos]) {
+                        push((Node) array[pos + 1]);
+                    } else {
+                        next = new AbstractMap.SimpleImmutableEntry<K, V>((K) array[pos], (V) array[pos + 1]);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return null != next;
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (null == next) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<K, V> result = next;
+            advance();
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+    }
+
+    /**
+     * Returns an editor deriving a new map from this map.
+     *
+     * @return the editor
+     */
+    Editor<K, V> edit() {
+        return new Editor<K, V>(root, size);
+    }
+
+    /**
+     * Derives a new map from a persistent map. Nodes copied by an editor are modified in place by further changes
+     * of the same editor, i.e., each node is copied at most once per editor. Not thread-safe.
+     *
+     * @param <K> the key type
+     * @param <V> the value type
+     * @author Holger Eichelberger
+     */
+    static class Editor<K, V> {
+
+        private Object owner = new Object();
+        private Node root;
+        private int size;
+        private int copied;
+        private boolean added;
+        private boolean removed;
+
+        /**
+         * Creates an editor.
+         *
+         * @param root the root node of the map to derive from
+         * @param size the size of the map to derive from
+         */
+        private Editor(Node root, int size) {
+            this.root = root;
+            this.size = size;
+        }
+
+        /**
+         * Puts a key-value pair.
+         *
+         * @param key the key
+         * @param value the value
+         * @throws NullPointerException if <code>key</code> or <code>value</code> is <b>null</b>
+         */
+        void put(K key, V value) {
+            if (null == key || null == value) {
+                throw new NullPointerException();
+            }
+            added = false;
+            int hash = hash(key);
+            if (null == root) {
+                copied++;
+                root = new BitmapNode(owner, 0, new Object[0]);
+            }
+            root = root.put(this, 0, hash, key, value);
+            if (added) {
+                size++;
+            }
+        }
+
+        /**
+         * Removes a key.
+         *
+         * @param key the key
+         */
+        void remove(Object key) {
+            if (null != key && null != root) {
+                removed = false;
+                root = root.remove(this, 0, hash(key), key);
+                if (removed) {
+                    size--;
+                }
+            }
+        }
+
+        /**
+         * Returns the number of trie nodes copied by this editor, i.e., the structural work spent so far.
+         *
+         * @return the number of copied nodes
+         */
+        int getCopiedNodes() {
+            return copied;
+        }
+
+        /**
+         * Builds the map. The editor may be used further, but will not modify the returned map.
+         *
+         * @return the map
+         */
+        PersistentMap<K, V> build() {
+            owner = new Object(); // hand over the nodes to the map
+            return null == root ? PersistentMap.<K, V>empty() : new PersistentMap<K, V>(root, size);
+        }
+
+    }
+
+    /**
+     * Replaces this map by a hash map for serialization.
+     *
+     * @return the hash map
+     */
+    private Object writeReplace() {
+        return new HashMap<K, V>(this);
+    }
+
+}
@@ -50,6 +50,7 @@ public class PipelineNodeSystemPart extends SystemPart implements ITopologyProvi
     private boolean useThrift;
     private PipelineSystemPart pipeline;
     private NodeImplementationSystemPart parent; // parent
+    private transient volatile ProjectionCache projection;
     
     /**
      * Creates a pipeline node system part.
@@ -374,17 +375,36 @@ public class PipelineNodeSystemPart extends SystemPart implements ITopologyProvi
 
     @Override
     public ITopologyProjection getTopologyProjection() {
+        PipelineTopology topology = getParentTopologyProvider().getTopology();
+        NodeImplementationSystemPart algorithm = current;
+        int nodeCount = null == algorithm ? 0 : algorithm.getNodeCount();
+        ProjectionCache cache = projection;
+        if (!ProjectionCache.isValid(cache, topology, algorithm, nodeCount)) {
+            cache = new ProjectionCache(topology, algorithm, nodeCount, 
+                createTopologyProjection(topology, algorithm));
+            projection = cache;
+        }
+        return cache.getProjection();
+    }
+
+    /**
+     * Creates the topology projection for this node. 
+     * 
+     * @param topology the actual topology (may be <b>null</b>)
+     * @param algorithm the current algorithm (may be <b>null</b>)
+     * @return the projection (may be <b>null</b>)
+     */
+    private ITopologyProjection createTopologyProjection(PipelineTopology topology, 
+        NodeImplementationSystemPart algorithm) {
         ITopologyProjection result = null;
-        ITopologyProvider provider = getParentTopologyProvider();
-        PipelineTopology topology = provider.getTopology();
         if (null != topology) {
             Processor proc = topology.getProcessor(getName());
-            if (null != pipeline && null != current && current.getNodeCount() > 1) {
+            if (null != pipeline && null != algorithm && algorithm.getNodeCount() > 1) {
                 List<Processor> start = new ArrayList<Processor>();
                 List<Processor> end = new ArrayList<Processor>();
                 Map<Stream, Processor> next = new HashMap<Stream, Processor>();
                 start.add(proc);
-                List<Processor> enableNext = current.projectTopologyNodes(true);
+                List<Processor> enableNext = algorithm.projectTopologyNodes(true);
                 for (int o = 0; o < proc.getOutputCount(); o++) {
                     Stream out = proc.getOutput(o);
                     Processor target = out.getTarget();
@@ -394,7 +414,7 @@ public class PipelineNodeSystemPart extends SystemPart implements ITopologyProvi
                         next.put(out, null);
                     }
                 }
-                end.addAll(current.projectTopologyNodes(false));
+                end.addAll(algorithm.projectTopologyNodes(false));
                 result = new TopologyProjection(start, end, next);
             } else { // algorithm situation / fallback
                 result = new SingleNodeTopologyProjection(proc);
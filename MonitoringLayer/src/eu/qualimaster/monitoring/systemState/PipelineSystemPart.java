@@ -392,6 +392,7 @@ public class PipelineSystemPart extends SystemPart implements ITopologyProvider
      */
     protected void clear() {
         super.clear();
+        unregisterPartHistories();
         synchronized (elements) {
             elements.clear();
         }
@@ -407,6 +408,39 @@ public class PipelineSystemPart extends SystemPart implements ITopologyProvider
         }
     }
 
+    @Override
+    protected void unregisterHistory() {
+        super.unregisterHistory();
+        unregisterPartHistories();
+    }
+
+    /**
+     * Unregisters the histories of the contained parts.
+     */
+    private void unregisterPartHistories() {
+        synchronized (elements) {
+            for (PipelineNodeSystemPart element : elements.values()) {
+                element.unregisterHistory();
+            }
+        }
+        unregisterHistories(algorithms);
+        unregisterHistories(sources);
+        unregisterHistories(sinks);
+    }
+
+    /**
+     * Unregisters the histories of the given parts.
+     * 
+     * @param parts the parts (used for synchronization)
+     */
+    private static void unregisterHistories(Map<String, NodeImplementationSystemPart> parts) {
+        synchronized (parts) {
+            for (NodeImplementationSystemPart part : parts.values()) {
+                part.unregisterHistory();
+            }
+        }
+    }
+
     @Override
     protected void fill(String prefix, String name, FrozenSystemState state) {
         super.fill(prefix, name, state);
@@ -133,7 +133,10 @@ public class PlatformSystemPart extends SystemPart {
     public void removeMachines(Collection<Object> keys) {
         synchronized (machines) {
             for (Object key : keys) {
-                machines.remove(key);
+                MachineSystemPart removed = machines.remove(key);
+                if (null != removed) {
+                    removed.unregisterHistory();
+                }
             }
         }
     }
@@ -184,7 +187,10 @@ public class PlatformSystemPart extends SystemPart {
     public void removeHwNode(Collection<Object> keys) {
         synchronized (hwClusters) {
             for (Object key : keys) {
-                hwClusters.remove(key);
+                HwNodeSystemPart removed = hwClusters.remove(key);
+                if (null != removed) {
+                    removed.unregisterHistory();
+                }
             }
         }
     }
@@ -235,7 +241,10 @@ public class PlatformSystemPart extends SystemPart {
     public void removeCloudEnvironment(Collection<Object> keys) {
         synchronized (clouds) {
             for (Object key : keys) {
-                clouds.remove(key);
+                CloudEnvironmentSystemPart removed = clouds.remove(key);
+                if (null != removed) {
+                    removed.unregisterHistory();
+                }
             }
         }
     }
@@ -254,6 +263,7 @@ public class PlatformSystemPart extends SystemPart {
      */
     protected void clear() {
         super.clear();
+        unregisterPartHistories();
         synchronized (machines) {
             machines.clear();
         }
@@ -265,6 +275,33 @@ public class PlatformSystemPart extends SystemPart {
         }
     }
 
+    @Override
+    protected void unregisterHistory() {
+        super.unregisterHistory();
+        unregisterPartHistories();
+    }
+
+    /**
+     * Unregisters the histories of the contained parts.
+     */
+    private void unregisterPartHistories() {
+        synchronized (machines) {
+            for (MachineSystemPart machine : machines.values()) {
+                machine.unregisterHistory();
+            }
+        }
+        synchronized (hwClusters) {
+            for (HwNodeSystemPart hwNode : hwClusters.values()) {
+                hwNode.unregisterHistory();
+            }
+        }
+        synchronized (clouds) {
+            for (CloudEnvironmentSystemPart cloud : clouds.values()) {
+                cloud.unregisterHistory();
+            }
+        }
+    }
+
     @Override
     protected void fill(String prefix, String name, FrozenSystemState state) {
         super.fill(prefix, name, state);
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.monitoring.systemState;
+
+import eu.qualimaster.monitoring.topology.ITopologyProjection;
+import eu.qualimaster.monitoring.topology.PipelineTopology;
+
+/**
+ * Caches a topology projection of a system part along with the information it was derived from, so that the
+ * (cached) topology plans can be reused as long as the topology, the current algorithm and its number of nodes
+ * do not change. Instances are immutable and shall be replaced as a whole.
+ *
+ * @author Holger Eichelberger
+ */
+class ProjectionCache {
+
+    private PipelineTopology topology;
+    private NodeImplementationSystemPart algorithm;
+    private int nodeCount;
+    private ITopologyProjection projection;
+
+    /**
+     * Creates a cache entry.
+     *
+     * @param topology the topology the projection was derived from
+     * @param algorithm the algorithm the projection was derived from (may be <b>null</b>)
+     * @param nodeCount the number of nodes of the algorithm or the part at derivation time
+     * @param projection the projection (may be <b>null</b>)
+     */
+    ProjectionCache(PipelineTopology topology, NodeImplementationSystemPart algorithm, int nodeCount,
+        ITopologyProjection projection) {
+        this.topology = topology;
+        this.algorithm = algorithm;
+        this.nodeCount = nodeCount;
+        this.projection = projection;
+    }
+
+    /**
+     * Returns whether the cached projection is still valid.
+     *
+     * @param cache the cache entry (may be <b>null</b>)
+     * @param topology the actual topology
+     * @param algorithm the actual algorithm (may be <b>null</b>)
+     * @param nodeCount the actual number of nodes
+     * @return <code>true</code> if valid, <code>false</code> else
+     */
+    static boolean isValid(ProjectionCache cache, PipelineTopology topology, NodeImplementationSystemPart algorithm,
+        int nodeCount) {
+        return null != cache && cache.topology == topology && cache.algorithm == algorithm
+            && cache.nodeCount == nodeCount;
+    }
+
+    /**
+     * Returns the cached projection.
+     *
+     * @return the projection (may be <b>null</b>)
+     */
+    ITopologyProjection getProjection() {
+        return projection;
+    }
+
+}
@@ -22,14 +22,17 @@ import eu.qualimaster.monitoring.topology.ITopologyVisitor;
 import eu.qualimaster.monitoring.topology.PipelineTopology;
 import eu.qualimaster.monitoring.topology.PipelineTopology.Processor;
 import eu.qualimaster.monitoring.topology.PipelineTopology.Stream;
-import eu.qualimaster.monitoring.topology.TopologyWalker.DepthFirstOnceVisitingStrategy;
+import eu.qualimaster.monitoring.topology.TopologyPlan;
 import eu.qualimaster.monitoring.topology.TopologyWalker;
 import net.ssehub.easy.basics.pool.IPoolManager;
 import net.ssehub.easy.basics.pool.Pool;
 
 /**
- * A pipeline statistics walker. Instances can be reused, calculation is done via {@link #visit(ITopologyProvider)}. 
- * Using the {@link #POOL} is encouraged, but not mandatory.
+ * A pipeline statistics walker. Instances can be reused, calculation is done via 
+ * {@link #visit(ITopologyProvider, ObservationAggregator...)}. Using the {@link #POOL} is encouraged, but not 
+ * mandatory. The walk follows {@link TopologyWalker.DepthFirstOnceVisitingStrategy} through the cached 
+ * {@link TopologyPlan} of the topology (projection), i.e., the nodes are resolved once and all aggregators are 
+ * calculated in one linear pass over the plan.
  * 
  * @author Holger Eichelberger
  */
@@ -49,16 +52,15 @@ public class StatisticsWalker implements ITopologyVisitor {
         }
     });
     
-    private TopologyWalker walker;
     private transient ITopologyProvider provider;
     private transient ObservationAggregator[] aggregators;
+    private transient PipelineNodeSystemPart[] parts = new PipelineNodeSystemPart[10];
 
     /**
-     * Creates a statistics-collecting topology walker, with {@link TopologyWalker#DEPTH_FIRST_NODE_ONCE} strategy. 
-     * This constructor is intentionally accessible although there is a {@link #POOL}.
+     * Creates a statistics-collecting topology walker, with {@link TopologyWalker.DepthFirstOnceVisitingStrategy} 
+     * strategy. This constructor is intentionally accessible although there is a {@link #POOL}.
      */
     public StatisticsWalker() {
-        this.walker = new TopologyWalker(new DepthFirstOnceVisitingStrategy(), this);
     }
     
     /**
@@ -88,19 +90,65 @@ public class StatisticsWalker implements ITopologyVisitor {
         this.aggregators = aggregators;
         PipelineTopology topology = provider.getTopology();
         ITopologyProjection projection = provider.getTopologyProjection();
+        TopologyPlan plan;
         if (null == projection) {
-            walker.visit(topology);
+            plan = null == topology || 0 == topology.getSourceCount() ? null : TopologyPlan.getPlan(topology);
         } else {
-            walker.visit(projection);
+            plan = TopologyPlan.getPlan(projection);
+        }
+        if (null != plan) {
+            visit(plan);
         }
         clear();
     }
 
+    /**
+     * Calculates the aggregators along <code>plan</code>.
+     * 
+     * @param plan the plan
+     */
+    private void visit(TopologyPlan plan) {
+        int count = plan.getProcessorCount();
+        if (parts.length < count) {
+            parts = new PipelineNodeSystemPart[count];
+        }
+        for (int p = 0; p < count; p++) {
+            parts[p] = provider.getNode(plan.getProcessor(p).getName());
+        }
+        for (int o = 0; o < plan.getOperationCount(); o++) {
+            int kind = plan.getKind(o);
+            if (TopologyPlan.STREAM != kind && !plan.isLoop(o)) {
+                PipelineNodeSystemPart nodePart = parts[plan.getProcessorIndex(o)];
+                if (TopologyPlan.ENTER == kind) {
+                    enter(nodePart, plan.isEnd(o), false);
+                } else {
+                    aggregate(nodePart, false);
+                }
+            } else if (TopologyPlan.ENTER == kind) {
+                enter(null, plan.isEnd(o), true);
+            }
+        }
+        for (int p = 0; p < count; p++) {
+            parts[p] = null;
+        }
+    }
+
     @Override
     public void enter(Processor node, boolean isEnd, boolean isLoop) {
+        enter(isLoop || null == provider ? null : provider.getNode(node.getName()), isEnd, isLoop);
+    }
+
+    /**
+     * Starts visiting a node.
+     * 
+     * @param nodePart the node part (may be <b>null</b> if unknown)
+     * @param isEnd whether the node is an end of the visit
+     * @param isLoop whether the node is part of a loop
+     */
+    private void enter(PipelineNodeSystemPart nodePart, boolean isEnd, boolean isLoop) {
         boolean complete = false;
         if (!isLoop) {
-            PipelineNodeSystemPart nodePart = aggregate(node, true);
+            aggregate(nodePart, true);
             if (isEnd) {
                 if (null != nodePart) {
                     // do not cause an end part for data mgt nodes at end - as implementation paths are intentionally
@@ -128,36 +176,28 @@ public class StatisticsWalker implements ITopologyVisitor {
 
     @Override
     public void exit(Processor node, boolean isEnd, boolean isLoop) {
-        if (!isLoop) {
-            aggregate(node, false);
+        if (!isLoop && null != provider) {
+            aggregate(provider.getNode(node.getName()), false);
         }
     }
 
     /**
-     * Aggregates the values for <code>node</code>.
+     * Aggregates the values for <code>nodePart</code>.
      * 
-     * @param node the node to aggregate the values for
+     * @param nodePart the node part to aggregate the values for (ignored if <b>null</b>)
      * @param enter called by enter (<code>true</code>), else called by exit (<code>false</code>)
-     * @return the node part on which the aggregation happened
      */
-    private PipelineNodeSystemPart aggregate(Processor node, boolean enter) {
-        PipelineNodeSystemPart nodePart;
-        if (null != provider) {
-            nodePart = provider.getNode(node.getName());
-            if (null != nodePart) {
-                for (int a = 0; a < aggregators.length; a++) {
-                    ObservationAggregator agg = aggregators[a];
-                    if (enter) {
-                        agg.push(nodePart, nodePart == provider);
-                    } else {
-                        agg.pop();
-                    }
+    private void aggregate(PipelineNodeSystemPart nodePart, boolean enter) {
+        if (null != nodePart) {
+            for (int a = 0; a < aggregators.length; a++) {
+                ObservationAggregator agg = aggregators[a];
+                if (enter) {
+                    agg.push(nodePart, nodePart == provider);
+                } else {
+                    agg.pop();
                 }
             }
-        } else {
-            nodePart = null;
         }
-        return nodePart;
     }
 
     /**
@@ -20,12 +20,14 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import eu.qualimaster.coordination.INameMapping.Component.Type;
+import eu.qualimaster.monitoring.MonitoringConfiguration;
 import eu.qualimaster.monitoring.events.FrozenSystemState;
+import eu.qualimaster.monitoring.history.MonitoringHistory;
+import eu.qualimaster.monitoring.history.ObservationHistory;
 import eu.qualimaster.monitoring.observations.AbstractCompoundObservation;
 import eu.qualimaster.monitoring.observations.IObservation;
 import eu.qualimaster.monitoring.observations.IObservationProvider;
@@ -49,8 +51,50 @@ public class SystemPart implements IObservationProvider, ITopologyProvider, Seri
     private IPartType type;
     private Type componentType;
     private String name;
-    private Map<IObservable, IObservation> parameterValues = new HashMap<IObservable, IObservation>();
+    private ObservationStore observations;
     private Map<Object, Map<IObservable, Double>> valueStore = null;
+    private transient FrozenKeys frozenKeys;
+    private transient ObservationHistory history;
+
+    /**
+     * The keys of the observables in a frozen system state for a given prefix and name.
+     * 
+     * @author Holger Eichelberger
+     */
+    private static class FrozenKeys {
+
+        private String prefix;
+        private String name;
+        private String[] keys;
+
+        /**
+         * Creates the frozen keys.
+         * 
+         * @param prefix the prefix used for filling
+         * @param name the name of the element
+         * @param store the observation store to create the keys for
+         */
+        private FrozenKeys(String prefix, String name, ObservationStore store) {
+            this.prefix = prefix;
+            this.name = name;
+            keys = new String[store.size()];
+            for (int o = 0; o < keys.length; o++) {
+                keys[o] = FrozenSystemState.obtainKey(prefix, name, store.getObservable(o));
+            }
+        }
+
+        /**
+         * Returns whether these keys are valid for the given prefix and name.
+         * 
+         * @param prefix the prefix used for filling
+         * @param name the name of the element
+         * @return <code>true</code> if valid, <code>false</code> else
+         */
+        private boolean isValidFor(String prefix, String name) {
+            return this.prefix.equals(prefix) && this.name.equals(name);
+        }
+
+    }
 
     /**
      * Creates a system part with observables and no component type (<b>null</b>). In case that this class is a 
@@ -75,11 +119,9 @@ public class SystemPart implements IObservationProvider, ITopologyProvider, Seri
         this.type = type;
         this.name = name;
         this.componentType = componentType;
-        synchronized (parameterValues) {
-            addObservables(ObservationFactory.getObservations(type));
-            if (null != SystemState.getConfigurer()) {
-                addObservables(SystemState.getConfigurer().additionalObservables(type));
-            }
+        this.observations = new ObservationStore(type, this);
+        if (MonitoringConfiguration.isMonitoringHistoryEnabled()) {
+            this.history = new ObservationHistory(observations.observables());
         }
     }
 
@@ -93,13 +135,8 @@ public class SystemPart implements IObservationProvider, ITopologyProvider, Seri
         this.type = source.type;
         this.name = source.name;
         this.componentType = source.componentType;
-        synchronized (parameterValues) {
-            for (Map.Entry<IObservable, IObservation> value : source.parameterValues.entrySet()) {
-                IObservable observable = value.getKey();
-                IObservation observation = value.getValue();
-                this.parameterValues.put(observable, observation.copy(this));
-            }
-        }
+        this.observations = new ObservationStore(source.observations, this);
+        // no history, copies shall not record into or be registered with the history of source
     }
     
     /**
@@ -110,9 +147,9 @@ public class SystemPart implements IObservationProvider, ITopologyProvider, Seri
      */
     public static Collection<IObservable> getObservables(IPartType type) {
         Set<IObservable> result = new HashSet<IObservable>();
-        addAll(result, ObservationFactory.getObservations(type));
+        ObservationStore.addAll(result, ObservationFactory.getObservations(type));
         if (null != SystemState.getConfigurer()) {
-            addAll(result, SystemState.getConfigurer().additionalObservables(type));    
+            ObservationStore.addAll(result, SystemState.getConfigurer().additionalObservables(type));    
         }
         return result;
     }
@@ -123,41 +160,7 @@ public class SystemPart implements IObservationProvider, ITopologyProvider, Seri
      * @return all observables
      */
     public Collection<IObservable> getObservables() {
-        return parameterValues.keySet();
-    }
-
-    /**
-     * Adds all elements from <code>data</code> to <code>set</code>.
-     * 
-     * @param <T> the data type
-     * @param set the set to be modified as a side effect
-     * @param data the data to be added to <code>set</code>
-     */
-    private static <T> void addAll(Set<T> set, List<T> data) {
-        if (null != data) {
-            for (int d = 0; d < data.size(); d++) {
-                set.add(data.get(d));
-            }
-        }
-    }
-
-    /**
-     * Add observables (enables extension). Only unknown observables are added.
-     * 
-     * @param observables the observables to be added
-     */
-    private void addObservables(List<IObservable> observables) {
-        if (null != observables) {
-            synchronized (parameterValues) {
-                for (int i = 0; i < observables.size(); i++) {
-                    IObservable observable = observables.get(i);
-                    if (!parameterValues.containsKey(observable)) {
-                        parameterValues.put(observable, 
-                            ObservationFactory.createObservation(observable, type, this));
-                    }
-                }
-            }
-        }
+        return observations.observables();
     }
 
     /**
@@ -212,12 +215,15 @@ public class SystemPart implements IObservationProvider, ITopologyProvider, Seri
      */
     public Map<String, Double> copyObservables(boolean assignedOnly) {
         Map<String, Double> copy = new HashMap<String, Double>();
-        synchronized (parameterValues) {
-            for (IObservable observable : parameterValues.keySet()) {
-                if (!observable.isInternal()) {
-                    if (!assignedOnly || (assignedOnly && hasValue(observable))) { // reduce data load
-                        copy.put(observable.name(), getObservedValue(observable));
-                    }
+        int size = observations.size();
+        double[] values = new double[size];
+        boolean[] set = new boolean[size];
+        observations.snapshot(values, set);
+        for (int o = 0; o < size; o++) {
+            IObservable observable = observations.getObservable(o);
+            if (!observable.isInternal()) {
+                if (!assignedOnly || set[o]) { // reduce data load
+                    copy.put(observable.name(), set[o] ? values[o] : getObservedValue(observable));
                 }
             }
         }
@@ -233,11 +239,15 @@ public class SystemPart implements IObservationProvider, ITopologyProvider, Seri
      *   may be <b>null</b>
      */
     public void setValue(IObservable observable, double value, Object key) {
-        synchronized (parameterValues) {
-            IObservation observation = parameterValues.get(observable);
-            if (null != observation) {
+        IObservation observation = observations.get(observable);
+        if (null != observation) {
+            observations.beginUpdate();
+            try {
                 observation.setValue(value, key);
+            } finally {
+                observations.endUpdate();
             }
+            updateHistory(observable, observation);
         }
     }
     
@@ -250,11 +260,15 @@ public class SystemPart implements IObservationProvider, ITopologyProvider, Seri
      *   may be <b>null</b>
      */
     public void setValue(IObservable observable, Double value, Object key) {
-        synchronized (parameterValues) {
-            IObservation observation = parameterValues.get(observable);
-            if (null != observation && null != value) {
+        IObservation observation = observations.get(observable);
+        if (null != observation && null != value) {
+            observations.beginUpdate();
+            try {
                 observation.setValue(value, key);
+            } finally {
+                observations.endUpdate();
             }
+            updateHistory(observable, observation);
         }
     }
 
@@ -267,11 +281,15 @@ public class SystemPart implements IObservationProvider, ITopologyProvider, Seri
      *   may be <b>null</b>
      */
     public void incrementValue(IObservable observable, double value, Object key) {
-        synchronized (parameterValues) {
-            IObservation observation = parameterValues.get(observable);
-            if (null != observation) {
+        IObservation observation = observations.get(observable);
+        if (null != observation) {
+            observations.beginUpdate();
+            try {
                 observation.setValue(value, key);
+            } finally {
+                observations.endUpdate();
             }
+            updateHistory(observable, observation);
         }
     }
     
@@ -284,22 +302,46 @@ public class SystemPart implements IObservationProvider, ITopologyProvider, Seri
      *   may be <b>null</b>
      */
     public void incrementValue(IObservable observable, Double value, Object key) {
-        synchronized (parameterValues) {
-            IObservation observation = parameterValues.get(observable);
-            if (null != observation && null != value) {
+        IObservation observation = observations.get(observable);
+        if (null != observation && null != value) {
+            observations.beginUpdate();
+            try {
                 observation.setValue(value, key);
+            } finally {
+                observations.endUpdate();
             }
+            updateHistory(observable, observation);
+        }
+    }
+
+    /**
+     * Samples the value of <code>observation</code> into the history after an update.
+     * 
+     * @param observable the updated observable
+     * @param observation the updated observation
+     */
+    private void updateHistory(IObservable observable, IObservation observation) {
+        if (null != history) {
+            history.update(observable, observation, System.currentTimeMillis());
         }
     }
 
+    /**
+     * Returns the time-series history of the observables of this part.
+     * 
+     * @return the history, <b>null</b> if disabled
+     * @see MonitoringConfiguration#isMonitoringHistoryEnabled()
+     */
+    public ObservationHistory getHistory() {
+        return history;
+    }
+
     @Override
     public int getComponentCount(IObservable observable) {
         int result = 0;
-        synchronized (parameterValues) {
-            IObservation observation = parameterValues.get(observable);
-            if (null != observation) {
-                result = observation.getComponentCount();
-            }
+        IObservation observation = observations.get(observable);
+        if (null != observation) {
+            result = observation.getComponentCount();
         }
         return result;
     }
@@ -311,11 +353,15 @@ public class SystemPart implements IObservationProvider, ITopologyProvider, Seri
      * @param keys the keys for the components to be cleared
      */
     public void clearComponents(IObservable observable, Collection<Object> keys) {
-        synchronized (parameterValues) {
-            IObservation observation = parameterValues.get(observable);
-            if (null != observation) {
+        IObservation observation = observations.get(observable);
+        if (null != observation) {
+            observations.beginUpdate();
+            try {
                 observation.clearComponents(keys);
+            } finally {
+                observations.endUpdate();
             }
+            updateHistory(observable, observation);
         }
     }
     
@@ -326,10 +372,13 @@ public class SystemPart implements IObservationProvider, ITopologyProvider, Seri
      * @param observable the observable to clear
      */
     public void clear(IObservable observable) {
-        synchronized (parameterValues) {
-            IObservation observation = parameterValues.get(observable);
-            if (null != observation) {
+        IObservation observation = observations.get(observable);
+        if (null != observation) {
+            observations.beginUpdate();
+            try {
                 observation.clear();
+            } finally {
+                observations.endUpdate();
             }
         }
     }
@@ -337,11 +386,9 @@ public class SystemPart implements IObservationProvider, ITopologyProvider, Seri
     @Override
     public Set<Object> getComponentKeys(IObservable observable) {
         Set<Object> result = null;
-        synchronized (parameterValues) {
-            IObservation observation = parameterValues.get(observable);
-            if (null != observation) {
-                result = observation.getComponentKeys();
-            }
+        IObservation observation = observations.get(observable);
+        if (null != observation) {
+            result = observation.getComponentKeys();
         }
         if (null == result) {
             result = Collections.unmodifiableSet(new HashSet<Object>());
@@ -352,11 +399,9 @@ public class SystemPart implements IObservationProvider, ITopologyProvider, Seri
     @Override
     public ObservedValue getObservedValue(IObservable observable, Object key) {
         ObservedValue result = null;
-        synchronized (parameterValues) {
-            IObservation observation = parameterValues.get(observable);
-            if (null != observation) {
-                result = observation.getValue(key);
-            }
+        IObservation observation = observations.get(observable);
+        if (null != observation) {
+            result = observation.getValue(key);
         }
         return result;
     }
@@ -377,14 +422,12 @@ public class SystemPart implements IObservationProvider, ITopologyProvider, Seri
      */
     public double getObservedValue(IObservable observable, boolean localValue) {
         double result = 0;
-        synchronized (parameterValues) {
-            IObservation observation = parameterValues.get(observable);
-            if (null != observation) {
-                if (localValue) {
-                    result = observation.getLocalValue();
-                } else {
-                    result = observation.getValue();
-                }
+        IObservation observation = observations.get(observable);
+        if (null != observation) {
+            if (localValue) {
+                result = observation.getLocalValue();
+            } else {
+                result = observation.getValue();
             }
         }
         return result;
@@ -393,11 +436,9 @@ public class SystemPart implements IObservationProvider, ITopologyProvider, Seri
     @Override
     public long getLastUpdate(IObservable observable) {
         long result = -1;
-        synchronized (parameterValues) {
-            IObservation observation = parameterValues.get(observable);
-            if (null != observation) {
-                result = observation.getLastUpdate();
-            }
+        IObservation observation = observations.get(observable);
+        if (null != observation) {
+            result = observation.getLastUpdate();
         }
         return result;
     }
@@ -405,11 +446,9 @@ public class SystemPart implements IObservationProvider, ITopologyProvider, Seri
     @Override
     public int getObservedValueInt(IObservable observable) {
         int result = 0;
-        synchronized (parameterValues) {
-            IObservation observation = parameterValues.get(observable);
-            if (null != observation) {
-                result = (int) observation.getValue();
-            }
+        IObservation observation = observations.get(observable);
+        if (null != observation) {
+            result = (int) observation.getValue();
         }
         return result;
     }
@@ -417,20 +456,16 @@ public class SystemPart implements IObservationProvider, ITopologyProvider, Seri
     @Override
     public boolean hasValue(IObservable observable) {
         boolean result = false;
-        synchronized (parameterValues) {
-            IObservation observation = parameterValues.get(observable);
-            if (null != observation) {
-                result = observation.isValueSet();
-            }
+        IObservation observation = observations.get(observable);
+        if (null != observation) {
+            result = observation.isValueSet();
         }
         return result;
     }
     
     @Override
     public boolean supportsObservation(IObservable observable) {
-        synchronized (parameterValues) {
-            return null != parameterValues.get(observable);
-        }
+        return null != observations.get(observable);
     }
 
     @Override
@@ -451,11 +486,7 @@ public class SystemPart implements IObservationProvider, ITopologyProvider, Seri
      * Clears this system part.
      */
     protected void clear() {
-        synchronized (parameterValues) {
-            for (IObservation obs : parameterValues.values()) {
-                obs.clear();
-            }
-        }
+        observations.clear();
     }
     
     /**
@@ -466,19 +497,38 @@ public class SystemPart implements IObservationProvider, ITopologyProvider, Seri
      * @param state the state to be filled (modified as a side effect)
      */
     protected void fill(String prefix, String name, FrozenSystemState state) {
-        synchronized (parameterValues) {
-            for (Map.Entry<IObservable, IObservation> entry : parameterValues.entrySet()) {
-                IObservation observation = entry.getValue();
-                if (observation.isValueSet()) {
-                    state.setObservation(prefix, name, entry.getKey(), observation.getValue());
-                }
+        FrozenKeys keys = frozenKeys;
+        if (null == keys || !keys.isValidFor(prefix, name)) {
+            unregisterHistory();
+            keys = new FrozenKeys(prefix, name, observations);
+            frozenKeys = keys;
+            MonitoringHistory.register(MonitoringHistory.getPartKey(prefix, name), history);
+        }
+        int size = observations.size();
+        double[] values = new double[size];
+        boolean[] set = new boolean[size];
+        observations.snapshot(values, set);
+        for (int o = 0; o < size; o++) {
+            if (set[o]) {
+                state.setObservation(keys.keys[o], values[o]);
             }
         }
     }
 
+    /**
+     * Unregisters the history of this part from the {@link MonitoringHistory}, e.g., as this part is removed from
+     * the system state. Subclasses shall unregister the histories of their contained parts.
+     */
+    protected void unregisterHistory() {
+        FrozenKeys keys = frozenKeys;
+        if (null != keys) {
+            MonitoringHistory.unregister(MonitoringHistory.getPartKey(keys.prefix, keys.name), history);
+        }
+    }
+
     @Override
     public Collection<IObservable> observables() {
-        return parameterValues.keySet();
+        return observations.observables();
     }
     
     /**
@@ -513,18 +563,17 @@ public class SystemPart implements IObservationProvider, ITopologyProvider, Seri
      */
     private void linkImpl(SystemPart part, boolean link, ILinkSelector selector) {
         if (null != part) {
-            synchronized (part.parameterValues) {
-                for (Map.Entry<IObservable, IObservation> value : part.parameterValues.entrySet()) {
-                    IObservable observable = value.getKey();
-                    if (selector.isLinkEnabled(observable)) {
-                        IObservation observation = value.getValue();
-                        IObservation myObservation = parameterValues.get(observable);
-                        if (null != myObservation) {
-                            if (link) {
-                                myObservation.link(observation);
-                            } else {
-                                myObservation.unlink(observation);    
-                            }
+            ObservationStore partObservations = part.observations;
+            for (int o = 0; o < partObservations.size(); o++) {
+                IObservable observable = partObservations.getObservable(o);
+                if (selector.isLinkEnabled(observable)) {
+                    IObservation observation = partObservations.getObservation(o);
+                    IObservation myObservation = observations.get(observable);
+                    if (null != myObservation) {
+                        if (link) {
+                            myObservation.link(observation);
+                        } else {
+                            myObservation.unlink(observation);    
                         }
                     }
                 }
@@ -559,7 +608,7 @@ public class SystemPart implements IObservationProvider, ITopologyProvider, Seri
  
     @Override
     public String toString() {
-        return name + " " + type + " " + componentType + " " + parameterValues 
+        return name + " " + type + " " + componentType + " " + observations 
             + (null != valueStore ? " store " + valueStore : "");
     }
 
@@ -33,6 +33,7 @@ public class SystemState implements Serializable {
         new HashMap<String, PipelineSystemPart>());
     private boolean enableAlgorithmTracing = false;
     private long timeStamp = System.currentTimeMillis();
+    private transient IncrementalFreezer freezer;
 
     /**
      * Creates a new system state.
@@ -168,15 +169,20 @@ public class SystemState implements Serializable {
     }
     
     /**
-     * Removes the pipeline from the system state.
+     * Removes the pipeline from the system state and unregisters its history.
      * 
      * @param pipelineName the pipeline to be removed
      * @return the removed pipeline, may be <b>null</b> if unknown
      */
     public PipelineSystemPart removePipeline(String pipelineName) {
+        PipelineSystemPart result;
         synchronized (pipelines) {
-            return pipelines.remove(pipelineName);
+            result = pipelines.remove(pipelineName);
         }
+        if (null != result) {
+            result.unregisterHistory();
+        }
+        return result;
     }
     
     /**
@@ -205,6 +211,7 @@ public class SystemState implements Serializable {
         synchronized (pipelines) {
             for (PipelineSystemPart pip : pipelines.values()) {
                 pip.clear(); // includes closeAlgorithmTraces();
+                pip.unregisterHistory();
             }
             pipelines.clear();
         }
@@ -227,19 +234,46 @@ public class SystemState implements Serializable {
     }
 
     /**
-     * Freezes the system state.
+     * Freezes the system state. Subsequent calls return states with the same {@link FrozenSystemState#getVersion() 
+     * version} and shared values if no value changed in between.
      * 
      * @return the frozen system state
      */
     public synchronized FrozenSystemState freeze() {
-        FrozenSystemState result = new FrozenSystemState();
-        platform.fill(FrozenSystemState.INFRASTRUCTURE, FrozenSystemState.INFRASTRUCTURE_NAME, result);
+        if (null == freezer) {
+            freezer = new IncrementalFreezer();
+        }
+        FrozenSystemState collector = freezer.begin();
+        platform.fill(FrozenSystemState.INFRASTRUCTURE, FrozenSystemState.INFRASTRUCTURE_NAME, collector);
         synchronized (pipelines) {
             for (Map.Entry<String, PipelineSystemPart> entry : pipelines.entrySet()) {
-                entry.getValue().fill(FrozenSystemState.PIPELINE, entry.getKey(), result);
+                entry.getValue().fill(FrozenSystemState.PIPELINE, entry.getKey(), collector);
             }
         }
-        return result;
+        return freezer.end();
+    }
+
+    /**
+     * Returns the keys of the values changed by {@link #freeze()} since the given state.
+     * 
+     * @param since a previously frozen state
+     * @return the changed keys, <b>null</b> if the changes since <code>since</code> are not known (anymore), e.g.,
+     *     as <code>since</code> was not frozen from this system state
+     * @see FrozenSystemState#createDelta(FrozenSystemState, Collection)
+     */
+    public synchronized Collection<String> getChangedKeys(FrozenSystemState since) {
+        return null == freezer || freezer.getEpoch() != since.getEpoch() 
+            ? null : freezer.getChangedKeys(since.getVersion());
+    }
+
+    /**
+     * Returns the structural work spent for the snapshot of the last {@link #freeze()}, which is proportional to the
+     * number of changed values rather than to the number of all values. [public for testing]
+     * 
+     * @return the number of snapshot nodes created, <code>0</code> if the previous snapshot was shared
+     */
+    public synchronized int getFreezeWork() {
+        return null == freezer ? 0 : freezer.getWork();
     }
 
     /**
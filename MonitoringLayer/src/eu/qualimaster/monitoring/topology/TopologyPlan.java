@@ -0,0 +1,270 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.monitoring.topology;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import eu.qualimaster.monitoring.topology.PipelineTopology.Processor;
+import eu.qualimaster.monitoring.topology.PipelineTopology.Stream;
+import eu.qualimaster.monitoring.topology.TopologyWalker.DepthFirstOnceVisitingStrategy;
+
+/**
+ * A recorded visit of a topology (projection) according to {@link TopologyWalker.DepthFirstOnceVisitingStrategy} in 
+ * terms of flat operation arrays. Plans depend only on the structure of the topology and are cached per 
+ * {@link ITopologyProjection} or {@link PipelineTopology} instance, i.e., repeated aggregations over the same topology 
+ * just {@link #replay(ITopologyVisitor) replay} the operations in one linear pass without walking the topology again.
+ * 
+ * @author Holger Eichelberger
+ */
+public class TopologyPlan {
+
+    /**
+     * Operation kind: {@link ITopologyVisitor#enter(Processor, boolean, boolean)}.
+     */
+    public static final int ENTER = 0;
+
+    /**
+     * Operation kind: {@link ITopologyVisitor#exit(Processor, boolean, boolean)}.
+     */
+    public static final int EXIT = 1;
+
+    /**
+     * Operation kind: {@link ITopologyVisitor#visit(Stream)}.
+     */
+    public static final int STREAM = 2;
+
+    private static final int KIND_MASK = 0x3;
+    private static final int END_FLAG = 0x4;
+    private static final int LOOP_FLAG = 0x8;
+    private static final int INDEX_SHIFT = 4;
+
+    private static final Map<Object, TopologyPlan> PLANS 
+        = Collections.synchronizedMap(new WeakHashMap<Object, TopologyPlan>());
+
+    private Processor[] processors;
+    private Stream[] streams;
+    private int[] operations;
+
+    /**
+     * Records the operations of visiting a topology (projection).
+     * 
+     * @author Holger Eichelberger
+     */
+    private static class Recorder implements ITopologyVisitor {
+
+        private Map<Processor, Integer> processors = new HashMap<Processor, Integer>();
+        private List<Processor> processorList = new ArrayList<Processor>();
+        private List<Stream> streams = new ArrayList<Stream>();
+        private int[] operations = new int[16];
+        private int size;
+
+        @Override
+        public void enter(Processor node, boolean isEnd, boolean isLoop) {
+            add(ENTER | (isEnd ? END_FLAG : 0) | (isLoop ? LOOP_FLAG : 0), indexOf(node));
+        }
+
+        @Override
+        public void visit(Stream stream) {
+            streams.add(stream);
+            add(STREAM, streams.size() - 1);
+        }
+
+        @Override
+        public void exit(Processor node, boolean isEnd, boolean isLoop) {
+            add(EXIT | (isEnd ? END_FLAG : 0) | (isLoop ? LOOP_FLAG : 0), indexOf(node));
+        }
+
+        /**
+         * Returns the index of <code>node</code>, registers <code>node</code> if required.
+         * 
+         * @param node the node
+         * @return the index
+         */
+        private int indexOf(Processor node) {
+            Integer index = processors.get(node);
+            if (null == index) {
+                index = processorList.size();
+                processorList.add(node);
+                processors.put(node, index);
+            }
+            return index;
+        }
+
+        /**
+         * Adds an operation.
+         * 
+         * @param flags the kind and flags
+         * @param index the processor or stream index
+         */
+        private void add(int flags, int index) {
+            if (size == operations.length) {
+                int[] tmp = new int[operations.length * 2];
+                System.arraycopy(operations, 0, tmp, 0, size);
+                operations = tmp;
+            }
+            operations[size++] = flags | (index << INDEX_SHIFT);
+        }
+
+    }
+
+    /**
+     * Creates a plan from a recorder.
+     * 
+     * @param recorder the recorder
+     */
+    private TopologyPlan(Recorder recorder) {
+        processors = recorder.processorList.toArray(new Processor[recorder.processorList.size()]);
+        streams = recorder.streams.toArray(new Stream[recorder.streams.size()]);
+        operations = new int[recorder.size];
+        System.arraycopy(recorder.operations, 0, operations, 0, recorder.size);
+    }
+
+    /**
+     * Returns the (cached) plan for <code>projection</code>.
+     * 
+     * @param projection the projection
+     * @return the plan
+     */
+    public static TopologyPlan getPlan(ITopologyProjection projection) {
+        TopologyPlan result = PLANS.get(projection);
+        if (null == result) {
+            Recorder recorder = new Recorder();
+            new TopologyWalker(new DepthFirstOnceVisitingStrategy(), recorder).visit(projection);
+            result = new TopologyPlan(recorder);
+            PLANS.put(projection, result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the (cached) plan for the full <code>topology</code>.
+     * 
+     * @param topology the topology
+     * @return the plan
+     */
+    public static TopologyPlan getPlan(PipelineTopology topology) {
+        TopologyPlan result = PLANS.get(topology);
+        if (null == result) {
+            Recorder recorder = new Recorder();
+            new TopologyWalker(new DepthFirstOnceVisitingStrategy(), recorder).visit(topology);
+            result = new TopologyPlan(recorder);
+            PLANS.put(topology, result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of (distinct) processors in this plan.
+     * 
+     * @return the number of processors
+     */
+    public int getProcessorCount() {
+        return processors.length;
+    }
+
+    /**
+     * Returns the specified processor.
+     * 
+     * @param index the 0-based index
+     * @return the processor
+     * @throws IndexOutOfBoundsException if <code>index &lt; 0 || index &gt;= {@link #getProcessorCount()}</code>
+     */
+    public Processor getProcessor(int index) {
+        return processors[index];
+    }
+
+    /**
+     * Returns the number of operations in this plan.
+     * 
+     * @return the number of operations
+     */
+    public int getOperationCount() {
+        return operations.length;
+    }
+
+    /**
+     * Returns the kind of the specified operation.
+     * 
+     * @param index the 0-based index
+     * @return the kind, one of {@link #ENTER}, {@link #EXIT}, {@link #STREAM}
+     * @throws IndexOutOfBoundsException if <code>index &lt; 0 || index &gt;= {@link #getOperationCount()}</code>
+     */
+    public int getKind(int index) {
+        return operations[index] & KIND_MASK;
+    }
+
+    /**
+     * Returns the processor index of the specified {@link #ENTER} or {@link #EXIT} operation.
+     * 
+     * @param index the 0-based index
+     * @return the processor index, the stream index for {@link #STREAM}
+     * @throws IndexOutOfBoundsException if <code>index &lt; 0 || index &gt;= {@link #getOperationCount()}</code>
+     */
+    public int getProcessorIndex(int index) {
+        return operations[index] >>> INDEX_SHIFT;
+    }
+
+    /**
+     * Returns whether the specified operation happens on an end node.
+     * 
+     * @param index the 0-based index
+     * @return <code>true</code> for an end node, <code>false</code> else
+     * @throws IndexOutOfBoundsException if <code>index &lt; 0 || index &gt;= {@link #getOperationCount()}</code>
+     */
+    public boolean isEnd(int index) {
+        return 0 != (operations[index] & END_FLAG);
+    }
+
+    /**
+     * Returns whether the specified operation happens on a loop node.
+     * 
+     * @param index the 0-based index
+     * @return <code>true</code> for a loop node, <code>false</code> else
+     * @throws IndexOutOfBoundsException if <code>index &lt; 0 || index &gt;= {@link #getOperationCount()}</code>
+     */
+    public boolean isLoop(int index) {
+        return 0 != (operations[index] & LOOP_FLAG);
+    }
+
+    /**
+     * Replays the recorded visit on <code>visitor</code>.
+     * 
+     * @param visitor the visitor
+     */
+    public void replay(ITopologyVisitor visitor) {
+        for (int o = 0; o < operations.length; o++) {
+            int op = operations[o];
+            int index = op >>> INDEX_SHIFT;
+            switch (op & KIND_MASK) {
+            case ENTER:
+                visitor.enter(processors[index], 0 != (op & END_FLAG), 0 != (op & LOOP_FLAG));
+                break;
+            case EXIT:
+                visitor.exit(processors[index], 0 != (op & END_FLAG), 0 != (op & LOOP_FLAG));
+                break;
+            default:
+                visitor.visit(streams[index]);
+                break;
+            }
+        }
+    }
+
+}
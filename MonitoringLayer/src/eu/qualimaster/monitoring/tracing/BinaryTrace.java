@@ -0,0 +1,108 @@
+/*
+ * Copyright 2009-2015 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.monitoring.tracing;
+
+import java.io.File;
+import java.io.IOException;
+
+import eu.qualimaster.monitoring.tracing.BinaryTraceFormat.Record;
+
+/**
+ * Represents a trace in compact binary files. Trace lines are collected as records on the tracing thread and
+ * written asynchronously by a background writer, i.e., tracing does not block on disk I/O. Use
+ * {@link BinaryTraceConverter} to turn binary traces into the tab-separated format of {@link FileTrace}.
+ *
+ * @author Holger Eichelberger
+ */
+public class BinaryTrace extends AbstractTrace {
+
+    /**
+     * The default maximum number of tokens per block.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 16 * 1024;
+
+    private BinaryTraceWriter writer;
+    private Record record = new Record();
+    private String name;
+
+    /**
+     * Creates a new binary trace.
+     *
+     * @param file the (first) file to trace to
+     * @param compress whether the trace shall be compressed
+     * @param maxFileSize the maximum file size in bytes before rotating, not rotating if not positive
+     * @param maxFileAge the maximum file age in ms before rotating, not rotating if not positive
+     * @throws IOException in case that the trace file cannot be created
+     */
+    public BinaryTrace(File file, boolean compress, long maxFileSize, long maxFileAge) throws IOException {
+        this.name = file.getAbsolutePath();
+        this.writer = new BinaryTraceWriter(file, compress, maxFileSize, maxFileAge, DEFAULT_BLOCK_SIZE);
+    }
+
+    @Override
+    protected void print(long value) {
+        if (null != writer) {
+            record.addLong(value);
+        }
+    }
+
+    @Override
+    protected void print(double value) {
+        if (null != writer) {
+            record.addDouble(value);
+        }
+    }
+
+    @Override
+    protected void print(String text) {
+        if (null != writer) {
+            record.addString(text);
+        }
+    }
+
+    @Override
+    protected void printSeparator() {
+        if (null != writer) {
+            record.addSeparator();
+        }
+    }
+
+    @Override
+    protected void println() {
+        if (null != writer) {
+            record.addNewline();
+            writer.write(record);
+            record = new Record();
+        }
+    }
+
+    /**
+     * Closes the trace, i.e., writes all pending trace lines and waits for the background writer.
+     */
+    public void close() {
+        if (null != writer) {
+            writer.write(record); // pending incomplete line, ignored if empty
+            writer.close();
+            writer = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BinaryTrace " + name;
+    }
+
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2009-2015 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.monitoring.tracing;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Inflater;
+
+import eu.qualimaster.monitoring.tracing.BinaryTraceFormat.ITokenHandler;
+import eu.qualimaster.monitoring.tracing.BinaryTraceFormat.Record;
+
+/**
+ * Converts binary traces written by {@link BinaryTrace} into the tab-separated format of {@link FileTrace} for
+ * offline analysis.
+ *
+ * @author Holger Eichelberger
+ */
+public class BinaryTraceConverter {
+
+    /**
+     * Emits tokens in the format of {@link FileTrace}.
+     *
+     * @author Holger Eichelberger
+     */
+    private static class TsvTokenHandler implements ITokenHandler {
+
+        private PrintStream out;
+
+        /**
+         * Creates a handler.
+         *
+         * @param out the output stream
+         */
+        private TsvTokenHandler(PrintStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void handle(long value) {
+            out.print(value);
+        }
+
+        @Override
+        public void handle(double value) {
+            out.print(FileTrace.format(value));
+        }
+
+        @Override
+        public void handle(String value) {
+            out.print(value);
+        }
+
+        @Override
+        public void handleSeparator() {
+            out.print("\t");
+        }
+
+        @Override
+        public void handleNewline() {
+            out.println();
+        }
+
+    }
+
+    /**
+     * Prevents external creation.
+     */
+    private BinaryTraceConverter() {
+    }
+
+    /**
+     * Returns the files of a (rotated) binary trace in writing sequence.
+     *
+     * @param file the first file of the trace
+     * @return the existing files
+     */
+    public static List<File> getTraceFiles(File file) {
+        List<File> result = new ArrayList<File>();
+        int index = 0;
+        File f = BinaryTraceWriter.getFile(file, index);
+        while (f.exists()) {
+            result.add(f);
+            f = BinaryTraceWriter.getFile(file, ++index);
+        }
+        return result;
+    }
+
+    /**
+     * Converts a (rotated) binary trace.
+     *
+     * @param file the first file of the trace
+     * @param out the output stream to write the tab-separated trace to
+     * @throws IOException in case of I/O problems or if a file is not a binary trace
+     */
+    public static void convert(File file, PrintStream out) throws IOException {
+        TsvTokenHandler handler = new TsvTokenHandler(out);
+        Inflater inflater = new Inflater();
+        try {
+            for (File f : getTraceFiles(file)) {
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)))) {
+                    BinaryTraceFormat.readHeader(in);
+                    Record record = readBlock(in, inflater);
+                    while (null != record) {
+                        record.emit(handler);
+                        record = readBlock(in, inflater);
+                    }
+                }
+            }
+        } finally {
+            inflater.end();
+            out.flush();
+        }
+    }
+
+    /**
+     * Reads the next block.
+     *
+     * @param in the input stream
+     * @param inflater the inflater for decompression
+     * @return the tokens of the block, <b>null</b> at the end of the file
+     * @throws IOException in case of I/O problems
+     */
+    private static Record readBlock(DataInputStream in, Inflater inflater) throws IOException {
+        Record result;
+        try {
+            result = BinaryTraceFormat.readBlock(in, inflater);
+        } catch (EOFException e) {
+            result = null; // end of file or incomplete last block
+        }
+        return result;
+    }
+
+    /**
+     * Converts a binary trace from the command line.
+     *
+     * @param args the binary trace file and optionally the output file (default: the trace file with
+     *     {@link Tracing#TRACE_FILE_SUFFIX})
+     * @throws IOException in case of I/O problems
+     */
+    public static void main(String[] args) throws IOException {
+        if (0 == args.length) {
+            System.out.println("Usage: BinaryTraceConverter <binary trace> [<output file>]");
+        } else {
+            File file = new File(args[0]);
+            File outFile;
+            if (args.length > 1) {
+                outFile = new File(args[1]);
+            } else {
+                String name = file.getName();
+                int pos = name.lastIndexOf('.');
+                if (pos > 0) {
+                    name = name.substring(0, pos);
+                }
+                outFile = new File(file.getParentFile(), name + Tracing.TRACE_FILE_SUFFIX);
+            }
+            try (PrintStream out = new PrintStream(new FileOutputStream(outFile))) {
+                convert(file, out);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,544 @@
+/*
+ * Copyright 2009-2015 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.monitoring.tracing;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Defines the binary trace format. A binary trace file starts with {@link #MAGIC} and {@link #VERSION} followed by
+ * blocks. Each block consists of the codec, the raw and the stored length and the (compressed) payload. The payload
+ * stores the tokens of several trace lines column-wise, i.e., first the token types, then the string dictionary,
+ * the (delta and variable-length encoded) long values, the double values and the string references.
+ *
+ * @author Holger Eichelberger
+ */
+class BinaryTraceFormat {
+
+    static final int MAGIC = 0x514D4254; // QMBT
+    static final int VERSION = 1;
+
+    static final byte CODEC_NONE = 0;
+    static final byte CODEC_DEFLATE = 1;
+
+    static final byte TOKEN_LONG = 0;
+    static final byte TOKEN_DOUBLE = 1;
+    static final byte TOKEN_STRING = 2;
+    static final byte TOKEN_SEPARATOR = 3;
+    static final byte TOKEN_NEWLINE = 4;
+
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+
+    /**
+     * Prevents external creation.
+     */
+    private BinaryTraceFormat() {
+    }
+
+    /**
+     * Stores the tokens of (a sequence of) trace lines.
+     *
+     * @author Holger Eichelberger
+     */
+    static class Record {
+
+        private byte[] types = new byte[32];
+        private int size;
+        private long[] longs = new long[4];
+        private int longCount;
+        private double[] doubles = new double[16];
+        private int doubleCount;
+        private String[] strings = new String[16];
+        private int stringCount;
+
+        /**
+         * Adds a token type.
+         *
+         * @param type the type
+         */
+        private void addType(byte type) {
+            if (size == types.length) {
+                types = Arrays.copyOf(types, size * 2);
+            }
+            types[size++] = type;
+        }
+
+        /**
+         * Adds a long value.
+         *
+         * @param value the value
+         */
+        void addLong(long value) {
+            addType(TOKEN_LONG);
+            if (longCount == longs.length) {
+                longs = Arrays.copyOf(longs, longCount * 2);
+            }
+            longs[longCount++] = value;
+        }
+
+        /**
+         * Adds a double value.
+         *
+         * @param value the value
+         */
+        void addDouble(double value) {
+            addType(TOKEN_DOUBLE);
+            if (doubleCount == doubles.length) {
+                doubles = Arrays.copyOf(doubles, doubleCount * 2);
+            }
+            doubles[doubleCount++] = value;
+        }
+
+        /**
+         * Adds a string value.
+         *
+         * @param value the value (<b>null</b> is turned into "null" as done by {@link java.io.PrintStream})
+         */
+        void addString(String value) {
+            addType(TOKEN_STRING);
+            if (stringCount == strings.length) {
+                strings = Arrays.copyOf(strings, stringCount * 2);
+            }
+            strings[stringCount++] = String.valueOf(value);
+        }
+
+        /**
+         * Adds a separator.
+         */
+        void addSeparator() {
+            addType(TOKEN_SEPARATOR);
+        }
+
+        /**
+         * Adds a line end.
+         */
+        void addNewline() {
+            addType(TOKEN_NEWLINE);
+        }
+
+        /**
+         * Returns the number of tokens.
+         *
+         * @return the number of tokens
+         */
+        int size() {
+            return size;
+        }
+
+        /**
+         * Returns whether this record is empty.
+         *
+         * @return <code>true</code> if empty, <code>false</code> else
+         */
+        boolean isEmpty() {
+            return 0 == size;
+        }
+
+        /**
+         * Emits the tokens of this record to <code>handler</code>.
+         *
+         * @param handler the token handler
+         */
+        void emit(ITokenHandler handler) {
+            int l = 0;
+            int d = 0;
+            int s = 0;
+            for (int t = 0; t < size; t++) {
+                switch (types[t]) {
+                case TOKEN_LONG:
+                    handler.handle(longs[l++]);
+                    break;
+                case TOKEN_DOUBLE:
+                    handler.handle(doubles[d++]);
+                    break;
+                case TOKEN_STRING:
+                    handler.handle(strings[s++]);
+                    break;
+                case TOKEN_SEPARATOR:
+                    handler.handleSeparator();
+                    break;
+                default:
+                    handler.handleNewline();
+                    break;
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Receives the tokens of a record.
+     *
+     * @author Holger Eichelberger
+     */
+    interface ITokenHandler {
+
+        /**
+         * Handles a long value.
+         *
+         * @param value the value
+         */
+        public void handle(long value);
+
+        /**
+         * Handles a double value.
+         *
+         * @param value the value
+         */
+        public void handle(double value);
+
+        /**
+         * Handles a string value.
+         *
+         * @param value the value
+         */
+        public void handle(String value);
+
+        /**
+         * Handles a separator.
+         */
+        public void handleSeparator();
+
+        /**
+         * Handles a line end.
+         */
+        public void handleNewline();
+
+    }
+
+    /**
+     * Writes the file header.
+     *
+     * @param out the output
+     * @throws IOException in case of I/O problems
+     */
+    static void writeHeader(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+    }
+
+    /**
+     * Reads and checks the file header.
+     *
+     * @param in the input
+     * @throws IOException in case of I/O problems or an unknown format
+     */
+    static void readHeader(DataInput in) throws IOException {
+        if (MAGIC != in.readInt()) {
+            throw new IOException("not a binary trace");
+        }
+        int version = in.readInt();
+        if (VERSION != version) {
+            throw new IOException("unsupported binary trace version " + version);
+        }
+    }
+
+    /**
+     * Writes a block of records.
+     *
+     * @param records the records to write
+     * @param compress whether the block shall be compressed
+     * @param deflater the deflater to use for compression (may be <b>null</b> if <code>compress</code> is
+     *     <code>false</code>)
+     * @param out the output
+     * @throws IOException in case of I/O problems
+     */
+    static void writeBlock(List<Record> records, boolean compress, Deflater deflater, DataOutput out)
+        throws IOException {
+        byte[] raw = encode(records);
+        byte[] stored = raw;
+        byte codec = CODEC_NONE;
+        if (compress) {
+            deflater.reset();
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream tmp = new ByteArrayOutputStream(raw.length / 2 + 16);
+            byte[] buf = new byte[4096];
+            while (!deflater.finished()) {
+                int len = deflater.deflate(buf);
+                tmp.write(buf, 0, len);
+            }
+            if (tmp.size() < raw.length) {
+                stored = tmp.toByteArray();
+                codec = CODEC_DEFLATE;
+            }
+        }
+        out.writeByte(codec);
+        out.writeInt(raw.length);
+        out.writeInt(stored.length);
+        out.write(stored);
+    }
+
+    /**
+     * Reads a block.
+     *
+     * @param in the input
+     * @param inflater the inflater to use for decompression
+     * @return the tokens of the block
+     * @throws IOException in case of I/O problems or a corrupted block
+     */
+    static Record readBlock(DataInput in, Inflater inflater) throws IOException {
+        byte codec = in.readByte();
+        int rawLength = in.readInt();
+        int storedLength = in.readInt();
+        if (rawLength < 0 || storedLength < 0) {
+            throw new IOException("corrupted block");
+        }
+        byte[] stored = new byte[storedLength];
+        in.readFully(stored);
+        byte[] raw;
+        if (CODEC_DEFLATE == codec) {
+            raw = new byte[rawLength];
+            inflater.reset();
+            inflater.setInput(stored);
+            try {
+                int pos = 0;
+                while (pos < rawLength && !inflater.finished()) {
+                    int len = inflater.inflate(raw, pos, rawLength - pos);
+                    if (0 == len && inflater.needsInput()) {
+                        break;
+                    }
+                    pos += len;
+                }
+                if (pos != rawLength) {
+                    throw new IOException("corrupted block");
+                }
+            } catch (DataFormatException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        } else if (CODEC_NONE == codec) {
+            raw = stored;
+        } else {
+            throw new IOException("unknown codec " + codec);
+        }
+        return decode(raw);
+    }
+
+    /**
+     * Encodes the tokens of <code>records</code> column-wise.
+     *
+     * @param records the records
+     * @return the encoded tokens
+     * @throws IOException shall not occur
+     */
+    private static byte[] encode(List<Record> records) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        int tokens = 0;
+        Map<String, Integer> dictionary = new HashMap<String, Integer>();
+        List<String> strings = new ArrayList<String>();
+        for (int r = 0; r < records.size(); r++) {
+            Record record = records.get(r);
+            tokens += record.size;
+            for (int s = 0; s < record.stringCount; s++) {
+                String string = record.strings[s];
+                if (!dictionary.containsKey(string)) {
+                    dictionary.put(string, strings.size());
+                    strings.add(string);
+                }
+            }
+        }
+        writeVarInt(out, tokens);
+        for (int r = 0; r < records.size(); r++) {
+            Record record = records.get(r);
+            out.write(record.types, 0, record.size);
+        }
+        writeVarInt(out, strings.size());
+        for (int s = 0; s < strings.size(); s++) {
+            byte[] tmp = strings.get(s).getBytes(CHARSET);
+            writeVarInt(out, tmp.length);
+            out.write(tmp);
+        }
+        long last = 0;
+        for (int r = 0; r < records.size(); r++) {
+            Record record = records.get(r);
+            for (int l = 0; l < record.longCount; l++) {
+                writeVarLong(out, record.longs[l] - last);
+                last = record.longs[l];
+            }
+        }
+        for (int r = 0; r < records.size(); r++) {
+            Record record = records.get(r);
+            for (int d = 0; d < record.doubleCount; d++) {
+                out.writeDouble(record.doubles[d]);
+            }
+        }
+        for (int r = 0; r < records.size(); r++) {
+            Record record = records.get(r);
+            for (int s = 0; s < record.stringCount; s++) {
+                writeVarInt(out, dictionary.get(record.strings[s]));
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes column-wise encoded tokens.
+     *
+     * @param raw the encoded tokens
+     * @return the tokens
+     * @throws IOException in case of a corrupted block
+     */
+    private static Record decode(byte[] raw) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw));
+        Record result = new Record();
+        int tokens = readVarInt(in);
+        byte[] types = new byte[tokens];
+        in.readFully(types);
+        String[] dictionary = new String[readVarInt(in)];
+        for (int s = 0; s < dictionary.length; s++) {
+            byte[] tmp = new byte[readVarInt(in)];
+            in.readFully(tmp);
+            dictionary[s] = new String(tmp, CHARSET);
+        }
+        int longCount = 0;
+        int doubleCount = 0;
+        int stringCount = 0;
+        for (int t = 0; t < tokens; t++) {
+            switch (types[t]) {
+            case TOKEN_LONG:
+                longCount++;
+                break;
+            case TOKEN_DOUBLE:
+                doubleCount++;
+                break;
+            case TOKEN_STRING:
+                stringCount++;
+                break;
+            default:
+                break;
+            }
+        }
+        long[] longs = new long[longCount];
+        long last = 0;
+        for (int l = 0; l < longCount; l++) {
+            last += readVarLong(in);
+            longs[l] = last;
+        }
+        double[] doubles = new double[doubleCount];
+        for (int d = 0; d < doubleCount; d++) {
+            doubles[d] = in.readDouble();
+        }
+        String[] strings = new String[stringCount];
+        for (int s = 0; s < stringCount; s++) {
+            int ref = readVarInt(in);
+            if (ref < 0 || ref >= dictionary.length) {
+                throw new IOException("corrupted block");
+            }
+            strings[s] = dictionary[ref];
+        }
+        result.types = types;
+        result.size = tokens;
+        result.longs = longs;
+        result.longCount = longCount;
+        result.doubles = doubles;
+        result.doubleCount = doubleCount;
+        result.strings = strings;
+        result.stringCount = stringCount;
+        return result;
+    }
+
+    /**
+     * Writes a non-negative variable-length integer.
+     *
+     * @param out the output
+     * @param value the value
+     * @throws IOException in case of I/O problems
+     */
+    private static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /**
+     * Reads a non-negative variable-length integer.
+     *
+     * @param in the input
+     * @return the value
+     * @throws IOException in case of I/O problems
+     */
+    private static int readVarInt(DataInput in) throws IOException {
+        int result = 0;
+        int shift = 0;
+        int b;
+        do {
+            if (shift > 28) {
+                throw new IOException("corrupted varint");
+            }
+            b = in.readByte();
+            result |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return result;
+    }
+
+    /**
+     * Writes a zig-zag encoded variable-length long.
+     *
+     * @param out the output
+     * @param value the value
+     * @throws IOException in case of I/O problems
+     */
+    private static void writeVarLong(DataOutput out, long value) throws IOException {
+        long tmp = (value << 1) ^ (value >> 63);
+        while ((tmp & ~0x7FL) != 0) {
+            out.writeByte((int) ((tmp & 0x7F) | 0x80));
+            tmp >>>= 7;
+        }
+        out.writeByte((int) tmp);
+    }
+
+    /**
+     * Reads a zig-zag encoded variable-length long.
+     *
+     * @param in the input
+     * @return the value
+     * @throws IOException in case of I/O problems
+     */
+    private static long readVarLong(DataInput in) throws IOException {
+        long tmp = 0;
+        int shift = 0;
+        int b;
+        do {
+            if (shift > 63) {
+                throw new IOException("corrupted varlong");
+            }
+            b = in.readByte();
+            tmp |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (tmp >>> 1) ^ -(tmp & 1);
+    }
+
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2009-2015 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.monitoring.tracing;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+import org.apache.log4j.LogManager;
+
+import eu.qualimaster.monitoring.tracing.BinaryTraceFormat.Record;
+
+/**
+ * Writes trace records asynchronously into binary trace files. Records are queued by the tracing thread and
+ * collected into blocks by a background thread. A block is written if it is full, if no record arrived for
+ * {@link #FLUSH_INTERVAL} ms or if the writer is closed. Files are rotated after a block if they exceed the
+ * maximum file size or age, rotated files receive an increasing index before their suffix (see
+ * {@link #getFile(File, int)}). Tracing never blocks for long: records are dropped if the queue stays full or if 
+ * the background thread failed or stopped.
+ *
+ * @author Holger Eichelberger
+ */
+class BinaryTraceWriter {
+
+    /**
+     * The maximum time in ms that records are kept in memory if no further records arrive.
+     */
+    static final long FLUSH_INTERVAL = 1000;
+
+    /**
+     * The maximum time in ms to wait for space in the queue before dropping a record.
+     */
+    static final long OFFER_TIMEOUT = 100;
+
+    /**
+     * The maximum time in ms to wait for the background thread when closing.
+     */
+    static final long CLOSE_TIMEOUT = 10 * FLUSH_INTERVAL;
+
+    private static final int QUEUE_CAPACITY = 4096;
+    private static final Record END = new Record();
+
+    private final File file;
+    private final boolean compress;
+    private final long maxFileSize;
+    private final long maxFileAge;
+    private final int blockSize;
+    private final BlockingQueue<Record> queue = new LinkedBlockingQueue<Record>(QUEUE_CAPACITY);
+    private final Thread thread;
+    private volatile boolean failed;
+    private volatile boolean closing;
+    private boolean congested;
+    private long dropped;
+    private int fileIndex;
+    private long fileCreated;
+    private DataOutputStream out;
+    private long fileSize;
+    private Deflater deflater;
+
+    /**
+     * Creates a writer and starts its background thread.
+     *
+     * @param file the (first) file to write to
+     * @param compress whether blocks shall be compressed
+     * @param maxFileSize the maximum file size in bytes before rotating, not rotating if not positive
+     * @param maxFileAge the maximum file age in ms before rotating, not rotating if not positive
+     * @param blockSize the maximum number of tokens per block
+     * @throws IOException in case that the first file cannot be created
+     */
+    BinaryTraceWriter(File file, boolean compress, long maxFileSize, long maxFileAge, int blockSize)
+        throws IOException {
+        this.file = file;
+        this.compress = compress;
+        this.maxFileSize = maxFileSize;
+        this.maxFileAge = maxFileAge;
+        this.blockSize = Math.max(1, blockSize);
+        if (compress) {
+            deflater = new Deflater(Deflater.BEST_SPEED);
+        }
+        open();
+        thread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                BinaryTraceWriter.this.run();
+            }
+
+        }, "Trace writer " + file.getName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Returns the file with the given rotation index.
+     *
+     * @param file the first file
+     * @param index the rotation index
+     * @return the file
+     */
+    static File getFile(File file, int index) {
+        File result = file;
+        if (index > 0) {
+            String name = file.getName();
+            int pos = name.lastIndexOf('.');
+            if (pos > 0) {
+                name = name.substring(0, pos) + "." + index + name.substring(pos);
+            } else {
+                name = name + "." + index;
+            }
+            result = new File(file.getParentFile(), name);
+        }
+        return result;
+    }
+
+    /**
+     * Opens the next file.
+     *
+     * @throws IOException in case that the file cannot be created
+     */
+    private void open() throws IOException {
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(getFile(file, fileIndex))));
+        BinaryTraceFormat.writeHeader(out);
+        fileSize = out.size();
+        fileCreated = System.currentTimeMillis();
+    }
+
+    /**
+     * Enqueues a record for writing. Waits at most {@link #OFFER_TIMEOUT} ms if the background thread is too far 
+     * behind, does not wait again until the queue accepts records again. Drops the record if the queue is full, if 
+     * the background thread failed or if the writer is closing.
+     *
+     * @param record the record
+     */
+    void write(Record record) {
+        if (null != record && !record.isEmpty()) {
+            boolean queued = false;
+            if (!failed && !closing) {
+                try {
+                    queued = congested ? queue.offer(record) 
+                        : queue.offer(record, OFFER_TIMEOUT, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                congested = !queued;
+            }
+            if (!queued) {
+                dropped++;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of records dropped so far.
+     *
+     * @return the number of dropped records
+     */
+    long getDroppedCount() {
+        return dropped;
+    }
+
+    /**
+     * Writes all queued records, closes the file and stops the background thread. Waits at most 
+     * {@link #CLOSE_TIMEOUT} ms for the background thread.
+     */
+    void close() {
+        closing = true;
+        queue.offer(END); // if the queue is full, the background thread stops when the queue runs empty
+        try {
+            thread.join(CLOSE_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (dropped > 0) {
+            LogManager.getLogger(BinaryTraceWriter.class).warn("Dropped " + dropped + " records of trace " + file);
+        }
+    }
+
+    /**
+     * Collects the queued records into blocks and writes them.
+     */
+    private void run() {
+        try {
+            List<Record> block = new ArrayList<Record>();
+            int tokens = 0;
+            boolean end = false;
+            while (!end) {
+                Record record;
+                try {
+                    record = queue.poll(FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    record = END;
+                }
+                end = END == record || (null == record && closing);
+                if (null != record && !end) {
+                    block.add(record);
+                    tokens += record.size();
+                }
+                if (!block.isEmpty() && (null == record || end || tokens >= blockSize)) {
+                    writeBlock(block);
+                    block.clear();
+                    tokens = 0;
+                }
+            }
+        } finally {
+            failed = true; // no further records are accepted
+            queue.clear();
+            try {
+                out.close();
+            } catch (IOException e) {
+                LogManager.getLogger(BinaryTraceWriter.class).error("While closing trace " + file + ": "
+                    + e.getMessage());
+            }
+            if (null != deflater) {
+                deflater.end();
+            }
+        }
+    }
+
+    /**
+     * Writes a block and rotates the file if required.
+     *
+     * @param block the records of the block
+     */
+    private void writeBlock(List<Record> block) {
+        if (!failed) {
+            try {
+                BinaryTraceFormat.writeBlock(block, compress, deflater, out);
+                out.flush();
+                fileSize = out.size();
+                if ((maxFileSize > 0 && fileSize >= maxFileSize)
+                    || (maxFileAge > 0 && System.currentTimeMillis() - fileCreated >= maxFileAge)) {
+                    out.close();
+                    fileIndex++;
+                    open();
+                }
+            } catch (IOException e) {
+                failed = true;
+                queue.clear();
+                LogManager.getLogger(BinaryTraceWriter.class).error("While writing trace " + file + ": "
+                    + e.getMessage() + " Stopping trace.");
+            }
+        }
+    }
+
+}
@@ -64,6 +64,7 @@ public class Tracing {
     
     public static final String PREFIX_INFA = "qmInfra";
     public static final String TRACE_FILE_SUFFIX = ".csv";
+    public static final String BINARY_TRACE_FILE_SUFFIX = ".qmbt";
     public static final SimpleDateFormat LOG_TAG_FORMAT = new SimpleDateFormat("yyyyMMdd-HHmmss");
 
     private static final Map<Class<?>, IObservable[]> LIMIT = new HashMap<>();
@@ -228,10 +229,17 @@ public class Tracing {
         // reminder: profile traces shall be file traces
         ITrace result = null;
         if (!MonitoringConfiguration.isEmpty(logLocation)) {
-            File logFile = new File(logLocation, getLogTag(prefix) + TRACE_FILE_SUFFIX);
             try {
-                FileOutputStream out = new FileOutputStream(logFile);
-                result = new FileTrace(logFile.getAbsolutePath(), new PrintStream(out));
+                if (MonitoringConfiguration.isBinaryTraceFormat()) {
+                    File logFile = new File(logLocation, getLogTag(prefix) + BINARY_TRACE_FILE_SUFFIX);
+                    result = new BinaryTrace(logFile, MonitoringConfiguration.compressTraces(), 
+                        MonitoringConfiguration.getTraceRotationSize(), 
+                        MonitoringConfiguration.getTraceRotationTime());
+                } else {
+                    File logFile = new File(logLocation, getLogTag(prefix) + TRACE_FILE_SUFFIX);
+                    FileOutputStream out = new FileOutputStream(logFile);
+                    result = new FileTrace(logFile.getAbsolutePath(), new PrintStream(out));
+                }
             } catch (IOException e) {
                 getLogger().error("cannot open output stream for trace " 
                     + prefix + ": " + e.getMessage());
@@ -31,10 +31,20 @@ public class BlindPrediction {
 	 * @param dataPath The path to the data used for building the model
 	 */
 	public BlindPrediction(String source, File dataFile)
+	{
+		this(source, dataFile == null ? null : DataUtils.readData(dataFile));
+	}
+	
+	/**
+	 * Constructor initializing the model given the available historical data (already read into memory)
+	 * @param source The name of the source the model makes predictions for
+	 * @param data The data used for building the model (timestamps and volumes, see {@link DataUtils#readData(File)})
+	 */
+	public BlindPrediction(String source, TreeMap<String,Long> data)
 	{
 		this.source = source;
 		this.historicalVolumes = new HashMap<>();
-		trainModel(dataFile);
+		trainModel(data);
 	}
 	
 	/**
@@ -64,12 +74,11 @@ public class BlindPrediction {
 		else return getNeighborValue(time);
 	}
 	
-	private void trainModel(File dataFile)
+	private void trainModel(TreeMap<String,Long> trainingData)
 	{
-		if(dataFile == null) this.historicalVolumes = null;
+		if(trainingData == null) this.historicalVolumes = null;
 		else
 		{
-			TreeMap<String,Long> trainingData = DataUtils.readData(dataFile);
 			if(!trainingData.isEmpty()) this.historicalVolumes = computeAverageVolumes(trainingData);
 			else this.historicalVolumes = null;
 		}
@@ -33,6 +33,15 @@ public class Prediction {
 	/** The model to make predictions based on recent volume values. */
 	private WekaForecaster forecaster;
 	
+	/** The timestamp of the last observation used for training the model (null if not trained). */
+	private String trainingEnd;
+	
+	/** The number of observations used for training the model. */
+	private int trainingSize;
+	
+	/** The time (in milliseconds) when the model was trained. */
+	private long trainingTime;
+	
 	/** The number of recent time points to be considered in the model. */
 	private static final int NUM_RECENT_VOLUMES = 12;
 	
@@ -45,16 +54,31 @@ public class Prediction {
 	/** Format of the date field */
 	private static final String DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss";
 	
+	/** The fraction of new observations (relative to the training data) that requires to retrain the model. */
+	private static final double RETRAINING_RATIO = 0.1;
+	
+	/** The maximum age of a model (in milliseconds) before it is retrained anyway (one week). */
+	private static final long MAX_MODEL_AGE = 7l * (1000l*60l*60l*24l);
+	
 	/**
 	 * Constructor initializing (training) the model given the available historical data
 	 * @param source The name of the source the model makes predictions for
 	 * @param dataPath The path to the data used for training the model
 	 */
 	public Prediction(String source, File dataFile){
+		this(source, DataUtils.readData(dataFile));
+	}
+	
+	/**
+	 * Constructor initializing (training) the model given the available historical data (already read into memory)
+	 * @param source The name of the source the model makes predictions for
+	 * @param data The data used for training the model (timestamps and volumes, see {@link DataUtils#readData(File)})
+	 */
+	public Prediction(String source, TreeMap<String,Long> data){
 		this.source = source;
 		this.recentVolumes = createDataset();
 		this.forecaster = new WekaForecaster();
-		trainModel(dataFile);
+		trainModel(data);
 	}
 	
 	/**
@@ -65,7 +89,7 @@ public class Prediction {
 	 * 
 	 * @return The predicted volume within the next time step.
 	 */
-	public double predict()
+	public synchronized double predict()
 	{
 		try
 		{
@@ -99,7 +123,7 @@ public class Prediction {
 	 * @param time The timestamp when the volume was observed.
 	 * @param observation The observed volume.
 	 */
-	public void updateRecentVolumes(String time, Long observation)
+	public synchronized void updateRecentVolumes(String time, Long observation)
 	{
 		try
 		{
@@ -114,10 +138,50 @@ public class Prediction {
 		}
 	}
 	
-	private void trainModel(File dataFile)
+	/**
+	 * Decides whether the model must be retrained given the currently available historical data, i.e., whether
+	 * the historical data contains too many observations that were not used for training or the model is too old.
+	 * Otherwise, the model can be kept and just be primed with the recently observed volumes.
+	 * 
+	 * @param data The currently available historical data.
+	 * @return true if the model must be retrained, false if it can be kept.
+	 */
+	public boolean needsRetraining(TreeMap<String,Long> data)
+	{
+		if(this.forecaster == null || this.trainingEnd == null) return true;
+		if(System.currentTimeMillis() - this.trainingTime > MAX_MODEL_AGE) return true;
+		int newObservations = data.tailMap(this.trainingEnd, false).size();
+		return newObservations > this.trainingSize * RETRAINING_RATIO;
+	}
+	
+	/**
+	 * Primes this model with the recent volumes of another (outdated) model for the same term, so that the
+	 * model can make predictions without waiting for new observations.
+	 * 
+	 * @param model The outdated model.
+	 */
+	public void primeRecentVolumes(Prediction model)
+	{
+		Instances volumes;
+		synchronized(model)
+		{
+			volumes = new Instances(model.recentVolumes);
+		}
+		synchronized(this)
+		{
+			this.recentVolumes = volumes;
+		}
+	}
+	
+	private void trainModel(TreeMap<String,Long> trainingData)
 	{
-		TreeMap<String,Long> trainingData = DataUtils.readData(dataFile);
-		if(!trainingData.isEmpty()) this.forecaster = trainForecaster(trainingData);
+		if(!trainingData.isEmpty())
+		{
+			this.forecaster = trainForecaster(trainingData);
+			this.trainingEnd = trainingData.lastKey();
+			this.trainingSize = trainingData.size();
+			this.trainingTime = System.currentTimeMillis();
+		}
 		else this.forecaster = null;
 	}
 	
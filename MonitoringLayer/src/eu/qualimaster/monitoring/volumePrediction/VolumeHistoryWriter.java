@@ -0,0 +1,396 @@
+package eu.qualimaster.monitoring.volumePrediction;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.log4j.LogManager;
+
+import eu.qualimaster.dataManagement.DataManager;
+import eu.qualimaster.dataManagement.storage.hbase.HBaseStorageSupport;
+import eu.qualimaster.dataManagement.storage.support.IBatchStorageSupport;
+import eu.qualimaster.dataManagement.strategies.NoStorageStrategyDescriptor;
+import eu.qualimaster.monitoring.MonitoringConfiguration;
+import eu.qualimaster.monitoring.MonitoringManager;
+import eu.qualimaster.monitoring.systemState.PlatformSystemPart;
+import eu.qualimaster.observables.ResourceUsage;
+import eu.qualimaster.observables.TimeBehavior;
+
+/**
+ * A long-lived writer for the volume history of terms. Observations are buffered per term and written in batches
+ * by a background thread, either if the number of buffered observations exceeds the batch size or if the flush
+ * interval is over. The storage of a term is obtained once and kept until the writer is closed or writing to it 
+ * fails. The observations of a failed batch are buffered again and dropped after {@link #MAX_WRITE_ATTEMPTS} 
+ * failed attempts. After a failed flush, the background thread waits for the flush interval, doubled for each 
+ * further failed flush, before it retries, regardless of the number of buffered observations. The queue depth, the 
+ * dropped observations and the flush time are published as observables of the platform.
+ *
+ * @author Holger Eichelberger
+ */
+public class VolumeHistoryWriter {
+
+    /**
+     * Provides access to the storage of a term.
+     *
+     * @author Holger Eichelberger
+     */
+    public interface IStorageProvider {
+
+        /**
+         * Obtains the (connected) storage for the given term.
+         *
+         * @param term the term
+         * @return the storage
+         */
+        public IBatchStorageSupport obtain(String term);
+
+        /**
+         * Releases a storage obtained via {@link #obtain(String)}.
+         *
+         * @param term the term
+         * @param storage the storage to be released
+         */
+        public void release(String term, IBatchStorageSupport storage);
+
+    }
+
+    /**
+     * The storage provider for {@link DataManager#VOLUME_PREDICTION_STORAGE_MANAGER}.
+     */
+    public static final IStorageProvider HBASE_PROVIDER = new IStorageProvider() {
+
+        @Override
+        public IBatchStorageSupport obtain(String term) {
+            HBaseStorageSupport table = (HBaseStorageSupport) DataManager.VOLUME_PREDICTION_STORAGE_MANAGER
+                .getTable("", term, NoStorageStrategyDescriptor.INSTANCE);
+            table.connect();
+            return table;
+        }
+
+        @Override
+        public void release(String term, IBatchStorageSupport storage) {
+            ((HBaseStorageSupport) storage).disconnect();
+        }
+
+    };
+
+    /**
+     * The maximum number of attempts to write the observations of a term before dropping them.
+     */
+    public static final int MAX_WRITE_ATTEMPTS = 3;
+
+    /**
+     * The maximum factor the flush interval is multiplied with while backing off after failed flushes.
+     */
+    public static final int MAX_BACKOFF_FACTOR = 16;
+
+    private static VolumeHistoryWriter instance;
+
+    private IStorageProvider provider;
+    private int batchSize;
+    private long flushInterval;
+    private Map<String, Map<String, Long>> pending = new HashMap<String, Map<String, Long>>();
+    private int pendingCount;
+    private Map<String, IBatchStorageSupport> storages = new HashMap<String, IBatchStorageSupport>();
+    private Map<String, Integer> failedAttempts = new HashMap<String, Integer>(); // guarded by flushLock
+    private long dropped;
+    private Object flushLock = new Object();
+    private volatile boolean running = true;
+    private volatile int failedFlushes;
+    private Thread flusher;
+
+    private volatile long lastFlushLatency;
+    private long totalFlushLatency;
+    private long flushCount;
+
+    /**
+     * Creates a volume history writer and starts its background thread.
+     *
+     * @param provider the storage provider
+     * @param batchSize the number of buffered observations causing a flush
+     * @param flushInterval the maximum time in ms between two flushes
+     */
+    public VolumeHistoryWriter(IStorageProvider provider, int batchSize, long flushInterval) {
+        this.provider = provider;
+        this.batchSize = Math.max(1, batchSize);
+        this.flushInterval = Math.max(1, flushInterval);
+        flusher = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                flushLoop();
+            }
+
+        }, "VolumeHistoryWriter");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Returns the shared writer for {@link DataManager#VOLUME_PREDICTION_STORAGE_MANAGER}.
+     *
+     * @return the shared writer
+     */
+    public static synchronized VolumeHistoryWriter getInstance() {
+        if (null == instance) {
+            instance = new VolumeHistoryWriter(HBASE_PROVIDER, MonitoringConfiguration.getVolumeHistoryBatchSize(),
+                MonitoringConfiguration.getVolumeHistoryFlushInterval());
+        }
+        return instance;
+    }
+
+    /**
+     * Closes the shared writer (if created).
+     */
+    public static synchronized void shutdown() {
+        if (null != instance) {
+            instance.close();
+            instance = null;
+        }
+    }
+
+    /**
+     * Buffers an observation. A later observation for the same term and timestamp replaces a buffered one.
+     *
+     * @param term the term
+     * @param timestamp the timestamp of the observation (the storage key)
+     * @param volume the observed volume
+     */
+    public void write(String term, String timestamp, Long volume) {
+        synchronized (this) {
+            if (running) {
+                Map<String, Long> data = pending.get(term);
+                if (null == data) {
+                    data = new LinkedHashMap<String, Long>();
+                    pending.put(term, data);
+                }
+                if (null == data.put(timestamp, volume)) {
+                    pendingCount++;
+                }
+                if (pendingCount >= batchSize) {
+                    notifyAll();
+                }
+            } else {
+                LogManager.getLogger(VolumeHistoryWriter.class).warn("Writer closed, ignoring volume of " + term);
+            }
+        }
+    }
+
+    /**
+     * The loop of the background thread.
+     */
+    private void flushLoop() {
+        long lastFlush = System.currentTimeMillis();
+        while (running) {
+            boolean backoff = failedFlushes > 0;
+            long deadline = lastFlush + getRetryDelay();
+            synchronized (this) {
+                long now = System.currentTimeMillis();
+                while (running && (backoff || pendingCount < batchSize) && now < deadline) {
+                    try {
+                        wait(deadline - now);
+                    } catch (InterruptedException e) {
+                    }
+                    now = System.currentTimeMillis();
+                }
+            }
+            flush();
+            lastFlush = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Returns the time to wait after the last flush before flushing again, i.e., the flush interval or, after failed
+     * flushes, the exponentially increased flush interval.
+     * 
+     * @return the time in ms
+     */
+    private long getRetryDelay() {
+        int failed = failedFlushes;
+        return failed <= 0 ? flushInterval 
+            : flushInterval * Math.min(MAX_BACKOFF_FACTOR, 1L << Math.min(failed - 1, Integer.SIZE - 2));
+    }
+
+    /**
+     * Writes all buffered observations, one batch per term. If writing a batch fails, the storage of the term is 
+     * released and the observations are buffered again for the next flush.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            boolean failed = false;
+            Map<String, Map<String, Long>> batch;
+            synchronized (this) {
+                batch = pending;
+                pending = new HashMap<String, Map<String, Long>>();
+                pendingCount = 0;
+            }
+            if (!batch.isEmpty()) {
+                long start = System.currentTimeMillis();
+                for (Map.Entry<String, Map<String, Long>> entry : batch.entrySet()) {
+                    String term = entry.getKey();
+                    try {
+                        IBatchStorageSupport storage = storages.get(term);
+                        if (null == storage) {
+                            storage = provider.obtain(term);
+                            storages.put(term, storage);
+                        }
+                        storage.write(entry.getValue());
+                        failedAttempts.remove(term);
+                    } catch (RuntimeException e) {
+                        LogManager.getLogger(VolumeHistoryWriter.class).error("While writing volumes of " + term
+                            + ": " + e.getMessage());
+                        evict(term);
+                        requeue(term, entry.getValue());
+                        failed = true;
+                    }
+                }
+                lastFlushLatency = System.currentTimeMillis() - start;
+                synchronized (this) {
+                    totalFlushLatency += lastFlushLatency;
+                    flushCount++;
+                }
+            }
+            failedFlushes = failed ? failedFlushes + 1 : 0;
+            publishObservables(!batch.isEmpty());
+        }
+    }
+
+    /**
+     * Publishes the metrics of this writer as observables of the platform.
+     * 
+     * @param flushed whether observations were written, i.e., whether the flush time shall be published
+     */
+    private void publishObservables(boolean flushed) {
+        PlatformSystemPart platform = MonitoringManager.getSystemState().getPlatform();
+        platform.setValue(ResourceUsage.VOLUME_HISTORY_QUEUE_DEPTH, getQueueDepth(), null);
+        platform.setValue(ResourceUsage.VOLUME_HISTORY_DROPPED, getDroppedCount(), null);
+        if (flushed) {
+            platform.setValue(TimeBehavior.VOLUME_HISTORY_FLUSH_TIME, lastFlushLatency, null);
+        }
+    }
+
+    /**
+     * Releases the storage of a term so that it is obtained again for the next write. Call only while holding
+     * <code>flushLock</code>.
+     *
+     * @param term the term
+     */
+    private void evict(String term) {
+        IBatchStorageSupport storage = storages.remove(term);
+        if (null != storage) {
+            try {
+                provider.release(term, storage);
+            } catch (RuntimeException e) {
+                LogManager.getLogger(VolumeHistoryWriter.class).error("While releasing storage of " + term + ": " 
+                    + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Buffers the observations of a failed batch again unless the maximum number of attempts is reached. Buffered 
+     * observations for the same timestamp take precedence. Call only while holding <code>flushLock</code>.
+     *
+     * @param term the term
+     * @param data the observations of the failed batch
+     */
+    private void requeue(String term, Map<String, Long> data) {
+        Integer attempts = failedAttempts.get(term);
+        attempts = null == attempts ? 1 : attempts + 1;
+        if (attempts >= MAX_WRITE_ATTEMPTS) {
+            failedAttempts.remove(term);
+            synchronized (this) {
+                dropped += data.size();
+            }
+            LogManager.getLogger(VolumeHistoryWriter.class).error("Dropping " + data.size() + " volumes of " + term 
+                + " after " + attempts + " failed attempts");
+        } else {
+            failedAttempts.put(term, attempts);
+            synchronized (this) {
+                Map<String, Long> newer = pending.get(term);
+                Map<String, Long> merged = new LinkedHashMap<String, Long>(data);
+                if (null != newer) {
+                    merged.putAll(newer);
+                    pendingCount -= newer.size();
+                }
+                pending.put(term, merged);
+                pendingCount += merged.size();
+            }
+        }
+    }
+
+    /**
+     * Stops the background thread, writes the buffered observations (with at most {@link #MAX_WRITE_ATTEMPTS} 
+     * attempts) and releases the storages.
+     */
+    public void close() {
+        synchronized (this) {
+            running = false;
+            notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+        }
+        for (int a = 0; a < MAX_WRITE_ATTEMPTS && getQueueDepth() > 0; a++) {
+            flush();
+        }
+        synchronized (flushLock) {
+            for (Map.Entry<String, IBatchStorageSupport> entry : storages.entrySet()) {
+                try {
+                    provider.release(entry.getKey(), entry.getValue());
+                } catch (RuntimeException e) {
+                    LogManager.getLogger(VolumeHistoryWriter.class).error("While releasing storage of "
+                        + entry.getKey() + ": " + e.getMessage());
+                }
+            }
+            storages.clear();
+        }
+    }
+
+    /**
+     * Returns the number of buffered observations.
+     *
+     * @return the number of buffered observations
+     */
+    public synchronized int getQueueDepth() {
+        return pendingCount;
+    }
+
+    /**
+     * Returns the number of observations dropped as writing them failed repeatedly.
+     *
+     * @return the number of dropped observations
+     */
+    public synchronized long getDroppedCount() {
+        return dropped;
+    }
+
+    /**
+     * Returns the latency of the last flush.
+     *
+     * @return the latency in ms
+     */
+    public long getLastFlushLatency() {
+        return lastFlushLatency;
+    }
+
+    /**
+     * Returns the average latency of all flushes so far.
+     *
+     * @return the average latency in ms, <code>0</code> if there was no flush
+     */
+    public synchronized double getAverageFlushLatency() {
+        return flushCount == 0 ? 0 : totalFlushLatency / (double) flushCount;
+    }
+
+    /**
+     * Returns the number of flushes that wrote observations.
+     *
+     * @return the number of flushes
+     */
+    public synchronized long getFlushCount() {
+        return flushCount;
+    }
+
+}
@@ -252,6 +252,8 @@ public class VolumePredictionManager {
 	public static void stop() {
 	    EventManager.unregister(HISTORICAL_DATA_REGISTRATION_EVENT_HANDLER);
 	    EventManager.unregister(SOURCE_VOLUME_PREDICTION_REQUEST_HANDLER);
+	    VolumePredictor.shutdownTraining();
+	    VolumeHistoryWriter.shutdown();
 	}
 	
 	/**
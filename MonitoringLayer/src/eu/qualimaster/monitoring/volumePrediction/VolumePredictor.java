@@ -1,8 +1,6 @@
 package eu.qualimaster.monitoring.volumePrediction;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
@@ -10,14 +8,17 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import eu.qualimaster.adaptation.events.SourceVolumeAdaptationEvent;
-import eu.qualimaster.dataManagement.DataManager;
 import eu.qualimaster.dataManagement.sources.IHistoricalDataProvider;
 import eu.qualimaster.dataManagement.sources.TwitterHistoricalDataProvider;
-import eu.qualimaster.dataManagement.storage.hbase.HBaseStorageSupport;
 import eu.qualimaster.events.EventManager;
 import eu.qualimaster.monitoring.MonitoringConfiguration;
 
@@ -44,10 +45,16 @@ public class VolumePredictor {
 	private HashMap<String, ArrayList<Long>> recentVolumes;
 
 	/** Map containing the term (either stocks or hashtags) for which a prediction model is available (along with the corresponding model) */
-	private HashMap<String,Prediction> models;
+	private volatile HashMap<String,Prediction> models;
 	
 	/** Map containing the term (either stocks or hashtags) for which a "blind" prediction model is available (along with the corresponding model) */
-	private HashMap<String,BlindPrediction> blindModels;
+	private volatile HashMap<String,BlindPrediction> blindModels;
+	
+	/** Guards the sets of terms and the exchange of the model maps */
+	private final Object modelLock = new Object();
+	
+	/** The pool for training the models of the individual terms in parallel (shared by all predictors) */
+	private static ForkJoinPool trainingPool;
 	
 	/** The status of the component (whether it is running or not) */
 	private boolean running;
@@ -133,9 +140,11 @@ public class VolumePredictor {
 		for(String term : this.monitoredTerms) this.recentVolumes.put(term, new ArrayList<Long>()); 
 		this.running = false;
 		this.historicalDataFile = new File(filePath);
-		this.models = new HashMap<>();
-		this.blindModels = new HashMap<>();
-		initializeModels(this.models, this.blindModels);
+		HashMap<String,Prediction> models = new HashMap<>();
+		HashMap<String,BlindPrediction> blindModels = new HashMap<>();
+		initializeModels(new HashSet<>(this.monitoredTerms), new HashSet<>(this.blindTerms), null, models, blindModels);
+		this.models = models;
+		this.blindModels = blindModels;
 	}
 	
 	/**
@@ -171,8 +180,10 @@ public class VolumePredictor {
 		else
 		{
 			// add the term to the set of blind models with a null model, so that a model for this new term will be trained during the next update.
-			this.blindModels.put(term, null);
-			this.blindTerms.add(term);
+			synchronized(this.modelLock){
+				this.blindModels.put(term, null);
+				this.blindTerms.add(term);
+			}
 			return -1;
 		}
 	}
@@ -247,20 +258,36 @@ public class VolumePredictor {
 	}
 	
 	/**
-	 * Updates the prediction models of each monitored and blind term.
+	 * Updates the prediction models of each monitored and blind term. The models are trained in parallel, existing
+	 * models are kept and just primed with the recent observations if the historical data did not change significantly.
 	 */
 	public void updatePrediction()
 	{
+		HashSet<String> monitoredTerms;
+		HashSet<String> blindTerms;
+		synchronized(this.modelLock){
+			monitoredTerms = new HashSet<>(this.monitoredTerms);
+			blindTerms = new HashSet<>(this.blindTerms);
+		}
+		
 		// create the new models in separate objects not to interfere with any prediction that might be running
 		HashMap<String,Prediction> newModels = new HashMap<>();
 		HashMap<String,BlindPrediction> newBlindModels = new HashMap<>();
-		initializeModels(newModels, newBlindModels);
+		initializeModels(monitoredTerms, blindTerms, this.models, newModels, newBlindModels);
 		
-		// change the models
-		this.models.clear();
-		this.models.putAll(newModels);
-		this.blindModels.clear();
-		this.blindModels.putAll(newBlindModels);
+		// atomically exchange the models, considering terms that were added or removed during the update
+		synchronized(this.modelLock){
+			for(Map.Entry<String,Prediction> entry : this.models.entrySet()){
+				if(!newModels.containsKey(entry.getKey())) newModels.put(entry.getKey(), entry.getValue());
+			}
+			newModels.keySet().retainAll(this.monitoredTerms);
+			for(Map.Entry<String,BlindPrediction> entry : this.blindModels.entrySet()){
+				if(!newBlindModels.containsKey(entry.getKey())) newBlindModels.put(entry.getKey(), entry.getValue());
+			}
+			newBlindModels.keySet().retainAll(this.blindTerms);
+			this.models = newModels;
+			this.blindModels = newBlindModels;
+		}
 	}
 	
 	private double evaluatePrediction(String term, double prediction)
@@ -340,51 +367,163 @@ public class VolumePredictor {
 		}
 	}
 	
-	private void initializeModels(HashMap<String,Prediction> models, HashMap<String,BlindPrediction> blindModels){
+	private void initializeModels(HashSet<String> monitoredTerms, HashSet<String> blindTerms, 
+		HashMap<String,Prediction> oldModels, HashMap<String,Prediction> models,
+		HashMap<String,BlindPrediction> blindModels){
 		// make the union of monitored and blind terms to avoid getting historical data twice (in case a term appears in both the sets)
 		HashSet<String> allTerms = new HashSet<>();
-		allTerms.addAll(this.monitoredTerms);
-		allTerms.addAll(this.blindTerms);
+		allTerms.addAll(monitoredTerms);
+		allTerms.addAll(blindTerms);
 		this.historyProvider.setTest(this.test);
 		
+		// train the models of each term in isolation, a failing term does not affect the others
+		List<TrainingTask> tasks = new ArrayList<>();
 		for(String term : allTerms){
-			System.out.println("Term: " + term);
-			getHistoricalData(term, NUM_MONTHS, this.historicalDataFile);
-			
-			// monitored models
-			if(this.monitoredTerms.contains(term)){
-				Prediction model = new Prediction(term, this.historicalDataFile);
-				if(model.getForecaster() == null) model = null;
-				models.put(term, model);
+			Prediction oldModel = oldModels != null ? oldModels.get(term) : null;
+			tasks.add(new TrainingTask(term, monitoredTerms.contains(term), blindTerms.contains(term), oldModel));
+		}
+		try{
+			for(Future<TrainingTask> future : getTrainingPool().invokeAll(tasks)){
+				TrainingTask task = future.get();
+				// failed trainings leave no entry so that the existing models are kept when swapping
+				if(task.monitored && task.model != null) models.put(task.term, task.model);
+				if(task.blind && task.blindModel != null) blindModels.put(task.term, task.blindModel);
+			}
+		}
+		catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+		catch(ExecutionException e){
+			System.out.println("ERROR: training the volume prediction models failed: " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * Trains the models of a single term.
+	 */
+	private class TrainingTask implements Callable<TrainingTask> {
+		
+		private String term;
+		private boolean monitored;
+		private boolean blind;
+		private Prediction oldModel;
+		private Prediction model;
+		private BlindPrediction blindModel;
+		
+		/**
+		 * Creates a training task.
+		 * @param term the term to train the models for
+		 * @param monitored whether a prediction model shall be trained
+		 * @param blind whether a blind prediction model shall be trained
+		 * @param oldModel the existing prediction model for the term (may be null)
+		 */
+		private TrainingTask(String term, boolean monitored, boolean blind, Prediction oldModel){
+			this.term = term;
+			this.monitored = monitored;
+			this.blind = blind;
+			this.oldModel = oldModel;
+		}
+		
+		@Override
+		public TrainingTask call(){
+			try{
+				System.out.println("Term: " + term);
+				// historical data is read only once per term and update, and used for both kinds of models
+				TreeMap<String,Long> data = getHistoricalData(term);
+				if(monitored) model = createModel(term, data, oldModel);
+				if(blind){
+					blindModel = new BlindPrediction(term, data);
+					if(blindModel.getHistoricalVolumes() == null) blindModel = null;
+				}
 			}
-			// blind models
-			if(this.blindTerms.contains(term)){
-				BlindPrediction model = new BlindPrediction(term, this.historicalDataFile);
-				if(model.getHistoricalVolumes() == null) model = null;
-				blindModels.put(term, model);
+			catch(Throwable t){
+				System.out.println("ERROR: training the volume prediction models failed for term " + term + ": "
+					+ t.getMessage());
+				model = oldModel;
 			}
-		}	
+			return this;
+		}
+	}
+	
+	/**
+	 * Creates the prediction model for a term. An existing model is kept if it does not require retraining.
+	 * A retrained model is primed with the recent volumes of the existing model. If retraining fails, the existing
+	 * model is kept. [public for testing]
+	 * @param term the term
+	 * @param data the historical data of the term
+	 * @param oldModel the existing model (may be null)
+	 * @return the model, null if no model can be trained and there is no existing model
+	 */
+	public static Prediction createModel(String term, TreeMap<String,Long> data, Prediction oldModel){
+		Prediction model;
+		if(oldModel != null && !data.isEmpty() && !oldModel.needsRetraining(data)){
+			model = oldModel;
+		}
+		else{
+			model = new Prediction(term, data);
+			if(model.getForecaster() == null) model = oldModel;
+			else if(oldModel != null) model.primeRecentVolumes(oldModel);
+		}
+		return model;
+	}
+	
+	/**
+	 * Returns the pool for training the models.
+	 * @return the pool
+	 */
+	private static synchronized ForkJoinPool getTrainingPool(){
+		if(trainingPool == null){
+			int parallelism = MonitoringConfiguration.getVolumeModelTrainingParallelism();
+			if(parallelism <= 0) parallelism = Runtime.getRuntime().availableProcessors();
+			trainingPool = new ForkJoinPool(parallelism);
+		}
+		return trainingPool;
+	}
+	
+	/**
+	 * Stops the pool for training the models (if created).
+	 */
+	public static synchronized void shutdownTraining(){
+		if(trainingPool != null){
+			trainingPool.shutdown();
+			trainingPool = null;
+		}
 	}
 	
-	private void getHistoricalData(String term, long months, File outputFile)
+	/**
+	 * Returns the file for temporarily storing the historical data of a term. Each term uses an own file, so that
+	 * terms can be processed in parallel.
+	 * @param term the term
+	 * @return the file
+	 */
+	private File getHistoricalDataFile(String term){
+		String name = term.replaceAll("[^a-zA-Z0-9_-]", "_") + "_" + Integer.toHexString(term.hashCode());
+		return new File(this.historicalDataFile.getParentFile(), name + "_" + this.historicalDataFile.getName());
+	}
+	
+	/**
+	 * Obtains the historical data of a term.
+	 * @param term the term
+	 * @return the historical data (timestamps and volumes), empty if no historical data is available
+	 */
+	private TreeMap<String,Long> getHistoricalData(String term)
 	{
+		TreeMap<String,Long> data;
+		File file = getHistoricalDataFile(term);
 		try{
-			//if(this.test) this.historyProvider.obtainHistoricalData(NUM_MONTHS, term, this.historicalDataFile, TEST_URL);
-			if(this.test) this.historyProvider.obtainHistoricalData(NUM_MONTHS, term, this.historicalDataFile, MonitoringConfiguration.getVolumeModelLocation() + TEST_HISTORICAL_FOLDER);
-			else this.historyProvider.obtainHistoricalData(NUM_MONTHS, term, this.historicalDataFile);
+			//if(this.test) this.historyProvider.obtainHistoricalData(NUM_MONTHS, term, file, TEST_URL);
+			if(this.test) this.historyProvider.obtainHistoricalData(NUM_MONTHS, term, file,
+				MonitoringConfiguration.getVolumeModelLocation() + TEST_HISTORICAL_FOLDER);
+			else this.historyProvider.obtainHistoricalData(NUM_MONTHS, term, file);
+			data = DataUtils.readData(file);
 		}
 		catch(IOException e){
-			// handle the absence of historical data:
-			// clear the content of the historicalDataFile, because it refers to the read of historical data for a previous term
+			// handle the absence of historical data
 			System.out.println("ERROR: historical data not available for term:" + term);
-			try {
-				BufferedWriter writer = new BufferedWriter(new FileWriter(this.historicalDataFile));
-				writer.write("");
-				writer.close();
-			} catch (IOException e1) {
-				e1.printStackTrace();
-			}
+			data = new TreeMap<>();
 		}
+		file.delete();
+		return data;
 	}
 	
 	/**
@@ -431,12 +570,8 @@ public class VolumePredictor {
 	}
 	
 	private void storeTwitterVolume(String timestamp, String term, Long volume){
-		// Get the HBase table containing data for the input term and write into it
-    	// TODO which strategy should be used?
-    	HBaseStorageSupport table = (HBaseStorageSupport) DataManager.VOLUME_PREDICTION_STORAGE_MANAGER.getTable("", term, null);
-    	table.connect();
-    	table.doWrite(timestamp, volume);
-    	table.disconnect();
+		// buffer the volume, the shared writer stores it in the HBase table of the term in batches
+		VolumeHistoryWriter.getInstance().write(term, timestamp, volume);
 	}
 	
 	/**
@@ -445,9 +580,11 @@ public class VolumePredictor {
 	 */
 	public void removeMonitoredTerm(String term)
 	{
-		this.monitoredTerms.remove(term);
-		this.models.remove(term);
-		this.recentVolumes.remove(term);
+		synchronized(this.modelLock){
+			this.monitoredTerms.remove(term);
+			this.models.remove(term);
+			this.recentVolumes.remove(term);
+		}
 	}
 	
 	/**
@@ -457,13 +594,13 @@ public class VolumePredictor {
 	 */
 	public void addMonitoredTerm(String term)
 	{
-		getHistoricalData(term, NUM_MONTHS, this.historicalDataFile);
-		
-		Prediction model = new Prediction(term, this.historicalDataFile);
+		Prediction model = new Prediction(term, getHistoricalData(term));
 		if(model.getForecaster() == null) model = null;
-		this.models.put(term, model);
-		this.monitoredTerms.add(term);
-		this.recentVolumes.put(term, new ArrayList<Long>());
+		synchronized(this.modelLock){
+			this.models.put(term, model);
+			this.monitoredTerms.add(term);
+			this.recentVolumes.put(term, new ArrayList<Long>());
+		}
 	}
 	
 	/**
@@ -472,8 +609,10 @@ public class VolumePredictor {
 	 */
 	public void removeBlindTerm(String term)
 	{
-		this.blindTerms.remove(term);
-		this.blindModels.remove(term);
+		synchronized(this.modelLock){
+			this.blindTerms.remove(term);
+			this.blindModels.remove(term);
+		}
 	}
 	
 	/**
@@ -483,12 +622,12 @@ public class VolumePredictor {
 	 */
 	public void addBlindTerm(String term)
 	{
-		getHistoricalData(term, NUM_MONTHS, this.historicalDataFile);
-		
-		BlindPrediction model = new BlindPrediction(term, this.historicalDataFile);
+		BlindPrediction model = new BlindPrediction(term, getHistoricalData(term));
 		if(model.getHistoricalVolumes() == null) model = null;
-		this.blindModels.put(term, model);
-		this.blindTerms.add(term);
+		synchronized(this.modelLock){
+			this.blindModels.put(term, model);
+			this.blindTerms.add(term);
+		}
 	}
 	
 //	public void updateTermThreshold(String term, long threshold){
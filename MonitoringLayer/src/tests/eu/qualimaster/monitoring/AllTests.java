@@ -4,6 +4,8 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
 import tests.eu.qualimaster.monitoring.profiling.ProfilingTests;
+import tests.eu.qualimaster.monitoring.volumePrediction.PredictionTest;
+import tests.eu.qualimaster.monitoring.volumePrediction.VolumeHistoryWriterTest;
 
 /**
  * The test suite for the Data Management Layer. Do not rename this class.<br/>
@@ -18,7 +20,8 @@ import tests.eu.qualimaster.monitoring.profiling.ProfilingTests;
     HwMonitoringTest.class, SystemStateTest.class, LogTest.class, TopologyTests.class, ReasoningTaskTests.class, 
     StormClusterMonitoringTest.class, ObservationTests.class, 
     CloudEnvironmentTests.class,
-    ProfilingTests.class,
+    ProfilingTests.class, MonitoringHistoryTests.class, TracingTests.class,
+    VolumeHistoryWriterTest.class, PredictionTest.class, ReasoningChangeDetectorTests.class,
     // must be last
     MonitoringConfigurationTests.class})
 public class AllTests {
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2009-2015 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tests.eu.qualimaster.monitoring;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import eu.qualimaster.monitoring.events.ComponentKey;
+import eu.qualimaster.monitoring.events.PipelineElementObservationMonitoringEvent;
+import eu.qualimaster.monitoring.systemState.PipelineSystemPart;
+import eu.qualimaster.monitoring.systemState.StateUtils;
+import eu.qualimaster.monitoring.systemState.SystemPart;
+import eu.qualimaster.monitoring.systemState.SystemState;
+import eu.qualimaster.observables.IObservable;
+import eu.qualimaster.observables.TimeBehavior;
+import tests.eu.qualimaster.ManualBenchmark;
+
+/**
+ * A manual benchmark measuring the contention on the observations of the system parts. A recording of pipeline 
+ * element monitoring events is replayed by an increasing number of threads into a shared system state as done by
+ * the monitoring event handlers while one thread freezes the system state as done by reasoning. Reports the 
+ * replayed events/s and the freezes/s per number of threads. See {@link ManualBenchmark}.
+ * 
+ * @author Holger Eichelberger
+ */
+public class ManualObservationStoreBenchmark {
+
+    private static final String PIPELINE = "pip";
+    private static final String[] ELEMENTS = {"src", "processor1", "processor2", "sink"};
+    private static final IObservable[] OBSERVABLES = {TimeBehavior.LATENCY, TimeBehavior.THROUGHPUT_ITEMS, 
+        TimeBehavior.THROUGHPUT_VOLUME, TimeBehavior.LATENCY_MAX};
+    private static final int TASKS = 8;
+    private static final int RECORDING_SIZE = 10000;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURE_ROUNDS = 20;
+    private static final int[] THREADS = {1, 2, 4, 8};
+
+    /**
+     * Records a sequence of pipeline element monitoring events as sent by the pipeline elements.
+     * 
+     * @return the recorded events
+     */
+    private static PipelineElementObservationMonitoringEvent[] record() {
+        PipelineElementObservationMonitoringEvent[] result 
+            = new PipelineElementObservationMonitoringEvent[RECORDING_SIZE];
+        for (int i = 0; i < RECORDING_SIZE; i++) {
+            ComponentKey key = new ComponentKey("localhost", 6700, i % TASKS);
+            result[i] = new PipelineElementObservationMonitoringEvent(PIPELINE, ELEMENTS[i % ELEMENTS.length], key,
+                OBSERVABLES[(i / ELEMENTS.length) % OBSERVABLES.length], Double.valueOf(i % 100));
+        }
+        return result;
+    }
+
+    /**
+     * Resolves the target system parts of the recorded events once so that only the updates are measured.
+     * 
+     * @param state the system state
+     * @param events the recorded events
+     * @return the target parts in the sequence of <code>events</code>
+     */
+    private static SystemPart[] resolve(SystemState state, PipelineElementObservationMonitoringEvent[] events) {
+        PipelineSystemPart pipeline = state.obtainPipeline(PIPELINE);
+        SystemPart[] result = new SystemPart[events.length];
+        for (int e = 0; e < events.length; e++) {
+            result[e] = pipeline.obtainPipelineNode(events[e].getPipelineElement());
+        }
+        return result;
+    }
+
+    /**
+     * Replays the recorded events.
+     * 
+     * @param events the recorded events
+     * @param parts the target parts
+     * @param rounds the number of rounds to replay
+     */
+    private static void replay(PipelineElementObservationMonitoringEvent[] events, SystemPart[] parts, int rounds) {
+        for (int r = 0; r < rounds; r++) {
+            for (int e = 0; e < events.length; e++) {
+                PipelineElementObservationMonitoringEvent event = events[e];
+                IObservable observable = event.getObservable();
+                Object key = event.getKey();
+                StateUtils.setValue(parts[e], observable, event.getObservation(), key);
+                if (StateUtils.changesLatency(observable)) {
+                    StateUtils.updateCapacity(parts[e], key, false);
+                }
+            }
+        }
+    }
+
+    /**
+     * Measures the given number of replaying threads and prints the results.
+     * 
+     * @param threads the number of replaying threads
+     * @param events the recorded events
+     * @throws InterruptedException if waiting for the threads is interrupted
+     */
+    private static void measure(final int threads, final PipelineElementObservationMonitoringEvent[] events) 
+        throws InterruptedException {
+        final SystemState state = new SystemState();
+        final SystemPart[] parts = resolve(state, events);
+        ManualBenchmark.warmup(WARMUP_ROUNDS, new ManualBenchmark.IRound() {
+
+            @Override
+            public long run() {
+                replay(events, parts, 1);
+                return events.length;
+            }
+
+        });
+        final AtomicBoolean done = new AtomicBoolean(false);
+        final AtomicLong freezes = new AtomicLong();
+        Thread freezer = new Thread() {
+
+            @Override
+            public void run() {
+                while (!done.get()) {
+                    state.freeze();
+                    freezes.incrementAndGet();
+                }
+            }
+
+        };
+        freezer.start();
+        String name = threads + " threads";
+        long time = ManualBenchmark.measure(name, "event", 1, new ManualBenchmark.IRound() {
+
+            @Override
+            public long run() throws InterruptedException {
+                final CountDownLatch start = new CountDownLatch(1);
+                List<Thread> replayers = new ArrayList<Thread>();
+                for (int t = 0; t < threads; t++) {
+                    Thread replayer = new Thread() {
+
+                        @Override
+                        public void run() {
+                            try {
+                                start.await();
+                                replay(events, parts, MEASURE_ROUNDS);
+                            } catch (InterruptedException e) {
+                                // stop
+                            }
+                        }
+
+                    };
+                    replayer.start();
+                    replayers.add(replayer);
+                }
+                start.countDown();
+                for (Thread replayer : replayers) {
+                    replayer.join();
+                }
+                return threads * MEASURE_ROUNDS * (long) events.length;
+            }
+
+        });
+        done.set(true);
+        freezer.join();
+        ManualBenchmark.report(name, freezes.get(), time, "freeze", null);
+    }
+
+    /**
+     * Executes the benchmark.
+     * 
+     * @param args ignored
+     * @throws InterruptedException if waiting for the threads is interrupted
+     */
+    public static void main(String[] args) throws InterruptedException {
+        PipelineElementObservationMonitoringEvent[] events = record();
+        for (int t = 0; t < THREADS.length; t++) {
+            measure(THREADS[t], events);
+        }
+    }
+
+}
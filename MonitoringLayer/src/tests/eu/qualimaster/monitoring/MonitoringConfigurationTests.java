@@ -28,8 +28,30 @@ public class MonitoringConfigurationTests extends CoordinationConfigurationTests
         Assert.assertEquals(1002, MonitoringConfiguration.getPipelineMonitoringFrequency());
         Assert.assertEquals(5, MonitoringConfiguration.getStormExecutorStartupWaitingTime());
         Assert.assertTrue(MonitoringConfiguration.debugThriftMonitoring());
+        Assert.assertEquals(MonitoringConfiguration.DEFAULT_THRIFT_MONITORING_CONNECTIONS, 
+            MonitoringConfiguration.getThriftMonitoringConnections());
+        Assert.assertEquals(MonitoringConfiguration.DEFAULT_MONITORING_HISTORY_ENABLED, 
+            MonitoringConfiguration.isMonitoringHistoryEnabled());
+        Assert.assertEquals(MonitoringConfiguration.DEFAULT_MONITORING_HISTORY_LOCATION, 
+            MonitoringConfiguration.getMonitoringHistoryLocation());
+        Assert.assertFalse(MonitoringConfiguration.isBinaryTraceFormat());
+        Assert.assertEquals(MonitoringConfiguration.DEFAULT_MONITORING_TRACE_COMPRESS, 
+            MonitoringConfiguration.compressTraces());
+        Assert.assertEquals(0, MonitoringConfiguration.getTraceRotationSize());
+        Assert.assertEquals(0, MonitoringConfiguration.getTraceRotationTime());
+        Assert.assertEquals(MonitoringConfiguration.DEFAULT_PROFILE_CHECKPOINT_INTERVAL, 
+            MonitoringConfiguration.getProfileCheckpointInterval());
         Assert.assertEquals(MonitoringConfiguration.DEFAULT_VOLUME_MODEL_LOCATION, 
             MonitoringConfiguration.getProfileLocation());
+        Assert.assertEquals(MonitoringConfiguration.DEFAULT_VOLUME_MODEL_TRAINING_PARALLELISM, 
+            MonitoringConfiguration.getVolumeModelTrainingParallelism());
+        Assert.assertEquals(MonitoringConfiguration.DEFAULT_VOLUME_HISTORY_BATCH_SIZE, 
+            MonitoringConfiguration.getVolumeHistoryBatchSize());
+        Assert.assertEquals(MonitoringConfiguration.DEFAULT_VOLUME_HISTORY_FLUSH_INTERVAL, 
+            MonitoringConfiguration.getVolumeHistoryFlushInterval());
+        Assert.assertTrue(MonitoringConfiguration.getReasoningTolerances().isEmpty());
+        Assert.assertEquals(MonitoringConfiguration.DEFAULT_MONITORING_REASONING_MAX_SKIPS, 
+            MonitoringConfiguration.getReasoningMaxSkips());
     }
 
     @Override
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2009-2015 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tests.eu.qualimaster.monitoring;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import eu.qualimaster.monitoring.MonitoringConfiguration;
+import eu.qualimaster.monitoring.events.FrozenSystemState;
+import eu.qualimaster.monitoring.history.HistoryAggregate;
+import eu.qualimaster.monitoring.history.MonitoringHistory;
+import eu.qualimaster.monitoring.history.ObservationHistory;
+import eu.qualimaster.monitoring.history.TimeSeries;
+import eu.qualimaster.monitoring.systemState.MachineSystemPart;
+import eu.qualimaster.monitoring.systemState.SystemState;
+import eu.qualimaster.observables.IObservable;
+import eu.qualimaster.observables.ResourceUsage;
+import eu.qualimaster.observables.TimeBehavior;
+
+/**
+ * Tests the monitoring history.
+ *
+ * @author Holger Eichelberger
+ */
+public class MonitoringHistoryTests {
+
+    private static final long BASE = 1000 * 1000;
+
+    /**
+     * Cleans up after a test.
+     */
+    @After
+    public void tearDown() {
+        MonitoringHistory.clear();
+    }
+
+    /**
+     * Tests recording, aggregating and downsampling of a time series.
+     */
+    @Test
+    public void timeSeriesTest() {
+        TimeSeries ts = new TimeSeries(new long[] {1000, 10000}, new int[] {10, 10});
+        Assert.assertTrue(ts.aggregate(0, Long.MAX_VALUE).isEmpty());
+        Assert.assertTrue(Double.isNaN(ts.rate(0, Long.MAX_VALUE)));
+        for (int s = 0; s < 20; s++) {
+            ts.record(BASE + s * 1000, s);
+            ts.record(BASE + s * 1000 + 500, s + 0.5);
+        }
+        Assert.assertEquals(BASE + 19500, ts.getLastTime());
+
+        // last 10 s are in the finest tier
+        List<HistoryAggregate> slots = ts.range(BASE + 10000, BASE + 19999);
+        Assert.assertEquals(10, slots.size());
+        HistoryAggregate slot = slots.get(0);
+        Assert.assertEquals(BASE + 10000, slot.getStart());
+        Assert.assertEquals(BASE + 11000, slot.getEnd());
+        Assert.assertEquals(10, slot.getMin(), 0.001);
+        Assert.assertEquals(10.5, slot.getMax(), 0.001);
+        Assert.assertEquals(10.25, slot.getAverage(), 0.001);
+        Assert.assertEquals(2, slot.getCount());
+        Assert.assertEquals(10.5, slot.getLast(), 0.001);
+
+        HistoryAggregate agg = ts.aggregate(BASE + 15000, BASE + 19999);
+        Assert.assertEquals(15, agg.getMin(), 0.001);
+        Assert.assertEquals(19.5, agg.getMax(), 0.001);
+        Assert.assertEquals(10, agg.getCount());
+        Assert.assertEquals(19.5, agg.getLast(), 0.001);
+        Assert.assertEquals(1, ts.rate(BASE + 15000, BASE + 19999), 0.001);
+
+        // older values were overwritten in the finest tier, answered by the coarser one
+        slots = ts.range(BASE, BASE + 19999);
+        Assert.assertEquals(2, slots.size());
+        Assert.assertEquals(BASE, slots.get(0).getStart());
+        Assert.assertEquals(20, slots.get(0).getCount());
+        Assert.assertEquals(0, slots.get(0).getMin(), 0.001);
+        Assert.assertEquals(9.5, slots.get(0).getMax(), 0.001);
+        agg = ts.aggregate(BASE, BASE + 19999);
+        Assert.assertEquals(40, agg.getCount());
+        Assert.assertEquals(9.75, agg.getAverage(), 0.001);
+    }
+
+    /**
+     * Enables or disables the monitoring history.
+     * 
+     * @param enable whether the history shall be enabled
+     */
+    private static void configureHistory(boolean enable) {
+        Properties prop = new Properties();
+        prop.put(MonitoringConfiguration.MONITORING_HISTORY_ENABLED, String.valueOf(enable));
+        MonitoringConfiguration.configure(prop, false);
+    }
+
+    /**
+     * Tests that system parts do not have a history by default.
+     */
+    @Test
+    public void systemPartNoHistoryTest() {
+        configureHistory(MonitoringConfiguration.DEFAULT_MONITORING_HISTORY_ENABLED);
+        SystemState state = new SystemState();
+        Assert.assertNull(state.getPlatform().obtainMachine("machine").getHistory());
+        Assert.assertNull(MonitoringHistory.getHistory(MonitoringHistory.getPartKey(FrozenSystemState.MACHINE, 
+            "machine")));
+    }
+
+    /**
+     * Tests the history of a system part.
+     */
+    @Test
+    public void systemPartHistoryTest() {
+        configureHistory(true);
+        SystemState state = new SystemState();
+        MachineSystemPart machine = state.getPlatform().obtainMachine("machine");
+        configureHistory(MonitoringConfiguration.DEFAULT_MONITORING_HISTORY_ENABLED);
+        ObservationHistory history = machine.getHistory();
+        Assert.assertNotNull(history);
+        Assert.assertTrue(history.getRecordedObservables().isEmpty());
+        long start = System.currentTimeMillis();
+        machine.setValue(ResourceUsage.AVAILABLE, 1.0, null);
+        machine.setValue(ResourceUsage.AVAILABLE, 0.0, null); // sampled away
+        state.freeze(); // registers, does not record
+        long end = System.currentTimeMillis();
+        Assert.assertTrue(history.getRecordedObservables().contains(ResourceUsage.AVAILABLE));
+        HistoryAggregate agg = history.aggregate(ResourceUsage.AVAILABLE, start, end);
+        Assert.assertEquals(1, agg.getCount());
+        Assert.assertEquals(1, agg.getMin(), 0.001);
+        Assert.assertEquals(1, agg.getMax(), 0.001);
+        Assert.assertEquals(1, agg.getLast(), 0.001);
+        Assert.assertTrue(history.aggregate(TimeBehavior.LATENCY, start, end).isEmpty());
+        String key = MonitoringHistory.getPartKey(FrozenSystemState.MACHINE, "machine");
+        Assert.assertSame(history, MonitoringHistory.getHistory(key));
+
+        SystemState copy = new SystemState(state);
+        Assert.assertNull(copy.getPlatform().getMachine("machine").getHistory());
+        copy.freeze();
+        Assert.assertSame(history, MonitoringHistory.getHistory(key));
+
+        state.getPlatform().removeMachines(Collections.<Object>singleton("machine"));
+        Assert.assertNull(MonitoringHistory.getHistory(key));
+    }
+
+    /**
+     * Tests spilling and restoring the history.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void spillTest() throws IOException {
+        List<IObservable> observables = new ArrayList<IObservable>();
+        observables.add(TimeBehavior.LATENCY);
+        observables.add(TimeBehavior.THROUGHPUT_ITEMS);
+        ObservationHistory history = new ObservationHistory(observables);
+        for (int s = 0; s < 5; s++) {
+            history.record(TimeBehavior.LATENCY, BASE + s * 1000, s);
+        }
+        MonitoringHistory.register("part", history);
+        File file = File.createTempFile("qmHistory", ".bin");
+        file.deleteOnExit();
+        MonitoringHistory.save(file);
+        MonitoringHistory.clear();
+
+        MonitoringHistory.load(file);
+        ObservationHistory restored = new ObservationHistory(observables);
+        restored.record(TimeBehavior.LATENCY, BASE + 5000, 5);
+        MonitoringHistory.register("part", restored);
+        Assert.assertEquals(1, restored.getRecordedObservables().size());
+        HistoryAggregate agg = restored.aggregate(TimeBehavior.LATENCY, BASE, BASE + 5999);
+        Assert.assertEquals(6, agg.getCount());
+        Assert.assertEquals(0, agg.getMin(), 0.001);
+        Assert.assertEquals(5, agg.getMax(), 0.001);
+        Assert.assertEquals(5, agg.getLast(), 0.001);
+        Assert.assertEquals(1, restored.rate(TimeBehavior.LATENCY, BASE, BASE + 5999), 0.001);
+        Assert.assertTrue(restored.range(TimeBehavior.THROUGHPUT_ITEMS, BASE, BASE + 5999).isEmpty());
+
+        // unknown files are ignored
+        File unknown = File.createTempFile("qmHistory", ".bin");
+        unknown.deleteOnExit();
+        MonitoringHistory.load(unknown);
+        file.delete();
+        unknown.delete();
+    }
+
+    /**
+     * Tests that corrupted sizes in a history file are rejected instead of causing huge allocations.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void corruptedSpillTest() throws IOException {
+        assertCorrupted(Integer.MAX_VALUE, 1, 1000, 10); // key length
+        assertCorrupted(4, -1, 1000, 10); // number of tiers
+        assertCorrupted(4, Integer.MAX_VALUE, 1000, 10);
+        assertCorrupted(4, 1, 0, 10); // resolution
+        assertCorrupted(4, 1, 1000, Integer.MAX_VALUE); // capacity
+    }
+
+    /**
+     * Writes a history file for part <code>part</code> with one series of {@link TimeBehavior#LATENCY} and asserts
+     * that loading the file does not restore anything.
+     *
+     * @param keyLength the length of the part key to write, <code>4</code> for the real length
+     * @param tiers the number of tiers to write, at most one tier is written
+     * @param resolution the resolution of the tier
+     * @param capacity the capacity of the tier, at most one slot is written
+     * @throws IOException shall not occur
+     */
+    private static void assertCorrupted(int keyLength, int tiers, long resolution, int capacity) 
+        throws IOException {
+        File file = File.createTempFile("qmHistory", ".bin");
+        file.deleteOnExit();
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            out.writeInt(0x514D4849);
+            out.writeInt(1);
+            out.writeInt(1);
+            out.writeInt(keyLength);
+            out.writeBytes("part");
+            out.writeInt(1);
+            out.writeInt(TimeBehavior.LATENCY.name().length());
+            out.writeBytes(TimeBehavior.LATENCY.name());
+            out.writeLong(BASE);
+            out.writeInt(tiers);
+            out.writeLong(resolution);
+            out.writeInt(capacity);
+            out.writeLong(BASE); // one slot
+            out.writeDouble(1);
+            out.writeDouble(1);
+            out.writeDouble(1);
+            out.writeInt(1);
+            out.writeDouble(1);
+        }
+        MonitoringHistory.load(file);
+        ObservationHistory history = new ObservationHistory(Collections.<IObservable>singletonList(
+            TimeBehavior.LATENCY));
+        MonitoringHistory.register("part", history);
+        Assert.assertTrue(history.getRecordedObservables().isEmpty());
+        MonitoringHistory.clear();
+        file.delete();
+    }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tests.eu.qualimaster.monitoring;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import eu.qualimaster.infrastructure.PipelineLifecycleEvent;
+import eu.qualimaster.monitoring.ReasoningChangeDetector;
+import eu.qualimaster.monitoring.events.FrozenSystemState;
+import eu.qualimaster.observables.AnalysisObservables;
+import eu.qualimaster.observables.ResourceUsage;
+import eu.qualimaster.observables.TimeBehavior;
+
+/**
+ * Tests {@link ReasoningChangeDetector}.
+ *
+ * @author Holger Eichelberger
+ */
+public class ReasoningChangeDetectorTests {
+
+    private static final String PIPELINE = "pip";
+    private static final String ELEMENT = "elt";
+
+    /**
+     * Creates a frozen state with a few observations.
+     *
+     * @param latency the latency of {@link #ELEMENT}
+     * @param capacity the capacity of {@link #ELEMENT}
+     * @return the state
+     */
+    private static FrozenSystemState createState(double latency, double capacity) {
+        FrozenSystemState state = new FrozenSystemState();
+        state.setObservation(FrozenSystemState.PIPELINE_ELEMENT, PIPELINE, ELEMENT, TimeBehavior.LATENCY, latency);
+        state.setObservation(FrozenSystemState.PIPELINE_ELEMENT, PIPELINE, ELEMENT, ResourceUsage.CAPACITY,
+            capacity);
+        return state;
+    }
+
+    /**
+     * Performs a detection and records the state as reasoned if reasoning is needed.
+     *
+     * @param detector the detector
+     * @param state the state
+     * @param status the pipeline status
+     * @param enactments the enactment modification count
+     * @return whether reasoning is needed
+     */
+    private static boolean detect(ReasoningChangeDetector detector, FrozenSystemState state,
+        Map<String, PipelineLifecycleEvent.Status> status, long enactments) {
+        boolean needed = detector.isReasoningNeeded(state, status, enactments);
+        if (needed) {
+            detector.reasoned(status, enactments);
+        }
+        return needed;
+    }
+
+    /**
+     * Tests change detection with tolerances, relevant observables and forced reasoning.
+     */
+    @Test
+    public void testChangeDetection() {
+        Map<String, Double> tolerances = new HashMap<String, Double>();
+        tolerances.put(TimeBehavior.LATENCY.name(), 0.1);
+        ReasoningChangeDetector detector = new ReasoningChangeDetector(tolerances, 3);
+        Map<String, PipelineLifecycleEvent.Status> status = new HashMap<String, PipelineLifecycleEvent.Status>();
+        status.put(PIPELINE, PipelineLifecycleEvent.Status.STARTED);
+
+        Assert.assertTrue(detect(detector, createState(100, 0.5), status, 0)); // first run
+        Assert.assertFalse(detect(detector, createState(100, 0.5), status, 0)); // unchanged
+        Assert.assertFalse(detect(detector, createState(105, 0.5), status, 0)); // within tolerance
+        Assert.assertTrue(detect(detector, createState(120, 0.5), status, 0)); // beyond tolerance
+        Assert.assertTrue(detect(detector, createState(120, 0.51), status, 0)); // no tolerance for capacity
+        Assert.assertTrue(detect(detector, createState(120, 0.51), status, 1)); // enactment
+        Map<String, PipelineLifecycleEvent.Status> status2 = new HashMap<String, PipelineLifecycleEvent.Status>();
+        status2.put(PIPELINE, PipelineLifecycleEvent.Status.STOPPING);
+        Assert.assertTrue(detect(detector, createState(120, 0.51), status2, 1)); // pipeline status
+
+        FrozenSystemState state = createState(120, 0.51); // appearing observation
+        state.setObservation(FrozenSystemState.PIPELINE_ELEMENT, PIPELINE, ELEMENT, AnalysisObservables.IS_VALID,
+            1.0);
+        Assert.assertTrue(detect(detector, state, status2, 1));
+        Assert.assertTrue(detect(detector, createState(120, 0.51), status2, 1)); // disappearing observation
+
+        Assert.assertFalse(detect(detector, createState(120, 0.51), status2, 1));
+        Assert.assertFalse(detect(detector, createState(120, 0.51), status2, 1));
+        Assert.assertFalse(detect(detector, createState(120, 0.51), status2, 1));
+        Assert.assertTrue(detect(detector, createState(120, 0.51), status2, 1)); // forced after 3 skips
+        Assert.assertEquals(5, detector.getSkippedCount());
+        Assert.assertEquals(8, detector.getReasonedCount());
+
+        Set<String> relevant = new HashSet<String>();
+        relevant.add(TimeBehavior.LATENCY.name());
+        detector.setRelevantObservables(relevant);
+        Assert.assertTrue(detect(detector, createState(120, 0.51), status2, 1)); // reset by model change
+        Assert.assertFalse(detect(detector, createState(120, 0.9), status2, 1)); // capacity is irrelevant
+    }
+
+    /**
+     * Tests that values written into the state by reasoning, e.g., deviations, do not count as changes.
+     */
+    @Test
+    public void testReasoningModifications() {
+        ReasoningChangeDetector detector = new ReasoningChangeDetector(new HashMap<String, Double>(), 3);
+        Map<String, PipelineLifecycleEvent.Status> status = new HashMap<String, PipelineLifecycleEvent.Status>();
+        FrozenSystemState state = createState(100, 0.5);
+        Assert.assertTrue(detector.isReasoningNeeded(state, status, 0));
+        state.setObservation(FrozenSystemState.PIPELINE_ELEMENT, PIPELINE, ELEMENT, AnalysisObservables.IS_VALID,
+            0.0); // written by reasoning as active violation
+        detector.reasoned(status, 0);
+        Assert.assertFalse(detect(detector, createState(100, 0.5), status, 0));
+        Assert.assertEquals(1, detector.getSkippedCount());
+        Assert.assertEquals(1, detector.getReasonedCount());
+    }
+
+    /**
+     * Tests that skipping can be disabled.
+     */
+    @Test
+    public void testDisabled() {
+        ReasoningChangeDetector detector = new ReasoningChangeDetector(new HashMap<String, Double>(), 0);
+        Map<String, PipelineLifecycleEvent.Status> status = new HashMap<String, PipelineLifecycleEvent.Status>();
+        Assert.assertTrue(detect(detector, createState(100, 0.5), status, 0));
+        Assert.assertTrue(detect(detector, createState(100, 0.5), status, 0));
+        Assert.assertEquals(0, detector.getSkippedCount());
+    }
+
+}
@@ -16,6 +16,8 @@
 package tests.eu.qualimaster.monitoring;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -45,6 +47,7 @@ import eu.qualimaster.monitoring.tracing.Tracing;
 import eu.qualimaster.observables.IObservable;
 import eu.qualimaster.observables.ResourceUsage;
 import eu.qualimaster.observables.Scalability;
+import eu.qualimaster.observables.TimeBehavior;
 
 /**
  * Some system state tests.
@@ -231,6 +234,126 @@ public class SystemStateTest {
         assertEquals(false, hw1, frozen, ResourceUsage.AVAILABLE);
     }
     
+    /**
+     * Tests incremental freezing and deltas.
+     */
+    @Test
+    public void incrementalFreezeTest() {
+        PlatformSystemPart platform = state.getPlatform();
+        MachineSystemPart machine = platform.obtainMachine("machine");
+        machine.setValue(ResourceUsage.AVAILABLE, 1.0, null);
+        FrozenSystemState frozen1 = state.freeze();
+        FrozenSystemState frozen2 = state.freeze();
+        Assert.assertTrue(frozen1.getVersion() > 0);
+        Assert.assertEquals(frozen1.getVersion(), frozen2.getVersion());
+        Assert.assertEquals(frozen1.getMapping(), frozen2.getMapping());
+        Assert.assertTrue(state.getChangedKeys(frozen1).isEmpty());
+
+        machine.setValue(ResourceUsage.AVAILABLE, 0.0, null);
+        FrozenSystemState frozen3 = state.freeze();
+        Assert.assertEquals(frozen1.getVersion() + 1, frozen3.getVersion());
+        String key = FrozenSystemState.obtainKey(FrozenSystemState.MACHINE, "machine", ResourceUsage.AVAILABLE);
+        Assert.assertTrue(state.getChangedKeys(frozen1).contains(key));
+        Assert.assertNull(state.getChangedKeys(FrozenSystemState.createSnapshot(frozen3.getMapping(), 
+            frozen3.getEpoch(), frozen3.getVersion() + 1)));
+        Assert.assertNull(state.getChangedKeys(FrozenSystemState.createSnapshot(frozen1.getMapping(), 
+            frozen1.getEpoch() + 1, frozen1.getVersion()))); // other epoch
+        Assert.assertEquals(1.0, frozen1.getMachineObservation("machine", ResourceUsage.AVAILABLE), 0.05); // unchanged
+
+        FrozenSystemState delta = frozen3.createDelta(frozen1, state.getChangedKeys(frozen1));
+        Assert.assertEquals(frozen3.getMapping(), frozen1.applyDelta(delta).getMapping());
+        Assert.assertTrue(frozen1.isBaseOf(delta));
+        Assert.assertFalse(new SystemState(state).freeze().isBaseOf(delta)); // other freezer, other epoch
+    }
+
+    /**
+     * Tests that the work for building the snapshot of an incremental freeze grows with the number of changed values
+     * rather than with the number of all values.
+     */
+    @Test
+    public void incrementalFreezeWorkTest() {
+        final int machines = 2000;
+        final int changes = 100;
+        PlatformSystemPart platform = state.getPlatform();
+        for (int m = 0; m < machines; m++) {
+            platform.obtainMachine("machine" + m).setValue(ResourceUsage.AVAILABLE, 1.0, null);
+        }
+        FrozenSystemState frozen1 = state.freeze();
+        Assert.assertTrue(state.getFreezeWork() >= machines / 32); // all values are new
+        state.freeze();
+        Assert.assertEquals(0, state.getFreezeWork()); // nothing changed, snapshot shared
+
+        platform.obtainMachine("machine0").setValue(ResourceUsage.AVAILABLE, 0.0, null);
+        FrozenSystemState frozen2 = state.freeze();
+        int work1 = state.getFreezeWork();
+        Assert.assertTrue(work1 > 0 && work1 <= 8); // one path through the trie
+        for (int m = 1; m <= changes; m++) {
+            platform.obtainMachine("machine" + m).setValue(ResourceUsage.AVAILABLE, 0.0, null);
+        }
+        FrozenSystemState frozen3 = state.freeze();
+        int work100 = state.getFreezeWork();
+        Assert.assertTrue(work100 > work1);
+        Assert.assertTrue(work100 <= changes * 8);
+        Assert.assertTrue(work100 < machines / 2);
+
+        // snapshots are not affected by later freezes
+        Assert.assertEquals(1.0, frozen1.getMachineObservation("machine0", ResourceUsage.AVAILABLE), 0.05);
+        Assert.assertEquals(1.0, frozen2.getMachineObservation("machine1", ResourceUsage.AVAILABLE), 0.05);
+        Assert.assertEquals(0.0, frozen3.getMachineObservation("machine1", ResourceUsage.AVAILABLE), 0.05);
+        Assert.assertEquals(frozen1.getMapping().size(), frozen3.getMapping().size());
+    }
+
+    /**
+     * Tests concurrent updates of the observations of a system part while freezing the system state.
+     * 
+     * @throws InterruptedException shall not occur
+     */
+    @Test
+    public void concurrentObservationTest() throws InterruptedException {
+        final int threads = 4;
+        final int keys = 500;
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        Thread[] writers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int offset = t * keys;
+            writers[t] = new Thread() {
+                
+                @Override
+                public void run() {
+                    try {
+                        for (int k = offset; k < offset + keys; k++) {
+                            node.setValue(TimeBehavior.LATENCY_MAX, k, "task" + k);
+                        }
+                    } catch (Throwable e) {
+                        errors.add(e);
+                    }
+                }
+                
+            };
+        }
+        for (int t = 0; t < threads; t++) {
+            writers[t].start();
+        }
+        boolean alive = true;
+        while (alive) {
+            state.freeze();
+            node.copyObservables(true);
+            alive = false;
+            for (int t = 0; t < threads; t++) {
+                alive |= writers[t].isAlive();
+            }
+        }
+        for (int t = 0; t < threads; t++) {
+            writers[t].join();
+        }
+        Assert.assertTrue(errors.toString(), errors.isEmpty());
+        Assert.assertEquals(threads * keys, node.getComponentCount(TimeBehavior.LATENCY_MAX));
+        Assert.assertEquals(threads * keys - 1, node.getObservedValue(TimeBehavior.LATENCY_MAX), 0.005);
+        FrozenSystemState frozen = state.freeze();
+        Assert.assertEquals(threads * keys - 1, frozen.getPipelineElementObservation(PIPELINE_NAME, 
+            PROCESSOR_NODE_NAME, TimeBehavior.LATENCY_MAX, 0.0), 0.005);
+    }
+
     /**
      * Asserts the equality of the given <code>expected</code> boolean value for <code>part</code> and 
      * <code>frozen</code> on <code>observable</code>.
@@ -43,10 +43,12 @@ import eu.qualimaster.monitoring.systemState.PipelineSystemPart;
 import eu.qualimaster.monitoring.systemState.StatisticsWalker;
 import eu.qualimaster.monitoring.systemState.SystemPart;
 import eu.qualimaster.monitoring.systemState.SystemState;
+import eu.qualimaster.monitoring.topology.ITopologyProjection;
 import eu.qualimaster.monitoring.topology.ITopologyVisitor;
 import eu.qualimaster.monitoring.topology.PipelineTopology;
 import eu.qualimaster.monitoring.topology.PipelineTopology.Processor;
 import eu.qualimaster.monitoring.topology.PipelineTopology.Stream;
+import eu.qualimaster.monitoring.topology.TopologyPlan;
 import eu.qualimaster.monitoring.topology.TopologyWalker;
 import eu.qualimaster.observables.IObservable;
 import eu.qualimaster.observables.ResourceUsage;
@@ -475,6 +477,29 @@ public class TopologyTests {
         Assert.assertEquals(info.exitDepth, testVisitor.exitVisitSequence);
     }
 
+    /**
+     * Tests that replaying a cached topology plan is equivalent to walking the topology.
+     */
+    @Test
+    public void topologyPlanTest() {
+        TopologyInfo info = createTopology(); // asserts happen inside
+        TestTopologyVisitor expected = new TestTopologyVisitor();
+        TopologyWalker walker = new TopologyWalker(new TopologyWalker.DepthFirstOnceVisitingStrategy(), expected);
+        walker.visit(info.topo);
+
+        TopologyPlan plan = TopologyPlan.getPlan(info.topo);
+        Assert.assertTrue(plan == TopologyPlan.getPlan(info.topo));
+        TestTopologyVisitor actual = new TestTopologyVisitor();
+        plan.replay(actual);
+
+        Assert.assertEquals(expected.enterVisitSequence, actual.enterVisitSequence);
+        Assert.assertEquals(expected.exitVisitSequence, actual.exitVisitSequence);
+        Assert.assertEquals(expected.endNodes, actual.endNodes);
+        Assert.assertEquals(expected.loopNodes, actual.loopNodes);
+        Assert.assertEquals(expected.visitedStreams, actual.visitedStreams);
+        Assert.assertEquals(expected.taskCount, actual.taskCount);
+    }
+
     /**
      * Tests the statistics walker.
      * 
@@ -508,6 +533,7 @@ public class TopologyTests {
         PipelineNodeSystemPart pPrc22 = alg2.obtainPipelineNode("prc2.2");
         setValues(pPrc22, 46, 8050, 850, 0.4, new ComponentKey("localhost", 1234, 11));
         pPrc.setCurrent(alg2);
+        assertProjectionCache(pPrc, alg1, alg2);
 
         ObservationAggregator throughputVolume 
             = ObservationAggregatorFactory.getAggregator(TimeBehavior.THROUGHPUT_VOLUME);
@@ -552,6 +578,24 @@ public class TopologyTests {
         CoordinationManager.unregisterNameMapping(nameMapping);
     }
 
+    /**
+     * Asserts that topology projections and, thus, topology plans are cached until the algorithm changes.
+     * 
+     * @param node the node to test with, <code>alg2</code> shall be the current algorithm
+     * @param alg1 the first algorithm
+     * @param alg2 the second algorithm
+     */
+    private static void assertProjectionCache(PipelineNodeSystemPart node, NodeImplementationSystemPart alg1, 
+        NodeImplementationSystemPart alg2) {
+        ITopologyProjection projection = node.getTopologyProjection();
+        Assert.assertTrue(projection == node.getTopologyProjection());
+        Assert.assertTrue(TopologyPlan.getPlan(projection) == TopologyPlan.getPlan(node.getTopologyProjection()));
+        Assert.assertTrue(alg1.getTopologyProjection() == alg1.getTopologyProjection());
+        node.setCurrent(alg1);
+        Assert.assertTrue(projection != node.getTopologyProjection());
+        node.setCurrent(alg2);
+    }
+
     /**
      * Asserts equality between parts and all individual aggregators on the aggregated values.
      * 
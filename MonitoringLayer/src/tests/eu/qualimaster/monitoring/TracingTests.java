@@ -0,0 +1,137 @@
+/*
+ * Copyright 2009-2015 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tests.eu.qualimaster.monitoring;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import eu.qualimaster.monitoring.systemState.AlgorithmParameter;
+import eu.qualimaster.monitoring.systemState.PipelineNodeSystemPart;
+import eu.qualimaster.monitoring.systemState.PipelineSystemPart;
+import eu.qualimaster.monitoring.systemState.SystemState;
+import eu.qualimaster.monitoring.tracing.BinaryTrace;
+import eu.qualimaster.monitoring.tracing.BinaryTraceConverter;
+import eu.qualimaster.monitoring.tracing.FileTrace;
+import eu.qualimaster.monitoring.tracing.IParameterProvider;
+import eu.qualimaster.monitoring.tracing.ITrace;
+import eu.qualimaster.observables.ResourceUsage;
+import eu.qualimaster.observables.Scalability;
+
+/**
+ * Tests the trace formats.
+ *
+ * @author Holger Eichelberger
+ */
+public class TracingTests {
+
+    private static final IParameterProvider NO_PARAMETERS = new IParameterProvider() {
+
+        @Override
+        public Map<String, List<AlgorithmParameter>> getAlgorithmParameters() {
+            return null;
+        }
+
+    };
+
+    /**
+     * Tests that a converted binary trace is equal to the corresponding text trace.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void binaryTraceTest() throws IOException {
+        assertBinaryTrace(false, 0, 3);
+    }
+
+    /**
+     * Tests that a compressed and rotated binary trace is equal to the corresponding text trace.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void compressedRotatedBinaryTraceTest() throws IOException {
+        assertBinaryTrace(true, 1, 2000);
+    }
+
+    /**
+     * Traces an infrastructure state as text and as binary trace and asserts that both are equal after converting
+     * the binary trace.
+     *
+     * @param compress whether the binary trace shall be compressed
+     * @param maxFileSize the maximum file size of the binary trace
+     * @param lines the number of infrastructure lines to trace
+     * @throws IOException shall not occur
+     */
+    private static void assertBinaryTrace(boolean compress, long maxFileSize, int lines) throws IOException {
+        SystemState state = new SystemState();
+        PipelineSystemPart pip = state.obtainPipeline("pip");
+        pip.setValue(ResourceUsage.CAPACITY, 0.5, null);
+        PipelineNodeSystemPart node = pip.obtainPipelineNode("processor");
+        node.setValue(ResourceUsage.CAPACITY, 0.25, null);
+        node.setValue(Scalability.ITEMS, 100, null);
+        Map<String, Serializable> settings = new HashMap<String, Serializable>();
+        settings.put("param", 1);
+
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        File file = File.createTempFile("qmTrace", ".qmbt");
+        ITrace fileTrace = new FileTrace("text", new PrintStream(text));
+        ITrace binaryTrace = new BinaryTrace(file, compress, maxFileSize, 0);
+        for (int l = 0; l < lines; l++) {
+            fileTrace.traceInfrastructure(state, NO_PARAMETERS);
+            binaryTrace.traceInfrastructure(state, NO_PARAMETERS);
+            if (1 == l) {
+                fileTrace.notifyNewSubTrace(settings);
+                binaryTrace.notifyNewSubTrace(settings);
+            }
+        }
+        fileTrace.close();
+        binaryTrace.close();
+
+        List<File> files = BinaryTraceConverter.getTraceFiles(file);
+        Assert.assertTrue(files.size() > 0);
+        if (maxFileSize > 0) {
+            Assert.assertTrue(files.size() > 1);
+        }
+        ByteArrayOutputStream converted = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(converted);
+        BinaryTraceConverter.convert(file, out);
+        out.close();
+        for (File f : files) {
+            f.delete();
+        }
+        Assert.assertEquals(maskTimestamps(text.toString()), maskTimestamps(converted.toString()));
+    }
+
+    /**
+     * Masks the timestamps at the beginning of lines as they depend on the time of tracing.
+     *
+     * @param trace the trace
+     * @return the masked trace
+     */
+    private static String maskTimestamps(String trace) {
+        return trace.replaceAll("(?m)^\\d+\\t", "TIME\t");
+    }
+
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tests.eu.qualimaster.monitoring.profiling;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Properties;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import eu.qualimaster.monitoring.profiling.predictors.FastKalman;
+import eu.qualimaster.monitoring.profiling.predictors.IAlgorithmProfilePredictor;
+import eu.qualimaster.monitoring.profiling.predictors.Kalman;
+
+/**
+ * Tests that {@link FastKalman} behaves as {@link Kalman}.
+ * 
+ * @author Holger Eichelberger
+ */
+public class KalmanEquivalenceTest {
+
+    private static final double EPSILON = 1e-9;
+
+    /**
+     * Reads the time-lines of the quality test.
+     * 
+     * @return the time-lines (without the leading quality test settings)
+     */
+    static double[][] loadTimelines() {
+        ArrayList<String> testData = TestTools.loadData("qualityTestData");
+        ArrayList<double[]> result = new ArrayList<double[]>();
+        for (String string : testData) {
+            if (string.matches("[0-9;\\.,]+")) {
+                String[] data = string.replaceAll(",", ".").split(";");
+                double[] entries = new double[data.length - 3];
+                for (int i = 0; i < entries.length; i++) {
+                    entries[i] = Double.parseDouble(data[i + 3]);
+                }
+                result.add(entries);
+            }
+        }
+        return result.toArray(new double[result.size()][]);
+    }
+
+    /**
+     * Feeds a time-line into both predictors and asserts that both predict the same values.
+     * 
+     * @param kalman the original predictor
+     * @param fast the specialized predictor
+     * @param timeline the time-line
+     * @param firstStep the first time step
+     */
+    private static void assertEquivalent(IAlgorithmProfilePredictor kalman, IAlgorithmProfilePredictor fast, 
+        double[] timeline, int firstStep) {
+        for (int i = 0; i < timeline.length; i++) {
+            Assert.assertEquals(kalman.update(firstStep + i, timeline[i]), fast.update(firstStep + i, timeline[i]));
+            double expected = kalman.predict(0);
+            double actual = fast.predict(0);
+            Assert.assertEquals(expected, actual, Math.max(1, Math.abs(expected)) * EPSILON);
+        }
+    }
+
+    /**
+     * Tests the predictions of both predictors on the time-lines of the quality test.
+     */
+    @Test
+    public void testPredictions() {
+        double[][] timelines = loadTimelines();
+        Assert.assertTrue(timelines.length > 0);
+        for (double[] timeline : timelines) {
+            assertEquivalent(new Kalman(), new FastKalman(), timeline, 1);
+        }
+    }
+
+    /**
+     * Tests the batch prediction.
+     */
+    @Test
+    public void testBatchPrediction() {
+        double[][] timelines = loadTimelines();
+        FastKalman[] predictors = new FastKalman[timelines.length];
+        double[] expected = new double[timelines.length];
+        for (int t = 0; t < timelines.length; t++) {
+            predictors[t] = new FastKalman();
+            FastKalman single = new FastKalman();
+            for (int i = 0; i < timelines[t].length; i++) {
+                predictors[t].update(i + 1, timelines[t][i]);
+                single.update(i + 1, timelines[t][i]);
+            }
+            expected[t] = single.predict(0);
+        }
+        double[] result = FastKalman.predict(predictors, 0, new double[predictors.length]);
+        for (int t = 0; t < timelines.length; t++) {
+            Assert.assertEquals(expected[t], result[t], 0);
+        }
+
+        double[] ahead = new double[3];
+        Assert.assertEquals(Double.MIN_VALUE, new FastKalman().extrapolate(ahead)[0], 0);
+        FastKalman linear = new FastKalman();
+        for (int i = 1; i <= 50; i++) {
+            linear.update(i, 2 * i);
+        }
+        linear.extrapolate(ahead);
+        Assert.assertTrue(ahead[0] < ahead[1] && ahead[1] < ahead[2]);
+    }
+
+    /**
+     * Tests that both predictors store the same format and can load the profiles of each other.
+     * 
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testPersistence() throws IOException {
+        double[] timeline = loadTimelines()[0];
+        int half = timeline.length / 2;
+        Kalman kalman = new Kalman();
+        FastKalman fast = new FastKalman();
+        for (int i = 0; i < half; i++) {
+            kalman.update(i + 1, timeline[i]);
+            fast.update(i + 1, timeline[i]);
+        }
+        File kFile = new File(FileUtils.getTempDirectory(), "kalman.tmp");
+        File fFile = new File(FileUtils.getTempDirectory(), "fastKalman.tmp");
+        kalman.store(kFile, "abba");
+        fast.store(fFile, "abba");
+        Assert.assertEquals(load(kFile), load(fFile));
+
+        Kalman kalman2 = new Kalman();
+        kalman2.load(fFile, "abba");
+        FastKalman fast2 = new FastKalman();
+        fast2.load(kFile, "abba");
+        Assert.assertEquals(kalman, kalman2);
+        FastKalman fast3 = new FastKalman();
+        fast3.load(fFile, "abba");
+        Assert.assertEquals(fast3, fast2);
+        kFile.delete();
+        fFile.delete();
+
+        double[] rest = new double[timeline.length - half];
+        System.arraycopy(timeline, half, rest, 0, rest.length);
+        assertEquivalent(kalman2, fast2, rest, half + 1);
+    }
+
+    /**
+     * Loads a properties file.
+     * 
+     * @param file the file
+     * @return the properties
+     * @throws IOException shall not occur
+     */
+    private static Properties load(File file) throws IOException {
+        Properties result = new Properties();
+        try (FileInputStream in = new FileInputStream(file)) {
+            result.load(in);
+        }
+        return result;
+    }
+
+}
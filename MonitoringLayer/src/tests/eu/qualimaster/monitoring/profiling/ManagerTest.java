@@ -16,6 +16,7 @@
 package tests.eu.qualimaster.monitoring.profiling;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -34,10 +35,10 @@ import eu.qualimaster.monitoring.events.AlgorithmChangedMonitoringEvent;
 import eu.qualimaster.monitoring.events.ParameterChangedMonitoringEvent;
 import eu.qualimaster.monitoring.profiling.AlgorithmProfilePredictionManager;
 import eu.qualimaster.monitoring.profiling.IAlgorithmProfile;
-import eu.qualimaster.monitoring.profiling.MapFile;
 import eu.qualimaster.monitoring.profiling.Pipeline;
 import eu.qualimaster.monitoring.profiling.PipelineElement;
 import eu.qualimaster.monitoring.profiling.Pipelines;
+import eu.qualimaster.monitoring.profiling.ProfileStore;
 import eu.qualimaster.monitoring.profiling.QuantizerRegistry;
 import eu.qualimaster.monitoring.systemState.NodeImplementationSystemPart;
 import eu.qualimaster.monitoring.systemState.PipelineNodeSystemPart;
@@ -292,22 +293,22 @@ public class ManagerTest {
         
         /**
          * Asserts the storage of the algorithm profile.
+         * 
+         * @throws IOException shall not occur
          */
-        private void assertStorage() {
+        private void assertStorage() throws IOException {
             Pipeline pip = Pipelines.getPipeline(pipeline);
             Assert.assertNotNull(pip);
             PipelineElement fam = pip.getElement(family);
             Assert.assertNotNull(fam);
             Collection<IAlgorithmProfile> profiles = fam.profiles();
             for (IAlgorithmProfile profile : profiles) {
+                File file = profile.getStoreFile();
+                Assert.assertTrue("Profile store " + file + " does not exist", file.exists());
+                ProfileStore store = ProfileStore.obtain(file);
                 for (IObservable obs : OBSERVABLES) {
-                    File folder = profile.getFolder(obs);
-                    Assert.assertTrue("Profile folder " + folder + " does not exist", folder.exists());
-                    MapFile mapFile = new MapFile(folder);
-                    for (String key : mapFile.keys()) {
-                        File f = mapFile.getFile(key);
-                        Assert.assertTrue("Profile " + f + " does not exist", f.exists());    
-                    }
+                    Assert.assertTrue("Predictor for " + obs + " not stored in " + file, 
+                        store.contains(profile.getIdentifier(obs)));
                 }
             }
         }
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tests.eu.qualimaster.monitoring.profiling;
+
+import eu.qualimaster.monitoring.profiling.predictors.FastKalman;
+import eu.qualimaster.monitoring.profiling.predictors.IAlgorithmProfilePredictor;
+import eu.qualimaster.monitoring.profiling.predictors.Kalman;
+import tests.eu.qualimaster.ManualBenchmark;
+
+/**
+ * A manual benchmark comparing the update/predict cycles of {@link Kalman} and {@link FastKalman} on the 
+ * time-lines of the quality test. Reports the cycles/s per predictor. See {@link ManualBenchmark}.
+ * 
+ * @author Holger Eichelberger
+ */
+public class ManualKalmanBenchmark {
+
+    private static final int WARMUP_ROUNDS = 200;
+    private static final int MEASURE_ROUNDS = 1000;
+
+    /**
+     * Creates the predictors to measure.
+     * 
+     * @author Holger Eichelberger
+     */
+    private interface IPredictorFactory {
+
+        /**
+         * Creates a predictor.
+         * 
+         * @return the predictor
+         */
+        public IAlgorithmProfilePredictor create();
+    }
+
+    /**
+     * Replays the time-lines once.
+     * 
+     * @param factory the predictor factory
+     * @param timelines the time-lines
+     * @return the number of update/predict cycles
+     */
+    private static long replay(IPredictorFactory factory, double[][] timelines) {
+        long cycles = 0;
+        double sum = 0;
+        for (double[] timeline : timelines) {
+            IAlgorithmProfilePredictor predictor = factory.create();
+            for (int i = 0; i < timeline.length; i++) {
+                predictor.update(i + 1, timeline[i]);
+                sum += predictor.predict(0);
+                cycles++;
+            }
+        }
+        ManualBenchmark.consume(sum);
+        return cycles;
+    }
+
+    /**
+     * Measures a predictor and prints the results.
+     * 
+     * @param name the name of the predictor
+     * @param factory the predictor factory
+     * @param timelines the time-lines
+     * @throws InterruptedException if interrupted
+     */
+    private static void measure(String name, final IPredictorFactory factory, final double[][] timelines) 
+        throws InterruptedException {
+        ManualBenchmark.measure(name, "cycle", WARMUP_ROUNDS, MEASURE_ROUNDS, new ManualBenchmark.IRound() {
+
+            @Override
+            public long run() {
+                return replay(factory, timelines);
+            }
+
+        });
+    }
+
+    /**
+     * Executes the benchmark.
+     * 
+     * @param args ignored
+     * @throws InterruptedException if interrupted
+     */
+    public static void main(String[] args) throws InterruptedException {
+        double[][] timelines = KalmanEquivalenceTest.loadTimelines();
+        measure("Kalman", new IPredictorFactory() {
+
+            @Override
+            public IAlgorithmProfilePredictor create() {
+                return new Kalman();
+            }
+
+        }, timelines);
+        measure("FastKalman", new IPredictorFactory() {
+
+            @Override
+            public IAlgorithmProfilePredictor create() {
+                return new FastKalman();
+            }
+
+        }, timelines);
+    }
+
+}
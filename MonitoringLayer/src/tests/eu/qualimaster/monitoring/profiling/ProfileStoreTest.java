@@ -0,0 +1,230 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tests.eu.qualimaster.monitoring.profiling;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import eu.qualimaster.monitoring.profiling.IAlgorithmProfileCreator;
+import eu.qualimaster.monitoring.profiling.KalmanProfileCreator;
+import eu.qualimaster.monitoring.profiling.MapFile;
+import eu.qualimaster.monitoring.profiling.ProfileStore;
+import eu.qualimaster.monitoring.profiling.ProfileStoreMigration;
+import eu.qualimaster.monitoring.profiling.predictors.FastKalman;
+
+/**
+ * Tests the {@link ProfileStore}.
+ *
+ * @author Holger Eichelberger
+ */
+public class ProfileStoreTest {
+
+    private static final String KEY1 = "pipeline=pip:element=fam:algorithm=alg:predicted=LATENCY;parameters={}";
+    private static final String KEY2 = "pipeline=pip:element=fam:algorithm=alg:predicted=ITEMS;parameters={}";
+    private File testFolder = new File(FileUtils.getTempDirectory(), "profileStoreTest");
+    private File storeFile = new File(testFolder, "profiles" + ProfileStore.FILE_SUFFIX);
+
+    /**
+     * Prepares a test.
+     */
+    @Before
+    public void before() {
+        FileUtils.deleteQuietly(testFolder);
+        testFolder.mkdirs();
+    }
+
+    /**
+     * Cleans up after a test.
+     */
+    @After
+    public void after() {
+        ProfileStore.closeAll();
+        FileUtils.deleteQuietly(testFolder);
+    }
+
+    /**
+     * Creates a predictor with some updates.
+     *
+     * @param updates the number of updates
+     * @param factor the factor determining the measurements
+     * @return the predictor
+     */
+    private static FastKalman createPredictor(int updates, double factor) {
+        FastKalman result = new FastKalman();
+        for (int i = 1; i <= updates; i++) {
+            result.update(i, i * factor);
+        }
+        return result;
+    }
+
+    /**
+     * Tests storing, reopening and lazy loading.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testStoreAndLoad() throws IOException {
+        FastKalman p1 = createPredictor(10, 2);
+        FastKalman p2 = createPredictor(20, 3);
+        ProfileStore store = ProfileStore.obtain(storeFile);
+        Assert.assertSame(store, ProfileStore.obtain(storeFile));
+        Assert.assertFalse(store.contains(KEY1));
+        store.store(KEY1, p1);
+        store.modified(KEY2, p2);
+        Assert.assertTrue(store.contains(KEY1));
+        Assert.assertTrue(store.contains(KEY2));
+        FastKalman tmp = new FastKalman();
+        Assert.assertTrue(store.load(KEY2, tmp)); // not written so far
+        Assert.assertEquals(p2, tmp);
+        store.close(); // writes KEY2
+
+        store = ProfileStore.obtain(storeFile);
+        Assert.assertEquals(2, store.keys().size());
+        tmp = new FastKalman();
+        Assert.assertTrue(store.load(KEY1, tmp));
+        Assert.assertEquals(p1, tmp);
+        tmp = new FastKalman();
+        Assert.assertTrue(store.load(KEY2, tmp));
+        Assert.assertEquals(p2, tmp);
+        Assert.assertFalse(store.load("unknown", tmp));
+
+        // overwrite, keeping only the most recent one
+        for (int i = 0; i < 10; i++) {
+            p1.update(100 + i, i);
+            store.store(KEY1, p1);
+        }
+        long size = storeFile.length();
+        store.compact();
+        Assert.assertTrue(storeFile.length() < size);
+        tmp = new FastKalman();
+        Assert.assertTrue(store.load(KEY1, tmp));
+        Assert.assertEquals(p1, tmp);
+        tmp = new FastKalman();
+        Assert.assertTrue(store.load(KEY2, tmp));
+        Assert.assertEquals(p2, tmp);
+    }
+
+    /**
+     * Tests loading records appended after the store file was mapped, i.e., with and without mapping it again.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testAppendedRecords() throws IOException {
+        FastKalman p1 = createPredictor(10, 2);
+        ProfileStore store = ProfileStore.obtain(storeFile);
+        store.store(KEY1, p1);
+        FastKalman tmp = new FastKalman();
+        Assert.assertTrue(store.load(KEY1, tmp)); // maps the file
+        FastKalman p2 = createPredictor(5, 1);
+        for (int i = 0; i < 20; i++) { // file doubles several times
+            p2.update(100 + i, i);
+            store.store(KEY2, p2);
+            tmp = new FastKalman();
+            Assert.assertTrue(store.load(KEY2, tmp));
+            Assert.assertEquals(p2, tmp);
+            tmp = new FastKalman();
+            Assert.assertTrue(store.load(KEY1, tmp));
+            Assert.assertEquals(p1, tmp);
+        }
+        store.compact();
+        store.store(KEY1, p2);
+        tmp = new FastKalman();
+        Assert.assertTrue(store.load(KEY1, tmp));
+        Assert.assertEquals(p2, tmp);
+        Assert.assertTrue(ProfileStore.MAX_SIZE > storeFile.length());
+    }
+
+    /**
+     * Tests that an incomplete last record (e.g., due to a crash) is cut off.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testIncompleteRecord() throws IOException {
+        FastKalman p1 = createPredictor(10, 2);
+        ProfileStore store = ProfileStore.obtain(storeFile);
+        store.store(KEY1, p1);
+        long size = storeFile.length();
+        store.store(KEY2, createPredictor(5, 1));
+        store.close();
+        try (RandomAccessFile raf = new RandomAccessFile(storeFile, "rw")) {
+            raf.setLength(raf.length() - 3);
+        }
+
+        store = ProfileStore.obtain(storeFile);
+        Assert.assertEquals(size, storeFile.length());
+        Assert.assertTrue(store.contains(KEY1));
+        Assert.assertFalse(store.contains(KEY2));
+        FastKalman tmp = new FastKalman();
+        Assert.assertTrue(store.load(KEY1, tmp));
+        Assert.assertEquals(p1, tmp);
+    }
+
+    /**
+     * Tests the migration from the legacy layout.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testMigration() throws IOException {
+        IAlgorithmProfileCreator creator = new KalmanProfileCreator();
+        FastKalman p1 = createPredictor(10, 2);
+        FastKalman p2 = createPredictor(20, 3);
+        storeLegacy(KEY1, p1, creator);
+        storeLegacy(KEY2, p2, creator);
+
+        Assert.assertEquals(2, ProfileStoreMigration.migrate(testFolder.getAbsolutePath(), creator));
+        ProfileStore store = ProfileStore.obtain(ProfileStore.getFile(testFolder.getAbsolutePath(), creator));
+        FastKalman tmp = new FastKalman();
+        Assert.assertTrue(store.load(KEY1, tmp));
+        Assert.assertEquals(p1, tmp);
+        tmp = new FastKalman();
+        Assert.assertTrue(store.load(KEY2, tmp));
+        Assert.assertEquals(p2, tmp);
+    }
+
+    /**
+     * Stores a predictor in the legacy layout.
+     *
+     * @param key the profile key
+     * @param predictor the predictor
+     * @param creator the profile creator
+     * @throws IOException shall not occur
+     */
+    private void storeLegacy(String key, FastKalman predictor, IAlgorithmProfileCreator creator) throws IOException {
+        File folder = testFolder;
+        for (String part : key.split(";")[0].split(":")) {
+            folder = new File(folder, part);
+        }
+        folder = new File(folder, creator.getStorageSubFolder());
+        folder.mkdirs();
+        MapFile mapFile = new MapFile(folder);
+        mapFile.load();
+        int id = mapFile.size() + 1;
+        predictor.store(MapFile.getFile(folder, id), key);
+        mapFile.put(key, id);
+        mapFile.store();
+    }
+
+}
@@ -29,6 +29,8 @@ import org.junit.runners.Suite;
     PerformanceTest.class, 
     QualityTest.class,
     QuantizerTest.class,
-    ManagerTest.class})
+    ManagerTest.class,
+    KalmanEquivalenceTest.class,
+    ProfileStoreTest.class})
 public class ProfilingTests {
 }
\ No newline at end of file
@@ -0,0 +1,78 @@
+package tests.eu.qualimaster.monitoring.volumePrediction;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import eu.qualimaster.monitoring.volumePrediction.Prediction;
+import eu.qualimaster.monitoring.volumePrediction.VolumePredictor;
+
+/**
+ * Tests retraining and reusing {@link Prediction} models.
+ *
+ * @author Holger Eichelberger
+ */
+public class PredictionTest {
+
+    private static final String TERM = "term";
+    private static final long START = 1451606400000L; // 2016-01-01
+    private static final long STEP = 60000; // one minute
+
+    /**
+     * Creates historical data with one observation per minute.
+     *
+     * @param first the index of the first observation
+     * @param count the number of observations
+     * @return the data (timestamp-volume mapping)
+     */
+    private static TreeMap<String, Long> createData(int first, int count) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
+        TreeMap<String, Long> result = new TreeMap<String, Long>();
+        for (int i = first; i < first + count; i++) {
+            result.put(format.format(new Date(START + i * STEP)), 100L + (i % 10) * 5);
+        }
+        return result;
+    }
+
+    /**
+     * Tests {@link Prediction#needsRetraining(TreeMap)}.
+     */
+    @Test
+    public void testNeedsRetraining() {
+        TreeMap<String, Long> data = createData(0, 100);
+        Prediction model = new Prediction(TERM, data);
+        Assert.assertNotNull(model.getForecaster());
+        Assert.assertFalse(model.needsRetraining(data));
+        data.putAll(createData(100, 5)); // less than 10% new observations
+        Assert.assertFalse(model.needsRetraining(data));
+        data.putAll(createData(105, 10));
+        Assert.assertTrue(model.needsRetraining(data));
+
+        Prediction empty = new Prediction(TERM, new TreeMap<String, Long>());
+        Assert.assertTrue(empty.needsRetraining(data));
+    }
+
+    /**
+     * Tests {@link VolumePredictor#createModel(String, TreeMap, Prediction)}.
+     */
+    @Test
+    public void testCreateModel() {
+        TreeMap<String, Long> data = createData(0, 100);
+        Assert.assertNull(VolumePredictor.createModel(TERM, new TreeMap<String, Long>(), null));
+        Prediction model = VolumePredictor.createModel(TERM, data, null);
+        Assert.assertNotNull(model);
+        Assert.assertSame(model, VolumePredictor.createModel(TERM, data, model)); // no retraining needed
+        // failing training keeps the existing model
+        Assert.assertSame(model, VolumePredictor.createModel(TERM, new TreeMap<String, Long>(), model));
+
+        data.putAll(createData(100, 50));
+        Prediction retrained = VolumePredictor.createModel(TERM, data, model);
+        Assert.assertNotNull(retrained);
+        Assert.assertNotSame(model, retrained);
+        Assert.assertFalse(retrained.needsRetraining(data));
+    }
+
+}
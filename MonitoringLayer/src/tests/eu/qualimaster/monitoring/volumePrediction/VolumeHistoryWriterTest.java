@@ -0,0 +1,203 @@
+package tests.eu.qualimaster.monitoring.volumePrediction;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import eu.qualimaster.dataManagement.storage.support.IBatchStorageSupport;
+import eu.qualimaster.dataManagement.storage.support.InMemoryStorageSupport;
+import eu.qualimaster.monitoring.MonitoringManager;
+import eu.qualimaster.monitoring.systemState.PlatformSystemPart;
+import eu.qualimaster.monitoring.volumePrediction.VolumeHistoryWriter;
+import eu.qualimaster.monitoring.volumePrediction.VolumeHistoryWriter.IStorageProvider;
+import eu.qualimaster.observables.ResourceUsage;
+
+/**
+ * Tests the {@link VolumeHistoryWriter} against in-memory storages.
+ *
+ * @author Holger Eichelberger
+ */
+public class VolumeHistoryWriterTest {
+
+    /**
+     * An in-memory storage provider counting obtained and released storages. Batch writes may be set to fail.
+     *
+     * @author Holger Eichelberger
+     */
+    private static class InMemoryProvider implements IStorageProvider {
+
+        private Map<String, InMemoryStorageSupport> storages = new HashMap<String, InMemoryStorageSupport>();
+        private int obtained;
+        private int released;
+        private AtomicInteger failures = new AtomicInteger();
+
+        @Override
+        public synchronized IBatchStorageSupport obtain(String term) {
+            InMemoryStorageSupport result = storages.get(term);
+            if (null == result) {
+                result = new InMemoryStorageSupport() {
+
+                    @Override
+                    public synchronized void write(Map<?, ?> batch) {
+                        if (failures.getAndDecrement() > 0) {
+                            throw new IllegalStateException("write failed");
+                        }
+                        failures.set(0);
+                        super.write(batch);
+                    }
+
+                };
+                storages.put(term, result);
+            }
+            obtained++;
+            return result;
+        }
+
+        @Override
+        public synchronized void release(String term, IBatchStorageSupport storage) {
+            released++;
+        }
+
+        /**
+         * Returns the storage of a term.
+         *
+         * @param term the term
+         * @return the storage (may be <b>null</b>)
+         */
+        private synchronized InMemoryStorageSupport get(String term) {
+            return storages.get(term);
+        }
+
+    }
+
+    /**
+     * Waits until the writer has no buffered observations.
+     *
+     * @param writer the writer
+     * @param timeout the maximum waiting time in ms
+     */
+    private static void waitForFlush(VolumeHistoryWriter writer, long timeout) {
+        long end = System.currentTimeMillis() + timeout;
+        while ((writer.getQueueDepth() > 0 || writer.getFlushCount() == 0) && System.currentTimeMillis() < end) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+            }
+        }
+    }
+
+    /**
+     * Tests flushing due to the batch size.
+     */
+    @Test(timeout = 10000)
+    public void testBatchSize() {
+        InMemoryProvider provider = new InMemoryProvider();
+        VolumeHistoryWriter writer = new VolumeHistoryWriter(provider, 4, 60000);
+        writer.write("#a", "1", 10L);
+        writer.write("#a", "2", 20L);
+        writer.write("#b", "1", 5L);
+        Assert.assertEquals(3, writer.getQueueDepth());
+        writer.write("#a", "3", 30L);
+        waitForFlush(writer, 5000);
+        Assert.assertEquals(0, writer.getQueueDepth());
+        Assert.assertEquals(1, writer.getFlushCount());
+        Assert.assertEquals(3, provider.get("#a").size());
+        Assert.assertEquals(1, provider.get("#a").getWriteCount()); // one batch
+        Assert.assertEquals(30L, provider.get("#a").get("3"));
+        Assert.assertEquals(1, provider.get("#b").size());
+
+        writer.write("#a", "4", 40L);
+        writer.close();
+        Assert.assertEquals(4, provider.get("#a").size());
+        Assert.assertEquals(2, provider.obtained); // storages are kept
+        Assert.assertEquals(2, provider.released);
+        Assert.assertTrue(writer.getAverageFlushLatency() >= 0);
+
+        writer.write("#a", "5", 50L); // ignored after closing
+        Assert.assertEquals(0, writer.getQueueDepth());
+    }
+
+    /**
+     * Tests flushing due to the flush interval.
+     */
+    @Test(timeout = 10000)
+    public void testFlushInterval() {
+        InMemoryProvider provider = new InMemoryProvider();
+        VolumeHistoryWriter writer = new VolumeHistoryWriter(provider, 1000, 100);
+        writer.write("#a", "1", 10L);
+        writer.write("#a", "1", 11L); // replaces
+        Assert.assertEquals(1, writer.getQueueDepth());
+        waitForFlush(writer, 5000);
+        Assert.assertEquals(0, writer.getQueueDepth());
+        Assert.assertEquals(11L, provider.get("#a").get("1"));
+        writer.close();
+    }
+
+    /**
+     * Tests retrying and dropping batches if writing fails.
+     */
+    @Test(timeout = 10000)
+    public void testFailures() {
+        InMemoryProvider provider = new InMemoryProvider();
+        VolumeHistoryWriter writer = new VolumeHistoryWriter(provider, 1000, 60000);
+        provider.failures.set(VolumeHistoryWriter.MAX_WRITE_ATTEMPTS - 1);
+        writer.write("#a", "1", 10L);
+        for (int a = 1; a < VolumeHistoryWriter.MAX_WRITE_ATTEMPTS; a++) {
+            writer.flush();
+            Assert.assertEquals(1, writer.getQueueDepth()); // requeued
+            Assert.assertEquals(a, provider.released); // storage evicted
+        }
+        writer.write("#a", "2", 20L);
+        writer.flush();
+        Assert.assertEquals(0, writer.getQueueDepth());
+        Assert.assertEquals(2, provider.get("#a").size());
+        Assert.assertEquals(VolumeHistoryWriter.MAX_WRITE_ATTEMPTS, provider.obtained);
+
+        provider.failures.set(VolumeHistoryWriter.MAX_WRITE_ATTEMPTS);
+        writer.write("#a", "3", 30L);
+        for (int a = 0; a < VolumeHistoryWriter.MAX_WRITE_ATTEMPTS; a++) {
+            writer.flush();
+        }
+        Assert.assertEquals(0, writer.getQueueDepth());
+        Assert.assertEquals(1, writer.getDroppedCount());
+        Assert.assertNull(provider.get("#a").get("3"));
+        writer.close();
+    }
+
+    /**
+     * Tests that the background thread backs off during a storage outage rather than retrying a requeued batch 
+     * which still exceeds the batch size immediately, and that the metrics are published as observables.
+     */
+    @Test(timeout = 10000)
+    public void testOutage() {
+        final long interval = 200;
+        InMemoryProvider provider = new InMemoryProvider();
+        VolumeHistoryWriter writer = new VolumeHistoryWriter(provider, 1, interval);
+        provider.failures.set(Integer.MAX_VALUE);
+        long start = System.currentTimeMillis();
+        writer.write("#a", "1", 10L); // exceeds the batch size, flushed immediately, fails, requeued
+        while (writer.getDroppedCount() == 0) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+            }
+        }
+        long duration = System.currentTimeMillis() - start;
+        // attempts after 0, interval and 3 * interval, without backing off all attempts would be immediate 
+        Assert.assertEquals(VolumeHistoryWriter.MAX_WRITE_ATTEMPTS, provider.obtained);
+        Assert.assertTrue(duration >= 3 * interval);
+        PlatformSystemPart platform = MonitoringManager.getSystemState().getPlatform();
+        Assert.assertEquals(1, platform.getObservedValue(ResourceUsage.VOLUME_HISTORY_DROPPED), 0.005);
+        Assert.assertEquals(0, platform.getObservedValue(ResourceUsage.VOLUME_HISTORY_QUEUE_DEPTH), 0.005);
+
+        provider.failures.set(0); // storage is back
+        writer.write("#a", "2", 20L);
+        waitForFlush(writer, 5000);
+        Assert.assertEquals(20L, provider.get("#a").get("2"));
+        writer.close();
+    }
+
+}
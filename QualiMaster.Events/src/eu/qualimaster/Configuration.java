@@ -75,6 +75,111 @@ public class Configuration {
      */
     public static final String DEFAULT_EVENT_DISABLE_LOGGING = EMPTY_VALUE;
 
+    /**
+     * Denotes the capacity of the client-side event send queue (positive Integer).
+     */
+    public static final String EVENT_SEND_QUEUE_SIZE = "eventBus.sendQueueSize";
+
+    /**
+     * The default value for {@link #EVENT_SEND_QUEUE_SIZE} (Value {@value}).
+     */
+    public static final int DEFAULT_EVENT_SEND_QUEUE_SIZE = 10000;
+
+    /**
+     * Denotes the maximum number of events sent by a client in one batch (positive Integer).
+     */
+    public static final String EVENT_SEND_BATCH_SIZE = "eventBus.sendBatchSize";
+
+    /**
+     * The default value for {@link #EVENT_SEND_BATCH_SIZE} (Value {@value}).
+     */
+    public static final int DEFAULT_EVENT_SEND_BATCH_SIZE = 100;
+
+    /**
+     * Denotes the event classes (including subclasses) for which the oldest event is dropped rather than
+     * blocking the sender if the client-side event send queue is full.
+     */
+    public static final String EVENT_SEND_DROP_OLDEST = "eventBus.sendDropOldest";
+
+    /**
+     * The default value for {@link #EVENT_SEND_DROP_OLDEST}, a comma separated list (Value {@value}).
+     */
+    public static final String DEFAULT_EVENT_SEND_DROP_OLDEST = "eu.qualimaster.monitoring.events.MonitoringEvent";
+
+    /**
+     * Denotes the number of I/O threads of the event bus server (positive Integer).
+     */
+    public static final String EVENT_IO_THREADS = "eventBus.ioThreads";
+
+    /**
+     * The default value for {@link #EVENT_IO_THREADS} (Value {@value}).
+     */
+    public static final int DEFAULT_EVENT_IO_THREADS = 2;
+
+    /**
+     * Denotes the maximum number of bytes the event bus server queues per client for sending before the sender 
+     * is blocked (positive Integer).
+     */
+    public static final String EVENT_CLIENT_QUEUE_SIZE = "eventBus.clientQueueSize";
+
+    /**
+     * The default value for {@link #EVENT_CLIENT_QUEUE_SIZE} (Value {@value}).
+     */
+    public static final int DEFAULT_EVENT_CLIENT_QUEUE_SIZE = 4 * 1024 * 1024;
+
+    /**
+     * Denotes the maximum number of threads dispatching control events, i.e., events that are neither adaptation
+     * nor monitoring events (positive Integer).
+     */
+    public static final String EVENT_DISPATCH_CONTROL_THREADS = "eventBus.dispatchControlThreads";
+
+    /**
+     * The default value for {@link #EVENT_DISPATCH_CONTROL_THREADS} (Value {@value}).
+     */
+    public static final int DEFAULT_EVENT_DISPATCH_CONTROL_THREADS = 2;
+
+    /**
+     * Denotes the maximum number of threads dispatching adaptation events (positive Integer).
+     */
+    public static final String EVENT_DISPATCH_ADAPTATION_THREADS = "eventBus.dispatchAdaptationThreads";
+
+    /**
+     * The default value for {@link #EVENT_DISPATCH_ADAPTATION_THREADS} (Value {@value}).
+     */
+    public static final int DEFAULT_EVENT_DISPATCH_ADAPTATION_THREADS = 2;
+
+    /**
+     * Denotes the maximum number of threads dispatching monitoring and logging events (positive Integer).
+     */
+    public static final String EVENT_DISPATCH_MONITORING_THREADS = "eventBus.dispatchMonitoringThreads";
+
+    /**
+     * The default value for {@link #EVENT_DISPATCH_MONITORING_THREADS} (Value {@value}).
+     */
+    public static final int DEFAULT_EVENT_DISPATCH_MONITORING_THREADS = 4;
+
+    /**
+     * Denotes the maximum number of events waiting for dispatch per dispatch lane. If exceeded, the event is dispatched
+     * by the handling thread (positive Integer).
+     */
+    public static final String EVENT_DISPATCH_QUEUE_SIZE = "eventBus.dispatchQueueSize";
+
+    /**
+     * The default value for {@link #EVENT_DISPATCH_QUEUE_SIZE} (Value {@value}).
+     */
+    public static final int DEFAULT_EVENT_DISPATCH_QUEUE_SIZE = 10000;
+
+    /**
+     * Denotes whether virtual threads shall be used for dispatching events if provided by the JVM (Boolean, 
+     * opt-in).
+     */
+    public static final String EVENT_DISPATCH_VIRTUAL_THREADS = "eventBus.dispatchVirtualThreads";
+
+    /**
+     * The default value for {@link #EVENT_DISPATCH_VIRTUAL_THREADS} (Value {@value}).
+     */
+    public static final boolean DEFAULT_EVENT_DISPATCH_VIRTUAL_THREADS = false;
+
     // ----------------------------------------------
     
     
@@ -131,6 +236,17 @@ public class Configuration {
      * The default value for {@link #PIPELINE_SIGNALS_CURATOR}, {@value}.
      */
     public static final boolean DEFAULT_PIPELINE_SIGNALS_CURATOR = true;
+
+    /**
+     * Denotes whether the non-blocking, batching tuple transport shall be used for transferring tuples during 
+     * algorithm switches (Boolean, opt-in).
+     */
+    public static final String PIPELINE_SWITCH_NIO = "pipeline.switch.nio";
+
+    /**
+     * The default value for {@link #PIPELINE_SWITCH_NIO}, {@value}.
+     */
+    public static final boolean DEFAULT_PIPELINE_SWITCH_NIO = false;
     
     /**
      * Denotes the waiting time after sending pipeline shutdown events (Integer in ms, ignored if not positive).
@@ -250,6 +366,26 @@ public class Configuration {
         = createIntegerOption(PORT_EVENT, DEFAULT_PORT_EVENT);
     private static ConfigurationOption<String> eventDisableLogging 
         = createStringOption(EVENT_DISABLE_LOGGING, DEFAULT_EVENT_DISABLE_LOGGING);
+    private static ConfigurationOption<Integer> eventSendQueueSize 
+        = createIntegerOption(EVENT_SEND_QUEUE_SIZE, DEFAULT_EVENT_SEND_QUEUE_SIZE);
+    private static ConfigurationOption<Integer> eventSendBatchSize 
+        = createIntegerOption(EVENT_SEND_BATCH_SIZE, DEFAULT_EVENT_SEND_BATCH_SIZE);
+    private static ConfigurationOption<String> eventSendDropOldest 
+        = createStringOption(EVENT_SEND_DROP_OLDEST, DEFAULT_EVENT_SEND_DROP_OLDEST);
+    private static ConfigurationOption<Integer> eventIoThreads 
+        = createIntegerOption(EVENT_IO_THREADS, DEFAULT_EVENT_IO_THREADS);
+    private static ConfigurationOption<Integer> eventClientQueueSize 
+        = createIntegerOption(EVENT_CLIENT_QUEUE_SIZE, DEFAULT_EVENT_CLIENT_QUEUE_SIZE);
+    private static ConfigurationOption<Integer> eventDispatchControlThreads 
+        = createIntegerOption(EVENT_DISPATCH_CONTROL_THREADS, DEFAULT_EVENT_DISPATCH_CONTROL_THREADS);
+    private static ConfigurationOption<Integer> eventDispatchAdaptationThreads 
+        = createIntegerOption(EVENT_DISPATCH_ADAPTATION_THREADS, DEFAULT_EVENT_DISPATCH_ADAPTATION_THREADS);
+    private static ConfigurationOption<Integer> eventDispatchMonitoringThreads 
+        = createIntegerOption(EVENT_DISPATCH_MONITORING_THREADS, DEFAULT_EVENT_DISPATCH_MONITORING_THREADS);
+    private static ConfigurationOption<Integer> eventDispatchQueueSize 
+        = createIntegerOption(EVENT_DISPATCH_QUEUE_SIZE, DEFAULT_EVENT_DISPATCH_QUEUE_SIZE);
+    private static ConfigurationOption<Boolean> eventDispatchVirtualThreads 
+        = createBooleanOption(EVENT_DISPATCH_VIRTUAL_THREADS, DEFAULT_EVENT_DISPATCH_VIRTUAL_THREADS);
 
     // storm commons
     
@@ -259,6 +395,8 @@ public class Configuration {
         = createIntegerOption(PORT_ZOOKEEPER, DEFAULT_PORT_ZOOKEEPER);
     private static ConfigurationOption<Boolean> pipelineSignalsCurator 
         = createBooleanOption(PIPELINE_SIGNALS_CURATOR, DEFAULT_PIPELINE_SIGNALS_CURATOR);
+    private static ConfigurationOption<Boolean> pipelineSwitchNio 
+        = createBooleanOption(PIPELINE_SWITCH_NIO, DEFAULT_PIPELINE_SWITCH_NIO);
     private static ConfigurationOption<Integer> shutdownEventWaitingTime 
         = createIntegerOption(TIME_SHUTDOWN_EVENTS, DEFAULT_TIME_SHUTDOWN_EVENTS);
     private static ConfigurationOption<String> pipelinePorts
@@ -555,6 +693,16 @@ public class Configuration {
     public static boolean getPipelineSignalsQmEvents() {
         return !pipelineSignalsCurator.getValue();
     }
+
+    /**
+     * Returns whether the non-blocking, batching tuple transport shall be used during algorithm switches.
+     * 
+     * @return <code>true</code> for the non-blocking transport, <code>false</code> for the socket-per-thread 
+     *     transport
+     */
+    public static boolean getPipelineSwitchNio() {
+        return pipelineSwitchNio.getValue();
+    }
     
     /**
      * Returns whether <code>value</code> is empty (@link {@link #EMPTY_VALUE}).
@@ -584,6 +732,97 @@ public class Configuration {
         return eventDisableLogging.getValue();
     }
     
+    /**
+     * Returns the capacity of the client-side event send queue.
+     * 
+     * @return the capacity
+     */
+    public static int getEventSendQueueSize() {
+        return eventSendQueueSize.getValue();
+    }
+
+    /**
+     * Returns the maximum number of events sent by a client in one batch.
+     * 
+     * @return the maximum batch size
+     */
+    public static int getEventSendBatchSize() {
+        return eventSendBatchSize.getValue();
+    }
+
+    /**
+     * Returns the (comma separated) event classes for which the oldest event is dropped if the client-side event 
+     * send queue is full.
+     * 
+     * @return the comma separated classes, may be {@link #EMPTY_VALUE}
+     */
+    public static String getEventSendDropOldest() {
+        return eventSendDropOldest.getValue();
+    }
+
+    /**
+     * Returns the number of I/O threads of the event bus server.
+     * 
+     * @return the number of I/O threads
+     */
+    public static int getEventIoThreads() {
+        return eventIoThreads.getValue();
+    }
+
+    /**
+     * Returns the maximum number of bytes the event bus server queues per client for sending.
+     * 
+     * @return the maximum number of bytes
+     */
+    public static int getEventClientQueueSize() {
+        return eventClientQueueSize.getValue();
+    }
+
+    /**
+     * Returns the maximum number of threads dispatching control events.
+     * 
+     * @return the maximum number of threads
+     */
+    public static int getEventDispatchControlThreads() {
+        return eventDispatchControlThreads.getValue();
+    }
+
+    /**
+     * Returns the maximum number of threads dispatching adaptation events.
+     * 
+     * @return the maximum number of threads
+     */
+    public static int getEventDispatchAdaptationThreads() {
+        return eventDispatchAdaptationThreads.getValue();
+    }
+
+    /**
+     * Returns the maximum number of threads dispatching monitoring and logging events.
+     * 
+     * @return the maximum number of threads
+     */
+    public static int getEventDispatchMonitoringThreads() {
+        return eventDispatchMonitoringThreads.getValue();
+    }
+
+    /**
+     * Returns the maximum number of events waiting for dispatch per dispatch lane.
+     * 
+     * @return the maximum number of events
+     */
+    public static int getEventDispatchQueueSize() {
+        return eventDispatchQueueSize.getValue();
+    }
+
+    /**
+     * Returns whether virtual threads shall be used for dispatching events if provided by the JVM.
+     * 
+     * @return <code>true</code> for virtual threads, <code>false</code> for platform threads
+     */
+    public static boolean getEventDispatchVirtualThreads() {
+        return eventDispatchVirtualThreads.getValue();
+    }
+
     /**
      * Turns the given text into a set of strings by splitting it using "," as delimiter.
      * 
@@ -618,7 +857,16 @@ public class Configuration {
         config.put(Configuration.HOST_EVENT, getEventHost());
         config.put(Configuration.PORT_EVENT, getEventPort());
         config.put(Configuration.EVENT_DISABLE_LOGGING, getEventDisableLogging());
+        config.put(Configuration.EVENT_SEND_QUEUE_SIZE, getEventSendQueueSize());
+        config.put(Configuration.EVENT_SEND_BATCH_SIZE, getEventSendBatchSize());
+        config.put(Configuration.EVENT_SEND_DROP_OLDEST, getEventSendDropOldest());
+        config.put(Configuration.EVENT_DISPATCH_CONTROL_THREADS, getEventDispatchControlThreads());
+        config.put(Configuration.EVENT_DISPATCH_ADAPTATION_THREADS, getEventDispatchAdaptationThreads());
+        config.put(Configuration.EVENT_DISPATCH_MONITORING_THREADS, getEventDispatchMonitoringThreads());
+        config.put(Configuration.EVENT_DISPATCH_QUEUE_SIZE, getEventDispatchQueueSize());
+        config.put(Configuration.EVENT_DISPATCH_VIRTUAL_THREADS, getEventDispatchVirtualThreads());
         config.put(Configuration.PIPELINE_INTERCONN_PORTS, getPipelinePorts());
+        config.put(Configuration.PIPELINE_SWITCH_NIO, getPipelineSwitchNio());
     }
 
     /**
@@ -641,9 +889,41 @@ public class Configuration {
         if (null != conf.get(Configuration.EVENT_DISABLE_LOGGING)) {
             prop.put(Configuration.EVENT_DISABLE_LOGGING, conf.get(Configuration.EVENT_DISABLE_LOGGING));
         }
+        if (null != conf.get(Configuration.EVENT_SEND_QUEUE_SIZE)) {
+            prop.put(Configuration.EVENT_SEND_QUEUE_SIZE, conf.get(Configuration.EVENT_SEND_QUEUE_SIZE));
+        }
+        if (null != conf.get(Configuration.EVENT_SEND_BATCH_SIZE)) {
+            prop.put(Configuration.EVENT_SEND_BATCH_SIZE, conf.get(Configuration.EVENT_SEND_BATCH_SIZE));
+        }
+        if (null != conf.get(Configuration.EVENT_SEND_DROP_OLDEST)) {
+            prop.put(Configuration.EVENT_SEND_DROP_OLDEST, conf.get(Configuration.EVENT_SEND_DROP_OLDEST));
+        }
+        if (null != conf.get(Configuration.EVENT_DISPATCH_CONTROL_THREADS)) {
+            prop.put(Configuration.EVENT_DISPATCH_CONTROL_THREADS, 
+                conf.get(Configuration.EVENT_DISPATCH_CONTROL_THREADS));
+        }
+        if (null != conf.get(Configuration.EVENT_DISPATCH_ADAPTATION_THREADS)) {
+            prop.put(Configuration.EVENT_DISPATCH_ADAPTATION_THREADS, 
+                conf.get(Configuration.EVENT_DISPATCH_ADAPTATION_THREADS));
+        }
+        if (null != conf.get(Configuration.EVENT_DISPATCH_MONITORING_THREADS)) {
+            prop.put(Configuration.EVENT_DISPATCH_MONITORING_THREADS, 
+                conf.get(Configuration.EVENT_DISPATCH_MONITORING_THREADS));
+        }
+        if (null != conf.get(Configuration.EVENT_DISPATCH_QUEUE_SIZE)) {
+            prop.put(Configuration.EVENT_DISPATCH_QUEUE_SIZE, 
+                conf.get(Configuration.EVENT_DISPATCH_QUEUE_SIZE));
+        }
+        if (null != conf.get(Configuration.EVENT_DISPATCH_VIRTUAL_THREADS)) {
+            prop.put(Configuration.EVENT_DISPATCH_VIRTUAL_THREADS, 
+                conf.get(Configuration.EVENT_DISPATCH_VIRTUAL_THREADS));
+        }
         if (null != conf.get(Configuration.PIPELINE_INTERCONN_PORTS)) {
             prop.put(Configuration.PIPELINE_INTERCONN_PORTS, conf.get(Configuration.PIPELINE_INTERCONN_PORTS));
         }
+        if (null != conf.get(Configuration.PIPELINE_SWITCH_NIO)) {
+            prop.put(Configuration.PIPELINE_SWITCH_NIO, conf.get(Configuration.PIPELINE_SWITCH_NIO));
+        }
         if (prop.size() > 0) {
             Configuration.configure(prop, false);
         }
@@ -15,20 +15,20 @@
  */
 package eu.qualimaster.events;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
 import java.net.Socket;
 
 import org.apache.log4j.LogManager;
 
 /**
- * Represents a client connection, in particular a sharable output stream.
+ * Represents a client connection, in particular a sharable frame writer.
  * 
  * @author Holger Eichelberger
  */
 class ClientConnection {
     private Socket socket;
-    private ObjectOutputStream out;
+    private EventFrameWriter out;
     private boolean closed;
     private String clientId;
 
@@ -63,23 +63,38 @@ class ClientConnection {
     }
 
     /**
-     * Returns the sharable output stream. Creates the stream upon first use.
+     * Returns the sharable frame writer. Creates the writer upon first use.
      * 
-     * @return the output stream, may be <b>null</b> if the connection is closed
+     * @return the frame writer, may be <b>null</b> if the connection is closed
      * @throws IOException in case of I/O problems
      */
-    ObjectOutputStream getStream() throws IOException {
+    synchronized EventFrameWriter getWriter() throws IOException {
         if (!closed && null == out) {
-            out = new ObjectOutputStream(socket.getOutputStream());
-            out.flush();
+            out = new EventFrameWriter(new BufferedOutputStream(socket.getOutputStream()));
         }
         return out;
     }
     
+    /**
+     * Sends an event to the client.
+     * 
+     * @param event the event to be sent
+     * @return <code>true</code> if the event was sent, <code>false</code> if the connection is closed
+     * @throws IOException in case of I/O problems
+     */
+    boolean send(IEvent event) throws IOException {
+        EventFrameWriter writer = getWriter();
+        if (null != writer) {
+            writer.write(event);
+            writer.flush();
+        }
+        return null != writer;
+    }
+
     /**
      * Closes the connection.
      */
-    void close() {
+    synchronized void close() {
         closed = true;
         if (null != out) {
             try {
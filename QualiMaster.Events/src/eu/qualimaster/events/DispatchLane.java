@@ -0,0 +1,64 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.events;
+
+/**
+ * The lanes of the {@link EventManager} dispatching events to handlers. Each lane is bounded in threads and 
+ * queued events, so that a storm of monitoring events does not delay control events. Events on 
+ * {@link #isLossless() lossless} lanes are never dropped.
+ * 
+ * @author Holger Eichelberger
+ */
+public enum DispatchLane {
+
+    /**
+     * Control events, i.e., all events that are neither adaptation nor monitoring events, e.g., infrastructure
+     * events, coordination commands or responses.
+     */
+    CONTROL(true),
+    
+    /**
+     * Adaptation events.
+     */
+    ADAPTATION(true),
+    
+    /**
+     * Monitoring and logging events.
+     */
+    MONITORING(false);
+    
+    private boolean lossless;
+
+    /**
+     * Creates a lane.
+     * 
+     * @param lossless whether events on this lane must never be dropped
+     */
+    private DispatchLane(boolean lossless) {
+        this.lossless = lossless;
+    }
+
+    /**
+     * Returns whether events on this lane must never be dropped, i.e., whether events handled by threads which
+     * must not block are spilled to an unbounded queue rather than dropped if the lane is saturated.
+     * 
+     * @return <code>true</code> if lossless, <code>false</code> if events may be dropped
+     */
+    public boolean isLossless() {
+        return lossless;
+    }
+    
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.events;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import eu.qualimaster.monitoring.events.MonitoringEventCodec;
+
+/**
+ * Registry of the event wire codecs. Each encoded event is prefixed by the id of its codec. Codecs are asked 
+ * in reverse registration order whether they handle an event, i.e., the {@link JavaSerializationEventCodec} 
+ * registered first acts as fallback for all events not handled by a more specific codec.
+ * 
+ * @author Holger Eichelberger
+ */
+public class EventCodecs {
+
+    private static final int MAX_CODECS = Byte.MAX_VALUE + 1;
+    private static final IEventCodec[] CODECS = new IEventCodec[MAX_CODECS];
+    private static volatile IEventCodec[] order = new IEventCodec[0];
+
+    static {
+        register(new JavaSerializationEventCodec());
+        register(new MonitoringEventCodec());
+    }
+
+    /**
+     * Prevents external creation / static class.
+     */
+    private EventCodecs() {
+    }
+
+    /**
+     * Registers an event codec. Sender and receiver side must register the same codecs.
+     * 
+     * @param codec the codec to be registered
+     * @throws IllegalArgumentException if <code>codec</code> is <b>null</b>, its id is negative or already 
+     *     registered
+     */
+    public static synchronized void register(IEventCodec codec) {
+        if (null == codec || codec.getId() < 0) {
+            throw new IllegalArgumentException("illegal codec " + codec);
+        }
+        if (null != CODECS[codec.getId()]) {
+            throw new IllegalArgumentException("codec id " + codec.getId() + " is already registered");
+        }
+        CODECS[codec.getId()] = codec;
+        IEventCodec[] tmp = new IEventCodec[order.length + 1];
+        tmp[0] = codec;
+        System.arraycopy(order, 0, tmp, 1, order.length);
+        order = tmp;
+    }
+
+    /**
+     * Returns the codec for the given event.
+     * 
+     * @param event the event (not <b>null</b>)
+     * @return the codec
+     */
+    public static IEventCodec getCodec(IEvent event) {
+        IEventCodec[] codecs = order;
+        IEventCodec result = null;
+        for (int c = 0; null == result && c < codecs.length; c++) {
+            if (codecs[c].handles(event)) {
+                result = codecs[c];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Encodes an event including its codec id.
+     * 
+     * @param event the event to be encoded
+     * @param out the output to write to
+     * @throws IOException in case that encoding fails
+     */
+    public static void encode(IEvent event, DataOutput out) throws IOException {
+        IEventCodec codec = getCodec(event);
+        out.writeByte(codec.getId());
+        codec.encode(event, out);
+    }
+
+    /**
+     * Decodes an event written by {@link #encode(IEvent, DataOutput)}.
+     * 
+     * @param in the input to read from
+     * @return the decoded event
+     * @throws IOException in case that decoding fails or the codec is not known
+     */
+    public static IEvent decode(DataInput in) throws IOException {
+        int id = in.readByte();
+        IEventCodec codec = id >= 0 ? CODECS[id] : null;
+        if (null == codec) {
+            throw new IOException("unknown event codec " + id);
+        }
+        return codec.decode(in);
+    }
+
+}
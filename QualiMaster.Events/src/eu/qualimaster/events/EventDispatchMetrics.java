@@ -0,0 +1,241 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.events;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Dispatch metrics of an {@link EventManager} per {@link DispatchLane}. Except for the queue depth, all values 
+ * are cumulative since the creation of the event manager.
+ * 
+ * @author Holger Eichelberger
+ */
+public class EventDispatchMetrics {
+
+    private static final int LANES = DispatchLane.values().length;
+    
+    private AtomicLongArray depth = new AtomicLongArray(LANES);
+    private AtomicLongArray maxDepth = new AtomicLongArray(LANES);
+    private AtomicLongArray dispatched = new AtomicLongArray(LANES);
+    private AtomicLongArray callerRuns = new AtomicLongArray(LANES);
+    private AtomicLongArray dropped = new AtomicLongArray(LANES);
+    private AtomicLongArray spilled = new AtomicLongArray(LANES);
+    private AtomicLongArray blocked = new AtomicLongArray(LANES);
+    private AtomicLongArray latencyNanos = new AtomicLongArray(LANES);
+    private AtomicLongArray maxLatencyNanos = new AtomicLongArray(LANES);
+
+    /**
+     * Notifies about an event waiting for dispatch.
+     * 
+     * @param lane the dispatch lane
+     */
+    void notifyQueued(DispatchLane lane) {
+        int index = lane.ordinal();
+        updateMax(maxDepth, index, depth.incrementAndGet(index));
+    }
+
+    /**
+     * Notifies about an event dispatched by the handling thread as the lane was saturated.
+     * 
+     * @param lane the dispatch lane
+     */
+    void notifyCallerRuns(DispatchLane lane) {
+        callerRuns.incrementAndGet(lane.ordinal());
+    }
+
+    /**
+     * Notifies about an event dropped as the lane was saturated and the handling thread must not block.
+     * 
+     * @param lane the dispatch lane
+     */
+    void notifyDropped(DispatchLane lane) {
+        int index = lane.ordinal();
+        depth.decrementAndGet(index);
+        dropped.incrementAndGet(index);
+    }
+
+    /**
+     * Notifies about an event spilled to the unbounded overflow of a lossless lane as the lane was saturated and the 
+     * handling thread must not block.
+     * 
+     * @param lane the dispatch lane
+     */
+    void notifySpilled(DispatchLane lane) {
+        spilled.incrementAndGet(lane.ordinal());
+    }
+
+    /**
+     * Notifies about the handling thread being blocked as too many events were waiting for an ordered handler.
+     * 
+     * @param lane the dispatch lane
+     */
+    void notifyBlocked(DispatchLane lane) {
+        blocked.incrementAndGet(lane.ordinal());
+    }
+
+    /**
+     * Notifies about the start of dispatching an event to its handler.
+     * 
+     * @param lane the dispatch lane
+     * @param nanos the time the event waited for dispatch in nanoseconds
+     */
+    void notifyDispatched(DispatchLane lane, long nanos) {
+        int index = lane.ordinal();
+        depth.decrementAndGet(index);
+        dispatched.incrementAndGet(index);
+        latencyNanos.addAndGet(index, nanos);
+        updateMax(maxLatencyNanos, index, nanos);
+    }
+
+    /**
+     * Updates a maximum value.
+     * 
+     * @param max the maximum values
+     * @param index the index of the value to update
+     * @param value the new value
+     */
+    private static void updateMax(AtomicLongArray max, int index, long value) {
+        long current = max.get(index);
+        while (value > current && !max.compareAndSet(index, current, value)) {
+            current = max.get(index);
+        }
+    }
+
+    /**
+     * Returns the number of events currently waiting for dispatch.
+     * 
+     * @param lane the dispatch lane
+     * @return the number of waiting events
+     */
+    public long getQueueDepth(DispatchLane lane) {
+        return depth.get(lane.ordinal());
+    }
+
+    /**
+     * Returns the maximum number of events waiting for dispatch observed so far.
+     * 
+     * @param lane the dispatch lane
+     * @return the maximum number of waiting events
+     */
+    public long getMaxQueueDepth(DispatchLane lane) {
+        return maxDepth.get(lane.ordinal());
+    }
+
+    /**
+     * Returns the number of events dispatched to handlers.
+     * 
+     * @param lane the dispatch lane
+     * @return the number of dispatched events
+     */
+    public long getDispatchedCount(DispatchLane lane) {
+        return dispatched.get(lane.ordinal());
+    }
+
+    /**
+     * Returns how often an event was dispatched by the handling thread as the lane was saturated.
+     * 
+     * @param lane the dispatch lane
+     * @return the number of saturation situations
+     */
+    public long getCallerRunsCount(DispatchLane lane) {
+        return callerRuns.get(lane.ordinal());
+    }
+
+    /**
+     * Returns the number of events spilled to the unbounded overflow of a lossless lane as the lane was saturated 
+     * and the handling thread must not block.
+     * 
+     * @param lane the dispatch lane
+     * @return the number of spilled events
+     */
+    public long getSpilledCount(DispatchLane lane) {
+        return spilled.get(lane.ordinal());
+    }
+
+    /**
+     * Returns how often the handling thread was blocked as too many events were waiting for an ordered handler.
+     * 
+     * @param lane the dispatch lane
+     * @return the number of blocking situations
+     */
+    public long getBlockedCount(DispatchLane lane) {
+        return blocked.get(lane.ordinal());
+    }
+
+    /**
+     * Returns the number of events dropped as the lane was saturated and the handling thread must not block.
+     * 
+     * @param lane the dispatch lane
+     * @return the number of dropped events
+     */
+    public long getDroppedCount(DispatchLane lane) {
+        return dropped.get(lane.ordinal());
+    }
+
+    /**
+     * Returns the average time events waited for dispatch.
+     * 
+     * @param lane the dispatch lane
+     * @return the average dispatch latency in milliseconds
+     */
+    public double getAverageLatency(DispatchLane lane) {
+        int index = lane.ordinal();
+        long count = dispatched.get(index);
+        return count > 0 ? latencyNanos.get(index) / 1000000.0 / count : 0;
+    }
+
+    /**
+     * Returns the maximum time an event waited for dispatch observed so far.
+     * 
+     * @param lane the dispatch lane
+     * @return the maximum dispatch latency in milliseconds
+     */
+    public double getMaxLatency(DispatchLane lane) {
+        return maxLatencyNanos.get(lane.ordinal()) / 1000000.0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        for (DispatchLane lane : DispatchLane.values()) {
+            if (result.length() > 0) {
+                result.append(", ");
+            }
+            result.append(lane.name().toLowerCase());
+            result.append(" depth ");
+            result.append(getQueueDepth(lane));
+            result.append(" (max ");
+            result.append(getMaxQueueDepth(lane));
+            result.append(") dispatched ");
+            result.append(getDispatchedCount(lane));
+            result.append(" caller runs ");
+            result.append(getCallerRunsCount(lane));
+            result.append(" dropped ");
+            result.append(getDroppedCount(lane));
+            result.append(" spilled ");
+            result.append(getSpilledCount(lane));
+            result.append(" blocked ");
+            result.append(getBlockedCount(lane));
+            result.append(" latency ");
+            result.append(String.format("%.3f", getAverageLatency(lane)));
+            result.append(" ms (max ");
+            result.append(String.format("%.3f", getMaxLatency(lane)));
+            result.append(" ms)");
+        }
+        return result.toString();
+    }
+
+}
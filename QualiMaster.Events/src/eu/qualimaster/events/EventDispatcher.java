@@ -0,0 +1,620 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.events;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.LogManager;
+
+import eu.qualimaster.Configuration;
+import eu.qualimaster.adaptation.events.AdaptationEvent;
+import eu.qualimaster.logging.events.LoggingEvent;
+import eu.qualimaster.monitoring.events.MonitoringEvent;
+
+/**
+ * Dispatches events to their handlers on bounded {@link DispatchLane lanes}. Each lane has a limited number of
+ * threads and a limited number of waiting events. If a lane is saturated, the event is dispatched by the handling 
+ * thread, which slows down the producer of the events rather than creating further threads. Threads which must not
+ * block, e.g., the I/O threads of the event server, {@link #markNonBlocking() are marked}. For them, events on
+ * {@link DispatchLane#isLossless() lossless} lanes are spilled to an unbounded overflow of the lane, which is drained 
+ * as soon as the lane has capacity, while events on the other lanes are dropped and counted. Events for 
+ * {@link EventHandler#isOrdered() ordered} handlers are dispatched one after another in the sequence of handling. At
+ * most queue size events wait for an ordered handler. Beyond that, the handling thread blocks until the handler 
+ * catches up, while non-blocking threads and the dispatch threads themselves spill or drop as above. If a saturated
+ * lane cannot take an ordered handler, the handler is scheduled again when the lane has capacity. Uses virtual 
+ * threads only if explicitly configured and provided by the JVM.
+ * 
+ * @author Holger Eichelberger
+ */
+class EventDispatcher {
+
+    private static final long KEEP_ALIVE = 60;
+    private static final int ORDERED_BATCH = 64;
+    private static final Map<Class<?>, DispatchLane> LANES = new ConcurrentHashMap<Class<?>, DispatchLane>();
+    private static final ThreadLocal<Boolean> NON_BLOCKING = new ThreadLocal<Boolean>();
+    private static final ThreadLocal<Boolean> DISPATCHING = new ThreadLocal<Boolean>();
+    private static final long DROP_LOG_INTERVAL = 10000; // ms
+    private static final long BLOCK_WAIT = 100; // ms, just a safety net against missed notifications
+    
+    private ThreadPoolExecutor[] executors = new ThreadPoolExecutor[DispatchLane.values().length];
+    @SuppressWarnings("unchecked")
+    private Queue<OrderedQueue>[] pending = new Queue[DispatchLane.values().length];
+    @SuppressWarnings("unchecked")
+    private ConcurrentLinkedDeque<Dispatch>[] overflow = new ConcurrentLinkedDeque[DispatchLane.values().length];
+    private volatile boolean stopped;
+    private int maxOrdered;
+    private AtomicLong lastDropLog = new AtomicLong();
+    private ConcurrentHashMap<EventHandler<?>, OrderedQueue> ordered 
+        = new ConcurrentHashMap<EventHandler<?>, OrderedQueue>();
+    private EventDispatchMetrics metrics;
+    private boolean virtual;
+
+    /**
+     * Creates a dispatcher.
+     * 
+     * @param threads the maximum number of threads per lane in the sequence of {@link DispatchLane}
+     * @param queueSize the maximum number of events waiting for dispatch per lane
+     * @param useVirtual use virtual threads if provided by the JVM
+     * @param metrics the metrics to update
+     * @throws IllegalArgumentException if a number of threads or the queue size is not positive
+     */
+    EventDispatcher(int[] threads, int queueSize, boolean useVirtual, EventDispatchMetrics metrics) {
+        this.metrics = metrics;
+        this.maxOrdered = queueSize;
+        for (DispatchLane lane : DispatchLane.values()) {
+            String prefix = "EventDispatch-" + lane.name().toLowerCase() + "-";
+            ThreadFactory factory = useVirtual ? createVirtualThreadFactory(prefix) : null;
+            if (null == factory) {
+                factory = new PlatformThreadFactory(prefix);
+            } else {
+                virtual = true;
+            }
+            ThreadPoolExecutor executor = new LaneExecutor(lane, threads[lane.ordinal()], queueSize, 
+                new DispatchThreadFactory(factory));
+            executor.allowCoreThreadTimeOut(true);
+            executors[lane.ordinal()] = executor;
+            pending[lane.ordinal()] = new ConcurrentLinkedQueue<OrderedQueue>();
+            overflow[lane.ordinal()] = new ConcurrentLinkedDeque<Dispatch>();
+        }
+    }
+    
+    /**
+     * The executor of a lane. Spilled events and ordered handlers which could not be scheduled due to saturation are
+     * scheduled again after each execution.
+     * 
+     * @author Holger Eichelberger
+     */
+    private class LaneExecutor extends ThreadPoolExecutor {
+
+        private DispatchLane lane;
+
+        /**
+         * Creates a lane executor.
+         * 
+         * @param lane the lane
+         * @param threads the maximum number of threads
+         * @param queueSize the maximum number of waiting tasks
+         * @param factory the thread factory
+         */
+        private LaneExecutor(DispatchLane lane, int threads, int queueSize, ThreadFactory factory) {
+            super(threads, threads, KEEP_ALIVE, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(queueSize), 
+                factory); // rejects by exception
+            this.lane = lane;
+        }
+
+        @Override
+        protected void afterExecute(Runnable task, Throwable throwable) {
+            super.afterExecute(task, throwable);
+            reschedule(lane);
+        }
+
+    }
+
+    /**
+     * Marks the calling thread as thread that must not block, i.e., events handled by this thread are spilled or 
+     * dropped rather than dispatched by this thread if their lane is saturated.
+     */
+    static void markNonBlocking() {
+        NON_BLOCKING.set(Boolean.TRUE);
+    }
+
+    /**
+     * Returns whether the calling thread must not block.
+     * 
+     * @return <code>true</code> if the thread must not block, <code>false</code> else
+     */
+    private static boolean isNonBlocking() {
+        return Boolean.TRUE.equals(NON_BLOCKING.get());
+    }
+
+    /**
+     * Returns whether the calling thread is a dispatch thread of this class. Dispatch threads must not block on 
+     * ordered handlers as they may be the ones which would dispatch the waiting events.
+     * 
+     * @return <code>true</code> if the thread is a dispatch thread, <code>false</code> else
+     */
+    private static boolean isDispatching() {
+        return Boolean.TRUE.equals(DISPATCHING.get());
+    }
+
+    /**
+     * Creates a dispatcher according to the actual {@link Configuration}.
+     * 
+     * @param metrics the metrics to update
+     * @return the dispatcher
+     */
+    static EventDispatcher create(EventDispatchMetrics metrics) {
+        int[] threads = new int[DispatchLane.values().length];
+        threads[DispatchLane.CONTROL.ordinal()] = Configuration.getEventDispatchControlThreads();
+        threads[DispatchLane.ADAPTATION.ordinal()] = Configuration.getEventDispatchAdaptationThreads();
+        threads[DispatchLane.MONITORING.ordinal()] = Configuration.getEventDispatchMonitoringThreads();
+        return new EventDispatcher(threads, Configuration.getEventDispatchQueueSize(), 
+            Configuration.getEventDispatchVirtualThreads(), metrics);
+    }
+
+    /**
+     * Creates a factory for virtual threads via reflection as virtual threads are not available on all supported 
+     * JVMs.
+     * 
+     * @param prefix the prefix for the thread names
+     * @return the thread factory, <b>null</b> if virtual threads are not supported
+     */
+    private static ThreadFactory createVirtualThreadFactory(String prefix) {
+        ThreadFactory result = null;
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            result = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ClassNotFoundException e) {
+            // not supported
+        } catch (NoSuchMethodException e) {
+            // not supported
+        } catch (IllegalAccessException e) {
+            // not supported
+        } catch (InvocationTargetException e) { // preview feature disabled
+            LogManager.getLogger(EventDispatcher.class).info("Virtual threads not available: " 
+                + e.getCause().getMessage());
+        }
+        return result;
+    }
+    
+    /**
+     * Creates daemon platform threads with given name prefix.
+     * 
+     * @author Holger Eichelberger
+     */
+    private static class PlatformThreadFactory implements ThreadFactory {
+
+        private String prefix;
+        private AtomicInteger count = new AtomicInteger();
+
+        /**
+         * Creates the factory.
+         * 
+         * @param prefix the prefix for the thread names
+         */
+        private PlatformThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+        
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread result = new Thread(runnable, prefix + count.getAndIncrement());
+            result.setDaemon(true);
+            return result;
+        }
+        
+    }
+
+    /**
+     * Marks the threads created by a given factory as {@link #isDispatching() dispatch threads}.
+     * 
+     * @author Holger Eichelberger
+     */
+    private static class DispatchThreadFactory implements ThreadFactory {
+
+        private ThreadFactory factory;
+
+        /**
+         * Creates the factory.
+         * 
+         * @param factory the factory actually creating the threads
+         */
+        private DispatchThreadFactory(ThreadFactory factory) {
+            this.factory = factory;
+        }
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            return factory.newThread(new Runnable() {
+
+                @Override
+                public void run() {
+                    DISPATCHING.set(Boolean.TRUE);
+                    runnable.run();
+                }
+
+            });
+        }
+
+    }
+
+    /**
+     * Returns whether this dispatcher runs on virtual threads.
+     * 
+     * @return <code>true</code> for virtual threads, <code>false</code> for platform threads
+     */
+    boolean usesVirtualThreads() {
+        return virtual;
+    }
+
+    /**
+     * Returns the dispatch lane for the given event class.
+     * 
+     * @param cls the event class
+     * @return the lane
+     */
+    static DispatchLane getLane(Class<?> cls) {
+        DispatchLane result = LANES.get(cls);
+        if (null == result) {
+            if (MonitoringEvent.class.isAssignableFrom(cls) || LoggingEvent.class.isAssignableFrom(cls)) {
+                result = DispatchLane.MONITORING;
+            } else if (AdaptationEvent.class.isAssignableFrom(cls)) {
+                result = DispatchLane.ADAPTATION;
+            } else {
+                result = DispatchLane.CONTROL;
+            }
+            LANES.put(cls, result);
+        }
+        return result;
+    }
+
+    /**
+     * Dispatches an event to its handler.
+     * 
+     * @param handler the handler
+     * @param event the event
+     * @param task the task to execute for dispatching <code>event</code> to <code>handler</code>
+     * @return <code>true</code> if the event was or will be dispatched, <code>false</code> if it was dropped as 
+     *     the calling thread {@link #markNonBlocking() must not block}, the lane or the events waiting for the
+     *     ordered <code>handler</code> are saturated and the lane is not {@link DispatchLane#isLossless() lossless}
+     */
+    boolean dispatch(EventHandler<?> handler, IEvent event, Runnable task) {
+        boolean result;
+        DispatchLane lane = getLane(event.getClass());
+        metrics.notifyQueued(lane);
+        Dispatch dispatch = new Dispatch(lane, task);
+        if (handler.isOrdered()) {
+            OrderedQueue queue = ordered.get(handler);
+            if (null == queue) {
+                queue = new OrderedQueue(handler);
+                OrderedQueue tmp = ordered.putIfAbsent(handler, queue);
+                if (null != tmp) {
+                    queue = tmp;
+                }
+            }
+            result = queue.add(dispatch);
+        } else {
+            result = execute(lane, dispatch);
+        }
+        if (!result) {
+            notifyDropped(lane);
+        }
+        return result;
+    }
+
+    /**
+     * Executes a dispatch on a lane. If the lane is saturated, the dispatch is executed by the calling thread or,
+     * if the calling thread must not block, spilled on lossless lanes or dropped else.
+     * 
+     * @param lane the lane
+     * @param dispatch the dispatch
+     * @return <code>true</code> if executed or scheduled, <code>false</code> if dropped
+     */
+    private boolean execute(DispatchLane lane, Dispatch dispatch) {
+        boolean result = true;
+        ThreadPoolExecutor executor = executors[lane.ordinal()];
+        try {
+            executor.execute(dispatch);
+        } catch (RejectedExecutionException e) {
+            if (isNonBlocking()) {
+                if (lane.isLossless() && !stopped) {
+                    overflow[lane.ordinal()].add(dispatch);
+                    metrics.notifySpilled(lane);
+                    if (executor.getQueue().remainingCapacity() > 0) { // lane may have drained meanwhile
+                        reschedule(lane);
+                    }
+                } else {
+                    result = false;
+                }
+            } else {
+                metrics.notifyCallerRuns(lane);
+                dispatch.run();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Schedules an ordered queue on a lane. If the lane is saturated, the queue is scheduled again when the lane 
+     * {@link #reschedule(DispatchLane) has capacity}.
+     * 
+     * @param lane the lane
+     * @param queue the queue
+     */
+    private void execute(DispatchLane lane, OrderedQueue queue) {
+        ThreadPoolExecutor executor = executors[lane.ordinal()];
+        try {
+            executor.execute(queue);
+        } catch (RejectedExecutionException e) {
+            pending[lane.ordinal()].add(queue);
+            if (executor.getQueue().remainingCapacity() > 0) { // lane may have drained meanwhile
+                reschedule(lane);
+            }
+        }
+    }
+
+    /**
+     * Schedules the spilled dispatches and the next ordered queue waiting for capacity on <code>lane</code>.
+     * Spilled dispatches go first as their handling threads could not wait for the lane.
+     * 
+     * @param lane the lane
+     */
+    private void reschedule(DispatchLane lane) {
+        ConcurrentLinkedDeque<Dispatch> spilled = overflow[lane.ordinal()];
+        ThreadPoolExecutor executor = executors[lane.ordinal()];
+        Dispatch dispatch;
+        while (null != (dispatch = spilled.poll())) {
+            try {
+                executor.execute(dispatch);
+            } catch (RejectedExecutionException e) {
+                spilled.offerFirst(dispatch); // keep the sequence, retry after the next execution
+                break;
+            }
+        }
+        OrderedQueue queue = pending[lane.ordinal()].poll();
+        if (null != queue) {
+            execute(lane, queue);
+        }
+    }
+
+    /**
+     * Notifies about a dropped event.
+     * 
+     * @param lane the lane
+     */
+    private void notifyDropped(DispatchLane lane) {
+        metrics.notifyDropped(lane);
+        long now = System.currentTimeMillis();
+        long last = lastDropLog.get();
+        if (now - last > DROP_LOG_INTERVAL && lastDropLog.compareAndSet(last, now)) {
+            LogManager.getLogger(EventDispatcher.class).warn("Dispatch lane " + lane + " saturated, dropping events " 
+                + "handled by non-blocking threads: " + metrics);
+        }
+    }
+    
+    /**
+     * Releases the ordering resources for <code>handler</code>, e.g., as it was unregistered. Events that are 
+     * already waiting for dispatch to <code>handler</code> will still be dispatched before the resources are 
+     * released.
+     * 
+     * @param handler the handler
+     */
+    void release(EventHandler<?> handler) {
+        OrderedQueue queue = ordered.get(handler);
+        if (null != queue) {
+            queue.release();
+        }
+    }
+    
+    /**
+     * Shuts down this dispatcher. Events that are already waiting for dispatch will still be dispatched.
+     */
+    void shutdown() {
+        stopped = true;
+        for (int e = 0; e < executors.length; e++) {
+            executors[e].shutdown();
+            pending[e].clear();
+            overflow[e].clear();
+        }
+        for (OrderedQueue queue : ordered.values()) {
+            queue.wakeUp();
+        }
+        ordered.clear();
+    }
+
+    /**
+     * Dispatches a single event and records its dispatch latency.
+     * 
+     * @author Holger Eichelberger
+     */
+    private class Dispatch implements Runnable {
+
+        private DispatchLane lane;
+        private Runnable task;
+        private long created = System.nanoTime();
+
+        /**
+         * Creates a dispatch.
+         * 
+         * @param lane the lane
+         * @param task the dispatch task
+         */
+        private Dispatch(DispatchLane lane, Runnable task) {
+            this.lane = lane;
+            this.task = task;
+        }
+        
+        @Override
+        public void run() {
+            metrics.notifyDispatched(lane, System.nanoTime() - created);
+            task.run();
+        }
+
+    }
+
+    /**
+     * The events waiting for an ordered handler. At most one thread dispatches events of a queue at a time.
+     * 
+     * @author Holger Eichelberger
+     */
+    private class OrderedQueue implements Runnable {
+
+        private EventHandler<?> handler;
+        private Queue<Dispatch> dispatches = new ConcurrentLinkedQueue<Dispatch>();
+        private AtomicInteger size = new AtomicInteger();
+        private AtomicBoolean scheduled = new AtomicBoolean();
+        private AtomicInteger waiting = new AtomicInteger();
+        private volatile boolean released;
+        private volatile DispatchLane lane;
+
+        /**
+         * Creates an ordered queue.
+         * 
+         * @param handler the handler the queue is dispatching to
+         */
+        private OrderedQueue(EventHandler<?> handler) {
+            this.handler = handler;
+        }
+
+        /**
+         * Adds a dispatch and schedules this queue if required. If the number of waiting dispatches reached the 
+         * configured queue size, the calling thread blocks until this queue catches up. Threads which must not block
+         * spill the dispatch on lossless lanes, i.e., add it anyway, and drop it else. Dispatch threads always spill.
+         * 
+         * @param dispatch the dispatch
+         * @return <code>true</code> if added, <code>false</code> if dropped
+         */
+        private boolean add(Dispatch dispatch) {
+            boolean result = true;
+            if (size.get() >= maxOrdered) {
+                if (isNonBlocking()) {
+                    result = dispatch.lane.isLossless();
+                    if (result) {
+                        metrics.notifySpilled(dispatch.lane);
+                    }
+                } else if (isDispatching()) {
+                    metrics.notifySpilled(dispatch.lane);
+                } else {
+                    awaitCapacity(dispatch.lane);
+                }
+            }
+            if (result) {
+                released = false;
+                size.incrementAndGet();
+                dispatches.add(dispatch);
+                lane = dispatch.lane;
+                schedule();
+            }
+            return result;
+        }
+
+        /**
+         * Blocks the calling thread until less than the configured queue size dispatches are waiting or the 
+         * dispatcher is stopped.
+         * 
+         * @param lane the lane to account the blocking for
+         */
+        private void awaitCapacity(DispatchLane lane) {
+            metrics.notifyBlocked(lane);
+            waiting.incrementAndGet();
+            try {
+                synchronized (this) {
+                    while (size.get() >= maxOrdered && !stopped) {
+                        wait(BLOCK_WAIT);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt(); // add anyway, do not lose the event
+            } finally {
+                waiting.decrementAndGet();
+            }
+        }
+
+        /**
+         * Wakes up the threads waiting for capacity, if there are any.
+         */
+        private void wakeUp() {
+            if (waiting.get() > 0) {
+                synchronized (this) {
+                    notifyAll();
+                }
+            }
+        }
+
+        /**
+         * Releases this queue, i.e., removes it from the dispatcher as soon as all waiting dispatches are done.
+         */
+        private void release() {
+            released = true;
+            removeIfDone();
+        }
+
+        /**
+         * Removes this queue from the dispatcher if it is released and all waiting dispatches are done.
+         */
+        private void removeIfDone() {
+            if (released && dispatches.isEmpty() && !scheduled.get()) {
+                ordered.remove(handler, this);
+            }
+        }
+
+        /**
+         * Schedules this queue on the lane of the most recent event if events are waiting and this queue is not 
+         * already scheduled.
+         */
+        private void schedule() {
+            if (!dispatches.isEmpty() && scheduled.compareAndSet(false, true)) {
+                execute(lane, this);
+            }
+        }
+        
+        @Override
+        public void run() {
+            Dispatch dispatch;
+            int count = 0;
+            try {
+                // limit the batch so that other handlers on the lane get their turn
+                while (count < ORDERED_BATCH && null != (dispatch = dispatches.poll())) {
+                    size.decrementAndGet();
+                    dispatch.run();
+                    count++;
+                }
+            } finally {
+                wakeUp();
+                scheduled.set(false);
+                schedule();
+                removeIfDone();
+            }
+        }
+
+    }
+
+}
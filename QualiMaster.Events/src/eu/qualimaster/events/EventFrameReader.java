@@ -0,0 +1,340 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.events;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.util.List;
+
+import org.apache.log4j.LogManager;
+
+/**
+ * Reads frames written by an {@link EventFrameWriter}. Socket read timeouts do not lose data, i.e., a partially 
+ * read frame is continued with the next call. The frame buffer is reused across frames. Events that cannot be 
+ * decoded are skipped and counted, i.e., they do not affect the other events of a frame.
+ * 
+ * @author Holger Eichelberger
+ */
+public class EventFrameReader {
+
+    private static final int INITIAL_BUFFER_SIZE = 4 * 1024;
+    private static final int RETAINED_BUFFER_SIZE = 1024 * 1024;
+
+    private InputStream in;
+    private byte[] header = new byte[EventFrameWriter.HEADER_SIZE];
+    private int headerPos;
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+    private int frameLength = -1;
+    private int framePos;
+    private FrameInput frameInput = new FrameInput();
+    private DataInputStream data = new DataInputStream(frameInput);
+    private long decodingFailures;
+
+    /**
+     * A byte array input stream which can be reset to new contents.
+     * 
+     * @author Holger Eichelberger
+     */
+    private static class FrameInput extends ByteArrayInputStream {
+
+        /**
+         * Creates a frame input.
+         */
+        private FrameInput() {
+            super(new byte[0]);
+        }
+
+        /**
+         * Resets the contents.
+         * 
+         * @param data the data
+         * @param offset the start offset in <code>data</code>
+         * @param length the number of bytes to read from <code>data</code>
+         */
+        private void reset(byte[] data, int offset, int length) {
+            buf = data;
+            pos = offset;
+            count = offset + length;
+            mark = offset;
+        }
+
+        /**
+         * Returns the current read position.
+         * 
+         * @return the position
+         */
+        private int position() {
+            return pos;
+        }
+
+        /**
+         * Changes the read position and the end of the readable data.
+         * 
+         * @param position the new position
+         * @param end the new end of the readable data
+         */
+        private void set(int position, int end) {
+            pos = position;
+            count = end;
+        }
+
+        /**
+         * Returns the end of the readable data.
+         * 
+         * @return the end
+         */
+        private int end() {
+            return count;
+        }
+
+    }
+
+    /**
+     * Creates a frame reader for frame decoding only (see {@link #decode(byte[], int, int, List)}).
+     */
+    public EventFrameReader() {
+        this(null);
+    }
+
+    /**
+     * Creates a frame reader.
+     * 
+     * @param in the underlying input stream
+     */
+    public EventFrameReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Reads the handshake frame.
+     * 
+     * @return the id of the sending event manager, <b>null</b> if no (complete) frame was received within the 
+     *     read timeout of the underlying stream
+     * @throws IOException in case of I/O problems, end of stream or if the frame is not a handshake frame
+     */
+    public String readHandshake() throws IOException {
+        String result = null;
+        if (readFrame()) {
+            try {
+                result = decodeHandshake(buffer, 0, frameLength);
+            } finally {
+                endFrame();
+            }
+            if (null == result) {
+                throw new IOException("expected handshake frame");
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Decodes the given frame (excluding the length header) as handshake frame.
+     * 
+     * @param frame the frame data
+     * @param offset the start of the frame in <code>frame</code>
+     * @param length the length of the frame
+     * @return the id of the sending event manager, <b>null</b> if the frame is not a handshake frame
+     * @throws IOException in case of decoding problems
+     */
+    public String decodeHandshake(byte[] frame, int offset, int length) throws IOException {
+        String result = null;
+        startDecoding(frame, offset, length);
+        if (EventFrameWriter.TYPE_HANDSHAKE == data.readByte()) {
+            result = data.readUTF();
+        }
+        return result;
+    }
+
+    /**
+     * Reads the next event frame.
+     * 
+     * @param events the events decoded from the frame (modified as a side effect)
+     * @return <code>true</code> if a frame was read, <code>false</code> if no (complete) frame was received 
+     *     within the read timeout of the underlying stream
+     * @throws IOException in case of I/O problems, end of stream or decoding problems
+     */
+    public boolean read(List<IEvent> events) throws IOException {
+        boolean result = readFrame();
+        if (result) {
+            try {
+                decode(buffer, 0, frameLength, events);
+            } finally {
+                endFrame();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Decodes the events in the given frame (excluding the length header). Events that cannot be decoded are 
+     * skipped and {@link #getDecodingFailures() counted}. Events are only added to <code>events</code> if the 
+     * structure of the entire frame is valid. Handshake frames are ignored.
+     * 
+     * @param frame the frame data
+     * @param offset the start of the frame in <code>frame</code>
+     * @param length the length of the frame
+     * @param events the events decoded from the frame (modified as a side effect)
+     * @throws IOException in case of an illegal frame structure
+     */
+    public void decode(byte[] frame, int offset, int length, List<IEvent> events) throws IOException {
+        startDecoding(frame, offset, length);
+        byte type = data.readByte();
+        if (EventFrameWriter.TYPE_EVENTS == type) {
+            int count = data.readInt();
+            if (count < 0) {
+                throw new IOException("illegal event count " + count);
+            }
+            int start = events.size();
+            try {
+                for (int e = 0; e < count; e++) {
+                    decodeEvent(events);
+                }
+            } catch (IOException e) {
+                while (events.size() > start) {
+                    events.remove(events.size() - 1);
+                }
+                throw e;
+            }
+        } else if (EventFrameWriter.TYPE_HANDSHAKE != type) {
+            throw new IOException("unknown frame type " + type);
+        }
+    }
+
+    /**
+     * Decodes the next length-prefixed event of the current frame.
+     * 
+     * @param events the events to add the decoded event to (modified as a side effect)
+     * @throws IOException in case of an illegal event length
+     */
+    private void decodeEvent(List<IEvent> events) throws IOException {
+        int length = data.readInt();
+        int start = frameInput.position();
+        int frameEnd = frameInput.end();
+        if (length < 0 || length > frameEnd - start) {
+            throw new IOException("illegal event length " + length);
+        }
+        int end = start + length;
+        frameInput.set(start, end); // the codec must not read into the next event
+        try {
+            events.add(EventCodecs.decode(data));
+        } catch (IOException | RuntimeException e) {
+            decodingFailures++;
+            LogManager.getLogger(EventFrameReader.class).error("Cannot decode event, skipping it: " 
+                + e.getMessage());
+        }
+        frameInput.set(end, frameEnd);
+    }
+
+    /**
+     * Returns the number of events skipped as they could not be decoded.
+     * 
+     * @return the number of skipped events
+     */
+    public long getDecodingFailures() {
+        return decodingFailures;
+    }
+
+    /**
+     * Starts decoding a frame.
+     * 
+     * @param frame the frame data
+     * @param offset the start of the frame in <code>frame</code>
+     * @param length the length of the frame
+     */
+    private void startDecoding(byte[] frame, int offset, int length) {
+        frameInput.reset(frame, offset, length);
+    }
+
+    /**
+     * Reads the next complete frame into {@link #buffer}.
+     * 
+     * @return <code>true</code> if a complete frame is available, <code>false</code> in case of a read timeout
+     * @throws IOException in case of I/O problems or end of stream
+     */
+    private boolean readFrame() throws IOException {
+        boolean result = false;
+        try {
+            while (headerPos < header.length) {
+                headerPos += read(header, headerPos, header.length - headerPos);
+            }
+            if (frameLength < 0) {
+                int length = ((header[0] & 0xFF) << 24) | ((header[1] & 0xFF) << 16) | ((header[2] & 0xFF) << 8) 
+                    | (header[3] & 0xFF);
+                if (length <= 0 || length > EventFrameWriter.MAX_FRAME_SIZE) {
+                    throw new IOException("illegal frame length " + length);
+                }
+                if (buffer.length < length) {
+                    buffer = new byte[Math.max(length, 2 * buffer.length)];
+                }
+                frameLength = length;
+                framePos = 0;
+            }
+            while (framePos < frameLength) {
+                framePos += read(buffer, framePos, frameLength - framePos);
+            }
+            result = true;
+        } catch (SocketTimeoutException e) {
+            // this is ok due to non-blocking mode, continue with next call
+        }
+        return result;
+    }
+
+    /**
+     * Reads from the underlying stream.
+     * 
+     * @param buf the buffer to read into
+     * @param offset the offset in <code>buf</code>
+     * @param length the maximum number of bytes to read
+     * @return the number of bytes read
+     * @throws IOException in case of I/O problems
+     * @throws EOFException in case that the end of the stream is reached
+     */
+    private int read(byte[] buf, int offset, int length) throws IOException {
+        int result = in.read(buf, offset, length);
+        if (result < 0) {
+            throw new EOFException();
+        }
+        return result;
+    }
+
+    /**
+     * Ends processing of the current frame.
+     */
+    private void endFrame() {
+        headerPos = 0;
+        frameLength = -1;
+        framePos = 0;
+        if (buffer.length > RETAINED_BUFFER_SIZE) {
+            buffer = new byte[INITIAL_BUFFER_SIZE];
+        }
+    }
+
+    /**
+     * Closes the underlying stream.
+     * 
+     * @throws IOException in case of I/O problems
+     */
+    public void close() throws IOException {
+        if (null != in) {
+            in.close();
+        }
+    }
+
+}
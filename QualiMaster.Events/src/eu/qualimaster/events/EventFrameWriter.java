@@ -0,0 +1,246 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.events;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import org.apache.log4j.LogManager;
+
+/**
+ * Writes length-prefixed event frames to a stream. A frame consists of its length (int, excluding the length 
+ * itself), the frame type (byte) and the payload. An {@link #TYPE_EVENTS event frame} carries a batch of events, 
+ * each encoded via {@link EventCodecs} and prefixed by its encoded length. Events that cannot be encoded are 
+ * skipped and counted, i.e., they do not affect the other events of a batch. The frame buffer is reused across 
+ * frames. Instances are thread-safe, i.e., multiple threads may share one writer.
+ * 
+ * @author Holger Eichelberger
+ */
+public class EventFrameWriter {
+
+    public static final byte TYPE_HANDSHAKE = 1;
+    public static final byte TYPE_EVENTS = 2;
+    public static final int MAX_FRAME_SIZE = 64 * 1024 * 1024;
+    static final int HEADER_SIZE = 4;
+    private static final int INITIAL_BUFFER_SIZE = 4 * 1024;
+    private static final int RETAINED_BUFFER_SIZE = 1024 * 1024;
+
+    private OutputStream out;
+    private FrameBuffer buffer = new FrameBuffer();
+    private DataOutputStream data = new DataOutputStream(buffer);
+    private long encodingFailures;
+
+    /**
+     * A byte array output stream giving access to its buffer.
+     * 
+     * @author Holger Eichelberger
+     */
+    private static class FrameBuffer extends ByteArrayOutputStream {
+
+        /**
+         * Creates a frame buffer.
+         */
+        private FrameBuffer() {
+            super(INITIAL_BUFFER_SIZE);
+        }
+
+        /**
+         * Patches the length of the current frame into the header.
+         * 
+         * @return the frame length including the header
+         */
+        private int patchLength() {
+            patchInt(0, count - HEADER_SIZE);
+            return count;
+        }
+
+        /**
+         * Writes an int at the given position.
+         * 
+         * @param pos the position
+         * @param value the value
+         */
+        private void patchInt(int pos, int value) {
+            buf[pos] = (byte) (value >>> 24);
+            buf[pos + 1] = (byte) (value >>> 16);
+            buf[pos + 2] = (byte) (value >>> 8);
+            buf[pos + 3] = (byte) value;
+        }
+
+        /**
+         * Drops the bytes written after the given position.
+         * 
+         * @param pos the position
+         */
+        private void truncate(int pos) {
+            count = pos;
+        }
+
+        /**
+         * Resets the buffer and drops a large buffer grown by a previous frame.
+         */
+        private void clear() {
+            if (buf.length > RETAINED_BUFFER_SIZE) {
+                buf = new byte[INITIAL_BUFFER_SIZE];
+            }
+            reset();
+        }
+
+    }
+
+    /**
+     * Creates a frame writer.
+     * 
+     * @param out the underlying output stream (shall be buffered as the writer does not flush implicitly)
+     */
+    public EventFrameWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes the handshake frame identifying the sending event manager.
+     * 
+     * @param id the id of the sending event manager
+     * @return the number of bytes written
+     * @throws IOException in case of I/O problems
+     */
+    public synchronized int writeHandshake(String id) throws IOException {
+        startFrame(TYPE_HANDSHAKE);
+        data.writeUTF(id);
+        return endFrame();
+    }
+
+    /**
+     * Writes a single event as frame.
+     * 
+     * @param event the event to be written
+     * @return the number of bytes written, <code>0</code> if the event cannot be encoded
+     * @throws IOException in case of I/O problems
+     */
+    public synchronized int write(IEvent event) throws IOException {
+        startFrame(TYPE_EVENTS);
+        data.writeInt(1);
+        return encode(event) ? endFrame() : 0;
+    }
+
+    /**
+     * Writes a batch of events as one frame. Events that cannot be encoded are skipped.
+     * 
+     * @param events the events to be written
+     * @return the number of bytes written, <code>0</code> if no event can be encoded
+     * @throws IOException in case of I/O problems
+     */
+    public synchronized int write(List<IEvent> events) throws IOException {
+        startFrame(TYPE_EVENTS);
+        int countPos = buffer.size();
+        data.writeInt(0); // count, patched below
+        int count = 0;
+        for (int e = 0, size = events.size(); e < size; e++) {
+            if (encode(events.get(e))) {
+                count++;
+            }
+        }
+        int result = 0;
+        if (count > 0 || events.isEmpty()) {
+            buffer.patchInt(countPos, count);
+            result = endFrame();
+        }
+        return result;
+    }
+
+    /**
+     * Encodes an event with its length prefix into the current frame. If encoding fails, the partially encoded 
+     * event is removed from the frame and the failure is counted.
+     * 
+     * @param event the event to be encoded
+     * @return <code>true</code> if encoded, <code>false</code> if skipped
+     */
+    private boolean encode(IEvent event) {
+        boolean result = true;
+        int start = buffer.size();
+        try {
+            data.writeInt(0); // length, patched below
+            EventCodecs.encode(event, data);
+            buffer.patchInt(start, buffer.size() - start - 4);
+        } catch (IOException | RuntimeException e) {
+            buffer.truncate(start);
+            encodingFailures++;
+            result = false;
+            LogManager.getLogger(EventFrameWriter.class).error("Cannot encode event " + event + ", skipping it: " 
+                + e.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of events skipped as they could not be encoded.
+     * 
+     * @return the number of skipped events
+     */
+    public synchronized long getEncodingFailures() {
+        return encodingFailures;
+    }
+
+    /**
+     * Starts a frame.
+     * 
+     * @param type the frame type
+     * @throws IOException in case of I/O problems
+     */
+    private void startFrame(byte type) throws IOException {
+        buffer.clear();
+        data.writeInt(0); // length, patched in endFrame
+        data.writeByte(type);
+    }
+
+    /**
+     * Ends a frame and writes it to the underlying stream.
+     * 
+     * @return the number of bytes written
+     * @throws IOException in case of I/O problems or if the frame is too large
+     */
+    private int endFrame() throws IOException {
+        int length = buffer.patchLength();
+        if (length - HEADER_SIZE > MAX_FRAME_SIZE) {
+            buffer.clear();
+            throw new IOException("event frame exceeds " + MAX_FRAME_SIZE + " bytes");
+        }
+        buffer.writeTo(out);
+        return length;
+    }
+
+    /**
+     * Flushes the underlying stream.
+     * 
+     * @throws IOException in case of I/O problems
+     */
+    public synchronized void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Closes the underlying stream.
+     * 
+     * @throws IOException in case of I/O problems
+     */
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+
+}
@@ -74,5 +74,15 @@ public abstract class EventHandler <E extends IEvent> {
     public boolean handlesChannel(String channel) {
         return true;
     }
+
+    /**
+     * Returns whether events shall be dispatched to this handler one after another in the sequence they are 
+     * handled by the {@link EventManager}. Otherwise, events may be dispatched in parallel.
+     * 
+     * @return <code>true</code> for ordered dispatch, <code>false</code> for parallel dispatch (default)
+     */
+    protected boolean isOrdered() {
+        return false;
+    }
     
 }
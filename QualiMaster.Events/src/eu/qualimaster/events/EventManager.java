@@ -1,30 +1,25 @@
 package eu.qualimaster.events;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.net.InetAddress;
-import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
-import java.net.SocketTimeoutException;
 import java.net.UnknownHostException;
 import java.rmi.dgc.VMID;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.ConcurrentModificationException;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.UUID;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.LogManager;
@@ -55,16 +50,21 @@ public class EventManager {
     private final String managerId = new VMID().toString() + "-" +  System.nanoTime(); // not static for testing
     private final Map<String, List<EventHandler<? extends IEvent>>> registrations = 
         Collections.synchronizedMap(new HashMap<String, List<EventHandler<? extends IEvent>>>());
-    private final Set<Class<? extends IEvent>> disableLogging = Collections.synchronizedSet(
-        new HashSet<Class<? extends IEvent>>());
-    private ExecutorService executor;
+    // copy-on-write per event class, guarded for modifications by registrations, invalidated on (un)registration
+    private final Map<Class<?>, EventHandler<?>[]> dispatchCache 
+        = new ConcurrentHashMap<Class<?>, EventHandler<?>[]>();
+    private final Set<Class<? extends IEvent>> disableLogging = Collections.newSetFromMap(
+        new ConcurrentHashMap<Class<? extends IEvent>, Boolean>());
+    private EventDispatcher dispatcher;
     private AtomicInteger unprocessed = new AtomicInteger();
     private boolean isRunning;
-    private ServerSocket serverSocket;
-    private BlockingQueue<IEvent> toSend;
-    private Map<String, ClientConnection> clients = new HashMap<String, ClientConnection>();
+    private EventServer server;
+    private EventSendQueue toSend;
+    private final EventSendMetrics sendMetrics = new EventSendMetrics();
+    private final EventDispatchMetrics dispatchMetrics = new EventDispatchMetrics();
+    private Map<String, ClientConnection> clients = new ConcurrentHashMap<String, ClientConnection>();
     private Map<String, EventHandler<? extends IEvent>> clientHandlers 
-        = new HashMap<String, EventHandler<? extends IEvent>>();
+        = new ConcurrentHashMap<String, EventHandler<? extends IEvent>>();
     private Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
     private boolean isClient;
     private long timerPeriod;
@@ -91,8 +91,8 @@ public class EventManager {
             registrations.put(handler.getEventClassName(), handlers);
         }
         if (isClient) {
-            if (null == executor) {
-                executor = Executors.newCachedThreadPool();                    
+            if (null == dispatcher) {
+                dispatcher = EventDispatcher.create(dispatchMetrics);
             }
             if (!ILocalEvent.class.isAssignableFrom(eClass)) {
                 // this is one, we may have multiple forward handlers for different events
@@ -104,7 +104,7 @@ public class EventManager {
                     if (null != socket) {
                         try {
                             // this is a client, inform the server for receiving events but register the handler
-                            ReadingWorker worker = new ReadingWorker(socket, true);
+                            ReadingWorker worker = new ReadingWorker(socket);
                             startThread(worker);
                         } catch (IOException e) {
                             LOGGER.error("While setting up event forwarding: " + e.getMessage());
@@ -113,7 +113,10 @@ public class EventManager {
                 }
             }
         } 
-        handlers.add(handler);
+        synchronized (registrations) {
+            handlers.add(handler);
+            dispatchCache.clear();
+        }
     }
     
     /**
@@ -160,7 +163,14 @@ public class EventManager {
     public void doUnregister(EventHandler<? extends IEvent> handler) {
         List<EventHandler<? extends IEvent>> handlers = registrations.get(handler.getEventClassName());
         if (null != handlers) {
-            handlers.remove(handler);
+            synchronized (registrations) {
+                handlers.remove(handler);
+                dispatchCache.clear();
+            }
+        }
+        EventDispatcher disp = this.dispatcher;
+        if (null != disp) {
+            disp.release(handler);
         }
     }
 
@@ -298,8 +308,9 @@ public class EventManager {
         String receiverId = ((IResponseEvent) event).getReceiverId();
         if (null != receiverId && !receiverId.equals(managerId)) { // local
             EventHandler<?> handler = clientHandlers.get(receiverId);
-            if (null != handler && !handler.consume(event)) {
-                executor.execute(new DispatchRunnable(handler, event));
+            EventDispatcher disp = this.dispatcher;
+            if (null != handler && null != disp && !handler.consume(event)) {
+                dispatch(disp, handler, event);
                 done = true;
             }
         }
@@ -313,26 +324,39 @@ public class EventManager {
      * @param event the event to be handled.
      */
     private void doHandleLocal(IEvent event) {
-        if (null != executor) {
-            Set<EventHandler<? extends IEvent>> handlers = getHandlers(event.getClass(), event.getChannel(), null);
-            if (null != handlers) {
-                try {
-                    for (EventHandler<? extends IEvent> handler : handlers) {
-                        unprocessed.incrementAndGet();
-                        boolean consume = handler.consume(event);
-                        if (isLoggingEnabled(event)) {
-                            LOGGER.info((consume ? "consumed" : "dispatching") + " " + event);
-                        }
-                        if (!consume) {
-                            executor.execute(new DispatchRunnable(handler, event));
-                        }
+        EventDispatcher disp = this.dispatcher;
+        if (null != disp) {
+            EventHandler<?>[] handlers = getHandlers(event.getClass());
+            String channel = event.getChannel();
+            boolean log = handlers.length > 0 && isLoggingEnabled(event);
+            for (int h = 0; h < handlers.length; h++) {
+                EventHandler<?> handler = handlers[h];
+                if (handler.handlesChannel(channel)) {
+                    boolean consume = handler.consume(event);
+                    if (log) {
+                        LOGGER.info((consume ? "consumed" : "dispatching") + " " + event);
+                    }
+                    if (!consume) {
+                        dispatch(disp, handler, event);
                     }
-                } catch (ConcurrentModificationException e) {
-                    // a handler was added/removed during execution - just ignore
                 }
             }
         }
     }
+
+    /**
+     * Dispatches an event to a handler.
+     * 
+     * @param disp the dispatcher
+     * @param handler the handler
+     * @param event the event
+     */
+    private void dispatch(EventDispatcher disp, EventHandler<?> handler, IEvent event) {
+        unprocessed.incrementAndGet(); // balanced by DispatchRunnable
+        if (!disp.dispatch(handler, event, new DispatchRunnable(handler, event))) {
+            unprocessed.decrementAndGet(); // dropped
+        }
+    }
     
     /**
      * Returns whether <code>host</code> is localhost.
@@ -363,35 +387,43 @@ public class EventManager {
     }
     
     /**
-     * Returns all handlers for <code>cls</code>.
+     * Returns all handlers for <code>cls</code> regardless of their channel. The handlers are resolved once per
+     * event class and cached until the next (un)registration.
      * 
      * @param cls the event class to search for
-     * @param channel the event channel name (may be <b>null</b> for all)
-     * @param handlers the actual handlers (may be <b>null</b> at call)
-     * @return the handlers for <code>cls</code> (may be <b>null</b> if there are none)
+     * @return the handlers for <code>cls</code> (do not modify)
      */
-    private Set<EventHandler<? extends IEvent>> getHandlers(Class<?> cls, String channel,  
-        Set<EventHandler<? extends IEvent>> handlers) {
+    private EventHandler<?>[] getHandlers(Class<?> cls) {
+        EventHandler<?>[] result = dispatchCache.get(cls);
+        if (null == result) {
+            synchronized (registrations) {
+                Set<EventHandler<?>> handlers = new LinkedHashSet<EventHandler<?>>();
+                collectHandlers(cls, handlers);
+                result = handlers.toArray(new EventHandler<?>[handlers.size()]);
+                dispatchCache.put(cls, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Collects all handlers for <code>cls</code>, its superclasses and interfaces.
+     * 
+     * @param cls the event class to search for
+     * @param handlers the handlers collected so far (modified as a side effect)
+     */
+    private void collectHandlers(Class<?> cls, Set<EventHandler<?>> handlers) {
         List<EventHandler<? extends IEvent>> tmp = registrations.get(cls.getName());
         if (null != tmp) {
-            if (null == handlers) {
-                handlers = new HashSet<EventHandler<? extends IEvent>>();
-            }
-            for (int t = 0; t < tmp.size(); t++) {
-                EventHandler<? extends IEvent> handler = tmp.get(t);
-                if (handler.handlesChannel(channel)) {
-                    handlers.add(handler);
-                }
-            }
+            handlers.addAll(tmp);
         }
         if (null != cls.getSuperclass()) {
-            handlers = getHandlers(cls.getSuperclass(), channel, handlers);
+            collectHandlers(cls.getSuperclass(), handlers);
         }
         Class<?>[] ifaces = cls.getInterfaces();
         for (int i = 0, n = ifaces.length; i < n; i++) {
-            handlers = getHandlers(ifaces[i], channel, handlers);
+            collectHandlers(ifaces[i], handlers);
         }
-        return handlers;
     }
 
     /**
@@ -484,14 +516,9 @@ public class EventManager {
             String id = event.getClientId();
             ClientConnection conn = clients.get(id);
             if (null != conn) {
-                try {
-                    ForwardEventHandler handler = new ForwardEventHandler(event.getEventClass(), conn);
-                    register(handler);
-                    clientHandlers.put(id, handler);
-                } catch (IOException e) {
-                    LOGGER.error("cannot create forward event handler for " + event.getClientId() + " "
-                        + event.getEventClass() + ":" + e.getMessage());
-                }
+                ForwardEventHandler handler = new ForwardEventHandler(event.getEventClass(), conn);
+                register(handler);
+                clientHandlers.put(id, handler);
             } else {
                 LOGGER.error("cannot create forward event handler for " + event.getClientId() + " " 
                     + event.getEventClass() + ": no such client");
@@ -515,13 +542,11 @@ public class EventManager {
          * 
          * @param eventClass the event class
          * @param conn the client connection
-         * @throws IOException if the event handler cannot be created due to I/O problems
          */
-        protected ForwardEventHandler(String eventClass, ClientConnection conn) throws IOException {
+        protected ForwardEventHandler(String eventClass, ClientConnection conn) {
             super(IEvent.class);
             this.eventClass = eventClass;
             this.conn = conn;
-            conn.getStream(); // if not open, force sending the header
         }
         
         @Override
@@ -529,23 +554,20 @@ public class EventManager {
             return eventClass;
         }
 
+        @Override
+        protected boolean isOrdered() {
+            return true; // keep the sequence of events towards the client
+        }
+
         @Override
         protected void handle(IEvent event) {
             boolean unregister = false;
             try {
-                ObjectOutputStream out = conn.getStream();
-                if (null == out) {
-                    unregister = true;
-                } else {
-                    try {
-                        synchronized (out) { // multiple forward handlers may share out
-                            out.writeObject(event);
-                        }
-                    } catch (EOFException | SocketException e) {
-                        // client disconnected
-                        unregister = true;
-                    }
-                }
+                // multiple forward handlers may share conn, may block if the client does not read (backpressure)
+                unregister = !conn.send(event);
+            } catch (EOFException | SocketException e) {
+                // client disconnected
+                unregister = true;
             } catch (IOException e) {
                 LOGGER.error("handling " + getEventClassName() + ": " + e.getMessage(), e);
             }
@@ -569,13 +591,13 @@ public class EventManager {
     public void doStart(boolean localMode, boolean server) {
         if (!isRunning) {
             if (server) {
-                executor = Executors.newCachedThreadPool();
+                dispatcher = EventDispatcher.create(dispatchMetrics);
                 if (!localMode) {
                     try {
-                        serverSocket = new ServerSocket(Configuration.getEventPort());
-                        serverSocket.setSoTimeout(SO_TIMEOUT); // enable non-blocking accepts
+                        this.server = new EventServer(Configuration.getEventPort(), Configuration.getEventIoThreads(), 
+                            Configuration.getEventClientQueueSize(), new ServerHandler());
+                        this.server.start();
                         isRunning = true;
-                        startThread(new ServerRunnable());
                         register(new ForwardReceptionEventHandler());
                         LOGGER.info(" Event manager started in server mode.");
                     } catch (IOException e) {
@@ -588,7 +610,8 @@ public class EventManager {
                 String conn = Configuration.getEventHost() + "/" + Configuration.getEventPort();
                 try {
                     Socket s = createClientSocket();
-                    toSend = new LinkedBlockingQueue<IEvent>();
+                    toSend = new EventSendQueue(Configuration.getEventSendQueueSize(), sendMetrics);
+                    toSend.setDroppable(toEventClasses(Configuration.getEventSendDropOldest()));
                     // store for forwarding, will be removed if forwarding is enabled
                     clients.put(managerId, new ClientConnection(managerId, s)); 
                     WritingWorker worker = new WritingWorker(s);
@@ -599,7 +622,7 @@ public class EventManager {
                     isClient = true;
                 } catch (IOException e) {
                     if (localMode) {
-                        executor = Executors.newCachedThreadPool();
+                        dispatcher = EventDispatcher.create(dispatchMetrics);
                         isRunning = true;
                     } else {
                         LOGGER.error(e.getMessage() + " - Event manager client not started (server " + conn + ").");
@@ -642,7 +665,10 @@ public class EventManager {
      * Clears the handler registrations.
      */
     public void doClearRegistrations() {
-        registrations.clear();
+        synchronized (registrations) {
+            registrations.clear();
+            dispatchCache.clear();
+        }
     }
 
     /**
@@ -651,9 +677,16 @@ public class EventManager {
     public synchronized void doStop() {
         if (isRunning) {
             isRunning = false;
-            if (null != executor) {
-                executor.shutdown();
-                executor = null;
+            if (null != toSend) {
+                toSend.close(); // release blocked senders, writer ends with isRunning
+            }
+            if (null != server) {
+                server.stop();
+                server = null;
+            }
+            if (null != dispatcher) {
+                dispatcher.shutdown();
+                dispatcher = null;
             }
             clients.clear();
             clientHandlers.clear();
@@ -690,104 +723,68 @@ public class EventManager {
     }
     
     /**
-     * Implements a reconnectable server process.
+     * Receives the notifications of the event server.
      * 
      * @author Holger Eichelberger
      */
-    private class ServerRunnable implements Runnable {
+    private class ServerHandler implements EventServer.IServerHandler {
 
         @Override
-        public void run() {
-            while (isRunning) {
-                try {
-                    Socket s = serverSocket.accept();
-                    LOGGER.info("accepted event connection from " + s.getRemoteSocketAddress());
-                    ReadingWorker worker = new ReadingWorker(s, false);
-                    startThread(worker);
-                } catch (SocketTimeoutException e) {
-                    // this is ok due to non-blocking mode
-                } catch (IOException e) {
-                    LOGGER.error(e.getMessage(), e);
-                }
-                try {
-                    Thread.sleep(50);
-                } catch (InterruptedException e) {
-                }
-            }
-            try {
-                serverSocket.close();
-            } catch (IOException e) {
-                LOGGER.error(e.getMessage(), e);
-            }
-            notifyThreadEnd();
+        public void connected(ClientConnection connection) {
+            clients.put(connection.getClientId(), connection);
+        }
+
+        @Override
+        public void received(ClientConnection connection, IEvent event) {
+            doHandleImpl(event);
+        }
+
+        @Override
+        public void disconnected(ClientConnection connection) {
+            clients.remove(connection.getClientId(), connection);
         }
+
     }
     
     /**
-     * Implements the reading thread receiving and dispatching messages.
+     * Implements the client-side reading thread receiving and locally dispatching events forwarded by the server.
      * 
      * @author Holger Eichelberger
      */
     private class ReadingWorker implements Runnable {
 
         private Socket socket;
-        private ObjectInputStream in;
+        private EventFrameReader in;
         private boolean isReading = true;
-        private String clientId;
-        private boolean handleLocal;
         
         /**
          * Creates a reading worker.
          * 
          * @param socket the socket to listen to / read from
-         * @param handleLocal whether the event shall potentially be sent or handled locally (forward reception)
          * @throws IOException if the stream cannot be opened
          */
-        public ReadingWorker(Socket socket, boolean handleLocal) throws IOException {
+        public ReadingWorker(Socket socket) throws IOException {
             this.socket = socket;
-            this.handleLocal = handleLocal;
-            in = new ObjectInputStream(socket.getInputStream());
+            in = new EventFrameReader(new BufferedInputStream(socket.getInputStream()));
         }
         
         @Override
         public void run() {
-            while (!handleLocal && isRunning && null == clientId) {
-                try {
-                    if (in.available() > 0) {
-                        clientId = in.readUTF();
-                        clients.put(clientId, new ClientConnection(clientId, socket));
-                    } // not ready
-                } catch (IOException e) {
-                    // not ready
-                }
-                if (null == clientId) {
-                    sleep(10);
-                }
-            }
+            List<IEvent> events = new ArrayList<IEvent>();
             while (isRunning && isReading) {
-                IEvent event = null;
                 try {
-                    event = (IEvent) in.readObject();
-                } catch (SocketTimeoutException e) {
-                    // this is ok due to non-blocking mode
+                    in.read(events); // blocks until SO_TIMEOUT, no events if not ready
                 } catch (EOFException | SocketException e) {
-                    // client disconnected, connection timeout
+                    // server disconnected, connection timeout
                     isReading = false;
                 } catch (IOException e) {
-                    //LOGGER.error(e.getMessage(), e);
-                    isReading = false;
-                } catch (ClassNotFoundException e) {
                     LOGGER.error(e.getMessage(), e);
                     isReading = false;
                 }
-                if (null != event) {
-                    if (handleLocal) {
-                        doHandleLocal(event);
-                    } else {
-                        doHandleImpl(event);
-                    }
+                for (int e = 0, n = events.size(); e < n; e++) {
+                    doHandleLocal(events.get(e));
                 }
-                sleep(20);
+                events.clear();
             }
             try {
                 in.close();
@@ -800,18 +797,6 @@ public class EventManager {
         
     }
     
-    /**
-     * Sleeps for a given time.
-     * 
-     * @param ms the time to sleep
-     */
-    private static void sleep(int ms) {
-        try {
-            Thread.sleep(ms);
-        } catch (InterruptedException e) {
-        }
-    }
-
     /**
      * Fills a returnable event with return information.
      * 
@@ -823,14 +808,15 @@ public class EventManager {
     }
 
     /**
-     * Implements the writing thread for sending messages.
+     * Implements the writing thread for sending messages. Queued events are sent in batches of up to 
+     * {@link Configuration#getEventSendBatchSize()} events per frame.
      * 
      * @author Holger Eichelberger
      */
     private class WritingWorker implements Runnable {
 
         private Socket socket;
-        private ObjectOutputStream out;
+        private EventFrameWriter out;
         private long lastTimerEvent;
 
         /**
@@ -841,7 +827,7 @@ public class EventManager {
          */
         private WritingWorker(Socket socket) throws IOException {
             this.socket = socket;
-            out = new ObjectOutputStream(socket.getOutputStream());
+            out = new EventFrameWriter(new BufferedOutputStream(socket.getOutputStream()));
         }
         
         /**
@@ -850,23 +836,42 @@ public class EventManager {
          * @throws IOException in case of I/O problems
          */
         public void sendId() throws IOException {
-            out.writeUTF(managerId);
+            out.writeHandshake(managerId);
+            out.flush();
         }
         
         @Override
         public void run() {
             boolean workerRunning = true;
+            int batchSize = Math.max(1, Configuration.getEventSendBatchSize());
+            List<IEvent> batch = new ArrayList<IEvent>(Math.min(batchSize, 1024));
             while (isRunning && workerRunning) {
                 try {
-                    if (!toSend.isEmpty()) { // needed to allow thread to be terminated
-                        IEvent event = toSend.take();
-                        out.writeObject(event);
-                        if (isLoggingEnabled(event)) {
-                            LOGGER.info("sending " + event);
+                    // waiting at most WRITE_WAIT allows the thread to be terminated
+                    int count = toSend.drainTo(batch, batchSize, WRITE_WAIT);
+                    if (count > 0) {
+                        try {
+                            long failures = out.getEncodingFailures();
+                            int bytes = out.write(batch);
+                            out.flush();
+                            int skipped = (int) (out.getEncodingFailures() - failures);
+                            if (skipped > 0) {
+                                sendMetrics.notifyEncodingFailed(skipped);
+                            }
+                            if (bytes > 0) {
+                                sendMetrics.notifySent(count - skipped, bytes);
+                            }
+                            for (int e = 0; e < count; e++) {
+                                IEvent event = batch.get(e);
+                                if (isLoggingEnabled(event)) {
+                                    LOGGER.info("sending " + event);
+                                }
+                            }
+                        } finally {
+                            toSend.completed(count);
+                            batch.clear();
                         }
-                        toSend.poll();
                     }
-                    Thread.sleep(WRITE_WAIT);
                 } catch (SocketException e) {
                     workerRunning = false;
                 } catch (InterruptedException e) {
@@ -904,7 +909,7 @@ public class EventManager {
     public static class EventSender {
 
         private Socket socket;
-        private ObjectOutputStream out;
+        private EventFrameWriter out;
 
         /**
          * Creates an event sender for the event bus.
@@ -919,8 +924,9 @@ public class EventManager {
         private void connect() {
             try {
                 this.socket = createClientSocket();
-                out = new ObjectOutputStream(socket.getOutputStream());
-                out.writeUTF(INSTANCE.managerId);
+                out = new EventFrameWriter(new BufferedOutputStream(socket.getOutputStream()));
+                out.writeHandshake(INSTANCE.managerId);
+                out.flush();
             } catch (IOException e) {
                 close();
             }
@@ -937,7 +943,8 @@ public class EventManager {
             }
             if (null != out) {
                 try {
-                    out.writeObject(event);
+                    out.write(event);
+                    out.flush();
                     if (INSTANCE.isLoggingEnabled(event)) {
                         LOGGER.info("sending " + event);
                     }
@@ -967,6 +974,65 @@ public class EventManager {
         
     }
 
+    /**
+     * Turns comma-separated class names into event classes. Unknown or non-event classes are ignored.
+     * 
+     * @param classNames the class names
+     * @return the event classes
+     */
+    private static List<Class<?>> toEventClasses(String classNames) {
+        List<Class<?>> result = new ArrayList<Class<?>>();
+        for (String name : Configuration.toSet(classNames)) {
+            try {
+                Class<?> cls = Class.forName(name);
+                if (IEvent.class.isAssignableFrom(cls)) {
+                    result.add(cls);
+                } else {
+                    LOGGER.info("event send queue: class " + name + " is not an event class. Ignored.");
+                }
+            } catch (ClassNotFoundException e) {
+                LOGGER.info("event send queue: cannot find class " + name + ". Ignored.");
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the send-side metrics (client side only).
+     * 
+     * @return the send metrics
+     */
+    public static EventSendMetrics getSendMetrics() {
+        return INSTANCE.doGetSendMetrics();
+    }
+
+    /**
+     * Returns the send-side metrics of this event manager (client side only).
+     * 
+     * @return the send metrics
+     */
+    public EventSendMetrics doGetSendMetrics() {
+        return sendMetrics;
+    }
+
+    /**
+     * Returns the dispatch metrics.
+     * 
+     * @return the dispatch metrics
+     */
+    public static EventDispatchMetrics getDispatchMetrics() {
+        return INSTANCE.doGetDispatchMetrics();
+    }
+
+    /**
+     * Returns the dispatch metrics of this event manager.
+     * 
+     * @return the dispatch metrics
+     */
+    public EventDispatchMetrics doGetDispatchMetrics() {
+        return dispatchMetrics;
+    }
+
     /**
      * Disables logging for a list of classes given as comma-separated class names.
      * 
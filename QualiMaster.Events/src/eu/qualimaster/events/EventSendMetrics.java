@@ -0,0 +1,178 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.events;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Send-side metrics of an {@link EventManager} client. All values are cumulative since the creation of the 
+ * event manager.
+ * 
+ * @author Holger Eichelberger
+ */
+public class EventSendMetrics {
+
+    private AtomicLong queued = new AtomicLong();
+    private AtomicLong dropped = new AtomicLong();
+    private AtomicLong blocked = new AtomicLong();
+    private AtomicLong blockedNanos = new AtomicLong();
+    private AtomicLong sentEvents = new AtomicLong();
+    private AtomicLong sentFrames = new AtomicLong();
+    private AtomicLong sentBytes = new AtomicLong();
+    private AtomicLong maxQueueSize = new AtomicLong();
+    private AtomicLong encodingFailures = new AtomicLong();
+
+    /**
+     * Notifies about an event entering the send queue.
+     * 
+     * @param queueSize the queue size after adding the event
+     */
+    void notifyQueued(int queueSize) {
+        queued.incrementAndGet();
+        long max = maxQueueSize.get();
+        while (queueSize > max && !maxQueueSize.compareAndSet(max, queueSize)) {
+            max = maxQueueSize.get();
+        }
+    }
+
+    /**
+     * Notifies about an event dropped due to a full send queue.
+     */
+    void notifyDropped() {
+        dropped.incrementAndGet();
+    }
+
+    /**
+     * Notifies about a producer blocked due to a full send queue.
+     * 
+     * @param nanos the blocking time in nanoseconds
+     */
+    void notifyBlocked(long nanos) {
+        blocked.incrementAndGet();
+        blockedNanos.addAndGet(nanos);
+    }
+
+    /**
+     * Notifies about a sent frame.
+     * 
+     * @param events the number of events in the frame
+     * @param bytes the number of bytes of the frame
+     */
+    void notifySent(int events, int bytes) {
+        sentEvents.addAndGet(events);
+        sentFrames.incrementAndGet();
+        sentBytes.addAndGet(bytes);
+    }
+
+    /**
+     * Notifies about events skipped as they could not be encoded.
+     * 
+     * @param events the number of skipped events
+     */
+    void notifyEncodingFailed(int events) {
+        encodingFailures.addAndGet(events);
+    }
+
+    /**
+     * Returns the number of events accepted by the send queue.
+     * 
+     * @return the number of queued events
+     */
+    public long getQueuedCount() {
+        return queued.get();
+    }
+
+    /**
+     * Returns the number of events dropped due to a full send queue.
+     * 
+     * @return the number of dropped events
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Returns how often a producer was blocked due to a full send queue.
+     * 
+     * @return the number of blocking situations
+     */
+    public long getBlockedCount() {
+        return blocked.get();
+    }
+
+    /**
+     * Returns the accumulated time producers were blocked due to a full send queue.
+     * 
+     * @return the blocking time in milliseconds
+     */
+    public long getBlockedTime() {
+        return blockedNanos.get() / 1000000;
+    }
+
+    /**
+     * Returns the number of events sent.
+     * 
+     * @return the number of sent events
+     */
+    public long getSentCount() {
+        return sentEvents.get();
+    }
+
+    /**
+     * Returns the number of frames (batches) sent.
+     * 
+     * @return the number of sent frames
+     */
+    public long getFrameCount() {
+        return sentFrames.get();
+    }
+
+    /**
+     * Returns the number of bytes sent.
+     * 
+     * @return the number of sent bytes
+     */
+    public long getSentBytes() {
+        return sentBytes.get();
+    }
+
+    /**
+     * Returns the maximum size of the send queue observed so far.
+     * 
+     * @return the maximum queue size
+     */
+    public long getMaxQueueSize() {
+        return maxQueueSize.get();
+    }
+
+    /**
+     * Returns the number of events skipped as they could not be encoded.
+     * 
+     * @return the number of skipped events
+     */
+    public long getEncodingFailureCount() {
+        return encodingFailures.get();
+    }
+
+    @Override
+    public String toString() {
+        return "queued " + getQueuedCount() + " dropped " + getDroppedCount() + " blocked " + getBlockedCount() 
+            + " (" + getBlockedTime() + " ms) sent " + getSentCount() + " events in " + getFrameCount() 
+            + " frames (" + getSentBytes() + " bytes) max queue " + getMaxQueueSize() + " encoding failures " 
+            + getEncodingFailureCount();
+    }
+
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.events;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The bounded send queue of an {@link EventManager} client. If the queue is full, the {@link OverflowPolicy} of 
+ * the event to be queued applies, i.e., {@link OverflowPolicy#DROP_OLDEST droppable} events (typically frequent 
+ * monitoring events) make room by dropping the oldest queued droppable event, while all other (control) events 
+ * block the producer until there is space. Events taken for sending count as pending until they are 
+ * {@link #completed(int) completed}.
+ * 
+ * @author Holger Eichelberger
+ */
+public class EventSendQueue {
+
+    /**
+     * The policy applied to an event to be queued if the queue is full.
+     * 
+     * @author Holger Eichelberger
+     */
+    public enum OverflowPolicy {
+
+        /**
+         * Drops the oldest queued droppable event. If there is none, the event to be queued is dropped.
+         */
+        DROP_OLDEST,
+
+        /**
+         * Blocks the producer until there is space in the queue.
+         */
+        BLOCK
+    }
+
+    private final ArrayDeque<IEvent> queue;
+    private final int capacity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Map<Class<?>, OverflowPolicy> policies = new ConcurrentHashMap<Class<?>, OverflowPolicy>();
+    private final EventSendMetrics metrics;
+    private volatile Class<?>[] droppable = new Class<?>[0];
+    private int pending;
+    private boolean closed;
+
+    /**
+     * Creates a send queue.
+     * 
+     * @param capacity the capacity of the queue
+     * @param metrics the metrics to be updated
+     * @throws IllegalArgumentException if <code>capacity</code> is not positive
+     */
+    public EventSendQueue(int capacity, EventSendMetrics metrics) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.queue = new ArrayDeque<IEvent>(Math.min(capacity, 1024));
+        this.metrics = metrics;
+    }
+
+    /**
+     * Defines the event classes (including subclasses) which may be dropped if the queue is full.
+     * 
+     * @param classes the droppable event classes
+     */
+    public void setDroppable(Collection<Class<?>> classes) {
+        droppable = classes.toArray(new Class<?>[classes.size()]);
+        policies.clear();
+    }
+
+    /**
+     * Returns the overflow policy for the given event.
+     * 
+     * @param event the event
+     * @return the overflow policy
+     */
+    public OverflowPolicy getPolicy(IEvent event) {
+        Class<?> cls = event.getClass();
+        OverflowPolicy result = policies.get(cls);
+        if (null == result) {
+            result = OverflowPolicy.BLOCK;
+            Class<?>[] tmp = droppable;
+            for (int c = 0; OverflowPolicy.BLOCK == result && c < tmp.length; c++) {
+                if (tmp[c].isAssignableFrom(cls)) {
+                    result = OverflowPolicy.DROP_OLDEST;
+                }
+            }
+            policies.put(cls, result);
+        }
+        return result;
+    }
+
+    /**
+     * Adds an event to the queue, applying the {@link #getPolicy(IEvent) overflow policy} if the queue is full.
+     * Events added after {@link #close() closing} are dropped.
+     * 
+     * @param event the event to be added
+     * @throws InterruptedException if interrupted while waiting for space
+     */
+    public void put(IEvent event) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            boolean add = !closed;
+            if (add && queue.size() >= capacity) {
+                if (OverflowPolicy.DROP_OLDEST == getPolicy(event)) {
+                    add = dropOldest();
+                } else {
+                    long start = System.nanoTime();
+                    while (!closed && queue.size() >= capacity) {
+                        notFull.await();
+                    }
+                    metrics.notifyBlocked(System.nanoTime() - start);
+                    add = !closed;
+                }
+            }
+            if (add) {
+                queue.add(event);
+                metrics.notifyQueued(queue.size());
+                notEmpty.signal();
+            } else {
+                metrics.notifyDropped();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops the oldest droppable event.
+     * 
+     * @return <code>true</code> if an event was dropped, <code>false</code> else
+     */
+    private boolean dropOldest() {
+        boolean dropped = false;
+        Iterator<IEvent> iter = queue.iterator();
+        while (!dropped && iter.hasNext()) {
+            if (OverflowPolicy.DROP_OLDEST == getPolicy(iter.next())) {
+                iter.remove();
+                metrics.notifyDropped();
+                dropped = true;
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     * Takes up to <code>maxEvents</code> events from the queue, waiting at most <code>timeout</code> ms for the first
+     * one. The taken events count as pending until {@link #completed(int)} is called.
+     * 
+     * @param events the events taken (modified as a side effect)
+     * @param maxEvents the maximum number of events to take
+     * @param timeout the maximum waiting time in ms
+     * @return the number of events taken
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public int drainTo(List<IEvent> events, int maxEvents, long timeout) throws InterruptedException {
+        int result = 0;
+        lock.lockInterruptibly();
+        try {
+            long nanos = TimeUnit.MILLISECONDS.toNanos(timeout);
+            while (queue.isEmpty() && !closed && nanos > 0) {
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            while (result < maxEvents && !queue.isEmpty()) {
+                events.add(queue.poll());
+                result++;
+            }
+            if (result > 0) {
+                pending += result;
+                notFull.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return result;
+    }
+
+    /**
+     * Notifies that taken events are processed, i.e., either sent or failed.
+     * 
+     * @param count the number of processed events
+     */
+    public void completed(int count) {
+        lock.lock();
+        try {
+            pending = Math.max(0, pending - count);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns whether the queue is empty and no taken events are pending.
+     * 
+     * @return <code>true</code> if empty, <code>false</code> else
+     */
+    public boolean isEmpty() {
+        lock.lock();
+        try {
+            return queue.isEmpty() && 0 == pending;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of queued events.
+     * 
+     * @return the number of queued events
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the capacity of this queue.
+     * 
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Closes this queue, i.e., releases blocked producers and drops queued as well as subsequently added events.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            while (null != queue.poll()) {
+                metrics.notifyDropped();
+            }
+            pending = 0;
+            notFull.signalAll();
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+}
@@ -0,0 +1,610 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.events;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+/**
+ * A non-blocking, selector-based event server. One acceptor thread accepts client connections and distributes 
+ * them round-robin over a fixed number of I/O threads. An I/O thread reads the {@link EventFrameReader frames} 
+ * of its clients and writes the frames forwarded to them. Each client has an outbound queue bounded in bytes. 
+ * Senders exceeding the bound wait for the client (backpressure), and the client is disconnected if it does not 
+ * catch up within {@link EventManager#SO_TIMEOUT}.
+ * 
+ * @author Holger Eichelberger
+ */
+class EventServer {
+
+    private static final Logger LOGGER = LogManager.getLogger(EventServer.class);
+    private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+    private static final int RETAINED_BUFFER_SIZE = 1024 * 1024;
+    private static final int JOIN_TIMEOUT = 2 * EventManager.SO_TIMEOUT;
+
+    private final int port;
+    private final int maxQueued;
+    private final IServerHandler handler;
+    private final IoLoop[] loops;
+    private volatile boolean running;
+    private ServerSocketChannel serverChannel;
+    private Selector acceptSelector;
+    private Thread acceptor;
+    private int nextLoop;
+
+    /**
+     * Receives the notifications of the event server. Methods are called on the I/O threads and shall not block.
+     * 
+     * @author Holger Eichelberger
+     */
+    interface IServerHandler {
+
+        /**
+         * Called when a client completed its handshake.
+         * 
+         * @param connection the client connection
+         */
+        public void connected(ClientConnection connection);
+
+        /**
+         * Called when an event was received from a client.
+         * 
+         * @param connection the client connection
+         * @param event the event
+         */
+        public void received(ClientConnection connection, IEvent event);
+
+        /**
+         * Called when a client (which completed its handshake) disconnected.
+         * 
+         * @param connection the client connection
+         */
+        public void disconnected(ClientConnection connection);
+
+    }
+
+    /**
+     * Creates an event server.
+     * 
+     * @param port the port to listen on
+     * @param ioThreads the number of I/O threads (at least 1)
+     * @param maxQueued the maximum number of bytes queued per client for sending
+     * @param handler the handler to be notified
+     */
+    EventServer(int port, int ioThreads, int maxQueued, IServerHandler handler) {
+        this.port = port;
+        this.maxQueued = maxQueued;
+        this.handler = handler;
+        this.loops = new IoLoop[Math.max(1, ioThreads)];
+    }
+
+    /**
+     * Starts the server.
+     * 
+     * @throws IOException in case that the server cannot be started, e.g., as the port is in use
+     */
+    void start() throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.socket().setReuseAddress(true);
+            serverChannel.socket().bind(new InetSocketAddress(port));
+            serverChannel.configureBlocking(false);
+            acceptSelector = Selector.open();
+            serverChannel.register(acceptSelector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            serverChannel.close();
+            if (null != acceptSelector) {
+                acceptSelector.close();
+            }
+            throw e;
+        }
+        running = true;
+        for (int l = 0; l < loops.length; l++) {
+            loops[l] = new IoLoop(l);
+        }
+        acceptor = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                accept();
+            }
+
+        }, "EventServer-accept");
+        acceptor.start();
+    }
+
+    /**
+     * Stops the server and closes all client connections. Waits for the end of the server threads.
+     */
+    void stop() {
+        if (running) {
+            running = false;
+            acceptSelector.wakeup();
+            join(acceptor);
+            for (int l = 0; l < loops.length; l++) {
+                loops[l].selector.wakeup();
+                join(loops[l].thread);
+            }
+        }
+    }
+
+    /**
+     * Waits for the end of a server thread.
+     * 
+     * @param thread the thread
+     */
+    private static void join(Thread thread) {
+        try {
+            thread.join(JOIN_TIMEOUT);
+        } catch (InterruptedException e) {
+        }
+    }
+
+    /**
+     * Returns whether this server is running.
+     * 
+     * @return <code>true</code> if running, <code>false</code> else
+     */
+    boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Implements the accepting loop.
+     */
+    private void accept() {
+        while (running) {
+            try {
+                acceptSelector.select();
+                acceptSelector.selectedKeys().clear();
+                SocketChannel channel = serverChannel.accept();
+                while (null != channel) {
+                    channel.configureBlocking(false);
+                    channel.socket().setTcpNoDelay(true);
+                    channel.socket().setKeepAlive(true);
+                    LOGGER.info("accepted event connection from " + channel.socket().getRemoteSocketAddress());
+                    loops[nextLoop].add(channel);
+                    nextLoop = (nextLoop + 1) % loops.length;
+                    channel = serverChannel.accept();
+                }
+            } catch (ClosedSelectorException e) {
+                running = false;
+            } catch (IOException e) {
+                LOGGER.error(e.getMessage(), e);
+            }
+        }
+        close(serverChannel);
+        close(acceptSelector);
+    }
+
+    /**
+     * Closes a resource quietly.
+     * 
+     * @param closeable the resource
+     */
+    private static void close(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            LOGGER.error(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Implements an I/O thread serving multiple client channels via a selector. Other threads interact with the 
+     * loop via {@link #execute(Runnable) tasks}.
+     * 
+     * @author Holger Eichelberger
+     */
+    private class IoLoop implements Runnable {
+
+        private final Selector selector;
+        private final Thread thread;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+        private final EventFrameReader decoder = new EventFrameReader();
+        private final List<IEvent> events = new ArrayList<IEvent>();
+
+        /**
+         * Creates and starts an I/O loop.
+         * 
+         * @param index the index of the loop (for the thread name)
+         * @throws IOException if the selector cannot be opened
+         */
+        private IoLoop(int index) throws IOException {
+            selector = Selector.open();
+            thread = new Thread(this, "EventServer-io-" + index);
+            thread.start();
+        }
+
+        /**
+         * Executes a task on the loop thread.
+         * 
+         * @param task the task
+         */
+        private void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        /**
+         * Adds a new client channel to this loop.
+         * 
+         * @param socket the client channel
+         */
+        private void add(final SocketChannel socket) {
+            execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    Channel channel = new Channel(IoLoop.this, socket);
+                    try {
+                        channel.key = socket.register(selector, SelectionKey.OP_READ, channel);
+                    } catch (IOException e) {
+                        LOGGER.error(e.getMessage(), e);
+                        channel.close();
+                    }
+                }
+
+            });
+        }
+
+        @Override
+        public void run() {
+            EventDispatcher.markNonBlocking(); // handlers are called on this thread and shall not block
+            while (running) {
+                try {
+                    selector.select();
+                    Runnable task = tasks.poll();
+                    while (null != task) {
+                        task.run();
+                        task = tasks.poll();
+                    }
+                    Iterator<SelectionKey> iter = selector.selectedKeys().iterator();
+                    while (iter.hasNext()) {
+                        SelectionKey key = iter.next();
+                        iter.remove();
+                        process(key, (Channel) key.attachment());
+                    }
+                } catch (IOException e) {
+                    LOGGER.error(e.getMessage(), e);
+                }
+            }
+            for (SelectionKey key : selector.keys()) {
+                ((Channel) key.attachment()).close();
+            }
+            close(selector);
+        }
+
+        /**
+         * Processes a selected key.
+         * 
+         * @param key the key
+         * @param channel the channel attached to the key
+         */
+        private void process(SelectionKey key, Channel channel) {
+            try {
+                if (key.isValid() && key.isReadable()) {
+                    channel.read();
+                }
+                if (key.isValid() && key.isWritable()) {
+                    channel.write();
+                }
+            } catch (CancelledKeyException e) {
+                channel.close();
+            } catch (IOException e) {
+                // client disconnected or illegal protocol
+                channel.close();
+            }
+        }
+
+    }
+
+    /**
+     * The I/O thread side of a client channel.
+     * 
+     * @author Holger Eichelberger
+     */
+    private class Channel {
+
+        private final IoLoop loop;
+        private final SocketChannel socket;
+        private SelectionKey key;
+        private ByteBuffer in = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+        private Connection connection; // after handshake
+        private boolean closed;
+
+        /**
+         * Creates a channel.
+         * 
+         * @param loop the I/O loop serving this channel
+         * @param socket the socket channel
+         */
+        private Channel(IoLoop loop, SocketChannel socket) {
+            this.loop = loop;
+            this.socket = socket;
+        }
+
+        /**
+         * Reads available data and handles all complete frames.
+         * 
+         * @throws IOException in case of I/O problems, end of stream or illegal frames
+         */
+        private void read() throws IOException {
+            if (socket.read(in) < 0) {
+                close();
+            } else {
+                in.flip();
+                int required = 0;
+                while (0 == required && in.remaining() >= EventFrameWriter.HEADER_SIZE) {
+                    int length = in.getInt(in.position());
+                    if (length <= 0 || length > EventFrameWriter.MAX_FRAME_SIZE) {
+                        throw new IOException("illegal frame length " + length);
+                    }
+                    int frameSize = EventFrameWriter.HEADER_SIZE + length;
+                    if (in.remaining() < frameSize) {
+                        required = frameSize;
+                    } else {
+                        int start = in.position() + EventFrameWriter.HEADER_SIZE;
+                        in.position(start + length);
+                        handleFrame(in.array(), in.arrayOffset() + start, length);
+                    }
+                }
+                in.compact();
+                if (required > in.capacity()) {
+                    ByteBuffer tmp = ByteBuffer.allocate(Math.max(required, 2 * in.capacity()));
+                    in.flip();
+                    tmp.put(in);
+                    in = tmp;
+                } else if (0 == in.position() && in.capacity() > RETAINED_BUFFER_SIZE) {
+                    in = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+                }
+            }
+        }
+
+        /**
+         * Handles a complete frame.
+         * 
+         * @param frame the frame data
+         * @param offset the start of the frame in <code>frame</code>
+         * @param length the length of the frame
+         * @throws IOException in case of illegal frames
+         */
+        private void handleFrame(byte[] frame, int offset, int length) throws IOException {
+            if (null == connection) {
+                String clientId = loop.decoder.decodeHandshake(frame, offset, length);
+                if (null == clientId) {
+                    throw new IOException("expected handshake frame");
+                }
+                connection = new Connection(clientId, this);
+                handler.connected(connection);
+            } else {
+                List<IEvent> events = loop.events;
+                try {
+                    loop.decoder.decode(frame, offset, length, events);
+                    for (int e = 0, n = events.size(); e < n; e++) {
+                        handler.received(connection, events.get(e));
+                    }
+                } finally {
+                    events.clear();
+                }
+            }
+        }
+
+        /**
+         * Writes queued outbound frames as far as the socket accepts them.
+         * 
+         * @throws IOException in case of I/O problems
+         */
+        private void write() throws IOException {
+            boolean blocked = false;
+            ByteBuffer frame = connection.outbound.peek(); // write is requested only by the connection
+            while (!blocked && null != frame) {
+                socket.write(frame);
+                if (frame.hasRemaining()) {
+                    blocked = true;
+                } else {
+                    connection.outbound.poll();
+                    connection.written(frame.capacity());
+                    frame = connection.outbound.peek();
+                }
+            }
+            if (!blocked) {
+                key.interestOps(SelectionKey.OP_READ);
+                connection.writeRequested.set(false);
+                if (!connection.outbound.isEmpty() && connection.writeRequested.compareAndSet(false, true)) {
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE); // raced with a sender
+                }
+            }
+        }
+
+        /**
+         * Enables writing on the loop thread.
+         */
+        private void requestWrite() {
+            loop.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    if (!closed && key.isValid()) {
+                        key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    }
+                }
+
+            });
+        }
+
+        /**
+         * Closes the channel on the loop thread.
+         */
+        private void requestClose() {
+            loop.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    close();
+                }
+
+            });
+        }
+
+        /**
+         * Closes this channel. Must be called on the loop thread.
+         */
+        private void close() {
+            if (!closed) {
+                closed = true;
+                if (null != key) {
+                    key.cancel();
+                }
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    // already closed
+                }
+                if (null != connection) {
+                    connection.markClosed();
+                    handler.disconnected(connection);
+                }
+            }
+        }
+
+    }
+
+    /**
+     * A client connection served by the event server. Events are encoded on the sending thread and queued for the
+     * I/O thread.
+     * 
+     * @author Holger Eichelberger
+     */
+    private class Connection extends ClientConnection {
+
+        private final Channel channel;
+        private final Queue<ByteBuffer> outbound = new ConcurrentLinkedQueue<ByteBuffer>();
+        private final AtomicBoolean writeRequested = new AtomicBoolean();
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final EventFrameWriter writer = new EventFrameWriter(bytes);
+        private int queued;
+        private boolean closed;
+
+        /**
+         * Creates a connection.
+         * 
+         * @param clientId the client id
+         * @param channel the I/O thread side of the connection
+         */
+        private Connection(String clientId, Channel channel) {
+            super(clientId, null);
+            this.channel = channel;
+        }
+
+        @Override
+        EventFrameWriter getWriter() throws IOException {
+            return null; // frames are written by the I/O thread
+        }
+
+        @Override
+        boolean send(IEvent event) throws IOException {
+            ByteBuffer frame = null;
+            synchronized (writer) {
+                if (writer.write(event) > 0) { // else not encodable, skipped
+                    frame = ByteBuffer.wrap(bytes.toByteArray());
+                }
+                bytes.reset();
+            }
+            boolean result = null == frame || enqueue(frame);
+            if (null != frame && result && writeRequested.compareAndSet(false, true)) {
+                channel.requestWrite();
+            }
+            return result;
+        }
+
+        /**
+         * Enqueues a frame, waiting while the outbound queue is full.
+         * 
+         * @param frame the frame
+         * @return <code>true</code> if enqueued, <code>false</code> if the connection is closed
+         */
+        private synchronized boolean enqueue(ByteBuffer frame) {
+            int size = frame.capacity();
+            long deadline = System.currentTimeMillis() + EventManager.SO_TIMEOUT;
+            long wait = EventManager.SO_TIMEOUT;
+            while (!closed && queued > 0 && queued + size > maxQueued && wait > 0) {
+                try {
+                    wait(wait);
+                } catch (InterruptedException e) {
+                }
+                wait = deadline - System.currentTimeMillis();
+            }
+            if (!closed && queued > 0 && queued + size > maxQueued) {
+                LOGGER.warn("client " + getClientId() + " does not read its events. Disconnecting.");
+                close();
+            }
+            if (!closed) {
+                outbound.add(frame);
+                queued += size;
+            }
+            return !closed;
+        }
+
+        /**
+         * Notifies that a frame was written.
+         * 
+         * @param size the size of the frame
+         */
+        private synchronized void written(int size) {
+            queued -= size;
+            notifyAll();
+        }
+
+        /**
+         * Marks this connection as closed and releases waiting senders.
+         */
+        private synchronized void markClosed() {
+            closed = true;
+            outbound.clear();
+            queued = 0;
+            notifyAll();
+        }
+
+        @Override
+        synchronized void close() {
+            if (!closed) {
+                closed = true;
+                notifyAll();
+                channel.requestClose();
+            }
+        }
+
+    }
+
+}
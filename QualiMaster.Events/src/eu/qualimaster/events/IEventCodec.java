@@ -0,0 +1,64 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.events;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Defines a wire codec for events transferred by the {@link EventManager}. Codecs are registered with 
+ * {@link EventCodecs} and identified on the wire by their {@link #getId() id}. Codecs shall be stateless
+ * or thread-safe as they are shared among all connections.
+ * 
+ * @author Holger Eichelberger
+ */
+public interface IEventCodec {
+
+    /**
+     * Returns the unique wire identifier of this codec.
+     * 
+     * @return the identifier (non-negative)
+     */
+    public byte getId();
+
+    /**
+     * Returns whether this codec is able to encode <code>event</code>.
+     * 
+     * @param event the event (not <b>null</b>)
+     * @return <code>true</code> if <code>event</code> can be encoded, <code>false</code> else
+     */
+    public boolean handles(IEvent event);
+
+    /**
+     * Encodes an event.
+     * 
+     * @param event the event to be encoded (handled by this codec)
+     * @param out the output to write to
+     * @throws IOException in case that encoding fails
+     */
+    public void encode(IEvent event, DataOutput out) throws IOException;
+
+    /**
+     * Decodes an event.
+     * 
+     * @param in the input to read from
+     * @return the decoded event
+     * @throws IOException in case that decoding fails
+     */
+    public IEvent decode(DataInput in) throws IOException;
+
+}
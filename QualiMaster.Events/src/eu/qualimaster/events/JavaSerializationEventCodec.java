@@ -0,0 +1,75 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.events;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * The fallback codec relying on Java serialization. Each event is serialized into its own (length-prefixed) 
+ * stream so that no back-reference tables accumulate across events.
+ * 
+ * @author Holger Eichelberger
+ */
+public class JavaSerializationEventCodec implements IEventCodec {
+
+    public static final byte ID = 0;
+    private static final int INITIAL_SIZE = 256;
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public boolean handles(IEvent event) {
+        return true;
+    }
+
+    @Override
+    public void encode(IEvent event, DataOutput out) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(INITIAL_SIZE);
+        ObjectOutputStream oos = new ObjectOutputStream(bytes);
+        oos.writeObject(event);
+        oos.close();
+        out.writeInt(bytes.size());
+        out.write(bytes.toByteArray());
+    }
+
+    @Override
+    public IEvent decode(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("illegal event length " + length);
+        }
+        byte[] data = new byte[length];
+        in.readFully(data);
+        ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(data));
+        try {
+            return (IEvent) ois.readObject();
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException(e.getMessage(), e);
+        } finally {
+            ois.close();
+        }
+    }
+
+}
@@ -44,6 +44,7 @@ public class PipelineOptions implements Serializable {
     public static final String SUFFIX_TASKS = SEPARATOR + "tasks";
     public static final String SUFFIX_ARGUMENT = SEPARATOR + "arg";
     public static final String KEY_ADAPTATION = "qm.adaptation";
+    public static final String KEY_SIGNAL_QUEUE = "qm.signalQueue";
 
     private static final long serialVersionUID = 7622146883311355571L;
     private Map<String, Serializable> options = new HashMap<String, Serializable>();
@@ -101,6 +102,10 @@ public class PipelineOptions implements Serializable {
                     }
                 } else if (arg.equals(KEY_ADAPTATION)) {
                     setAdaptationFilter(parseStringArg(args, a));
+                } else if (arg.equals(KEY_SIGNAL_QUEUE)) {
+                    if (parseBooleanArg(args, a)) {
+                        enableSignalQueue();
+                    }
                 } else {
                     successful = false;
                 }
@@ -257,6 +262,37 @@ public class PipelineOptions implements Serializable {
         return getBooleanValue(KEY_PROFILINGMODE, false);
     }
     
+    /**
+     * Enables the queued signal channel, i.e., signals to the pipeline are sent in batches via sequential zookeeper 
+     * nodes instead of overwriting the data of the executor node. Without this option, the plain curator signal path 
+     * is used.
+     */
+    public void enableSignalQueue() {
+        options.put(KEY_SIGNAL_QUEUE, Boolean.TRUE);
+    }
+
+    /**
+     * Returns whether the queued signal channel shall be used for the pipeline characterized by this option object.
+     * 
+     * @return <code>true</code> for the queued signal channel, <code>false</code> for the plain curator signal path
+     *     (default)
+     */
+    public boolean useSignalQueue() {
+        return getBooleanValue(KEY_SIGNAL_QUEUE, false);
+    }
+
+    /**
+     * Returns whether the queued signal channel shall be used according to a pipeline configuration created by
+     * {@link #toConf(Map)}.
+     * 
+     * @param conf the pipeline configuration
+     * @return <code>true</code> for the queued signal channel, <code>false</code> for the plain curator signal path
+     */
+    public static boolean useSignalQueue(@SuppressWarnings("rawtypes") Map conf) {
+        Object tmp = null == conf ? null : conf.get(KEY_SIGNAL_QUEUE);
+        return null != tmp && Boolean.valueOf(tmp.toString());
+    }
+
     /**
      * Defines the number of workers.
      * 
@@ -567,7 +603,7 @@ public class PipelineOptions implements Serializable {
      * @return <code>true</code> for pipeline conf, <code>false</code> for arguments
      */
     public static final boolean isConfKey(String key) {
-        return key.startsWith(PREFIX_EXECUTOR);
+        return key.startsWith(PREFIX_EXECUTOR) || KEY_SIGNAL_QUEUE.equals(key);
     }
 
     /**
@@ -20,9 +20,13 @@ import java.io.FileInputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 
 import eu.qualimaster.common.QMGenerics;
 import eu.qualimaster.common.QMInternal;
@@ -31,7 +35,12 @@ import eu.qualimaster.observables.IObservable;
 import eu.qualimaster.observables.ResourceUsage;
 
 /**
- * Represents a frozen system state for monitoring.
+ * Represents a frozen system state for monitoring. Frozen states created by the monitoring layer carry a version and 
+ * may share their values with other states until they are modified (copy-on-write). Versions are only comparable
+ * within the same epoch, i.e., the same freezing instance, as versions start again when the monitoring layer or the 
+ * system state is recreated. A delta state contains only the values changed with respect to a base epoch and version 
+ * (<b>null</b> for removed values) and can be {@link #applyDelta(FrozenSystemState) applied} to a state of that epoch
+ * and version.
  * 
  * @author Holger Eichelberger
  */
@@ -55,6 +64,12 @@ public class FrozenSystemState implements Serializable {
     private static final long serialVersionUID = 4880902220348531183L;
 
     private Map<String, Double> values;
+    private long epoch;
+    private long version;
+    private long baseEpoch;
+    private long baseVersion = -1;
+    private transient boolean shared;
+    private transient Set<String> modified;
 
     /**
      * Creates a frozen systems state instance.
@@ -63,6 +78,56 @@ public class FrozenSystemState implements Serializable {
         values = new HashMap<String, Double>();
     }
 
+    /**
+     * Creates a frozen system state instance of a given version.
+     * 
+     * @param values the values
+     * @param epoch the epoch
+     * @param version the version
+     * @param baseEpoch the base epoch if this is a delta state, ignored else
+     * @param baseVersion the base version if this is a delta state, <code>-1</code> else
+     * @param shared whether <code>values</code> is shared and must be copied before modification
+     */
+    private FrozenSystemState(Map<String, Double> values, long epoch, long version, long baseEpoch, 
+        long baseVersion, boolean shared) {
+        this.values = values;
+        this.epoch = epoch;
+        this.version = version;
+        this.baseEpoch = baseEpoch;
+        this.baseVersion = baseVersion;
+        this.shared = shared;
+    }
+
+    /**
+     * Creates a versioned frozen system state sharing <code>values</code>, i.e., <code>values</code> must not be 
+     * modified afterwards but the created state may be modified.
+     * 
+     * @param values the values
+     * @param epoch the epoch of the state, i.e., an identifier of the freezing instance
+     * @param version the version of the state
+     * @return the frozen system state
+     */
+    @QMInternal
+    public static FrozenSystemState createSnapshot(Map<String, Double> values, long epoch, long version) {
+        return new FrozenSystemState(values, epoch, version, 0, -1, true);
+    }
+
+    /**
+     * Creates a delta state.
+     * 
+     * @param changes the changed values, <b>null</b> values denote removed values (not shared)
+     * @param baseEpoch the epoch of the state the delta is based on
+     * @param baseVersion the version the delta is based on
+     * @param epoch the epoch of the state after applying the delta
+     * @param version the version of the state after applying the delta
+     * @return the delta state
+     */
+    @QMInternal
+    public static FrozenSystemState createDelta(Map<String, Double> changes, long baseEpoch, long baseVersion, 
+        long epoch, long version) {
+        return new FrozenSystemState(changes, epoch, version, baseEpoch, baseVersion, false);
+    }
+
     /**
      * Creates a frozen systems state instance from a map of values. This allows rt-VIL
      * to use this class as a wrapper.
@@ -98,6 +163,164 @@ public class FrozenSystemState implements Serializable {
         }
     }
 
+    /**
+     * Returns the epoch of this state, i.e., an identifier of the freezing instance the {@link #getVersion() version}
+     * refers to.
+     * 
+     * @return the epoch, <code>0</code> for unversioned states
+     */
+    @QMInternal
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Returns the version of this state.
+     * 
+     * @return the version, <code>0</code> for unversioned states
+     */
+    @QMInternal
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns whether this state is a delta state.
+     * 
+     * @return <code>true</code> for a delta, <code>false</code> for a full state
+     */
+    @QMInternal
+    public boolean isDelta() {
+        return baseVersion >= 0;
+    }
+
+    /**
+     * Returns the base version of a delta state.
+     * 
+     * @return the base version, <code>-1</code> if this is not a delta state
+     */
+    @QMInternal
+    public long getBaseVersion() {
+        return baseVersion;
+    }
+
+    /**
+     * Returns the base epoch of a delta state.
+     * 
+     * @return the base epoch, undefined if this is not a delta state
+     */
+    @QMInternal
+    public long getBaseEpoch() {
+        return baseEpoch;
+    }
+
+    /**
+     * Returns whether <code>delta</code> can be {@link #applyDelta(FrozenSystemState) applied} to this state, i.e., 
+     * whether this state is a full state of the base epoch and the base version of <code>delta</code>.
+     * 
+     * @param delta the delta state
+     * @return <code>true</code> if <code>delta</code> is based on this state, <code>false</code> else
+     */
+    @QMInternal
+    public boolean isBaseOf(FrozenSystemState delta) {
+        return !isDelta() && delta.isDelta() && delta.getBaseEpoch() == epoch && delta.getBaseVersion() == version;
+    }
+
+    /**
+     * Returns a state sharing the values and the {@link #getModifiedKeys() modified keys} of this state until either 
+     * state is modified.
+     * 
+     * @return the shared state
+     */
+    @QMInternal
+    public FrozenSystemState snapshot() {
+        shared = true;
+        FrozenSystemState result = new FrozenSystemState(values, epoch, version, baseEpoch, baseVersion, true);
+        if (null != modified) {
+            result.modified = new HashSet<String>(modified);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the keys modified in this state since its creation, e.g., by reasoning.
+     * 
+     * @return the modified keys (may be empty)
+     */
+    @QMInternal
+    public Set<String> getModifiedKeys() {
+        Set<String> result;
+        if (null == modified) {
+            result = Collections.emptySet();
+        } else {
+            result = Collections.unmodifiableSet(modified);
+        }
+        return result;
+    }
+
+    /**
+     * Creates a delta from <code>base</code> to this state.
+     * 
+     * @param base the base state (must be a full state)
+     * @param changed the keys that may have changed from <code>base</code> to this state apart from the 
+     *     {@link #getModifiedKeys() modified keys} of both states, <b>null</b> if unknown (compares all values), 
+     *     ignored if both states are not of the same {@link #getEpoch() epoch}
+     * @return the delta state
+     * @throws IllegalArgumentException if <code>base</code> or this state is a delta state
+     */
+    @QMInternal
+    public FrozenSystemState createDelta(FrozenSystemState base, Collection<String> changed) {
+        if (base.isDelta() || isDelta()) {
+            throw new IllegalArgumentException("delta states cannot be compared");
+        }
+        Map<String, Double> changes = new HashMap<String, Double>();
+        if (base.values != values) {
+            Set<String> keys;
+            if (null == changed || base.getEpoch() != epoch) {
+                keys = new HashSet<String>(values.keySet());
+                keys.addAll(base.values.keySet());
+            } else {
+                keys = new HashSet<String>(changed);
+            }
+            keys.addAll(getModifiedKeys());
+            keys.addAll(base.getModifiedKeys());
+            for (String key : keys) {
+                Double value = values.get(key);
+                Double baseValue = base.values.get(key);
+                if (null == value ? null != baseValue : !value.equals(baseValue)) {
+                    changes.put(key, value);
+                }
+            }
+        }
+        return createDelta(changes, base.getEpoch(), base.getVersion(), epoch, version);
+    }
+
+    /**
+     * Applies a delta state to this state.
+     * 
+     * @param delta the delta state
+     * @return the resulting full state, this state remains unchanged
+     * @throws IllegalArgumentException if <code>delta</code> is not a delta state or not based on the epoch and the 
+     *     version of this state
+     * @see #isBaseOf(FrozenSystemState)
+     */
+    @QMInternal
+    public FrozenSystemState applyDelta(FrozenSystemState delta) {
+        if (!isBaseOf(delta)) {
+            throw new IllegalArgumentException("delta " + delta.getBaseEpoch() + "/" + delta.getBaseVersion() + "->" 
+                + delta.getEpoch() + "/" + delta.getVersion() + " does not apply to version " + epoch + "/" + version);
+        }
+        Map<String, Double> result = new HashMap<String, Double>(values);
+        for (Map.Entry<String, Double> entry : delta.values.entrySet()) {
+            if (null == entry.getValue()) {
+                result.remove(entry.getKey());
+            } else {
+                result.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return new FrozenSystemState(result, delta.getEpoch(), delta.getVersion(), 0, -1, false);
+    }
+
     /**
      * Returns the access key.
      * 
@@ -132,7 +355,28 @@ public class FrozenSystemState implements Serializable {
      */
     @QMInternal
     public void setObservation(String prefix, String name, IObservable observable, Double value) {
-        values.put(obtainKey(prefix, name, observable), value);
+        setObservation(obtainKey(prefix, name, observable), value);
+    }
+
+    /**
+     * Defines the value for an observation.
+     * 
+     * @param key the access key (see {@link #obtainKey(String, String, IObservable)})
+     * @param value the actual value (may be <b>null</b>)
+     */
+    @QMInternal
+    public void setObservation(String key, Double value) {
+        if (shared) {
+            values = new HashMap<String, Double>(values);
+            shared = false;
+        }
+        if (version > 0) {
+            if (null == modified) {
+                modified = new HashSet<String>();
+            }
+            modified.add(key);
+        }
+        values.put(key, value);
     }
     
     /**
@@ -146,7 +390,7 @@ public class FrozenSystemState implements Serializable {
      */
     @QMInternal
     public void setObservation(String prefix, String pipeline, String element, IObservable observable, Double value) {
-        values.put(obtainKey(prefix, obtainPipelineElementSubkey(pipeline, element), observable), value);
+        setObservation(obtainKey(prefix, obtainPipelineElementSubkey(pipeline, element), observable), value);
     }
     
     // >> preliminary
@@ -405,14 +649,29 @@ public class FrozenSystemState implements Serializable {
     }
 
     /**
-     * Returns the mapping.
+     * Returns the mapping. Modifications of the mapping are not tracked for deltas.
      * 
      * @return the mapping
      */
     @QMInternal
     public Map<String, Double> getMapping() {
+        if (shared) {
+            values = new HashMap<String, Double>(values);
+            shared = false;
+        }
         return values;
     }
+
+    /**
+     * Returns a read-only view on the mapping, which, in contrast to {@link #getMapping()}, does not copy 
+     * shared values.
+     * 
+     * @return the mapping
+     */
+    @QMInternal
+    public Map<String, Double> getMappingView() {
+        return Collections.unmodifiableMap(values);
+    }
     
     /**
      * Converts the frozen system state into properties.
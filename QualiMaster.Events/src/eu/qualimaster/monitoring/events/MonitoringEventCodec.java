@@ -0,0 +1,386 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.monitoring.events;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import eu.qualimaster.events.IEvent;
+import eu.qualimaster.events.IEventCodec;
+import eu.qualimaster.observables.AnalysisObservables;
+import eu.qualimaster.observables.CloudResourceUsage;
+import eu.qualimaster.observables.FunctionalSuitability;
+import eu.qualimaster.observables.IObservable;
+import eu.qualimaster.observables.ResourceUsage;
+import eu.qualimaster.observables.Scalability;
+import eu.qualimaster.observables.TimeBehavior;
+
+/**
+ * A compact binary codec for the frequent observation monitoring events. Observables are encoded by a stable id of
+ * their enum type and their constant name, i.e., adding or reordering constants does not change the encoding and
+ * peers running different builds decode the same observable or fail on unknown ones. Component keys are encoded by
+ * their fields. Events referring to unknown observables or other key types are left to the fallback codec.
+ * 
+ * @author Holger Eichelberger
+ */
+public class MonitoringEventCodec implements IEventCodec {
+
+    public static final byte ID = 1;
+    private static final byte PIPELINE_ELEMENT_MULTI = 0;
+    private static final byte PIPELINE_ELEMENT = 1;
+    private static final byte PIPELINE = 2;
+    private static final byte PLATFORM_HOST_MULTI = 3;
+    private static final byte NO_OBSERVABLE = -1;
+    private static final Map<IObservable, Byte> TYPE_IDS = new IdentityHashMap<IObservable, Byte>();
+    private static final Map<Byte, Map<String, IObservable>> TYPES = new HashMap<Byte, Map<String, IObservable>>();
+
+    static {
+        // the ids are part of the wire format, do not change them, use new ids for new observable types
+        registerType((byte) 0, TimeBehavior.class);
+        registerType((byte) 1, FunctionalSuitability.class);
+        registerType((byte) 2, ResourceUsage.class);
+        registerType((byte) 3, Scalability.class);
+        registerType((byte) 4, AnalysisObservables.class);
+        registerType((byte) 5, CloudResourceUsage.class);
+    }
+
+    /**
+     * Registers an observable type.
+     * 
+     * @param <T> the observable type
+     * @param id the stable wire id of the type
+     * @param type the observable type
+     */
+    private static <T extends Enum<T> & IObservable> void registerType(byte id, Class<T> type) {
+        Map<String, IObservable> constants = new HashMap<String, IObservable>();
+        for (T observable : type.getEnumConstants()) {
+            TYPE_IDS.put(observable, id);
+            constants.put(observable.name(), observable);
+        }
+        TYPES.put(id, constants);
+    }
+
+    /**
+     * Returns the wire id of the type of an observable [public for testing].
+     * 
+     * @param observable the observable
+     * @return the id, <b>null</b> if the observable cannot be encoded
+     */
+    public static Byte getTypeId(IObservable observable) {
+        return TYPE_IDS.get(observable);
+    }
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public boolean handles(IEvent event) {
+        boolean result;
+        if (event instanceof PipelineElementMultiObservationMonitoringEvent) {
+            PipelineElementMultiObservationMonitoringEvent evt = (PipelineElementMultiObservationMonitoringEvent) event;
+            result = isKnown(evt.getKey()) && isKnown(evt.getObservations());
+        } else if (event instanceof PipelineElementObservationMonitoringEvent) {
+            PipelineElementObservationMonitoringEvent evt = (PipelineElementObservationMonitoringEvent) event;
+            result = isKnown(evt.getKey()) && isKnown(evt.getObservable());
+        } else if (event instanceof PipelineObservationMonitoringEvent) {
+            PipelineObservationMonitoringEvent evt = (PipelineObservationMonitoringEvent) event;
+            result = isKnown(evt.getKey()) && isKnown(evt.getObservable());
+        } else if (event instanceof PlatformMultiObservationHostMonitoringEvent) {
+            result = isKnown(((PlatformMultiObservationHostMonitoringEvent) event).getObservations());
+        } else {
+            result = false;
+        }
+        return result && isExact(event);
+    }
+
+    /**
+     * Returns whether <code>event</code> is exactly of one of the handled types, i.e., not of a subclass which may
+     * carry additional state.
+     * 
+     * @param event the event
+     * @return <code>true</code> for one of the handled types, <code>false</code> else
+     */
+    private static boolean isExact(IEvent event) {
+        Class<?> cls = event.getClass();
+        return PipelineElementMultiObservationMonitoringEvent.class == cls 
+            || PipelineElementObservationMonitoringEvent.class == cls
+            || PipelineObservationMonitoringEvent.class == cls 
+            || PlatformMultiObservationHostMonitoringEvent.class == cls;
+    }
+
+    /**
+     * Returns whether <code>key</code> can be encoded.
+     * 
+     * @param key the key
+     * @return <code>true</code> if <code>key</code> is <b>null</b> or a component key, <code>false</code> else
+     */
+    private static boolean isKnown(Serializable key) {
+        return null == key || key instanceof ComponentKey;
+    }
+
+    /**
+     * Returns whether <code>observable</code> can be encoded.
+     * 
+     * @param observable the observable
+     * @return <code>true</code> if <code>observable</code> is known, <code>false</code> else
+     */
+    private static boolean isKnown(IObservable observable) {
+        return null == observable || TYPE_IDS.containsKey(observable);
+    }
+
+    /**
+     * Returns whether <code>observations</code> can be encoded.
+     * 
+     * @param observations the observations
+     * @return <code>true</code> if all observables are known, <code>false</code> else
+     */
+    private static boolean isKnown(Map<IObservable, Double> observations) {
+        boolean result = true;
+        if (null != observations) {
+            for (IObservable observable : observations.keySet()) {
+                result &= null != observable && TYPE_IDS.containsKey(observable);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void encode(IEvent event, DataOutput out) throws IOException {
+        if (event instanceof PipelineElementMultiObservationMonitoringEvent) {
+            PipelineElementMultiObservationMonitoringEvent evt = (PipelineElementMultiObservationMonitoringEvent) event;
+            out.writeByte(PIPELINE_ELEMENT_MULTI);
+            writeString(evt.getPipeline(), out);
+            writeString(evt.getPipelineElement(), out);
+            writeKey(evt.getKey(), out);
+            writeObservations(evt.getObservations(), out);
+        } else if (event instanceof PipelineElementObservationMonitoringEvent) {
+            PipelineElementObservationMonitoringEvent evt = (PipelineElementObservationMonitoringEvent) event;
+            out.writeByte(PIPELINE_ELEMENT);
+            writeString(evt.getPipeline(), out);
+            writeString(evt.getPipelineElement(), out);
+            writeKey(evt.getKey(), out);
+            writeObservable(evt.getObservable(), out);
+            writeValue(evt.getObservation(), out);
+        } else if (event instanceof PipelineObservationMonitoringEvent) {
+            PipelineObservationMonitoringEvent evt = (PipelineObservationMonitoringEvent) event;
+            out.writeByte(PIPELINE);
+            writeString(evt.getPipeline(), out);
+            writeKey(evt.getKey(), out);
+            writeObservable(evt.getObservable(), out);
+            writeValue(evt.getObservation(), out);
+        } else {
+            PlatformMultiObservationHostMonitoringEvent evt = (PlatformMultiObservationHostMonitoringEvent) event;
+            out.writeByte(PLATFORM_HOST_MULTI);
+            writeString(evt.getHost(), out);
+            writeObservations(evt.getObservations(), out);
+        }
+    }
+
+    @Override
+    public IEvent decode(DataInput in) throws IOException {
+        IEvent result;
+        byte type = in.readByte();
+        switch (type) {
+        case PIPELINE_ELEMENT_MULTI:
+            result = new PipelineElementMultiObservationMonitoringEvent(readString(in), readString(in), readKey(in), 
+                readObservations(in));
+            break;
+        case PIPELINE_ELEMENT:
+            result = new PipelineElementObservationMonitoringEvent(readString(in), readString(in), readKey(in), 
+                readObservable(in), readValue(in));
+            break;
+        case PIPELINE:
+            result = new PipelineObservationMonitoringEvent(readString(in), readKey(in), readObservable(in), 
+                readValue(in));
+            break;
+        case PLATFORM_HOST_MULTI:
+            result = new PlatformMultiObservationHostMonitoringEvent(readString(in), readObservations(in));
+            break;
+        default:
+            throw new IOException("unknown monitoring event type " + type);
+        }
+        return result;
+    }
+
+    /**
+     * Writes a string which may be <b>null</b>.
+     * 
+     * @param string the string
+     * @param out the output to write to
+     * @throws IOException in case of I/O problems
+     */
+    private static void writeString(String string, DataOutput out) throws IOException {
+        out.writeBoolean(null != string);
+        if (null != string) {
+            out.writeUTF(string);
+        }
+    }
+
+    /**
+     * Reads a string written by {@link #writeString(String, DataOutput)}.
+     * 
+     * @param in the input to read from
+     * @return the string (may be <b>null</b>)
+     * @throws IOException in case of I/O problems
+     */
+    private static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * Writes a component key which may be <b>null</b>.
+     * 
+     * @param key the key (a component key or <b>null</b>)
+     * @param out the output to write to
+     * @throws IOException in case of I/O problems
+     */
+    private static void writeKey(Serializable key, DataOutput out) throws IOException {
+        out.writeBoolean(null != key);
+        if (null != key) {
+            ComponentKey cKey = (ComponentKey) key;
+            writeString(cKey.getHostName(), out);
+            out.writeInt(cKey.getPort());
+            out.writeInt(cKey.getTaskId());
+            out.writeLong(cKey.getThreadId());
+        }
+    }
+
+    /**
+     * Reads a component key written by {@link #writeKey(Serializable, DataOutput)}.
+     * 
+     * @param in the input to read from
+     * @return the key (may be <b>null</b>)
+     * @throws IOException in case of I/O problems
+     */
+    private static ComponentKey readKey(DataInput in) throws IOException {
+        ComponentKey result = null;
+        if (in.readBoolean()) {
+            result = new ComponentKey(readString(in), in.readInt(), in.readInt());
+            result.setThreadId(in.readLong());
+        }
+        return result;
+    }
+
+    /**
+     * Writes an observable which may be <b>null</b>.
+     * 
+     * @param observable the observable (known or <b>null</b>)
+     * @param out the output to write to
+     * @throws IOException in case of I/O problems
+     */
+    private static void writeObservable(IObservable observable, DataOutput out) throws IOException {
+        if (null == observable) {
+            out.writeByte(NO_OBSERVABLE);
+        } else {
+            out.writeByte(TYPE_IDS.get(observable));
+            out.writeUTF(observable.name());
+        }
+    }
+
+    /**
+     * Reads an observable written by {@link #writeObservable(IObservable, DataOutput)}.
+     * 
+     * @param in the input to read from
+     * @return the observable (may be <b>null</b>)
+     * @throws IOException in case of I/O problems or an unknown observable
+     */
+    private static IObservable readObservable(DataInput in) throws IOException {
+        IObservable result = null;
+        byte id = in.readByte();
+        if (NO_OBSERVABLE != id) {
+            Map<String, IObservable> constants = TYPES.get(id);
+            String name = in.readUTF();
+            if (null != constants) {
+                result = constants.get(name);
+            }
+            if (null == result) {
+                throw new IOException("unknown observable " + name + " of type " + id);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Writes an observed value which may be <b>null</b>.
+     * 
+     * @param value the value
+     * @param out the output to write to
+     * @throws IOException in case of I/O problems
+     */
+    private static void writeValue(Double value, DataOutput out) throws IOException {
+        out.writeBoolean(null != value);
+        if (null != value) {
+            out.writeDouble(value);
+        }
+    }
+
+    /**
+     * Reads an observed value written by {@link #writeValue(Double, DataOutput)}.
+     * 
+     * @param in the input to read from
+     * @return the value (may be <b>null</b>)
+     * @throws IOException in case of I/O problems
+     */
+    private static Double readValue(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readDouble() : null;
+    }
+
+    /**
+     * Writes observations which may be <b>null</b>.
+     * 
+     * @param observations the observations (with known observables)
+     * @param out the output to write to
+     * @throws IOException in case of I/O problems
+     */
+    private static void writeObservations(Map<IObservable, Double> observations, DataOutput out) 
+        throws IOException {
+        out.writeInt(null == observations ? -1 : observations.size());
+        if (null != observations) {
+            for (Map.Entry<IObservable, Double> entry : observations.entrySet()) {
+                writeObservable(entry.getKey(), out);
+                writeValue(entry.getValue(), out);
+            }
+        }
+    }
+
+    /**
+     * Reads observations written by {@link #writeObservations(Map, DataOutput)}.
+     * 
+     * @param in the input to read from
+     * @return the observations (may be <b>null</b>)
+     * @throws IOException in case of I/O problems
+     */
+    private static Map<IObservable, Double> readObservations(DataInput in) throws IOException {
+        Map<IObservable, Double> result = null;
+        int size = in.readInt();
+        if (size >= 0) {
+            result = new HashMap<IObservable, Double>();
+            for (int o = 0; o < size; o++) {
+                IObservable observable = readObservable(in);
+                result.put(observable, readValue(in));
+            }
+        }
+        return result;
+    }
+
+}
@@ -74,7 +74,38 @@ public enum ResourceUsage implements IObservable {
     /**
      * Denotes the state whether a machine is available at all (0;1).
      */
-    AVAILABLE;
+    AVAILABLE,
+
+    /**
+     * Denotes the number of adaptation events waiting for processing (&gt;=0).
+     */
+    ADAPTATION_QUEUE_DEPTH,
+
+    /**
+     * Denotes the ratio of adaptation events superseded by later events before processing [0;1].
+     */
+    ADAPTATION_COALESCING_RATIO,
+
+    /**
+     * Denotes the number of reasoning runs skipped as the system state did not change materially (&gt;=0).
+     */
+    REASONING_SKIPPED,
+
+    /**
+     * Denotes the number of performed reasoning runs, i.e., runs not skipped (&gt;=0).
+     */
+    REASONING_PERFORMED,
+
+    /**
+     * Denotes the number of volume observations waiting to be written to the volume history (&gt;=0).
+     */
+    VOLUME_HISTORY_QUEUE_DEPTH,
+
+    /**
+     * Denotes the number of volume observations dropped as writing them to the volume history failed repeatedly 
+     * (&gt;=0).
+     */
+    VOLUME_HISTORY_DROPPED;
     
     @QMInternal
     @Override
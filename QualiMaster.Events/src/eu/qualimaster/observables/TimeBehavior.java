@@ -12,7 +12,89 @@ public enum TimeBehavior implements IObservable {
     LATENCY,
     THROUGHPUT_ITEMS,
     THROUGHPUT_VOLUME,
-    ENACTMENT_DELAY;
+    ENACTMENT_DELAY,
+    
+    /**
+     * The median (50th percentile) of the latency within the last monitoring interval.
+     */
+    LATENCY_P50,
+    
+    /**
+     * The 95th percentile of the latency within the last monitoring interval.
+     */
+    LATENCY_P95,
+    
+    /**
+     * The 99th percentile of the latency within the last monitoring interval.
+     */
+    LATENCY_P99,
+    
+    /**
+     * The maximum latency within the last monitoring interval.
+     */
+    LATENCY_MAX,
+    
+    /**
+     * The time needed by the last pipeline monitoring poll to fetch the data from the execution system (in ms).
+     */
+    MONITORING_FETCH_TIME,
+    
+    /**
+     * The time needed by the last pipeline monitoring poll to aggregate the fetched data (in ms).
+     */
+    MONITORING_AGGREGATION_TIME,
+
+    /**
+     * The total time needed by the last pipeline monitoring poll (in ms).
+     */
+    MONITORING_POLL_TIME,
+
+    /**
+     * The time needed by the coordination layer to enact the commands of the last command set on a pipeline 
+     * element (in ms).
+     */
+    ENACTMENT_COORDINATION_TIME,
+
+    /**
+     * The total time needed by the coordination layer to enact the last command set affecting a pipeline (in ms).
+     */
+    ENACTMENT_COORDINATION_TOTAL_TIME,
+
+    /**
+     * The time from enqueuing the processed adaptation event until its adaptation finished (in ms). A superseding
+     * event takes over the queue position of the superseded one, but the time is measured from enqueuing the
+     * superseding event.
+     */
+    ADAPTATION_LATENCY,
+
+    /**
+     * The median (50th percentile) of the end-to-end latency of the signals received via the queued signal channel
+     * within the last monitoring interval (in ms).
+     */
+    SIGNAL_LATENCY_P50,
+
+    /**
+     * The 95th percentile of the end-to-end latency of the signals received via the queued signal channel within the
+     * last monitoring interval (in ms).
+     */
+    SIGNAL_LATENCY_P95,
+
+    /**
+     * The 99th percentile of the end-to-end latency of the signals received via the queued signal channel within the
+     * last monitoring interval (in ms).
+     */
+    SIGNAL_LATENCY_P99,
+
+    /**
+     * The maximum end-to-end latency of the signals received via the queued signal channel within the last 
+     * monitoring interval (in ms).
+     */
+    SIGNAL_LATENCY_MAX,
+
+    /**
+     * The time needed to write the buffered volume observations to the volume history (in ms).
+     */
+    VOLUME_HISTORY_FLUSH_TIME;
 
     @QMInternal
     @Override
@@ -4,7 +4,10 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
 import tests.eu.qualimaster.events.ComponentKeyTests;
+import tests.eu.qualimaster.events.EventDispatchTests;
 import tests.eu.qualimaster.events.EventHandlerTests;
+import tests.eu.qualimaster.events.EventServerTests;
+import tests.eu.qualimaster.events.EventTransportTests;
 import tests.eu.qualimaster.events.EventsTests;
 import tests.eu.qualimaster.events.ForwardTests;
 import tests.eu.qualimaster.events.PipelineStatusTrackerTest;
@@ -18,7 +21,8 @@ import tests.eu.qualimaster.events.RemoteHandlerTests;
 @RunWith(Suite.class)
 @Suite.SuiteClasses({ConfigurationTests.class, EventHandlerTests.class, EventsTests.class, RemoteHandlerTests.class, 
     PipelineStatusTrackerTest.class, ForwardTests.class, PipelineOptionsTest.class, FrozenSystemStateTest.class, 
-    ComponentKeyTests.class, AlgorithmChangeParameterTest.class, ResponseStoreTest.class, AdditionalTests.class })
+    ComponentKeyTests.class, AlgorithmChangeParameterTest.class, ResponseStoreTest.class, AdditionalTests.class, 
+    EventTransportTests.class, EventServerTests.class, EventDispatchTests.class })
 public class AllTests {
 
 }
@@ -15,8 +15,12 @@
  */
 package tests.eu.qualimaster;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -107,6 +111,75 @@ public class FrozenSystemStateTest {
         }
         state.toString(); // nothing to test
     }
+
+    /**
+     * Tests shared snapshots and deltas.
+     */
+    @Test
+    public void testDelta() {
+        String latency = FrozenSystemState.obtainKey(FrozenSystemState.PIPELINE, "pip", TimeBehavior.LATENCY);
+        String items = FrozenSystemState.obtainKey(FrozenSystemState.PIPELINE, "pip", TimeBehavior.THROUGHPUT_ITEMS);
+        String volume = FrozenSystemState.obtainKey(FrozenSystemState.PIPELINE, "pip", Scalability.VOLUME);
+        Map<String, Double> values = new HashMap<String, Double>();
+        values.put(latency, 10.0);
+        values.put(items, 100.0);
+        FrozenSystemState base = FrozenSystemState.createSnapshot(values, 42, 1);
+        Assert.assertEquals(42, base.getEpoch());
+        Assert.assertEquals(1, base.getVersion());
+        Assert.assertFalse(base.isDelta());
+        Assert.assertTrue(base.getModifiedKeys().isEmpty());
+
+        FrozenSystemState copy = base.snapshot();
+        copy.setObservation(FrozenSystemState.PIPELINE, "pip", TimeBehavior.LATENCY, 20.0); // copy on write
+        assertEquals(10.0, base.getPipelineObservation("pip", TimeBehavior.LATENCY));
+        assertEquals(10.0, values.get(latency));
+        assertEquals(20.0, copy.getPipelineObservation("pip", TimeBehavior.LATENCY));
+        Assert.assertEquals(Collections.singleton(latency), copy.getModifiedKeys());
+        Assert.assertTrue(base.createDelta(base, null).getMapping().isEmpty());
+
+        Map<String, Double> next = new HashMap<String, Double>(values);
+        next.remove(items);
+        next.put(volume, 5.0);
+        FrozenSystemState current = FrozenSystemState.createSnapshot(next, 42, 2);
+        Set<String> changed = new HashSet<String>();
+        changed.add(items);
+        changed.add(volume);
+        FrozenSystemState delta = current.createDelta(copy, changed); // latency modified in copy, reverted
+        Assert.assertTrue(delta.isDelta());
+        Assert.assertEquals(42, delta.getBaseEpoch());
+        Assert.assertEquals(1, delta.getBaseVersion());
+        Assert.assertTrue(copy.isBaseOf(delta));
+        Assert.assertEquals(2, delta.getVersion());
+        Assert.assertEquals(3, delta.getMapping().size());
+        Assert.assertTrue(delta.getMapping().containsKey(items));
+        Assert.assertNull(delta.getMapping().get(items));
+        Assert.assertEquals(delta.getMapping(), current.createDelta(copy, null).getMapping());
+
+        FrozenSystemState applied = copy.applyDelta(delta);
+        Assert.assertEquals(2, applied.getVersion());
+        Assert.assertEquals(current.getMapping(), applied.getMapping());
+        try {
+            applied.applyDelta(delta);
+            Assert.fail("no exception");
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            applied.applyDelta(current);
+            Assert.fail("no exception");
+        } catch (IllegalArgumentException e) {
+        }
+
+        FrozenSystemState restarted = FrozenSystemState.createSnapshot(values, 43, 1); // same version, other epoch
+        Assert.assertFalse(restarted.isBaseOf(delta));
+        try {
+            restarted.applyDelta(delta);
+            Assert.fail("no exception");
+        } catch (IllegalArgumentException e) {
+        }
+        delta = current.createDelta(restarted, changed); // changed keys of other epoch are not used
+        Assert.assertEquals(43, delta.getBaseEpoch());
+        Assert.assertEquals(current.getMapping(), restarted.applyDelta(delta).getMapping());
+    }
     
     /**
      * An assert for a default delta of 0.5.
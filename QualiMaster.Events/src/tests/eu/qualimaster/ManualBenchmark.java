@@ -0,0 +1,141 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tests.eu.qualimaster;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Shared harness of the manual benchmarks (<code>Manual*Benchmark</code>). Manual benchmarks are run as
+ * applications to compare the results of different versions on the same machine, they are not part of the regular
+ * tests as their results depend on the machine and its load. A measurement executes warm-up rounds so that the JIT
+ * compiles the measured code, then times the measurement rounds and prints one line with the operations/s, the
+ * time per operation and the bytes allocated per operation by the calling thread (if supported by the JVM).
+ *
+ * @author Holger Eichelberger
+ */
+public class ManualBenchmark {
+
+    private static volatile double sink;
+
+    /**
+     * A benchmark round.
+     *
+     * @author Holger Eichelberger
+     */
+    public interface IRound {
+
+        /**
+         * Executes one round.
+         *
+         * @return the number of operations executed
+         * @throws InterruptedException if interrupted
+         */
+        public long run() throws InterruptedException;
+    }
+
+    /**
+     * Executes warm-up rounds.
+     *
+     * @param rounds the number of rounds
+     * @param round the round
+     * @throws InterruptedException if interrupted
+     */
+    public static void warmup(int rounds, IRound round) throws InterruptedException {
+        for (int r = 0; r < rounds; r++) {
+            round.run();
+        }
+    }
+
+    /**
+     * Executes warm-up rounds, measures the measurement rounds and prints the results.
+     *
+     * @param name the name of the measurement to print
+     * @param unit the name of an operation to print
+     * @param warmupRounds the number of warm-up rounds
+     * @param measureRounds the number of measurement rounds
+     * @param round the round
+     * @return the time of the measurement rounds in nanoseconds
+     * @throws InterruptedException if interrupted
+     */
+    public static long measure(String name, String unit, int warmupRounds, int measureRounds, IRound round)
+        throws InterruptedException {
+        warmup(warmupRounds, round);
+        return measure(name, unit, measureRounds, round);
+    }
+
+    /**
+     * Measures the measurement rounds without warm-up and prints the results.
+     *
+     * @param name the name of the measurement to print
+     * @param unit the name of an operation to print
+     * @param rounds the number of measurement rounds
+     * @param round the round
+     * @return the time of the measurement rounds in nanoseconds
+     * @throws InterruptedException if interrupted
+     */
+    public static long measure(String name, String unit, int rounds, IRound round) throws InterruptedException {
+        long count = 0;
+        long allocStart = allocatedBytes();
+        long start = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            count += round.run();
+        }
+        long time = System.nanoTime() - start;
+        long alloc = allocatedBytes() - allocStart;
+        report(name, count, time, unit, allocStart < 0 ? "n/a bytes/" + unit
+            : String.format("%.1f", alloc / (double) count) + " bytes/" + unit);
+        return time;
+    }
+
+    /**
+     * Prints a result line.
+     *
+     * @param name the name of the measurement
+     * @param count the number of operations
+     * @param nanos the time needed in nanoseconds
+     * @param unit the name of an operation
+     * @param extra additional information to print (may be <b>null</b>)
+     */
+    public static void report(String name, double count, long nanos, String unit, String extra) {
+        System.out.println(name + ": " + String.format("%.0f", count / (nanos / 1000000000.0)) + " " + unit + "/s, "
+            + String.format("%.1f", nanos / count) + " ns/" + unit + (null == extra ? "" : ", " + extra));
+    }
+
+    /**
+     * Consumes a computed value so that the JIT cannot eliminate its computation.
+     *
+     * @param value the value
+     */
+    public static void consume(double value) {
+        sink = value;
+    }
+
+    /**
+     * Returns the bytes allocated so far by the current thread.
+     *
+     * @return the allocated bytes, <code>-1</code> if not supported by the JVM
+     */
+    private static long allocatedBytes() {
+        long result = -1;
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            result = ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(
+                Thread.currentThread().getId());
+        }
+        return result;
+    }
+
+}
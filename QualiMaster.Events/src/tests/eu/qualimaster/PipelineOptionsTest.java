@@ -42,6 +42,8 @@ public class PipelineOptionsTest {
         Assert.assertEquals(3, options.getExecutorParallelism("exec", 3));
         Assert.assertEquals(2, options.getTaskParallelism("exec", 2));
         Assert.assertFalse(options.isInProfilingMode());
+        Assert.assertFalse(options.useSignalQueue());
+        Assert.assertFalse(PipelineOptions.useSignalQueue(options.toConf(null)));
         assertThroughArgs(options);
         
         options.setNumberOfWorkers(5);
@@ -70,6 +72,11 @@ public class PipelineOptionsTest {
         Assert.assertTrue(options.isInProfilingMode());
         assertThroughArgs(options);
         
+        options.enableSignalQueue();
+        Assert.assertTrue(options.useSignalQueue());
+        Assert.assertTrue(PipelineOptions.useSignalQueue(options.toConf(null)));
+        assertThroughArgs(options);
+        
         // int works also, but comparison goes via string and not back
         options.setExecutorArgument("exec2", "delay", "2000");
         // these two should not cause a difference
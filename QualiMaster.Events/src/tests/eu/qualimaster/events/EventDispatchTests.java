@@ -0,0 +1,503 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tests.eu.qualimaster.events;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import eu.qualimaster.Configuration;
+import eu.qualimaster.adaptation.events.AlgorithmConfigurationAdaptationEvent;
+import eu.qualimaster.events.DispatchLane;
+import eu.qualimaster.events.EventDispatchMetrics;
+import eu.qualimaster.events.EventHandler;
+import eu.qualimaster.events.EventManager;
+import eu.qualimaster.events.IEvent;
+import eu.qualimaster.infrastructure.PipelineLifecycleEvent;
+import eu.qualimaster.infrastructure.PipelineLifecycleEvent.Status;
+import eu.qualimaster.monitoring.events.MonitoringEvent;
+import eu.qualimaster.monitoring.events.PipelineObservationMonitoringEvent;
+import eu.qualimaster.observables.TimeBehavior;
+
+/**
+ * Tests the bounded, lane-based dispatching of events to handlers.
+ * 
+ * @author Holger Eichelberger
+ */
+public class EventDispatchTests {
+
+    /**
+     * Provides access to the number of a numbered test event.
+     * 
+     * @author Holger Eichelberger
+     */
+    private interface INumbered {
+
+        /**
+         * Returns the number.
+         * 
+         * @return the number
+         */
+        public int getNumber();
+
+    }
+
+    /**
+     * A numbered test event (control lane).
+     * 
+     * @author Holger Eichelberger
+     */
+    private static class NumberedEvent implements IEvent, INumbered {
+
+        private static final long serialVersionUID = -2937719573291739103L;
+        private int number;
+
+        /**
+         * Creates the event.
+         * 
+         * @param number the number
+         */
+        private NumberedEvent(int number) {
+            this.number = number;
+        }
+
+        @Override
+        public String getChannel() {
+            return null;
+        }
+
+        @Override
+        public int getNumber() {
+            return number;
+        }
+
+    }
+
+    /**
+     * A numbered test event (monitoring lane).
+     * 
+     * @author Holger Eichelberger
+     */
+    private static class NumberedMonitoringEvent extends MonitoringEvent implements INumbered {
+
+        private static final long serialVersionUID = 4712508744318745193L;
+        private int number;
+
+        /**
+         * Creates the event.
+         * 
+         * @param number the number
+         */
+        private NumberedMonitoringEvent(int number) {
+            this.number = number;
+        }
+
+        @Override
+        public int getNumber() {
+            return number;
+        }
+
+    }
+
+    /**
+     * Records the numbers of received events, optionally slowly.
+     * 
+     * @author Holger Eichelberger
+     */
+    private static class NumberingHandler extends EventHandler<NumberedEvent> {
+
+        private List<Integer> numbers = Collections.synchronizedList(new ArrayList<Integer>());
+        private boolean ordered;
+        private int delay;
+
+        /**
+         * Creates the handler.
+         * 
+         * @param ordered whether events shall be dispatched ordered
+         * @param delay the processing delay per event in ms
+         */
+        private NumberingHandler(boolean ordered, int delay) {
+            super(NumberedEvent.class);
+            this.ordered = ordered;
+            this.delay = delay;
+        }
+
+        @Override
+        protected boolean isOrdered() {
+            return ordered;
+        }
+
+        @Override
+        protected void handle(NumberedEvent event) {
+            if (delay > 0) {
+                sleep(delay);
+            }
+            numbers.add(event.number);
+        }
+
+    }
+
+    /**
+     * Records the numbers of received events after blocking until released.
+     * 
+     * @param <E> the event type
+     * @author Holger Eichelberger
+     */
+    private static class BlockingHandler<E extends IEvent & INumbered> extends EventHandler<E> {
+
+        private List<Integer> numbers = Collections.synchronizedList(new ArrayList<Integer>());
+        private CountDownLatch release;
+
+        /**
+         * Creates the handler.
+         * 
+         * @param cls the event class
+         * @param release the latch releasing the handler
+         */
+        private BlockingHandler(Class<E> cls, CountDownLatch release) {
+            super(cls);
+            this.release = release;
+        }
+
+        @Override
+        protected void handle(E event) {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+            }
+            numbers.add(event.getNumber());
+        }
+
+    }
+
+    /**
+     * Sleeps for a given time.
+     * 
+     * @param ms the time to sleep
+     */
+    private static void sleep(int ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+        }
+    }
+
+    /**
+     * Returns the number of live dispatch threads of the given lane.
+     * 
+     * @param lane the lane
+     * @return the number of threads
+     */
+    private static int countDispatchThreads(DispatchLane lane) {
+        int result = 0;
+        String prefix = "EventDispatch-" + lane.name().toLowerCase();
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.isAlive() && thread.getName().startsWith(prefix)) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the dispatched counts of all lanes.
+     * 
+     * @param metrics the metrics
+     * @return the dispatched counts in the sequence of {@link DispatchLane}
+     */
+    private static long[] getDispatched(EventDispatchMetrics metrics) {
+        long[] result = new long[DispatchLane.values().length];
+        for (DispatchLane lane : DispatchLane.values()) {
+            result[lane.ordinal()] = metrics.getDispatchedCount(lane);
+        }
+        return result;
+    }
+
+    /**
+     * Handles an event and asserts that it was dispatched on the expected lane only.
+     * 
+     * @param event the event
+     * @param expected the expected lane
+     */
+    private static void assertLane(IEvent event, DispatchLane expected) {
+        EventDispatchMetrics metrics = EventManager.getDispatchMetrics();
+        long[] before = getDispatched(metrics);
+        EventManager.handle(event);
+        EventManager.cleanup();
+        long[] after = getDispatched(metrics);
+        for (DispatchLane lane : DispatchLane.values()) {
+            long diff = after[lane.ordinal()] - before[lane.ordinal()];
+            if (lane == expected) {
+                Assert.assertTrue(diff >= 1);
+            } else {
+                Assert.assertEquals(0, diff);
+            }
+        }
+        Assert.assertEquals(0, metrics.getQueueDepth(expected));
+    }
+
+    /**
+     * Ensures that the event manager is stopped before a test so that the test configuration takes effect.
+     */
+    @Before
+    public void setUp() {
+        EventManager.stop();
+    }
+
+    /**
+     * Tests the assignment of events to lanes.
+     */
+    @Test(timeout = 5000)
+    public void testLanes() {
+        Configuration.configureLocal();
+        EventManager.start();
+        RecordingEventHandler<IEvent> rec = RecordingEventHandler.create(IEvent.class);
+        assertLane(new PipelineLifecycleEvent("pip", Status.STARTED, null), DispatchLane.CONTROL);
+        assertLane(new PipelineObservationMonitoringEvent("pip", null, TimeBehavior.LATENCY, 10), 
+            DispatchLane.MONITORING);
+        assertLane(new AlgorithmConfigurationAdaptationEvent("pip", "elt", "alg", false), DispatchLane.ADAPTATION);
+        Assert.assertEquals(3, rec.getReceivedCount());
+        EventManager.unregister(rec);
+        EventManager.stop();
+    }
+
+    /**
+     * Tests that events are dispatched to an ordered handler in the sequence of handling although multiple
+     * threads are available.
+     */
+    @Test(timeout = 10000)
+    public void testOrdered() {
+        final int count = 500;
+        Properties prop = new Properties();
+        prop.put(Configuration.EVENT_DISPATCH_CONTROL_THREADS, "4");
+        Configuration.configure(prop);
+        EventManager.start();
+        NumberingHandler handler = new NumberingHandler(true, 0);
+        EventManager.register(handler);
+        for (int i = 0; i < count; i++) {
+            EventManager.handle(new NumberedEvent(i));
+        }
+        EventManager.cleanup();
+        EventManager.unregister(handler);
+        EventManager.stop();
+        Configuration.configureLocal();
+
+        Assert.assertEquals(count, handler.numbers.size());
+        for (int i = 0; i < count; i++) {
+            Assert.assertEquals(i, handler.numbers.get(i).intValue());
+        }
+    }
+
+    /**
+     * Tests that a saturated lane neither creates further threads nor loses events. Handlers block until released
+     * so that the lane saturates independent of the actual configuration.
+     */
+    @Test(timeout = 20000)
+    public void testBounded() {
+        Properties prop = new Properties();
+        prop.put(Configuration.EVENT_DISPATCH_CONTROL_THREADS, "1");
+        prop.put(Configuration.EVENT_DISPATCH_QUEUE_SIZE, "2");
+        prop.put(Configuration.EVENT_DISPATCH_VIRTUAL_THREADS, "false");
+        Configuration.configure(prop);
+        final int threads = Configuration.getEventDispatchControlThreads();
+        final int queueSize = Configuration.getEventDispatchQueueSize();
+        final int count = threads + queueSize + 5;
+        final CountDownLatch release = new CountDownLatch(1);
+        EventManager.start();
+        EventDispatchMetrics metrics = EventManager.getDispatchMetrics();
+        long callerRuns = metrics.getCallerRunsCount(DispatchLane.CONTROL);
+        BlockingHandler<NumberedEvent> handler = new BlockingHandler<NumberedEvent>(NumberedEvent.class, release);
+        EventManager.register(handler);
+        int liveThreads = countDispatchThreads(DispatchLane.CONTROL); // other managers may be alive
+        new Thread() {
+
+            @Override
+            public void run() {
+                EventDispatchTests.sleep(500);
+                release.countDown();
+            }
+
+        }.start();
+        for (int i = 0; i < count; i++) {
+            EventManager.handle(new NumberedEvent(i)); // blocks after saturation until released
+        }
+        Assert.assertTrue(countDispatchThreads(DispatchLane.CONTROL) <= liveThreads + threads);
+        EventManager.cleanup();
+        EventManager.unregister(handler);
+        EventManager.stop();
+        Configuration.configureLocal();
+
+        Assert.assertEquals(count, handler.numbers.size());
+        Assert.assertTrue(metrics.getCallerRunsCount(DispatchLane.CONTROL) > callerRuns);
+        Assert.assertTrue(metrics.getMaxQueueDepth(DispatchLane.CONTROL) >= queueSize);
+        Assert.assertTrue(metrics.getMaxLatency(DispatchLane.CONTROL) > 0);
+    }
+
+    /**
+     * Tests that a saturated lane does not block the I/O threads of the event server, i.e., events received from
+     * clients on a lane which is not lossless are dropped and counted instead.
+     */
+    @Test(timeout = 20000)
+    public void testNonBlockingServer() {
+        final int count = 20;
+        Properties prop = new Properties();
+        prop.put(Configuration.EVENT_DISPATCH_MONITORING_THREADS, "1");
+        prop.put(Configuration.EVENT_DISPATCH_QUEUE_SIZE, "2");
+        prop.put(Configuration.EVENT_DISPATCH_VIRTUAL_THREADS, "false");
+        Configuration.configure(prop);
+        final int capacity = Configuration.getEventDispatchMonitoringThreads() 
+            + Configuration.getEventDispatchQueueSize();
+        final CountDownLatch release = new CountDownLatch(1);
+        EventManager.startServer();
+        EventDispatchMetrics metrics = EventManager.getDispatchMetrics();
+        long dropped = metrics.getDroppedCount(DispatchLane.MONITORING);
+        BlockingHandler<NumberedMonitoringEvent> handler 
+            = new BlockingHandler<NumberedMonitoringEvent>(NumberedMonitoringEvent.class, release);
+        EventManager.register(handler);
+        EventManager client = new EventManager();
+        client.doStart(false, false); // enforce the case that we are not local
+        for (int i = 0; i < count; i++) {
+            client.doSend(new NumberedMonitoringEvent(i));
+        }
+        client.doCleanup();
+        // the I/O thread does not block, i.e., all events are either waiting or dropped while handlers block
+        while (metrics.getDroppedCount(DispatchLane.MONITORING) - dropped < count - capacity - 1) {
+            sleep(50);
+        }
+        release.countDown();
+        EventManager.cleanup();
+        client.doStop();
+        EventManager.unregister(handler);
+        EventManager.stop();
+        Configuration.configureLocal();
+
+        long droppedNow = metrics.getDroppedCount(DispatchLane.MONITORING) - dropped;
+        Assert.assertEquals(count, handler.numbers.size() + droppedNow);
+        Assert.assertTrue(handler.numbers.size() <= capacity + 1);
+    }
+
+    /**
+     * Tests that a saturated control lane does not lose events received by the non-blocking I/O threads of the 
+     * event server, i.e., the events are spilled and dispatched as soon as the lane has capacity again.
+     */
+    @Test(timeout = 20000)
+    public void testLosslessServer() {
+        final int count = 20;
+        Properties prop = new Properties();
+        prop.put(Configuration.EVENT_DISPATCH_CONTROL_THREADS, "1");
+        prop.put(Configuration.EVENT_DISPATCH_QUEUE_SIZE, "2");
+        prop.put(Configuration.EVENT_DISPATCH_VIRTUAL_THREADS, "false");
+        Configuration.configure(prop);
+        final int capacity = Configuration.getEventDispatchControlThreads() 
+            + Configuration.getEventDispatchQueueSize();
+        final CountDownLatch release = new CountDownLatch(1);
+        EventManager.startServer();
+        EventDispatchMetrics metrics = EventManager.getDispatchMetrics();
+        long dropped = metrics.getDroppedCount(DispatchLane.CONTROL);
+        long spilled = metrics.getSpilledCount(DispatchLane.CONTROL);
+        BlockingHandler<NumberedEvent> handler = new BlockingHandler<NumberedEvent>(NumberedEvent.class, release);
+        EventManager.register(handler);
+        EventManager client = new EventManager();
+        client.doStart(false, false); // enforce the case that we are not local
+        for (int i = 0; i < count; i++) {
+            client.doSend(new NumberedEvent(i));
+        }
+        client.doCleanup();
+        // the I/O thread does not block, i.e., all events are either waiting or spilled while handlers block
+        while (metrics.getSpilledCount(DispatchLane.CONTROL) - spilled < count - capacity - 1) {
+            sleep(50);
+        }
+        Assert.assertTrue(handler.numbers.isEmpty());
+        release.countDown();
+        EventManager.cleanup();
+        client.doStop();
+        EventManager.unregister(handler);
+        EventManager.stop();
+        Configuration.configureLocal();
+
+        Assert.assertEquals(dropped, metrics.getDroppedCount(DispatchLane.CONTROL));
+        Assert.assertEquals(count, handler.numbers.size());
+    }
+
+    /**
+     * Tests that the events waiting for an ordered handler are bounded, i.e., the handling thread blocks until the
+     * handler catches up without losing or reordering events.
+     */
+    @Test(timeout = 20000)
+    public void testOrderedBounded() {
+        final int count = 50;
+        Properties prop = new Properties();
+        prop.put(Configuration.EVENT_DISPATCH_QUEUE_SIZE, "2");
+        Configuration.configure(prop);
+        EventManager.start();
+        EventDispatchMetrics metrics = EventManager.getDispatchMetrics();
+        long blocked = metrics.getBlockedCount(DispatchLane.CONTROL);
+        NumberingHandler handler = new NumberingHandler(true, 2);
+        EventManager.register(handler);
+        for (int i = 0; i < count; i++) {
+            EventManager.handle(new NumberedEvent(i));
+        }
+        Assert.assertTrue(metrics.getBlockedCount(DispatchLane.CONTROL) > blocked);
+        EventManager.cleanup();
+        EventManager.unregister(handler);
+        EventManager.stop();
+        Configuration.configureLocal();
+
+        Assert.assertEquals(count, handler.numbers.size());
+        for (int i = 0; i < count; i++) {
+            Assert.assertEquals(i, handler.numbers.get(i).intValue());
+        }
+    }
+
+    /**
+     * Tests that releasing an ordered handler, e.g., by unregistering it, does not break the ordering of events 
+     * that are still waiting for dispatch.
+     */
+    @Test(timeout = 20000)
+    public void testOrderedRelease() {
+        final int count = 200;
+        Properties prop = new Properties();
+        prop.put(Configuration.EVENT_DISPATCH_CONTROL_THREADS, "4");
+        Configuration.configure(prop);
+        EventManager.start();
+        NumberingHandler handler = new NumberingHandler(true, 1);
+        EventManager.register(handler);
+        for (int i = 0; i < count; i++) {
+            EventManager.handle(new NumberedEvent(i));
+        }
+        EventManager.unregister(handler); // events are still waiting
+        EventManager.register(handler);
+        for (int i = count; i < 2 * count; i++) {
+            EventManager.handle(new NumberedEvent(i));
+        }
+        EventManager.cleanup();
+        EventManager.unregister(handler);
+        EventManager.stop();
+        Configuration.configureLocal();
+
+        Assert.assertEquals(2 * count, handler.numbers.size());
+        for (int i = 0; i < 2 * count; i++) {
+            Assert.assertEquals(i, handler.numbers.get(i).intValue());
+        }
+    }
+
+}
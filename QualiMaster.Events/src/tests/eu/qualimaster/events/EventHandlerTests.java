@@ -170,6 +170,39 @@ public class EventHandlerTests {
         Thread.sleep(500);
     }
 
+    /**
+     * Tests that (un)registering handlers takes effect after events of the same class have already been 
+     * dispatched, i.e., that the resolved handlers are not kept stale.
+     * 
+     * @throws InterruptedException in case that sleeping was interrupted (shall not occur)
+     */
+    @Test(timeout = 3000)
+    public void testRegisterAfterDispatch() throws InterruptedException {
+        Configuration.configureLocal();
+        EventManager.start();
+        Thread.sleep(500);
+
+        PipelineLifecycleEvent evt1 = new PipelineLifecycleEvent("test1", Status.STOPPED, null);
+        handleAndCheck(evt1, infra, others);
+
+        RecordingEventHandler<PipelineLifecycleEvent> recLc = RecordingEventHandler.create(
+            PipelineLifecycleEvent.class); // registers
+        PipelineLifecycleEvent evt2 = new PipelineLifecycleEvent("test2", Status.STOPPED, null);
+        handleAndCheck(evt2, infra, others);
+        Assert.assertTrue(recLc.received(evt2));
+
+        EventManager.unregister(recLc);
+        PipelineLifecycleEvent evt3 = new PipelineLifecycleEvent("test3", Status.STOPPED, null);
+        EventManager.handle(evt3);
+        EventManager.cleanup();
+        Assert.assertFalse(recLc.received(evt3));
+        Assert.assertTrue(rec1.received(evt3));
+
+        EventManager.cleanup();
+        EventManager.stop();
+        Thread.sleep(500);
+    }
+
     /**
      * Tests channeling event handlers.
      * 
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tests.eu.qualimaster.events;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import eu.qualimaster.Configuration;
+import eu.qualimaster.events.EventFrameWriter;
+import eu.qualimaster.events.EventHandler;
+import eu.qualimaster.events.EventManager;
+import eu.qualimaster.events.IEvent;
+import eu.qualimaster.infrastructure.PipelineLifecycleEvent;
+import eu.qualimaster.infrastructure.PipelineLifecycleEvent.Status;
+import eu.qualimaster.logging.events.LoggingFilterEvent;
+
+/**
+ * Tests the selector-based event server.
+ * 
+ * @author Holger Eichelberger
+ */
+public class EventServerTests {
+
+    /**
+     * Counts received events.
+     * 
+     * @param <E> the event type
+     * @author Holger Eichelberger
+     */
+    private static class CountingHandler<E extends IEvent> extends EventHandler<E> {
+
+        private AtomicInteger count = new AtomicInteger();
+
+        /**
+         * Creates the handler.
+         * 
+         * @param eventClass the event class
+         */
+        protected CountingHandler(Class<E> eventClass) {
+            super(eventClass);
+        }
+
+        @Override
+        protected void handle(E event) {
+            count.incrementAndGet();
+        }
+
+        /**
+         * Returns the number of received events.
+         * 
+         * @return the number of events
+         */
+        protected int getCount() {
+            return count.get();
+        }
+
+    }
+
+    /**
+     * Blocks the reception on client side until released.
+     * 
+     * @author Holger Eichelberger
+     */
+    private static class StallingHandler extends CountingHandler<LoggingFilterEvent> {
+
+        private CountDownLatch release = new CountDownLatch(1);
+
+        /**
+         * Creates the handler.
+         */
+        protected StallingHandler() {
+            super(LoggingFilterEvent.class);
+        }
+
+        @Override
+        protected boolean consume(IEvent event) {
+            try {
+                release.await(); // blocks the reading thread of the client
+            } catch (InterruptedException e) {
+            }
+            return false;
+        }
+
+    }
+
+    /**
+     * Returns the number of live event server threads.
+     * 
+     * @return the number of threads
+     */
+    private static int countServerThreads() {
+        int result = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.isAlive() && thread.getName().startsWith("EventServer")) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Tests many concurrently connected clients served by a fixed number of server threads.
+     * 
+     * @throws IOException shall not occur
+     */
+    @Test(timeout = 20000)
+    public void testManyClients() throws IOException {
+        final int clients = 50;
+        final int events = 20;
+        Configuration.configureLocal();
+        EventManager.startServer();
+        CountingHandler<PipelineLifecycleEvent> handler 
+            = new CountingHandler<PipelineLifecycleEvent>(PipelineLifecycleEvent.class);
+        EventManager.register(handler);
+
+        List<Socket> sockets = new ArrayList<Socket>();
+        for (int c = 0; c < clients; c++) {
+            Socket socket = new Socket(InetAddress.getByName(Configuration.getEventHost()), 
+                Configuration.getEventPort());
+            sockets.add(socket);
+            EventFrameWriter writer = new EventFrameWriter(new BufferedOutputStream(socket.getOutputStream()));
+            writer.writeHandshake("client" + c);
+            for (int e = 0; e < events; e++) {
+                writer.write(new PipelineLifecycleEvent("pip" + c, Status.STARTING, null));
+            }
+            writer.flush();
+        }
+        Assert.assertEquals(Configuration.getEventIoThreads() + 1, countServerThreads());
+        while (handler.getCount() < clients * events) {
+            sleep(50);
+        }
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+        EventManager.cleanup();
+        EventManager.unregister(handler);
+        EventManager.stop();
+        Assert.assertEquals(clients * events, handler.getCount());
+        Assert.assertEquals(0, countServerThreads());
+    }
+
+    /**
+     * Tests that a client not reading its forwarded events is disconnected rather than stalling the server.
+     */
+    @Test(timeout = 20000 + 2 * EventManager.SO_TIMEOUT)
+    public void testStalledClient() {
+        final int count = 300;
+        Properties prop = new Properties();
+        prop.put(Configuration.EVENT_CLIENT_QUEUE_SIZE, "1024");
+        Configuration.configure(prop);
+        EventManager.startServer();
+
+        EventManager local = new EventManager();
+        local.doStart(false, false); // enforce the case that we are not local
+        StallingHandler stalling = new StallingHandler();
+        local.doRegister(stalling); // starts forwarding
+        sleep(500);
+
+        List<String> additions = new ArrayList<String>();
+        StringBuilder tmp = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            tmp.append("filter");
+        }
+        for (int i = 0; i < 10; i++) {
+            additions.add(tmp.toString() + i);
+        }
+        for (int i = 0; i < count; i++) {
+            EventManager.send(new LoggingFilterEvent(additions, null)); // ~60 KBytes each
+        }
+        EventManager.cleanup(); // returns as the stalled client is disconnected
+        stalling.release.countDown();
+        EventManager.stop();
+        local.doStop();
+        Configuration.configureLocal();
+        Assert.assertTrue(stalling.getCount() < count);
+    }
+
+    /**
+     * Sleeps for a given time.
+     * 
+     * @param ms the time to sleep
+     */
+    private static void sleep(int ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+        }
+    }
+
+}
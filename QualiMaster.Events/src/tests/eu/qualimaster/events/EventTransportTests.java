@@ -0,0 +1,455 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tests.eu.qualimaster.events;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import eu.qualimaster.Configuration;
+import eu.qualimaster.events.EventCodecs;
+import eu.qualimaster.events.EventFrameReader;
+import eu.qualimaster.events.EventFrameWriter;
+import eu.qualimaster.events.EventManager;
+import eu.qualimaster.events.EventSendMetrics;
+import eu.qualimaster.events.EventSendQueue;
+import eu.qualimaster.events.IEvent;
+import eu.qualimaster.events.JavaSerializationEventCodec;
+import eu.qualimaster.infrastructure.PipelineLifecycleEvent;
+import eu.qualimaster.infrastructure.PipelineLifecycleEvent.Status;
+import eu.qualimaster.monitoring.events.ComponentKey;
+import eu.qualimaster.monitoring.events.MonitoringEvent;
+import eu.qualimaster.monitoring.events.MonitoringEventCodec;
+import eu.qualimaster.monitoring.events.PipelineElementMultiObservationMonitoringEvent;
+import eu.qualimaster.monitoring.events.PipelineElementObservationMonitoringEvent;
+import eu.qualimaster.monitoring.events.PipelineObservationMonitoringEvent;
+import eu.qualimaster.monitoring.events.PlatformMultiObservationHostMonitoringEvent;
+import eu.qualimaster.observables.AnalysisObservables;
+import eu.qualimaster.observables.CloudResourceUsage;
+import eu.qualimaster.observables.FunctionalSuitability;
+import eu.qualimaster.observables.IObservable;
+import eu.qualimaster.observables.Observables;
+import eu.qualimaster.observables.ResourceUsage;
+import eu.qualimaster.observables.Scalability;
+import eu.qualimaster.observables.TimeBehavior;
+
+/**
+ * Tests the batched binary event transport.
+ * 
+ * @author Holger Eichelberger
+ */
+public class EventTransportTests {
+
+    /**
+     * Writes the given events as one frame and reads them back.
+     * 
+     * @param events the events
+     * @return the read events
+     * @throws IOException shall not occur
+     */
+    private static List<IEvent> transfer(List<IEvent> events) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        EventFrameWriter writer = new EventFrameWriter(bytes);
+        writer.writeHandshake("me");
+        int size = writer.write(events);
+        writer.flush();
+        Assert.assertTrue(size > 0);
+        EventFrameReader reader = new EventFrameReader(new ByteArrayInputStream(bytes.toByteArray()));
+        Assert.assertEquals("me", reader.readHandshake());
+        List<IEvent> result = new ArrayList<IEvent>();
+        Assert.assertTrue(reader.read(result));
+        return result;
+    }
+
+    /**
+     * Creates a component key.
+     * 
+     * @return the component key
+     */
+    private static ComponentKey createKey() {
+        ComponentKey key = new ComponentKey("localhost", 1234, 5);
+        key.setThreadId(42);
+        return key;
+    }
+
+    /**
+     * Tests the binary codec for the monitoring events.
+     * 
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testMonitoringCodec() throws IOException {
+        Map<IObservable, Double> observations = new HashMap<IObservable, Double>();
+        observations.put(TimeBehavior.LATENCY, 10.5);
+        observations.put(Scalability.ITEMS, 200.0);
+        observations.put(ResourceUsage.MEMORY_USE, null);
+        List<IEvent> events = new ArrayList<IEvent>();
+        events.add(new PipelineElementMultiObservationMonitoringEvent("pip", "elt", createKey(), observations));
+        events.add(new PipelineElementObservationMonitoringEvent("pip", "elt", null, TimeBehavior.THROUGHPUT_ITEMS, 
+            5));
+        events.add(new PipelineObservationMonitoringEvent("pip", createKey(), Scalability.ITEMS, (Double) null));
+        events.add(new PlatformMultiObservationHostMonitoringEvent("host", observations));
+        for (IEvent event : events) {
+            Assert.assertEquals(MonitoringEventCodec.ID, EventCodecs.getCodec(event).getId());
+        }
+        List<IEvent> received = transfer(events);
+        Assert.assertEquals(events.size(), received.size());
+
+        PipelineElementMultiObservationMonitoringEvent multi 
+            = (PipelineElementMultiObservationMonitoringEvent) received.get(0);
+        Assert.assertEquals("pip", multi.getPipeline());
+        Assert.assertEquals("elt", multi.getPipelineElement());
+        Assert.assertEquals(createKey(), multi.getKey());
+        Assert.assertEquals(42, ((ComponentKey) multi.getKey()).getThreadId());
+        Assert.assertEquals(observations, multi.getObservations());
+
+        PipelineElementObservationMonitoringEvent single = (PipelineElementObservationMonitoringEvent) received.get(1);
+        Assert.assertNull(single.getKey());
+        Assert.assertEquals(TimeBehavior.THROUGHPUT_ITEMS, single.getObservable());
+        Assert.assertEquals(5.0, single.getObservation(), 0.001);
+
+        PipelineObservationMonitoringEvent pip = (PipelineObservationMonitoringEvent) received.get(2);
+        Assert.assertEquals("pip", pip.getPipeline());
+        Assert.assertEquals(createKey(), pip.getKey());
+        Assert.assertEquals(Scalability.ITEMS, pip.getObservable());
+        Assert.assertNull(pip.getObservation());
+
+        PlatformMultiObservationHostMonitoringEvent host 
+            = (PlatformMultiObservationHostMonitoringEvent) received.get(3);
+        Assert.assertEquals("host", host.getHost());
+        Assert.assertEquals(observations, host.getObservations());
+
+        // the binary encoding shall be significantly smaller than Java serialization
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        new EventFrameWriter(binary).write(events.get(0));
+        ByteArrayOutputStream java = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(java);
+        out.writeObject(events.get(0));
+        out.close();
+        Assert.assertTrue(binary.size() * 4 < java.size());
+    }
+
+    /**
+     * Tests that the wire encoding of observables is stable, i.e., independent of the position of the observables.
+     * 
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testObservableEncoding() throws IOException {
+        // the type ids are part of the wire format and must never change
+        Assert.assertEquals(Byte.valueOf((byte) 0), MonitoringEventCodec.getTypeId(TimeBehavior.LATENCY));
+        Assert.assertEquals(Byte.valueOf((byte) 1), 
+            MonitoringEventCodec.getTypeId(FunctionalSuitability.ACCURACY_ERROR_RATE));
+        Assert.assertEquals(Byte.valueOf((byte) 2), MonitoringEventCodec.getTypeId(ResourceUsage.MEMORY_USE));
+        Assert.assertEquals(Byte.valueOf((byte) 3), MonitoringEventCodec.getTypeId(Scalability.ITEMS));
+        Assert.assertEquals(Byte.valueOf((byte) 4), MonitoringEventCodec.getTypeId(AnalysisObservables.IS_VALID));
+        Assert.assertEquals(Byte.valueOf((byte) 5), MonitoringEventCodec.getTypeId(CloudResourceUsage.PING));
+        for (IObservable observable : Observables.OBSERVABLES) {
+            Assert.assertNotNull(observable.name(), MonitoringEventCodec.getTypeId(observable));
+        }
+
+        MonitoringEventCodec codec = new MonitoringEventCodec();
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        codec.encode(new PipelineObservationMonitoringEvent("pip", null, ResourceUsage.MEMORY_USE, 1.0), 
+            new DataOutputStream(actual));
+        Assert.assertArrayEquals(encodePipelineObservation((byte) 2, "MEMORY_USE"), actual.toByteArray());
+
+        PipelineObservationMonitoringEvent decoded = (PipelineObservationMonitoringEvent) codec.decode(
+            new DataInputStream(new ByteArrayInputStream(encodePipelineObservation((byte) 0, "LATENCY"))));
+        Assert.assertEquals(TimeBehavior.LATENCY, decoded.getObservable());
+        assertUndecodable(codec, encodePipelineObservation((byte) 0, "UNKNOWN"));
+        assertUndecodable(codec, encodePipelineObservation((byte) 100, "LATENCY"));
+    }
+
+    /**
+     * Encodes a pipeline observation as expected from the binary monitoring codec.
+     * 
+     * @param typeId the type id of the observable
+     * @param name the name of the observable
+     * @return the encoded event
+     * @throws IOException shall not occur
+     */
+    private static byte[] encodePipelineObservation(byte typeId, String name) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(2); // pipeline observation
+        out.writeBoolean(true);
+        out.writeUTF("pip");
+        out.writeBoolean(false); // no key
+        out.writeByte(typeId);
+        out.writeUTF(name);
+        out.writeBoolean(true);
+        out.writeDouble(1.0);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Asserts that decoding <code>data</code> fails.
+     * 
+     * @param codec the codec
+     * @param data the data
+     */
+    private static void assertUndecodable(MonitoringEventCodec codec, byte[] data) {
+        try {
+            codec.decode(new DataInputStream(new ByteArrayInputStream(data)));
+            Assert.fail("no exception");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    /**
+     * An observable unknown to the binary monitoring codec.
+     * 
+     * @author Holger Eichelberger
+     */
+    private enum TestObservable implements IObservable {
+        
+        TEST;
+
+        @Override
+        public boolean isInternal() {
+            return false;
+        }
+        
+    }
+
+    /**
+     * Tests the Java serialization fallback.
+     * 
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testFallbackCodec() throws IOException {
+        List<IEvent> events = new ArrayList<IEvent>();
+        events.add(new PipelineLifecycleEvent("pip", Status.STARTING, null));
+        Map<IObservable, Double> observations = new HashMap<IObservable, Double>();
+        observations.put(TestObservable.TEST, 1.0); // unknown observable
+        events.add(new PipelineElementMultiObservationMonitoringEvent("pip", "elt", createKey(), observations));
+        events.add(new PipelineLifecycleEvent("pip", Status.STOPPED, null));
+        for (IEvent event : events) {
+            Assert.assertEquals(JavaSerializationEventCodec.ID, EventCodecs.getCodec(event).getId());
+        }
+        List<IEvent> received = transfer(events);
+        Assert.assertEquals(events.size(), received.size());
+        Assert.assertEquals(Status.STARTING, ((PipelineLifecycleEvent) received.get(0)).getStatus());
+        Assert.assertEquals(observations, 
+            ((PipelineElementMultiObservationMonitoringEvent) received.get(1)).getObservations());
+        Assert.assertEquals(Status.STOPPED, ((PipelineLifecycleEvent) received.get(2)).getStatus());
+    }
+
+    /**
+     * An event which cannot be serialized.
+     * 
+     * @author Holger Eichelberger
+     */
+    @SuppressWarnings("serial")
+    private static class UnencodableEvent implements IEvent {
+
+        @SuppressWarnings("unused")
+        private Object payload = new Object(); // not serializable
+
+        @Override
+        public String getChannel() {
+            return null;
+        }
+
+    }
+
+    /**
+     * An event which cannot be deserialized.
+     * 
+     * @author Holger Eichelberger
+     */
+    @SuppressWarnings("serial")
+    private static class UndecodableEvent implements IEvent {
+
+        @Override
+        public String getChannel() {
+            return null;
+        }
+
+        /**
+         * Fails deserialization.
+         * 
+         * @param in the input stream
+         * @throws IOException always
+         */
+        private void readObject(ObjectInputStream in) throws IOException {
+            throw new IOException("cannot read");
+        }
+
+    }
+
+    /**
+     * Tests that events failing encoding or decoding are skipped without affecting the other events of a frame.
+     * 
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testCodecFailures() throws IOException {
+        List<IEvent> events = new ArrayList<IEvent>();
+        events.add(new PipelineLifecycleEvent("pip", Status.STARTING, null));
+        events.add(new UnencodableEvent());
+        events.add(new UndecodableEvent());
+        events.add(new PipelineLifecycleEvent("pip", Status.STOPPED, null));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        EventFrameWriter writer = new EventFrameWriter(bytes);
+        Assert.assertTrue(writer.write(events) > 0);
+        Assert.assertEquals(1, writer.getEncodingFailures());
+        Assert.assertEquals(0, writer.write(new UnencodableEvent())); // nothing written at all
+        Assert.assertEquals(2, writer.getEncodingFailures());
+        writer.write(events.get(0));
+        writer.flush();
+
+        EventFrameReader reader = new EventFrameReader(new ByteArrayInputStream(bytes.toByteArray()));
+        List<IEvent> received = new ArrayList<IEvent>();
+        Assert.assertTrue(reader.read(received));
+        Assert.assertEquals(2, received.size());
+        Assert.assertEquals(Status.STARTING, ((PipelineLifecycleEvent) received.get(0)).getStatus());
+        Assert.assertEquals(Status.STOPPED, ((PipelineLifecycleEvent) received.get(1)).getStatus());
+        Assert.assertEquals(1, reader.getDecodingFailures());
+        received.clear();
+        Assert.assertTrue(reader.read(received)); // stream is still in sync
+        Assert.assertEquals(1, received.size());
+    }
+
+    /**
+     * Tests dropping the oldest monitoring events on a full send queue.
+     * 
+     * @throws InterruptedException shall not occur
+     */
+    @Test
+    public void testSendQueueDropOldest() throws InterruptedException {
+        EventSendMetrics metrics = new EventSendMetrics();
+        EventSendQueue queue = new EventSendQueue(3, metrics);
+        List<Class<?>> droppable = new ArrayList<Class<?>>();
+        droppable.add(MonitoringEvent.class);
+        queue.setDroppable(droppable);
+
+        IEvent control = new PipelineLifecycleEvent("pip", Status.STARTING, null);
+        IEvent mon1 = new PipelineObservationMonitoringEvent("pip", null, Scalability.ITEMS, 1);
+        IEvent mon2 = new PipelineObservationMonitoringEvent("pip", null, Scalability.ITEMS, 2);
+        IEvent mon3 = new PipelineObservationMonitoringEvent("pip", null, Scalability.ITEMS, 3);
+        Assert.assertEquals(EventSendQueue.OverflowPolicy.BLOCK, queue.getPolicy(control));
+        Assert.assertEquals(EventSendQueue.OverflowPolicy.DROP_OLDEST, queue.getPolicy(mon1));
+        queue.put(control);
+        queue.put(mon1);
+        queue.put(mon2);
+        queue.put(mon3); // drops mon1
+        Assert.assertEquals(3, queue.size());
+        Assert.assertEquals(1, metrics.getDroppedCount());
+        Assert.assertEquals(4, metrics.getQueuedCount());
+        Assert.assertEquals(3, metrics.getMaxQueueSize());
+
+        List<IEvent> events = new ArrayList<IEvent>();
+        Assert.assertEquals(3, queue.drainTo(events, 10, 0));
+        Assert.assertSame(control, events.get(0));
+        Assert.assertSame(mon2, events.get(1));
+        Assert.assertSame(mon3, events.get(2));
+        Assert.assertFalse(queue.isEmpty()); // pending
+        queue.completed(3);
+        Assert.assertTrue(queue.isEmpty());
+    }
+
+    /**
+     * Tests blocking control events on a full send queue.
+     * 
+     * @throws InterruptedException shall not occur
+     */
+    @Test(timeout = 5000)
+    public void testSendQueueBlock() throws InterruptedException {
+        EventSendMetrics metrics = new EventSendMetrics();
+        final EventSendQueue queue = new EventSendQueue(1, metrics);
+        queue.put(new PipelineLifecycleEvent("pip", Status.STARTING, null));
+        Thread producer = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    queue.put(new PipelineLifecycleEvent("pip", Status.STOPPED, null));
+                } catch (InterruptedException e) {
+                }
+            }
+        });
+        producer.start();
+        while (producer.getState() != Thread.State.WAITING) {
+            Thread.sleep(10);
+        }
+        List<IEvent> events = new ArrayList<IEvent>();
+        Assert.assertEquals(1, queue.drainTo(events, 10, 0));
+        producer.join();
+        Assert.assertEquals(1, queue.drainTo(events, 10, 1000));
+        Assert.assertEquals(Status.STOPPED, ((PipelineLifecycleEvent) events.get(1)).getStatus());
+        Assert.assertEquals(1, metrics.getBlockedCount());
+        Assert.assertEquals(0, metrics.getDroppedCount());
+    }
+
+    /**
+     * Tests batched sending from a client to the server.
+     */
+    @Test(timeout = 10000 + EventManager.SO_TIMEOUT)
+    public void testBatchedRemote() {
+        final int count = 500;
+        Configuration.configureLocal();
+        EventManager.startServer();
+        RecordingEventHandler<PipelineObservationMonitoringEvent> rec 
+            = RecordingEventHandler.create(PipelineObservationMonitoringEvent.class);
+        EventManager.register(rec);
+
+        EventManager local = new EventManager();
+        local.doStart(false, false); // enforce the case that we are not local
+        for (int i = 0; i < count; i++) {
+            local.doSend(new PipelineObservationMonitoringEvent("pip", createKey(), Scalability.ITEMS, i));
+        }
+        local.doCleanup();
+        EventSendMetrics metrics = local.doGetSendMetrics();
+        while (rec.getReceivedCount() < count) {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+            }
+        }
+        EventManager.cleanup();
+        local.doStop();
+        EventManager.stop();
+        EventManager.unregister(rec);
+
+        Assert.assertEquals(count, metrics.getSentCount());
+        Assert.assertTrue(metrics.getFrameCount() < count); // batched
+        Assert.assertTrue(metrics.getSentBytes() > 0);
+        boolean[] received = new boolean[count]; // dispatching on server side does not preserve the order
+        for (int i = 0; i < count; i++) {
+            received[rec.getReceived(i).getObservation().intValue()] = true;
+        }
+        for (int i = 0; i < count; i++) {
+            Assert.assertTrue(received[i]);
+        }
+    }
+
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tests.eu.qualimaster.events;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import eu.qualimaster.Configuration;
+import eu.qualimaster.events.EventHandler;
+import eu.qualimaster.events.EventManager;
+import eu.qualimaster.events.IEvent;
+import eu.qualimaster.infrastructure.PipelineLifecycleEvent;
+import eu.qualimaster.infrastructure.PipelineLifecycleEvent.Status;
+import eu.qualimaster.monitoring.events.PipelineObservationMonitoringEvent;
+import eu.qualimaster.observables.TimeBehavior;
+import tests.eu.qualimaster.ManualBenchmark;
+
+/**
+ * A manual benchmark measuring the local dispatch throughput in events/s. Compares the former per-event handler
+ * resolution (walking the event class hierarchy into a fresh set, re-implemented here) with 
+ * {@link EventManager#handle(IEvent)} resolving the handlers via its per-class dispatch cache. Handlers consume 
+ * the events so that only the dispatch is measured rather than the executor. See {@link ManualBenchmark}.
+ * 
+ * @author Holger Eichelberger
+ */
+public class ManualDispatchBenchmark {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURE_ROUNDS = 10;
+    private static final int AMOUNT = 200000;
+
+    /**
+     * A handler consuming all events, i.e., no asynchronous processing takes place.
+     * 
+     * @param <E> the event type
+     * @author Holger Eichelberger
+     */
+    private static class ConsumingEventHandler <E extends IEvent> extends EventHandler<E> {
+
+        /**
+         * Creates the handler.
+         * 
+         * @param eventClass the handled event class
+         */
+        private ConsumingEventHandler(Class<E> eventClass) {
+            super(eventClass);
+        }
+
+        @Override
+        protected void handle(E event) {
+        }
+
+        @Override
+        protected boolean consume(IEvent event) {
+            return true;
+        }
+
+    }
+
+    /**
+     * A benchmarked dispatch operation.
+     * 
+     * @author Holger Eichelberger
+     */
+    private interface IDispatcher {
+
+        /**
+         * Dispatches <code>event</code>.
+         * 
+         * @param event the event
+         */
+        public void dispatch(IEvent event);
+    }
+
+    /**
+     * The former per-event dispatch, resolving the handlers along the class hierarchy for each event and checking
+     * the logging settings per handler.
+     * 
+     * @author Holger Eichelberger
+     */
+    private static class LegacyDispatcher implements IDispatcher {
+
+        private static final Logger LOGGER = LogManager.getLogger(LegacyDispatcher.class);
+        private Map<String, List<EventHandler<? extends IEvent>>> registrations 
+            = new HashMap<String, List<EventHandler<? extends IEvent>>>();
+        private Set<Class<?>> disableLogging = Collections.synchronizedSet(new HashSet<Class<?>>());
+        private AtomicInteger unprocessed = new AtomicInteger();
+
+        /**
+         * Registers a handler.
+         * 
+         * @param handler the handler
+         */
+        private void register(ConsumingEventHandler<?> handler) {
+            String name = handler.handles().getName();
+            List<EventHandler<? extends IEvent>> handlers = registrations.get(name);
+            if (null == handlers) {
+                handlers = new ArrayList<EventHandler<? extends IEvent>>();
+                registrations.put(name, handlers);
+            }
+            handlers.add(handler);
+        }
+
+        @Override
+        public void dispatch(IEvent event) {
+            Set<EventHandler<? extends IEvent>> handlers = getHandlers(event.getClass(), event.getChannel(), null);
+            if (null != handlers) {
+                for (EventHandler<? extends IEvent> handler : handlers) {
+                    unprocessed.incrementAndGet();
+                    ((ConsumingEventHandler<?>) handler).consume(event);
+                    if (!disableLogging.contains(event.getClass())) {
+                        LOGGER.info("consumed " + event);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Returns all handlers for <code>cls</code>.
+         * 
+         * @param cls the event class to search for
+         * @param channel the event channel name (may be <b>null</b> for all)
+         * @param handlers the actual handlers (may be <b>null</b> at call)
+         * @return the handlers for <code>cls</code> (may be <b>null</b> if there are none)
+         */
+        private Set<EventHandler<? extends IEvent>> getHandlers(Class<?> cls, String channel,  
+            Set<EventHandler<? extends IEvent>> handlers) {
+            List<EventHandler<? extends IEvent>> tmp = registrations.get(cls.getName());
+            if (null != tmp) {
+                if (null == handlers) {
+                    handlers = new HashSet<EventHandler<? extends IEvent>>();
+                }
+                for (int t = 0; t < tmp.size(); t++) {
+                    EventHandler<? extends IEvent> handler = tmp.get(t);
+                    if (handler.handlesChannel(channel)) {
+                        handlers.add(handler);
+                    }
+                }
+            }
+            if (null != cls.getSuperclass()) {
+                handlers = getHandlers(cls.getSuperclass(), channel, handlers);
+            }
+            Class<?>[] ifaces = cls.getInterfaces();
+            for (int i = 0, n = ifaces.length; i < n; i++) {
+                handlers = getHandlers(ifaces[i], channel, handlers);
+            }
+            return handlers;
+        }
+
+    }
+
+    /**
+     * Measures a dispatcher and prints the results.
+     * 
+     * @param name the name of the dispatcher to print
+     * @param dispatcher the dispatcher
+     * @param events the events to dispatch round robin
+     * @throws InterruptedException if interrupted
+     */
+    private static void measure(String name, final IDispatcher dispatcher, final IEvent[] events) 
+        throws InterruptedException {
+        ManualBenchmark.measure(name, "event", WARMUP_ROUNDS, MEASURE_ROUNDS, new ManualBenchmark.IRound() {
+
+            @Override
+            public long run() {
+                for (int i = 0; i < AMOUNT; i++) {
+                    dispatcher.dispatch(events[i % events.length]);
+                }
+                return AMOUNT;
+            }
+
+        });
+    }
+
+    /**
+     * Executes the benchmark.
+     * 
+     * @param args ignored
+     * @throws InterruptedException if waiting for the event manager is interrupted
+     */
+    public static void main(String[] args) throws InterruptedException {
+        List<ConsumingEventHandler<?>> handlers = new ArrayList<ConsumingEventHandler<?>>();
+        handlers.add(new ConsumingEventHandler<PipelineLifecycleEvent>(PipelineLifecycleEvent.class));
+        handlers.add(new ConsumingEventHandler<PipelineObservationMonitoringEvent>(
+            PipelineObservationMonitoringEvent.class));
+        handlers.add(new ConsumingEventHandler<IEvent>(IEvent.class));
+        IEvent[] events = new IEvent[] {
+            new PipelineLifecycleEvent("pip", Status.STARTED, null), 
+            new PipelineObservationMonitoringEvent("pip", null, TimeBehavior.LATENCY, 10.0)
+        };
+
+        LegacyDispatcher legacy = new LegacyDispatcher();
+        for (ConsumingEventHandler<?> handler : handlers) {
+            legacy.register(handler);
+        }
+        for (IEvent event : events) {
+            legacy.disableLogging.add(event.getClass());
+        }
+
+        Configuration.configureLocal();
+        for (ConsumingEventHandler<?> handler : handlers) {
+            EventManager.register(handler);
+        }
+        EventManager.disableLoggingFor(PipelineLifecycleEvent.class);
+        EventManager.disableLoggingFor(PipelineObservationMonitoringEvent.class);
+        EventManager.start(); // start before for same background threads
+        measure("per-event resolution", legacy, events);
+        measure("dispatch cache", new IDispatcher() {
+
+            @Override
+            public void dispatch(IEvent event) {
+                EventManager.handle(event);
+            }
+
+        }, events);
+        EventManager.stop();
+    }
+
+}
@@ -1,5 +1,6 @@
 package tests.eu.qualimaster.events;
 
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -16,7 +17,7 @@ import eu.qualimaster.events.TimerEvent;
  */
 class RecordingEventHandler <E extends IEvent> extends EventHandler<E> {
 
-    private List<E> events = new LinkedList<E>();
+    private List<E> events = Collections.synchronizedList(new LinkedList<E>()); // dispatched in parallel
     private String channel;
     private long interArrivalSum;
     private long lastArrival;
@@ -0,0 +1,494 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.base.algorithm;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded-size sketch of the most frequent keys (heavy hitters) in a stream. The occurrences of all keys are
+ * counted in a Count-Min sketch, i.e., an estimated count never underestimates the actual count and, with 
+ * probability <code>1 - delta</code>, overestimates it by at most <code>epsilon * {@link #getTotal()}</code>. 
+ * Each thread adds to its own stripe, consisting of its own Count-Min rows and its candidate keys, tracked in 
+ * Space-Saving fashion with fixed capacity, replacing the candidate with the minimum estimate (kept in an indexed 
+ * min-heap) if a key with a higher estimate occurs. A stripe is only written by its owning thread, so adding keys 
+ * is neither contended nor locked. Stripes are merged by summing their rows when the top keys are 
+ * {@link #topKeys(boolean) requested}. A reset starts a new epoch, which each owning thread applies to its stripe 
+ * upon its next addition. The stripe of a terminated thread is taken over by the next new thread or dropped upon 
+ * reset. As a stripe holds <code>depth * width</code> counters, the error bounds determine the memory per thread.
+ * 
+ * @author Holger Eichelberger
+ */
+public class HeavyHitterSketch {
+
+    /**
+     * The default error factor of the estimated counts relative to the total count.
+     */
+    public static final double DEFAULT_EPSILON = 0.002;
+
+    /**
+     * The default probability that an estimated count exceeds the error bound.
+     */
+    public static final double DEFAULT_DELTA = 0.02;
+
+    private static final long[] SEEDS = {0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 
+        0xD6E8FEB86659FD93L, 0xFF51AFD7ED558CCDL, 0xC4CEB9FE1A85EC53L, 0x94D049BB133111EBL, 0xBF58476D1CE4E5B9L};
+
+    private int capacity;
+    private int depth;
+    private int mask;
+    private AtomicInteger epoch = new AtomicInteger();
+    private List<Stripe> stripes = new CopyOnWriteArrayList<Stripe>();
+    private ThreadLocal<Stripe> stripe = new ThreadLocal<Stripe>() {
+
+        @Override
+        protected Stripe initialValue() {
+            Thread current = Thread.currentThread();
+            Stripe result = null;
+            for (int s = 0; null == result && s < stripes.size(); s++) {
+                Stripe tmp = stripes.get(s);
+                if (tmp.adopt(current)) {
+                    result = tmp;
+                }
+            }
+            if (null == result) {
+                result = new Stripe(current);
+                stripes.add(result);
+            }
+            return result;
+        }
+
+    };
+
+    /**
+     * A candidate key with its position in the heap of a stripe and its fixed slot in the published keys.
+     * 
+     * @author Holger Eichelberger
+     */
+    private static class Candidate {
+
+        private String key;
+        private long estimate;
+        private int index;
+        private int slot;
+
+    }
+
+    /**
+     * The counters and candidate keys of one thread. Counters, total and candidate keys are written only by the 
+     * owning thread and read by merging threads without locking. Candidates are tracked in an indexed min-heap on 
+     * the stripe-local estimates and published to merging threads via fixed slots.
+     * 
+     * @author Holger Eichelberger
+     */
+    private class Stripe {
+
+        private AtomicLongArray counts = new AtomicLongArray(depth * (mask + 1));
+        private AtomicReferenceArray<String> keys = new AtomicReferenceArray<String>(capacity);
+        private volatile long total;
+        private volatile int stripeEpoch;
+        private Map<String, Candidate> candidates = new HashMap<String, Candidate>();
+        private Candidate[] heap = new Candidate[capacity];
+        private int size;
+        private WeakReference<Thread> owner;
+        private boolean retired;
+
+        /**
+         * Creates a stripe.
+         * 
+         * @param owner the owning thread
+         */
+        private Stripe(Thread owner) {
+            this.owner = new WeakReference<Thread>(owner);
+            this.stripeEpoch = epoch.get();
+        }
+
+        /**
+         * Takes over this stripe if its owning thread terminated.
+         * 
+         * @param thread the new owning thread
+         * @return <code>true</code> if taken over, <code>false</code> else
+         */
+        private synchronized boolean adopt(Thread thread) {
+            boolean result = !retired && !isOwnerAlive();
+            if (result) {
+                owner = new WeakReference<Thread>(thread);
+            }
+            return result;
+        }
+
+        /**
+         * Retires this stripe if its owning thread terminated so that it cannot be taken over anymore.
+         * 
+         * @return <code>true</code> if retired, <code>false</code> else
+         */
+        private synchronized boolean retire() {
+            retired = !isOwnerAlive();
+            return retired;
+        }
+
+        /**
+         * Returns whether the owning thread is alive.
+         * 
+         * @return <code>true</code> if alive, <code>false</code> else
+         */
+        private boolean isOwnerAlive() {
+            Thread thread = owner.get();
+            return null != thread && thread.isAlive();
+        }
+
+        /**
+         * Returns whether this stripe belongs to the given epoch.
+         * 
+         * @param current the epoch
+         * @return <code>true</code> if this stripe belongs to <code>current</code>, <code>false</code> else
+         */
+        private boolean isIn(int current) {
+            return stripeEpoch == current;
+        }
+
+        /**
+         * Adds an occurrence of <code>key</code>. Called by the owning thread only.
+         * 
+         * @param key the key
+         */
+        private void add(String key) {
+            int current = epoch.get();
+            if (current != stripeEpoch) {
+                clear();
+                stripeEpoch = current;
+            }
+            int hash = key.hashCode();
+            long estimate = Long.MAX_VALUE;
+            for (int d = 0; d < depth; d++) {
+                int index = index(hash, d);
+                long count = counts.get(index) + 1;
+                counts.lazySet(index, count);
+                estimate = Math.min(estimate, count);
+            }
+            total = total + 1;
+            offer(key, estimate);
+        }
+
+        /**
+         * Clears the counters and the candidates for a new epoch. Called by the owning thread only.
+         */
+        private void clear() {
+            for (int i = 0; i < counts.length(); i++) {
+                counts.lazySet(i, 0);
+            }
+            for (int i = 0; i < size; i++) {
+                keys.lazySet(heap[i].slot, null);
+                heap[i] = null;
+            }
+            candidates.clear();
+            size = 0;
+            total = 0;
+        }
+
+        /**
+         * Offers a key with its current estimate. As estimates do not decrease until a reset, an update of a 
+         * candidate only moves it down in the heap. Called by the owning thread only.
+         * 
+         * @param key the key
+         * @param estimate the estimated count of <code>key</code>
+         */
+        private void offer(String key, long estimate) {
+            Candidate candidate = candidates.get(key);
+            if (null != candidate) {
+                if (estimate > candidate.estimate) {
+                    candidate.estimate = estimate;
+                    siftDown(candidate.index);
+                }
+            } else if (size < capacity) {
+                candidate = new Candidate();
+                candidate.key = key;
+                candidate.estimate = estimate;
+                candidate.index = size;
+                candidate.slot = size;
+                heap[size++] = candidate;
+                candidates.put(key, candidate);
+                keys.lazySet(candidate.slot, key);
+                siftUp(candidate.index);
+            } else if (estimate > heap[0].estimate) {
+                candidate = heap[0]; // reuse the entry of the minimum
+                candidates.remove(candidate.key);
+                candidate.key = key;
+                candidate.estimate = estimate;
+                candidates.put(key, candidate);
+                keys.lazySet(candidate.slot, key);
+                siftDown(0);
+            }
+        }
+
+        /**
+         * Moves the candidate at <code>index</code> up in the heap.
+         * 
+         * @param index the index
+         */
+        private void siftUp(int index) {
+            Candidate candidate = heap[index];
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (heap[parent].estimate <= candidate.estimate) {
+                    break;
+                }
+                place(heap[parent], index);
+                index = parent;
+            }
+            place(candidate, index);
+        }
+
+        /**
+         * Moves the candidate at <code>index</code> down in the heap.
+         * 
+         * @param index the index
+         */
+        private void siftDown(int index) {
+            Candidate candidate = heap[index];
+            int half = size >>> 1;
+            while (index < half) {
+                int child = 2 * index + 1;
+                int right = child + 1;
+                if (right < size && heap[right].estimate < heap[child].estimate) {
+                    child = right;
+                }
+                if (candidate.estimate <= heap[child].estimate) {
+                    break;
+                }
+                place(heap[child], index);
+                index = child;
+            }
+            place(candidate, index);
+        }
+
+        /**
+         * Places a candidate in the heap.
+         * 
+         * @param candidate the candidate
+         * @param index the target index
+         */
+        private void place(Candidate candidate, int index) {
+            heap[index] = candidate;
+            candidate.index = index;
+        }
+
+        /**
+         * Adds the published candidate keys to <code>result</code>.
+         * 
+         * @param result the keys to be modified as a side effect
+         */
+        private void collect(Set<String> result) {
+            for (int i = 0; i < keys.length(); i++) {
+                String key = keys.get(i);
+                if (null != key) {
+                    result.add(key);
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Creates a sketch with default error bounds.
+     * 
+     * @param capacity the maximum number of keys to be tracked per thread and to be returned by 
+     *     {@link #topKeys(boolean)}
+     * @throws IllegalArgumentException if <code>capacity</code> is not positive
+     */
+    public HeavyHitterSketch(int capacity) {
+        this(capacity, DEFAULT_EPSILON, DEFAULT_DELTA);
+    }
+
+    /**
+     * Creates a sketch.
+     * 
+     * @param capacity the maximum number of keys to be tracked per thread and to be returned by 
+     *     {@link #topKeys(boolean)}
+     * @param epsilon the error factor of estimated counts relative to the total count, determines the width
+     * @param delta the probability that an estimated count exceeds the error bound, determines the depth
+     * @throws IllegalArgumentException if <code>capacity</code> is not positive or <code>epsilon</code> or 
+     *     <code>delta</code> are not in (0;1)
+     */
+    public HeavyHitterSketch(int capacity, double epsilon, double delta) {
+        if (capacity <= 0 || epsilon <= 0 || epsilon >= 1 || delta <= 0 || delta >= 1) {
+            throw new IllegalArgumentException("illegal sketch parameters");
+        }
+        this.capacity = capacity;
+        this.depth = Math.min(SEEDS.length, Math.max(1, (int) Math.ceil(Math.log(1 / delta))));
+        int width = Integer.highestOneBit((int) Math.ceil(Math.E / epsilon) - 1) << 1;
+        this.mask = width - 1;
+    }
+
+    /**
+     * Adds an occurrence of <code>key</code>.
+     * 
+     * @param key the key (ignored if <b>null</b>)
+     */
+    public void add(String key) {
+        if (null != key) {
+            stripe.get().add(key);
+        }
+    }
+
+    /**
+     * Returns the index of <code>hash</code> in the counters of row <code>row</code>.
+     * 
+     * @param hash the hash code of the key
+     * @param row the row
+     * @return the index
+     */
+    private int index(int hash, int row) {
+        long h = (hash ^ SEEDS[row]) * SEEDS[(row + 1) % SEEDS.length];
+        return row * (mask + 1) + ((int) (h ^ (h >>> 32)) & mask);
+    }
+
+    /**
+     * Returns the estimated count of <code>key</code>.
+     * 
+     * @param key the key
+     * @return the estimated count, never less than the actual count
+     */
+    public long estimate(String key) {
+        return null == key ? 0 : estimate(key, epoch.get());
+    }
+
+    /**
+     * Returns the estimated count of <code>key</code> summed over the stripes of an epoch.
+     * 
+     * @param key the key
+     * @param current the epoch
+     * @return the estimated count, never less than the actual count
+     */
+    private long estimate(String key, int current) {
+        int hash = key.hashCode();
+        long result = Long.MAX_VALUE;
+        for (int d = 0; d < depth; d++) {
+            int index = index(hash, d);
+            long sum = 0;
+            for (int s = 0; s < stripes.size(); s++) {
+                Stripe tmp = stripes.get(s);
+                if (tmp.isIn(current)) {
+                    sum += tmp.counts.get(index);
+                }
+            }
+            result = Math.min(result, sum);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the total number of occurrences added since creation or the last reset.
+     * 
+     * @return the total number of occurrences
+     */
+    public long getTotal() {
+        int current = epoch.get();
+        long result = 0;
+        for (int s = 0; s < stripes.size(); s++) {
+            Stripe tmp = stripes.get(s);
+            if (tmp.isIn(current)) {
+                result += tmp.total;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the maximum number of keys tracked per thread and returned by {@link #topKeys(boolean)}.
+     * 
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of per-thread stripes currently registered.
+     * 
+     * @return the number of stripes
+     */
+    public int getStripeCount() {
+        return stripes.size();
+    }
+
+    /**
+     * Merges the stripes and returns the most frequent keys with their estimated counts. Occurrences added 
+     * concurrently to a reset may be counted for the next interval or be lost.
+     * 
+     * @param reset whether the sketch shall be reset for the next interval
+     * @return the (at most {@link #getCapacity()}) most frequent keys and their estimated counts
+     */
+    public Map<String, Integer> topKeys(boolean reset) {
+        int current = epoch.get();
+        Set<String> keys = new HashSet<String>();
+        for (int s = 0; s < stripes.size(); s++) {
+            Stripe tmp = stripes.get(s);
+            if (tmp.isIn(current)) {
+                tmp.collect(keys);
+            }
+        }
+        final Map<String, Long> estimates = new HashMap<String, Long>();
+        for (String key : keys) {
+            estimates.put(key, estimate(key, current));
+        }
+        if (reset) {
+            epoch.incrementAndGet();
+            List<Stripe> retired = null;
+            for (int s = 0; s < stripes.size(); s++) {
+                Stripe tmp = stripes.get(s);
+                if (tmp.retire()) {
+                    if (null == retired) {
+                        retired = new ArrayList<Stripe>();
+                    }
+                    retired.add(tmp);
+                }
+            }
+            if (null != retired) {
+                stripes.removeAll(retired);
+            }
+        }
+        List<String> sorted = new ArrayList<String>(keys);
+        if (sorted.size() > capacity) {
+            Collections.sort(sorted, new Comparator<String>() {
+
+                @Override
+                public int compare(String key1, String key2) {
+                    return Long.compare(estimates.get(key2), estimates.get(key1));
+                }
+
+            });
+            sorted = sorted.subList(0, capacity);
+        }
+        Map<String, Integer> result = new HashMap<String, Integer>();
+        for (String key : sorted) {
+            result.put(key, (int) Math.min(Integer.MAX_VALUE, estimates.get(key)));
+        }
+        return result;
+    }
+
+}
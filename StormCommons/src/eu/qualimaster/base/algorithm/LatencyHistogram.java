@@ -0,0 +1,181 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.base.algorithm;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of non-negative values, e.g., latencies, in logarithmic buckets of fixed memory. Each 
+ * power of two is divided into {@link #SUB_BUCKETS} linear sub-buckets, i.e., values below {@link #SUB_BUCKETS}
+ * are recorded exactly and the relative error of larger values is below <code>1 / {@link #SUB_BUCKETS}</code>. 
+ * Recording does not allocate and may happen concurrently to {@link #snapshot(boolean) taking snapshots}.
+ * 
+ * @author Holger Eichelberger
+ */
+public class LatencyHistogram {
+
+    /**
+     * The number of linear sub-buckets per power of two.
+     */
+    public static final int SUB_BUCKETS = 16;
+    private static final int SUB_BITS = Integer.numberOfTrailingZeros(SUB_BUCKETS);
+    private static final int BUCKETS = (Long.SIZE - SUB_BITS) * SUB_BUCKETS;
+
+    private AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private AtomicLong max = new AtomicLong();
+
+    /**
+     * A snapshot of a histogram for calculating percentiles.
+     * 
+     * @author Holger Eichelberger
+     */
+    public static class Snapshot {
+
+        private long[] counts = new long[BUCKETS];
+        private long count;
+        private long max;
+
+        /**
+         * Returns the number of values in this snapshot.
+         * 
+         * @return the number of values
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the maximum value in this snapshot.
+         * 
+         * @return the maximum value, <code>0</code> if empty
+         */
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * Returns the given percentile, i.e., the upper bound of the bucket containing the value of the given rank.
+         * 
+         * @param percentile the percentile in [0;100]
+         * @return the percentile value, <code>0</code> if empty
+         */
+        public long getPercentile(double percentile) {
+            long result = 0;
+            if (count > 0) {
+                long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100.0 * count));
+                long sum = 0;
+                int b = 0;
+                while (b < BUCKETS - 1 && sum + counts[b] < rank) {
+                    sum += counts[b];
+                    b++;
+                }
+                result = Math.min(max, upperBound(b));
+            }
+            return result;
+        }
+
+    }
+
+    /**
+     * Records a value. Negative values are recorded as <code>0</code>.
+     * 
+     * @param value the value
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+        counts.incrementAndGet(index(value));
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Returns the bucket index for <code>value</code>.
+     * 
+     * @param value the value (non-negative)
+     * @return the bucket index
+     */
+    static int index(long value) {
+        int result;
+        if (value < SUB_BUCKETS) {
+            result = (int) value;
+        } else {
+            int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+            result = (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the largest value recorded into the bucket <code>index</code>.
+     * 
+     * @param index the bucket index
+     * @return the largest value
+     */
+    static long upperBound(int index) {
+        long result;
+        if (index < SUB_BUCKETS) {
+            result = index;
+        } else {
+            int shift = index / SUB_BUCKETS - 1;
+            long top = index % SUB_BUCKETS + SUB_BUCKETS;
+            result = ((top + 1) << shift) - 1;
+        }
+        return result;
+    }
+
+    /**
+     * Takes a snapshot of this histogram.
+     * 
+     * @param reset whether this histogram shall be reset, i.e., values recorded concurrently end up either in the 
+     *     snapshot or in the next one
+     * @return the snapshot
+     */
+    public Snapshot snapshot(boolean reset) {
+        Snapshot result = new Snapshot();
+        snapshot(result, reset);
+        return result;
+    }
+
+    /**
+     * Takes a snapshot of this histogram into an existing snapshot instance, e.g., to avoid allocation.
+     * 
+     * @param snapshot the snapshot to be overwritten
+     * @param reset whether this histogram shall be reset, i.e., values recorded concurrently end up either in the 
+     *     snapshot or in the next one
+     */
+    public void snapshot(Snapshot snapshot, boolean reset) {
+        long count = 0;
+        int highest = -1;
+        for (int b = 0; b < BUCKETS; b++) {
+            long c = reset ? counts.getAndSet(b, 0) : counts.get(b);
+            snapshot.counts[b] = c;
+            count += c;
+            if (c > 0) {
+                highest = b;
+            }
+        }
+        snapshot.count = count;
+        long m = reset ? max.getAndSet(0) : max.get();
+        if (highest > 0) { // concurrent recording may have updated max after resetting the counts
+            m = Math.max(m, upperBound(highest - 1) + 1);
+        }
+        snapshot.max = m;
+    }
+
+}
@@ -0,0 +1,218 @@
+package eu.qualimaster.base.serializer;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import backtype.storm.serialization.KryoValuesDeserializer;
+import backtype.storm.serialization.KryoValuesSerializer;
+import eu.qualimaster.base.algorithm.IGeneralTuple;
+
+/**
+ * Common functionality of the kryo-based tuple serializers. Instances are not thread-safe, i.e., a serializer
+ * shall be used by a single thread.
+ * 
+ * @param <T> the tuple type
+ * @author Cui Qin
+ *
+ */
+public abstract class AbstractKryoTupleSerializer<T extends IGeneralTuple> {
+
+    /**
+     * The initial size of the output buffer.
+     */
+    public static final int INITIAL_BUFFER_SIZE = 2000;
+
+    /**
+     * The maximum size of the output buffer, i.e., the maximum size of a serialized tuple.
+     */
+    public static final int MAX_BUFFER_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * The maximum size of the output buffer retained after serializing a tuple. Larger buffers are released
+     * after serialization so that a single large tuple does not pin memory.
+     */
+    public static final int RETAINED_BUFFER_SIZE = 1024 * 1024;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    /**
+     * An output writing into a fixed caller-supplied array, recording whether writing exceeded the array. Kryo
+     * signals the overflow by a generic {@link KryoException}, which may even be wrapped by nested serializers.
+     * 
+     * @author Cui Qin
+     */
+    private static class WrappingOutput extends Output {
+
+        private boolean overflow;
+
+        /**
+         * Creates a wrapping output.
+         */
+        private WrappingOutput() {
+            super(1);
+        }
+
+        /**
+         * Wraps the given array.
+         * 
+         * @param array the array to write into
+         * @param start the position to start writing at
+         */
+        private void wrap(byte[] array, int start) {
+            setBuffer(array, array.length); // max = length, i.e., no growth
+            setPosition(start);
+            overflow = false;
+        }
+
+        @Override
+        protected boolean require(int required) throws KryoException {
+            if (capacity - position < required) {
+                overflow = true;
+            }
+            return super.require(required);
+        }
+
+    }
+
+    private KryoValuesSerializer valuesSer;
+    private KryoValuesDeserializer valuesDeser;
+    private Output kryoOut;
+    private WrappingOutput wrapOut; // writes directly into caller-supplied heap buffers
+    private Input kryoIn;
+
+    /**
+     * Creates the serializer.
+     * 
+     * @param conf the Storm configuration
+     */
+    @SuppressWarnings("rawtypes")
+    protected AbstractKryoTupleSerializer(Map conf) {
+        this.valuesSer = new KryoValuesSerializer(conf);
+        this.valuesDeser = new KryoValuesDeserializer(conf);
+        this.kryoIn = new Input(1);
+        this.kryoOut = new Output(INITIAL_BUFFER_SIZE, MAX_BUFFER_SIZE);
+        this.wrapOut = new WrappingOutput();
+    }
+
+    /**
+     * Writes a tuple to the given output.
+     * 
+     * @param tuple the tuple
+     * @param output the output
+     */
+    protected abstract void write(T tuple, Output output);
+
+    /**
+     * Writes tuple values to the given output.
+     * 
+     * @param values the values
+     * @param output the output
+     * @throws KryoException if writing the values fails, as a silently skipped value would corrupt the stream
+     */
+    protected void writeValues(List<Object> values, Output output) {
+        try {
+            valuesSer.serializeInto(values, output);
+        } catch (IOException e) {
+            throw new KryoException(e);
+        }
+    }
+
+    /**
+     * Reads tuple values from the given input.
+     * 
+     * @param input the input
+     * @return the values
+     */
+    protected List<Object> readValues(Input input) {
+        return valuesDeser.deserializeFrom(input);
+    }
+
+    /**
+     * Serializes a tuple into a new byte array.
+     * 
+     * @param tuple the tuple
+     * @return the bytes
+     */
+    protected byte[] serializeToBytes(T tuple) {
+        kryoOut.clear();
+        write(tuple, kryoOut);
+        byte[] result = kryoOut.toBytes();
+        shrinkOutput();
+        return result;
+    }
+
+    /**
+     * Shrinks the internal output buffer if it grew beyond {@link #RETAINED_BUFFER_SIZE}.
+     */
+    private void shrinkOutput() {
+        if (kryoOut.getBuffer().length > RETAINED_BUFFER_SIZE) {
+            kryoOut.setBuffer(new byte[INITIAL_BUFFER_SIZE], MAX_BUFFER_SIZE);
+        }
+    }
+
+    /**
+     * Returns the input for reading from the given slice.
+     * 
+     * @param buffer the buffer
+     * @param offset the offset of the tuple bytes in <code>buffer</code>
+     * @param length the number of tuple bytes
+     * @return the input
+     */
+    protected Input startInput(byte[] buffer, int offset, int length) {
+        kryoIn.setBuffer(buffer, offset, length);
+        return kryoIn;
+    }
+
+    /**
+     * Writes a tuple into a caller-supplied byte buffer. If <code>target</code> is a heap buffer whose remaining
+     * space extends to the end of its backing array, the tuple is written in place, else the tuple is written 
+     * to the internal output buffer and copied in bulk.
+     * 
+     * @param tuple the tuple
+     * @param target the target buffer, the position is advanced by the number of bytes written
+     * @return the number of bytes written
+     * @throws BufferOverflowException if <code>target</code> has not enough space left, the position of 
+     *     <code>target</code> is not changed then
+     */
+    protected int serializeToBuffer(T tuple, ByteBuffer target) {
+        int result;
+        if (target.hasArray() && target.arrayOffset() + target.limit() == target.array().length) {
+            byte[] array = target.array();
+            int start = target.arrayOffset() + target.position();
+            wrapOut.wrap(array, start);
+            try {
+                write(tuple, wrapOut);
+                result = wrapOut.position() - start;
+            } catch (KryoException e) {
+                if (wrapOut.overflow) {
+                    throw new BufferOverflowException();
+                }
+                throw e;
+            } finally {
+                wrapOut.setBuffer(EMPTY, 0); // don't keep the target array alive
+            }
+            target.position(target.position() + result);
+        } else {
+            kryoOut.clear();
+            write(tuple, kryoOut);
+            result = kryoOut.position();
+            boolean fits = result <= target.remaining();
+            if (fits) {
+                target.put(kryoOut.getBuffer(), 0, result);
+            }
+            shrinkOutput();
+            if (!fits) {
+                throw new BufferOverflowException();
+            }
+        }
+        return result;
+    }
+
+}
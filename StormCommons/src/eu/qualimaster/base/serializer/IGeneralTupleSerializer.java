@@ -1,5 +1,8 @@
 package eu.qualimaster.base.serializer;
 
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
 import eu.qualimaster.base.algorithm.IGeneralTuple;
 /**
  * Serializer for the general Tuple {@link IGeneralTuple}.
@@ -13,10 +16,33 @@ public interface IGeneralTupleSerializer {
      * @return the serialized bytes
      */
     public byte[] serialize(IGeneralTuple tuple);
+    /**
+     * Serializes the general tuple {@link IGeneralTuple} into the given buffer without intermediary byte arrays.
+     * @param tuple the general tuple
+     * @param target the target buffer, the position is advanced by the number of bytes written
+     * @return the number of bytes written
+     * @throws BufferOverflowException if <code>target</code> has not enough space left, the position of 
+     *     <code>target</code> is not changed then
+     */
+    public int serializeTo(IGeneralTuple tuple, ByteBuffer target);
     /**
      * Deserializes the general tuple {@link IGeneralTuple}.
      * @param ser the general tuple bytes.
      * @return the general tuple
      */
     public IGeneralTuple deserialize(byte[] ser);
+    /**
+     * Deserializes the general tuple {@link IGeneralTuple} from a slice of a buffer without copying the slice.
+     * @param buffer the buffer containing the general tuple bytes
+     * @param offset the offset of the tuple bytes in <code>buffer</code>
+     * @param length the number of tuple bytes
+     * @return the general tuple
+     */
+    public IGeneralTuple deserialize(byte[] buffer, int offset, int length);
+    /**
+     * Releases a deserialized tuple, i.e., the tuple may be reused by a subsequent deserialization. The caller
+     * must not use <code>tuple</code> afterwards. Does nothing if the serializer does not reuse tuples.
+     * @param tuple the tuple to be released
+     */
+    public void release(IGeneralTuple tuple);
 }
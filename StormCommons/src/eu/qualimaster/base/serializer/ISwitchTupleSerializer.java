@@ -1,5 +1,8 @@
 package eu.qualimaster.base.serializer;
 
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
 import eu.qualimaster.base.algorithm.ISwitchTuple;
 /**
  * Serializer for the switch tuple.
@@ -13,10 +16,33 @@ public interface ISwitchTupleSerializer {
      * @return the serialized bytes
      */
     public byte[] serialize(ISwitchTuple tuple);
+    /**
+     * Serializes the switch tuple into the given buffer without intermediary byte arrays.
+     * @param tuple the switch tuple
+     * @param target the target buffer, the position is advanced by the number of bytes written
+     * @return the number of bytes written
+     * @throws BufferOverflowException if <code>target</code> has not enough space left, the position of 
+     *     <code>target</code> is not changed then
+     */
+    public int serializeTo(ISwitchTuple tuple, ByteBuffer target);
     /**
      * Deserializes the switch tuple.
      * @param ser the switch tuple bytes.
      * @return the switch tuple
      */
     public ISwitchTuple deserialize(byte[] ser);
+    /**
+     * Deserializes the switch tuple from a slice of a buffer without copying the slice.
+     * @param buffer the buffer containing the switch tuple bytes
+     * @param offset the offset of the tuple bytes in <code>buffer</code>
+     * @param length the number of tuple bytes
+     * @return the switch tuple
+     */
+    public ISwitchTuple deserialize(byte[] buffer, int offset, int length);
+    /**
+     * Releases a deserialized tuple, i.e., the tuple may be reused by a subsequent deserialization. The caller
+     * must not use <code>tuple</code> afterwards. Does nothing if the serializer does not reuse tuples.
+     * @param tuple the tuple to be released
+     */
+    public void release(ISwitchTuple tuple);
 }
@@ -1,13 +1,10 @@
 package eu.qualimaster.base.serializer;
 
-import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Map;
 
-import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 
-import backtype.storm.serialization.KryoValuesDeserializer;
-import backtype.storm.serialization.KryoValuesSerializer;
 import eu.qualimaster.base.algorithm.GeneralTuple;
 import eu.qualimaster.base.algorithm.IGeneralTuple;
 /**
@@ -15,38 +12,85 @@ import eu.qualimaster.base.algorithm.IGeneralTuple;
  * @author Cui Qin
  *
  */
-public class KryoGeneralTupleSerializer implements IGeneralTupleSerializer {
-    private KryoValuesSerializer valuesSer;
-    private KryoValuesDeserializer valuesDeser;
-    private Output kryoOut;
-    private Input kryoIn;
+public class KryoGeneralTupleSerializer extends AbstractKryoTupleSerializer<IGeneralTuple> 
+    implements IGeneralTupleSerializer {
+    private TuplePool<GeneralTuple> pool;
+    
     /**
      * Creates the kryo serializer for the general tuple.
      * @param conf the Storm configuration file
      */
     @SuppressWarnings("rawtypes")
     public KryoGeneralTupleSerializer(final Map conf) {
-        this.valuesSer = new KryoValuesSerializer(conf);
-        this.valuesDeser = new KryoValuesDeserializer(conf);
-        this.kryoIn = new Input(1);
-        this.kryoOut = new Output(2000, 2000000000);
+        this(conf, 0);
     }
+
+    /**
+     * Creates the kryo serializer for the general tuple reusing deserialized tuple instances.
+     * @param conf the Storm configuration file
+     * @param poolSize the maximum number of pooled tuple instances, see {@link #release(IGeneralTuple)}, 
+     *     <code>0</code> for no pooling
+     */
+    @SuppressWarnings("rawtypes")
+    public KryoGeneralTupleSerializer(final Map conf, int poolSize) {
+        super(conf);
+        if (poolSize > 0) {
+            pool = new TuplePool<GeneralTuple>(poolSize) {
+
+                @Override
+                protected GeneralTuple create() {
+                    return new GeneralTuple();
+                }
+            };
+        }
+    }
+
+    @Override
+    protected void write(IGeneralTuple tuple, Output output) {
+        writeValues(tuple.getValues(), output);
+    }
+
     @Override
     public byte[] serialize(IGeneralTuple tuple) {
-        kryoOut.clear();
-        try {
-            valuesSer.serializeInto(tuple.getValues(), kryoOut);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        return kryoOut.toBytes();
+        return serializeToBytes(tuple);
+    }
+
+    @Override
+    public int serializeTo(IGeneralTuple tuple, ByteBuffer target) {
+        return serializeToBuffer(tuple, target);
+    }
+
+    /**
+     * Serializes the general tuple {@link IGeneralTuple} directly into the given output.
+     * @param tuple the general tuple
+     * @param output the output to write to
+     */
+    public void serializeTo(IGeneralTuple tuple, Output output) {
+        write(tuple, output);
     }
 
     @Override
     public IGeneralTuple deserialize(byte[] ser) {
-        kryoIn.setBuffer(ser);
-        IGeneralTuple tuple = new GeneralTuple(valuesDeser.deserializeFrom(kryoIn));
+        return deserialize(ser, 0, ser.length);
+    }
+
+    @Override
+    public IGeneralTuple deserialize(byte[] buffer, int offset, int length) {
+        IGeneralTuple tuple;
+        if (null == pool) {
+            tuple = new GeneralTuple(readValues(startInput(buffer, offset, length)));
+        } else {
+            tuple = pool.obtain();
+            tuple.setValues(readValues(startInput(buffer, offset, length)));
+        }
         return tuple;
     }
 
+    @Override
+    public void release(IGeneralTuple tuple) {
+        if (null != pool && tuple instanceof GeneralTuple && tuple.isGeneralTuple()) {
+            pool.release((GeneralTuple) tuple);
+        }
+    }
+
 }
@@ -1,13 +1,11 @@
 package eu.qualimaster.base.serializer;
 
-import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Map;
 
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 
-import backtype.storm.serialization.KryoValuesDeserializer;
-import backtype.storm.serialization.KryoValuesSerializer;
 import eu.qualimaster.base.algorithm.ISwitchTuple;
 import eu.qualimaster.base.algorithm.SwitchTuple;
 
@@ -16,11 +14,9 @@ import eu.qualimaster.base.algorithm.SwitchTuple;
  * @author qin
  *
  */
-public class KryoSwitchTupleSerializer implements ISwitchTupleSerializer {
-    private KryoValuesSerializer valuesSer;
-    private KryoValuesDeserializer valuesDeser;
-    private Output kryoOut;
-    private Input kryoIn;
+public class KryoSwitchTupleSerializer extends AbstractKryoTupleSerializer<ISwitchTuple> 
+    implements ISwitchTupleSerializer {
+    private TuplePool<SwitchTuple> pool;
     
     /**
      * Creates the kryo serializer for the switch tuple.
@@ -28,29 +24,79 @@ public class KryoSwitchTupleSerializer implements ISwitchTupleSerializer {
      */
     @SuppressWarnings("rawtypes")
     public KryoSwitchTupleSerializer(final Map conf) {
-        this.valuesSer = new KryoValuesSerializer(conf);
-        this.valuesDeser = new KryoValuesDeserializer(conf);
-        this.kryoIn = new Input(1);
-        this.kryoOut = new Output(2000, 2000000000);
+        this(conf, 0);
     }
-    
+
+    /**
+     * Creates the kryo serializer for the switch tuple reusing deserialized tuple instances.
+     * @param conf the storm config
+     * @param poolSize the maximum number of pooled tuple instances, see {@link #release(ISwitchTuple)}, 
+     *     <code>0</code> for no pooling
+     */
+    @SuppressWarnings("rawtypes")
+    public KryoSwitchTupleSerializer(final Map conf, int poolSize) {
+        super(conf);
+        if (poolSize > 0) {
+            pool = new TuplePool<SwitchTuple>(poolSize) {
+
+                @Override
+                protected SwitchTuple create() {
+                    return new SwitchTuple(0, null);
+                }
+            };
+        }
+    }
+
+    @Override
+    protected void write(ISwitchTuple tuple, Output output) {
+        output.writeLong(tuple.getId());
+        writeValues(tuple.getValues(), output);
+    }
+
     @Override
     public byte[] serialize(ISwitchTuple tuple) {
-        kryoOut.clear();
-        kryoOut.writeLong(tuple.getId());
-        try {
-            valuesSer.serializeInto(tuple.getValues(), kryoOut);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        return kryoOut.toBytes();
+        return serializeToBytes(tuple);
+    }
+
+    @Override
+    public int serializeTo(ISwitchTuple tuple, ByteBuffer target) {
+        return serializeToBuffer(tuple, target);
+    }
+
+    /**
+     * Serializes the switch tuple directly into the given output.
+     * @param tuple the switch tuple
+     * @param output the output to write to
+     */
+    public void serializeTo(ISwitchTuple tuple, Output output) {
+        write(tuple, output);
     }
 
     @Override
     public ISwitchTuple deserialize(byte[] ser) {
-        kryoIn.setBuffer(ser);
-        ISwitchTuple tuple = new SwitchTuple(kryoIn.readLong(), valuesDeser.deserializeFrom(kryoIn));
+        return deserialize(ser, 0, ser.length);
+    }
+
+    @Override
+    public ISwitchTuple deserialize(byte[] buffer, int offset, int length) {
+        Input in = startInput(buffer, offset, length);
+        long id = in.readLong();
+        ISwitchTuple tuple;
+        if (null == pool) {
+            tuple = new SwitchTuple(id, readValues(in));
+        } else {
+            tuple = pool.obtain();
+            tuple.setId(id);
+            tuple.setValues(readValues(in));
+        }
         return tuple;
     }
 
+    @Override
+    public void release(ISwitchTuple tuple) {
+        if (null != pool && tuple instanceof SwitchTuple) {
+            pool.release((SwitchTuple) tuple);
+        }
+    }
+
 }
@@ -0,0 +1,98 @@
+package eu.qualimaster.base.serializer;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import eu.qualimaster.base.algorithm.IGeneralTuple;
+
+/**
+ * A bounded, lock-free and allocation-free pool of tuple instances. Tuples are obtained by the (single) thread 
+ * owning a serializer, i.e., the pool is per deserializing thread, but may be released by any thread, e.g., by 
+ * the spout thread after a tuple was emitted or acknowledged. If the pool is empty, new instances are created.
+ * If the pool is full, released instances are left to the garbage collector.
+ * 
+ * @param <T> the tuple type
+ * @author Cui Qin
+ *
+ */
+public abstract class TuplePool<T extends IGeneralTuple> {
+
+    private AtomicReferenceArray<T> slots;
+    private int obtainHint; // rotating start index for obtain, only used by the owning thread
+    private volatile int releaseHint; // rotating start index for release, races are harmless
+
+    /**
+     * Creates a tuple pool.
+     * 
+     * @param size the maximum number of pooled instances (positive)
+     * @throws IllegalArgumentException if <code>size</code> is not positive
+     */
+    protected TuplePool(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size must be positive");
+        }
+        slots = new AtomicReferenceArray<T>(size);
+    }
+
+    /**
+     * Creates a new tuple instance.
+     * 
+     * @return the tuple instance
+     */
+    protected abstract T create();
+
+    /**
+     * Obtains a tuple instance from the pool or creates a new one if the pool is empty. The values of the
+     * returned instance are undefined, i.e., they must be set by the caller.
+     * 
+     * @return the tuple instance
+     */
+    public T obtain() {
+        T result = null;
+        int size = slots.length();
+        for (int i = 0; null == result && i < size; i++) {
+            int pos = (obtainHint + i) % size;
+            result = slots.getAndSet(pos, null);
+            if (null != result) {
+                obtainHint = pos;
+            }
+        }
+        if (null == result) {
+            result = create();
+        }
+        return result;
+    }
+
+    /**
+     * Returns a tuple instance to the pool. The caller must not use <code>tuple</code> afterwards. The values of 
+     * <code>tuple</code> are cleared in order to avoid keeping them alive.
+     * 
+     * @param tuple the tuple instance (ignored if <b>null</b>)
+     * @return <code>true</code> if pooled, <code>false</code> if the pool is full
+     */
+    public boolean release(T tuple) {
+        boolean done = false;
+        if (null != tuple) {
+            tuple.setValues(null);
+            int size = slots.length();
+            int hint = releaseHint;
+            for (int i = 0; !done && i < size; i++) {
+                int pos = (hint + i) % size;
+                done = slots.compareAndSet(pos, null, tuple);
+                if (done) {
+                    releaseHint = pos + 1;
+                }
+            }
+        }
+        return done;
+    }
+
+    /**
+     * Returns the maximum number of pooled instances.
+     * 
+     * @return the maximum number
+     */
+    public int getSize() {
+        return slots.length();
+    }
+
+}
@@ -5,9 +5,11 @@ import org.apache.storm.curator.framework.CuratorFramework;
 import org.apache.storm.curator.framework.imps.CuratorFrameworkState;
 import org.apache.storm.zookeeper.WatchedEvent;
 import org.apache.storm.zookeeper.Watcher;
+import org.apache.storm.zookeeper.Watcher.Event.EventType;
 import org.apache.storm.zookeeper.data.Stat;
 
 import eu.qualimaster.Configuration;
+import eu.qualimaster.base.algorithm.LatencyHistogram;
 import eu.qualimaster.events.EventManager;
 import eu.qualimaster.events.IEvent;
 
@@ -23,6 +25,9 @@ public abstract class AbstractSignalConnection implements Watcher {
     private CuratorFramework client;
     private SignalListener listener;
     private EventManager eventManager;
+    private boolean useQueue;
+    private String receiverId;
+    private volatile SignalQueue queue;
 
     /**
      * Creates a signal connection.
@@ -53,6 +58,41 @@ public abstract class AbstractSignalConnection implements Watcher {
         return client;
     }
     
+    /**
+     * Enables receiving signals via the queued signal channel ({@link SignalQueue}) in addition to the plain curator
+     * signal path. Must be called before {@link #initWatcher()}.
+     */
+    protected void enableSignalQueue() {
+        useQueue = true;
+    }
+
+    /**
+     * Defines the id of this receiver among the receivers of the same element, e.g., the task id. Enables storing
+     * the cursor of the queued signal channel so that a re-initialized receiver resumes after the last processed 
+     * signal. Must be called before {@link #initWatcher()}.
+     * 
+     * @param receiverId the receiver id, <b>null</b> for no cursor
+     */
+    protected void setReceiverId(String receiverId) {
+        this.receiverId = receiverId;
+    }
+
+    /**
+     * Takes a snapshot of the end-to-end latencies of the signals received via the queued signal channel.
+     * 
+     * @param snapshot the snapshot to be filled (modified as a side effect)
+     * @param reset whether the latencies shall be reset after taking the snapshot
+     * @return <code>true</code> if <code>snapshot</code> was filled, <code>false</code> if the queued signal channel
+     *     is not used
+     */
+    public boolean getSignalLatencies(LatencyHistogram.Snapshot snapshot, boolean reset) {
+        SignalQueue q = queue;
+        if (null != q) {
+            q.getLatencies(snapshot, reset);
+        }
+        return null != q;
+    }
+    
     // checkstyle: stop exception type check
     
     /**
@@ -68,6 +108,10 @@ public abstract class AbstractSignalConnection implements Watcher {
                 client.create().creatingParentsIfNeeded().forPath(path);
             }
             stat = client.checkExists().usingWatcher(this).forPath(path);
+            if (useQueue) {
+                queue = new SignalQueue(client, SignalQueue.getQueuePath(path), receiverId, listener);
+                queue.init(this);
+            }
         }
     }
     
@@ -98,10 +142,12 @@ public abstract class AbstractSignalConnection implements Watcher {
     public void process(WatchedEvent we) {
         if (Configuration.getPipelineSignalsCurator() && isConnected()) {
             String path = getWatchedPath();
-            try {
-                client.checkExists().usingWatcher(this).forPath(path);
-            } catch (Exception ex) {
-                LOGGER.error("Error renewing watch." + ex);
+            if (EventType.NodeChildrenChanged != we.getType()) { // queue watch is renewed when receiving
+                try {
+                    client.checkExists().usingWatcher(this).forPath(path);
+                } catch (Exception ex) {
+                    LOGGER.error("Error renewing watch." + ex);
+                }
             }
     
             switch (we.getType()) {
@@ -125,6 +171,13 @@ public abstract class AbstractSignalConnection implements Watcher {
             case None:
                 break;
             case NodeChildrenChanged:
+                if (null != queue) {
+                    try {
+                        queue.receive(this);
+                    } catch (Exception e) {
+                        LOGGER.error("Warning: Unable to process queued signals." + e, e);
+                    }
+                }
                 break;
             default:
                 break;
@@ -161,6 +214,10 @@ public abstract class AbstractSignalConnection implements Watcher {
      */
     public void close() {
         if (Configuration.getPipelineSignalsCurator()) {
+            SignalQueue q = queue;
+            if (null != q) {
+                q.close();
+            }
             client.clearWatcherReferences(this);
             client.close();
         }
@@ -79,7 +79,9 @@ public abstract class BaseSignalBolt extends BaseRichBolt implements SignalListe
         try {
             LOGGER.info("Prepare--basesignalbolt....");
             signalConnection = new StormSignalConnection(this.name, this, pipeline);
+            signalConnection.setReceiverId(String.valueOf(context.getThisTaskId()));
             signalConnection.init(conf);
+            monitor.setSignalConnection(signalConnection);
             if (Configuration.getPipelineSignalsQmEvents()) {
                 algorithmEventHandler = AlgorithmChangeEventHandler.createAndRegister(this, pipeline, name);
                 parameterEventHandler = ParameterChangeEventHandler.createAndRegister(this, pipeline, name);
@@ -77,7 +77,9 @@ public abstract class BaseSignalSpout extends BaseRichSpout implements SignalLis
         try {
             LOGGER.info("Prepare--basesignalspout....");
             signalConnection = new StormSignalConnection(this.name, this, pipeline);
+            signalConnection.setReceiverId(String.valueOf(context.getThisTaskId()));
             signalConnection.init(conf);
+            monitor.setSignalConnection(signalConnection);
             if (Configuration.getPipelineSignalsQmEvents()) {
                 parameterEventHandler = ParameterChangeEventHandler.createAndRegister(this, pipeline, name);
                 shutdownEventHandler = ShutdownEventHandler.createAndRegister(this, pipeline, name);
@@ -33,6 +33,7 @@ import backtype.storm.hooks.info.SpoutAckInfo;
 import backtype.storm.hooks.info.SpoutFailInfo;
 import backtype.storm.task.TopologyContext;
 import eu.qualimaster.base.algorithm.IncrementalAverage;
+import eu.qualimaster.base.algorithm.LatencyHistogram;
 import eu.qualimaster.common.monitoring.MonitoringPluginRegistry;
 import eu.qualimaster.events.AbstractTimerEventHandler;
 import eu.qualimaster.events.EventManager;
@@ -67,6 +68,10 @@ public class Monitor extends AbstractMonitor implements IMonitoringChangeListene
     private String namespace;
     private String name;
     private IncrementalAverage executionTime;
+    private LatencyHistogram latency = new LatencyHistogram();
+    private LatencyHistogram.Snapshot latencySnapshot = new LatencyHistogram.Snapshot(); // reused per send
+    private LatencyHistogram.Snapshot signalLatencySnapshot = new LatencyHistogram.Snapshot(); // reused per send
+    private volatile AbstractSignalConnection signalConnection;
     private long sendInterval; 
     private ComponentKey key;
     private AtomicLong lastSend = new AtomicLong();
@@ -173,6 +178,7 @@ public class Monitor extends AbstractMonitor implements IMonitoringChangeListene
     public void aggregateExecutionTime(long start, int itemsCount) {
         long now = System.currentTimeMillis();
         executionTime.addValue(now - start);
+        latency.record(now - start);
         itemsSend.addAndGet(Math.max(0, itemsCount));
         checkSend(now);
     }
@@ -183,32 +189,83 @@ public class Monitor extends AbstractMonitor implements IMonitoringChangeListene
      * @param now the current time
      */
     protected void checkSend(long now) {
-        if (sendInterval > 0 && now - lastSend.get() > sendInterval) {
-            if (includeItems) {
-                Map<IObservable, Double> data = new HashMap<IObservable, Double>();
+        long last = lastSend.get();
+        // only one of the concurrently executing threads sends
+        if (sendInterval > 0 && now - last > sendInterval && lastSend.compareAndSet(last, now)) {
+            // data is owned by the event as it is sent asynchronously
+            Map<IObservable, Double> data = new HashMap<IObservable, Double>();
+            if (includeItems || MonitoringPluginRegistry.getRegisteredPluginCount() > 0) {
                 MonitoringPluginRegistry.collectObservations(data);
-                data.put(TimeBehavior.LATENCY, executionTime.getAverage());
+            }
+            data.put(TimeBehavior.LATENCY, executionTime.getAverage());
+            if (includeItems) {
                 data.put(TimeBehavior.THROUGHPUT_ITEMS, Double.valueOf(itemsSend.get()));
                 long itemsTmp = itemsVolume.get();
                 if (collectVolume && itemsTmp > 0) {
                     data.put(TimeBehavior.THROUGHPUT_VOLUME, Double.valueOf(itemsTmp));
                 }
-                EventManager.send(new PipelineElementMultiObservationMonitoringEvent(namespace, name, key, data));
+            }
+            collectLatencyPercentiles(data);
+            collectSignalLatencyPercentiles(data);
+            if (1 == data.size()) {
+                EventManager.send(new PipelineElementObservationMonitoringEvent(namespace, name, key, 
+                    TimeBehavior.LATENCY, executionTime.getAverage()));
             } else {
-                if (MonitoringPluginRegistry.getRegisteredPluginCount() > 0) {
-                    Map<IObservable, Double> data = new HashMap<IObservable, Double>();
-                    MonitoringPluginRegistry.collectObservations(data);
-                    data.put(TimeBehavior.LATENCY, executionTime.getAverage());
-                    EventManager.send(new PipelineElementMultiObservationMonitoringEvent(namespace, name, key, data));
-                } else {
-                    EventManager.send(new PipelineElementObservationMonitoringEvent(namespace, name, key, 
-                        TimeBehavior.LATENCY, executionTime.getAverage()));
-                }
+                EventManager.send(new PipelineElementMultiObservationMonitoringEvent(namespace, name, key, data));
+            }
+        }
+    }
+
+    /**
+     * Collects the latency percentiles recorded since the last send and resets the recording.
+     * 
+     * @param data the observations to be modified as a side effect
+     */
+    private void collectLatencyPercentiles(Map<IObservable, Double> data) {
+        synchronized (latencySnapshot) {
+            latency.snapshot(latencySnapshot, true);
+            if (latencySnapshot.getCount() > 0) {
+                data.put(TimeBehavior.LATENCY_P50, Double.valueOf(latencySnapshot.getPercentile(50)));
+                data.put(TimeBehavior.LATENCY_P95, Double.valueOf(latencySnapshot.getPercentile(95)));
+                data.put(TimeBehavior.LATENCY_P99, Double.valueOf(latencySnapshot.getPercentile(99)));
+                data.put(TimeBehavior.LATENCY_MAX, Double.valueOf(latencySnapshot.getMax()));
             }
-            lastSend.set(now);
         }
     }
     
+    /**
+     * Collects the end-to-end latency percentiles of the signals received via the queued signal channel since the 
+     * last send and resets the recording.
+     * 
+     * @param data the observations to be modified as a side effect
+     */
+    private void collectSignalLatencyPercentiles(Map<IObservable, Double> data) {
+        AbstractSignalConnection connection = signalConnection;
+        if (null != connection) {
+            synchronized (signalLatencySnapshot) {
+                if (connection.getSignalLatencies(signalLatencySnapshot, true) 
+                    && signalLatencySnapshot.getCount() > 0) {
+                    data.put(TimeBehavior.SIGNAL_LATENCY_P50, 
+                        Double.valueOf(signalLatencySnapshot.getPercentile(50)));
+                    data.put(TimeBehavior.SIGNAL_LATENCY_P95, 
+                        Double.valueOf(signalLatencySnapshot.getPercentile(95)));
+                    data.put(TimeBehavior.SIGNAL_LATENCY_P99, 
+                        Double.valueOf(signalLatencySnapshot.getPercentile(99)));
+                    data.put(TimeBehavior.SIGNAL_LATENCY_MAX, Double.valueOf(signalLatencySnapshot.getMax()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Defines the signal connection to take the latencies of the received signals from.
+     * 
+     * @param signalConnection the signal connection (may be <b>null</b>)
+     */
+    void setSignalConnection(AbstractSignalConnection signalConnection) {
+        this.signalConnection = signalConnection;
+    }
+
     /**
      * Returns the component key.
      * 
@@ -294,6 +351,7 @@ public class Monitor extends AbstractMonitor implements IMonitoringChangeListene
     public void boltExecute(BoltExecuteInfo info) {
         if (null != info && null != info.executeLatencyMs) {
             executionTime.addValue(info.executeLatencyMs);
+            latency.record(info.executeLatencyMs);
             checkSend(System.currentTimeMillis());
         }
     }
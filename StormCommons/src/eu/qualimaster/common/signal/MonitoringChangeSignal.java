@@ -33,6 +33,7 @@ public class MonitoringChangeSignal extends AbstractTopologyExecutorSignal {
     private static final String IDENTIFIER = "mon";
     private Map<MonitoringFrequency, Integer> frequencies;
     private Map<IObservable, Boolean> observables;
+    private Integer keyCapacity;
 
     /**
      * Creates the signal.
@@ -46,9 +47,27 @@ public class MonitoringChangeSignal extends AbstractTopologyExecutorSignal {
      */
     public MonitoringChangeSignal(String topology, String executor, Map<MonitoringFrequency, Integer> frequencies, 
         Map<IObservable, Boolean> observables, String causeMsgId) {
+        this(topology, executor, frequencies, observables, null, causeMsgId);
+    }
+
+    /**
+     * Creates the signal.
+     * 
+     * @param topology the topology
+     * @param executor the executor name
+     * @param frequencies the desired monitoring frequencies, <b>null</b> for unspecified, 0 or negative for 
+     *     completely disabled
+     * @param observables the enabled/disabled observables, <b>null</b> for unspecified
+     * @param keyCapacity the number of most frequent keys a source shall aggregate approximately for volume 
+     *     prediction, <b>null</b> for unspecified, 0 or negative for exact aggregation of all keys
+     * @param causeMsgId the message id of the causing message (may be <b>null</b> or empty if there is none)
+     */
+    public MonitoringChangeSignal(String topology, String executor, Map<MonitoringFrequency, Integer> frequencies, 
+        Map<IObservable, Boolean> observables, Integer keyCapacity, String causeMsgId) {
         super(topology, executor, causeMsgId);
         this.frequencies = frequencies;
         this.observables = observables;
+        this.keyCapacity = keyCapacity;
     }
     
     /**
@@ -89,6 +108,15 @@ public class MonitoringChangeSignal extends AbstractTopologyExecutorSignal {
         return null == observables || null == observable ? null : observables.get(observable);
     }
 
+    /**
+     * Returns the number of most frequent keys a source shall aggregate approximately for volume prediction.
+     * 
+     * @return the number of keys, <b>null</b> for unspecified, 0 or negative for exact aggregation of all keys
+     */
+    public Integer getKeyCapacity() {
+        return keyCapacity;
+    }
+
     @Override
     public byte[] createPayload() {
         return defaultSerialize(IDENTIFIER);
@@ -115,7 +143,8 @@ public class MonitoringChangeSignal extends AbstractTopologyExecutorSignal {
 
     @Override
     public String toString() {
-        return "MonitoringChangeSignal " + super.toString() + " freq " + getFrequencies() + " obs " + getObservables();
+        return "MonitoringChangeSignal " + super.toString() + " freq " + getFrequencies() + " obs " + getObservables() 
+            + " keys " + getKeyCapacity();
     }
 
 }
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.common.signal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A sequence of signal payloads for the same executor, each with its sending timestamp. Batches are transferred
+ * as a single zookeeper node by the {@link SignalQueue}. The binary format is <code>[int count]</code> followed by
+ * <code>count</code> times <code>[long timestamp][int length][payload]</code>.
+ *
+ * @author Holger Eichelberger
+ */
+public class SignalBatch {
+
+    private List<byte[]> payloads = new ArrayList<byte[]>();
+    private List<Long> timestamps = new ArrayList<Long>();
+
+    /**
+     * Adds a payload.
+     *
+     * @param payload the signal payload
+     * @param timestamp the sending timestamp
+     */
+    public void add(byte[] payload, long timestamp) {
+        payloads.add(payload);
+        timestamps.add(timestamp);
+    }
+
+    /**
+     * Returns the number of payloads.
+     *
+     * @return the number of payloads
+     */
+    public int size() {
+        return payloads.size();
+    }
+
+    /**
+     * Returns the specified payload.
+     *
+     * @param index the 0-based index of the payload
+     * @return the payload
+     * @throws IndexOutOfBoundsException if <code>index &lt; 0 || index &gt;= {@link #size()}</code>
+     */
+    public byte[] getPayload(int index) {
+        return payloads.get(index);
+    }
+
+    /**
+     * Returns the sending timestamp of the specified payload.
+     *
+     * @param index the 0-based index of the payload
+     * @return the timestamp
+     * @throws IndexOutOfBoundsException if <code>index &lt; 0 || index &gt;= {@link #size()}</code>
+     */
+    public long getTimestamp(int index) {
+        return timestamps.get(index);
+    }
+
+    /**
+     * Turns this batch into its binary format.
+     *
+     * @return the binary format
+     */
+    public byte[] toBytes() {
+        int size = 4;
+        for (int p = 0; p < payloads.size(); p++) {
+            size += 12 + payloads.get(p).length;
+        }
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(size);
+        try (DataOutputStream out = new DataOutputStream(baos)) {
+            out.writeInt(payloads.size());
+            for (int p = 0; p < payloads.size(); p++) {
+                byte[] payload = payloads.get(p);
+                out.writeLong(timestamps.get(p));
+                out.writeInt(payload.length);
+                out.write(payload);
+            }
+        } catch (IOException e) {
+            // does not happen on byte arrays
+        }
+        return baos.toByteArray();
+    }
+
+    /**
+     * Creates a batch from its binary format.
+     *
+     * @param data the binary format
+     * @return the batch
+     * @throws IOException in case that <code>data</code> is not a valid batch
+     */
+    public static SignalBatch fromBytes(byte[] data) throws IOException {
+        SignalBatch result = new SignalBatch();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            int count = in.readInt();
+            if (count < 0) {
+                throw new IOException("Illegal signal batch size " + count);
+            }
+            for (int p = 0; p < count; p++) {
+                long timestamp = in.readLong();
+                int length = in.readInt();
+                if (length < 0 || length > in.available()) {
+                    throw new IOException("Illegal signal payload length " + length);
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                result.add(payload, timestamp);
+            }
+        }
+        return result;
+    }
+
+}
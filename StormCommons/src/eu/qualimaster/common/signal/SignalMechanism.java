@@ -18,7 +18,10 @@ package eu.qualimaster.common.signal;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.apache.log4j.LogManager;
@@ -48,6 +51,54 @@ public class SignalMechanism {
         Collections.synchronizedMap(new HashMap<String, String>());
     private static final Map<String, Namespace> NAMESPACES = 
         Collections.synchronizedMap(new HashMap<String, Namespace>());
+    private static final Set<String> QUEUED_NAMESPACES = Collections.synchronizedSet(new HashSet<String>());
+    private static final ThreadLocal<Batches> BATCHES = new ThreadLocal<Batches>() {
+
+        @Override
+        protected Batches initialValue() {
+            return new Batches();
+        }
+        
+    };
+    
+    /**
+     * Collects the signals of the current thread for the queued signal channel until the outermost batch ends.
+     * 
+     * @author Holger Eichelberger
+     */
+    private static class Batches {
+        
+        private int depth;
+        private Map<String, PendingBatch> pending = new LinkedHashMap<String, PendingBatch>();
+        
+    }
+    
+    /**
+     * A batch of signals for a topology executor waiting for sending.
+     * 
+     * @author Holger Eichelberger
+     */
+    private static class PendingBatch {
+        
+        private CuratorFramework framework;
+        private String topology;
+        private String executor;
+        private SignalBatch batch = new SignalBatch();
+        
+        /**
+         * Creates a pending batch.
+         * 
+         * @param framework the framework to send with
+         * @param topology the topology name
+         * @param executor the executor name
+         */
+        private PendingBatch(CuratorFramework framework, String topology, String executor) {
+            this.framework = framework;
+            this.topology = topology;
+            this.executor = executor;
+        }
+        
+    }
     
     /**
      * Represents a namespace that is able to cache signals if needed.
@@ -224,6 +275,7 @@ public class SignalMechanism {
         }
         FRAMEWORKS.clear();
         NAMESPACES.clear();
+        QUEUED_NAMESPACES.clear();
     }
     
     /**
@@ -256,6 +308,9 @@ public class SignalMechanism {
             } catch (SignalException e) {
                 getLogger().error(e.getMessage());
             }
+            if (QUEUED_NAMESPACES.remove(pipeline)) {
+                SignalQueue.release(toClear, pipeline);
+            }
         }
         if (null != framework) {
             framework.close();
@@ -338,6 +393,54 @@ public class SignalMechanism {
      * @throws SignalException in case that sending fails
      */
     static void sendSignal(CuratorFramework framework, String topology, String executor, byte[] payload) 
+        throws SignalException {
+        if (QUEUED_NAMESPACES.contains(topology)) {
+            sendQueued(framework, topology, executor, payload);
+        } else {
+            sendPlain(framework, topology, executor, payload);
+        }
+    }
+
+    /**
+     * Sends a signal via the queued signal channel. If a batch is active for the current thread, the signal is
+     * sent when the outermost batch ends.
+     * 
+     * @param framework the framework to send with
+     * @param topology the topology name
+     * @param executor the executor to send to
+     * @param payload the signal payload to send
+     * @throws SignalException in case that sending fails
+     * @see #startBatch()
+     * @see #endBatch()
+     */
+    private static void sendQueued(CuratorFramework framework, String topology, String executor, byte[] payload) 
+        throws SignalException {
+        Batches batches = BATCHES.get();
+        if (batches.depth > 0) {
+            String key = getTopologyExecutorPath(topology, executor);
+            PendingBatch pending = batches.pending.get(key);
+            if (null == pending) {
+                pending = new PendingBatch(framework, topology, executor);
+                batches.pending.put(key, pending);
+            }
+            pending.batch.add(payload, System.currentTimeMillis());
+        } else {
+            SignalBatch batch = new SignalBatch();
+            batch.add(payload, System.currentTimeMillis());
+            SignalQueue.send(framework, topology, executor, batch);
+        }
+    }
+
+    /**
+     * Sends a signal to the given topology / namespace / executor by changing the data of the executor node.
+     * 
+     * @param framework the framework to send with
+     * @param topology the topology name
+     * @param executor the executor to send to
+     * @param payload the signal payload to send
+     * @throws SignalException in case that sending fails
+     */
+    private static void sendPlain(CuratorFramework framework, String topology, String executor, byte[] payload) 
         throws SignalException {
         try {
             String namespace = framework.getNamespace();
@@ -362,6 +465,86 @@ public class SignalMechanism {
     
     // checkstyle: resume exception type check
     
+    /**
+     * Starts a batch for the current thread. If the queued signal channel is enabled for a topology, signals to 
+     * its executors are collected until the outermost batch ends and then sent as one batch per executor. Batches 
+     * may be nested. Please call {@link #endBatch()} in a finally block.
+     */
+    public static void startBatch() {
+        BATCHES.get().depth++;
+    }
+    
+    /**
+     * Ends a batch for the current thread. If this is the outermost batch, the collected signals are sent in 
+     * collection order of their executors.
+     * 
+     * @throws SignalException in case that sending fails (all batches are attempted, the first exception is thrown)
+     */
+    public static void endBatch() throws SignalException {
+        Batches batches = BATCHES.get();
+        if (batches.depth > 0) {
+            batches.depth--;
+        }
+        if (0 == batches.depth) {
+            flushBatch();
+        }
+    }
+    
+    /**
+     * Sends the signals collected so far in the batch of the current thread, e.g., if they must be delivered before 
+     * an operation that is part of the batch. The batch itself stays active.
+     * 
+     * @throws SignalException in case that sending fails (all batches are attempted, the first exception is thrown)
+     */
+    public static void flushBatch() throws SignalException {
+        Batches batches = BATCHES.get();
+        if (!batches.pending.isEmpty()) {
+            SignalException failed = null;
+            for (PendingBatch pending : batches.pending.values()) {
+                try {
+                    SignalQueue.send(pending.framework, pending.topology, pending.executor, pending.batch);
+                } catch (SignalException e) {
+                    if (null == failed) {
+                        failed = e;
+                    }
+                }
+            }
+            batches.pending.clear();
+            if (null != failed) {
+                throw failed;
+            }
+        }
+    }
+    
+    /**
+     * Defines whether the queued signal channel ({@link SignalQueue}) shall be used for sending signals to the 
+     * given namespace instead of the plain curator signal path.
+     * 
+     * @param namespace the namespace (pipeline name)
+     * @param enable <code>true</code> for the queued signal channel, <code>false</code> for the plain curator 
+     *     signal path
+     */
+    public static void setSignalQueue(String namespace, boolean enable) {
+        if (null != namespace) {
+            if (enable) {
+                QUEUED_NAMESPACES.add(namespace);
+            } else {
+                QUEUED_NAMESPACES.remove(namespace);
+            }
+        }
+    }
+    
+    /**
+     * Returns whether the queued signal channel is used for sending signals to the given namespace.
+     * 
+     * @param namespace the namespace (pipeline name)
+     * @return <code>true</code> for the queued signal channel, <code>false</code> for the plain curator 
+     *     signal path
+     */
+    public static boolean isSignalQueueEnabled(String namespace) {
+        return QUEUED_NAMESPACES.contains(namespace);
+    }
+    
     /**
      * Returns the zookeeper path to a topology executor.
      * 
@@ -0,0 +1,621 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.qualimaster.common.signal;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.apache.storm.curator.framework.CuratorFramework;
+import org.apache.storm.curator.framework.imps.CuratorFrameworkState;
+import org.apache.storm.zookeeper.CreateMode;
+import org.apache.storm.zookeeper.KeeperException;
+import org.apache.storm.zookeeper.Watcher;
+import org.apache.storm.zookeeper.data.Stat;
+
+import eu.qualimaster.base.algorithm.LatencyHistogram;
+
+import static eu.qualimaster.common.signal.SignalMechanism.PATH_SEPARATOR;
+
+/**
+ * Implements the queued signal channel. Instead of overwriting the data of the executor node (where rapid successive
+ * signals may be coalesced by zookeeper), a sender creates a sequential child node below the queue node of the
+ * executor containing a {@link SignalBatch}. Receivers watch the children of the queue node and process all new
+ * nodes in sequence order, i.e., the per-executor sending order is preserved and one read delivers a whole batch.
+ * As all tasks of an executor receive the signals, receivers do not consume the nodes. Receivers with a receiver id
+ * register themselves as live (ephemeral node) and store the sequence of the last processed node (their cursor) in
+ * zookeeper, at most every {@link #CURSOR_INTERVAL} and when closed, and resume from there when they are initialized
+ * again, e.g., after a worker restart. New receivers start at the current tail of the queue, i.e., they do not 
+ * process the nodes sent before. The sender periodically removes its nodes up to the minimum stored cursor of the 
+ * live receivers, those of queues without live receivers after {@link #RETENTION_TIME} so that restarting receivers 
+ * can resume, and all its nodes when the pipeline is released.
+ *
+ * @author Holger Eichelberger
+ */
+public class SignalQueue {
+
+    public static final String QUEUE_NODE = "queue";
+    public static final long RETENTION_TIME = 60000;
+    public static final long CURSOR_INTERVAL = 5000;
+    private static final long PRUNE_INTERVAL = 10000;
+    private static final long NO_RECEIVERS = Long.MIN_VALUE;
+    private static final String ELEMENT_PREFIX = "s-";
+    private static final int SEQUENCE_LENGTH = 10; // zookeeper sequence suffix
+    private static final String CURSOR_SUFFIX = "-cursors";
+    private static final String RECEIVERS_SUFFIX = "-receivers";
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+    private static final LatencyHistogram LATENCIES = new LatencyHistogram();
+    private static final Map<String, SentQueue> SENT = new HashMap<String, SentQueue>();
+    private static Timer pruneTimer;
+
+    private CuratorFramework client;
+    private String path;
+    private String cursorPath;
+    private String receiverPath;
+    private long queueId;
+    private SignalListener listener;
+    private LatencyHistogram latencies = new LatencyHistogram();
+    private long lastSequence = -1;
+    private long storedSequence = -1;
+    private long cursorTimestamp;
+
+    /**
+     * Stores a sent node for removal.
+     *
+     * @author Holger Eichelberger
+     */
+    private static class SentNode {
+
+        private String path;
+        private long sequence;
+        private long timestamp;
+
+        /**
+         * Creates a sent node.
+         *
+         * @param path the path of the node
+         * @param timestamp the creation timestamp
+         */
+        private SentNode(String path, long timestamp) {
+            this.path = path;
+            this.sequence = getSequence(path.substring(path.lastIndexOf(PATH_SEPARATOR) + 1));
+            this.timestamp = timestamp;
+        }
+
+    }
+
+    /**
+     * Stores the sent nodes of a queue for removal.
+     *
+     * @author Holger Eichelberger
+     */
+    private static class SentQueue {
+
+        private CuratorFramework framework;
+        private String path;
+        private Deque<SentNode> nodes = new ArrayDeque<SentNode>();
+
+        /**
+         * Creates a sent queue.
+         *
+         * @param framework the framework to remove the nodes with
+         * @param path the queue path
+         */
+        private SentQueue(CuratorFramework framework, String path) {
+            this.framework = framework;
+            this.path = path;
+        }
+
+    }
+
+    /**
+     * Periodically removes the outdated sent nodes.
+     *
+     * @author Holger Eichelberger
+     */
+    private static class PruneTask extends TimerTask {
+
+        @Override
+        public void run() {
+            prune(System.currentTimeMillis() - RETENTION_TIME);
+        }
+
+    }
+
+    /**
+     * Creates the receiving side of a signal queue.
+     *
+     * @param client the curator client
+     * @param path the queue path
+     * @param receiver the id of the receiver for storing its cursor and registering as live, <b>null</b> for no 
+     *     cursor
+     * @param listener the listener to pass the received signals to
+     */
+    SignalQueue(CuratorFramework client, String path, String receiver, SignalListener listener) {
+        this.client = client;
+        this.path = path;
+        this.cursorPath = null == receiver ? null : getCursorPath(path, receiver);
+        this.receiverPath = null == receiver ? null : path + RECEIVERS_SUFFIX + PATH_SEPARATOR + receiver;
+        this.listener = listener;
+    }
+
+    /**
+     * Returns the queue path of a topology executor.
+     *
+     * @param topology the topology name
+     * @param executor the executor name
+     * @return the queue path
+     */
+    public static String getQueuePath(String topology, String executor) {
+        return getQueuePath(SignalMechanism.getTopologyExecutorPath(topology, executor));
+    }
+
+    /**
+     * Returns the queue path for an executor path.
+     *
+     * @param executorPath the executor path
+     * @return the queue path
+     */
+    static String getQueuePath(String executorPath) {
+        return executorPath + PATH_SEPARATOR + QUEUE_NODE;
+    }
+
+    /**
+     * Returns the path of the cursor of a receiver.
+     *
+     * @param queuePath the queue path
+     * @param receiver the receiver id
+     * @return the cursor path
+     */
+    public static String getCursorPath(String queuePath, String receiver) {
+        return queuePath + CURSOR_SUFFIX + PATH_SEPARATOR + receiver;
+    }
+
+    // checkstyle: stop exception type check
+
+    /**
+     * Initializes the receiving side, i.e., creates the queue node if required, registers the receiver as live, 
+     * receives the nodes after the stored cursor (starts at the current tail if there is no cursor) and installs the 
+     * watch.
+     *
+     * @param watcher the watcher to be notified about new nodes
+     * @throws Exception in case of execution problems
+     */
+    synchronized void init(Watcher watcher) throws Exception {
+        Stat stat = client.checkExists().forPath(path);
+        if (null == stat) {
+            try {
+                client.create().creatingParentsIfNeeded().forPath(path);
+            } catch (KeeperException.NodeExistsException e) {
+                // created in parallel, ok
+            }
+            stat = client.checkExists().forPath(path);
+        }
+        queueId = null == stat ? 0 : stat.getCzxid(); // sequences restart if the queue node is re-created
+        if (null != cursorPath) {
+            storedSequence = readCursor(client, cursorPath, queueId);
+            register();
+        }
+        lastSequence = storedSequence;
+        if (lastSequence < 0) {
+            lastSequence = getTail(client.getChildren().forPath(path));
+            writeCursor(); // tell the sender where this receiver starts
+        }
+        receive(watcher);
+    }
+
+    /**
+     * Registers this receiver as live. Replaces the registration of a previous session of this receiver, which 
+     * would otherwise vanish with the expiry of that session.
+     *
+     * @throws Exception in case of execution problems
+     */
+    private void register() throws Exception {
+        try {
+            client.create().creatingParentsIfNeeded().withMode(CreateMode.EPHEMERAL).forPath(receiverPath);
+        } catch (KeeperException.NodeExistsException e) {
+            try {
+                client.delete().forPath(receiverPath);
+            } catch (KeeperException.NoNodeException e1) {
+                // expired in parallel, ok
+            }
+            client.create().creatingParentsIfNeeded().withMode(CreateMode.EPHEMERAL).forPath(receiverPath);
+        }
+    }
+
+    /**
+     * Returns the sequence of the last node in a queue.
+     *
+     * @param children the names of the queue nodes
+     * @return the sequence of the last node, <code>-1</code> if there is none
+     */
+    private static long getTail(List<String> children) {
+        long result = -1;
+        for (String child : children) {
+            result = Math.max(result, getSequence(child));
+        }
+        return result;
+    }
+
+    /**
+     * Reads the cursor of a receiver.
+     *
+     * @param framework the framework to read with
+     * @param cursorPath the path of the cursor
+     * @param queueId the id of the queue node, i.e., its creation transaction id
+     * @return the sequence of the last processed node, <code>-1</code> if there is no (valid) cursor
+     * @throws Exception in case of execution problems
+     */
+    private static long readCursor(CuratorFramework framework, String cursorPath, long queueId) throws Exception {
+        long result = -1;
+        try {
+            String[] cursor = new String(framework.getData().forPath(cursorPath), CHARSET).split(":");
+            if (2 == cursor.length && Long.parseLong(cursor[0]) == queueId) {
+                result = Long.parseLong(cursor[1]);
+            }
+        } catch (KeeperException.NoNodeException e) {
+            // no cursor, result = -1
+        } catch (NumberFormatException e) {
+            getLogger().warn("Ignoring illegal signal cursor " + cursorPath + ": " + e.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * Writes the cursor of this receiver. Failures are logged, i.e., the receiver may process nodes again after
+     * re-initialization.
+     */
+    private void writeCursor() {
+        if (null != cursorPath) {
+            byte[] data = (queueId + ":" + lastSequence).getBytes(CHARSET);
+            try {
+                try {
+                    client.setData().forPath(cursorPath, data);
+                } catch (KeeperException.NoNodeException e) {
+                    client.create().creatingParentsIfNeeded().forPath(cursorPath, data);
+                }
+                storedSequence = lastSequence;
+                cursorTimestamp = System.currentTimeMillis();
+            } catch (Exception e) {
+                getLogger().warn("Cannot store signal cursor " + cursorPath + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Closes the receiving side, i.e., stores the cursor if it changed since the last write and unregisters the 
+     * receiver. Must be called before closing the curator client.
+     */
+    synchronized void close() {
+        if (null != cursorPath) {
+            if (lastSequence != storedSequence) {
+                writeCursor();
+            }
+            try {
+                client.delete().forPath(receiverPath);
+            } catch (KeeperException.NoNodeException e) {
+                // already gone
+            } catch (Exception e) {
+                getLogger().warn("Cannot unregister signal receiver " + receiverPath + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Receives the new nodes, passes their signals in sequence order to the listener and re-installs the watch.
+     * Stores the cursor if it changed and was not stored within the last {@link #CURSOR_INTERVAL}.
+     *
+     * @param watcher the watcher to be notified about new nodes
+     * @return the number of received signals
+     * @throws Exception in case of execution problems
+     */
+    synchronized int receive(Watcher watcher) throws Exception {
+        int count = 0;
+        List<String> children = client.getChildren().usingWatcher(watcher).forPath(path);
+        Collections.sort(children); // fixed length sequence suffix
+        for (String child : children) {
+            long sequence = getSequence(child);
+            if (sequence > lastSequence) {
+                lastSequence = sequence;
+                byte[] data;
+                try {
+                    data = client.getData().forPath(path + PATH_SEPARATOR + child);
+                } catch (KeeperException.NoNodeException e) {
+                    data = null; // already removed by the sender
+                }
+                if (null != data) {
+                    count += notify(data);
+                }
+            }
+        }
+        if (lastSequence != storedSequence && System.currentTimeMillis() - cursorTimestamp >= CURSOR_INTERVAL) {
+            writeCursor();
+        }
+        return count;
+    }
+
+    // checkstyle: resume exception type check
+
+    /**
+     * Passes the signals in <code>data</code> to the listener.
+     *
+     * @param data the binary signal batch
+     * @return the number of signals
+     */
+    private int notify(byte[] data) {
+        int count = 0;
+        try {
+            SignalBatch batch = SignalBatch.fromBytes(data);
+            long now = System.currentTimeMillis();
+            for (int s = 0; s < batch.size(); s++) {
+                long latency = Math.max(0, now - batch.getTimestamp(s));
+                LATENCIES.record(latency);
+                latencies.record(latency);
+                try {
+                    listener.onSignal(batch.getPayload(s));
+                } catch (RuntimeException e) {
+                    getLogger().error("While processing signal on " + path + ": " + e.getMessage(), e);
+                }
+                count++;
+            }
+            getLogger().info("Received " + batch.size() + " signals on " + path);
+        } catch (IOException e) {
+            getLogger().error("Ignoring illegal signal batch on " + path + ": " + e.getMessage());
+        }
+        return count;
+    }
+
+    /**
+     * Returns the sequence number of a queue node. [public for testing]
+     *
+     * @param name the name of the queue node
+     * @return the sequence number, <code>-1</code> if <code>name</code> is not a queue node
+     */
+    public static long getSequence(String name) {
+        long result = -1;
+        if (name.startsWith(ELEMENT_PREFIX) && name.length() >= ELEMENT_PREFIX.length() + SEQUENCE_LENGTH) {
+            try {
+                result = Long.parseLong(name.substring(name.length() - SEQUENCE_LENGTH));
+            } catch (NumberFormatException e) {
+                // result = -1
+            }
+        }
+        return result;
+    }
+
+    // checkstyle: stop exception type check
+
+    /**
+     * Sends a signal batch to a topology executor. The node is removed later by {@link #prune(long)}.
+     *
+     * @param framework the framework to send with
+     * @param topology the topology name
+     * @param executor the executor name
+     * @param batch the batch to be sent
+     * @throws SignalException in case that sending fails
+     */
+    static void send(CuratorFramework framework, String topology, String executor, SignalBatch batch)
+        throws SignalException {
+        String queuePath = getQueuePath(topology, executor);
+        try {
+            String created = framework.create().creatingParentsIfNeeded().withMode(CreateMode.PERSISTENT_SEQUENTIAL)
+                .forPath(queuePath + PATH_SEPARATOR + ELEMENT_PREFIX, batch.toBytes());
+            getLogger().info("Sending " + batch.size() + " signals to " + framework.getNamespace() + ":" + created);
+            long now = System.currentTimeMillis();
+            SentQueue sent;
+            synchronized (SENT) {
+                sent = SENT.get(queuePath);
+                if (null == sent) {
+                    sent = new SentQueue(framework, queuePath);
+                    SENT.put(queuePath, sent);
+                    if (null == pruneTimer) {
+                        pruneTimer = new Timer("SignalQueue pruning", true);
+                        pruneTimer.schedule(new PruneTask(), PRUNE_INTERVAL, PRUNE_INTERVAL);
+                    }
+                }
+                sent.framework = framework;
+                sent.nodes.offer(new SentNode(created, now));
+            }
+        } catch (Exception e) {
+            getLogger().error(e.getMessage(), e);
+            throw new SignalException(e);
+        }
+    }
+
+    /**
+     * Returns the minimum stored cursor of the live receivers of a queue.
+     *
+     * @param framework the framework to read with
+     * @param queuePath the queue path
+     * @return the minimum cursor, <code>-1</code> if a live receiver has no cursor, {@link #NO_RECEIVERS} if there 
+     *     are no live receivers, <code>Long.MAX_VALUE</code> if <code>framework</code> is closed
+     */
+    private static long getReceivedSequence(CuratorFramework framework, String queuePath) {
+        long result = NO_RECEIVERS;
+        if (CuratorFrameworkState.STARTED != framework.getState()) {
+            result = Long.MAX_VALUE; // nodes cannot be removed anymore, just forget them
+        } else {
+            try {
+                List<String> receivers;
+                try {
+                    receivers = framework.getChildren().forPath(queuePath + RECEIVERS_SUFFIX);
+                } catch (KeeperException.NoNodeException e) {
+                    receivers = Collections.emptyList();
+                }
+                if (!receivers.isEmpty()) {
+                    Stat stat = framework.checkExists().forPath(queuePath);
+                    long queueId = null == stat ? 0 : stat.getCzxid();
+                    result = Long.MAX_VALUE;
+                    for (String receiver : receivers) {
+                        result = Math.min(result, readCursor(framework, getCursorPath(queuePath, receiver), queueId));
+                    }
+                }
+            } catch (Exception e) {
+                getLogger().warn("Cannot read signal cursors of " + queuePath + ": " + e.getMessage());
+                result = -1; // keep the nodes
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Removes sent nodes. Nodes sent via a closed framework are just forgotten.
+     *
+     * @param sent the sent nodes (modified as a side effect)
+     * @param before if there are no live receivers, remove all nodes created before this timestamp
+     * @param received remove all nodes up to this sequence, {@link #NO_RECEIVERS} if there are no live receivers
+     */
+    private static void remove(SentQueue sent, long before, long received) {
+        SentNode node;
+        CuratorFramework framework;
+        do {
+            synchronized (SENT) {
+                framework = sent.framework;
+                node = sent.nodes.peek();
+                if (null != node && (node.sequence <= received 
+                    || (NO_RECEIVERS == received && node.timestamp < before))) {
+                    sent.nodes.poll();
+                } else {
+                    node = null;
+                }
+            }
+            if (null != node && CuratorFrameworkState.STARTED == framework.getState()) {
+                try {
+                    framework.delete().forPath(node.path);
+                } catch (KeeperException.NoNodeException e) {
+                    // already gone
+                } catch (Exception e) {
+                    getLogger().warn("Cannot remove signal node " + node.path + ": " + e.getMessage());
+                }
+            }
+        } while (null != node);
+    }
+
+    // checkstyle: resume exception type check
+
+    /**
+     * Removes the sent nodes processed by all live receivers from all queues, the nodes created before 
+     * <code>before</code> from queues without live receivers, and forgets queues without sent nodes. Stops the 
+     * periodic pruning if there are no sent nodes anymore. [public for testing]
+     *
+     * @param before remove all nodes created before this timestamp from queues without live receivers
+     */
+    public static void prune(long before) {
+        List<SentQueue> queues;
+        synchronized (SENT) {
+            queues = new ArrayList<SentQueue>(SENT.values());
+        }
+        for (int q = 0; q < queues.size(); q++) {
+            SentQueue queue = queues.get(q);
+            CuratorFramework framework;
+            synchronized (SENT) {
+                framework = queue.framework;
+            }
+            remove(queue, before, getReceivedSequence(framework, queue.path));
+        }
+        synchronized (SENT) {
+            Iterator<SentQueue> iter = SENT.values().iterator();
+            while (iter.hasNext()) {
+                if (iter.next().nodes.isEmpty()) {
+                    iter.remove();
+                }
+            }
+            if (SENT.isEmpty() && null != pruneTimer) {
+                pruneTimer.cancel();
+                pruneTimer = null;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of queues with sent nodes to be removed. [public for testing]
+     *
+     * @return the number of queues
+     */
+    public static int getSentQueueCount() {
+        synchronized (SENT) {
+            return SENT.size();
+        }
+    }
+
+    /**
+     * Removes all nodes sent to the executors of the given topology.
+     *
+     * @param framework the framework to remove with
+     * @param topology the topology name
+     */
+    static void release(CuratorFramework framework, String topology) {
+        String prefix = SignalMechanism.getTopologyExecutorPath(topology, "");
+        List<SentQueue> toRemove = new ArrayList<SentQueue>();
+        synchronized (SENT) {
+            Iterator<Map.Entry<String, SentQueue>> iter = SENT.entrySet().iterator();
+            while (iter.hasNext()) {
+                Map.Entry<String, SentQueue> entry = iter.next();
+                if (entry.getKey().startsWith(prefix)) {
+                    entry.getValue().framework = framework;
+                    toRemove.add(entry.getValue());
+                    iter.remove();
+                }
+            }
+        }
+        for (int r = 0; r < toRemove.size(); r++) {
+            remove(toRemove.get(r), Long.MAX_VALUE, Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Returns the end-to-end latencies of the signals received in this JVM, i.e., the difference between receiving
+     * and sending timestamp (assuming synchronized clocks).
+     *
+     * @param reset whether the latencies shall be reset after taking the snapshot
+     * @return the latencies in ms
+     */
+    public static LatencyHistogram.Snapshot getLatencies(boolean reset) {
+        return LATENCIES.snapshot(reset);
+    }
+
+    /**
+     * Takes a snapshot of the end-to-end latencies of the signals received by this queue.
+     *
+     * @param snapshot the snapshot to be filled (modified as a side effect)
+     * @param reset whether the latencies shall be reset after taking the snapshot
+     * @see #getLatencies(boolean)
+     */
+    void getLatencies(LatencyHistogram.Snapshot snapshot, boolean reset) {
+        latencies.snapshot(snapshot, reset);
+    }
+
+    /**
+     * Returns the logger for this class.
+     *
+     * @return the logger
+     */
+    private static Logger getLogger() {
+        return LogManager.getLogger(SignalQueue.class);
+    }
+
+}
@@ -21,6 +21,7 @@ import java.util.concurrent.atomic.AtomicLong;
 
 import backtype.storm.hooks.info.EmitInfo;
 import backtype.storm.task.TopologyContext;
+import eu.qualimaster.base.algorithm.HeavyHitterSketch;
 import eu.qualimaster.events.EventManager;
 import eu.qualimaster.monitoring.events.SourceVolumeMonitoringEvent;
 import eu.qualimaster.observables.MonitoringFrequency;
@@ -33,6 +34,8 @@ import eu.qualimaster.observables.MonitoringFrequency;
  *   <li>Registration of an aggregation key provider, which allows transparent aggregation via the
  *     task hook mechanisms of the parent class.</li>
  * </ol>
+ * By default, all keys are counted exactly. If requested via {@link MonitoringChangeSignal#getKeyCapacity()}, only
+ * the most frequent keys are counted approximately in a {@link HeavyHitterSketch} of bounded size.
  * 
  * @author Holger Eichelberger
  */
@@ -40,6 +43,7 @@ public class SourceMonitor extends Monitor {
 
     private Map<Class<?>, AggregationKeyProvider<?>> providers = new HashMap<Class<?>, AggregationKeyProvider<?>>();
     private Map<String, Integer> occurrences = new HashMap<String, Integer>(); // specific class for performance?
+    private volatile HeavyHitterSketch sketch;
     private AtomicLong lastAggregation = new AtomicLong();
     private long aggregationInterval; 
 
@@ -126,7 +130,10 @@ public class SourceMonitor extends Monitor {
      * @param key the key
      */
     public void aggregateKey(String key) {
-        if (null != key) {
+        HeavyHitterSketch sk = sketch;
+        if (null != sk) {
+            sk.add(key);
+        } else if (null != key) {
             synchronized (occurrences) {
                 Integer count = occurrences.get(key);
                 if (null == count) {
@@ -141,15 +148,38 @@ public class SourceMonitor extends Monitor {
     @Override
     protected void checkSend(long now) {
         super.checkSend(now);
-        if (occurrences.size() > 0 && aggregationInterval > 0 && now - lastAggregation.get() > aggregationInterval) {
-            Map<String, Integer> oldOcc = occurrences;
-            Map<String, Integer> newOcc = new HashMap<String, Integer>();
-            synchronized (occurrences) {
-                occurrences = newOcc;
+        long last = lastAggregation.get();
+        HeavyHitterSketch sk = sketch;
+        boolean hasData = null != sk ? sk.getTotal() > 0 : occurrences.size() > 0;
+        if (hasData && aggregationInterval > 0 && now - last > aggregationInterval 
+            && lastAggregation.compareAndSet(last, now)) {
+            Map<String, Integer> oldOcc;
+            if (null != sk) {
+                oldOcc = sk.topKeys(true);
+            } else {
+                oldOcc = occurrences;
+                Map<String, Integer> newOcc = new HashMap<String, Integer>();
+                synchronized (occurrences) {
+                    occurrences = newOcc;
+                }
             }
             SourceVolumeMonitoringEvent evt = new SourceVolumeMonitoringEvent(getNamespace(), getName(), oldOcc);
             EventManager.send(evt);
-            lastAggregation.set(now);
+        }
+    }
+
+    /**
+     * Changes the key aggregation mode. Switching the mode drops the data aggregated so far in the current interval.
+     * 
+     * @param keyCapacity the number of most frequent keys to be counted approximately, 0 or negative for exact 
+     *     counting of all keys
+     */
+    public void setKeyCapacity(int keyCapacity) {
+        HeavyHitterSketch sk = sketch;
+        if (keyCapacity <= 0) {
+            sketch = null;
+        } else if (null == sk || sk.getCapacity() != keyCapacity) {
+            sketch = new HeavyHitterSketch(keyCapacity);
         }
     }
         
@@ -160,6 +190,10 @@ public class SourceMonitor extends Monitor {
         if (null != tmp) {
             aggregationInterval = tmp; // we just ignore the EventManager.setTimerPeriod here
         }
+        tmp = signal.getKeyCapacity();
+        if (null != tmp) {
+            setKeyCapacity(tmp);
+        }
     }
 
     @Override
@@ -11,6 +11,7 @@ import org.apache.storm.curator.retry.RetryNTimes;
 import backtype.storm.utils.Utils;
 import eu.qualimaster.Configuration;
 import eu.qualimaster.common.logging.QmLogging;
+import eu.qualimaster.infrastructure.PipelineOptions;
 import eu.qualimaster.monitoring.events.AlgorithmChangedMonitoringEvent;
 
 /**
@@ -54,6 +55,10 @@ public class StormSignalConnection extends AbstractSignalConnection {
                 connectString(connectString).retryPolicy(new RetryNTimes(retryCount, retryInterval)).build();
             super.setClient(client);
             client.start();
+            if (PipelineOptions.useSignalQueue(conf)) {
+                enableSignalQueue();
+                SignalMechanism.setSignalQueue(pipeline, true); // signals sent from within the pipeline
+            }
     
             initWatcher(); // failing
         }
@@ -0,0 +1,157 @@
+package eu.qualimaster.common.switching;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A pre-sized, lock-free ring buffer implementing the producer-consumer pattern. The buffer is allocated once
+ * at construction time, i.e., neither {@link #produce(Object)} nor {@link #consume()} allocates. Waiting on a
+ * full or empty buffer is delegated to a {@link WaitStrategy}. Subclasses define the number of supported
+ * producers. Only a single consumer is supported.
+ *
+ * @param <T> the data type
+ * @author Cui Qin
+ *
+ */
+public abstract class AbstractRingBufferQueue<T> implements IProducerConsumerQueue<T> {
+
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    // head: next position to be consumed, tail: next position to be produced
+    protected final AtomicLong head = new AtomicLong();
+    protected final AtomicLong tail = new AtomicLong();
+    private final AtomicReferenceArray<T> buffer;
+    private final int capacity;
+    private final int mask;
+    private final WaitStrategy waitStrategy;
+
+    /**
+     * Creates a ring buffer queue.
+     *
+     * @param capacity the minimum capacity of the queue, rounded up to the next power of two
+     * @param waitStrategy the strategy applied while waiting for a non-full or non-empty queue
+     * @throws IllegalArgumentException if <code>capacity</code> is not positive or <code>waitStrategy</code>
+     *     is <b>null</b>
+     */
+    protected AbstractRingBufferQueue(int capacity, WaitStrategy waitStrategy) {
+        if (capacity <= 0 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("capacity must be in [1;" + MAX_CAPACITY + "]");
+        }
+        if (null == waitStrategy) {
+            throw new IllegalArgumentException("waitStrategy must not be null");
+        }
+        this.capacity = nextPowerOfTwo(capacity);
+        this.mask = this.capacity - 1;
+        this.buffer = new AtomicReferenceArray<T>(this.capacity);
+        this.waitStrategy = waitStrategy;
+    }
+
+    /**
+     * Returns the next power of two greater or equal to <code>value</code>.
+     *
+     * @param value the value (positive)
+     * @return the power of two
+     */
+    static int nextPowerOfTwo(int value) {
+        return 1 << (Integer.SIZE - Integer.numberOfLeadingZeros(value - 1));
+    }
+
+    /**
+     * Returns the (rounded) capacity of this queue.
+     *
+     * @return the capacity
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the wait strategy.
+     *
+     * @return the wait strategy
+     */
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    /**
+     * Stores data into the queue, waiting if the queue is full.
+     *
+     * @param data the data to be stored
+     * @throws NullPointerException if <code>data</code> is <b>null</b>
+     */
+    @Override
+    public void produce(T data) {
+        if (null == data) {
+            throw new NullPointerException();
+        }
+        int counter = 0;
+        while (!offer(data)) {
+            counter = waitStrategy.idle(counter);
+        }
+    }
+
+    /**
+     * Tries to store data into the queue without waiting.
+     *
+     * @param data the data to be stored (not <b>null</b>)
+     * @return <code>true</code> if stored, <code>false</code> if the queue is full
+     */
+    public abstract boolean offer(T data);
+
+    @Override
+    public T consume() {
+        int counter = 0;
+        T result = poll();
+        while (null == result) {
+            counter = waitStrategy.idle(counter);
+            result = poll();
+        }
+        return result;
+    }
+
+    /**
+     * Tries to consume data from the queue without waiting. Must only be called by the single consumer.
+     *
+     * @return the data or <b>null</b> if the queue is empty
+     */
+    public T poll() {
+        long h = head.get();
+        int index = index(h);
+        T result = buffer.get(index);
+        if (null != result) {
+            buffer.lazySet(index, null);
+            head.lazySet(h + 1);
+        }
+        return result;
+    }
+
+    @Override
+    public int currentSize() {
+        long h = head.get();
+        long t = tail.get();
+        long size = t - h;
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    /**
+     * Turns a sequence number into a buffer index.
+     *
+     * @param sequence the sequence number
+     * @return the index
+     */
+    protected final int index(long sequence) {
+        return (int) sequence & mask;
+    }
+
+    /**
+     * Publishes data to the given buffer position with release semantics.
+     *
+     * @param index the buffer index
+     * @param data the data
+     */
+    protected final void publish(int index, T data) {
+        buffer.lazySet(index, data);
+    }
+
+}
@@ -1,9 +1,35 @@
 package eu.qualimaster.common.switching;
 
+import eu.qualimaster.Configuration;
+
 /**
- * The strategy used in the switch mechanism.
+ * The strategy used in the switch mechanism. Creates the tuple transport according to
+ * {@link Configuration#getPipelineSwitchNio()}.
  * @author Cui Qin
  *
  */
-public abstract class AbstractSwitchStrategy implements ISwitchStrategy {    
+public abstract class AbstractSwitchStrategy implements ISwitchStrategy {
+
+    @Override
+    public ITupleReceiverServer createTupleReceiverServer(int port) {
+        ITupleReceiverServer result;
+        if (Configuration.getPipelineSwitchNio()) {
+            result = new NioTupleReceiverServer(getTupleReceiverHandler(), port);
+        } else {
+            result = new TupleReceiverServer(getTupleReceiverHandler(), port);
+        }
+        return result;
+    }
+
+    @Override
+    public ITupleSender createTupleSender(String host, int port) {
+        ITupleSender result;
+        if (Configuration.getPipelineSwitchNio()) {
+            result = new NioTupleSender(host, port, FlushPolicy.DEFAULT);
+        } else {
+            result = new TupleSender(host, port);
+        }
+        return result;
+    }
+
 }
@@ -0,0 +1,45 @@
+package eu.qualimaster.common.switching;
+
+/**
+ * A basic tuple sender implementing the sending of {@link DataFlag} control frames. Control frames are
+ * flushed immediately as they change the interpretation of the subsequent frames at the receiver.
+ * @author Cui Qin
+ *
+ */
+public abstract class AbstractTupleSender implements ITupleSender {
+
+    private static final byte[] SWITCH_TUPLE_FLAG = DataFlag.SWITCH_TUPLE_FLAG.getBytes();
+    private static final byte[] GENERAL_TUPLE_FLAG = DataFlag.GENERAL_TUPLE_FLAG.getBytes();
+    private static final byte[] TEMPORARY_QUEUE_FLAG = DataFlag.TEMPORARY_QUEUE_FLAG.getBytes();
+    private static final byte[] GENERAL_QUEUE_FLAG = DataFlag.GENERAL_QUEUE_FLAG.getBytes();
+
+    /**
+     * Sends a control flag and flushes.
+     * @param flag the flag bytes
+     */
+    private void sendFlag(byte[] flag) {
+        send(flag);
+        flush();
+    }
+
+    @Override
+    public void sendSwitchTupleFlag() {
+        sendFlag(SWITCH_TUPLE_FLAG);
+    }
+    
+    @Override
+    public void sendGeneralTupleFlag() {
+        sendFlag(GENERAL_TUPLE_FLAG);
+    }
+    
+    @Override
+    public void sendTemporaryQueueFlag() {
+        sendFlag(TEMPORARY_QUEUE_FLAG);
+    }
+    
+    @Override
+    public void sendGeneralQueueFlag() {
+        sendFlag(GENERAL_QUEUE_FLAG);
+    }
+
+}
@@ -29,4 +29,45 @@ public class DataFlag {
      * The flag indicating the switch queue shall be used.
      */
     public static final String TEMPORARY_QUEUE_FLAG = "tmpQueue";
+    
+    /**
+     * The flags in the order of {@link #FLAG_BYTES}.
+     */
+    private static final String[] FLAGS = {SWITCH_TUPLE_FLAG, GENERAL_TUPLE_FLAG, GENERAL_QUEUE_FLAG, 
+        TEMPORARY_QUEUE_FLAG};
+    
+    /**
+     * The (pre-encoded) bytes of the flags.
+     */
+    private static final byte[][] FLAG_BYTES = new byte[FLAGS.length][];
+    
+    static {
+        for (int f = 0; f < FLAGS.length; f++) {
+            FLAG_BYTES[f] = FLAGS[f].getBytes();
+        }
+    }
+    
+    /**
+     * Returns the flag encoded in the given buffer slice without allocating a string.
+     * @param buffer the buffer
+     * @param offset the offset of the flag bytes in <code>buffer</code>
+     * @param length the number of flag bytes
+     * @return the flag, <b>null</b> if no flag is encoded in the slice
+     */
+    public static String getFlag(byte[] buffer, int offset, int length) {
+        String result = null;
+        if (FLAG_BYTES_LEN == length) {
+            for (int f = 0; null == result && f < FLAG_BYTES.length; f++) {
+                byte[] flag = FLAG_BYTES[f];
+                int b = 0;
+                while (b < length && flag[b] == buffer[offset + b]) {
+                    b++;
+                }
+                if (b == length) {
+                    result = FLAGS[f];
+                }
+            }
+        }
+        return result;
+    }
 }
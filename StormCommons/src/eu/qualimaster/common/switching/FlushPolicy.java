@@ -0,0 +1,67 @@
+package eu.qualimaster.common.switching;
+
+import java.io.Serializable;
+
+/**
+ * Defines when a batching sender flushes its buffered frames, i.e., if the buffered bytes reach a size threshold
+ * or if the oldest buffered frame is older than a time threshold.
+ * @author Cui Qin
+ *
+ */
+public class FlushPolicy implements Serializable {
+
+    /**
+     * The default policy, flushing at 64 KBytes or after 5 ms.
+     */
+    public static final FlushPolicy DEFAULT = new FlushPolicy(64 * 1024, 5);
+    
+    /**
+     * A policy flushing after each frame, i.e., the behavior of {@link TupleSender}.
+     */
+    public static final FlushPolicy IMMEDIATE = new FlushPolicy(1, 0);
+
+    private static final long serialVersionUID = -4618563004816423520L;
+    private int flushSize;
+    private long flushDelay;
+
+    /**
+     * Creates a flush policy.
+     * @param flushSize the number of buffered bytes causing a flush, also the size of the batch buffer (positive)
+     * @param flushDelay the maximum time in milliseconds a frame may stay in the buffer before it is flushed, 
+     *     <code>0</code> disables time-based flushing
+     * @throws IllegalArgumentException if <code>flushSize</code> is not positive or <code>flushDelay</code> is 
+     *     negative
+     */
+    public FlushPolicy(int flushSize, long flushDelay) {
+        if (flushSize <= 0) {
+            throw new IllegalArgumentException("flushSize must be positive");
+        }
+        if (flushDelay < 0) {
+            throw new IllegalArgumentException("flushDelay must not be negative");
+        }
+        this.flushSize = flushSize;
+        this.flushDelay = flushDelay;
+    }
+
+    /**
+     * Returns the number of buffered bytes causing a flush.
+     * @return the number of bytes
+     */
+    public int getFlushSize() {
+        return flushSize;
+    }
+
+    /**
+     * Returns the maximum time a frame may stay in the buffer.
+     * @return the time in milliseconds, <code>0</code> if time-based flushing is disabled
+     */
+    public long getFlushDelay() {
+        return flushDelay;
+    }
+
+    @Override
+    public String toString() {
+        return "FlushPolicy " + flushSize + " bytes " + flushDelay + " ms";
+    }
+
+}
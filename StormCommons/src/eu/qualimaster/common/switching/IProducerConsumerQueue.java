@@ -0,0 +1,30 @@
+package eu.qualimaster.common.switching;
+
+/**
+ * A queue adopting the producer-consumer pattern, i.e., producers block while the queue is full
+ * and consumers block while the queue is empty.
+ * @param <T> the data type
+ * @author Cui Qin
+ *
+ */
+public interface IProducerConsumerQueue<T> {
+
+    /**
+     * Consumes data from the queue, waiting if the queue is empty.
+     * @return the data
+     */
+    public T consume();
+
+    /**
+     * Stores data into the queue, waiting if the queue is full.
+     * @param data the data to be stored (must not be <b>null</b>)
+     */
+    public void produce(T data);
+
+    /**
+     * Returns the current size of the queue.
+     * @return the current size
+     */
+    public int currentSize();
+
+}
@@ -16,6 +16,20 @@ public interface ISwitchStrategy {
      * @return tuple receiver handler
      */
     public TupleReceiverHandler getTupleReceiverHandler();
+    /**
+     * Creates a server receiving tuples via the {@link #getTupleReceiverHandler() tuple receiver handler}. 
+     * @param port the port to create the server for
+     * @return the server (not started)
+     */
+    public ITupleReceiverServer createTupleReceiverServer(int port);
+    /**
+     * Creates a sender for transferring tuples to a server created by 
+     * {@link #createTupleReceiverServer(int)}.
+     * @param host the host to be connected
+     * @param port the port to be connected
+     * @return the sender
+     */
+    public ITupleSender createTupleSender(String host, int port);
     /**
      * Produces tuple.
      * @return the tuple
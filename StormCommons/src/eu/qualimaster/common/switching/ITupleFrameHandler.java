@@ -0,0 +1,17 @@
+package eu.qualimaster.common.switching;
+
+/**
+ * Handles a single received frame, i.e., either a {@link DataFlag} control frame or a serialized tuple. 
+ * Frames are passed as slices of the receive buffer, which is reused after the call returns.
+ * @author Cui Qin
+ *
+ */
+public interface ITupleFrameHandler {
+    /**
+     * Handles a received frame.
+     * @param buffer the buffer containing the frame bytes (must not be stored by the handler)
+     * @param offset the offset of the frame bytes in <code>buffer</code>
+     * @param length the number of frame bytes
+     */
+    public void handleFrame(byte[] buffer, int offset, int length);
+}
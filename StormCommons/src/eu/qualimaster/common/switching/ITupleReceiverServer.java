@@ -0,0 +1,21 @@
+package eu.qualimaster.common.switching;
+
+import java.io.IOException;
+
+/**
+ * A server receiving tuples sent by an {@link ITupleSender}.
+ * @author Cui Qin
+ *
+ */
+public interface ITupleReceiverServer {
+    /**
+     * Starts the server.
+     */
+    public void start();
+
+    /**
+     * Stops the server.
+     * @throws IOException the IO exception
+     */
+    public void stop() throws IOException;
+}
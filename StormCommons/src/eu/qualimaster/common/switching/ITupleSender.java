@@ -0,0 +1,53 @@
+package eu.qualimaster.common.switching;
+
+import eu.qualimaster.base.algorithm.IGeneralTuple;
+import eu.qualimaster.base.algorithm.ISwitchTuple;
+
+/**
+ * Sends length-prefixed tuple frames and {@link DataFlag} control frames via network.
+ * @author Cui Qin
+ *
+ */
+public interface ITupleSender {
+    /**
+     * Sends the data bytes.
+     * @param bytes the bytes to be sent
+     */
+    public void send(byte[] bytes);
+    
+    /**
+     * Flushes data that may be buffered by the sender.
+     */
+    public void flush();
+    
+    /**
+     * Sends a flag indicating the {@link ISwitchTuple} data type.
+     */
+    public void sendSwitchTupleFlag();
+    
+    /**
+     * Sends a flag indicating the {@link IGeneralTuple} data type.
+     */
+    public void sendGeneralTupleFlag();
+    
+    /**
+     * Sends a flag indicating the temporary queue shall be used.
+     */
+    public void sendTemporaryQueueFlag();
+    
+    /**
+     * Sends a flag indicating the general queue shall be used.
+     */
+    public void sendGeneralQueueFlag();
+    
+    /**
+     * Checks whether the connection is there.
+     * @return true if connected, otherwise false
+     */
+    public boolean isConnected();
+    
+    /**
+     * Stops the sender.
+     */
+    public void stop();
+}
@@ -0,0 +1,303 @@
+package eu.qualimaster.common.switching;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+import eu.qualimaster.base.algorithm.ISwitchTuple;
+import eu.qualimaster.base.algorithm.IncrementalAverage;
+
+/**
+ * Stores emitted but not yet acknowledged switch tuples with constant time {@link #add(ISwitchTuple) add} and 
+ * {@link #ack(long) ack}. Tuples are kept in emission order in a pre-sized ring for replay and are indexed by 
+ * their id in a primitive open-addressing hash table. The store is bounded, i.e., if the ring is full, the oldest 
+ * in-flight tuple is evicted. As the ring spans from the oldest in-flight tuple to the most recently emitted one,
+ * the capacity limits this span rather than the number of in-flight tuples. Besides the id of the last acknowledged
+ * tuple, the store tracks the watermark, i.e., the id of the last tuple for which all tuples emitted before are
+ * acknowledged. Not thread-safe, intended to be used by the spout thread.
+ * 
+ * @author Cui Qin
+ *
+ */
+public class InFlightTupleStore {
+
+    private static final Logger LOGGER = Logger.getLogger(InFlightTupleStore.class);
+    private static final long NO_ID = Long.MIN_VALUE;
+    private static final int EMPTY = -1;
+
+    // ring in emission order, slot is free/acknowledged if tuples[slot] == null
+    private ISwitchTuple[] tuples;
+    private long[] ids;
+    private long[] emitTimes;
+    private int ringMask;
+    private long head; // sequence of the oldest entry
+    private long tail; // sequence of the next entry
+
+    // open-addressing hash table id -> ring slot, linear probing
+    private long[] keys;
+    private int[] slots;
+    private int tableMask;
+
+    private int inFlight;
+    private long lastAckedId = NO_ID;
+    private long watermark = NO_ID;
+    private long evicted;
+    private IncrementalAverage ackLatency = new IncrementalAverage();
+    private long maxAckLatency;
+
+    /**
+     * Creates an in-flight tuple store.
+     * 
+     * @param capacity the maximum number of in-flight tuples, rounded up to the next power of two
+     * @throws IllegalArgumentException if <code>capacity</code> is not positive
+     */
+    public InFlightTupleStore(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        int ringSize = AbstractRingBufferQueue.nextPowerOfTwo(capacity);
+        tuples = new ISwitchTuple[ringSize];
+        ids = new long[ringSize];
+        emitTimes = new long[ringSize];
+        ringMask = ringSize - 1;
+        int tableSize = ringSize * 2; // load factor <= 0.5
+        keys = new long[tableSize];
+        slots = new int[tableSize];
+        Arrays.fill(slots, EMPTY);
+        tableMask = tableSize - 1;
+    }
+
+    /**
+     * Adds an emitted tuple. Evicts the oldest in-flight tuple if the store is full.
+     * 
+     * @param tuple the tuple
+     */
+    public void add(ISwitchTuple tuple) {
+        if (tail - head > ringMask) {
+            evictOldest();
+        }
+        int slot = (int) tail & ringMask;
+        tuples[slot] = tuple;
+        ids[slot] = tuple.getId();
+        emitTimes[slot] = System.nanoTime();
+        tail++;
+        put(tuple.getId(), slot);
+        inFlight++;
+    }
+
+    /**
+     * Acknowledges the tuple with the given id.
+     * 
+     * @param id the tuple id
+     * @return the acknowledged tuple, <b>null</b> if no tuple with the given id is in flight
+     */
+    public ISwitchTuple ack(long id) {
+        ISwitchTuple result = null;
+        int slot = remove(id);
+        if (EMPTY != slot) {
+            result = tuples[slot];
+            tuples[slot] = null;
+            inFlight--;
+            lastAckedId = id;
+            long latency = System.nanoTime() - emitTimes[slot];
+            ackLatency.addValue(latency / 1000000.0);
+            maxAckLatency = Math.max(maxAckLatency, latency);
+            advanceHead();
+        }
+        return result;
+    }
+
+    /**
+     * Advances the head over acknowledged entries and updates the watermark.
+     */
+    private void advanceHead() {
+        while (head < tail && null == tuples[(int) head & ringMask]) {
+            watermark = ids[(int) head & ringMask];
+            head++;
+        }
+    }
+
+    /**
+     * Evicts the oldest in-flight tuple.
+     */
+    private void evictOldest() {
+        int slot = (int) head & ringMask;
+        ISwitchTuple oldest = tuples[slot];
+        if (null != oldest) {
+            remove(oldest.getId());
+            tuples[slot] = null;
+            inFlight--;
+            evicted++;
+            LOGGER.warn("In-flight tuple store full, evicting tuple " + oldest.getId());
+        }
+        advanceHead();
+    }
+
+    /**
+     * Returns the hash table position for an id.
+     * 
+     * @param id the id
+     * @return the position
+     */
+    private int hash(long id) {
+        long h = id * 0x9E3779B97F4A7C15L; // Fibonacci hashing, spreads sequential ids
+        return (int) (h ^ (h >>> 32)) & tableMask;
+    }
+
+    /**
+     * Puts an id into the hash table, replacing an existing mapping.
+     * 
+     * @param id the id
+     * @param slot the ring slot
+     */
+    private void put(long id, int slot) {
+        int pos = hash(id);
+        while (EMPTY != slots[pos] && keys[pos] != id) {
+            pos = (pos + 1) & tableMask;
+        }
+        if (EMPTY != slots[pos]) { // duplicate id, the older entry is not acknowledgeable anymore
+            tuples[slots[pos]] = null;
+            inFlight--;
+        }
+        keys[pos] = id;
+        slots[pos] = slot;
+    }
+
+    /**
+     * Removes an id from the hash table.
+     * 
+     * @param id the id
+     * @return the ring slot of <code>id</code>, {@link #EMPTY} if not found
+     */
+    private int remove(long id) {
+        int result = EMPTY;
+        int pos = hash(id);
+        while (EMPTY != slots[pos] && keys[pos] != id) {
+            pos = (pos + 1) & tableMask;
+        }
+        if (EMPTY != slots[pos]) {
+            result = slots[pos];
+            slots[pos] = EMPTY;
+            // backward shift deletion keeps probe sequences intact without tombstones
+            int gap = pos;
+            int next = (pos + 1) & tableMask;
+            while (EMPTY != slots[next]) {
+                int home = hash(keys[next]);
+                if (((next - home) & tableMask) >= ((next - gap) & tableMask)) {
+                    keys[gap] = keys[next];
+                    slots[gap] = slots[next];
+                    slots[next] = EMPTY;
+                    gap = next;
+                }
+                next = (next + 1) & tableMask;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether the tuple with the given id is in flight.
+     * 
+     * @param id the id
+     * @return <code>true</code> if in flight, <code>false</code> else
+     */
+    public boolean contains(long id) {
+        int pos = hash(id);
+        while (EMPTY != slots[pos] && keys[pos] != id) {
+            pos = (pos + 1) & tableMask;
+        }
+        return EMPTY != slots[pos];
+    }
+
+    /**
+     * Returns the in-flight tuples in emission order, e.g., for replay.
+     * 
+     * @return the in-flight tuples
+     */
+    public List<ISwitchTuple> getInFlight() {
+        List<ISwitchTuple> result = new ArrayList<ISwitchTuple>(inFlight);
+        for (long seq = head; seq < tail; seq++) {
+            ISwitchTuple tuple = tuples[(int) seq & ringMask];
+            if (null != tuple) {
+                result.add(tuple);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of in-flight tuples.
+     * 
+     * @return the number of in-flight tuples
+     */
+    public int getInFlightCount() {
+        return inFlight;
+    }
+
+    /**
+     * Returns the maximum number of in-flight tuples.
+     * 
+     * @return the maximum number
+     */
+    public int getCapacity() {
+        return tuples.length;
+    }
+
+    /**
+     * Returns the id of the last acknowledged tuple.
+     * 
+     * @return the id, {@link Long#MIN_VALUE} if no tuple was acknowledged so far
+     */
+    public long getLastAckedId() {
+        return lastAckedId;
+    }
+
+    /**
+     * Returns the watermark, i.e., the id of the most recently emitted tuple for which this tuple and all 
+     * tuples emitted before were acknowledged (or evicted).
+     * 
+     * @return the watermark, {@link Long#MIN_VALUE} if there is none so far
+     */
+    public long getWatermark() {
+        return watermark;
+    }
+
+    /**
+     * Returns the number of tuples evicted as the store was full.
+     * 
+     * @return the number of evicted tuples
+     */
+    public long getEvictedCount() {
+        return evicted;
+    }
+
+    /**
+     * Returns the average acknowledgement latency, i.e., the time between adding and acknowledging a tuple.
+     * 
+     * @return the average latency in milliseconds
+     */
+    public double getAverageAckLatency() {
+        return ackLatency.getAverage();
+    }
+
+    /**
+     * Returns the maximum acknowledgement latency.
+     * 
+     * @return the maximum latency in milliseconds
+     */
+    public double getMaxAckLatency() {
+        return maxAckLatency / 1000000.0;
+    }
+
+    /**
+     * Returns the number of acknowledged tuples.
+     * 
+     * @return the number of acknowledged tuples
+     */
+    public long getAckCount() {
+        return ackLatency.getCount();
+    }
+
+}
@@ -0,0 +1,50 @@
+package eu.qualimaster.common.switching;
+
+/**
+ * A lock-free multi-producer/single-consumer ring buffer queue. Any number of threads may call 
+ * {@link #produce(Object)} or {@link #offer(Object)}, but only one thread may call {@link #consume()}
+ * or {@link #poll()}.
+ *
+ * @param <T> the data type
+ * @author Cui Qin
+ *
+ */
+public class MultiProducerRingBufferQueue<T> extends AbstractRingBufferQueue<T> {
+
+    /**
+     * Creates a multi-producer queue with {@link WaitStrategy#YIELD}.
+     *
+     * @param capacity the minimum capacity of the queue, rounded up to the next power of two
+     */
+    public MultiProducerRingBufferQueue(int capacity) {
+        this(capacity, WaitStrategy.YIELD);
+    }
+
+    /**
+     * Creates a multi-producer queue.
+     *
+     * @param capacity the minimum capacity of the queue, rounded up to the next power of two
+     * @param waitStrategy the strategy applied while waiting for a non-full or non-empty queue
+     */
+    public MultiProducerRingBufferQueue(int capacity, WaitStrategy waitStrategy) {
+        super(capacity, waitStrategy);
+    }
+
+    @Override
+    public boolean offer(T data) {
+        boolean done = false;
+        boolean full = false;
+        while (!done && !full) {
+            long t = tail.get();
+            if (t - head.get() >= capacity()) {
+                full = true;
+            } else if (tail.compareAndSet(t, t + 1)) {
+                // slot claimed, consumer waits until published as it checks the slot, not the tail
+                publish(index(t), data);
+                done = true;
+            }
+        }
+        return done;
+    }
+
+}
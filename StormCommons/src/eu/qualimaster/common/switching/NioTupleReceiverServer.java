@@ -0,0 +1,71 @@
+package eu.qualimaster.common.switching;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Creates a non-blocking socket server for receiving tuples. In contrast to {@link TupleReceiverServer}, no thread
+ * is created per server or connection, rather all servers of a worker share the {@link TupleReceiverEventLoop}, 
+ * which decodes the received frames in place and passes them to the given {@link ITupleFrameHandler}.
+ * @author Cui Qin
+ *
+ */
+public class NioTupleReceiverServer implements ITupleReceiverServer {
+    private static final Logger LOGGER = Logger.getLogger(NioTupleReceiverServer.class);
+    private ServerSocketChannel serverChannel;
+    private ITupleFrameHandler handler;
+    private TupleReceiverEventLoop loop;
+    private int port;
+
+    /**
+     * Creates a non-blocking socket server for receiving tuples.
+     * @param handler the handler for the received frames, e.g., a {@link TupleReceiverHandler}
+     * @param port the port to create the socket server
+     */
+    public NioTupleReceiverServer(ITupleFrameHandler handler, int port) {
+        this.handler = handler;
+        this.port = port;
+        try {
+            ServerSocketChannel channel = ServerSocketChannel.open();
+            channel.socket().setReuseAddress(true);
+            channel.socket().bind(new InetSocketAddress(port));
+            serverChannel = channel;
+        } catch (IOException e) {
+            LOGGER.error("While creating server on port " + port + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void start() {
+        if (null != serverChannel && null == loop) {
+            try {
+                loop = TupleReceiverEventLoop.getInstance();
+                loop.register(serverChannel, handler);
+                LOGGER.info("Server started with the port: " + port);
+            } catch (IOException e) {
+                LOGGER.error("While starting server on port " + port + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Stops the server and closes all connections accepted by this server.
+     * @throws IOException the IO exception
+     */
+    @Override
+    public void stop() throws IOException {
+        LOGGER.info("Stopping server");
+        if (null != loop) {
+            loop.unregister(serverChannel); // closes the channel
+            loop = null;
+        } else if (null != serverChannel) {
+            serverChannel.close();
+        }
+        serverChannel = null;
+        LOGGER.info("Stopped server");
+    }
+
+}
@@ -0,0 +1,273 @@
+package eu.qualimaster.common.switching;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import eu.qualimaster.base.algorithm.IGeneralTuple;
+import eu.qualimaster.base.algorithm.ISwitchTuple;
+import eu.qualimaster.base.serializer.IGeneralTupleSerializer;
+import eu.qualimaster.base.serializer.ISwitchTupleSerializer;
+
+/**
+ * Sends length-prefixed tuple frames via a socket channel, coalescing frames into a direct byte buffer that is
+ * written according to a {@link FlushPolicy}. The wire format is the same as for {@link TupleSender}, i.e.,
+ * receivers such as {@link TupleReceiverHandler} or {@link NioTupleReceiverServer} can be used.
+ * @author Cui Qin
+ *
+ */
+public class NioTupleSender extends AbstractTupleSender {
+
+    private static final Logger LOGGER = Logger.getLogger(NioTupleSender.class);
+    private static final int HEADER_LEN = 4;
+    private static ScheduledExecutorService flusher;
+    
+    private String host;
+    private int port;
+    private FlushPolicy policy;
+    private SocketChannel channel;
+    private ByteBuffer batch;
+    private ByteBuffer header;
+    private long firstBuffered = -1; // time of the first frame in the current batch, -1 if empty
+    private ScheduledFuture<?> flushTask;
+    
+    /**
+     * Creates a tuple sender with {@link FlushPolicy#DEFAULT}.
+     * @param host the host to be connected
+     * @param port the port to be connected
+     */
+    public NioTupleSender(String host, int port) {
+        this(host, port, FlushPolicy.DEFAULT);
+    }
+
+    /**
+     * Creates a tuple sender.
+     * @param host the host to be connected
+     * @param port the port to be connected
+     * @param policy the flush policy
+     */
+    public NioTupleSender(String host, int port, FlushPolicy policy) {
+        this.host = host;
+        this.port = port;
+        this.policy = policy;
+        this.batch = ByteBuffer.allocateDirect(Math.max(HEADER_LEN, policy.getFlushSize()));
+        this.header = ByteBuffer.allocateDirect(HEADER_LEN);
+    }
+    
+    /**
+     * Returns the shared daemon executor performing the time-based flushes of all senders.
+     * @return the executor
+     */
+    private static synchronized ScheduledExecutorService getFlusher() {
+        if (null == flusher) {
+            flusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread result = new Thread(runnable, "NioTupleSender flusher");
+                    result.setDaemon(true);
+                    return result;
+                }
+            });
+        }
+        return flusher;
+    }
+    
+    /**
+     * Connects the host server.
+     * @return true if connected, otherwise false
+     */
+    private boolean connect() {
+        if (null == channel) {
+            try {
+                LOGGER.info("Connecting to the host: " + host + ", the port: " + port);
+                SocketChannel ch = SocketChannel.open(new InetSocketAddress(host, port));
+                ch.socket().setTcpNoDelay(true);
+                channel = ch;
+                long delay = policy.getFlushDelay();
+                if (delay > 0) {
+                    flushTask = getFlusher().scheduleWithFixedDelay(new Runnable() {
+                        
+                        @Override
+                        public void run() {
+                            flushIfDue();
+                        }
+                    }, delay, delay, TimeUnit.MILLISECONDS);
+                }
+            } catch (IOException e) {
+                LOGGER.error("While connecting: " + e.getMessage());
+            }
+        }
+        return null != channel;
+    }
+    
+    @Override
+    public synchronized void send(byte[] bytes) {
+        if (connect()) {
+            int frameLen = HEADER_LEN + bytes.length;
+            if (batch.remaining() < frameLen) {
+                flush();
+            }
+            if (batch.remaining() < frameLen) { // larger than the batch buffer, write through
+                header.clear();
+                header.putInt(bytes.length);
+                header.flip();
+                write(header);
+                write(ByteBuffer.wrap(bytes));
+            } else {
+                if (firstBuffered < 0) {
+                    firstBuffered = System.currentTimeMillis();
+                }
+                batch.putInt(bytes.length);
+                batch.put(bytes);
+                if (batch.position() >= policy.getFlushSize()) {
+                    flush();
+                }
+            }
+        }
+    }
+    
+    /**
+     * Serializes and sends a general tuple. The tuple is serialized directly into the batch buffer if possible.
+     * @param tuple the tuple
+     * @param serializer the serializer
+     */
+    public synchronized void send(IGeneralTuple tuple, IGeneralTupleSerializer serializer) {
+        if (connect() && !sendBatched(tuple, serializer, null)) {
+            send(serializer.serialize(tuple));
+        }
+    }
+
+    /**
+     * Serializes and sends a switch tuple. The tuple is serialized directly into the batch buffer if possible.
+     * @param tuple the tuple
+     * @param serializer the serializer
+     */
+    public synchronized void send(ISwitchTuple tuple, ISwitchTupleSerializer serializer) {
+        if (connect() && !sendBatched(tuple, null, serializer)) {
+            send(serializer.serialize(tuple));
+        }
+    }
+
+    /**
+     * Tries to serialize a tuple directly into the batch buffer, flushing once if the remaining buffer space is 
+     * not sufficient. Either <code>genSer</code> or <code>swiSer</code> must be given.
+     * @param tuple the tuple
+     * @param genSer the general tuple serializer (may be <b>null</b>)
+     * @param swiSer the switch tuple serializer (may be <b>null</b>, used if <code>genSer</code> is <b>null</b>)
+     * @return <code>true</code> if the tuple was added to the batch, <code>false</code> if the tuple does not fit
+     *     into an empty batch buffer
+     */
+    private boolean sendBatched(IGeneralTuple tuple, IGeneralTupleSerializer genSer, ISwitchTupleSerializer swiSer) {
+        boolean done = false;
+        boolean retry = true;
+        while (!done && retry) {
+            int start = batch.position();
+            retry = start > 0;
+            if (batch.remaining() > HEADER_LEN) {
+                batch.position(start + HEADER_LEN);
+                try {
+                    int len;
+                    if (null != genSer) {
+                        len = genSer.serializeTo(tuple, batch);
+                    } else {
+                        len = swiSer.serializeTo((ISwitchTuple) tuple, batch);
+                    }
+                    batch.putInt(start, len);
+                    done = true;
+                } catch (BufferOverflowException e) {
+                    batch.position(start);
+                }
+            }
+            if (!done && retry) {
+                flush();
+            }
+        }
+        if (done) {
+            if (firstBuffered < 0) {
+                firstBuffered = System.currentTimeMillis();
+            }
+            if (batch.position() >= policy.getFlushSize()) {
+                flush();
+            }
+        }
+        return done;
+    }
+
+    @Override
+    public synchronized void flush() {
+        if (null != channel && batch.position() > 0) {
+            batch.flip();
+            write(batch);
+            batch.clear();
+        }
+        firstBuffered = -1;
+    }
+    
+    /**
+     * Flushes if the oldest buffered frame exceeds the flush delay of the policy.
+     */
+    private synchronized void flushIfDue() {
+        if (firstBuffered >= 0 && System.currentTimeMillis() - firstBuffered >= policy.getFlushDelay()) {
+            flush();
+        }
+    }
+    
+    /**
+     * Writes the given buffer completely to the channel. Closes the channel in case of I/O problems.
+     * @param buffer the buffer to be written
+     */
+    private void write(ByteBuffer buffer) {
+        try {
+            while (null != channel && buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            LOGGER.error("While writing: " + e.getMessage());
+            close();
+        }
+    }
+
+    @Override
+    public synchronized boolean isConnected() {
+        return null != channel;
+    }
+
+    /**
+     * Closes the channel and cancels the time-based flushing.
+     */
+    private void close() {
+        if (null != flushTask) {
+            flushTask.cancel(false);
+            flushTask = null;
+        }
+        if (null != channel) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOGGER.error("While closing: " + e.getMessage());
+            }
+            channel = null;
+        }
+        batch.clear();
+        firstBuffered = -1;
+    }
+
+    @Override
+    public synchronized void stop() {
+        LOGGER.info("Stopping the sender...");
+        flush();
+        close();
+        LOGGER.info("Stopped the sender...");
+    }
+
+}
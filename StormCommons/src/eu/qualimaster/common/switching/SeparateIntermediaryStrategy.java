@@ -2,11 +2,7 @@ package eu.qualimaster.common.switching;
 
 import java.io.Serializable;
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.Map;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.apache.log4j.Logger;
 
@@ -24,14 +20,14 @@ import eu.qualimaster.common.switching.IState.SwitchState;
 public class SeparateIntermediaryStrategy extends AbstractSwitchStrategy {
     private static final Logger LOGGER = Logger.getLogger(SeparateIntermediaryStrategy.class);
     private static final int QUEUE_SIZE = 100;
+    private static final int IN_FLIGHT_CAPACITY = 1 << 16;
     private Map<String, Serializable> parameters;
     @SuppressWarnings("rawtypes")
     private Map conf;
-    private transient Queue<IGeneralTuple> inQueue = null; //handle incoming tuples
-    private transient LinkedList<IGeneralTuple> outQueue = null; //handle outgoing tuples
-    private transient Queue<IGeneralTuple> tmpQueue = null; //handle transferred tuples
-    private SynchronizedQueue<IGeneralTuple> syn = null;
-    private SynchronizedQueue<IGeneralTuple> tmpSyn = null;
+    private transient InFlightTupleStore outQueue = null; //handle outgoing tuples
+    private IProducerConsumerQueue<IGeneralTuple> syn = null; //handle incoming tuples
+    private IProducerConsumerQueue<IGeneralTuple> tmpSyn = null; //handle transferred tuples
+    private KryoSwitchTupleSerializer swiSer = null;
     private SwitchState currentState;
     private long lastProcessedId;
     
@@ -43,9 +39,7 @@ public class SeparateIntermediaryStrategy extends AbstractSwitchStrategy {
     public SeparateIntermediaryStrategy(Map conf, SwitchState state) {
         this.conf = conf;
         parameters = new HashMap<String, Serializable>();
-        inQueue = new ConcurrentLinkedQueue<IGeneralTuple>();
-        outQueue = new LinkedList<IGeneralTuple>();
-        tmpQueue = new ConcurrentLinkedQueue<IGeneralTuple>();
+        outQueue = new InFlightTupleStore(IN_FLIGHT_CAPACITY);
         currentState = state;
     }
     
@@ -57,10 +51,12 @@ public class SeparateIntermediaryStrategy extends AbstractSwitchStrategy {
 
     @Override
     public TupleReceiverHandler getTupleReceiverHandler() {
-        syn = new SynchronizedQueue<IGeneralTuple>(inQueue, QUEUE_SIZE);
-        tmpSyn = new SynchronizedQueue<IGeneralTuple>(tmpQueue, QUEUE_SIZE);
+        // multiple producers (the TupleReceiverServer runs one handler thread per accepted connection, the 
+        // NioTupleReceiverServer a shared event loop), single consumer (spout thread)
+        syn = new MultiProducerRingBufferQueue<IGeneralTuple>(QUEUE_SIZE);
+        tmpSyn = new MultiProducerRingBufferQueue<IGeneralTuple>(QUEUE_SIZE);
         KryoGeneralTupleSerializer genSer = new KryoGeneralTupleSerializer(conf); 
-        KryoSwitchTupleSerializer swiSer = new KryoSwitchTupleSerializer(conf);
+        swiSer = new KryoSwitchTupleSerializer(conf, QUEUE_SIZE); // reuses acknowledged switch tuples
         TupleReceiverHandler handler = new TupleReceiverHandler(genSer, swiSer, syn, tmpSyn);
         return handler;
     }
@@ -71,7 +67,7 @@ public class SeparateIntermediaryStrategy extends AbstractSwitchStrategy {
         if (currentState.equals(SwitchState.ACTIVE_DEFAULT)) { //TODO:check which state is needed to check here
             tuple = syn.consume();
             if (!tuple.isGeneralTuple()) { //queue the emitted tuple in the switch phase 
-                outQueue.add(tuple);
+                outQueue.add((ISwitchTuple) tuple);
             }
         }
         return tuple;
@@ -85,18 +81,28 @@ public class SeparateIntermediaryStrategy extends AbstractSwitchStrategy {
 
     @Override
     public void ack(Object msgId) {
-        Iterator<IGeneralTuple> iterator = outQueue.descendingIterator();
-        while (iterator.hasNext()) {
-            ISwitchTuple ackItem = (ISwitchTuple) iterator.next();
-            if (msgId.equals(ackItem.getId())) {
+        if (msgId instanceof Long) {
+            ISwitchTuple ackItem = outQueue.ack((Long) msgId);
+            if (null != ackItem) {
                 lastProcessedId = ackItem.getId();
-                boolean flag = outQueue.remove(ackItem);
-                LOGGER.info(System.currentTimeMillis() + " Acked the tuple with the msgId: " + msgId 
-                        + " removed: " + flag + ", outQueue size: " + outQueue.size());
-                break;
+                if (null != swiSer) {
+                    swiSer.release(ackItem);
+                }
+            }
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Acked the tuple with the msgId: " + msgId + " removed: " + (null != ackItem) 
+                    + ", in flight: " + outQueue.getInFlightCount());
             }
         }
-        
+    }
+    
+    /**
+     * Returns the in-flight switch tuples, e.g., for replay or for accessing the in-flight count and the
+     * acknowledgement latency.
+     * @return the in-flight tuples
+     */
+    public InFlightTupleStore getInFlightTuples() {
+        return outQueue;
     }
 
 }
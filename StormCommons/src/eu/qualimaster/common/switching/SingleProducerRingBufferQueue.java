@@ -0,0 +1,50 @@
+package eu.qualimaster.common.switching;
+
+/**
+ * A lock-free single-producer/single-consumer ring buffer queue. Only one thread may call 
+ * {@link #produce(Object)} or {@link #offer(Object)} and only one (other) thread may call {@link #consume()}
+ * or {@link #poll()}, e.g., the tuple receiver handler thread and the spout thread.
+ *
+ * @param <T> the data type
+ * @author Cui Qin
+ *
+ */
+public class SingleProducerRingBufferQueue<T> extends AbstractRingBufferQueue<T> {
+
+    private long cachedHead; // accessed by the producer only, avoids reading the volatile head on each offer
+
+    /**
+     * Creates a single-producer queue with {@link WaitStrategy#YIELD}.
+     *
+     * @param capacity the minimum capacity of the queue, rounded up to the next power of two
+     */
+    public SingleProducerRingBufferQueue(int capacity) {
+        this(capacity, WaitStrategy.YIELD);
+    }
+
+    /**
+     * Creates a single-producer queue.
+     *
+     * @param capacity the minimum capacity of the queue, rounded up to the next power of two
+     * @param waitStrategy the strategy applied while waiting for a non-full or non-empty queue
+     */
+    public SingleProducerRingBufferQueue(int capacity, WaitStrategy waitStrategy) {
+        super(capacity, waitStrategy);
+    }
+
+    @Override
+    public boolean offer(T data) {
+        boolean done = true;
+        long t = tail.get();
+        if (t - cachedHead >= capacity()) {
+            cachedHead = head.get();
+            done = t - cachedHead < capacity();
+        }
+        if (done) {
+            publish(index(t), data);
+            tail.lazySet(t + 1);
+        }
+        return done;
+    }
+
+}
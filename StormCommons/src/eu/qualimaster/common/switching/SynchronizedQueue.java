@@ -2,12 +2,13 @@ package eu.qualimaster.common.switching;
 
 import java.util.Queue;
 /**
- * A synchronized queue adopting the producer-consumer pattern.
+ * A synchronized queue adopting the producer-consumer pattern. Uses a monitor on each operation, 
+ * see {@link SingleProducerRingBufferQueue} and {@link MultiProducerRingBufferQueue} for lock-free alternatives.
  * @param <T> the data type
  * @author Cui Qin
  *
  */
-public class SynchronizedQueue<T> {
+public class SynchronizedQueue<T> implements IProducerConsumerQueue<T> {
     private Queue<T> queue;
     private int size;
     
@@ -24,6 +25,7 @@ public class SynchronizedQueue<T> {
      * Consumes tuple data from the queue.
      * @return a tuple
      */
+    @Override
     public T consume() {
       //wait if queue is empty
         while (queue.isEmpty()) {
@@ -46,6 +48,7 @@ public class SynchronizedQueue<T> {
      * Stores tuples into the queue.
      * @param data the tuple data to be stored
      */
+    @Override
     public void produce(T data) {
         // wait if queue is full
         while (queue.size() == size) {
@@ -68,6 +71,7 @@ public class SynchronizedQueue<T> {
      * Returns the current size of the queue.
      * @return the current size
      */
+    @Override
     public int currentSize() {
         return queue.size();
     }
@@ -0,0 +1,277 @@
+package eu.qualimaster.common.switching;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+/**
+ * A selector-based event loop accepting and reading length-prefixed tuple frames for all 
+ * {@link NioTupleReceiverServer NIO tuple servers} of a worker. Frames are decoded in place from an array-backed 
+ * read buffer per connection and passed as buffer slices to the {@link ITupleFrameHandler} of the server.
+ * Please note that a blocking handler (e.g., due to a full queue) delays all connections of the loop.
+ * @author Cui Qin
+ *
+ */
+public class TupleReceiverEventLoop implements Runnable {
+
+    /**
+     * The initial size of the per-connection read buffers. Buffers grow on demand for larger frames.
+     */
+    public static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final Logger LOGGER = Logger.getLogger(TupleReceiverEventLoop.class);
+    private static final int HEADER_LEN = 4;
+    private static final int UNREGISTER_TIMEOUT = 1000;
+    private static TupleReceiverEventLoop instance;
+
+    private Selector selector;
+    private Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>(); // to be executed in the loop thread
+    private volatile boolean cont = true;
+
+    /**
+     * Decodes the frames of a single connection.
+     * @author Cui Qin
+     */
+    private static class FrameDecoder {
+        private ServerSocketChannel server;
+        private ITupleFrameHandler handler;
+        private ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+        /**
+         * Creates a frame decoder.
+         * @param server the server channel which accepted the connection
+         * @param handler the frame handler
+         */
+        private FrameDecoder(ServerSocketChannel server, ITupleFrameHandler handler) {
+            this.server = server;
+            this.handler = handler;
+        }
+
+        /**
+         * Reads available bytes from <code>channel</code> and passes all complete frames to the handler.
+         * @param channel the channel to read from
+         * @return <code>false</code> if the end of the stream was reached, <code>true</code> else
+         * @throws IOException in case of I/O problems
+         */
+        private boolean read(SocketChannel channel) throws IOException {
+            int read = channel.read(buffer);
+            buffer.flip();
+            while (buffer.remaining() >= HEADER_LEN) {
+                int pos = buffer.position();
+                int len = buffer.getInt(pos);
+                if (len < 0) {
+                    throw new IOException("Illegal frame length " + len);
+                }
+                if (buffer.remaining() - HEADER_LEN >= len) {
+                    handler.handleFrame(buffer.array(), buffer.arrayOffset() + pos + HEADER_LEN, len);
+                    buffer.position(pos + HEADER_LEN + len);
+                } else {
+                    ensureCapacity(HEADER_LEN + len);
+                    break;
+                }
+            }
+            buffer.compact();
+            return read >= 0;
+        }
+
+        /**
+         * Ensures that the buffer can hold a frame of <code>frameLen</code> bytes. Assumes that the buffer is in
+         * read mode and stays in read mode.
+         * @param frameLen the length of the frame including its header
+         */
+        private void ensureCapacity(int frameLen) {
+            if (frameLen > buffer.capacity()) {
+                ByteBuffer tmp = ByteBuffer.allocate(frameLen);
+                tmp.put(buffer);
+                tmp.flip();
+                buffer = tmp;
+            }
+        }
+    }
+
+    /**
+     * Creates an event loop.
+     * @throws IOException in case that the selector cannot be opened
+     */
+    TupleReceiverEventLoop() throws IOException {
+        selector = Selector.open();
+    }
+
+    /**
+     * Returns the (started) event loop of this worker.
+     * @return the event loop
+     * @throws IOException in case that the event loop cannot be created
+     */
+    public static synchronized TupleReceiverEventLoop getInstance() throws IOException {
+        if (null == instance || !instance.cont) {
+            instance = new TupleReceiverEventLoop();
+            Thread thread = new Thread(instance, "TupleReceiverEventLoop");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        return instance;
+    }
+
+    /**
+     * Executes a task in the thread of the event loop.
+     * @param task the task
+     */
+    private void execute(Runnable task) {
+        tasks.offer(task);
+        selector.wakeup();
+    }
+
+    /**
+     * Registers a server channel with this event loop.
+     * @param channel the server channel (bound)
+     * @param handler the frame handler for all connections accepted by <code>channel</code>
+     */
+    void register(final ServerSocketChannel channel, final ITupleFrameHandler handler) {
+        execute(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    channel.configureBlocking(false);
+                    channel.register(selector, SelectionKey.OP_ACCEPT, handler);
+                } catch (IOException e) {
+                    LOGGER.error("While registering: " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * Unregisters a server channel from this event loop, closes all connections accepted by the server channel
+     * and closes the server channel. Waits until the server channel is released.
+     * @param channel the server channel
+     */
+    void unregister(final ServerSocketChannel channel) {
+        final CountDownLatch done = new CountDownLatch(1);
+        execute(new Runnable() {
+
+            @Override
+            public void run() {
+                for (SelectionKey key : selector.keys()) {
+                    if (key.channel() == channel || (key.attachment() instanceof FrameDecoder 
+                        && ((FrameDecoder) key.attachment()).server == channel)) {
+                        close(key);
+                    }
+                }
+                try {
+                    channel.close();
+                    selector.selectNow(); // deregisters the cancelled keys, i.e., releases the port
+                } catch (IOException e) {
+                    LOGGER.error("While closing: " + e.getMessage());
+                }
+                done.countDown();
+            }
+        });
+        try {
+            done.await(UNREGISTER_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            // just don't wait
+        }
+    }
+
+    @Override
+    public void run() {
+        while (cont) {
+            try {
+                selector.select();
+                Runnable task = tasks.poll();
+                while (null != task) {
+                    task.run();
+                    task = tasks.poll();
+                }
+                Iterator<SelectionKey> iter = selector.selectedKeys().iterator();
+                while (iter.hasNext()) {
+                    SelectionKey key = iter.next();
+                    iter.remove();
+                    handle(key);
+                }
+            } catch (IOException e) {
+                LOGGER.error("While selecting: " + e.getMessage());
+            }
+        }
+        closeAll();
+    }
+
+    /**
+     * Handles a selected key.
+     * @param key the key
+     */
+    private void handle(SelectionKey key) {
+        try {
+            if (key.isValid() && key.isAcceptable()) {
+                ServerSocketChannel server = (ServerSocketChannel) key.channel();
+                SocketChannel channel = server.accept();
+                if (null != channel) {
+                    channel.configureBlocking(false);
+                    channel.register(selector, SelectionKey.OP_READ, 
+                        new FrameDecoder(server, (ITupleFrameHandler) key.attachment()));
+                    LOGGER.info("Socket connection accepted " + server.socket().getLocalPort());
+                }
+            } else if (key.isValid() && key.isReadable()) {
+                FrameDecoder decoder = (FrameDecoder) key.attachment();
+                if (!decoder.read((SocketChannel) key.channel())) {
+                    close(key);
+                }
+            }
+        } catch (CancelledKeyException e) {
+            close(key);
+        } catch (ClosedChannelException e) {
+            close(key);
+        } catch (IOException e) {
+            LOGGER.error("While handling connection: " + e.getMessage());
+            close(key);
+        }
+    }
+
+    /**
+     * Cancels a key and closes its channel.
+     * @param key the key
+     */
+    private static void close(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            LOGGER.error("While closing: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Closes all channels and the selector.
+     */
+    private void closeAll() {
+        for (SelectionKey key : selector.keys()) {
+            close(key);
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            LOGGER.error("While closing selector: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stops the event loop and closes all connections.
+     */
+    public void stop() {
+        cont = false;
+        selector.wakeup();
+    }
+
+}
@@ -18,7 +18,7 @@ import eu.qualimaster.base.serializer.ISwitchTupleSerializer;
  * @author Cui Qin
  *
  */
-public class TupleReceiverHandler implements ITupleReceiverHandler {
+public class TupleReceiverHandler implements ITupleReceiverHandler, ITupleFrameHandler {
     private static final Logger LOGGER = Logger.getLogger(TupleReceiverHandler.class);
     private Socket socket;
     private InputStream in; 
@@ -26,8 +26,8 @@ public class TupleReceiverHandler implements ITupleReceiverHandler {
     private boolean cont = true;
     private IGeneralTupleSerializer genSer = null;
     private ISwitchTupleSerializer swiSer = null;
-    private SynchronizedQueue<IGeneralTuple> syn = null; //general queue
-    private SynchronizedQueue<IGeneralTuple> tmpSyn = null; //tmp queue
+    private IProducerConsumerQueue<IGeneralTuple> syn = null; //general queue
+    private IProducerConsumerQueue<IGeneralTuple> tmpSyn = null; //tmp queue
     private boolean isGeneralTuple = true; //indicates the type of received tuples, default is general tuple
     private boolean useTemporaryQueue = false; //indicates the queue to be used, default is the general queue
     /**
@@ -40,7 +40,7 @@ public class TupleReceiverHandler implements ITupleReceiverHandler {
      * @param tmpSyn the temporary queue for storing tuples
      */
     public TupleReceiverHandler(IGeneralTupleSerializer genSer, ISwitchTupleSerializer swiSer, 
-            SynchronizedQueue<IGeneralTuple> syn, SynchronizedQueue<IGeneralTuple> tmpSyn) {
+            IProducerConsumerQueue<IGeneralTuple> syn, IProducerConsumerQueue<IGeneralTuple> tmpSyn) {
         this.genSer = genSer;
         this.swiSer = swiSer;
         this.syn = syn;
@@ -53,7 +53,7 @@ public class TupleReceiverHandler implements ITupleReceiverHandler {
      * @param genSer the serializer for the general tuple {@link IGeneralTuple}
      * @param syn the queue for storing tuples
      */
-    public TupleReceiverHandler(IGeneralTupleSerializer genSer, SynchronizedQueue<IGeneralTuple> syn) {
+    public TupleReceiverHandler(IGeneralTupleSerializer genSer, IProducerConsumerQueue<IGeneralTuple> syn) {
         this.genSer = genSer;
         this.syn = syn;
     } 
@@ -66,12 +66,7 @@ public class TupleReceiverHandler implements ITupleReceiverHandler {
                     int len = kryoInput.readInt();
                     byte[] ser = new byte[len];
                     kryoInput.readBytes(ser);
-                    if (len == DataFlag.FLAG_BYTES_LEN) { //switch the tuple serializer
-                        switchMode(new String(ser));   
-                        LOGGER.info("Received flag: " + new String(ser));
-                    } else {
-                        enqueue(ser); //enqueue the received tuple
-                    }
+                    handleFrame(ser, 0, len);
                 }
             } catch (KryoException e) {
                 e.printStackTrace();
@@ -79,6 +74,22 @@ public class TupleReceiverHandler implements ITupleReceiverHandler {
         }
     }
 
+    @Override
+    public void handleFrame(byte[] buffer, int offset, int length) {
+        if (length == DataFlag.FLAG_BYTES_LEN) { //switch the tuple serializer
+            String flag = DataFlag.getFlag(buffer, offset, length);
+            if (null == flag) {
+                flag = new String(buffer, offset, length);
+                LOGGER.warn("Received unknown flag: " + flag);
+            } else {
+                LOGGER.info("Received flag: " + flag);
+            }
+            switchMode(flag);
+        } else {
+            enqueue(buffer, offset, length); //enqueue the received tuple
+        }
+    }
+
     @Override
     public void setSocket(Socket socket) {
         this.socket = socket;
@@ -137,16 +148,18 @@ public class TupleReceiverHandler implements ITupleReceiverHandler {
     
     /**
      * Enqueue the received tuple.
-     * @param ser the tuple bytes
+     * @param buffer the buffer containing the tuple bytes
+     * @param offset the offset of the tuple bytes in <code>buffer</code>
+     * @param length the number of tuple bytes
      */
-    private void enqueue(byte[] ser) {
+    private void enqueue(byte[] buffer, int offset, int length) {
         IGeneralTuple tuple;
         try {
             //determining the received tuple type
             if (isGeneralTuple) { 
-                tuple = genSer.deserialize(ser); 
+                tuple = genSer.deserialize(buffer, offset, length); 
             } else {
-                tuple = swiSer.deserialize(ser);
+                tuple = swiSer.deserialize(buffer, offset, length);
             }
             if (tuple != null) {
                 //determining the queue to be used
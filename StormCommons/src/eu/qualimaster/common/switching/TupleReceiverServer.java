@@ -10,7 +10,7 @@ import org.apache.log4j.Logger;
  * @author Cui Qin
  *
  */
-public class TupleReceiverServer implements Runnable {
+public class TupleReceiverServer implements ITupleReceiverServer, Runnable {
     private static final Logger LOGGER = Logger.getLogger(TupleReceiverServer.class);
     private ServerSocket serverSocket;
     private ITupleReceiverHandler handler;
@@ -31,9 +31,7 @@ public class TupleReceiverServer implements Runnable {
         }
     }
     
-    /**
-     * Starts the server.
-     */
+    @Override
     public void start() {
         new Thread(this).start();
         LOGGER.info("Server thread started with the port: " + port);
@@ -54,10 +52,7 @@ public class TupleReceiverServer implements Runnable {
         }
     }
     
-    /**
-     * Stops the server.
-     * @throws IOException the IO exception
-     */
+    @Override
     public void stop() throws IOException {
         LOGGER.info("Stopping server");
         if (cont) {
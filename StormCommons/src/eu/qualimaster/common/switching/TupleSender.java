@@ -9,11 +9,11 @@ import org.apache.log4j.Logger;
 import com.esotericsoftware.kryo.io.Output;
 
 /**
- * Sends tuples via network.
+ * Sends tuples via network, flushing after each tuple. See {@link NioTupleSender} for a batching sender.
  * @author Cui Qin
  *
  */
-public class TupleSender {
+public class TupleSender extends AbstractTupleSender {
     private static final Logger LOGGER = Logger.getLogger(TupleSender.class);
     private String host;
     private int port;
@@ -48,10 +48,7 @@ public class TupleSender {
         }
         return null != socket;
     }
-    /**
-     * Sends the data bytes.
-     * @param bytes the bytes to be sent
-     */
+    @Override
     public void send(byte[] bytes) {
         if (connect()) {
             output.writeInt(bytes.length);
@@ -60,45 +57,17 @@ public class TupleSender {
         }
     }
     
-    /**
-     * Sends a flag indicating the {@link ISwitchTuple} data type.
-     */
-    public void sendSwitchTupleFlag() {
-        send(DataFlag.SWITCH_TUPLE_FLAG.getBytes());
+    @Override
+    public void flush() {
+        // already flushed in send
     }
     
-    /**
-     * Sends a flag indicating the {@link IGeneralTuple} data type.
-     */
-    public void sendGeneralTupleFlag() {
-        send(DataFlag.GENERAL_TUPLE_FLAG.getBytes());
-    }
-    
-    /**
-     * Sends a flag indicating the temporary queue shall be used.
-     */
-    public void sendTemporaryQueueFlag() {
-        send(DataFlag.TEMPORARY_QUEUE_FLAG.getBytes());
-    }
-    
-    /**
-     * Sends a flag indicating the general queue shall be used.
-     */
-    public void sendGeneralQueueFlag() {
-        send(DataFlag.GENERAL_QUEUE_FLAG.getBytes());
-    }
-    
-    /**
-     * Checks whether the connection is there.
-     * @return true if connected, otherwise false
-     */
+    @Override
     public boolean isConnected() {
         return null != socket;
     }
     
-    /**
-     * Stops the sender.
-     */
+    @Override
     public void stop() {
         System.out.println("Stopping the sender...");
         if (null != output) {
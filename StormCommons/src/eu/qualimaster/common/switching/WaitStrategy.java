@@ -0,0 +1,70 @@
+package eu.qualimaster.common.switching;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Defines how a thread waits on a ring buffer queue while the queue is full (producer) or empty (consumer).
+ * @author Cui Qin
+ *
+ */
+public enum WaitStrategy {
+
+    /**
+     * Busy spins on the CPU. Lowest latency, but burns a core while waiting.
+     */
+    BUSY_SPIN {
+        @Override
+        public int idle(int counter) {
+            return counter + 1;
+        }
+    },
+
+    /**
+     * Spins for a short time and then yields the CPU to other threads.
+     */
+    YIELD {
+        @Override
+        public int idle(int counter) {
+            if (counter < SPIN_TRIES) {
+                counter++;
+            } else {
+                Thread.yield();
+            }
+            return counter;
+        }
+    },
+
+    /**
+     * Spins, then yields and finally parks the thread for {@link #PARK_NANOS}. Lowest CPU usage when idle.
+     */
+    PARK {
+        @Override
+        public int idle(int counter) {
+            if (counter < SPIN_TRIES) {
+                counter++;
+            } else if (counter < SPIN_TRIES + YIELD_TRIES) {
+                counter++;
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(PARK_NANOS);
+            }
+            return counter;
+        }
+    };
+
+    /**
+     * The time to park a thread in {@link #PARK}.
+     */
+    public static final long PARK_NANOS = 50000;
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+
+    /**
+     * Waits for one round.
+     *
+     * @param counter the number of rounds waited so far for the current operation (starting with 0)
+     * @return the new counter to be passed into the next round
+     */
+    public abstract int idle(int counter);
+
+}
@@ -19,6 +19,8 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
 import tests.eu.qualimaster.common.signal.PortManagerTest;
+import tests.eu.qualimaster.common.switching.InFlightTupleStoreTest;
+import tests.eu.qualimaster.common.switching.RingBufferQueueTest;
 
 /**
  * The tests for the storm commons component.
@@ -29,7 +31,8 @@ import tests.eu.qualimaster.common.signal.PortManagerTest;
 @Suite.SuiteClasses({tests.eu.qualimaster.common.signal.AllTests.class, 
     RecordingTopologyBuilderTest.class, OutputItemsTest.class, HardwareConnectionTest.class, 
     AlgorithmUtilsTest.class, KryoTupleSerializerTest.class, TupleSenderAndReceiverTest.class, 
-    PortManagerTest.class })
+    PortManagerTest.class, RingBufferQueueTest.class, NioTupleTransportTest.class, 
+    InFlightTupleStoreTest.class, LatencyHistogramTest.class, HeavyHitterSketchTest.class })
 public class AllTests {
 
 }
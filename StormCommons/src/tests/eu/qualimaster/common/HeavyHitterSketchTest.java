@@ -0,0 +1,172 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tests.eu.qualimaster.common;
+
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import eu.qualimaster.base.algorithm.HeavyHitterSketch;
+
+/**
+ * Tests the {@link HeavyHitterSketch}.
+ * 
+ * @author Holger Eichelberger
+ */
+public class HeavyHitterSketchTest {
+
+    /**
+     * Tests exact counts for a few keys as well as resetting.
+     */
+    @Test
+    public void testSmall() {
+        HeavyHitterSketch sketch = new HeavyHitterSketch(10);
+        Assert.assertTrue(sketch.topKeys(false).isEmpty());
+        sketch.add("a");
+        sketch.add("b");
+        sketch.add("a");
+        sketch.add(null);
+        Assert.assertEquals(3, sketch.getTotal());
+        Map<String, Integer> top = sketch.topKeys(true);
+        Assert.assertEquals(2, top.size());
+        Assert.assertEquals(2, top.get("a").intValue());
+        Assert.assertEquals(1, top.get("b").intValue());
+        Assert.assertEquals(0, sketch.getTotal());
+        Assert.assertTrue(sketch.topKeys(false).isEmpty());
+        Assert.assertEquals(0, sketch.estimate("a"));
+        sketch.add("a");
+        top = sketch.topKeys(false);
+        Assert.assertEquals(1, top.size());
+        Assert.assertEquals(1, top.get("a").intValue());
+        Assert.assertEquals(1, sketch.getTotal());
+    }
+
+    /**
+     * Tests that heavy hitters are found within the error bound among many infrequent keys from several threads.
+     * 
+     * @throws InterruptedException shall not occur
+     */
+    @Test
+    public void testHeavyHitters() throws InterruptedException {
+        final int heavy = 5;
+        final int perThread = 50000;
+        final HeavyHitterSketch sketch = new HeavyHitterSketch(heavy);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int seed = t;
+            threads[t] = new Thread() {
+
+                @Override
+                public void run() {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < perThread; i++) {
+                        if (i % 10 < 5) {
+                            sketch.add("heavy" + (i % heavy));
+                        } else {
+                            sketch.add("key" + random.nextInt(100000));
+                        }
+                    }
+                }
+
+            };
+            threads[t].start();
+        }
+        for (int t = 0; t < threads.length; t++) {
+            threads[t].join();
+        }
+        long total = threads.length * perThread;
+        Assert.assertEquals(total, sketch.getTotal());
+        Map<String, Integer> top = sketch.topKeys(false);
+        Assert.assertEquals(heavy, top.size());
+        long expected = total / 2 / heavy;
+        for (int h = 0; h < heavy; h++) {
+            Integer count = top.get("heavy" + h);
+            Assert.assertNotNull(count);
+            Assert.assertTrue(count >= expected);
+            Assert.assertTrue(count <= expected + HeavyHitterSketch.DEFAULT_EPSILON * total);
+        }
+    }
+
+    /**
+     * Tests that a late but frequent key replaces the candidate with the minimum estimate.
+     */
+    @Test
+    public void testReplacement() {
+        HeavyHitterSketch sketch = new HeavyHitterSketch(3);
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j <= i; j++) {
+                sketch.add("k" + i);
+            }
+        }
+        for (int i = 0; i < 5; i++) {
+            sketch.add("late");
+        }
+        sketch.add("once");
+        Map<String, Integer> top = sketch.topKeys(false);
+        Assert.assertEquals(3, top.size());
+        Assert.assertEquals(5, top.get("late").intValue());
+        Assert.assertEquals(3, top.get("k2").intValue());
+        Assert.assertEquals(2, top.get("k1").intValue());
+    }
+
+    /**
+     * Tests that the stripes of terminated threads are taken over or dropped upon reset.
+     * 
+     * @throws InterruptedException shall not occur
+     */
+    @Test
+    public void testThreadTurnover() throws InterruptedException {
+        final HeavyHitterSketch sketch = new HeavyHitterSketch(5);
+        for (int t = 0; t < 20; t++) {
+            final int id = t;
+            Thread thread = new Thread() {
+
+                @Override
+                public void run() {
+                    sketch.add("t" + (id % 2));
+                }
+
+            };
+            thread.start();
+            thread.join();
+        }
+        Assert.assertEquals(1, sketch.getStripeCount());
+        Map<String, Integer> top = sketch.topKeys(true);
+        Assert.assertEquals(10, top.get("t0").intValue());
+        Assert.assertEquals(10, top.get("t1").intValue());
+        Assert.assertEquals(0, sketch.getStripeCount());
+    }
+
+    /**
+     * Tests illegal parameters.
+     */
+    @Test
+    public void testIllegal() {
+        try {
+            new HeavyHitterSketch(0);
+            Assert.fail("no exception");
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            new HeavyHitterSketch(10, 0, 0.5);
+            Assert.fail("no exception");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+}
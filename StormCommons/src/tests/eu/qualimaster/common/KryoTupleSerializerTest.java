@@ -1,6 +1,8 @@
 package tests.eu.qualimaster.common;
 
 import java.io.Serializable;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -152,6 +154,98 @@ public class KryoTupleSerializerTest {
 
     }
     
+    /**
+     * Tests serializing into caller-supplied buffers and deserializing from slices.
+     */
+    @SuppressWarnings("rawtypes")
+    @Test
+    public void testBuffers() {
+        Map conf = StormTestUtils.createStormKryoConf();
+        Config.registerSerialization(conf, DataItem.class, DataItemSerializer.class);
+        DataItem dataItem = new DataItem(2, "buffer");
+        List<Object> tupleValues = new ArrayList<Object>();
+        tupleValues.add(dataItem);
+        KryoGeneralTupleSerializer genSer = new KryoGeneralTupleSerializer(conf);
+        KryoSwitchTupleSerializer swiSer = new KryoSwitchTupleSerializer(conf);
+        IGeneralTuple generalTuple = new GeneralTuple(tupleValues);
+        ISwitchTuple switchTuple = new SwitchTuple(5, tupleValues);
+        byte[] genBytes = genSer.serialize(generalTuple);
+        byte[] swiBytes = swiSer.serialize(switchTuple);
+
+        ByteBuffer[] buffers = {ByteBuffer.allocate(100), ByteBuffer.allocateDirect(100)};
+        for (ByteBuffer buf : buffers) {
+            buf.position(3); // some header
+            Assert.assertEquals(genBytes.length, genSer.serializeTo(generalTuple, buf));
+            Assert.assertEquals(swiBytes.length, swiSer.serializeTo(switchTuple, buf));
+            Assert.assertEquals(3 + genBytes.length + swiBytes.length, buf.position());
+            byte[] data = new byte[buf.position()];
+            buf.flip();
+            buf.get(data);
+            IGeneralTuple gt = genSer.deserialize(data, 3, genBytes.length);
+            Assert.assertTrue(gt.isGeneralTuple());
+            assertData(dataItem, gt);
+            ISwitchTuple st = swiSer.deserialize(data, 3 + genBytes.length, swiBytes.length);
+            Assert.assertEquals(5, st.getId());
+            assertData(dataItem, st);
+        }
+
+        buffers = new ByteBuffer[] {ByteBuffer.allocate(genBytes.length - 1), 
+            ByteBuffer.allocateDirect(genBytes.length - 1)};
+        for (ByteBuffer buf : buffers) {
+            try {
+                genSer.serializeTo(generalTuple, buf);
+                Assert.fail("no exception");
+            } catch (BufferOverflowException e) {
+                Assert.assertEquals(0, buf.position());
+            }
+        }
+    }
+
+    /**
+     * Tests the reuse of deserialized tuples.
+     */
+    @SuppressWarnings("rawtypes")
+    @Test
+    public void testPooling() {
+        Map conf = StormTestUtils.createStormKryoConf();
+        Config.registerSerialization(conf, DataItem.class, DataItemSerializer.class);
+        DataItem dataItem = new DataItem(3, "pool");
+        List<Object> tupleValues = new ArrayList<Object>();
+        tupleValues.add(dataItem);
+        KryoGeneralTupleSerializer genSer = new KryoGeneralTupleSerializer(conf, 2);
+        KryoSwitchTupleSerializer swiSer = new KryoSwitchTupleSerializer(conf, 2);
+        byte[] genBytes = genSer.serialize(new GeneralTuple(tupleValues));
+        byte[] swiBytes = swiSer.serialize(new SwitchTuple(7, tupleValues));
+
+        IGeneralTuple gt1 = genSer.deserialize(genBytes);
+        IGeneralTuple gt2 = genSer.deserialize(genBytes);
+        Assert.assertNotSame(gt1, gt2);
+        genSer.release(gt1);
+        Assert.assertNull(gt1.getValues());
+        IGeneralTuple gt3 = genSer.deserialize(genBytes);
+        Assert.assertSame(gt1, gt3);
+        assertData(dataItem, gt3);
+
+        ISwitchTuple st1 = swiSer.deserialize(swiBytes);
+        swiSer.release(st1);
+        genSer.release(st1); // not a general tuple, ignored
+        ISwitchTuple st2 = swiSer.deserialize(swiBytes);
+        Assert.assertSame(st1, st2);
+        Assert.assertEquals(7, st2.getId());
+        assertData(dataItem, st2);
+    }
+
+    /**
+     * Asserts the data item in a deserialized tuple.
+     * @param expected the expected data
+     * @param tuple the deserialized tuple
+     */
+    private static void assertData(IDataItem expected, IGeneralTuple tuple) {
+        IDataItem revData = (IDataItem) tuple.getValue(0);
+        Assert.assertEquals(expected.getId(), revData.getId());
+        Assert.assertEquals(expected.getValue(), revData.getValue());
+    }
+
     /**
      * Asserts the serialization for a general tuple.
      * @param expected the expected data
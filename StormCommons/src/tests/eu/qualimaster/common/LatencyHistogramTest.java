@@ -0,0 +1,124 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tests.eu.qualimaster.common;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import eu.qualimaster.base.algorithm.LatencyHistogram;
+
+/**
+ * Tests the {@link LatencyHistogram}.
+ * 
+ * @author Holger Eichelberger
+ */
+public class LatencyHistogramTest {
+
+    /**
+     * Tests an empty histogram.
+     */
+    @Test
+    public void testEmpty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot(false);
+        Assert.assertEquals(0, snapshot.getCount());
+        Assert.assertEquals(0, snapshot.getMax());
+        Assert.assertEquals(0, snapshot.getPercentile(99));
+    }
+
+    /**
+     * Tests exact percentiles for small values and the relative error for large values.
+     */
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10; i++) {
+            histogram.record(i);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot(false);
+        Assert.assertEquals(10, snapshot.getCount());
+        Assert.assertEquals(5, snapshot.getPercentile(50));
+        Assert.assertEquals(10, snapshot.getPercentile(99));
+        Assert.assertEquals(10, snapshot.getMax());
+        histogram.record(-5); // as 0
+        Assert.assertEquals(0, histogram.snapshot(false).getPercentile(0));
+
+        histogram = new LatencyHistogram();
+        Random random = new Random(42);
+        long[] values = new long[10000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextInt(1000000);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        snapshot = histogram.snapshot(false);
+        for (double p : new double[] {50, 95, 99}) {
+            long exact = values[(int) Math.ceil(p / 100 * values.length) - 1];
+            long approx = snapshot.getPercentile(p);
+            Assert.assertTrue(approx >= exact);
+            Assert.assertTrue(approx - exact <= exact / LatencyHistogram.SUB_BUCKETS);
+        }
+        Assert.assertEquals(values[values.length - 1], snapshot.getMax());
+        Assert.assertEquals(values[values.length - 1], snapshot.getPercentile(100));
+        histogram.record(Long.MAX_VALUE);
+        Assert.assertEquals(Long.MAX_VALUE, histogram.snapshot(false).getPercentile(100));
+    }
+
+    /**
+     * Tests resetting snapshots under concurrent recording, i.e., that no value gets lost.
+     * 
+     * @throws InterruptedException shall not occur
+     */
+    @Test(timeout = 10000)
+    public void testConcurrentReset() throws InterruptedException {
+        final int threads = 4;
+        final int count = 100000;
+        final LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] recorders = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            recorders[t] = new Thread() {
+                
+                @Override
+                public void run() {
+                    for (int i = 0; i < count; i++) {
+                        histogram.record(i % 500);
+                    }
+                }
+
+            };
+            recorders[t].start();
+        }
+        long total = 0;
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram.Snapshot();
+        boolean alive = true;
+        while (alive) {
+            alive = false;
+            for (int t = 0; t < threads; t++) {
+                alive |= recorders[t].isAlive();
+            }
+            histogram.snapshot(snapshot, true);
+            total += snapshot.getCount();
+            Assert.assertTrue(snapshot.getPercentile(100) <= 499);
+        }
+        histogram.snapshot(snapshot, true);
+        total += snapshot.getCount();
+        Assert.assertEquals(threads * count, total);
+    }
+
+}
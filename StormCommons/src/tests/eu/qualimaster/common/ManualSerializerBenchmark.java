@@ -0,0 +1,142 @@
+package tests.eu.qualimaster.common;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import backtype.storm.Config;
+import eu.qualimaster.base.algorithm.GeneralTuple;
+import eu.qualimaster.base.algorithm.IGeneralTuple;
+import eu.qualimaster.base.algorithm.ISwitchTuple;
+import eu.qualimaster.base.algorithm.SwitchTuple;
+import eu.qualimaster.base.serializer.KryoGeneralTupleSerializer;
+import eu.qualimaster.base.serializer.KryoSwitchTupleSerializer;
+import tests.eu.qualimaster.common.KryoTupleSerializerTest.DataItem;
+import tests.eu.qualimaster.ManualBenchmark;
+import tests.eu.qualimaster.common.KryoTupleSerializerTest.DataItemSerializer;
+
+/**
+ * A manual benchmark measuring the time and the allocated bytes per tuple for the kryo tuple serializers,
+ * comparing the byte array-based with the buffer-based and pooling variants. See {@link ManualBenchmark}.
+ * @author Cui Qin
+ *
+ */
+public class ManualSerializerBenchmark {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURE_ROUNDS = 10;
+    private static final int AMOUNT = 200000;
+
+    /**
+     * A benchmarked operation.
+     * @author Cui Qin
+     */
+    private interface IOperation {
+
+        /**
+         * Executes the operation once.
+         */
+        public void execute();
+    }
+
+    /**
+     * Measures an operation and prints the results.
+     * @param name the name of the operation to print
+     * @param op the operation
+     * @throws InterruptedException if interrupted
+     */
+    private static void measure(String name, final IOperation op) throws InterruptedException {
+        ManualBenchmark.measure(name, "tuple", WARMUP_ROUNDS, MEASURE_ROUNDS, new ManualBenchmark.IRound() {
+            @Override
+            public long run() {
+                for (int i = 0; i < AMOUNT; i++) {
+                    op.execute();
+                }
+                return AMOUNT;
+            }
+        });
+    }
+
+    /**
+     * Executes the benchmark.
+     * @param args ignored
+     * @throws InterruptedException if interrupted
+     */
+    @SuppressWarnings("rawtypes")
+    public static void main(String[] args) throws InterruptedException {
+        Map conf = StormTestUtils.createStormKryoConf();
+        Config.registerSerialization(conf, DataItem.class, DataItemSerializer.class);
+        List<Object> values = new ArrayList<Object>();
+        values.add(new DataItem(1, "data"));
+        final IGeneralTuple generalTuple = new GeneralTuple(values);
+        final ISwitchTuple switchTuple = new SwitchTuple(1, values);
+        final ByteBuffer buffer = ByteBuffer.allocate(1024);
+        final ByteBuffer directBuffer = ByteBuffer.allocateDirect(1024);
+        final KryoGeneralTupleSerializer genSer = new KryoGeneralTupleSerializer(conf);
+        final KryoSwitchTupleSerializer swiSer = new KryoSwitchTupleSerializer(conf);
+        final KryoGeneralTupleSerializer pooledGenSer = new KryoGeneralTupleSerializer(conf, 16);
+        final KryoSwitchTupleSerializer pooledSwiSer = new KryoSwitchTupleSerializer(conf, 16);
+        final byte[] genBytes = genSer.serialize(generalTuple);
+        final byte[] swiBytes = swiSer.serialize(switchTuple);
+
+        measure("general serialize byte[]", new IOperation() {
+            @Override
+            public void execute() {
+                genSer.serialize(generalTuple);
+            }
+        });
+        measure("general serialize heap buffer", new IOperation() {
+            @Override
+            public void execute() {
+                buffer.clear();
+                genSer.serializeTo(generalTuple, buffer);
+            }
+        });
+        measure("general serialize direct buffer", new IOperation() {
+            @Override
+            public void execute() {
+                directBuffer.clear();
+                genSer.serializeTo(generalTuple, directBuffer);
+            }
+        });
+        measure("general deserialize", new IOperation() {
+            @Override
+            public void execute() {
+                genSer.deserialize(genBytes);
+            }
+        });
+        measure("general deserialize pooled", new IOperation() {
+            @Override
+            public void execute() {
+                pooledGenSer.release(pooledGenSer.deserialize(genBytes));
+            }
+        });
+        measure("switch serialize byte[]", new IOperation() {
+            @Override
+            public void execute() {
+                swiSer.serialize(switchTuple);
+            }
+        });
+        measure("switch serialize heap buffer", new IOperation() {
+            @Override
+            public void execute() {
+                buffer.clear();
+                swiSer.serializeTo(switchTuple, buffer);
+            }
+        });
+        measure("switch deserialize", new IOperation() {
+            @Override
+            public void execute() {
+                swiSer.deserialize(swiBytes);
+            }
+        });
+        measure("switch deserialize pooled", new IOperation() {
+            @Override
+            public void execute() {
+                pooledSwiSer.release(pooledSwiSer.deserialize(swiBytes));
+            }
+        });
+    }
+
+}
@@ -0,0 +1,232 @@
+package tests.eu.qualimaster.common;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import backtype.storm.Config;
+import eu.qualimaster.Configuration;
+import eu.qualimaster.base.algorithm.IGeneralTuple;
+import eu.qualimaster.base.algorithm.SwitchTuple;
+import eu.qualimaster.base.serializer.IGeneralTupleSerializer;
+import eu.qualimaster.base.serializer.ISwitchTupleSerializer;
+import eu.qualimaster.base.serializer.KryoGeneralTupleSerializer;
+import eu.qualimaster.base.serializer.KryoSwitchTupleSerializer;
+import eu.qualimaster.common.switching.DataFlag;
+import eu.qualimaster.common.switching.FlushPolicy;
+import eu.qualimaster.common.switching.ITupleFrameHandler;
+import eu.qualimaster.common.switching.ITupleReceiverServer;
+import eu.qualimaster.common.switching.ITupleSender;
+import eu.qualimaster.common.switching.NioTupleReceiverServer;
+import eu.qualimaster.common.switching.NioTupleSender;
+import eu.qualimaster.common.switching.SeparateIntermediaryStrategy;
+import eu.qualimaster.common.switching.SingleProducerRingBufferQueue;
+import eu.qualimaster.common.switching.TupleReceiverHandler;
+import eu.qualimaster.common.switching.TupleReceiverServer;
+import eu.qualimaster.common.switching.TupleSender;
+import eu.qualimaster.common.switching.IState.SwitchState;
+import tests.eu.qualimaster.common.KryoTupleSerializerTest.DataItem;
+import tests.eu.qualimaster.common.KryoTupleSerializerTest.DataItemSerializer;
+import tests.eu.qualimaster.common.KryoTupleSerializerTest.IDataItem;
+
+/**
+ * Tests the NIO-based, batched tuple transport.
+ * @author Cui Qin
+ *
+ */
+public class NioTupleTransportTest {
+
+    private static final int PORT = 8998;
+    private static final int TIMEOUT = 10000;
+
+    /**
+     * Records the received frames.
+     * @author Cui Qin
+     */
+    private static class RecordingFrameHandler implements ITupleFrameHandler {
+        private List<byte[]> frames = Collections.synchronizedList(new ArrayList<byte[]>());
+
+        @Override
+        public void handleFrame(byte[] buffer, int offset, int length) {
+            frames.add(Arrays.copyOfRange(buffer, offset, offset + length));
+        }
+    }
+
+    /**
+     * Waits until <code>list</code> reaches the given size or {@link #TIMEOUT} is reached.
+     * @param list the list to wait for
+     * @param size the expected size
+     */
+    private static void waitFor(List<?> list, int size) {
+        long start = System.currentTimeMillis();
+        while (list.size() < size && System.currentTimeMillis() - start < TIMEOUT) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                // ignore
+            }
+        }
+    }
+
+    /**
+     * Creates a frame of the given size with predictable content.
+     * @param size the size
+     * @return the frame
+     */
+    private static byte[] createFrame(int size) {
+        byte[] result = new byte[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = (byte) (size + i);
+        }
+        return result;
+    }
+
+    /**
+     * Tests the transport of raw frames of different sizes for different flush policies, including frames 
+     * larger than the batch buffer and the read buffer as well as control frames.
+     * 
+     * @throws IOException shall not occur
+     */
+    @Test(timeout = 60000)
+    public void testFrames() throws IOException {
+        int[] sizes = {0, 1, 20, 100, 1500, 70000, 3, 200000, 12};
+        FlushPolicy[] policies = {FlushPolicy.DEFAULT, FlushPolicy.IMMEDIATE, new FlushPolicy(256, 1), 
+            new FlushPolicy(4096, 0)};
+        for (FlushPolicy policy : policies) {
+            RecordingFrameHandler handler = new RecordingFrameHandler();
+            NioTupleReceiverServer server = new NioTupleReceiverServer(handler, PORT);
+            server.start();
+            NioTupleSender sender = new NioTupleSender("localhost", PORT, policy);
+            for (int s : sizes) {
+                sender.send(createFrame(s));
+            }
+            sender.sendSwitchTupleFlag(); // flushes
+            waitFor(handler.frames, sizes.length + 1);
+            Assert.assertEquals(policy.toString(), sizes.length + 1, handler.frames.size());
+            for (int i = 0; i < sizes.length; i++) {
+                Assert.assertTrue(policy.toString(), Arrays.equals(createFrame(sizes[i]), handler.frames.get(i)));
+            }
+            byte[] flag = handler.frames.get(sizes.length);
+            Assert.assertEquals(DataFlag.SWITCH_TUPLE_FLAG, DataFlag.getFlag(flag, 0, flag.length));
+            sender.stop();
+            server.stop();
+        }
+    }
+
+    /**
+     * Tests the time-based flushing.
+     * 
+     * @throws IOException shall not occur
+     */
+    @Test(timeout = 60000)
+    public void testTimedFlush() throws IOException {
+        RecordingFrameHandler handler = new RecordingFrameHandler();
+        NioTupleReceiverServer server = new NioTupleReceiverServer(handler, PORT);
+        server.start();
+        NioTupleSender sender = new NioTupleSender("localhost", PORT, new FlushPolicy(1024 * 1024, 10));
+        sender.send(createFrame(10)); // neither size-based nor explicit flush
+        waitFor(handler.frames, 1);
+        Assert.assertEquals(1, handler.frames.size());
+        sender.stop();
+        server.stop();
+    }
+
+    /**
+     * Tests the transport of general and switch tuples into the queues of a {@link TupleReceiverHandler}.
+     * 
+     * @throws IOException shall not occur
+     */
+    @SuppressWarnings("rawtypes")
+    @Test(timeout = 60000)
+    public void testTuples() throws IOException {
+        Map conf = StormTestUtils.createStormKryoConf();
+        Config.registerSerialization(conf, DataItem.class, DataItemSerializer.class);
+        IGeneralTupleSerializer genSer = new KryoGeneralTupleSerializer(conf);
+        ISwitchTupleSerializer swiSer = new KryoSwitchTupleSerializer(conf);
+        SingleProducerRingBufferQueue<IGeneralTuple> syn = new SingleProducerRingBufferQueue<IGeneralTuple>(64);
+        SingleProducerRingBufferQueue<IGeneralTuple> tmpSyn = new SingleProducerRingBufferQueue<IGeneralTuple>(64);
+        TupleReceiverHandler handler = new TupleReceiverHandler(genSer, swiSer, syn, tmpSyn);
+        NioTupleReceiverServer server = new NioTupleReceiverServer(handler, PORT);
+        server.start();
+        
+        NioTupleSender client = new NioTupleSender("localhost", PORT);
+        TupleSenderAndReceiverTest.sendGeneralTuple(client, genSer, 10);
+        client.sendSwitchTupleFlag();
+        TupleSenderAndReceiverTest.sendSwitchTuple(client, swiSer, 10);
+        client.sendTemporaryQueueFlag();
+        TupleSenderAndReceiverTest.sendSwitchTuple(client, swiSer, 5);
+        List<Object> values = new ArrayList<Object>();
+        values.add(new DataItem(1, "data"));
+        for (int i = 0; i < 5; i++) { // serialized directly into the batch buffer
+            client.send(new SwitchTuple(i, values), swiSer);
+        }
+        client.flush();
+
+        for (int i = 0; i < 20; i++) {
+            assertTuple(syn.consume(), i < 10);
+        }
+        for (int i = 0; i < 10; i++) {
+            assertTuple(tmpSyn.consume(), false);
+        }
+        client.stop();
+        server.stop();
+    }
+
+    /**
+     * Tests that the switch strategies create the tuple transport according to the configuration and that tuples
+     * are transferred via the NIO transport if configured.
+     * @throws IOException shall not occur
+     */
+    @SuppressWarnings("rawtypes")
+    @Test(timeout = TIMEOUT)
+    public void testStrategyTransport() throws IOException {
+        Map conf = StormTestUtils.createStormKryoConf();
+        Config.registerSerialization(conf, DataItem.class, DataItemSerializer.class);
+        SeparateIntermediaryStrategy strategy = new SeparateIntermediaryStrategy(conf, SwitchState.ACTIVE_DEFAULT);
+        ITupleReceiverServer server = strategy.createTupleReceiverServer(PORT);
+        Assert.assertTrue(server instanceof TupleReceiverServer); // default
+        server.stop();
+        Assert.assertTrue(strategy.createTupleSender("localhost", PORT) instanceof TupleSender);
+
+        Properties prop = new Properties();
+        prop.put(Configuration.PIPELINE_SWITCH_NIO, "true");
+        Configuration.configure(prop);
+        try {
+            server = strategy.createTupleReceiverServer(PORT);
+            Assert.assertTrue(server instanceof NioTupleReceiverServer);
+            server.start();
+            ITupleSender client = strategy.createTupleSender("localhost", PORT);
+            Assert.assertTrue(client instanceof NioTupleSender);
+            IGeneralTupleSerializer genSer = new KryoGeneralTupleSerializer(conf);
+            TupleSenderAndReceiverTest.sendGeneralTuple(client, genSer, 5);
+            client.flush();
+            for (int i = 0; i < 5; i++) {
+                assertTuple(strategy.produceTuple(), true);
+            }
+            client.stop();
+            server.stop();
+        } finally {
+            Configuration.configureLocal();
+        }
+    }
+
+    /**
+     * Asserts a received tuple.
+     * @param tuple the tuple
+     * @param general whether a general tuple is expected
+     */
+    private static void assertTuple(IGeneralTuple tuple, boolean general) {
+        Assert.assertEquals(general, tuple.isGeneralTuple());
+        IDataItem item = (IDataItem) tuple.getValue(0);
+        Assert.assertEquals(1, item.getId());
+        Assert.assertEquals("data", item.getValue());
+    }
+
+}
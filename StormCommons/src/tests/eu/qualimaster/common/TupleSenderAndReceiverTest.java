@@ -19,6 +19,7 @@ import eu.qualimaster.base.serializer.IGeneralTupleSerializer;
 import eu.qualimaster.base.serializer.ISwitchTupleSerializer;
 import eu.qualimaster.base.serializer.KryoGeneralTupleSerializer;
 import eu.qualimaster.base.serializer.KryoSwitchTupleSerializer;
+import eu.qualimaster.common.switching.ITupleSender;
 import eu.qualimaster.common.switching.SynchronizedQueue;
 import eu.qualimaster.common.switching.TupleReceiverHandler;
 import eu.qualimaster.common.switching.TupleReceiverServer;
@@ -137,7 +138,7 @@ public class TupleSenderAndReceiverTest {
      * @param genSer the serializer for the general tuple
      * @param amount the amount of tuple to send
      */
-    public static void sendGeneralTuple(TupleSender client, IGeneralTupleSerializer genSer, int amount) {
+    public static void sendGeneralTuple(ITupleSender client, IGeneralTupleSerializer genSer, int amount) {
         while (amount > 0) {
             //create a switch tuple
             IGeneralTuple generalTuple = createGeneralTuple();
@@ -153,7 +154,7 @@ public class TupleSenderAndReceiverTest {
      * @param swiSer the serializer for the switch tuple
      * @param amount the amount of tuple to send
      */
-    public static void sendSwitchTuple(TupleSender client, ISwitchTupleSerializer swiSer, int amount) {
+    public static void sendSwitchTuple(ITupleSender client, ISwitchTupleSerializer swiSer, int amount) {
         while (amount > 0) {
             //create a switch tuple
             ISwitchTuple switchTuple = createSwitchTuple(amount);
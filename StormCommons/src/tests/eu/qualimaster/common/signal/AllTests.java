@@ -25,6 +25,6 @@ import org.junit.runners.Suite;
  */
 @RunWith(Suite.class)
 @Suite.SuiteClasses({ParameterChangeTest.class, ParameterChangeSignalTest.class, AlgorithmChangeSignalTest.class, 
-    ShutdownSignalTest.class, LoadSheddingSignalTest.class, ReplaySignalTest.class})
+    ShutdownSignalTest.class, LoadSheddingSignalTest.class, ReplaySignalTest.class, SignalQueueTest.class})
 public class AllTests {
 }
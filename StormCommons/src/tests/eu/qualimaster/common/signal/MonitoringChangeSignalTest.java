@@ -78,6 +78,7 @@ public class MonitoringChangeSignalTest {
             } else {
                 Assert.assertEquals(expected.getObservables(), signal.getObservables());
             }
+            Assert.assertEquals(expected.getKeyCapacity(), signal.getKeyCapacity());
             receivedSignal = true;
         }
         
@@ -117,6 +118,12 @@ public class MonitoringChangeSignalTest {
         listener.expect(signal);
         MonitoringChangeSignal.notify(signal.createPayload(), topology, executor, listener);
         Assert.assertTrue(listener.receivedSignal());
+
+        signal = new MonitoringChangeSignal(topology, executor, null, null, 100, msgId);
+        listener = new TestListener();
+        listener.expect(signal);
+        MonitoringChangeSignal.notify(signal.createPayload(), topology, executor, listener);
+        Assert.assertTrue(listener.receivedSignal());
     }
 
 }
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2009-2016 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tests.eu.qualimaster.common.signal;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.storm.curator.framework.CuratorFramework;
+import org.apache.storm.curator.framework.CuratorFrameworkFactory;
+import org.apache.storm.curator.retry.RetryNTimes;
+import org.junit.Assert;
+import org.junit.Test;
+
+import backtype.storm.LocalCluster;
+import eu.qualimaster.base.algorithm.LatencyHistogram;
+import eu.qualimaster.common.signal.AbstractSignalConnection;
+import eu.qualimaster.common.signal.IParameterChangeListener;
+import eu.qualimaster.common.signal.ParameterChangeSignal;
+import eu.qualimaster.common.signal.SignalBatch;
+import eu.qualimaster.common.signal.SignalException;
+import eu.qualimaster.common.signal.SignalListener;
+import eu.qualimaster.common.signal.SignalMechanism;
+import eu.qualimaster.common.signal.SignalMechanism.NamespaceState;
+import eu.qualimaster.common.signal.SignalQueue;
+import tests.eu.qualimaster.TestHelper;
+
+/**
+ * Tests the queued signal channel.
+ *
+ * @author Holger Eichelberger
+ */
+public class SignalQueueTest {
+
+    private static final String PIPELINE = "queuePip";
+    private static final String ELEMENT = "queueElt";
+    private static final String RECEIVER = "1";
+
+    /**
+     * A signal connection receiving via the signal queue.
+     *
+     * @author Holger Eichelberger
+     */
+    private static class TestConnection extends AbstractSignalConnection {
+
+        /**
+         * Creates and initializes the connection.
+         *
+         * @param listener the signal listener
+         * @param client the curator client
+         * @param receiver the receiver id
+         * @throws Exception shall not occur
+         */
+        private TestConnection(SignalListener listener, CuratorFramework client, String receiver) throws Exception {
+            super(ELEMENT, listener);
+            setClient(client);
+            enableSignalQueue();
+            setReceiverId(receiver);
+            initWatcher();
+        }
+
+        @Override
+        protected String getWatchedPath() {
+            return SignalMechanism.getTopologyExecutorPath(PIPELINE, getElementName());
+        }
+
+    }
+
+    /**
+     * Collects the received parameter values.
+     *
+     * @author Holger Eichelberger
+     */
+    private static class TestListener implements SignalListener, IParameterChangeListener {
+
+        private List<Object> values = Collections.synchronizedList(new ArrayList<Object>());
+
+        @Override
+        public void onSignal(byte[] data) {
+            ParameterChangeSignal.notify(data, PIPELINE, ELEMENT, this);
+        }
+
+        @Override
+        public void notifyParameterChange(ParameterChangeSignal signal) {
+            for (int c = 0; c < signal.getChangeCount(); c++) {
+                values.add(signal.getChange(c).getValue());
+            }
+        }
+
+    }
+
+    /**
+     * Tests the binary format of signal batches.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testSignalBatch() throws IOException {
+        SignalBatch batch = new SignalBatch();
+        Assert.assertEquals(0, SignalBatch.fromBytes(batch.toBytes()).size());
+
+        batch.add(new byte[] {1, 2, 3}, 10);
+        batch.add(new byte[0], 20);
+        batch.add("abc".getBytes(), 30);
+        SignalBatch read = SignalBatch.fromBytes(batch.toBytes());
+        Assert.assertEquals(3, read.size());
+        for (int s = 0; s < batch.size(); s++) {
+            Assert.assertArrayEquals(batch.getPayload(s), read.getPayload(s));
+            Assert.assertEquals(batch.getTimestamp(s), read.getTimestamp(s));
+        }
+
+        byte[] data = batch.toBytes();
+        byte[] truncated = new byte[data.length - 2];
+        System.arraycopy(data, 0, truncated, 0, truncated.length);
+        try {
+            SignalBatch.fromBytes(truncated);
+            Assert.fail("No exception");
+        } catch (IOException e) {
+        }
+    }
+
+    /**
+     * Tests sending and receiving a batch of signals via zookeeper.
+     *
+     * @throws Exception shall not occur
+     */
+    @Test(timeout = 60000)
+    public void testQueue() throws Exception {
+        Set<File> tmpFiles = TestHelper.trackTemp(null, false);
+        LocalCluster cluster = new LocalCluster();
+        String connectString = "localhost:" + TestHelper.LOCAL_ZOOKEEPER_PORT;
+        CuratorFramework client = createClient(connectString);
+        SignalMechanism.setConnectString(SignalMechanism.GLOBAL_NAMESPACE, connectString);
+        SignalMechanism.setSignalQueue(PIPELINE, true);
+        SignalMechanism.changeSignalNamespaceState(PIPELINE, NamespaceState.ENABLE);
+        Assert.assertTrue(SignalMechanism.isSignalQueueEnabled(PIPELINE));
+
+        TestListener listener = new TestListener();
+        TestConnection connection = new TestConnection(listener, client, RECEIVER);
+        SignalQueue.getLatencies(true);
+        final int count = 5;
+        SignalMechanism.startBatch();
+        try {
+            for (int i = 0; i < count; i++) {
+                new ParameterChangeSignal(PIPELINE, ELEMENT, "param", i).sendSignal();
+            }
+            Assert.assertTrue(listener.values.isEmpty()); // batched
+        } finally {
+            SignalMechanism.endBatch();
+        }
+        new ParameterChangeSignal(PIPELINE, ELEMENT, "param", count).sendSignal(); // unbatched
+        while (listener.values.size() < count + 1) {
+            Thread.sleep(100);
+        }
+        for (int i = 0; i <= count; i++) {
+            Assert.assertEquals(i, listener.values.get(i)); // per-executor order
+        }
+        Assert.assertEquals(count + 1, SignalQueue.getLatencies(false).getCount());
+        LatencyHistogram.Snapshot latencies = new LatencyHistogram.Snapshot();
+        Assert.assertTrue(connection.getSignalLatencies(latencies, true));
+        Assert.assertEquals(count + 1, latencies.getCount());
+        connection.close(); // stores the cursor
+        CuratorFramework checker = createClient(connectString);
+        assertCursorAtTail(checker);
+
+        // signals sent while the receiver is down are received when it is initialized again
+        for (int i = count + 1; i <= 2 * count; i++) {
+            new ParameterChangeSignal(PIPELINE, ELEMENT, "param", i).sendSignal();
+        }
+        TestListener resumed = new TestListener();
+        connection = new TestConnection(resumed, createClient(connectString), RECEIVER);
+        while (resumed.values.size() < count) {
+            Thread.sleep(100);
+        }
+        for (int i = 0; i < count; i++) {
+            Assert.assertEquals(count + 1 + i, resumed.values.get(i)); // after the cursor, no old signals
+        }
+
+        // a new receiver starts at the tail, i.e., does not receive the old signals
+        TestListener fresh = new TestListener();
+        TestConnection freshConnection = new TestConnection(fresh, createClient(connectString), "2");
+        new ParameterChangeSignal(PIPELINE, ELEMENT, "param", 2 * count + 1).sendSignal();
+        while (fresh.values.size() < 1 || resumed.values.size() < count + 1) {
+            Thread.sleep(100);
+        }
+        Assert.assertEquals(1, fresh.values.size());
+        Assert.assertEquals(2 * count + 1, fresh.values.get(0));
+
+        // the last node is not yet covered by the lazily stored cursor of the fresh receiver
+        String queuePath = SignalQueue.getQueuePath(PIPELINE, ELEMENT);
+        List<String> nodes = checker.getChildren().forPath(queuePath);
+        Collections.sort(nodes);
+        String last = nodes.get(nodes.size() - 1);
+        SignalQueue.prune(Long.MAX_VALUE);
+        nodes = checker.getChildren().forPath(queuePath);
+        Assert.assertEquals(Collections.singletonList(last), nodes); // older nodes processed by all receivers
+        Assert.assertEquals(1, SignalQueue.getSentQueueCount());
+
+        connection.close();
+        freshConnection.close();
+        SignalQueue.prune(Long.MAX_VALUE); // no live receivers
+        Assert.assertEquals(0, SignalQueue.getSentQueueCount());
+        checker.close();
+
+        SignalMechanism.releaseMechanism(PIPELINE);
+        Assert.assertFalse(SignalMechanism.isSignalQueueEnabled(PIPELINE));
+        SignalMechanism.changeSignalNamespaceState(PIPELINE, NamespaceState.CLEAR);
+        SignalMechanism.clear();
+        cluster.shutdown();
+        TestHelper.trackTemp(tmpFiles, true);
+    }
+
+    /**
+     * Creates and starts a curator client.
+     *
+     * @param connectString the zookeeper connect string
+     * @return the client
+     */
+    private static CuratorFramework createClient(String connectString) {
+        CuratorFramework client = CuratorFrameworkFactory.builder().namespace(SignalMechanism.GLOBAL_NAMESPACE).
+            connectString(connectString).retryPolicy(new RetryNTimes(5, 100)).build();
+        client.start();
+        return client;
+    }
+
+    /**
+     * Asserts that the cursor of {@link #RECEIVER} points to the last node in the queue.
+     *
+     * @param client the curator client
+     * @throws Exception shall not occur
+     */
+    private static void assertCursorAtTail(CuratorFramework client) throws Exception {
+        String queuePath = SignalQueue.getQueuePath(PIPELINE, ELEMENT);
+        String cursorPath = SignalQueue.getCursorPath(queuePath, RECEIVER);
+        List<String> nodes = client.getChildren().forPath(queuePath);
+        Collections.sort(nodes);
+        String expected = ":" + SignalQueue.getSequence(nodes.get(nodes.size() - 1));
+        Assert.assertNotNull(client.checkExists().forPath(cursorPath));
+        Assert.assertTrue(new String(client.getData().forPath(cursorPath)).endsWith(expected));
+    }
+
+    /**
+     * Tests that ending an unopened batch does not fail.
+     *
+     * @throws SignalException shall not occur
+     */
+    @Test
+    public void testUnopenedBatch() throws SignalException {
+        SignalMechanism.endBatch();
+        SignalMechanism.flushBatch();
+    }
+
+}
@@ -0,0 +1,104 @@
+package tests.eu.qualimaster.common.switching;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import eu.qualimaster.base.algorithm.ISwitchTuple;
+import eu.qualimaster.base.algorithm.SwitchTuple;
+import eu.qualimaster.common.switching.InFlightTupleStore;
+
+/**
+ * Tests the {@link InFlightTupleStore}.
+ * @author Cui Qin
+ *
+ */
+public class InFlightTupleStoreTest {
+
+    /**
+     * Tests acknowledging in and out of order including the watermark.
+     */
+    @Test
+    public void testAck() {
+        InFlightTupleStore store = new InFlightTupleStore(10);
+        Assert.assertEquals(16, store.getCapacity());
+        Assert.assertEquals(Long.MIN_VALUE, store.getWatermark());
+        for (int i = 1; i <= 5; i++) {
+            store.add(new SwitchTuple(i, null));
+        }
+        Assert.assertEquals(5, store.getInFlightCount());
+        Assert.assertNull(store.ack(42));
+        Assert.assertEquals(3, store.ack(3).getId());
+        Assert.assertEquals(3, store.getLastAckedId());
+        Assert.assertEquals(Long.MIN_VALUE, store.getWatermark());
+        Assert.assertNull(store.ack(3));
+        Assert.assertEquals(1, store.ack(1).getId());
+        Assert.assertEquals(1, store.getWatermark());
+        Assert.assertEquals(2, store.ack(2).getId());
+        Assert.assertEquals(3, store.getWatermark());
+        Assert.assertEquals(2, store.getInFlightCount());
+        Assert.assertTrue(store.contains(4));
+        Assert.assertFalse(store.contains(2));
+        List<ISwitchTuple> inFlight = store.getInFlight();
+        Assert.assertEquals(2, inFlight.size());
+        Assert.assertEquals(4, inFlight.get(0).getId());
+        Assert.assertEquals(5, inFlight.get(1).getId());
+        Assert.assertEquals(3, store.getAckCount());
+        Assert.assertTrue(store.getMaxAckLatency() >= store.getAverageAckLatency());
+    }
+
+    /**
+     * Tests the eviction of the oldest tuples if the store is full.
+     */
+    @Test
+    public void testEviction() {
+        InFlightTupleStore store = new InFlightTupleStore(4);
+        for (int i = 0; i < 6; i++) {
+            store.add(new SwitchTuple(i, null));
+        }
+        Assert.assertEquals(4, store.getInFlightCount());
+        Assert.assertEquals(2, store.getEvictedCount());
+        Assert.assertFalse(store.contains(0));
+        Assert.assertFalse(store.contains(1));
+        Assert.assertNull(store.ack(1));
+        Assert.assertEquals(1, store.getWatermark());
+        Assert.assertNotNull(store.ack(2));
+        Assert.assertEquals(2, store.getWatermark());
+    }
+
+    /**
+     * Compares random operations against a reference implementation.
+     */
+    @Test
+    public void testRandom() {
+        Random random = new Random(4711);
+        InFlightTupleStore store = new InFlightTupleStore(4096);
+        Map<Long, ISwitchTuple> reference = new LinkedHashMap<Long, ISwitchTuple>();
+        long nextId = 0;
+        for (int op = 0; op < 200000; op++) {
+            if (reference.size() < 1000 && (reference.isEmpty() || random.nextInt(3) > 0)) {
+                long id = nextId;
+                nextId += 1 + random.nextInt(3);
+                ISwitchTuple tuple = new SwitchTuple(id, null);
+                store.add(tuple);
+                reference.put(id, tuple);
+            } else {
+                List<Long> ids = new ArrayList<Long>(reference.keySet());
+                long id = ids.get(random.nextInt(Math.min(ids.size(), 20))); // mostly old ones
+                Assert.assertSame(reference.remove(id), store.ack(id));
+            }
+            Assert.assertEquals(reference.size(), store.getInFlightCount());
+        }
+        Assert.assertEquals(0, store.getEvictedCount());
+        Assert.assertEquals(new ArrayList<ISwitchTuple>(reference.values()), store.getInFlight());
+        for (Long id : reference.keySet()) {
+            Assert.assertTrue(store.contains(id));
+        }
+    }
+
+}
@@ -0,0 +1,83 @@
+package tests.eu.qualimaster.common.switching;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import eu.qualimaster.common.switching.IProducerConsumerQueue;
+import eu.qualimaster.common.switching.MultiProducerRingBufferQueue;
+import eu.qualimaster.common.switching.SingleProducerRingBufferQueue;
+import eu.qualimaster.common.switching.SynchronizedQueue;
+import eu.qualimaster.common.switching.WaitStrategy;
+import tests.eu.qualimaster.ManualBenchmark;
+
+/**
+ * A manual throughput benchmark comparing {@link SynchronizedQueue} with the ring buffer queues. 
+ * See {@link ManualBenchmark}.
+ * @author Cui Qin
+ *
+ */
+public class ManualQueueBenchmark {
+
+    private static final int CAPACITY = 100; // as in SeparateIntermediaryStrategy
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURE_ROUNDS = 10;
+    private static final int AMOUNT = 1000000;
+    private static final Object ITEM = new Object();
+
+    /**
+     * Transfers {@link #AMOUNT} items from one producer thread to the calling (consumer) thread.
+     * 
+     * @param queue the queue
+     * @throws InterruptedException if interrupted
+     */
+    private static void transfer(final IProducerConsumerQueue<Object> queue) throws InterruptedException {
+        Thread producer = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                for (int i = 0; i < AMOUNT; i++) {
+                    queue.produce(ITEM);
+                }
+            }
+        });
+        producer.start();
+        for (int i = 0; i < AMOUNT; i++) {
+            queue.consume();
+        }
+        producer.join();
+    }
+
+    /**
+     * Measures a queue and prints the results.
+     * 
+     * @param name the name of the queue to print
+     * @param queue the queue
+     * @throws InterruptedException if interrupted
+     */
+    private static void measure(String name, final IProducerConsumerQueue<Object> queue) 
+        throws InterruptedException {
+        ManualBenchmark.measure(name, "item", WARMUP_ROUNDS, MEASURE_ROUNDS, new ManualBenchmark.IRound() {
+
+            @Override
+            public long run() throws InterruptedException {
+                transfer(queue);
+                return AMOUNT;
+            }
+
+        });
+    }
+
+    /**
+     * Executes the benchmark.
+     * 
+     * @param args ignored
+     * @throws InterruptedException if interrupted
+     */
+    public static void main(String[] args) throws InterruptedException {
+        measure("synchronized", new SynchronizedQueue<Object>(new ConcurrentLinkedQueue<Object>(), CAPACITY));
+        for (WaitStrategy strategy : WaitStrategy.values()) {
+            measure("spsc " + strategy, new SingleProducerRingBufferQueue<Object>(CAPACITY, strategy));
+            measure("mpsc " + strategy, new MultiProducerRingBufferQueue<Object>(CAPACITY, strategy));
+        }
+    }
+
+}
@@ -0,0 +1,141 @@
+package tests.eu.qualimaster.common.switching;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import eu.qualimaster.common.switching.AbstractRingBufferQueue;
+import eu.qualimaster.common.switching.IProducerConsumerQueue;
+import eu.qualimaster.common.switching.MultiProducerRingBufferQueue;
+import eu.qualimaster.common.switching.SingleProducerRingBufferQueue;
+import eu.qualimaster.common.switching.SynchronizedQueue;
+import eu.qualimaster.common.switching.WaitStrategy;
+
+/**
+ * Tests the producer-consumer queues.
+ * @author Cui Qin
+ *
+ */
+public class RingBufferQueueTest {
+
+    private static final int AMOUNT = 20000;
+
+    /**
+     * Tests the basic (single-threaded) ring buffer operations.
+     */
+    @Test
+    public void testBasic() {
+        AbstractRingBufferQueue<Integer> queue = new SingleProducerRingBufferQueue<Integer>(3);
+        Assert.assertEquals(4, queue.capacity());
+        Assert.assertEquals(0, queue.currentSize());
+        Assert.assertNull(queue.poll());
+        for (int i = 0; i < queue.capacity(); i++) {
+            Assert.assertTrue(queue.offer(i));
+        }
+        Assert.assertFalse(queue.offer(10));
+        Assert.assertEquals(4, queue.currentSize());
+        for (int i = 0; i < queue.capacity(); i++) {
+            Assert.assertEquals(i, queue.consume().intValue());
+        }
+        Assert.assertEquals(0, queue.currentSize());
+        Assert.assertNull(queue.poll());
+        Assert.assertTrue(queue.offer(5)); // wrap around
+        Assert.assertEquals(5, queue.poll().intValue());
+    }
+
+    /**
+     * Tests illegal arguments.
+     */
+    @Test
+    public void testIllegal() {
+        try {
+            new MultiProducerRingBufferQueue<Integer>(0);
+            Assert.fail("no exception");
+        } catch (IllegalArgumentException e) {
+            // ok
+        }
+        try {
+            new SingleProducerRingBufferQueue<Integer>(1).produce(null);
+            Assert.fail("no exception");
+        } catch (NullPointerException e) {
+            // ok
+        }
+    }
+
+    /**
+     * Tests the single-producer queue with one producer and one consumer thread for all wait strategies.
+     * 
+     * @throws InterruptedException shall not occur
+     */
+    @Test(timeout = 60000)
+    public void testSingleProducer() throws InterruptedException {
+        for (WaitStrategy strategy : WaitStrategy.values()) {
+            assertTransfer(new SingleProducerRingBufferQueue<Integer>(1024, strategy), 1);
+        }
+    }
+
+    /**
+     * Tests the multi-producer queue with multiple producers and one consumer thread for all wait strategies.
+     * 
+     * @throws InterruptedException shall not occur
+     */
+    @Test(timeout = 60000)
+    public void testMultiProducer() throws InterruptedException {
+        for (WaitStrategy strategy : WaitStrategy.values()) {
+            assertTransfer(new MultiProducerRingBufferQueue<Integer>(1024, strategy), 4);
+        }
+    }
+
+    /**
+     * Tests the synchronized queue via the same interface.
+     * 
+     * @throws InterruptedException shall not occur
+     */
+    @Test(timeout = 60000)
+    public void testSynchronized() throws InterruptedException {
+        assertTransfer(new SynchronizedQueue<Integer>(new ConcurrentLinkedQueue<Integer>(), 16), 1);
+    }
+
+    /**
+     * Transfers {@link #AMOUNT} numbers per producer through <code>queue</code> and asserts that all numbers 
+     * arrive exactly once and in order per producer.
+     * 
+     * @param queue the queue to test
+     * @param producers the number of producer threads
+     * @throws InterruptedException shall not occur
+     */
+    private static void assertTransfer(final IProducerConsumerQueue<Integer> queue, int producers) 
+        throws InterruptedException {
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            final int offset = p * AMOUNT;
+            threads[p] = new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    for (int i = 0; i < AMOUNT; i++) {
+                        queue.produce(offset + i);
+                    }
+                }
+            });
+            threads[p].start();
+        }
+        int[] last = new int[producers];
+        Arrays.fill(last, -1);
+        for (int i = 0; i < producers * AMOUNT; i++) {
+            int value = queue.consume();
+            int producer = value / AMOUNT;
+            int seq = value % AMOUNT;
+            Assert.assertEquals(last[producer] + 1, seq);
+            last[producer] = seq;
+        }
+        for (int p = 0; p < producers; p++) {
+            threads[p].join();
+            Assert.assertEquals(AMOUNT - 1, last[p]);
+        }
+        Assert.assertEquals(0, queue.currentSize());
+    }
+
+}
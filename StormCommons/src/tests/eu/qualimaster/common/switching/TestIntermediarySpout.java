@@ -14,9 +14,9 @@ import eu.qualimaster.base.algorithm.ISwitchTuple;
 import eu.qualimaster.common.switching.AbstractSwitchMechanism;
 import eu.qualimaster.common.switching.AbstractSwitchStrategy;
 import eu.qualimaster.common.switching.BaseSwitchSpout;
+import eu.qualimaster.common.switching.ITupleReceiverServer;
 import eu.qualimaster.common.switching.ParallelTrackSwitchMechanism;
 import eu.qualimaster.common.switching.SeparateIntermediaryStrategy;
-import eu.qualimaster.common.switching.TupleReceiverServer;
 import tests.eu.qualimaster.common.KryoTupleSerializerTest.IDataItem;
 import eu.qualimaster.common.switching.IState.SwitchState;
 /**
@@ -33,7 +33,7 @@ public class TestIntermediarySpout extends BaseSwitchSpout {
     private String streamId;
     private AbstractSwitchMechanism mechanism;
     private AbstractSwitchStrategy strategy;
-    private TupleReceiverServer server;
+    private ITupleReceiverServer server;
     private int count = 0;
     private boolean isClosed = false;
     
@@ -57,7 +57,7 @@ public class TestIntermediarySpout extends BaseSwitchSpout {
         strategy = new SeparateIntermediaryStrategy(conf, SwitchState.ACTIVE_DEFAULT);
         mechanism = new ParallelTrackSwitchMechanism(strategy);
         setSwitchMechanism(mechanism);
-        server = new TupleReceiverServer(strategy.getTupleReceiverHandler(), PORT);
+        server = strategy.createTupleReceiverServer(PORT);
         server.start();
     }
     